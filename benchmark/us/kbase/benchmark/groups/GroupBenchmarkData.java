@@ -0,0 +1,165 @@
+package us.kbase.benchmark.groups;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.groups.core.resource.ResourceType;
+
+/** Synthetic data for the groups benchmarks. All the data is created up front so that the
+ * benchmarks measure only the operation under test.
+ * @author gaprice@lbl.gov
+ *
+ */
+public class GroupBenchmarkData {
+
+	/** The users from whose perspective a group view may be built. */
+	public static enum Viewer {
+		/** A member of the group. */
+		MEMBER,
+		/** A user that is not a member of the group. */
+		NON_MEMBER,
+		/** An anonymous user. */
+		ANONYMOUS;
+	}
+	
+	/** The resource type of the resources in the benchmark groups. */
+	public static final ResourceType TYPE = rtype("workspace");
+	
+	private static final Instant NOW = Instant.ofEpochMilli(1540000000000L);
+	private static final int ADMIN_FRACTION = 10;
+	
+	private final GroupID id;
+	private final GroupName name;
+	private final GroupUser owner;
+	private final List<GroupUser> members;
+	private final List<GroupUser> admins;
+	private final List<ResourceDescriptor> resources;
+	private final List<NumberedCustomField> fields;
+	private final UserName member;
+	private final UserName nonMember;
+	
+	/** Create the data.
+	 * @param size the number of members and the number of resources in the group. One in
+	 * ten members will be an administrator.
+	 */
+	public GroupBenchmarkData(final int size) {
+		if (size < 1) {
+			throw new IllegalArgumentException("size must be at least 1");
+		}
+		try {
+			id = new GroupID("benchgroup");
+			name = new GroupName("Benchmark group");
+			owner = GroupUser.getBuilder(new UserName("owner"), NOW).build();
+			nonMember = new UserName("outsider");
+			final List<GroupUser> members = new ArrayList<>();
+			final List<GroupUser> admins = new ArrayList<>();
+			final List<ResourceDescriptor> resources = new ArrayList<>();
+			for (int i = 0; i < size; i++) {
+				final GroupUser u = GroupUser.getBuilder(
+						new UserName("user" + i), NOW.plusSeconds(i))
+						.withNullableLastVisit(NOW.plusSeconds(size + i))
+						.build();
+				if (i % ADMIN_FRACTION == 0) {
+					admins.add(u);
+				} else {
+					members.add(u);
+				}
+				resources.add(new ResourceDescriptor(
+						new ResourceAdministrativeID("" + i), new ResourceID(i + "/1")));
+			}
+			this.members = Collections.unmodifiableList(members);
+			this.admins = Collections.unmodifiableList(admins);
+			this.resources = Collections.unmodifiableList(resources);
+			this.fields = Collections.unmodifiableList(Arrays.asList(
+					new NumberedCustomField("description"),
+					new NumberedCustomField("logourl"),
+					new NumberedCustomField("homeurl-1")));
+			// user0 is an administrator, user1 is a member if size > 1
+			member = size > 1 ? members.get(0).getName() : admins.get(0).getName();
+		} catch (MissingParameterException | IllegalParameterException e) {
+			throw new RuntimeException("Fix yer benchmark data newb", e);
+		}
+	}
+	
+	private static ResourceType rtype(final String type) {
+		try {
+			return new ResourceType(type);
+		} catch (MissingParameterException | IllegalParameterException e) {
+			throw new RuntimeException("Fix yer benchmark data newb", e);
+		}
+	}
+	
+	/** Get a builder for the group, populated with all the synthetic data.
+	 * @return the group builder.
+	 */
+	public Group.Builder getGroupBuilder() {
+		final Group.Builder b = Group.getBuilder(id, name, owner, new CreateAndModTimes(NOW));
+		for (final GroupUser u: members) {
+			b.withMember(u);
+		}
+		for (final GroupUser u: admins) {
+			b.withAdministrator(u);
+		}
+		for (int i = 0; i < resources.size(); i++) {
+			b.withResource(TYPE, resources.get(i), NOW.plusSeconds(i));
+		}
+		for (final NumberedCustomField f: fields) {
+			b.withCustomField(f, "value for " + f.getField());
+		}
+		return b.withIsPrivate(false).withPrivateMemberList(false);
+	}
+	
+	/** Get the resources in the group.
+	 * @return the resources.
+	 */
+	public List<ResourceDescriptor> getResources() {
+		return resources;
+	}
+	
+	/** Get the name of a viewer of the group.
+	 * @param viewer the type of viewer.
+	 * @return the viewer's user name, or null for an anonymous viewer.
+	 */
+	public UserName getViewer(final Viewer viewer) {
+		switch (viewer) {
+			case MEMBER:
+				return member;
+			case NON_MEMBER:
+				return nonMember;
+			case ANONYMOUS:
+				return null;
+			default:
+				throw new IllegalArgumentException("Unknown viewer: " + viewer);
+		}
+	}
+	
+	/** Get resource information for all the resources in the group, as would be returned
+	 * by a resource handler for the given viewer.
+	 * @param viewer the user viewing the group, or null for an anonymous user.
+	 * @return the resource information.
+	 */
+	public ResourceInformationSet getResourceInfo(final UserName viewer) {
+		final ResourceInformationSet.Builder b = ResourceInformationSet.getBuilder(viewer);
+		for (final ResourceDescriptor d: resources) {
+			b.withResourceField(d.getResourceID(), "name", "ws" + d.getResourceID().getName())
+					.withResourceField(d.getResourceID(), "public", true);
+		}
+		return b.build();
+	}
+}
@@ -0,0 +1,53 @@
+package us.kbase.benchmark.groups;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.groups.core.Group;
+
+/** Benchmarks building a {@link Group} from a fully populated builder, and populating and
+ * building the group from scratch, as occurs when a group is read from storage.
+ * @author gaprice@lbl.gov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupBuildBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "50000"})
+	public int size;
+	
+	private GroupBenchmarkData data;
+	private Group.Builder builder;
+	
+	@Setup
+	public void setUp() {
+		data = new GroupBenchmarkData(size);
+		builder = data.getGroupBuilder();
+	}
+	
+	@Benchmark
+	public Group build() {
+		return builder.build();
+	}
+	
+	@Benchmark
+	public Group populateAndBuild() {
+		return data.getGroupBuilder().build();
+	}
+}
@@ -0,0 +1,59 @@
+package us.kbase.benchmark.groups;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.benchmark.groups.GroupBenchmarkData.Viewer;
+import us.kbase.groups.core.GroupView;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.service.api.APICommon;
+
+/** Benchmarks converting a standard {@link GroupView} to the map that is serialized to
+ * JSON by the service.
+ * @author gaprice@lbl.gov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupJSONBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "50000"})
+	public int size;
+	
+	@Param({"MEMBER", "NON_MEMBER", "ANONYMOUS"})
+	public Viewer viewer;
+	
+	private GroupView view;
+	
+	@Setup
+	public void setUp() {
+		final GroupBenchmarkData data = new GroupBenchmarkData(size);
+		final UserName user = data.getViewer(viewer);
+		view = GroupView.getBuilder(data.getGroupBuilder().build(), user)
+				.withStandardView(true)
+				.withResource(GroupBenchmarkData.TYPE, data.getResourceInfo(user))
+				.withPublicFieldDeterminer(f -> f.getField().equals("description"))
+				.build();
+	}
+	
+	@Benchmark
+	public Map<String, Object> toGroupJSON() {
+		return APICommon.toGroupJSON(view);
+	}
+}
@@ -0,0 +1,70 @@
+package us.kbase.benchmark.groups;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.benchmark.groups.GroupBenchmarkData.Viewer;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupView;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.resource.ResourceInformationSet;
+
+/** Benchmarks building standard and minimal {@link GroupView}s of a group from the
+ * perspective of a member, a non-member, and an anonymous user.
+ * @author gaprice@lbl.gov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GroupViewBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "50000"})
+	public int size;
+	
+	@Param({"MEMBER", "NON_MEMBER", "ANONYMOUS"})
+	public Viewer viewer;
+	
+	private Group group;
+	private UserName user;
+	private ResourceInformationSet info;
+	
+	@Setup
+	public void setUp() {
+		final GroupBenchmarkData data = new GroupBenchmarkData(size);
+		group = data.getGroupBuilder().build();
+		user = data.getViewer(viewer);
+		info = data.getResourceInfo(user);
+	}
+	
+	@Benchmark
+	public GroupView standardView() {
+		return GroupView.getBuilder(group, user)
+				.withStandardView(true)
+				.withResource(GroupBenchmarkData.TYPE, info)
+				.withPublicFieldDeterminer(f -> f.getField().equals("description"))
+				.build();
+	}
+	
+	@Benchmark
+	public GroupView minimalView() {
+		return GroupView.getBuilder(group, user)
+				.withResourceType(GroupBenchmarkData.TYPE)
+				.withMinimalViewFieldDeterminer(f -> f.getField().equals("logourl"))
+				.build();
+	}
+}
@@ -0,0 +1,70 @@
+package us.kbase.benchmark.groups;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+
+/** Benchmarks {@link Group#removeResources(us.kbase.groups.core.resource.ResourceType, Set)}
+ * when removing a single resource and when removing half the resources in a group.
+ * @author gaprice@lbl.gov
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemoveResourcesBenchmark {
+
+	@Param({"10", "100", "1000", "10000", "50000"})
+	public int size;
+	
+	private Group group;
+	private Set<ResourceID> one;
+	private Set<ResourceID> half;
+	
+	@Setup
+	public void setUp() {
+		final GroupBenchmarkData data = new GroupBenchmarkData(size);
+		group = data.getGroupBuilder().build();
+		one = new HashSet<>();
+		half = new HashSet<>();
+		int i = 0;
+		for (final ResourceDescriptor d: data.getResources()) {
+			if (i == size / 2) {
+				one.add(d.getResourceID());
+			}
+			if (i % 2 == 0) {
+				half.add(d.getResourceID());
+			}
+			i++;
+		}
+	}
+	
+	@Benchmark
+	public Group removeOne() {
+		return group.removeResources(GroupBenchmarkData.TYPE, one);
+	}
+	
+	@Benchmark
+	public Group removeHalf() {
+		return group.removeResources(GroupBenchmarkData.TYPE, half);
+	}
+}
@@ -4,6 +4,9 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.slf4j.LoggerFactory;
 
@@ -33,12 +36,23 @@ import us.kbase.groups.core.fieldvalidation.FieldValidator;
 import us.kbase.groups.core.fieldvalidation.FieldValidatorConfiguration;
 import us.kbase.groups.core.fieldvalidation.FieldValidatorFactory;
 import us.kbase.groups.core.fieldvalidation.FieldValidators;
+import us.kbase.groups.core.notifications.NotificationDispatcher;
 import us.kbase.groups.core.notifications.Notifications;
 import us.kbase.groups.core.notifications.NotificationsFactory;
+import us.kbase.groups.core.notifications.OutboxNotifications;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.metrics.MetricsRegistry.CounterFunction;
+import us.kbase.groups.metrics.MongoCommandMonitor;
+import us.kbase.groups.metrics.TimedNotifications;
+import us.kbase.groups.core.resource.CachingResourceHandler;
 import us.kbase.groups.core.resource.ResourceHandler;
 import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.CachingGroupsStorage;
 import us.kbase.groups.storage.GroupsStorage;
 import us.kbase.groups.storage.exceptions.StorageInitException;
+import us.kbase.groups.storage.memory.InMemoryGroupsStorage;
+import us.kbase.groups.storage.mongo.MongoChangeStreamWatcher;
 import us.kbase.groups.storage.mongo.MongoGroupsStorage;
 import us.kbase.groups.userhandler.KBaseUserHandler;
 import us.kbase.groups.util.Util;
@@ -66,10 +80,21 @@ public class GroupsBuilder {
 	}
 	
 	private static final int MAX_FIELD_SIZE = 5000;
+	private static final long NOTIFIER_DISPATCH_DELAY_MS = 1000;
+	
+	private static final String DEPENDENCY_NOTIFIER = "notifier";
+	
+	// the collections used by the MongoDB storage system
+	private static final Set<String> MONGO_COLLECTIONS = new HashSet<>(Arrays.asList(
+			"config", "groups", "members", "requests", "notifications"));
 	
 	private final MongoClient mc;
 	private final Groups groups;
 	private final GroupsStorage storage;
+	private final MongoChangeStreamWatcher changeWatcher;
+	private final NotificationDispatcher dispatcher;
+	private final MetricsRegistry metrics;
+	private final DownstreamTimer downstreamTimer;
 	
 	/** Build a groups instance.
 	 * @param cfg the configuration to build to.
@@ -80,40 +105,99 @@ public class GroupsBuilder {
 	public GroupsBuilder(final GroupsConfig cfg)
 			throws StorageInitException, GroupsConfigurationException {
 		checkNotNull(cfg, "cfg");
-		mc = buildMongo(cfg);
+		metrics = new MetricsRegistry();
+		downstreamTimer = new DownstreamTimer(metrics);
+		mc = cfg.isInMemoryStorage() ? null : buildMongo(cfg);
 		storage = buildStorage(cfg, mc);
+		changeWatcher = buildChangeWatcher(cfg, mc, storage);
+		dispatcher = buildDispatcher(cfg, storage);
 		groups = buildGroups(cfg, storage);
+		startBackgroundTasks();
 	}
 	
-	/** Build a groups instance with a previously existing MongoDB client. MongoDB
-	 * recommends creating only one client per process. The client must have been retrieved
-	 * from {@link #getMongoClient()}.
+	/** Build a groups instance with a previously existing MongoDB client, metrics registry,
+	 * and downstream timer. MongoDB recommends creating only one client per process, and the
+	 * client's command monitor records metrics in the registry of the builder that created the
+	 * client, so all three must have been retrieved from the same builder via
+	 * {@link #getMongoClient()}, {@link #getMetrics()}, and {@link #getDownstreamTimer()}.
 	 * @param cfg the configuration to build to.
 	 * @param mc the MongoDB client.
+	 * @param metrics the metrics registry.
+	 * @param downstreamTimer the downstream timer.
 	 * @throws StorageInitException if the storage system could not be initialized.
 	 * @throws GroupsConfigurationException if the application could not be built from the 
 	 * configuration.
 	 */
-	public GroupsBuilder(final GroupsConfig cfg, final MongoClient mc)
+	public GroupsBuilder(
+			final GroupsConfig cfg,
+			final MongoClient mc,
+			final MetricsRegistry metrics,
+			final DownstreamTimer downstreamTimer)
 			throws StorageInitException, GroupsConfigurationException {
 		checkNotNull(cfg, "cfg");
 		checkNotNull(mc, "mc");
+		checkNotNull(metrics, "metrics");
+		checkNotNull(downstreamTimer, "downstreamTimer");
 		this.mc = mc;
+		this.metrics = metrics;
+		this.downstreamTimer = downstreamTimer;
 		storage = buildStorage(cfg, mc);
+		changeWatcher = buildChangeWatcher(cfg, mc, storage);
+		dispatcher = buildDispatcher(cfg, storage);
+		groups = buildGroups(cfg, storage);
+		startBackgroundTasks();
+	}
+	
+	/** Build a groups instance with previously existing in memory storage, metrics registry,
+	 * and downstream timer, so that data stored in memory is not lost when the groups
+	 * instance is rebuilt. The storage settings in the configuration are ignored. The metrics
+	 * registry and downstream timer should have been retrieved from the builder that created
+	 * the storage via {@link #getMetrics()} and {@link #getDownstreamTimer()}.
+	 * @param cfg the configuration to build to.
+	 * @param storage the in memory storage.
+	 * @param metrics the metrics registry.
+	 * @param downstreamTimer the downstream timer.
+	 * @throws StorageInitException if the storage system could not be initialized.
+	 * @throws GroupsConfigurationException if the application could not be built from the 
+	 * configuration.
+	 */
+	public GroupsBuilder(
+			final GroupsConfig cfg,
+			final InMemoryGroupsStorage storage,
+			final MetricsRegistry metrics,
+			final DownstreamTimer downstreamTimer)
+			throws StorageInitException, GroupsConfigurationException {
+		checkNotNull(cfg, "cfg");
+		checkNotNull(storage, "storage");
+		checkNotNull(metrics, "metrics");
+		checkNotNull(downstreamTimer, "downstreamTimer");
+		this.mc = null;
+		this.storage = storage;
+		this.metrics = metrics;
+		this.downstreamTimer = downstreamTimer;
+		changeWatcher = null; // no cache to keep up to date
+		dispatcher = buildDispatcher(cfg, storage);
 		groups = buildGroups(cfg, storage);
+		startBackgroundTasks();
 	}
 	
 	private MongoClient buildMongo(final GroupsConfig c) throws StorageInitException {
 		//TODO ZLATER MONGO handle shards & replica sets
+		final MongoClientOptions opts = MongoClientOptions.builder()
+				.addCommandListener(new MongoCommandMonitor(
+						metrics,
+						c.getLogger(),
+						MONGO_COLLECTIONS,
+						c.getMongoSlowCommandThresholdMS()))
+				.build();
 		try {
 			if (c.getMongoUser().isPresent()) {
 				final MongoCredential creds = MongoCredential.createCredential(
 						c.getMongoUser().get(), c.getMongoDatabase(), c.getMongoPwd().get());
 				// unclear if and when it's safe to clear the password
-				return new MongoClient(new ServerAddress(c.getMongoHost()), creds,
-						MongoClientOptions.builder().build());
+				return new MongoClient(new ServerAddress(c.getMongoHost()), creds, opts);
 			} else {
-				return new MongoClient(new ServerAddress(c.getMongoHost()));
+				return new MongoClient(new ServerAddress(c.getMongoHost()), opts);
 			}
 		} catch (MongoException e) {
 			LoggerFactory.getLogger(getClass()).error(
@@ -124,25 +208,81 @@ public class GroupsBuilder {
 	
 	private Groups buildGroups(final GroupsConfig c, final GroupsStorage storage)
 			throws StorageInitException, GroupsConfigurationException {
-		final UserHandler uh;
+		final KBaseUserHandler uh;
 		// these handler creation methods may need changes if we want to allow alternate
 		// implementations. YAGNI for now.
 		try {
 			uh = new KBaseUserHandler(
-					c.getAuthURL(), c.getWorkspaceAdminToken(), c.isAllowInsecureURLs());
+					c.getAuthURL(),
+					c.getWorkspaceAdminToken(),
+					c.isAllowInsecureURLs(),
+					c.getAuthCacheSize(),
+					c.getAuthCacheExpirationSec(),
+					downstreamTimer);
 		} catch (IOException | URISyntaxException | AuthenticationException e) {
 			throw new GroupsConfigurationException(
 					"Failed to create KBase user handler for auth service: " + e.getMessage(), e);
 		}
+		registerAuthCacheMetrics(uh);
 		
 		return new Groups(
 				storage,
 				uh,
 				ImmutableMap.of(
-						RESOURCE_TYPE_WORKSPACE, getWorkspaceHandler(c),
-						RESOURCE_TYPE_CATALOG_METHOD, getCatalogHandler(c)),
+						RESOURCE_TYPE_WORKSPACE, cache(c, getWorkspaceHandler(c)),
+						RESOURCE_TYPE_CATALOG_METHOD, cache(c, getCatalogHandler(c))),
 				getValidators(c),
-				getNotifier(c));
+				new OutboxNotifications(storage),
+				c.getServiceAdmins(),
+				downstreamTimer);
+	}
+	
+	// the counters are shared across rebuilds, so the new handler's stats replace the old
+	private void registerAuthCacheMetrics(final KBaseUserHandler uh) {
+		final CounterFunction hits = metrics.counterFunction("groups_auth_cache_hits_total",
+				"Authentication service cache hits.", "cache");
+		final CounterFunction misses = metrics.counterFunction(
+				"groups_auth_cache_misses_total", "Authentication service cache misses.",
+				"cache");
+		hits.set(() -> uh.getTokenCacheStats().hitCount(), "token");
+		misses.set(() -> uh.getTokenCacheStats().missCount(), "token");
+		hits.set(() -> uh.getUserCacheStats().hitCount(), "user");
+		misses.set(() -> uh.getUserCacheStats().missCount(), "user");
+	}
+	
+	private NotificationDispatcher buildDispatcher(
+			final GroupsConfig c,
+			final GroupsStorage storage)
+			throws GroupsConfigurationException {
+		return new NotificationDispatcher(
+				storage,
+				getNotifier(c),
+				c.getNotifierDispatchBatchSize(),
+				c.getNotifierDispatchMaxAttempts());
+	}
+	
+	// started after everything else is built so nothing is left running if building fails
+	private void startBackgroundTasks() throws StorageInitException {
+		if (changeWatcher != null) {
+			try {
+				changeWatcher.start();
+			} catch (MongoException e) {
+				// without change streams the cache would serve data changed by other instances
+				LoggerFactory.getLogger(getClass()).error(
+						"Failed to open MongoDB change streams: " + e.getMessage(), e);
+				throw new StorageInitException("The storage cache requires MongoDB change " +
+						"streams, which require a replica set. Failed to open change streams: " +
+						e.getMessage(), e);
+			}
+		}
+		dispatcher.start(NOTIFIER_DISPATCH_DELAY_MS);
+	}
+
+	private ResourceHandler cache(final GroupsConfig c, final ResourceHandler handler) {
+		return new CachingResourceHandler(
+				handler,
+				c.getResourceAdminCacheSize(),
+				c.getResourceAdminCacheExpirationSec());
 	}
 
 	private ResourceHandler getWorkspaceHandler(final GroupsConfig c)
@@ -152,7 +292,13 @@ public class GroupsBuilder {
 					c.getWorkspaceURL(),
 					new AuthToken(c.getWorkspaceAdminToken().getToken(), "<fake>"));
 			client.setIsInsecureHttpConnectionAllowed(c.isAllowInsecureURLs());
-			return new SDKClientWorkspaceHandler(client);
+			return new SDKClientWorkspaceHandler(
+					client,
+					c.getWorkspaceParallelism(),
+					c.getWorkspaceCacheSize(),
+					c.getWorkspaceCacheExpirationSec(),
+					c.getWorkspacePermissionsCacheExpirationSec(),
+					downstreamTimer);
 		} catch (IOException | UnauthorizedException | ResourceHandlerException e) {
 			throw new GroupsConfigurationException(
 					"Failed to create workspace handler: " + e.getMessage(), e);
@@ -164,7 +310,11 @@ public class GroupsBuilder {
 		try {
 			final CatalogClient client = new CatalogClient(c.getCatalogURL());
 			client.setIsInsecureHttpConnectionAllowed(c.isAllowInsecureURLs());
-			return new SDKClientCatalogHandler(client);
+			return new SDKClientCatalogHandler(
+					client,
+					c.getCatalogCacheRefreshSec(),
+					c.getCatalogCacheExpirationSec(),
+					downstreamTimer);
 		} catch (ResourceHandlerException e) {
 			throw new GroupsConfigurationException(
 					"Failed to create catalog handler: " + e.getMessage(), e);
@@ -176,7 +326,8 @@ public class GroupsBuilder {
 		final NotificationsFactory fac = Util.loadClassWithInterface(
 				c.getNotifierFactory(), NotificationsFactory.class);
 		try {
-			return fac.getNotifier(c.getNotifierParameters());
+			return new TimedNotifications(fac.getNotifier(c.getNotifierParameters()),
+					downstreamTimer, DEPENDENCY_NOTIFIER);
 		} catch (IllegalParameterException | MissingParameterException e) {
 			throw new GroupsConfigurationException(
 					"Error building notifier: " + e.getMessage(), e);
@@ -220,6 +371,11 @@ public class GroupsBuilder {
 			final GroupsConfig c,
 			final MongoClient mc)
 			throws StorageInitException {
+		if (c.isInMemoryStorage()) {
+			LoggerFactory.getLogger(getClass()).warn(
+					"Using in memory storage. All data will be lost on shutdown.");
+			return new InMemoryGroupsStorage();
+		}
 		final MongoDatabase db;
 		try {
 			db = mc.getDatabase(c.getMongoDatabase());
@@ -230,11 +386,30 @@ public class GroupsBuilder {
 					e.getMessage(), e);
 		}
 		//TODO TEST authenticate to db, write actual test with authentication
-		return new MongoGroupsStorage(db);
+		final GroupsStorage s = new MongoGroupsStorage(db, c.isMongoMemberCollection());
+		if (c.getStorageCacheSize() > 0) {
+			return new CachingGroupsStorage(
+					s, c.getStorageCacheSize(), c.getStorageCacheExpirationSec());
+		}
+		return s;
+	}
+	
+	private MongoChangeStreamWatcher buildChangeWatcher(
+			final GroupsConfig c,
+			final MongoClient mc,
+			final GroupsStorage storage) {
+		if (!(storage instanceof CachingGroupsStorage)) {
+			return null; // no cache to keep up to date
+		}
+		return new MongoChangeStreamWatcher(
+				mc.getDatabase(c.getMongoDatabase()),
+				c.isMongoMemberCollection(),
+				(CachingGroupsStorage) storage);
 	}
 	
 	/** Get the mongo client associated with the groups instance.
-	 * @return the mongo client.
+	 * @return the mongo client, or null if the groups instance was built with in memory
+	 * storage and no client was provided.
 	 */
 	public MongoClient getMongoClient() {
 		return mc;
@@ -248,9 +423,41 @@ public class GroupsBuilder {
 	}
 	
 	/** Get the storage system for the groups instance.
-	 * @return the storage system.
+	 * @return the storage system. This is an {@link InMemoryGroupsStorage} instance if the
+	 * groups instance was built with in memory storage.
 	 */
 	public GroupsStorage getStorage() {
 		return storage;
 	}
+	
+	/** Get the watcher that keeps the storage cache up to date with changes made by other
+	 * service instances. The watcher is running when the builder is returned.
+	 * @return the change stream watcher, or null if the storage cache is disabled or the
+	 * groups instance was built with in memory storage.
+	 */
+	public MongoChangeStreamWatcher getChangeStreamWatcher() {
+		return changeWatcher;
+	}
+	
+	/** Get the dispatcher that sends notifications from the storage system to the notifier.
+	 * The dispatcher is running when the builder is returned.
+	 * @return the notification dispatcher.
+	 */
+	public NotificationDispatcher getNotificationDispatcher() {
+		return dispatcher;
+	}
+	
+	/** Get the registry for metrics collected by the groups instance and the service.
+	 * @return the metrics registry.
+	 */
+	public MetricsRegistry getMetrics() {
+		return metrics;
+	}
+	
+	/** Get the timer for calls to services on which the groups instance depends.
+	 * @return the downstream call timer.
+	 */
+	public DownstreamTimer getDownstreamTimer() {
+		return downstreamTimer;
+	}
 }
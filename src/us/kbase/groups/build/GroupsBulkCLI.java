@@ -0,0 +1,103 @@
+package us.kbase.groups.build;
+
+import java.io.BufferedOutputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Paths;
+
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientOptions;
+import com.mongodb.MongoCredential;
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+
+import us.kbase.groups.bulk.NDJSONCodec;
+import us.kbase.groups.config.GroupsConfig;
+import us.kbase.groups.core.ItemImporter;
+import us.kbase.groups.storage.mongo.MongoGroupsStorage;
+
+/** A command line interface for exporting the groups and requests in a MongoDB backed groups
+ * instance to newline delimited JSON on standard out, and importing them from standard in.
+ * The MongoDB connection is built from the deployment configuration file.
+ *
+ * The CLI bypasses the service and therefore its authentication. It connects directly to the
+ * database and so should only be run by those with administrative access to the database.
+ *
+ * See {@link NDJSONCodec} for the format.
+ */
+public class GroupsBulkCLI {
+
+	//TODO TEST
+	
+	private static final String EXPORT_GROUPS = "export-groups";
+	private static final String EXPORT_REQUESTS = "export-requests";
+	private static final String IMPORT_GROUPS = "import-groups";
+	private static final String IMPORT_REQUESTS = "import-requests";
+	
+	/** Run the CLI.
+	 * @param args the command, one of export-groups, export-requests, import-groups, or
+	 * import-requests, followed by the path to the deployment configuration file.
+	 */
+	public static void main(final String[] args) {
+		System.exit(new GroupsBulkCLI().run(args, System.out, System.err));
+	}
+	
+	private int run(final String[] args, final PrintStream out, final PrintStream err) {
+		if (args.length != 2) {
+			err.println(String.format("Usage: %s <%s|%s|%s|%s> <config file path>",
+					getClass().getSimpleName(),
+					EXPORT_GROUPS, EXPORT_REQUESTS, IMPORT_GROUPS, IMPORT_REQUESTS));
+			return 1;
+		}
+		final String command = args[0];
+		MongoClient mc = null;
+		try {
+			final GroupsConfig cfg = new GroupsConfig(Paths.get(args[1]), true);
+			if (cfg.isInMemoryStorage()) {
+				err.println("The configuration specifies in memory storage, which cannot " +
+						"be exported or imported");
+				return 1;
+			}
+			mc = buildMongo(cfg);
+			final MongoGroupsStorage storage = new MongoGroupsStorage(
+					mc.getDatabase(cfg.getMongoDatabase()), cfg.isMongoMemberCollection());
+			final OutputStream os = new BufferedOutputStream(out);
+			if (EXPORT_GROUPS.equals(command)) {
+				storage.processGroups(NDJSONCodec.groupWriter(os));
+				os.flush();
+			} else if (EXPORT_REQUESTS.equals(command)) {
+				storage.processRequests(NDJSONCodec.requestWriter(os));
+				os.flush();
+			} else if (IMPORT_GROUPS.equals(command)) {
+				err.println("Imported groups: " + ItemImporter.importItems(
+						NDJSONCodec.groupReader(System.in), b -> storage.importGroups(b)));
+			} else if (IMPORT_REQUESTS.equals(command)) {
+				err.println("Imported requests: " + ItemImporter.importItems(
+						NDJSONCodec.requestReader(System.in), b -> storage.importRequests(b)));
+			} else {
+				err.println("Unknown command: " + command);
+				return 1;
+			}
+		} catch (Exception e) {
+			err.println(e.getMessage());
+			return 1;
+		} finally {
+			if (mc != null) {
+				mc.close();
+			}
+		}
+		return 0;
+	}
+	
+	// see GroupsBuilder, which also attaches a command monitor for metrics
+	private MongoClient buildMongo(final GroupsConfig c) throws MongoException {
+		final MongoClientOptions opts = MongoClientOptions.builder().build();
+		if (c.getMongoUser().isPresent()) {
+			final MongoCredential creds = MongoCredential.createCredential(
+					c.getMongoUser().get(), c.getMongoDatabase(), c.getMongoPwd().get());
+			return new MongoClient(new ServerAddress(c.getMongoHost()), creds, opts);
+		} else {
+			return new MongoClient(new ServerAddress(c.getMongoHost()), opts);
+		}
+	}
+}
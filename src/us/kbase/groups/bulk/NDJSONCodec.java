@@ -0,0 +1,471 @@
+package us.kbase.groups.bulk;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.ItemSource;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.GroupRequestStatusType;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.request.RequestType;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.ItemProcessor;
+
+/** Converts groups and requests to and from newline delimited JSON (NDJSON), one group or
+ * request per line. The format is independent of the storage system and is used to export
+ * and import the contents of a groups instance.
+ *
+ * Each item includes a version field containing the version of the format,
+ * {@link #FORMAT_VERSION}. Items with any other version are rejected when read, so that a
+ * future change to the format can't be silently misread.
+ *
+ * Dates are represented as milliseconds since the epoch. When reading, each item is
+ * validated by constructing the core model classes.
+ */
+public class NDJSONCodec {
+
+	/** The media type for newline delimited JSON. */
+	public static final String MEDIA_TYPE = "application/x-ndjson";
+	
+	/** The version of the format written and read by the codec. */
+	public static final int FORMAT_VERSION = 1;
+	
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	private static final String VERSION = "version";
+	private static final String ID = "id";
+	private static final String NAME = "name";
+	private static final String OWNER = "owner";
+	private static final String PRIVATE = "private";
+	private static final String PRIVATE_MEMBERS = "privatemembers";
+	private static final String CREATED = "created";
+	private static final String MODIFIED = "modified";
+	private static final String EXPIRES = "expires";
+	private static final String ADMINS = "admins";
+	private static final String MEMBERS = "members";
+	private static final String JOINED = "joined";
+	private static final String LAST_VISIT = "lastvisit";
+	private static final String RESOURCES = "resources";
+	private static final String RESOURCE_ID = "rid";
+	private static final String RESOURCE_ADMIN_ID = "adminid";
+	private static final String RESOURCE_ADDED = "added";
+	private static final String CUSTOM = "custom";
+	private static final String GROUP_ID = "groupid";
+	private static final String REQUESTER = "requester";
+	private static final String TYPE = "type";
+	private static final String RESOURCE_TYPE = "resourcetype";
+	private static final String STATUS = "status";
+	private static final String CLOSED_BY = "closedby";
+	private static final String CLOSED_REASON = "closedreason";
+	
+	private NDJSONCodec() {}
+	
+	/** Get a processor that writes each group to an output stream as a line of JSON. The
+	 * stream is not closed.
+	 * @param out the output stream.
+	 * @return the processor.
+	 */
+	public static ItemProcessor<Group> groupWriter(final OutputStream out) {
+		checkNotNull(out, "out");
+		return g -> writeLine(out, toMap(g));
+	}
+	
+	/** Get a processor that writes each request to an output stream as a line of JSON. The
+	 * stream is not closed.
+	 * @param out the output stream.
+	 * @return the processor.
+	 */
+	public static ItemProcessor<GroupRequest> requestWriter(final OutputStream out) {
+		checkNotNull(out, "out");
+		return r -> writeLine(out, toMap(r));
+	}
+	
+	/** Get a source of groups that reads the groups from an input stream containing groups
+	 * written by {@link #groupWriter(OutputStream)}. Blank lines are ignored. The stream is
+	 * read as needed and is not closed.
+	 * @param in the input stream.
+	 * @return the source of the groups.
+	 */
+	public static ItemSource<Group> groupReader(final InputStream in) {
+		return new LineReader<>(in, m -> toGroup(m));
+	}
+	
+	/** Get a source of requests that reads the requests from an input stream containing
+	 * requests written by {@link #requestWriter(OutputStream)}. Blank lines are ignored. The
+	 * stream is read as needed and is not closed.
+	 * @param in the input stream.
+	 * @return the source of the requests.
+	 */
+	public static ItemSource<GroupRequest> requestReader(final InputStream in) {
+		return new LineReader<>(in, m -> toRequest(m));
+	}
+	
+	private static void writeLine(final OutputStream out, final Map<String, Object> item)
+			throws IOException {
+		out.write(MAPPER.writeValueAsBytes(item));
+		out.write('\n');
+	}
+	
+	private static interface MapConverter<T> {
+	
+		T convert(Map<String, Object> item)
+				throws IllegalParameterException, MissingParameterException;
+	}
+	
+	private static class LineReader<T> implements ItemSource<T> {
+	
+		private final BufferedReader reader;
+		private final MapConverter<T> converter;
+		private int lineNumber = 0;
+		
+		private LineReader(final InputStream in, final MapConverter<T> converter) {
+			checkNotNull(in, "in");
+			reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+			this.converter = converter;
+		}
+		
+		@Override
+		public Optional<T> next()
+				throws IOException, IllegalParameterException, MissingParameterException {
+			String line = reader.readLine();
+			lineNumber++;
+			while (line != null && line.trim().isEmpty()) {
+				line = reader.readLine();
+				lineNumber++;
+			}
+			if (line == null) {
+				return Optional.empty();
+			}
+			final Object item;
+			try {
+				item = MAPPER.readValue(line, Object.class);
+			} catch (JsonProcessingException e) {
+				throw new IllegalParameterException(String.format(
+						"Line %s is not valid JSON: %s", lineNumber, e.getOriginalMessage()));
+			}
+			if (!(item instanceof Map)) {
+				throw new IllegalParameterException(String.format(
+						"Line %s is not a JSON object", lineNumber));
+			}
+			@SuppressWarnings("unchecked")
+			final Map<String, Object> map = (Map<String, Object>) item;
+			if (!Integer.valueOf(FORMAT_VERSION).equals(map.get(VERSION))) {
+				throw new IllegalParameterException(String.format(
+						"Line %s has unsupported format version %s. The supported version is %s",
+						lineNumber, map.get(VERSION), FORMAT_VERSION));
+			}
+			try {
+				return Optional.of(converter.convert(map));
+			} catch (IllegalArgumentException e) {
+				// thrown by the model class builders
+				throw new IllegalParameterException(String.format(
+						"Line %s: %s", lineNumber, e.getMessage()), e);
+			}
+		}
+	}
+	
+	private static Map<String, Object> toMap(final Group g) {
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(VERSION, FORMAT_VERSION);
+		ret.put(ID, g.getGroupID().getName());
+		ret.put(NAME, g.getGroupName().getName());
+		ret.put(OWNER, g.getOwner().getName());
+		ret.put(PRIVATE, g.isPrivate());
+		ret.put(PRIVATE_MEMBERS, g.isPrivateMemberList());
+		ret.put(CREATED, g.getCreationDate().toEpochMilli());
+		ret.put(MODIFIED, g.getModificationDate().toEpochMilli());
+		ret.put(ADMINS, g.getAdministrators().stream().map(a -> a.getName()).sorted()
+				.collect(Collectors.toList()));
+		ret.put(MEMBERS, g.getAllMembers().stream().sorted()
+				.map(m -> toMap(g.getMember(m))).collect(Collectors.toList()));
+		final Map<String, Object> resources = new TreeMap<>();
+		for (final ResourceType t: g.getResourceTypes()) {
+			resources.put(t.getName(), g.getResources(t).stream()
+					.sorted((r1, r2) -> r1.getResourceID().compareTo(r2.getResourceID()))
+					.map(r -> {
+						final Map<String, Object> res = new LinkedHashMap<>();
+						res.put(RESOURCE_ID, r.getResourceID().getName());
+						res.put(RESOURCE_ADMIN_ID, r.getAdministrativeID().getName());
+						res.put(RESOURCE_ADDED, g.getResourceAddDate(t, r.getResourceID())
+								.map(i -> i.toEpochMilli()).orElse(null));
+						return res;
+					})
+					.collect(Collectors.toList()));
+		}
+		ret.put(RESOURCES, resources);
+		ret.put(CUSTOM, toCustomMap(g.getCustomFields()));
+		return ret;
+	}
+	
+	private static Map<String, Object> toMap(final GroupUser u) {
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(NAME, u.getName().getName());
+		ret.put(JOINED, u.getJoinDate().toEpochMilli());
+		ret.put(LAST_VISIT, u.getLastVisit().map(i -> i.toEpochMilli()).orElse(null));
+		ret.put(CUSTOM, toCustomMap(u.getCustomFields()));
+		return ret;
+	}
+	
+	private static Map<String, String> toCustomMap(
+			final Map<NumberedCustomField, String> fields) {
+		final Map<String, String> ret = new TreeMap<>();
+		fields.entrySet().stream().forEach(e -> ret.put(e.getKey().getField(), e.getValue()));
+		return ret;
+	}
+	
+	private static Map<String, Object> toMap(final GroupRequest r) {
+		final Map<String, Object> ret = new LinkedHashMap<>();
+		ret.put(VERSION, FORMAT_VERSION);
+		ret.put(ID, r.getID().getID());
+		ret.put(GROUP_ID, r.getGroupID().getName());
+		ret.put(REQUESTER, r.getRequester().getName());
+		ret.put(TYPE, r.getType().name());
+		ret.put(RESOURCE_TYPE, r.getResourceType().getName());
+		ret.put(RESOURCE_ADMIN_ID, r.getResource().getAdministrativeID().getName());
+		ret.put(RESOURCE_ID, r.getResource().getResourceID().getName());
+		ret.put(STATUS, r.getStatusType().name());
+		ret.put(CLOSED_BY, r.getClosedBy().map(u -> u.getName()).orElse(null));
+		ret.put(CLOSED_REASON, r.getClosedReason().orElse(null));
+		ret.put(CREATED, r.getCreationDate().toEpochMilli());
+		ret.put(MODIFIED, r.getModificationDate().toEpochMilli());
+		ret.put(EXPIRES, r.getExpirationDate().toEpochMilli());
+		return ret;
+	}
+	
+	private static Group toGroup(final Map<String, Object> g)
+			throws IllegalParameterException, MissingParameterException {
+		final Map<UserName, GroupUser> members = new HashMap<>();
+		for (final Map<String, Object> m: getMapList(g, MEMBERS)) {
+			final GroupUser gu = toGroupUser(m);
+			if (members.put(gu.getName(), gu) != null) {
+				throw new IllegalParameterException("Duplicate member " + gu.getName().getName());
+			}
+		}
+		final UserName owner = new UserName(getString(g, OWNER));
+		if (!members.containsKey(owner)) {
+			throw new IllegalParameterException(String.format(
+					"Owner %s is not in the member list", owner.getName()));
+		}
+		final Group.Builder b = Group.getBuilder(
+				new GroupID(getString(g, ID)),
+				new GroupName(getString(g, NAME)),
+				members.remove(owner),
+				new CreateAndModTimes(getInstant(g, CREATED), getInstant(g, MODIFIED)))
+				.withIsPrivate(getBoolean(g, PRIVATE))
+				.withPrivateMemberList(getBoolean(g, PRIVATE_MEMBERS));
+		for (final Object a: getList(g, ADMINS)) {
+			final UserName admin = new UserName(checkType(a, String.class, ADMINS));
+			if (!members.containsKey(admin)) {
+				throw new IllegalParameterException(String.format(
+						"Administrator %s is not in the member list", admin.getName()));
+			}
+			b.withAdministrator(members.remove(admin));
+		}
+		members.values().stream().forEach(m -> b.withMember(m));
+		final Map<String, Object> resources = getMap(g, RESOURCES);
+		for (final String type: resources.keySet()) {
+			final ResourceType t = new ResourceType(type);
+			for (final Object o: checkType(resources.get(type), List.class, RESOURCES)) {
+				final Map<String, Object> r = castToMap(o, RESOURCES);
+				b.withResource(
+						t,
+						new ResourceDescriptor(
+								new ResourceAdministrativeID(getString(r, RESOURCE_ADMIN_ID)),
+								new ResourceID(getString(r, RESOURCE_ID))),
+						getNullableInstant(r, RESOURCE_ADDED));
+			}
+		}
+		for (final Map.Entry<String, String> e: getCustomFields(g).entrySet()) {
+			b.withCustomField(new NumberedCustomField(e.getKey()), e.getValue());
+		}
+		return b.build();
+	}
+	
+	private static GroupUser toGroupUser(final Map<String, Object> m)
+			throws IllegalParameterException, MissingParameterException {
+		final GroupUser.Builder b = GroupUser.getBuilder(
+				new UserName(getString(m, NAME)), getInstant(m, JOINED))
+				.withNullableLastVisit(getNullableInstant(m, LAST_VISIT));
+		for (final Map.Entry<String, String> e: getCustomFields(m).entrySet()) {
+			b.withCustomField(new NumberedCustomField(e.getKey()), e.getValue());
+		}
+		return b.build();
+	}
+	
+	private static GroupRequest toRequest(final Map<String, Object> r)
+			throws IllegalParameterException, MissingParameterException {
+		final String closedBy = getString(r, CLOSED_BY);
+		return GroupRequest.getBuilder(
+				new RequestID(getString(r, ID)),
+				new GroupID(getString(r, GROUP_ID)),
+				new UserName(getString(r, REQUESTER)),
+				CreateModAndExpireTimes.getBuilder(
+						getInstant(r, CREATED), getInstant(r, EXPIRES))
+						.withModificationTime(getInstant(r, MODIFIED))
+						.build())
+				.withType(getEnum(r, TYPE, RequestType.class))
+				.withResourceType(new ResourceType(getString(r, RESOURCE_TYPE)))
+				.withResource(new ResourceDescriptor(
+						new ResourceAdministrativeID(getString(r, RESOURCE_ADMIN_ID)),
+						new ResourceID(getString(r, RESOURCE_ID))))
+				.withStatus(toStatus(
+						getEnum(r, STATUS, GroupRequestStatusType.class),
+						closedBy == null ? null : new UserName(closedBy),
+						getString(r, CLOSED_REASON)))
+				.build();
+	}
+	
+	private static GroupRequestStatus toStatus(
+			final GroupRequestStatusType type,
+			final UserName closedBy,
+			final String reason)
+			throws IllegalParameterException, MissingParameterException {
+		if (closedBy == null && (GroupRequestStatusType.ACCEPTED.equals(type) ||
+				GroupRequestStatusType.DENIED.equals(type))) {
+			throw new MissingParameterException(CLOSED_BY);
+		}
+		return GroupRequestStatus.from(type, closedBy, reason);
+	}
+	
+	private static <T> T checkType(final Object o, final Class<T> clazz, final String field)
+			throws IllegalParameterException {
+		if (o != null && !clazz.isInstance(o)) {
+			throw new IllegalParameterException(String.format(
+					"Field %s has an illegal value type", field));
+		}
+		return clazz.cast(o);
+	}
+	
+	// may return null
+	private static String getString(final Map<String, Object> item, final String field)
+			throws IllegalParameterException {
+		return checkType(item.get(field), String.class, field);
+	}
+	
+	private static boolean getBoolean(final Map<String, Object> item, final String field)
+			throws IllegalParameterException, MissingParameterException {
+		final Boolean b = checkType(item.get(field), Boolean.class, field);
+		if (b == null) {
+			throw new MissingParameterException(field);
+		}
+		return b;
+	}
+	
+	private static Instant getInstant(final Map<String, Object> item, final String field)
+			throws IllegalParameterException, MissingParameterException {
+		final Instant i = getNullableInstant(item, field);
+		if (i == null) {
+			throw new MissingParameterException(field);
+		}
+		return i;
+	}
+	
+	private static Instant getNullableInstant(final Map<String, Object> item, final String field)
+			throws IllegalParameterException {
+		final Object o = item.get(field);
+		if (o == null) {
+			return null;
+		}
+		if (!(o instanceof Integer || o instanceof Long)) {
+			throw new IllegalParameterException(String.format(
+					"Field %s has an illegal value type", field));
+		}
+		return Instant.ofEpochMilli(((Number) o).longValue());
+	}
+	
+	private static <T extends Enum<T>> T getEnum(
+			final Map<String, Object> item,
+			final String field,
+			final Class<T> clazz)
+			throws IllegalParameterException, MissingParameterException {
+		final String s = getString(item, field);
+		if (s == null) {
+			throw new MissingParameterException(field);
+		}
+		try {
+			return Enum.valueOf(clazz, s);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException(String.format(
+					"Illegal value for field %s: %s", field, s));
+		}
+	}
+	
+	// returns an empty list if the field is absent
+	private static List<?> getList(final Map<String, Object> item, final String field)
+			throws IllegalParameterException {
+		final List<?> l = checkType(item.get(field), List.class, field);
+		return l == null ? Collections.emptyList() : l;
+	}
+	
+	private static List<Map<String, Object>> getMapList(
+			final Map<String, Object> item,
+			final String field)
+			throws IllegalParameterException {
+		final List<Map<String, Object>> ret = new LinkedList<>();
+		for (final Object o: getList(item, field)) {
+			ret.add(castToMap(o, field));
+		}
+		return ret;
+	}
+	
+	// returns an empty map if the field is absent
+	private static Map<String, Object> getMap(final Map<String, Object> item, final String field)
+			throws IllegalParameterException {
+		final Object o = item.get(field);
+		return o == null ? Collections.emptyMap() : castToMap(o, field);
+	}
+	
+	private static Map<String, Object> castToMap(final Object o, final String field)
+			throws IllegalParameterException {
+		@SuppressWarnings("unchecked")
+		final Map<String, Object> m = checkType(o, Map.class, field);
+		if (m == null) {
+			throw new IllegalParameterException(String.format(
+					"Field %s contains a null value", field));
+		}
+		return m;
+	}
+	
+	private static Map<String, String> getCustomFields(final Map<String, Object> item)
+			throws IllegalParameterException {
+		final Map<String, String> ret = new HashMap<>();
+		final Map<String, Object> custom = getMap(item, CUSTOM);
+		for (final String field: custom.keySet()) {
+			ret.put(field, checkType(custom.get(field), String.class, CUSTOM));
+		}
+		return ret;
+	}
+}
@@ -5,10 +5,23 @@ import static us.kbase.groups.util.Util.checkNoNullsInCollection;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 
 import us.kbase.catalog.BasicModuleInfo;
 import us.kbase.catalog.CatalogClient;
@@ -28,6 +41,9 @@ import us.kbase.groups.core.resource.ResourceHandler;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
 import us.kbase.groups.core.resource.ResourceInformationSet.Builder;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.DownstreamTimer.Timing;
+import us.kbase.groups.metrics.MetricsRegistry;
 
 /** A handler implementation that uses a provided SDK workspace client to communicate with the 
  * catalog.
@@ -36,7 +52,6 @@ import us.kbase.groups.core.resource.ResourceInformationSet.Builder;
  */
 public class SDKClientCatalogHandler implements ResourceHandler {
 	
-	// TODO CACHE may help to cache all or some of the results. YAGNI for now.
 	// TODO TEST integration tests, general. Not sure how painful it's gonna be to run the catalog in tests. Docker?
 	
 	/* may want to change behavior wrt disabled modules (see below). Currently disabled modules
@@ -44,17 +59,122 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 	 * fns to enable / disable are set_active/inactive.
 	 * get_module_state may be useful.
 	 */
+	
+	/* Module information and the lists of modules owned by a user are cached, since catalog
+	 * modules change rarely. Once an entry is older than the refresh time, the next access
+	 * triggers a reload in the background and the stale entry is returned until the reload
+	 * completes. If the reload fails the stale entry is kept and the reload is retried on the
+	 * next access. Entries older than the expiration time are never returned.
+	 * Modules that are not registered are not cached.
+	 */
+	
+	private static final int CACHE_SIZE = 10000;
+	private static final int DEFAULT_CACHE_REFRESH_SEC = 300;
+	private static final int DEFAULT_CACHE_EXPIRATION_SEC = 3600;
+	private static final int REFRESH_THREADS = 2;
+	
+	// calls to the catalog are timed here rather than by wrapping the handler so that
+	// cache hits aren't recorded as downstream calls
+	private static final String DEPENDENCY = "catalog";
 
 	private final CatalogClient client;
+	private final DownstreamTimer timer;
+	private final LoadingCache<String, ModInfo> moduleCache;
+	private final LoadingCache<UserName, Set<ResourceAdministrativeID>> ownerCache;
 
-	/** Create the handler.
+	/** Create the handler. Cached catalog information is refreshed after 300 seconds and
+	 * expires after 3600 seconds. Calls to the catalog are timed in an unshared metrics
+	 * registry.
 	 * @param client the catalog client to use to communicate with the catalog. No token is
 	 * necessary.
 	 * @throws ResourceHandlerException if an error occurs contacting the catalog.
 	 */
 	public SDKClientCatalogHandler(final CatalogClient client) throws ResourceHandlerException {
+		this(client, DEFAULT_CACHE_REFRESH_SEC, DEFAULT_CACHE_EXPIRATION_SEC,
+				new DownstreamTimer(new MetricsRegistry()));
+	}
+	
+	/** Create the handler.
+	 * @param client the catalog client to use to communicate with the catalog. No token is
+	 * necessary.
+	 * @param cacheRefreshSec the time, in seconds, after which cached catalog information is
+	 * refreshed in the background. The cached information is returned while the refresh is
+	 * in progress.
+	 * @param cacheExpirationSec the time, in seconds, after which cached catalog information
+	 * expires and is no longer returned.
+	 * @param timer the timer with which calls to the catalog will be timed. Requests answered
+	 * from the caches are not timed.
+	 * @throws ResourceHandlerException if an error occurs contacting the catalog.
+	 */
+	public SDKClientCatalogHandler(
+			final CatalogClient client,
+			final int cacheRefreshSec,
+			final int cacheExpirationSec,
+			final DownstreamTimer timer)
+			throws ResourceHandlerException {
+		this(client, cacheRefreshSec, cacheExpirationSec, timer, Ticker.systemTicker(),
+				getRefreshExecutor());
+	}
+	
+	private static Executor getRefreshExecutor() {
+		final ThreadPoolExecutor exe = new ThreadPoolExecutor(
+				REFRESH_THREADS,
+				REFRESH_THREADS,
+				60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder()
+						.setDaemon(true)
+						.setNameFormat("groups-catalog-handler-%d")
+						.build());
+		exe.allowCoreThreadTimeOut(true);
+		return exe;
+	}
+	
+	// for tests
+	private SDKClientCatalogHandler(
+			final CatalogClient client,
+			final int cacheRefreshSec,
+			final int cacheExpirationSec,
+			final DownstreamTimer timer,
+			final Ticker ticker,
+			final Executor refreshExecutor)
+			throws ResourceHandlerException {
 		checkNotNull(client, "client");
+		checkNotNull(timer, "timer");
+		if (cacheRefreshSec < 1) {
+			throw new IllegalArgumentException("cacheRefreshSec must be at least 1");
+		}
+		if (cacheExpirationSec < 1) {
+			throw new IllegalArgumentException("cacheExpirationSec must be at least 1");
+		}
 		this.client = client;
+		this.timer = timer;
+		moduleCache = CacheBuilder.newBuilder()
+				.maximumSize(CACHE_SIZE)
+				.refreshAfterWrite(cacheRefreshSec, TimeUnit.SECONDS)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.ticker(ticker)
+				.build(CacheLoader.asyncReloading(new CacheLoader<String, ModInfo>() {
+
+					@Override
+					public ModInfo load(final String module) throws Exception {
+						return fetchModuleInfo(module);
+					}
+				}, refreshExecutor));
+		ownerCache = CacheBuilder.newBuilder()
+				.maximumSize(CACHE_SIZE)
+				.refreshAfterWrite(cacheRefreshSec, TimeUnit.SECONDS)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.ticker(ticker)
+				.build(CacheLoader.asyncReloading(
+						new CacheLoader<UserName, Set<ResourceAdministrativeID>>() {
+
+							@Override
+							public Set<ResourceAdministrativeID> load(final UserName owner)
+									throws Exception {
+								return fetchOwnedModules(owner);
+							}
+						}, refreshExecutor));
 		try {
 			client.version();
 		} catch (IOException | JsonClientException e) {
@@ -92,6 +212,38 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 		}
 		return new ModMeth(mod, meth);
 	}
+	
+	private static class ModInfo {
+		private final List<String> owners;
+		private final Set<String> methods;
+		
+		private ModInfo(final List<String> owners, final Set<String> methods) {
+			this.owners = owners;
+			this.methods = methods;
+		}
+	}
+	
+	/* Unwraps exceptions thrown by the cache loaders. If the catalog is down the cache
+	 * will return stale data where available, so exceptions only propagate if no data is
+	 * cached for the key.
+	 */
+	private <K, V> V getFromCache(final LoadingCache<K, V> cache, final K key)
+			throws ResourceHandlerException, NoSuchResourceException {
+		try {
+			return cache.get(key);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ResourceHandlerException) {
+				throw (ResourceHandlerException) cause;
+			} else if (cause instanceof NoSuchResourceException) {
+				throw (NoSuchResourceException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else {
+				throw new RuntimeException("This should be impossible", cause);
+			}
+		}
+	}
 
 	@Override
 	public boolean isAdministrator(final ResourceID resource, final UserName user)
@@ -104,21 +256,41 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 	private List<String> getModuleOwners(final ResourceID module)
 			throws ResourceHandlerException, NoSuchResourceException, IllegalResourceIDException {
 		final ModMeth modmeth = getModMeth(module);
+		final ModInfo mod;
+		try {
+			mod = getFromCache(moduleCache, modmeth.mod);
+		} catch (NoSuchResourceException e) {
+			// the loader doesn't know the method name
+			throw new NoSuchResourceException(module.getName(), e.getCause());
+		}
+		if (!mod.methods.contains(modmeth.meth)) {
+			throw new NoSuchResourceException(module.getName());
+		}
+		return mod.owners;
+	}
+	
+	private ModInfo fetchModuleInfo(final String module)
+			throws ResourceHandlerException, NoSuchResourceException {
 		final ModuleInfo mod;
+		final Timing t = timer.start(DEPENDENCY, "getModuleInfo");
 		try {
-			mod = client.getModuleInfo(new SelectOneModuleParams()
-					.withModuleName(modmeth.mod));
+			mod = t.success(client.getModuleInfo(new SelectOneModuleParams()
+					.withModuleName(module)));
 		} catch (IOException e) {
 			throw wrapGeneralCatalogException(e);
 		} catch (JsonClientException e) {
 			if (e.getMessage().contains("module/repo is not registered")) {
-				throw new NoSuchResourceException(module.getName(), e);
+				throw new NoSuchResourceException(module, e);
 			} else {
 				throw wrapGeneralCatalogException(e);
 			}
+		} finally {
+			t.stop();
 		}
+		final List<String> owners = Collections.unmodifiableList(mod.getOwners());
 		if (mod.getRelease() == null) {
-			throw new NoSuchResourceException(module.getName());
+			// no released methods
+			return new ModInfo(owners, Collections.emptySet());
 		}
 		// wow this is some shit right here, the catalog spec is wrong
 		// https://github.com/kbase/catalog/issues/100
@@ -128,25 +300,36 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 		@SuppressWarnings("unchecked")
 		final List<String> narrMethods = (List<String>) addl.get("narrative_methods");
 		
-		if (!localMethods.contains(modmeth.meth) && !narrMethods.contains(modmeth.meth)) {
-			throw new NoSuchResourceException(module.getName());
-		}
-		return mod.getOwners();
+		final Set<String> methods = new HashSet<>(localMethods);
+		methods.addAll(narrMethods);
+		return new ModInfo(owners, Collections.unmodifiableSet(methods));
 	}
 
 	@Override
 	public Set<ResourceAdministrativeID> getAdministratedResources(final UserName user)
 			throws ResourceHandlerException {
 		checkNotNull(user, "user");
+		try {
+			return getFromCache(ownerCache, user);
+		} catch (NoSuchResourceException e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
+	}
+	
+	private Set<ResourceAdministrativeID> fetchOwnedModules(final UserName user)
+			throws ResourceHandlerException {
 		final List<BasicModuleInfo> mods;
+		final Timing t = timer.start(DEPENDENCY, "listBasicModuleInfo");
 		try {
-			mods = client.listBasicModuleInfo(new ListModuleParams()
+			mods = t.success(client.listBasicModuleInfo(new ListModuleParams()
 					.withOwners(Arrays.asList(user.getName()))
 					// may want to disallow disabled later, but all the other methods ignore that
 					// TODO TEST integration test for this, ensure disabled modules show up
-					.withIncludeDisabled(1L));
+					.withIncludeDisabled(1L)));
 		} catch (IOException | JsonClientException e) {
 			throw wrapGeneralCatalogException(e);
+		} finally {
+			t.stop();
 		}
 		final Set<ResourceAdministrativeID> ret = new HashSet<>();
 		for (final BasicModuleInfo m: mods) {
@@ -157,7 +340,7 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 						"Illegal module name returned from catalog: " + m.getModuleName());
 			}
 		}
-		return ret;
+		return Collections.unmodifiableSet(ret);
 	}
 
 	@Override
@@ -208,4 +391,19 @@ public class SDKClientCatalogHandler implements ResourceHandler {
 	public void setReadPermission(ResourceID resource, UserName user) {
 		return; // nothing to do, catalog methods are all public
 	}
+	
+	@Override
+	public void evictCache(final ResourceID resource) throws IllegalResourceIDException {
+		checkNotNull(resource, "resource");
+		moduleCache.invalidate(getModMeth(resource).mod);
+		// the module owners may have changed, and there's no way to tell which cached owners
+		// were affected
+		ownerCache.invalidateAll();
+	}
+	
+	@Override
+	public void evictCache() {
+		moduleCache.invalidateAll();
+		ownerCache.invalidateAll();
+	}
 }
@@ -21,6 +21,7 @@ import org.productivity.java.syslog4j.SyslogIF;
 import com.google.common.base.Optional;
 
 import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.exceptions.IllegalParameterException;
 import us.kbase.groups.core.exceptions.MissingParameterException;
 import us.kbase.groups.core.fieldvalidation.CustomField;
@@ -50,18 +51,43 @@ public class GroupsConfig {
 	private static final String CFG_LOC = "groups";
 	private static final String TEMP_KEY_CFG_FILE = "temp-key-config-file";
 	
+	private static final String KEY_IN_MEMORY_STORAGE = "in-memory-storage";
 	private static final String KEY_MONGO_HOST = "mongo-host";
 	private static final String KEY_MONGO_DB = "mongo-db";
 	private static final String KEY_MONGO_USER = "mongo-user";
 	private static final String KEY_MONGO_PWD = "mongo-pwd";
+	private static final String KEY_MONGO_SLOW_COMMAND_THRESHOLD =
+			"mongo-slow-command-threshold-ms";
+	private static final String KEY_MONGO_MEMBER_COLLECTION = "mongo-member-collection";
+	private static final String KEY_STORAGE_CACHE_SIZE = "storage-cache-max-size";
+	private static final String KEY_STORAGE_CACHE_EXPIRATION = "storage-cache-expiration-sec";
 	private static final String KEY_AUTH_URL = "auth-url";
 	private static final String KEY_WORKSPACE_URL = "workspace-url";
 	private static final String KEY_WORKSPACE_TOKEN = "workspace-admin-token";
+	private static final String KEY_WORKSPACE_PARALLELISM = "workspace-max-concurrent-requests";
+	private static final String KEY_WORKSPACE_CACHE_SIZE = "workspace-cache-max-size";
+	private static final String KEY_WORKSPACE_CACHE_EXPIRATION = "workspace-cache-expiration-sec";
+	private static final String KEY_WORKSPACE_PERMS_CACHE_EXPIRATION =
+			"workspace-perms-cache-expiration-sec";
 	private static final String KEY_CATALOG_URL = "catalog-url";
+	private static final String KEY_CATALOG_CACHE_REFRESH = "catalog-cache-refresh-sec";
+	private static final String KEY_CATALOG_CACHE_EXPIRATION = "catalog-cache-expiration-sec";
 	private static final String KEY_NOTIFIER_FACTORY = "notifier-factory";
 	private static final String KEY_PREFIX_NOTIFIER_PARAMS = "notifier-param-";
+	private static final String KEY_NOTIFIER_DISPATCH_BATCH_SIZE = "notifier-dispatch-batch-size";
+	private static final String KEY_NOTIFIER_DISPATCH_MAX_ATTEMPTS =
+			"notifier-dispatch-max-attempts";
+	private static final String KEY_HANDLER_THREADS = "handler-threads";
+	private static final String KEY_HANDLER_QUEUE_SIZE = "handler-queue-size";
+	private static final String KEY_HANDLER_TIMEOUT = "handler-timeout-sec";
 	private static final String KEY_IGNORE_IP_HEADERS = "dont-trust-x-ip-headers";
 	private static final String KEY_ALLOW_INSECURE_URLS = "allow-insecure-urls";
+	private static final String KEY_SERVICE_ADMINS = "service-admins";
+	private static final String KEY_RESOURCE_ADMIN_CACHE_SIZE = "resource-admin-cache-max-size";
+	private static final String KEY_RESOURCE_ADMIN_CACHE_EXPIRATION =
+			"resource-admin-cache-expiration-sec";
+	private static final String KEY_AUTH_CACHE_SIZE = "auth-cache-max-size";
+	private static final String KEY_AUTH_CACHE_EXPIRATION = "auth-cache-expiration-sec";
 	
 	// field validators
 	private static final String KEY_PREFIX_FIELD = "field-";
@@ -77,19 +103,79 @@ public class GroupsConfig {
 	
 	public static final String TRUE = "true";
 	
+	/** The default maximum number of entries in the authentication cache. */
+	public static final int DEFAULT_AUTH_CACHE_SIZE = 10000;
+	/** The default lifetime of an entry in the authentication cache in seconds. */
+	public static final int DEFAULT_AUTH_CACHE_EXPIRATION_SEC = 300;
+	/** The default maximum number of concurrent requests to the workspace service. */
+	public static final int DEFAULT_WORKSPACE_PARALLELISM = 10;
+	/** The default maximum number of workspaces for which information is cached. */
+	public static final int DEFAULT_WORKSPACE_CACHE_SIZE = 10000;
+	/** The default lifetime of cached workspace information in seconds. */
+	public static final int DEFAULT_WORKSPACE_CACHE_EXPIRATION_SEC = 300;
+	/** The default lifetime of cached workspace permissions in seconds. */
+	public static final int DEFAULT_WORKSPACE_PERMS_CACHE_EXPIRATION_SEC = 30;
+	/** The default age in seconds after which cached catalog information is refreshed. */
+	public static final int DEFAULT_CATALOG_CACHE_REFRESH_SEC = 300;
+	/** The default lifetime of cached catalog information in seconds. */
+	public static final int DEFAULT_CATALOG_CACHE_EXPIRATION_SEC = 3600;
+	/** The default maximum number of users for which administrated resources are cached. */
+	public static final int DEFAULT_RESOURCE_ADMIN_CACHE_SIZE = 10000;
+	/** The default lifetime of cached administrated resources in seconds. */
+	public static final int DEFAULT_RESOURCE_ADMIN_CACHE_EXPIRATION_SEC = 30;
+	/** The default maximum number of notifications sent per batch. */
+	public static final int DEFAULT_NOTIFIER_DISPATCH_BATCH_SIZE = 100;
+	/** The default maximum number of attempts to send a notification. */
+	public static final int DEFAULT_NOTIFIER_DISPATCH_MAX_ATTEMPTS = 10;
+	/** The default number of threads that run requests waiting on downstream services. */
+	public static final int DEFAULT_HANDLER_THREADS = 50;
+	/** The default maximum number of requests waiting for a handler thread. */
+	public static final int DEFAULT_HANDLER_QUEUE_SIZE = 500;
+	/** The default time in seconds after which a request run on a handler thread times out. */
+	public static final int DEFAULT_HANDLER_TIMEOUT_SEC = 60;
+	/** The default time in milliseconds after which a MongoDB command is logged as slow. */
+	public static final int DEFAULT_MONGO_SLOW_COMMAND_THRESHOLD_MS = 1000;
+	/** The default maximum number of groups, and separately requests, in the storage cache.
+	 * The cache is disabled by default.
+	 */
+	public static final int DEFAULT_STORAGE_CACHE_SIZE = 0;
+	/** The default lifetime of an entry in the storage cache in seconds. */
+	public static final int DEFAULT_STORAGE_CACHE_EXPIRATION_SEC = 300;
+	
+	private final boolean inMemoryStorage;
 	private final String mongoHost;
 	private final String mongoDB;
 	private final Optional<String> mongoUser;
 	private final Optional<char[]> mongoPwd;
+	private final int mongoSlowCommandThresholdMS;
+	private final boolean mongoMemberCollection;
+	private final int storageCacheSize;
+	private final int storageCacheExpirationSec;
 	private final URL authURL;
 	private final URL workspaceURL;
 	private final Token workspaceAdminToken;
+	private final int workspaceParallelism;
+	private final int workspaceCacheSize;
+	private final int workspaceCacheExpirationSec;
+	private final int workspacePermsCacheExpirationSec;
 	private final URL catalogURL;
+	private final int catalogCacheRefreshSec;
+	private final int catalogCacheExpirationSec;
+	private final int resourceAdminCacheSize;
+	private final int resourceAdminCacheExpirationSec;
 	private final String notifierFactory;
 	private final Map<String, String> notifierParameters;
+	private final int notifierDispatchBatchSize;
+	private final int notifierDispatchMaxAttempts;
+	private final int handlerThreads;
+	private final int handlerQueueSize;
+	private final int handlerTimeoutSec;
 	private final SLF4JAutoLogger logger;
 	private final boolean ignoreIPHeaders;
 	private final boolean allowInsecureURLs;
+	private final Set<UserName> serviceAdmins;
+	private final int authCacheSize;
+	private final int authCacheExpirationSec;
 	private final Set<FieldValidatorConfiguration> fieldConfigs;
 	private final Set<FieldValidatorConfiguration> userFieldConfigs;
 
@@ -139,14 +225,48 @@ public class GroupsConfig {
 		final Map<String, String> cfg = getConfig(filepath, fileOpener);
 		ignoreIPHeaders = TRUE.equals(getString(KEY_IGNORE_IP_HEADERS, cfg));
 		allowInsecureURLs = TRUE.equals(getString(KEY_ALLOW_INSECURE_URLS, cfg));
+		serviceAdmins = getUserNames(KEY_SERVICE_ADMINS, cfg);
 		authURL = getURL(KEY_AUTH_URL, cfg);
+		authCacheSize = getInt(KEY_AUTH_CACHE_SIZE, cfg, DEFAULT_AUTH_CACHE_SIZE, 0);
+		authCacheExpirationSec = getInt(
+				KEY_AUTH_CACHE_EXPIRATION, cfg, DEFAULT_AUTH_CACHE_EXPIRATION_SEC, 1);
 		workspaceURL = getURL(KEY_WORKSPACE_URL, cfg);
 		workspaceAdminToken = getToken(KEY_WORKSPACE_TOKEN, cfg);
+		workspaceParallelism = getInt(
+				KEY_WORKSPACE_PARALLELISM, cfg, DEFAULT_WORKSPACE_PARALLELISM, 1);
+		workspaceCacheSize = getInt(
+				KEY_WORKSPACE_CACHE_SIZE, cfg, DEFAULT_WORKSPACE_CACHE_SIZE, 0);
+		workspaceCacheExpirationSec = getInt(KEY_WORKSPACE_CACHE_EXPIRATION, cfg,
+				DEFAULT_WORKSPACE_CACHE_EXPIRATION_SEC, 1);
+		workspacePermsCacheExpirationSec = getInt(KEY_WORKSPACE_PERMS_CACHE_EXPIRATION, cfg,
+				DEFAULT_WORKSPACE_PERMS_CACHE_EXPIRATION_SEC, 1);
 		catalogURL = getURL(KEY_CATALOG_URL, cfg);
+		catalogCacheRefreshSec = getInt(KEY_CATALOG_CACHE_REFRESH, cfg,
+				DEFAULT_CATALOG_CACHE_REFRESH_SEC, 1);
+		catalogCacheExpirationSec = getInt(KEY_CATALOG_CACHE_EXPIRATION, cfg,
+				DEFAULT_CATALOG_CACHE_EXPIRATION_SEC, 1);
+		resourceAdminCacheSize = getInt(KEY_RESOURCE_ADMIN_CACHE_SIZE, cfg,
+				DEFAULT_RESOURCE_ADMIN_CACHE_SIZE, 1);
+		resourceAdminCacheExpirationSec = getInt(KEY_RESOURCE_ADMIN_CACHE_EXPIRATION, cfg,
+				DEFAULT_RESOURCE_ADMIN_CACHE_EXPIRATION_SEC, 1);
 		notifierFactory = getString(KEY_NOTIFIER_FACTORY, cfg, true);
 		notifierParameters = getParams(KEY_PREFIX_NOTIFIER_PARAMS, cfg);
-		mongoHost = getString(KEY_MONGO_HOST, cfg, true);
-		mongoDB = getString(KEY_MONGO_DB, cfg, true);
+		notifierDispatchBatchSize = getInt(KEY_NOTIFIER_DISPATCH_BATCH_SIZE, cfg,
+				DEFAULT_NOTIFIER_DISPATCH_BATCH_SIZE, 1);
+		notifierDispatchMaxAttempts = getInt(KEY_NOTIFIER_DISPATCH_MAX_ATTEMPTS, cfg,
+				DEFAULT_NOTIFIER_DISPATCH_MAX_ATTEMPTS, 1);
+		handlerThreads = getInt(KEY_HANDLER_THREADS, cfg, DEFAULT_HANDLER_THREADS, 1);
+		handlerQueueSize = getInt(KEY_HANDLER_QUEUE_SIZE, cfg, DEFAULT_HANDLER_QUEUE_SIZE, 1);
+		handlerTimeoutSec = getInt(KEY_HANDLER_TIMEOUT, cfg, DEFAULT_HANDLER_TIMEOUT_SEC, 1);
+		inMemoryStorage = TRUE.equals(getString(KEY_IN_MEMORY_STORAGE, cfg));
+		mongoHost = getString(KEY_MONGO_HOST, cfg, !inMemoryStorage);
+		mongoDB = getString(KEY_MONGO_DB, cfg, !inMemoryStorage);
+		mongoSlowCommandThresholdMS = getInt(KEY_MONGO_SLOW_COMMAND_THRESHOLD, cfg,
+				DEFAULT_MONGO_SLOW_COMMAND_THRESHOLD_MS, 0);
+		mongoMemberCollection = TRUE.equals(getString(KEY_MONGO_MEMBER_COLLECTION, cfg));
+		storageCacheSize = getInt(KEY_STORAGE_CACHE_SIZE, cfg, DEFAULT_STORAGE_CACHE_SIZE, 0);
+		storageCacheExpirationSec = getInt(KEY_STORAGE_CACHE_EXPIRATION, cfg,
+				DEFAULT_STORAGE_CACHE_EXPIRATION_SEC, 1);
 		mongoUser = Optional.fromNullable(getString(KEY_MONGO_USER, cfg));
 		Optional<String> mongop = Optional.fromNullable(getString(KEY_MONGO_PWD, cfg));
 		if (mongoUser.isPresent() ^ mongop.isPresent()) {
@@ -315,6 +435,56 @@ public class GroupsConfig {
 		}
 	}
 	
+	private Set<UserName> getUserNames(final String key, final Map<String, String> cfg)
+			throws GroupsConfigurationException {
+		final String names = getString(key, cfg);
+		final Set<UserName> ret = new HashSet<>();
+		if (names == null) {
+			return Collections.unmodifiableSet(ret);
+		}
+		for (final String name: names.split(",")) {
+			if (!name.trim().isEmpty()) {
+				try {
+					ret.add(new UserName(name.trim()));
+				} catch (MissingParameterException | IllegalParameterException e) {
+					throw new GroupsConfigurationException(String.format(
+							"Illegal user name in parameter %s in section %s of config " +
+							"file %s: %s",
+							key, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE), e.getMessage()), e);
+				}
+			}
+		}
+		return Collections.unmodifiableSet(ret);
+	}
+	
+	private int getInt(
+			final String key,
+			final Map<String, String> cfg,
+			final int defaultValue,
+			final int minimum)
+			throws GroupsConfigurationException {
+		final String i = getString(key, cfg);
+		if (i == null) {
+			return defaultValue;
+		}
+		final int value;
+		try {
+			value = Integer.parseInt(i);
+		} catch (NumberFormatException e) {
+			throw new GroupsConfigurationException(String.format(
+					"Value %s of parameter %s in section %s of config " +
+					"file %s is not a valid integer",
+					i, key, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE)));
+		}
+		if (value < minimum) {
+			throw new GroupsConfigurationException(String.format(
+					"Value %s of parameter %s in section %s of config " +
+					"file %s must be at least %s",
+					i, key, CFG_LOC, cfg.get(TEMP_KEY_CFG_FILE), minimum));
+		}
+		return value;
+	}
+	
 	private URL getURL(final String key, final Map<String, String> cfg)
 			throws GroupsConfigurationException {
 		final String url = getString(key, cfg, true);
@@ -371,6 +541,16 @@ public class GroupsConfig {
 		public String getCallID() {
 			return null;
 		}
+
+		@Override
+		public String getCallMethod() {
+			return null;
+		}
+
+		@Override
+		public String getCallIPAddress() {
+			return null;
+		}
 	}
 	
 	// this is just too much of a pain to test, and testing manually is trivial.
@@ -410,17 +590,36 @@ public class GroupsConfig {
 		public String getCallID() {
 			return JsonServerSyslog.getCurrentRpcInfo().getId();
 		}
+
+		@Override
+		public String getCallMethod() {
+			return JsonServerSyslog.getCurrentRpcInfo().getMethod();
+		}
+
+		@Override
+		public String getCallIPAddress() {
+			return JsonServerSyslog.getCurrentRpcInfo().getIp();
+		}
+	}
+	
+	/** True if the groups data should be stored in memory rather than in MongoDB. The data
+	 * is lost when the service is stopped.
+	 * @return true to use in memory storage.
+	 */
+	public boolean isInMemoryStorage() {
+		return inMemoryStorage;
 	}
 	
 	/** Get the MongoDB host, including the port if any.
-	 * @return the host.
+	 * @return the host, or null if in memory storage is configured and no host was provided.
 	 */
 	public String getMongoHost() {
 		return mongoHost;
 	}
 
 	/** Ge the MongoDB database to use.
-	 * @return the database.
+	 * @return the database, or null if in memory storage is configured and no database was
+	 * provided.
 	 */
 	public String getMongoDatabase() {
 		return mongoDB;
@@ -440,6 +639,39 @@ public class GroupsConfig {
 		return mongoPwd;
 	}
 	
+	/** Get the time in milliseconds after which a MongoDB command is logged as slow.
+	 * @return the slow command threshold.
+	 */
+	public int getMongoSlowCommandThresholdMS() {
+		return mongoSlowCommandThresholdMS;
+	}
+	
+	/** True if group members should be stored in a separate MongoDB collection rather than
+	 * in the group documents.
+	 * @return true to store members in a separate collection.
+	 */
+	public boolean isMongoMemberCollection() {
+		return mongoMemberCollection;
+	}
+	
+	/** Get the maximum number of groups, and separately requests, in the storage cache. The
+	 * cache is kept up to date with changes made by other service instances via MongoDB
+	 * change streams, which require MongoDB to run as a replica set. The cache is not used
+	 * with in memory storage. 0 disables the cache.
+	 * @return the maximum cache size.
+	 */
+	public int getStorageCacheSize() {
+		return storageCacheSize;
+	}
+	
+	/** Get the time in seconds an entry in the storage cache remains valid. This bounds the
+	 * staleness of cached data if a change stream event is missed.
+	 * @return the cache entry lifetime.
+	 */
+	public int getStorageCacheExpirationSec() {
+		return storageCacheExpirationSec;
+	}
+	
 	/** Get the root url of the KBase authentication service.
 	 * @return the url.
 	 */
@@ -447,6 +679,21 @@ public class GroupsConfig {
 		return authURL;
 	}
 	
+	/** Get the maximum number of entries in the authentication cache, which maps tokens to
+	 * user names and stores valid user names. 0 disables the cache.
+	 * @return the maximum cache size.
+	 */
+	public int getAuthCacheSize() {
+		return authCacheSize;
+	}
+	
+	/** Get the time in seconds an entry in the authentication cache remains valid.
+	 * @return the cache entry lifetime.
+	 */
+	public int getAuthCacheExpirationSec() {
+		return authCacheExpirationSec;
+	}
+	
 	/** Get the root url of the KBase workspace service.
 	 * @return the url.
 	 */
@@ -461,6 +708,36 @@ public class GroupsConfig {
 		return workspaceAdminToken;
 	}
 	
+	/** Get the maximum number of concurrent requests to make to the workspace service when
+	 * retrieving information about workspaces.
+	 * @return the maximum number of concurrent requests.
+	 */
+	public int getWorkspaceParallelism() {
+		return workspaceParallelism;
+	}
+	
+	/** Get the maximum number of workspaces for which information will be cached.
+	 * 0 disables the cache.
+	 * @return the maximum cache size.
+	 */
+	public int getWorkspaceCacheSize() {
+		return workspaceCacheSize;
+	}
+	
+	/** Get the time in seconds cached workspace information remains valid.
+	 * @return the cache entry lifetime.
+	 */
+	public int getWorkspaceCacheExpirationSec() {
+		return workspaceCacheExpirationSec;
+	}
+	
+	/** Get the time in seconds cached workspace permissions remain valid.
+	 * @return the cache entry lifetime.
+	 */
+	public int getWorkspacePermissionsCacheExpirationSec() {
+		return workspacePermsCacheExpirationSec;
+	}
+	
 	/** Get the root url of the KBase catalog service.
 	 * @return the url.
 	 */
@@ -468,6 +745,37 @@ public class GroupsConfig {
 		return catalogURL;
 	}
 	
+	/** Get the age in seconds after which cached catalog information is refreshed in the
+	 * background.
+	 * @return the cache refresh time.
+	 */
+	public int getCatalogCacheRefreshSec() {
+		return catalogCacheRefreshSec;
+	}
+	
+	/** Get the time in seconds cached catalog information remains valid.
+	 * @return the cache entry lifetime.
+	 */
+	public int getCatalogCacheExpirationSec() {
+		return catalogCacheExpirationSec;
+	}
+	
+	/** Get the maximum number of users for which the set of resources they administrate
+	 * will be cached, per resource type.
+	 * @return the cache size.
+	 */
+	public int getResourceAdminCacheSize() {
+		return resourceAdminCacheSize;
+	}
+	
+	/** Get the time in seconds a cached set of resources administrated by a user remains
+	 * valid.
+	 * @return the cache entry lifetime.
+	 */
+	public int getResourceAdminCacheExpirationSec() {
+		return resourceAdminCacheExpirationSec;
+	}
+	
 	/** Get the name of the factory class for the notifier.
 	 * @return the class name.
 	 */
@@ -482,6 +790,47 @@ public class GroupsConfig {
 		return notifierParameters;
 	}
 	
+	/** Get the maximum number of notifications to send to the notifier per batch.
+	 * @return the batch size.
+	 */
+	public int getNotifierDispatchBatchSize() {
+		return notifierDispatchBatchSize;
+	}
+	
+	/** Get the maximum number of attempts to send a notification to the notifier before the
+	 * notification is discarded.
+	 * @return the maximum number of attempts.
+	 */
+	public int getNotifierDispatchMaxAttempts() {
+		return notifierDispatchMaxAttempts;
+	}
+	
+	/** Get the number of threads that run requests that wait on downstream services, such as
+	 * getting a group or accepting a request. Other requests run on the server's threads.
+	 * @return the number of threads.
+	 */
+	public int getHandlerThreads() {
+		return handlerThreads;
+	}
+	
+	/** Get the maximum number of requests that may wait for a handler thread. Further requests
+	 * are rejected until a thread or queue slot becomes available.
+	 * @return the queue size.
+	 * @see #getHandlerThreads()
+	 */
+	public int getHandlerQueueSize() {
+		return handlerQueueSize;
+	}
+	
+	/** Get the time, in seconds, after which a request waiting for or running on a handler
+	 * thread times out.
+	 * @return the timeout.
+	 * @see #getHandlerThreads()
+	 */
+	public int getHandlerTimeoutSec() {
+		return handlerTimeoutSec;
+	}
+	
 	/** Get a logger. The logger is expected to intercept SLF4J log events and log them
 	 * appropriately. A reference to the logger must be maintained so that it is not garbage
 	 * collected.
@@ -498,6 +847,13 @@ public class GroupsConfig {
 		return allowInsecureURLs;
 	}
 	
+	/** Get the users that may perform administrative actions on the service.
+	 * @return the service administrators.
+	 */
+	public Set<UserName> getServiceAdmins() {
+		return serviceAdmins;
+	}
+	
 	/** True if the X-Real-IP and X-Forwarded-For headers should be ignored.
 	 * @return true to ignore IP headers.
 	 */
@@ -0,0 +1,167 @@
+package us.kbase.groups.core;
+
+import static us.kbase.groups.util.Util.isNullOrEmpty;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/** Parameters for getting a list of groups or requests that have changed. The list is sorted
+ * by the modification date and then the ID, ascending, so a list can be continued from the
+ * modification date and ID of the last item in the previous list.
+ */
+public class GetChangesParams {
+
+	/** The default maximum number of items to return. */
+	public static final int DEFAULT_LIMIT = GetGroupsParams.DEFAULT_LIMIT;
+	/** The largest allowed value for the maximum number of items to return. */
+	public static final int MAX_LIMIT = GetGroupsParams.MAX_LIMIT;
+	
+	private final Optional<Instant> after;
+	private final Optional<String> afterID;
+	private final int limit;
+	
+	private GetChangesParams(
+			final Optional<Instant> after,
+			final Optional<String> afterID,
+			final int limit) {
+		this.after = after;
+		this.afterID = afterID;
+		this.limit = limit;
+	}
+	
+	/** Get the date after which items must have been modified to be included in the list.
+	 * If {@link #getAfterID()} is present, items modified at exactly this date are also
+	 * included if their ID is after that ID.
+	 * @return the date, or empty if all items should be included.
+	 */
+	public Optional<Instant> getAfter() {
+		return after;
+	}
+	
+	/** Get the ID after which items modified at exactly {@link #getAfter()} must sort to be
+	 * included in the list.
+	 * @return the ID, or empty if no items modified at exactly {@link #getAfter()} should be
+	 * included.
+	 */
+	public Optional<String> getAfterID() {
+		return afterID;
+	}
+	
+	/** Get the maximum number of items to return.
+	 * @return the limit.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((after == null) ? 0 : after.hashCode());
+		result = prime * result + ((afterID == null) ? 0 : afterID.hashCode());
+		result = prime * result + limit;
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		GetChangesParams other = (GetChangesParams) obj;
+		if (after == null) {
+			if (other.after != null) {
+				return false;
+			}
+		} else if (!after.equals(other.after)) {
+			return false;
+		}
+		if (afterID == null) {
+			if (other.afterID != null) {
+				return false;
+			}
+		} else if (!afterID.equals(other.afterID)) {
+			return false;
+		}
+		if (limit != other.limit) {
+			return false;
+		}
+		return true;
+	}
+	
+	/** Get a builder for a {@link GetChangesParams}.
+	 * @return the builder.
+	 */
+	public static Builder getBuilder() {
+		return new Builder();
+	}
+	
+	/** A builder for a {@link GetChangesParams}.
+	 */
+	public static class Builder {
+	
+		private Optional<Instant> after = Optional.empty();
+		private Optional<String> afterID = Optional.empty();
+		private int limit = DEFAULT_LIMIT;
+		
+		private Builder() {}
+		
+		/** Set where the list should begin. The list will include items modified after the
+		 * given date, and, if an ID is provided, items modified at exactly the given date with
+		 * an ID that sorts after the given ID.
+		 * If the date is null, the list starts from the earliest modified item.
+		 * The ID is {@link String#trim()}ed.
+		 * @param after the date.
+		 * @param afterID the ID, or null or whitespace only to exclude all items modified
+		 * at the given date.
+		 * @return this builder.
+		 */
+		public Builder withNullableAfter(final Instant after, final String afterID) {
+			if (after == null) {
+				if (!isNullOrEmpty(afterID)) {
+					throw new IllegalArgumentException("afterID requires a date");
+				}
+				this.after = Optional.empty();
+				this.afterID = Optional.empty();
+			} else {
+				this.after = Optional.of(after);
+				this.afterID = isNullOrEmpty(afterID) ?
+						Optional.empty() : Optional.of(afterID.trim());
+			}
+			return this;
+		}
+		
+		/** Set the maximum number of items to return.
+		 * If null, the default of {@link GetChangesParams#DEFAULT_LIMIT} is used.
+		 * @param limit the limit, which must be between 1 and
+		 * {@link GetChangesParams#MAX_LIMIT} inclusive.
+		 * @return this builder.
+		 */
+		public Builder withNullableLimit(final Integer limit) {
+			if (limit == null) {
+				this.limit = DEFAULT_LIMIT;
+			} else {
+				if (limit < 1 || limit > MAX_LIMIT) {
+					throw new IllegalArgumentException(
+							"limit must be between 1 and " + MAX_LIMIT);
+				}
+				this.limit = limit;
+			}
+			return this;
+		}
+		
+		/** Build the {@link GetChangesParams}.
+		 * @return the params.
+		 */
+		public GetChangesParams build() {
+			return new GetChangesParams(after, afterID, limit);
+		}
+	}
+}
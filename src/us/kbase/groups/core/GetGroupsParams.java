@@ -10,12 +10,22 @@ import java.util.Optional;
  */
 public class GetGroupsParams {
 	
+	/** The default maximum number of groups to return. */
+	public static final int DEFAULT_LIMIT = 100;
+	/** The largest allowed value for the maximum number of groups to return. */
+	public static final int MAX_LIMIT = 1000;
+	
 	private final boolean sortAscending;
 	private final Optional<String> excludeUpTo;
+	private final int limit;
 	
-	private GetGroupsParams(final boolean sortAscending, final Optional<String> excludeUpTo) {
+	private GetGroupsParams(
+			final boolean sortAscending,
+			final Optional<String> excludeUpTo,
+			final int limit) {
 		this.sortAscending = sortAscending;
 		this.excludeUpTo = excludeUpTo;
+		this.limit = limit;
 	}
 
 	/** Get whether the list should be sorted in ascending or descending order.
@@ -33,12 +43,20 @@ public class GetGroupsParams {
 	public Optional<String> getExcludeUpTo() {
 		return excludeUpTo;
 	}
+	
+	/** Get the maximum number of groups to return.
+	 * @return the limit.
+	 */
+	public int getLimit() {
+		return limit;
+	}
 
 	@Override
 	public int hashCode() {
 		final int prime = 31;
 		int result = 1;
 		result = prime * result + ((excludeUpTo == null) ? 0 : excludeUpTo.hashCode());
+		result = prime * result + limit;
 		result = prime * result + (sortAscending ? 1231 : 1237);
 		return result;
 	}
@@ -62,6 +80,9 @@ public class GetGroupsParams {
 		} else if (!excludeUpTo.equals(other.excludeUpTo)) {
 			return false;
 		}
+		if (limit != other.limit) {
+			return false;
+		}
 		if (sortAscending != other.sortAscending) {
 			return false;
 		}
@@ -83,6 +104,7 @@ public class GetGroupsParams {
 		
 		private boolean sortAscending = true;
 		private Optional<String> excludeUpTo = Optional.empty();
+		private int limit = DEFAULT_LIMIT;
 		
 		private Builder() {}
 		
@@ -117,11 +139,30 @@ public class GetGroupsParams {
 			return this;
 		}
 		
+		/** Set the maximum number of groups to return.
+		 * If null, the default of {@link GetGroupsParams#DEFAULT_LIMIT} is used.
+		 * @param limit the limit, which must be between 1 and
+		 * {@link GetGroupsParams#MAX_LIMIT} inclusive.
+		 * @return this builder.
+		 */
+		public Builder withNullableLimit(final Integer limit) {
+			if (limit == null) {
+				this.limit = DEFAULT_LIMIT;
+			} else {
+				if (limit < 1 || limit > MAX_LIMIT) {
+					throw new IllegalArgumentException(
+							"limit must be between 1 and " + MAX_LIMIT);
+				}
+				this.limit = limit;
+			}
+			return this;
+		}
+		
 		/** Build the {@link GetGroupsParams}.
 		 * @return the params.
 		 */
 		public GetGroupsParams build() {
-			return new GetGroupsParams(sortAscending, excludeUpTo);
+			return new GetGroupsParams(sortAscending, excludeUpTo, limit);
 		}
 	}
 }
@@ -0,0 +1,204 @@
+package us.kbase.groups.core;
+
+import static us.kbase.groups.util.Util.isNullOrEmpty;
+
+import java.util.Set;
+
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+
+/** Parameters for a text search for groups. Search results are ordered by relevance and then
+ * by the group ID.
+ */
+public class GroupSearchParams {
+
+	/** The default maximum number of groups to return. */
+	public static final int DEFAULT_LIMIT = GetGroupsParams.DEFAULT_LIMIT;
+	/** The largest allowed value for the maximum number of groups to return. */
+	public static final int MAX_LIMIT = GetGroupsParams.MAX_LIMIT;
+	/** The maximum number of terms allowed in a search. */
+	public static final int MAX_TERMS = 10;
+
+	private final Set<String> terms;
+	private final boolean sortAscending;
+	private final int offset;
+	private final int limit;
+
+	private GroupSearchParams(
+			final Set<String> terms,
+			final boolean sortAscending,
+			final int offset,
+			final int limit) {
+		this.terms = terms;
+		this.sortAscending = sortAscending;
+		this.offset = offset;
+		this.limit = limit;
+	}
+
+	/** Get the search terms. See {@link GroupSearchTokens#toTerms(String)}.
+	 * @return the terms.
+	 */
+	public Set<String> getTerms() {
+		return terms;
+	}
+
+	/** Get whether groups with equal relevance should be sorted by the group ID in ascending
+	 * or descending order.
+	 * @return true if the sort should be ascending, false if descending.
+	 */
+	public boolean isSortAscending() {
+		return sortAscending;
+	}
+
+	/** Get the number of search results to skip.
+	 * @return the offset.
+	 */
+	public int getOffset() {
+		return offset;
+	}
+
+	/** Get the maximum number of groups to return.
+	 * @return the limit.
+	 */
+	public int getLimit() {
+		return limit;
+	}
+
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + limit;
+		result = prime * result + offset;
+		result = prime * result + (sortAscending ? 1231 : 1237);
+		result = prime * result + ((terms == null) ? 0 : terms.hashCode());
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		GroupSearchParams other = (GroupSearchParams) obj;
+		if (limit != other.limit) {
+			return false;
+		}
+		if (offset != other.offset) {
+			return false;
+		}
+		if (sortAscending != other.sortAscending) {
+			return false;
+		}
+		if (terms == null) {
+			if (other.terms != null) {
+				return false;
+			}
+		} else if (!terms.equals(other.terms)) {
+			return false;
+		}
+		return true;
+	}
+
+	/** Get a builder for a {@link GroupSearchParams}.
+	 * @param search the text to search for.
+	 * @return the builder.
+	 * @throws MissingParameterException if the search text is null or whitespace only.
+	 * @throws IllegalParameterException if the search text contains no letters or digits or
+	 * more than {@link #MAX_TERMS} terms.
+	 */
+	public static Builder getBuilder(final String search)
+			throws MissingParameterException, IllegalParameterException {
+		return new Builder(search);
+	}
+
+	/** A builder for a {@link GroupSearchParams}.
+	 */
+	public static class Builder {
+
+		private final Set<String> terms;
+		private boolean sortAscending = true;
+		private int offset = 0;
+		private int limit = DEFAULT_LIMIT;
+
+		private Builder(final String search)
+				throws MissingParameterException, IllegalParameterException {
+			if (isNullOrEmpty(search)) {
+				throw new MissingParameterException("search");
+			}
+			terms = GroupSearchTokens.toTerms(search);
+			if (terms.isEmpty()) {
+				throw new IllegalParameterException(
+						"search must contain at least one letter or digit");
+			}
+			if (terms.size() > MAX_TERMS) {
+				throw new IllegalParameterException(
+						"search may contain at most " + MAX_TERMS + " terms");
+			}
+		}
+
+		/** Set whether groups with equal relevance should be sorted by the group ID in
+		 * ascending or descending order.
+		 * If null, the default of true is used.
+		 * @param sortAscending true sort ascending, false for descending.
+		 * @return this builder.
+		 */
+		public Builder withNullableSortAscending(final Boolean sortAscending) {
+			if (sortAscending == null) {
+				this.sortAscending = true;
+			} else {
+				this.sortAscending = sortAscending;
+			}
+			return this;
+		}
+
+		/** Set the number of search results to skip.
+		 * If null, the default of 0 is used.
+		 * @param offset the offset, which must be at least 0.
+		 * @return this builder.
+		 */
+		public Builder withNullableOffset(final Integer offset) {
+			if (offset == null) {
+				this.offset = 0;
+			} else {
+				if (offset < 0) {
+					throw new IllegalArgumentException("offset must be at least 0");
+				}
+				this.offset = offset;
+			}
+			return this;
+		}
+
+		/** Set the maximum number of groups to return.
+		 * If null, the default of {@link GroupSearchParams#DEFAULT_LIMIT} is used.
+		 * @param limit the limit, which must be between 1 and
+		 * {@link GroupSearchParams#MAX_LIMIT} inclusive.
+		 * @return this builder.
+		 */
+		public Builder withNullableLimit(final Integer limit) {
+			if (limit == null) {
+				this.limit = DEFAULT_LIMIT;
+			} else {
+				if (limit < 1 || limit > MAX_LIMIT) {
+					throw new IllegalArgumentException(
+							"limit must be between 1 and " + MAX_LIMIT);
+				}
+				this.limit = limit;
+			}
+			return this;
+		}
+
+		/** Build the {@link GroupSearchParams}.
+		 * @return the params.
+		 */
+		public GroupSearchParams build() {
+			return new GroupSearchParams(terms, sortAscending, offset, limit);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package us.kbase.groups.core;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import us.kbase.groups.core.fieldvalidation.CustomField;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+
+/** Builds the tokens used to index groups for text search and to query that index.
+ *
+ * Text is split into terms on any character that is not a letter or digit, and the terms
+ * are lower cased and truncated to {@link #MAXIMUM_TERM_LENGTH} characters. The index tokens
+ * for a group are the terms of the group name and of each custom field, each prefixed with the
+ * field from which they came, so that a search can be restricted to the fields a user is
+ * allowed to see. The relevance of a group to a search is the number of query tokens that
+ * match the group's tokens.
+ */
+public class GroupSearchTokens {
+
+	/** The maximum length of a search term. Longer terms are truncated. */
+	public static final int MAXIMUM_TERM_LENGTH = 50;
+
+	// custom fields may only contain a-z and digits, so this prefix can't clash with a field
+	private static final String NAME_PREFIX = "_name";
+	private static final String SEP = ":";
+	private static final Pattern SPLIT = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	private GroupSearchTokens() {}
+
+	/** Split text into search terms.
+	 * @param text the text to split.
+	 * @return the distinct terms in the text, sorted.
+	 */
+	public static Set<String> toTerms(final String text) {
+		checkNotNull(text, "text");
+		final Set<String> terms = new TreeSet<>();
+		for (final String s: SPLIT.split(text.toLowerCase(Locale.ROOT))) {
+			if (!s.isEmpty()) {
+				terms.add(s.codePointCount(0, s.length()) > MAXIMUM_TERM_LENGTH ?
+						s.substring(0, s.offsetByCodePoints(0, MAXIMUM_TERM_LENGTH)) : s);
+			}
+		}
+		return Collections.unmodifiableSet(terms);
+	}
+
+	/** Get the index tokens for a group.
+	 * @param name the name of the group.
+	 * @param customFields the custom fields of the group.
+	 * @return the tokens.
+	 */
+	public static Set<String> getGroupTokens(
+			final GroupName name,
+			final Map<NumberedCustomField, String> customFields) {
+		checkNotNull(name, "name");
+		checkNotNull(customFields, "customFields");
+		final Set<String> tokens = new TreeSet<>();
+		addTokens(tokens, NAME_PREFIX, toTerms(name.getName()));
+		for (final Entry<NumberedCustomField, String> e: customFields.entrySet()) {
+			addTokens(tokens, e.getKey().getFieldRoot().getName(), toTerms(e.getValue()));
+		}
+		return Collections.unmodifiableSet(tokens);
+	}
+
+	/** Get the tokens with which to query the index.
+	 * @param terms the search terms, as returned by {@link #toTerms(String)}.
+	 * @param searchFields the custom fields to search in addition to the group name.
+	 * @return the tokens.
+	 */
+	public static Set<String> getQueryTokens(
+			final Set<String> terms,
+			final Set<CustomField> searchFields) {
+		checkNoNullsInCollection(terms, "terms");
+		checkNoNullsInCollection(searchFields, "searchFields");
+		final Set<String> tokens = new TreeSet<>();
+		addTokens(tokens, NAME_PREFIX, terms);
+		for (final CustomField f: searchFields) {
+			addTokens(tokens, f.getName(), terms);
+		}
+		return Collections.unmodifiableSet(tokens);
+	}
+
+	private static void addTokens(
+			final Set<String> tokens,
+			final String prefix,
+			final Set<String> terms) {
+		for (final String t: terms) {
+			tokens.add(prefix + SEP + t);
+		}
+	}
+}
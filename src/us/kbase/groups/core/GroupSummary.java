@@ -0,0 +1,347 @@
+package us.kbase.groups.core;
+
+import static java.util.Objects.requireNonNull;
+import static us.kbase.groups.util.Util.exceptOnEmpty;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import us.kbase.groups.core.Group.Role;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.resource.ResourceType;
+
+/** A summary of a {@link Group} containing the information required for a minimal view of the
+ * group. Rather than the full member and resource lists, a summary contains counts of the
+ * members and resources and the role, if any, of a single user within the group.
+ */
+public class GroupSummary {
+
+	private final GroupID groupID;
+	private final GroupName groupName;
+	private final UserName owner;
+	private final boolean isPrivate;
+	private final int memberCount;
+	private final Map<ResourceType, Integer> resourceCounts;
+	private final Instant creationDate;
+	private final Instant modificationDate;
+	private final Map<NumberedCustomField, String> customFields;
+	private final Role role;
+	private final Optional<Instant> lastVisit;
+	
+	private GroupSummary(
+			final GroupID groupID,
+			final GroupName groupName,
+			final UserName owner,
+			final boolean isPrivate,
+			final int memberCount,
+			final Map<ResourceType, Integer> resourceCounts,
+			final Instant creationDate,
+			final Instant modificationDate,
+			final Map<NumberedCustomField, String> customFields,
+			final Role role,
+			final Optional<Instant> lastVisit) {
+		this.groupID = groupID;
+		this.groupName = groupName;
+		this.owner = owner;
+		this.isPrivate = isPrivate;
+		this.memberCount = memberCount;
+		this.resourceCounts = Collections.unmodifiableMap(resourceCounts);
+		this.creationDate = creationDate;
+		this.modificationDate = modificationDate;
+		this.customFields = Collections.unmodifiableMap(customFields);
+		this.role = role;
+		this.lastVisit = lastVisit;
+	}
+	
+	/** The ID of the group.
+	 * @return the ID.
+	 */
+	public GroupID getGroupID() {
+		return groupID;
+	}
+	
+	/** The name of the group.
+	 * @return the name.
+	 */
+	public GroupName getGroupName() {
+		return groupName;
+	}
+	
+	/** Get the user that owns the group.
+	 * @return the owner.
+	 */
+	public UserName getOwner() {
+		return owner;
+	}
+	
+	/** Get whether the group is private or not.
+	 * @return true if the group is private.
+	 */
+	public boolean isPrivate() {
+		return isPrivate;
+	}
+	
+	/** Get the number of members in the group, including the owner and administrators.
+	 * @return the member count.
+	 */
+	public int getMemberCount() {
+		return memberCount;
+	}
+	
+	/** Get the number of resources of each type in the group. Types with no resources are
+	 * not included.
+	 * @return the resource counts per type.
+	 */
+	public Map<ResourceType, Integer> getResourceCounts() {
+		return resourceCounts;
+	}
+	
+	/** Get the date the group was created.
+	 * @return the creation date.
+	 */
+	public Instant getCreationDate() {
+		return creationDate;
+	}
+	
+	/** Get the date the group was last modified.
+	 * @return the modification date.
+	 */
+	public Instant getModificationDate() {
+		return modificationDate;
+	}
+	
+	/** Get any custom fields associated with the group.
+	 * @return the custom fields.
+	 */
+	public Map<NumberedCustomField, String> getCustomFields() {
+		return customFields;
+	}
+	
+	/** Get the role, within the group, of the user for whom the summary was retrieved.
+	 * {@link Role#NONE} if no user was provided.
+	 * @return the user's role.
+	 */
+	public Role getRole() {
+		return role;
+	}
+	
+	/** Get the date the user for whom the summary was retrieved last visited the group, or
+	 * {@link Optional#empty()} if the user has never visited the group or is not a member.
+	 * @return the last visit date.
+	 */
+	public Optional<Instant> getLastVisit() {
+		return lastVisit;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + ((creationDate == null) ? 0 : creationDate.hashCode());
+		result = prime * result + ((customFields == null) ? 0 : customFields.hashCode());
+		result = prime * result + ((groupID == null) ? 0 : groupID.hashCode());
+		result = prime * result + ((groupName == null) ? 0 : groupName.hashCode());
+		result = prime * result + (isPrivate ? 1231 : 1237);
+		result = prime * result + ((lastVisit == null) ? 0 : lastVisit.hashCode());
+		result = prime * result + memberCount;
+		result = prime * result + ((modificationDate == null) ? 0 : modificationDate.hashCode());
+		result = prime * result + ((owner == null) ? 0 : owner.hashCode());
+		result = prime * result + ((resourceCounts == null) ? 0 : resourceCounts.hashCode());
+		result = prime * result + ((role == null) ? 0 : role.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		GroupSummary other = (GroupSummary) obj;
+		if (creationDate == null) {
+			if (other.creationDate != null) {
+				return false;
+			}
+		} else if (!creationDate.equals(other.creationDate)) {
+			return false;
+		}
+		if (customFields == null) {
+			if (other.customFields != null) {
+				return false;
+			}
+		} else if (!customFields.equals(other.customFields)) {
+			return false;
+		}
+		if (groupID == null) {
+			if (other.groupID != null) {
+				return false;
+			}
+		} else if (!groupID.equals(other.groupID)) {
+			return false;
+		}
+		if (groupName == null) {
+			if (other.groupName != null) {
+				return false;
+			}
+		} else if (!groupName.equals(other.groupName)) {
+			return false;
+		}
+		if (isPrivate != other.isPrivate) {
+			return false;
+		}
+		if (lastVisit == null) {
+			if (other.lastVisit != null) {
+				return false;
+			}
+		} else if (!lastVisit.equals(other.lastVisit)) {
+			return false;
+		}
+		if (memberCount != other.memberCount) {
+			return false;
+		}
+		if (modificationDate == null) {
+			if (other.modificationDate != null) {
+				return false;
+			}
+		} else if (!modificationDate.equals(other.modificationDate)) {
+			return false;
+		}
+		if (owner == null) {
+			if (other.owner != null) {
+				return false;
+			}
+		} else if (!owner.equals(other.owner)) {
+			return false;
+		}
+		if (resourceCounts == null) {
+			if (other.resourceCounts != null) {
+				return false;
+			}
+		} else if (!resourceCounts.equals(other.resourceCounts)) {
+			return false;
+		}
+		if (role != other.role) {
+			return false;
+		}
+		return true;
+	}
+	
+	/** Get a builder for a {@link GroupSummary}.
+	 * @param id the group ID.
+	 * @param name the group name.
+	 * @param owner the owner of the group.
+	 * @param times the creation and modification times for the group.
+	 * @param memberCount the number of members in the group, including the owner and
+	 * administrators.
+	 * @return the new builder.
+	 */
+	public static Builder getBuilder(
+			final GroupID id,
+			final GroupName name,
+			final UserName owner,
+			final CreateAndModTimes times,
+			final int memberCount) {
+		return new Builder(id, name, owner, times, memberCount);
+	}
+	
+	/** A builder for a {@link GroupSummary}.
+	 */
+	public static class Builder {
+	
+		private final GroupID groupID;
+		private final GroupName groupName;
+		private final UserName owner;
+		private final CreateAndModTimes times;
+		private final int memberCount;
+		private boolean isPrivate = false;
+		private final Map<ResourceType, Integer> resourceCounts = new HashMap<>();
+		private final Map<NumberedCustomField, String> customFields = new HashMap<>();
+		private Role role = Role.NONE;
+		private Optional<Instant> lastVisit = Optional.empty();
+		
+		private Builder(
+				final GroupID id,
+				final GroupName name,
+				final UserName owner,
+				final CreateAndModTimes times,
+				final int memberCount) {
+			this.groupID = requireNonNull(id, "id");
+			this.groupName = requireNonNull(name, "name");
+			this.owner = requireNonNull(owner, "owner");
+			this.times = requireNonNull(times, "times");
+			if (memberCount < 1) {
+				throw new IllegalArgumentException("memberCount must be at least 1");
+			}
+			this.memberCount = memberCount;
+		}
+		
+		/** Set the group to public or private.
+		 * @param isPrivate true to set the group to private, false for public.
+		 * @return this builder.
+		 */
+		public Builder withIsPrivate(final boolean isPrivate) {
+			this.isPrivate = isPrivate;
+			return this;
+		}
+		
+		/** Set the number of resources of a particular type in the group.
+		 * @param type the resource type.
+		 * @param count the number of resources of that type.
+		 * @return this builder.
+		 */
+		public Builder withResourceCount(final ResourceType type, final int count) {
+			requireNonNull(type, "type");
+			if (count < 1) {
+				throw new IllegalArgumentException("count must be at least 1");
+			}
+			resourceCounts.put(type, count);
+			return this;
+		}
+		
+		/** Add a custom field to the group.
+		 * @param field the field name.
+		 * @param value the field value.
+		 * @return this builder.
+		 */
+		public Builder withCustomField(final NumberedCustomField field, final String value) {
+			requireNonNull(field, "field");
+			exceptOnEmpty(value, "value");
+			customFields.put(field, value);
+			return this;
+		}
+		
+		/** Set the role of the user for whom the summary is being retrieved. The default role
+		 * is {@link Role#NONE}.
+		 * @param role the user's role.
+		 * @param lastVisit the date the user last visited the group, or null if the user has
+		 * never visited the group. Must be null if the role is {@link Role#NONE}.
+		 * @return this builder.
+		 */
+		public Builder withUserRole(final Role role, final Instant lastVisit) {
+			requireNonNull(role, "role");
+			if (Role.NONE.equals(role) && lastVisit != null) {
+				throw new IllegalArgumentException("Non-members cannot have a last visit date");
+			}
+			this.role = role;
+			this.lastVisit = Optional.ofNullable(lastVisit);
+			return this;
+		}
+		
+		/** Build the {@link GroupSummary}.
+		 * @return the new summary.
+		 */
+		public GroupSummary build() {
+			return new GroupSummary(groupID, groupName, owner, isPrivate, memberCount,
+					resourceCounts, times.getCreationTime(), times.getModificationTime(),
+					customFields, role, lastVisit);
+		}
+	}
+}
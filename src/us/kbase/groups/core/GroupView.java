@@ -132,8 +132,6 @@ public class GroupView {
 		}
 	}
 	
-	//TODO CODE there could be a lot of optimizations to avoid fetching data that we just discard in the view.
-	
 	// group fields
 	private final GroupID groupID; // all views
 	private final Role role; // all views except private
@@ -240,6 +238,44 @@ public class GroupView {
 		}
 	}
 	
+	private GroupView(
+			final GroupSummary summary,
+			final boolean isOverridePrivateView,
+			final Function<NumberedCustomField, Boolean> isPublicField,
+			final Function<NumberedCustomField, Boolean> isMinimalViewField) {
+		this.isStandardView = false;
+		this.isOverridePrivateView = isOverridePrivateView;
+		this.role = summary.getRole();
+		this.isPrivate = summary.isPrivate();
+		this.groupID = summary.getGroupID();
+		// summaries only support minimal views, which never include these fields
+		this.resourceInfo = Collections.emptyMap();
+		this.resourceJoinDate = Collections.emptyMap();
+		this.members = Collections.emptySet();
+		this.admins = Collections.emptySet();
+		this.isPrivateMemberList = Optional.empty();
+		if (isPrivateView()) {
+			this.groupName = Optional.empty();
+			this.owner = Optional.empty();
+			this.creationDate = Optional.empty();
+			this.modificationDate = Optional.empty();
+			this.customFields = Collections.emptyMap();
+			this.memberCount = Optional.empty();
+			this.resourceCount = Collections.emptyMap();
+			this.lastVisit = Optional.empty();
+		} else {
+			this.memberCount = Optional.of(summary.getMemberCount());
+			this.resourceCount = summary.getResourceCounts();
+			this.lastVisit = summary.getLastVisit(); // always empty for non-members
+			this.groupName = Optional.of(summary.getGroupName());
+			this.owner = Optional.of(summary.getOwner());
+			this.customFields = getCustomFields(
+					summary.getCustomFields(), isPublicField, isMinimalViewField);
+			this.creationDate = Optional.of(summary.getCreationDate());
+			this.modificationDate = Optional.of(summary.getModificationDate());
+		}
+	}
+	
 	// user fields are only visible in standard views.
 	private GroupUserView filterUserFields(
 			final GroupUser member,
@@ -624,6 +660,76 @@ public class GroupView {
 		return new Builder(group, user);
 	}
 	
+	/** Get a builder for a minimal {@link GroupView} of a {@link GroupSummary}. The view is
+	 * equivalent to a minimal view built from the full group with the same user that was used
+	 * to retrieve the summary, and without any resource information.
+	 * @param summary the group summary for the view.
+	 * @return a new builder.
+	 */
+	public static SummaryBuilder getBuilder(final GroupSummary summary) {
+		return new SummaryBuilder(summary);
+	}
+	
+	/** A builder for minimal {@link GroupView}s based on a {@link GroupSummary}.
+	 */
+	public static class SummaryBuilder {
+		
+		private final GroupSummary summary;
+		private boolean isOverridePrivateView = false;
+		private Function<NumberedCustomField, Boolean> isPublicField = f -> false;
+		private Function<NumberedCustomField, Boolean> isMinimalViewField = f -> false;
+		
+		private SummaryBuilder(final GroupSummary summary) {
+			this.summary = requireNonNull(summary, "summary");
+		}
+		
+		/** Add a function that will be used to determine which fields are public fields and
+		 * therefore viewable by all users, not just group members.
+		 * By default, no fields are considered to be public fields.
+		 * The function must not return null.
+		 * @param isPublic a function that determines whether a custom field is public (true)
+		 * or not (false).
+		 * @return this builder.
+		 */
+		public SummaryBuilder withPublicFieldDeterminer(
+				final Function<NumberedCustomField, Boolean> isPublic) {
+			this.isPublicField = requireNonNull(isPublic, "isPublic");
+			return this;
+		}
+		
+		/** Add a function that will be used to determine which fields are viewable in a
+		 * minimal view.
+		 * By default, no fields are viewable in a minimal view.
+		 * The function must not return null.
+		 * @param isMinimalView a function that determines whether a custom field is viewable
+		 * in a minimal view (true) or not (false).
+		 * @return this builder.
+		 */
+		public SummaryBuilder withMinimalViewFieldDeterminer(
+				final Function<NumberedCustomField, Boolean> isMinimalView) {
+			this.isMinimalViewField = requireNonNull(isMinimalView, "isMinimalView");
+			return this;
+		}
+		
+		/** Override the private property of a group and allow a public view of the group.
+		 * The user's role within the group is still taken into account when determining the view.
+		 * @param overridePrivateView true to override the group's private property.
+		 * @return this builder.
+		 */
+		public SummaryBuilder withOverridePrivateView(final boolean overridePrivateView) {
+			this.isOverridePrivateView = overridePrivateView;
+			return this;
+		}
+		
+		/** Build a new {@link GroupView}.
+		 * @return the view.
+		 */
+		public GroupView build() {
+			return new GroupView(summary, isOverridePrivateView,
+					isPublicField, isMinimalViewField);
+		}
+	}
+	
 	/** A builder for {@link GroupView}s.
 	 * @author gaprice@lbl.gov
 	 *
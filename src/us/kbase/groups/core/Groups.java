@@ -5,6 +5,7 @@ import static java.util.Objects.requireNonNull;
 import static us.kbase.groups.core.request.GroupRequest.USER_TYPE;
 import static us.kbase.groups.util.Util.checkNoNullsInCollection;
 
+import java.io.IOException;
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
@@ -19,8 +20,17 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
 import us.kbase.groups.core.exceptions.AuthenticationException;
 import us.kbase.groups.core.exceptions.ClosedRequestException;
 import us.kbase.groups.core.exceptions.GroupExistsException;
@@ -39,6 +49,7 @@ import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.ResourceHandlerException;
 import us.kbase.groups.core.exceptions.UnauthorizedException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.FieldValidatorException;
 import us.kbase.groups.core.fieldvalidation.FieldValidators;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
@@ -58,6 +69,7 @@ import us.kbase.groups.core.resource.ResourceInformationSet;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.storage.GroupsStorage;
 import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.groups.util.SingleFlight;
 
 /** The core class in the Groups software. 
  * @author gaprice@lbl.gov
@@ -70,13 +82,30 @@ public class Groups {
 	private static final Duration REQUEST_EXPIRE_TIME = Duration.of(14, ChronoUnit.DAYS);
 	private static final int MAX_GROUP_NAMES_RETURNED = 1000;
 	private static final int MAX_GROUP_HAS_REQUESTS_COUNT = 100;
+	// the resource handler executor is shared between all calls, so this limits the number of
+	// concurrent calls to resource services. If the queue fills up the calling thread runs the
+	// lookup itself.
+	private static final int RESOURCE_INFO_THREADS = 20;
+	private static final int RESOURCE_INFO_QUEUE_SIZE = 1000;
+	private static final Duration RESOURCE_INFO_TIMEOUT = Duration.of(60, ChronoUnit.SECONDS);
+	// modification dates are set before the write commits, so a change feed reader could see a
+	// later change and move past an earlier one that hasn't committed yet. Changes are withheld
+	// from the feeds until this long after their modification date.
+	private static final Duration CHANGES_SETTLE_TIME = Duration.of(10, ChronoUnit.SECONDS);
+	
 	private final GroupsStorage storage;
 	private final UserHandler userHandler;
 	private final Map<ResourceType, ResourceHandler> resourceHandlers;
 	private final FieldValidators validators;
 	private final Notifications notifications;
+	private final Set<UserName> serviceAdmins;
 	private final UUIDGenerator uuidGen;
 	private final Clock clock;
+	private final ExecutorService resourceInfoExecutor;
+	private final TaskWrapper taskWrapper;
+	// concurrent loads of the same group, e.g. after a popular group is announced, share work
+	private final SingleFlight<GroupID, Group> groupLoads = new SingleFlight<>();
+	private final SingleFlight<GroupID, GroupView> anonymousGroupViews = new SingleFlight<>();
 	
 	/** Create a new {@link Groups} class.
 	 * @param storage the storage system to be used by the class.
@@ -97,7 +126,58 @@ public class Groups {
 			final FieldValidators validators,
 			final Notifications notifications) {
 		this(storage, userHandler, resourceHandlers, validators, notifications,
-				new UUIDGenerator(), Clock.systemDefaultZone());
+				Collections.emptySet());
+	}
+	
+	/** Create a new {@link Groups} class.
+	 * @param storage the storage system to be used by the class.
+	 * @param userHandler the user handler by which users shall be handled.
+	 * @param resourceHandlers the resource handlers for providing information about resources.
+	 * Note that changing the set of configured handlers for a storage instance may cause errors
+	 * and unexpected behavior, as handlers may be missing for data in the storage system or
+	 * handlers may be swapped, leading to inaccurate information being returned for the
+	 * stored data.
+	 * @param validators the validators for group custom fields.
+	 * @param notifications where notification should be sent.
+	 * @param serviceAdmins the users that may perform administrative actions on the service
+	 * itself, such as clearing caches.
+	 */
+	public Groups(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> resourceHandlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final Set<UserName> serviceAdmins) {
+		this(storage, userHandler, resourceHandlers, validators, notifications, serviceAdmins,
+				TaskWrapper.NONE);
+	}
+	
+	/** Create a new {@link Groups} class.
+	 * @param storage the storage system to be used by the class.
+	 * @param userHandler the user handler by which users shall be handled.
+	 * @param resourceHandlers the resource handlers for providing information about resources.
+	 * Note that changing the set of configured handlers for a storage instance may cause errors
+	 * and unexpected behavior, as handlers may be missing for data in the storage system or
+	 * handlers may be swapped, leading to inaccurate information being returned for the
+	 * stored data.
+	 * @param validators the validators for group custom fields.
+	 * @param notifications where notification should be sent.
+	 * @param serviceAdmins the users that may perform administrative actions on the service
+	 * itself, such as clearing caches.
+	 * @param taskWrapper wraps the tasks run on other threads while handling a request, such
+	 * as retrieving resource information.
+	 */
+	public Groups(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> resourceHandlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final Set<UserName> serviceAdmins,
+			final TaskWrapper taskWrapper) {
+		this(storage, userHandler, resourceHandlers, validators, notifications, serviceAdmins,
+				taskWrapper, new UUIDGenerator(), Clock.systemDefaultZone());
 	}
 	
 	// for testing
@@ -107,6 +187,8 @@ public class Groups {
 			final Map<ResourceType, ResourceHandler> resourceHandlers,
 			final FieldValidators validators,
 			final Notifications notifications,
+			final Set<UserName> serviceAdmins,
+			final TaskWrapper taskWrapper,
 			final UUIDGenerator uuidGen,
 			final Clock clock) {
 		checkNotNull(storage, "storage");
@@ -114,6 +196,10 @@ public class Groups {
 		checkNotNull(resourceHandlers, "resourceHandlers");
 		checkNotNull(validators, "validators");
 		checkNotNull(notifications, "notifications");
+		checkNoNullsInCollection(serviceAdmins, "serviceAdmins");
+		checkNotNull(taskWrapper, "taskWrapper");
+		this.taskWrapper = taskWrapper;
+		this.serviceAdmins = Collections.unmodifiableSet(new HashSet<>(serviceAdmins));
 		this.storage = storage;
 		this.userHandler = userHandler;
 		if (resourceHandlers.containsKey(USER_TYPE)) {
@@ -125,6 +211,18 @@ public class Groups {
 		this.notifications = notifications;
 		this.uuidGen = uuidGen;
 		this.clock = clock;
+		final ThreadPoolExecutor exe = new ThreadPoolExecutor(
+				RESOURCE_INFO_THREADS,
+				RESOURCE_INFO_THREADS,
+				60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(RESOURCE_INFO_QUEUE_SIZE),
+				new ThreadFactoryBuilder()
+						.setDaemon(true)
+						.setNameFormat("groups-resource-info-%d")
+						.build(),
+				new ThreadPoolExecutor.CallerRunsPolicy());
+		exe.allowCoreThreadTimeOut(true);
+		this.resourceInfoExecutor = exe;
 	}
 	
 	/** Create a new group.
@@ -347,13 +445,44 @@ public class Groups {
 	public GroupView getGroup(final Token userToken, final GroupID groupID)
 			throws InvalidTokenException, AuthenticationException, NoSuchGroupException,
 				GroupsStorageException, ResourceHandlerException {
-		Group g = storage.getGroup(groupID);
-		final UserName user = getOptionalUser(userToken);
-		final Map<ResourceType, ResourceInformationSet> resources = new HashMap<>();
-		for (final ResourceType type: g.getResourceTypes()) {
-			final ResourceInformationSet resourceInfo = getResourceInfo(g, user, type);
-			resources.put(type, resourceInfo);
-			g = g.removeResources(type, resourceInfo.getNonexistentResources());
+		requireNonNull(groupID, "groupID");
+		if (userToken == null) {
+			// the view is the same for all anonymous users, so the resource lookups can be
+			// shared as well
+			return singleFlight(anonymousGroupViews, groupID,
+					() -> getGroupView(loadGroup(groupID), null));
+		}
+		final Group g = loadGroup(groupID);
+		// resource information is targeted at the user, so it can't be shared between users
+		return getGroupView(g, getOptionalUser(userToken));
+	}
+	
+	private Group loadGroup(final GroupID groupID)
+			throws NoSuchGroupException, GroupsStorageException, ResourceHandlerException {
+		return singleFlight(groupLoads, groupID, () -> storage.getGroup(groupID));
+	}
+	
+	private <K, V> V singleFlight(
+			final SingleFlight<K, V> flight,
+			final K key,
+			final SingleFlight.Loader<V> loader)
+			throws NoSuchGroupException, GroupsStorageException, ResourceHandlerException {
+		try {
+			return flight.get(key, loader);
+		} catch (NoSuchGroupException | GroupsStorageException | ResourceHandlerException |
+				RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
+	}
+	
+	private GroupView getGroupView(final Group group, final UserName user)
+			throws NoSuchGroupException, GroupsStorageException, ResourceHandlerException {
+		Group g = group;
+		final Map<ResourceType, ResourceInformationSet> resources = getResourceInfo(g, user);
+		for (final ResourceType type: resources.keySet()) {
+			g = g.removeResources(type, resources.get(type).getNonexistentResources());
 		}
 		final GroupView.Builder b = startViewBuild(g, user)
 				// this seems odd. Maybe there's a better way to deal with this?
@@ -383,6 +512,63 @@ public class Groups {
 		return b;
 	}
 	
+	// runs the handlers concurrently so the latency is that of the slowest handler rather than
+	// the sum of all the handlers.
+	private Map<ResourceType, ResourceInformationSet> getResourceInfo(
+			final Group g,
+			final UserName user)
+			throws ResourceHandlerException, NoSuchGroupException, GroupsStorageException {
+		final Set<ResourceType> types = g.getResourceTypes();
+		final Map<ResourceType, ResourceInformationSet> ret = new HashMap<>();
+		if (types.size() < 2) {
+			// no point in switching threads
+			for (final ResourceType type: types) {
+				ret.put(type, getResourceInfo(g, user, type));
+			}
+			return ret;
+		}
+		final Map<ResourceType, Future<ResourceInformationSet>> futures = new HashMap<>();
+		for (final ResourceType type: types) {
+			futures.put(type, resourceInfoExecutor.submit(
+					taskWrapper.wrap(() -> getResourceInfo(g, user, type))));
+		}
+		final long deadline = System.nanoTime() + RESOURCE_INFO_TIMEOUT.toNanos();
+		try {
+			for (final ResourceType type: types) {
+				ret.put(type, futures.get(type).get(
+						Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ResourceHandlerException(
+					"Interrupted while retrieving resource information", e);
+		} catch (TimeoutException e) {
+			throw new ResourceHandlerException(String.format(
+					"Timed out after %s seconds retrieving resource information for group %s",
+					RESOURCE_INFO_TIMEOUT.getSeconds(), g.getGroupID().getName()), e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ResourceHandlerException) {
+				throw (ResourceHandlerException) cause;
+			} else if (cause instanceof NoSuchGroupException) {
+				throw (NoSuchGroupException) cause;
+			} else if (cause instanceof GroupsStorageException) {
+				throw (GroupsStorageException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException("This should be impossible", cause);
+			}
+		} finally {
+			for (final Future<ResourceInformationSet> f: futures.values()) {
+				f.cancel(true);
+			}
+		}
+		return ret;
+	}
+	
 	private ResourceInformationSet getResourceInfo(
 			final Group g,
 			final UserName user,
@@ -492,28 +678,25 @@ public class Groups {
 					"No more than %s group IDs are allowed", MAX_GROUP_HAS_REQUESTS_COUNT));
 		}
 		final UserName user = userHandler.getUser(requireNonNull(userToken, "userToken"));
-		final Map<GroupID, Optional<Instant>> gToLastVisit = new HashMap<>();
+		final Map<GroupID, GroupUser> admins = storage.getAdministratorMemberships(user, groupIDs);
 		for (final GroupID gid: groupIDs) {
-			// could make a bulk method that returns less info per group if necessary
-			// or even an isAdmin(Username, Set<GroupID>) method. YAGNI for now
-			final Group g = storage.getGroup(gid);
-			if (!g.isAdministrator(user)) {
+			if (!admins.containsKey(gid)) {
 				throw new UnauthorizedException(String.format(
 						"User %s may not administrate group %s", user.getName(), gid.getName()));
 			}
-			gToLastVisit.put(gid, g.getMember(user).getLastVisit());
 		}
+		final Map<GroupID, Instant> latestRequests = storage.getLatestOpenRequestDates(groupIDs);
 		final Map<GroupID, GroupHasRequests> ret = new HashMap<>();
 		for (final GroupID gid: groupIDs) {
-			final Instant laterThan = gToLastVisit.get(gid).orElse(null);
+			final Optional<Instant> lastVisit = admins.get(gid).getLastVisit();
+			final Instant latest = latestRequests.get(gid);
 			final GroupHasRequests reqstate;
-			if (storage.groupHasRequest(gid, laterThan)) {
+			if (latest == null) {
+				reqstate = GroupHasRequests.NONE;
+			} else if (!lastVisit.isPresent() || latest.isAfter(lastVisit.get())) {
 				reqstate = GroupHasRequests.NEW;
-			} else if (laterThan != null) {
-				reqstate = storage.groupHasRequest(gid, null) ?
-						GroupHasRequests.OLD : GroupHasRequests.NONE;
 			} else {
-				reqstate = GroupHasRequests.NONE;
+				reqstate = GroupHasRequests.OLD;
 			}
 			ret.put(gid, reqstate);
 		}
@@ -521,7 +704,7 @@ public class Groups {
 	}
 	
 	/** Get minimal views of the groups in the system.
-	 * At most 100 groups are returned.
+	 * At most {@link GetGroupsParams#getLimit()} groups are returned.
 	 * @param userToken the user's token. If null, only public groups are returned.
 	 * @param params the parameters for getting the groups.
 	 * @return the groups.
@@ -533,8 +716,19 @@ public class Groups {
 			throws GroupsStorageException, InvalidTokenException, AuthenticationException {
 		checkNotNull(params, "params");
 		final UserName user = getOptionalUser(userToken);
-		return storage.getGroups(params, user).stream()
-				.map(g -> GroupView.getBuilder(g, user)
+		return toViews(storage.getGroupSummaries(params, user, resourceHandlers.keySet()));
+	}
+	
+	private List<GroupView> toViews(final List<GroupSummary> groups) {
+		return toViews(groups, false);
+	}
+	
+	private List<GroupView> toViews(
+			final List<GroupSummary> groups,
+			final boolean overridePrivateView) {
+		return groups.stream()
+				.map(g -> GroupView.getBuilder(g)
+						.withOverridePrivateView(overridePrivateView)
 						// this seems odd. Maybe there's a better way to deal with this?
 						.withMinimalViewFieldDeterminer(
 								f -> validators.getConfigOrEmpty(f.getFieldRoot())
@@ -546,6 +740,91 @@ public class Groups {
 				.collect(Collectors.toList());
 	}
 	
+	/** Search for groups by text. The group name and any custom fields that are both public
+	 * and shown in the minimal view of a group are searched, so that a group is never returned
+	 * due to text the user cannot see.
+	 * Groups are returned as minimal views in order of relevance.
+	 * At most {@link GroupSearchParams#getLimit()} groups are returned.
+	 * @param userToken the user's token. If null, only public groups are returned.
+	 * @param params the parameters for the search.
+	 * @return the groups.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 */
+	public List<GroupView> searchGroups(final Token userToken, final GroupSearchParams params)
+			throws GroupsStorageException, InvalidTokenException, AuthenticationException {
+		checkNotNull(params, "params");
+		final UserName user = getOptionalUser(userToken);
+		final Set<CustomField> searchFields = validators.getValidationTargetFields().stream()
+				.filter(f -> validators.getConfig(f).isPublicField() &&
+						validators.getConfig(f).isMinimalViewField())
+				.collect(Collectors.toSet());
+		return toViews(storage.searchGroupSummaries(
+				params, user, resourceHandlers.keySet(), searchFields));
+	}
+	
+	/** Get minimal views of the groups that contain a resource.
+	 * At most {@link GetGroupsParams#getLimit()} groups are returned.
+	 * @param userToken the user's token. If null, only public groups are returned.
+	 * @param type the type of the resource.
+	 * @param resource the ID of the resource.
+	 * @param params the parameters for getting the groups.
+	 * @return the groups.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws NoSuchResourceTypeException if the resource type does not exist.
+	 */
+	public List<GroupView> getGroupsForResource(
+			final Token userToken,
+			final ResourceType type,
+			final ResourceID resource,
+			final GetGroupsParams params)
+			throws GroupsStorageException, InvalidTokenException, AuthenticationException,
+				NoSuchResourceTypeException {
+		checkNotNull(type, "type");
+		checkNotNull(resource, "resource");
+		checkNotNull(params, "params");
+		getHandler(type); // check the type exists
+		final UserName user = getOptionalUser(userToken);
+		return toViews(storage.getGroupSummariesForResource(
+				type, resource, params, user, resourceHandlers.keySet()));
+	}
+	
+	/** Get minimal views of the groups, public and private, that have changed, in order of
+	 * modification date and then group ID. Since a group that becomes private must still be
+	 * reported as changed, only service administrators may list changed groups, and private
+	 * groups are not shown as private views.
+	 * Note that the modification date of a group is not updated when only a member's
+	 * last visited date changes.
+	 * Changes are withheld until 10 seconds after the modification date so that writes that
+	 * commit after later writes are not skipped. A write that takes longer than that to commit
+	 * may be missed by a reader that has already moved past its modification date.
+	 * At most {@link GetChangesParams#getLimit()} groups are returned.
+	 * @param userToken the user's token.
+	 * @param params the parameters for getting the groups.
+	 * @return the groups.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 */
+	public List<GroupView> getGroupChanges(final Token userToken, final GetChangesParams params)
+			throws GroupsStorageException, InvalidTokenException, AuthenticationException,
+				UnauthorizedException {
+		checkNotNull(userToken, "userToken");
+		checkNotNull(params, "params");
+		ensureServiceAdmin(userHandler.getUser(userToken));
+		final Instant settled = clock.instant().minus(CHANGES_SETTLE_TIME);
+		return toViews(storage.getChangedGroupSummaries(params, resourceHandlers.keySet())
+				.stream()
+				// the list is sorted by modification date, so this drops the tail
+				.filter(g -> g.getModificationDate().isBefore(settled))
+				.collect(Collectors.toList()),
+				true);
+	}
+	
 	/** Request membership in a group.
 	 * @param userToken the user's token.
 	 * @param groupID the ID of the group for which membership is desired.
@@ -801,6 +1080,34 @@ public class Groups {
 		return storage.getRequestsByGroup(groupID, params);
 	}
 
+	/** Get the requests, open or closed, that have changed, in order of modification date and
+	 * then request ID. Since requests are only visible to the parties to the request, only
+	 * service administrators may list changed requests.
+	 * As for {@link #getGroupChanges(Token, GetChangesParams)}, changes are withheld until 10
+	 * seconds after the modification date.
+	 * At most {@link GetChangesParams#getLimit()} requests are returned.
+	 * @param userToken the user's token.
+	 * @param params the parameters for getting the requests.
+	 * @return the requests.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public List<GroupRequest> getRequestChanges(
+			final Token userToken,
+			final GetChangesParams params)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException,
+				GroupsStorageException {
+		checkNotNull(userToken, "userToken");
+		checkNotNull(params, "params");
+		ensureServiceAdmin(userHandler.getUser(userToken));
+		final Instant settled = clock.instant().minus(CHANGES_SETTLE_TIME);
+		return storage.getChangedRequests(params).stream()
+				.filter(r -> r.getModificationDate().isBefore(settled))
+				.collect(Collectors.toList());
+	}
+
 	private Group getGroupFromKnownGoodRequest(final GroupRequest request)
 			throws GroupsStorageException {
 		try {
@@ -1330,4 +1637,123 @@ public class Groups {
 			throw new RuntimeException("This should be impossible", e);
 		}
 	}
+	
+	/** Remove cached information from a resource handler. Only service administrators may
+	 * remove cached information.
+	 * @param userToken the user's token.
+	 * @param type the type of the resource.
+	 * @param resource the ID of the resource for which cached information should be removed,
+	 * or null to remove all cached information for the resource type.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 * @throws NoSuchResourceTypeException if the resource type does not exist.
+	 * @throws IllegalResourceIDException if the resource ID is illegal.
+	 */
+	public void evictResourceCache(
+			final Token userToken,
+			final ResourceType type,
+			final ResourceID resource)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException,
+				NoSuchResourceTypeException, IllegalResourceIDException {
+		checkNotNull(userToken, "userToken");
+		checkNotNull(type, "type");
+		ensureServiceAdmin(userHandler.getUser(userToken));
+		final ResourceHandler h = getHandler(type);
+		if (resource == null) {
+			h.evictCache();
+		} else {
+			h.evictCache(resource);
+		}
+	}
+	
+	/** Export all the groups in the system, sorted by the group ID. Only service
+	 * administrators may export groups.
+	 * @param userToken the user's token.
+	 * @return the groups. The groups are read from the storage system as they are processed.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 */
+	public ItemStream<Group> exportGroups(final Token userToken)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException {
+		checkNotNull(userToken, "userToken");
+		ensureServiceAdmin(userHandler.getUser(userToken));
+		return p -> storage.processGroups(p);
+	}
+	
+	/** Export all the requests in the system, open or closed, sorted by the request ID. Only
+	 * service administrators may export requests.
+	 * @param userToken the user's token.
+	 * @return the requests. The requests are read from the storage system as they are
+	 * processed.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 */
+	public ItemStream<GroupRequest> exportRequests(final Token userToken)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException {
+		checkNotNull(userToken, "userToken");
+		ensureServiceAdmin(userHandler.getUser(userToken));
+		return p -> storage.processRequests(p);
+	}
+	
+	/** Import groups, typically groups exported via {@link #exportGroups(Token)}. Only service
+	 * administrators may import groups. The groups are stored in batches as they are read
+	 * from the source. If an error occurs, the groups stored prior to the error remain in
+	 * the storage system.
+	 * @param userToken the user's token.
+	 * @param groups the source of the groups.
+	 * @return the number of groups imported.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 * @throws IOException if a group could not be read from the source.
+	 * @throws IllegalParameterException if a group contains an illegal value.
+	 * @throws MissingParameterException if a group is missing a required value.
+	 * @throws GroupExistsException if a group already exists.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public long importGroups(final Token userToken, final ItemSource<Group> groups)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException,
+				IOException, IllegalParameterException, MissingParameterException,
+				GroupExistsException, GroupsStorageException {
+		checkNotNull(userToken, "userToken");
+		checkNotNull(groups, "groups");
+		ensureServiceAdmin(userHandler.getUser(userToken));
+		return ItemImporter.importItems(groups, b -> storage.importGroups(b));
+	}
+	
+	/** Import requests, typically requests exported via {@link #exportRequests(Token)}. Only
+	 * service administrators may import requests. The requests are stored in batches as they
+	 * are read from the source. If an error occurs, the requests stored prior to the error
+	 * remain in the storage system.
+	 * @param userToken the user's token.
+	 * @param requests the source of the requests.
+	 * @return the number of requests imported.
+	 * @throws InvalidTokenException if the token is invalid.
+	 * @throws AuthenticationException if authentication fails.
+	 * @throws UnauthorizedException if the user is not a service administrator.
+	 * @throws IOException if a request could not be read from the source.
+	 * @throws IllegalParameterException if a request contains an illegal value.
+	 * @throws MissingParameterException if a request is missing a required value.
+	 * @throws RequestExistsException if a request already exists.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public long importRequests(final Token userToken, final ItemSource<GroupRequest> requests)
+			throws InvalidTokenException, AuthenticationException, UnauthorizedException,
+				IOException, IllegalParameterException, MissingParameterException,
+				RequestExistsException, GroupsStorageException {
+		checkNotNull(userToken, "userToken");
+		checkNotNull(requests, "requests");
+		ensureServiceAdmin(userHandler.getUser(userToken));
+		return ItemImporter.importItems(requests, b -> storage.importRequests(b));
+	}
+	
+	private void ensureServiceAdmin(final UserName user) throws UnauthorizedException {
+		if (!serviceAdmins.contains(user)) {
+			throw new UnauthorizedException(String.format(
+					"User %s is not a service administrator", user.getName()));
+		}
+	}
 }
@@ -0,0 +1,102 @@
+package us.kbase.groups.core;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** Stores the items read from an {@link ItemSource} in batches. Used by the {@link Groups}
+ * import methods and by tools that import items directly into a storage system.
+ */
+public class ItemImporter {
+	
+	/** The maximum number of items stored per batch. */
+	public static final int BATCH_SIZE = 1000;
+	
+	/** Stores a batch of items.
+	 * @param <T> the type of the items.
+	 * @param <E> an exception thrown by the storage system other than
+	 * {@link GroupsStorageException}, e.g. if an item already exists.
+	 */
+	public interface BatchStorer<T, E extends Exception> {
+		
+		/** Store a batch of items.
+		 * @param batch the items.
+		 * @throws E if the items could not be stored.
+		 * @throws GroupsStorageException if an error occurs contacting the storage system.
+		 */
+		void store(List<T> batch) throws E, GroupsStorageException;
+	}
+	
+	private ItemImporter() {}
+	
+	/** Read all the items from a source and store them in batches of at most
+	 * {@link #BATCH_SIZE} items. If an error occurs, the batches stored prior to the error
+	 * remain in the storage system.
+	 * @param <T> the type of the items.
+	 * @param <E> an exception thrown by the storer.
+	 * @param source the source of the items.
+	 * @param storer the storer for the batches.
+	 * @return the number of items stored.
+	 * @throws IOException if an item could not be read from the source.
+	 * @throws IllegalParameterException if an item contains an illegal value.
+	 * @throws MissingParameterException if an item is missing a required value.
+	 * @throws E if the storer throws an exception.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public static <T, E extends Exception> long importItems(
+			final ItemSource<T> source,
+			final BatchStorer<T, E> storer)
+			throws IOException, IllegalParameterException, MissingParameterException,
+				E, GroupsStorageException {
+		return importItems(source, BATCH_SIZE, storer);
+	}
+	
+	/** Read all the items from a source and store them in batches. If an error occurs, the
+	 * batches stored prior to the error remain in the storage system.
+	 * @param <T> the type of the items.
+	 * @param <E> an exception thrown by the storer.
+	 * @param source the source of the items.
+	 * @param batchSize the maximum number of items per batch.
+	 * @param storer the storer for the batches.
+	 * @return the number of items stored.
+	 * @throws IOException if an item could not be read from the source.
+	 * @throws IllegalParameterException if an item contains an illegal value.
+	 * @throws MissingParameterException if an item is missing a required value.
+	 * @throws E if the storer throws an exception.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public static <T, E extends Exception> long importItems(
+			final ItemSource<T> source,
+			final int batchSize,
+			final BatchStorer<T, E> storer)
+			throws IOException, IllegalParameterException, MissingParameterException,
+				E, GroupsStorageException {
+		checkNotNull(source, "source");
+		checkNotNull(storer, "storer");
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		long count = 0;
+		List<T> batch = new ArrayList<>();
+		for (Optional<T> item = source.next(); item.isPresent(); item = source.next()) {
+			batch.add(item.get());
+			if (batch.size() >= batchSize) {
+				storer.store(batch);
+				count += batch.size();
+				batch = new ArrayList<>();
+			}
+		}
+		if (!batch.isEmpty()) {
+			storer.store(batch);
+			count += batch.size();
+		}
+		return count;
+	}
+}
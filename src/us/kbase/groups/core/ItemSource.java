@@ -0,0 +1,23 @@
+package us.kbase.groups.core;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+
+/** A source of items, typically parsed one at a time from an input stream, to be stored by
+ * the {@link Groups} import methods.
+ *
+ * @param <T> the type of the items.
+ */
+public interface ItemSource<T> {
+
+	/** Get the next item.
+	 * @return the next item, or absent if there are no more items.
+	 * @throws IOException if the item could not be read.
+	 * @throws IllegalParameterException if the item contains an illegal value.
+	 * @throws MissingParameterException if the item is missing a required value.
+	 */
+	Optional<T> next() throws IOException, IllegalParameterException, MissingParameterException;
+}
@@ -0,0 +1,21 @@
+package us.kbase.groups.core;
+
+import java.io.IOException;
+
+import us.kbase.groups.storage.ItemProcessor;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A set of items that is read from the storage system as the items are processed, rather
+ * than all at once.
+ *
+ * @param <T> the type of the items.
+ */
+public interface ItemStream<T> {
+
+	/** Read the items from the storage system and pass each item to a processor.
+	 * @param processor the processor for the items.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws IOException if the processor throws an IOException. Processing stops.
+	 */
+	void process(ItemProcessor<T> processor) throws GroupsStorageException, IOException;
+}
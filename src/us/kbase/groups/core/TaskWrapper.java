@@ -0,0 +1,26 @@
+package us.kbase.groups.core;
+
+import java.util.concurrent.Callable;
+
+/** Wraps tasks that {@link Groups} runs on other threads while handling a request, so that
+ * state the calling thread keeps for the request, such as the time spent waiting on other
+ * services, is also kept for the tasks.
+ */
+public interface TaskWrapper {
+	
+	/** A wrapper that returns the task unchanged. */
+	TaskWrapper NONE = new TaskWrapper() {
+		
+		@Override
+		public <T> Callable<T> wrap(final Callable<T> task) {
+			return task;
+		}
+	};
+	
+	/** Wrap a task. Must be called on the thread handling the request.
+	 * @param <T> the type of the task's result.
+	 * @param task the task.
+	 * @return the wrapped task.
+	 */
+	<T> Callable<T> wrap(Callable<T> task);
+}
@@ -0,0 +1,243 @@
+package us.kbase.groups.core.notifications;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** Sends {@link PendingNotification}s stored by {@link OutboxNotifications} to a
+ * {@link Notifications} implementation.
+ *
+ * Notifications are claimed from storage in batches. Each successfully sent notification is
+ * removed from storage. Notifications that fail to send are retried with an exponential
+ * backoff until the maximum number of attempts is reached, at which point the notification
+ * is logged and discarded.
+ *
+ * Since sending a notification and removing it from storage is not atomic, a notification
+ * may occasionally be sent more than once.
+ *
+ * Retries mean that notifications regarding a request may be sent out of order. A notification
+ * that a request was created is therefore discarded if the request has since been closed, so it
+ * can never be sent after the notification that closed the request.
+ */
+public class NotificationDispatcher {
+
+	/* The lease needs to be long enough that a batch can be processed before the lease
+	 * expires, even if each notification takes a long time to fail (the Kafka notifier waits
+	 * 35s per message), or other service instances may claim and resend the notifications.
+	 */
+	private static final Duration LEASE = Duration.ofHours(1);
+	private static final Duration MAX_BACKOFF = Duration.ofHours(1);
+	
+	private final GroupsStorage storage;
+	private final Notifications notifier;
+	private final int batchSize;
+	private final int maxAttempts;
+	private final Clock clock;
+	
+	private ScheduledExecutorService executor;
+	private boolean running = false;
+	
+	/** Create the dispatcher. The dispatcher does not run until {@link #start(long)} is called.
+	 * @param storage the storage system containing the notifications.
+	 * @param notifier the notification system to which notifications will be sent.
+	 * @param batchSize the maximum number of notifications to claim from storage at once.
+	 * @param maxAttempts the maximum number of times sending a notification will be
+	 * attempted.
+	 */
+	public NotificationDispatcher(
+			final GroupsStorage storage,
+			final Notifications notifier,
+			final int batchSize,
+			final int maxAttempts) {
+		this(storage, notifier, batchSize, maxAttempts, Clock.systemDefaultZone());
+	}
+	
+	// for tests
+	private NotificationDispatcher(
+			final GroupsStorage storage,
+			final Notifications notifier,
+			final int batchSize,
+			final int maxAttempts,
+			final Clock clock) {
+		checkNotNull(storage, "storage");
+		checkNotNull(notifier, "notifier");
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("batchSize must be at least 1");
+		}
+		if (maxAttempts < 1) {
+			throw new IllegalArgumentException("maxAttempts must be at least 1");
+		}
+		this.storage = storage;
+		this.notifier = notifier;
+		this.batchSize = batchSize;
+		this.maxAttempts = maxAttempts;
+		this.clock = clock;
+	}
+	
+	/** Schedule the dispatcher with the given delay between runs. Each run sends notifications
+	 * until no more notifications are ready to be sent.
+	 * @param delayInMillis the delay between the end of one run and the start of the next.
+	 * @throws IllegalArgumentException if the dispatcher is already running or the delay is
+	 * less than or equal to zero.
+	 */
+	public synchronized void start(final long delayInMillis) {
+		if (running) {
+			throw new IllegalArgumentException("The dispatcher is already running");
+		}
+		if (delayInMillis <= 0) {
+			throw new IllegalArgumentException("delayInMillis must be > 0");
+		}
+		running = true;
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setDaemon(true).setNameFormat("notification-dispatcher-%d").build());
+		executor.scheduleWithFixedDelay(
+				new DispatchAgent(), 0, delayInMillis, TimeUnit.MILLISECONDS);
+	}
+	
+	/** Returns true if the dispatcher is running, false otherwise.
+	 * @return true if the dispatcher is running.
+	 */
+	public synchronized boolean isRunning() {
+		return running;
+	}
+	
+	/** Stops the dispatcher from running again. Call {@link #start(long)} to restart the
+	 * dispatcher.
+	 * Calling this method multiple times in succession has no effect.
+	 */
+	public synchronized void stop() {
+		if (executor != null) {
+			executor.shutdown();
+		}
+		running = false;
+	}
+	
+	private class DispatchAgent implements Runnable {
+	
+		@Override
+		public void run() {
+			try {
+				while (dispatch() >= batchSize) {
+					// keep going until the outbox is drained
+				}
+			} catch (Throwable e) {
+				// most likely the storage system is unavailable. Log and retry next time.
+				// Any claimed notifications will be retried when their lease expires.
+				LoggerFactory.getLogger(getClass())
+						.error("Error dispatching notifications: " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/** Claim and send a single batch of notifications.
+	 * @return the number of notifications claimed.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	public int dispatch() throws GroupsStorageException {
+		final Instant now = clock.instant();
+		final List<PendingNotification> batch = storage.claimNotifications(
+				batchSize, now, now.plus(LEASE));
+		for (final PendingNotification n: batch) {
+			try {
+				dispatch(n);
+			} catch (GroupsStorageException e) {
+				// don't abandon the rest of the batch. The notification will be retried when
+				// its lease expires.
+				LoggerFactory.getLogger(getClass()).error(String.format(
+						"Error dispatching notification %s: %s", n.getID(), e.getMessage()), e);
+			}
+		}
+		return batch.size();
+	}
+	
+	private void dispatch(final PendingNotification n) throws GroupsStorageException {
+		try {
+			send(n);
+		} catch (NoSuchRequestException e) {
+			// retrying won't help
+			LoggerFactory.getLogger(getClass()).error(String.format(
+					"Discarding notification %s: %s", n.getID(), e.getMessage()), e);
+		} catch (RuntimeException | GroupsStorageException e) {
+			// storage errors retrieving the request are retried like notifier errors
+			handleFailure(n, e);
+			return;
+		}
+		storage.removeNotification(n.getID());
+	}
+	
+	private void handleFailure(final PendingNotification n, final Exception e)
+			throws GroupsStorageException {
+		final int attempts = n.getAttempts() + 1;
+		if (attempts >= maxAttempts) {
+			LoggerFactory.getLogger(getClass()).error(String.format(
+					"Discarding notification %s after %s failed attempts: %s",
+					n.getID(), attempts, e.getMessage()), e);
+			storage.removeNotification(n.getID());
+		} else {
+			LoggerFactory.getLogger(getClass()).warn(String.format(
+					"Failed sending notification %s, attempt %s: %s",
+					n.getID(), attempts, e.getMessage()), e);
+			storage.rescheduleNotification(
+					n.getID(), attempts, clock.instant().plus(getBackoff(attempts)));
+		}
+	}
+	
+	// 2, 4, 8... seconds up to the maximum backoff
+	private Duration getBackoff(final int attempts) {
+		final Duration backoff = Duration.ofSeconds(1L << Math.min(attempts, 20));
+		return backoff.compareTo(MAX_BACKOFF) > 0 ? MAX_BACKOFF : backoff;
+	}
+	
+	private void send(final PendingNotification n)
+			throws NoSuchRequestException, GroupsStorageException {
+		switch (n.getType()) {
+			case NOTIFY:
+				final GroupRequest r = getRequest(n);
+				if (r.isOpen()) {
+					notifier.notify(n.getTargets(), r);
+				} else {
+					// the notification that closed the request may already have been sent
+					LoggerFactory.getLogger(getClass()).info(String.format(
+							"Discarding notification %s for closed request %s",
+							n.getID(), r.getID().getID()));
+				}
+				break;
+			case CANCEL:
+				notifier.cancel(n.getRequestID().get());
+				break;
+			case DENY:
+				notifier.deny(n.getTargets(), getRequest(n));
+				break;
+			case ACCEPT:
+				notifier.accept(n.getTargets(), getRequest(n));
+				break;
+			case ADD_RESOURCE:
+				notifier.addResource(n.getUser().get(), n.getTargets(), n.getGroupID().get(),
+						n.getResourceType().get(), n.getResourceID().get());
+				break;
+			default:
+				// can't test this
+				throw new RuntimeException("Unknown notification type: " + n.getType());
+		}
+	}
+	
+	private GroupRequest getRequest(final PendingNotification n)
+			throws NoSuchRequestException, GroupsStorageException {
+		return storage.getRequest(n.getRequestID().get());
+	}
+}
@@ -0,0 +1,105 @@
+package us.kbase.groups.core.notifications;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.time.Clock;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UUIDGenerator;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.notifications.PendingNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A {@link Notifications} implementation that, rather than sending notifications, writes
+ * them to storage as {@link PendingNotification}s. A {@link NotificationDispatcher} then
+ * sends the notifications to the actual notification system in the background, so
+ * callers never wait on the notification system.
+ */
+public class OutboxNotifications implements Notifications {
+
+	private final GroupsStorage storage;
+	private final UUIDGenerator uuidGen;
+	private final Clock clock;
+	
+	/** Create the outbox.
+	 * @param storage the storage system in which notifications will be stored.
+	 */
+	public OutboxNotifications(final GroupsStorage storage) {
+		this(storage, new UUIDGenerator(), Clock.systemDefaultZone());
+	}
+	
+	// for tests
+	private OutboxNotifications(
+			final GroupsStorage storage,
+			final UUIDGenerator uuidGen,
+			final Clock clock) {
+		checkNotNull(storage, "storage");
+		this.storage = storage;
+		this.uuidGen = uuidGen;
+		this.clock = clock;
+	}
+	
+	@Override
+	public void notify(final Collection<UserName> targets, final GroupRequest request) {
+		checkNotNull(request, "request");
+		store(requestNotification(Type.NOTIFY, request.getID(), targets));
+	}
+	
+	@Override
+	public void cancel(final RequestID requestID) {
+		store(requestNotification(Type.CANCEL, requestID, Collections.emptySet()));
+	}
+	
+	@Override
+	public void deny(final Collection<UserName> targets, final GroupRequest request) {
+		checkNotNull(request, "request");
+		store(requestNotification(Type.DENY, request.getID(), targets));
+	}
+	
+	@Override
+	public void accept(final Collection<UserName> targets, final GroupRequest request) {
+		checkNotNull(request, "request");
+		store(requestNotification(Type.ACCEPT, request.getID(), targets));
+	}
+	
+	@Override
+	public void addResource(
+			final UserName user,
+			final Set<UserName> targets,
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource) {
+		store(PendingNotification.getAddResourceBuilder(
+				uuidGen.randomUUID(), user, groupID, type, resource, clock.instant())
+				.withTargets(targets)
+				.build());
+	}
+	
+	private PendingNotification requestNotification(
+			final Type type,
+			final RequestID requestID,
+			final Collection<UserName> targets) {
+		return PendingNotification.getRequestBuilder(
+				uuidGen.randomUUID(), type, requestID, clock.instant())
+				.withTargets(targets)
+				.build();
+	}
+	
+	private void store(final PendingNotification notification) {
+		try {
+			storage.storeNotification(notification);
+		} catch (GroupsStorageException e) {
+			// the Notifications interface has no checked exceptions, so follow the lead of
+			// the notifier implementations
+			throw new RuntimeException("Failed storing notification: " + e.getMessage(), e);
+		}
+	}
+}
@@ -0,0 +1,358 @@
+package us.kbase.groups.core.notifications;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+
+/** A notification that has been accepted by the system but not yet sent to the
+ * {@link Notifications} implementation.
+ *
+ * Notifications regarding a request contain only the ID of the request, and so the request
+ * must be retrieved from storage before the notification is sent.
+ */
+public class PendingNotification {
+
+	/** The type of a notification, corresponding to the methods in {@link Notifications}. */
+	public static enum Type {
+		/** A request was created. See {@link Notifications#notify}. */
+		NOTIFY,
+		/** A request was canceled. See {@link Notifications#cancel}. */
+		CANCEL,
+		/** A request was denied. See {@link Notifications#deny}. */
+		DENY,
+		/** A request was accepted. See {@link Notifications#accept}. */
+		ACCEPT,
+		/** A resource was added to a group. See {@link Notifications#addResource}. */
+		ADD_RESOURCE;
+	}
+	
+	private final UUID id;
+	private final Type type;
+	private final Set<UserName> targets;
+	private final Optional<RequestID> requestID;
+	private final Optional<UserName> user;
+	private final Optional<GroupID> groupID;
+	private final Optional<ResourceType> resourceType;
+	private final Optional<ResourceID> resourceID;
+	private final int attempts;
+	private final Instant creationDate;
+	
+	private PendingNotification(
+			final UUID id,
+			final Type type,
+			final Set<UserName> targets,
+			final Optional<RequestID> requestID,
+			final Optional<UserName> user,
+			final Optional<GroupID> groupID,
+			final Optional<ResourceType> resourceType,
+			final Optional<ResourceID> resourceID,
+			final int attempts,
+			final Instant creationDate) {
+		this.id = id;
+		this.type = type;
+		this.targets = Collections.unmodifiableSet(targets);
+		this.requestID = requestID;
+		this.user = user;
+		this.groupID = groupID;
+		this.resourceType = resourceType;
+		this.resourceID = resourceID;
+		this.attempts = attempts;
+		this.creationDate = creationDate;
+	}
+	
+	/** Get the ID of the notification.
+	 * @return the ID.
+	 */
+	public UUID getID() {
+		return id;
+	}
+	
+	/** Get the type of the notification.
+	 * @return the type.
+	 */
+	public Type getType() {
+		return type;
+	}
+	
+	/** Get the users targeted by the notification.
+	 * @return the targets.
+	 */
+	public Set<UserName> getTargets() {
+		return targets;
+	}
+	
+	/** Get the ID of the request that is the subject of the notification. Present for all
+	 * types other than {@link Type#ADD_RESOURCE}.
+	 * @return the request ID.
+	 */
+	public Optional<RequestID> getRequestID() {
+		return requestID;
+	}
+	
+	/** Get the user that added the resource to the group. Present only for
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the user.
+	 */
+	public Optional<UserName> getUser() {
+		return user;
+	}
+	
+	/** Get the ID of the group to which the resource was added. Present only for
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the group ID.
+	 */
+	public Optional<GroupID> getGroupID() {
+		return groupID;
+	}
+	
+	/** Get the type of the resource that was added to the group. Present only for
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the resource type.
+	 */
+	public Optional<ResourceType> getResourceType() {
+		return resourceType;
+	}
+	
+	/** Get the ID of the resource that was added to the group. Present only for
+	 * {@link Type#ADD_RESOURCE}.
+	 * @return the resource ID.
+	 */
+	public Optional<ResourceID> getResourceID() {
+		return resourceID;
+	}
+	
+	/** Get the number of times sending the notification has failed.
+	 * @return the number of failed attempts.
+	 */
+	public int getAttempts() {
+		return attempts;
+	}
+	
+	/** Get the date the notification was created.
+	 * @return the creation date.
+	 */
+	public Instant getCreationDate() {
+		return creationDate;
+	}
+	
+	@Override
+	public int hashCode() {
+		final int prime = 31;
+		int result = 1;
+		result = prime * result + attempts;
+		result = prime * result + ((creationDate == null) ? 0 : creationDate.hashCode());
+		result = prime * result + ((groupID == null) ? 0 : groupID.hashCode());
+		result = prime * result + ((id == null) ? 0 : id.hashCode());
+		result = prime * result + ((requestID == null) ? 0 : requestID.hashCode());
+		result = prime * result + ((resourceID == null) ? 0 : resourceID.hashCode());
+		result = prime * result + ((resourceType == null) ? 0 : resourceType.hashCode());
+		result = prime * result + ((targets == null) ? 0 : targets.hashCode());
+		result = prime * result + ((type == null) ? 0 : type.hashCode());
+		result = prime * result + ((user == null) ? 0 : user.hashCode());
+		return result;
+	}
+	
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (obj == null) {
+			return false;
+		}
+		if (getClass() != obj.getClass()) {
+			return false;
+		}
+		PendingNotification other = (PendingNotification) obj;
+		if (attempts != other.attempts) {
+			return false;
+		}
+		if (creationDate == null) {
+			if (other.creationDate != null) {
+				return false;
+			}
+		} else if (!creationDate.equals(other.creationDate)) {
+			return false;
+		}
+		if (groupID == null) {
+			if (other.groupID != null) {
+				return false;
+			}
+		} else if (!groupID.equals(other.groupID)) {
+			return false;
+		}
+		if (id == null) {
+			if (other.id != null) {
+				return false;
+			}
+		} else if (!id.equals(other.id)) {
+			return false;
+		}
+		if (requestID == null) {
+			if (other.requestID != null) {
+				return false;
+			}
+		} else if (!requestID.equals(other.requestID)) {
+			return false;
+		}
+		if (resourceID == null) {
+			if (other.resourceID != null) {
+				return false;
+			}
+		} else if (!resourceID.equals(other.resourceID)) {
+			return false;
+		}
+		if (resourceType == null) {
+			if (other.resourceType != null) {
+				return false;
+			}
+		} else if (!resourceType.equals(other.resourceType)) {
+			return false;
+		}
+		if (targets == null) {
+			if (other.targets != null) {
+				return false;
+			}
+		} else if (!targets.equals(other.targets)) {
+			return false;
+		}
+		if (type != other.type) {
+			return false;
+		}
+		if (user == null) {
+			if (other.user != null) {
+				return false;
+			}
+		} else if (!user.equals(other.user)) {
+			return false;
+		}
+		return true;
+	}
+	
+	/** Get a builder for a notification regarding a request.
+	 * @param id the ID of the notification.
+	 * @param type the type of the notification. {@link Type#ADD_RESOURCE} is not allowed.
+	 * @param requestID the ID of the request that is the subject of the notification.
+	 * @param creationDate the date the notification was created.
+	 * @return the new builder.
+	 */
+	public static Builder getRequestBuilder(
+			final UUID id,
+			final Type type,
+			final RequestID requestID,
+			final Instant creationDate) {
+		checkNotNull(type, "type");
+		if (Type.ADD_RESOURCE.equals(type)) {
+			throw new IllegalArgumentException(
+					"Resource addition notifications cannot be associated with a request");
+		}
+		checkNotNull(requestID, "requestID");
+		return new Builder(id, type, Optional.of(requestID), Optional.empty(),
+				Optional.empty(), Optional.empty(), Optional.empty(), creationDate);
+	}
+	
+	/** Get a builder for a notification regarding the addition of a resource to a group.
+	 * @param id the ID of the notification.
+	 * @param user the user that added the resource.
+	 * @param groupID the ID of the group to which the resource was added.
+	 * @param resourceType the type of the resource.
+	 * @param resourceID the ID of the resource.
+	 * @param creationDate the date the notification was created.
+	 * @return the new builder.
+	 */
+	public static Builder getAddResourceBuilder(
+			final UUID id,
+			final UserName user,
+			final GroupID groupID,
+			final ResourceType resourceType,
+			final ResourceID resourceID,
+			final Instant creationDate) {
+		checkNotNull(user, "user");
+		checkNotNull(groupID, "groupID");
+		checkNotNull(resourceType, "resourceType");
+		checkNotNull(resourceID, "resourceID");
+		return new Builder(id, Type.ADD_RESOURCE, Optional.empty(), Optional.of(user),
+				Optional.of(groupID), Optional.of(resourceType), Optional.of(resourceID),
+				creationDate);
+	}
+	
+	/** A builder for a {@link PendingNotification}.
+	 */
+	public static class Builder {
+	
+		private final UUID id;
+		private final Type type;
+		private final Optional<RequestID> requestID;
+		private final Optional<UserName> user;
+		private final Optional<GroupID> groupID;
+		private final Optional<ResourceType> resourceType;
+		private final Optional<ResourceID> resourceID;
+		private final Instant creationDate;
+		private final Set<UserName> targets = new HashSet<>();
+		private int attempts = 0;
+		
+		private Builder(
+				final UUID id,
+				final Type type,
+				final Optional<RequestID> requestID,
+				final Optional<UserName> user,
+				final Optional<GroupID> groupID,
+				final Optional<ResourceType> resourceType,
+				final Optional<ResourceID> resourceID,
+				final Instant creationDate) {
+			checkNotNull(id, "id");
+			checkNotNull(creationDate, "creationDate");
+			this.id = id;
+			this.type = type;
+			this.requestID = requestID;
+			this.user = user;
+			this.groupID = groupID;
+			this.resourceType = resourceType;
+			this.resourceID = resourceID;
+			this.creationDate = creationDate;
+		}
+		
+		/** Add users to be targeted by the notification.
+		 * @param targets the users.
+		 * @return this builder.
+		 */
+		public Builder withTargets(final Collection<UserName> targets) {
+			checkNoNullsInCollection(targets, "targets");
+			this.targets.addAll(targets);
+			return this;
+		}
+		
+		/** Set the number of times sending the notification has failed. The default is 0.
+		 * @param attempts the number of failed attempts.
+		 * @return this builder.
+		 */
+		public Builder withAttempts(final int attempts) {
+			if (attempts < 0) {
+				throw new IllegalArgumentException("attempts must be at least 0");
+			}
+			this.attempts = attempts;
+			return this;
+		}
+		
+		/** Build the notification.
+		 * @return the notification.
+		 */
+		public PendingNotification build() {
+			return new PendingNotification(id, type, targets, requestID, user, groupID,
+					resourceType, resourceID, attempts, creationDate);
+		}
+	}
+}
@@ -0,0 +1,148 @@
+package us.kbase.groups.core.resource;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheLoader;
+import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalResourceIDException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.ResourceHandlerException;
+
+/** A resource handler that wraps another resource handler and caches the results of
+ * {@link #getAdministratedResources(UserName)} per user for a short time.
+ * Concurrent requests for the same user that miss the cache result in a single call to the
+ * wrapped handler.
+ *
+ * All other methods are passed directly to the wrapped handler.
+ */
+public class CachingResourceHandler implements ResourceHandler {
+
+	/* The cache is only used for listing requests targeted at the user, and so stale data
+	 * only means a request may be missing from or erroneously included in the list for a
+	 * short time. Authorization checks always go directly to the wrapped handler.
+	 */
+	
+	private final ResourceHandler handler;
+	private final LoadingCache<UserName, Set<ResourceAdministrativeID>> adminCache;
+	
+	/** Create the handler.
+	 * @param handler the resource handler to wrap.
+	 * @param cacheSize the maximum number of users for which administrated resources will
+	 * be cached.
+	 * @param cacheExpirationSec the time, in seconds, after which cached administrated
+	 * resources expire.
+	 */
+	public CachingResourceHandler(
+			final ResourceHandler handler,
+			final int cacheSize,
+			final int cacheExpirationSec) {
+		this(handler, cacheSize, cacheExpirationSec, Ticker.systemTicker());
+	}
+	
+	// for tests
+	private CachingResourceHandler(
+			final ResourceHandler handler,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final Ticker ticker) {
+		checkNotNull(handler, "handler");
+		if (cacheSize < 1) {
+			throw new IllegalArgumentException("cacheSize must be at least 1");
+		}
+		if (cacheExpirationSec < 1) {
+			throw new IllegalArgumentException("cacheExpirationSec must be at least 1");
+		}
+		this.handler = handler;
+		adminCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.ticker(ticker)
+				.build(new CacheLoader<UserName, Set<ResourceAdministrativeID>>() {
+				
+					@Override
+					public Set<ResourceAdministrativeID> load(final UserName user)
+							throws ResourceHandlerException {
+						return Collections.unmodifiableSet(
+								handler.getAdministratedResources(user));
+					}
+				});
+	}
+	
+	@Override
+	public ResourceDescriptor getDescriptor(final ResourceID resource)
+			throws IllegalResourceIDException, ResourceHandlerException, NoSuchResourceException {
+		return handler.getDescriptor(resource);
+	}
+	
+	@Override
+	public boolean isAdministrator(final ResourceID resource, final UserName user)
+			throws IllegalResourceIDException, ResourceHandlerException, NoSuchResourceException {
+		return handler.isAdministrator(resource, user);
+	}
+	
+	@Override
+	public Set<UserName> getAdministrators(final ResourceID resource)
+			throws IllegalResourceIDException, NoSuchResourceException, ResourceHandlerException {
+		return handler.getAdministrators(resource);
+	}
+	
+	@Override
+	public Set<ResourceAdministrativeID> getAdministratedResources(final UserName user)
+			throws ResourceHandlerException {
+		checkNotNull(user, "user");
+		try {
+			return adminCache.get(user);
+		} catch (ExecutionException | UncheckedExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ResourceHandlerException) {
+				throw (ResourceHandlerException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else {
+				throw new RuntimeException("This should be impossible", cause);
+			}
+		}
+	}
+	
+	@Override
+	public ResourceInformationSet getResourceInformation(
+			final UserName user,
+			final Set<ResourceID> resources,
+			final boolean administratedResourcesOnly)
+			throws IllegalResourceIDException, ResourceHandlerException {
+		return handler.getResourceInformation(user, resources, administratedResourcesOnly);
+	}
+	
+	@Override
+	public void setReadPermission(final ResourceID resource, final UserName user)
+			throws IllegalResourceIDException, NoSuchResourceException, ResourceHandlerException {
+		checkNotNull(resource, "resource");
+		checkNotNull(user, "user");
+		handler.setReadPermission(resource, user);
+		// some handlers may grant more than read permissions, so be safe
+		adminCache.invalidate(user);
+	}
+	
+	@Override
+	public void evictCache(final ResourceID resource) throws IllegalResourceIDException {
+		handler.evictCache(resource);
+		// there's no way to tell which users administrate the resource
+		adminCache.invalidateAll();
+	}
+	
+	@Override
+	public void evictCache() {
+		handler.evictCache();
+		adminCache.invalidateAll();
+	}
+}
@@ -83,4 +83,21 @@ public interface ResourceHandler {
 	 */
 	void setReadPermission(ResourceID resource, UserName user)
 			throws IllegalResourceIDException, NoSuchResourceException, ResourceHandlerException;
+	
+	/** Remove any cached information about a resource from the handler. The default
+	 * implementation does nothing, and should be overridden by handlers that cache
+	 * information.
+	 * @param resource the resource for which cached information will be removed.
+	 * @throws IllegalResourceIDException if the resource ID is not in a legal format.
+	 */
+	default void evictCache(ResourceID resource) throws IllegalResourceIDException {
+		// nothing to evict
+	}
+	
+	/** Remove all cached information from the handler. The default implementation does
+	 * nothing, and should be overridden by handlers that cache information.
+	 */
+	default void evictCache() {
+		// nothing to evict
+	}
 }
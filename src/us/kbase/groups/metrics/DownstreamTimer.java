@@ -0,0 +1,194 @@
+package us.kbase.groups.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicLong;
+
+import us.kbase.groups.core.TaskWrapper;
+import us.kbase.groups.metrics.MetricsRegistry.Counter;
+import us.kbase.groups.metrics.MetricsRegistry.Histogram;
+
+/** Times calls to services the groups service depends on, such as the authentication
+ * service or the workspace. Call counts, failure counts, and latencies are recorded per
+ * dependency and operation in a {@link MetricsRegistry}.
+ *
+ * The timer also totals the time spent in downstream calls made by the current thread between
+ * calls to {@link #startRequest()} and {@link #endRequest()}, allowing the time a request spends
+ * waiting on dependencies to be logged. Tasks run on other threads on behalf of the request
+ * add to the same total if they are wrapped with {@link #wrap(Callable)} or
+ * {@link #transferRequest(Runnable)}.
+ */
+public class DownstreamTimer implements TaskWrapper {
+
+	private static final String DEPENDENCY = "dependency";
+	private static final String OPERATION = "operation";
+	private static final double NANOS_PER_SEC = 1_000_000_000.0;
+	
+	private final Counter calls;
+	private final Counter failures;
+	private final Histogram latency;
+	private final ThreadLocal<AtomicLong> requestNanos = new ThreadLocal<>();
+	
+	/** Create the timer.
+	 * @param registry the registry in which the metrics will be stored.
+	 */
+	public DownstreamTimer(final MetricsRegistry registry) {
+		checkNotNull(registry, "registry");
+		calls = registry.counter("groups_downstream_calls_total",
+				"Calls to downstream dependencies by dependency and operation.",
+				DEPENDENCY, OPERATION);
+		failures = registry.counter("groups_downstream_call_failures_total",
+				"Calls to downstream dependencies that threw an exception, by dependency " +
+						"and operation.",
+				DEPENDENCY, OPERATION);
+		latency = registry.histogram("groups_downstream_call_duration_seconds",
+				"Time taken by calls to downstream dependencies, in seconds.",
+				MetricsRegistry.DEFAULT_LATENCY_BUCKETS,
+				DEPENDENCY, OPERATION);
+	}
+	
+	/** Start totaling downstream time for a request handled by the current thread. Any
+	 * previous total for the thread is discarded.
+	 */
+	public void startRequest() {
+		requestNanos.set(new AtomicLong());
+	}
+	
+	/** Stop totaling downstream time for the current thread and return the total.
+	 * @return the total time, in nanoseconds, spent in downstream calls made for the request
+	 * since {@link #startRequest()} was called, or 0 if it was not called.
+	 */
+	public long endRequest() {
+		final AtomicLong total = requestNanos.get();
+		requestNanos.remove();
+		return total == null ? 0 : total.get();
+	}
+	
+	/** Continue totaling downstream time for the request handled by the current thread in a
+	 * task that will run on another thread. Downstream calls made while the task runs are
+	 * added to the request's total, and {@link #endRequest()} may be called in the task to
+	 * retrieve the total. The current thread stops totaling downstream time.
+	 * @param task the task.
+	 * @return a task that totals downstream time for the request while running the given
+	 * task.
+	 */
+	public Runnable transferRequest(final Runnable task) {
+		checkNotNull(task, "task");
+		final AtomicLong total = requestNanos.get();
+		requestNanos.remove();
+		return () -> {
+			final AtomicLong prev = requestNanos.get();
+			setTotal(total);
+			try {
+				task.run();
+			} finally {
+				setTotal(prev);
+			}
+		};
+	}
+	
+	/** Add the time spent in downstream calls made by a task to the total for the request
+	 * handled by the current thread. Unlike {@link #transferRequest(Runnable)}, the current
+	 * thread continues to total downstream time for the request, and the task may run
+	 * concurrently with the current thread or with other wrapped tasks.
+	 * @param task the task.
+	 * @return a task that adds to the request's total while running the given task.
+	 */
+	@Override
+	public <T> Callable<T> wrap(final Callable<T> task) {
+		checkNotNull(task, "task");
+		final AtomicLong total = requestNanos.get();
+		return () -> {
+			final AtomicLong prev = requestNanos.get();
+			setTotal(total);
+			try {
+				return task.call();
+			} finally {
+				setTotal(prev);
+			}
+		};
+	}
+	
+	// restore rather than remove, as the task may be run on the calling thread, e.g. if a pool
+	// rejects the task
+	private void setTotal(final AtomicLong total) {
+		if (total == null) {
+			requestNanos.remove();
+		} else {
+			requestNanos.set(total);
+		}
+	}
+	
+	/** Start timing a call.
+	 *
+	 * Typical usage:
+	 * <pre>
+	 * final Timing t = timer.start("workspace", "getDescriptor");
+	 * try {
+	 *     return t.success(handler.getDescriptor(resource));
+	 * } finally {
+	 *     t.stop();
+	 * }
+	 * </pre>
+	 * @param dependency the name of the dependency, e.g. auth.
+	 * @param operation the name of the operation, e.g. getUser.
+	 * @return the timing for the call.
+	 */
+	public Timing start(final String dependency, final String operation) {
+		checkNotNull(dependency, "dependency");
+		checkNotNull(operation, "operation");
+		return new Timing(dependency, operation);
+	}
+	
+	/** The timing of a single call. See {@link DownstreamTimer#start(String, String)}.
+	 */
+	public class Timing {
+	
+		private final String dependency;
+		private final String operation;
+		private final long start = System.nanoTime();
+		private boolean success = false;
+		private boolean stopped = false;
+		
+		private Timing(final String dependency, final String operation) {
+			this.dependency = dependency;
+			this.operation = operation;
+		}
+		
+		/** Mark the call as successful.
+		 * @param <T> the type of the call's result.
+		 * @param result the result of the call.
+		 * @return the result.
+		 */
+		public <T> T success(final T result) {
+			success = true;
+			return result;
+		}
+		
+		/** Mark a call with no result as successful. */
+		public void success() {
+			success = true;
+		}
+		
+		/** Stop timing the call and record the call. If the call was not marked as successful
+		 * it is recorded as a failure. Calling this method more than once has no effect.
+		 */
+		public void stop() {
+			if (stopped) {
+				return;
+			}
+			stopped = true;
+			final long elapsed = System.nanoTime() - start;
+			calls.inc(dependency, operation);
+			if (!success) {
+				failures.inc(dependency, operation);
+			}
+			latency.observe(elapsed / NANOS_PER_SEC, dependency, operation);
+			final AtomicLong total = requestNanos.get();
+			if (total != null) {
+				total.addAndGet(elapsed);
+			}
+		}
+	}
+}
@@ -0,0 +1,400 @@
+package us.kbase.groups.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+import static us.kbase.groups.util.Util.exceptOnEmpty;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/** A registry of service metrics. The metrics may be rendered in the Prometheus text
+ * exposition format, version 0.0.4.
+ *
+ * Metrics are keyed by a set of label values, e.g. the HTTP method and path of a request.
+ * Callers are responsible for keeping the number of distinct label values small - a new set of
+ * time series is created for each distinct set of values.
+ *
+ * All methods are thread safe. Recording a value does not block other threads recording values.
+ */
+public class MetricsRegistry {
+
+	/** The content type of the text returned by {@link #toPrometheusText()}. */
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	
+	/** The default buckets, in seconds, for latency histograms. */
+	public static final List<Double> DEFAULT_LATENCY_BUCKETS = Collections.unmodifiableList(
+			Arrays.asList(0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1.0, 2.5, 5.0, 10.0));
+	
+	private static final Pattern METRIC_NAME = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+	private static final Pattern LABEL_NAME = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+	
+	// sorted so the output is stable
+	private final Map<String, Metric<?>> metrics = new TreeMap<>();
+	
+	/** Create a counter, which is a value that only increases, e.g. a count of requests.
+	 * @param name the name of the counter. By convention, counter names end with "_total".
+	 * @param help a description of the counter.
+	 * @param labelNames the names of the labels for the counter.
+	 * @return the new counter.
+	 */
+	public Counter counter(final String name, final String help, final String... labelNames) {
+		final Counter c = new Counter(name, help, labelNames);
+		register(c);
+		return c;
+	}
+	
+	/** Create a counter function, which is a counter whose values are read from functions when
+	 * the metrics are rendered, e.g. to expose counts kept by a third party library.
+	 * Since the library's objects may be replaced when the service is rebuilt, if a counter
+	 * function with the same name and label names already exists it is returned, and the
+	 * functions may be replaced via {@link CounterFunction#set(LongSupplier, String...)}.
+	 * @param name the name of the counter. By convention, counter names end with "_total".
+	 * @param help a description of the counter.
+	 * @param labelNames the names of the labels for the counter.
+	 * @return the counter function.
+	 */
+	public synchronized CounterFunction counterFunction(
+			final String name,
+			final String help,
+			final String... labelNames) {
+		final CounterFunction c = new CounterFunction(name, help, labelNames);
+		final Metric<?> existing = metrics.get(name);
+		if (existing instanceof CounterFunction &&
+				existing.labelNames.equals(c.labelNames)) {
+			return (CounterFunction) existing;
+		}
+		register(c);
+		return c;
+	}
+	
+	/** Create a histogram, which counts observations, e.g. request durations, into buckets.
+	 * Quantiles, such as the 99th percentile request time, may be estimated from the buckets
+	 * by Prometheus' histogram_quantile() function.
+	 * @param name the name of the histogram.
+	 * @param help a description of the histogram.
+	 * @param buckets the upper bounds of the buckets, inclusive. An unbounded bucket is always
+	 * added.
+	 * @param labelNames the names of the labels for the histogram.
+	 * @return the new histogram.
+	 */
+	public Histogram histogram(
+			final String name,
+			final String help,
+			final List<Double> buckets,
+			final String... labelNames) {
+		final Histogram h = new Histogram(name, help, buckets, labelNames);
+		register(h);
+		return h;
+	}
+	
+	private synchronized void register(final Metric<?> metric) {
+		if (metrics.containsKey(metric.name)) {
+			throw new IllegalArgumentException("Duplicate metric name: " + metric.name);
+		}
+		metrics.put(metric.name, metric);
+	}
+	
+	/** Render the metrics in the Prometheus text format.
+	 * @return the metrics.
+	 */
+	public String toPrometheusText() {
+		final StringBuilder sb = new StringBuilder();
+		final List<Metric<?>> copy;
+		synchronized (this) {
+			copy = Arrays.asList(metrics.values().toArray(new Metric<?>[metrics.size()]));
+		}
+		for (final Metric<?> m: copy) {
+			sb.append("# HELP ").append(m.name).append(" ")
+					.append(m.help.replace("\\", "\\\\").replace("\n", "\\n")).append("\n");
+			sb.append("# TYPE ").append(m.name).append(" ").append(m.type).append("\n");
+			m.render(sb);
+		}
+		return sb.toString();
+	}
+	
+	private static abstract class Metric<T> {
+	
+		final String name;
+		private final String help;
+		private final String type;
+		final List<String> labelNames;
+		private final Map<List<String>, T> children = new ConcurrentHashMap<>();
+		
+		private Metric(
+				final String name,
+				final String help,
+				final String type,
+				final String[] labelNames) {
+			exceptOnEmpty(name, "name");
+			if (!METRIC_NAME.matcher(name).matches()) {
+				throw new IllegalArgumentException("Illegal metric name: " + name);
+			}
+			checkNotNull(help, "help");
+			checkNotNull(labelNames, "labelNames");
+			this.labelNames = Collections.unmodifiableList(Arrays.asList(labelNames));
+			checkNoNullsInCollection(this.labelNames, "labelNames");
+			for (final String l: this.labelNames) {
+				if (!LABEL_NAME.matcher(l).matches() || l.startsWith("__") || l.equals("le")) {
+					throw new IllegalArgumentException("Illegal label name: " + l);
+				}
+			}
+			this.name = name;
+			this.help = help;
+			this.type = type;
+		}
+		
+		abstract T newChild();
+		
+		T get(final String[] labelValues) {
+			return children.computeIfAbsent(toKey(labelValues), k -> newChild());
+		}
+		
+		// returns null if no values have been recorded for the labels
+		T peek(final String[] labelValues) {
+			return children.get(toKey(labelValues));
+		}
+		
+		private List<String> toKey(final String[] labelValues) {
+			checkNotNull(labelValues, "labelValues");
+			if (labelValues.length != labelNames.size()) {
+				throw new IllegalArgumentException(String.format(
+						"Metric %s requires %s label values", name, labelNames.size()));
+			}
+			final List<String> key = Arrays.asList(labelValues);
+			checkNoNullsInCollection(key, "labelValues");
+			return key;
+		}
+		
+		abstract void render(final StringBuilder sb);
+		
+		Map<List<String>, T> sortedChildren() {
+			final Map<List<String>, T> sorted = new TreeMap<>((l1, l2) -> {
+				for (int i = 0; i < l1.size(); i++) {
+					final int c = l1.get(i).compareTo(l2.get(i));
+					if (c != 0) {
+						return c;
+					}
+				}
+				return 0;
+			});
+			sorted.putAll(children);
+			return sorted;
+		}
+		
+		void appendLabels(
+				final StringBuilder sb,
+				final List<String> labelValues,
+				final String extraName,
+				final String extraValue) {
+			if (labelNames.isEmpty() && extraName == null) {
+				return;
+			}
+			sb.append("{");
+			for (int i = 0; i < labelNames.size(); i++) {
+				if (i > 0) {
+					sb.append(",");
+				}
+				appendLabel(sb, labelNames.get(i), labelValues.get(i));
+			}
+			if (extraName != null) {
+				if (!labelNames.isEmpty()) {
+					sb.append(",");
+				}
+				appendLabel(sb, extraName, extraValue);
+			}
+			sb.append("}");
+		}
+		
+		private void appendLabel(final StringBuilder sb, final String name, final String value) {
+			sb.append(name).append("=\"").append(value.replace("\\", "\\\\")
+					.replace("\"", "\\\"").replace("\n", "\\n")).append("\"");
+		}
+	}
+	
+	/** A counter. See {@link MetricsRegistry#counter(String, String, String...)}.
+	 */
+	public static class Counter extends Metric<LongAdder> {
+	
+		private Counter(final String name, final String help, final String[] labelNames) {
+			super(name, help, "counter", labelNames);
+		}
+		
+		@Override
+		LongAdder newChild() {
+			return new LongAdder();
+		}
+		
+		/** Increment the counter by one.
+		 * @param labelValues the label values, in the same order as the label names.
+		 */
+		public void inc(final String... labelValues) {
+			get(labelValues).increment();
+		}
+		
+		/** Get the value of the counter.
+		 * @param labelValues the label values, in the same order as the label names.
+		 * @return the counter value.
+		 */
+		public long getValue(final String... labelValues) {
+			final LongAdder v = peek(labelValues);
+			return v == null ? 0 : v.sum();
+		}
+		
+		@Override
+		void render(final StringBuilder sb) {
+			for (final Map.Entry<List<String>, LongAdder> e: sortedChildren().entrySet()) {
+				sb.append(name);
+				appendLabels(sb, e.getKey(), null, null);
+				sb.append(" ").append(e.getValue().sum()).append("\n");
+			}
+		}
+	}
+	
+	/** A counter function. See
+	 * {@link MetricsRegistry#counterFunction(String, String, String...)}.
+	 */
+	public static class CounterFunction extends Metric<AtomicReference<LongSupplier>> {
+	
+		private CounterFunction(final String name, final String help, final String[] labelNames) {
+			super(name, help, "counter", labelNames);
+		}
+		
+		@Override
+		AtomicReference<LongSupplier> newChild() {
+			return new AtomicReference<>(() -> 0);
+		}
+		
+		/** Set the function that supplies the counter value, replacing any previous function.
+		 * @param function the function. It must be thread safe and return quickly.
+		 * @param labelValues the label values, in the same order as the label names.
+		 */
+		public void set(final LongSupplier function, final String... labelValues) {
+			checkNotNull(function, "function");
+			get(labelValues).set(function);
+		}
+		
+		/** Get the value of the counter.
+		 * @param labelValues the label values, in the same order as the label names.
+		 * @return the counter value.
+		 */
+		public long getValue(final String... labelValues) {
+			final AtomicReference<LongSupplier> f = peek(labelValues);
+			return f == null ? 0 : f.get().getAsLong();
+		}
+		
+		@Override
+		void render(final StringBuilder sb) {
+			for (final Map.Entry<List<String>, AtomicReference<LongSupplier>> e:
+					sortedChildren().entrySet()) {
+				sb.append(name);
+				appendLabels(sb, e.getKey(), null, null);
+				sb.append(" ").append(e.getValue().get().getAsLong()).append("\n");
+			}
+		}
+	}
+	
+	/** A histogram. See {@link MetricsRegistry#histogram(String, String, List, String...)}.
+	 */
+	public static class Histogram extends Metric<Histogram.Buckets> {
+	
+		private final double[] upperBounds;
+		
+		private Histogram(
+				final String name,
+				final String help,
+				final List<Double> buckets,
+				final String[] labelNames) {
+			super(name, help, "histogram", labelNames);
+			checkNoNullsInCollection(buckets, "buckets");
+			if (buckets.isEmpty()) {
+				throw new IllegalArgumentException("At least one bucket is required");
+			}
+			upperBounds = new double[buckets.size()];
+			for (int i = 0; i < buckets.size(); i++) {
+				upperBounds[i] = buckets.get(i);
+				if (i > 0 && upperBounds[i] <= upperBounds[i - 1]) {
+					throw new IllegalArgumentException("Buckets must be in increasing order");
+				}
+			}
+		}
+		
+		// the count in each bucket is not cumulative here; it is summed when rendered
+		private static class Buckets {
+		
+			private final LongAdder[] counts;
+			private final DoubleAdder sum = new DoubleAdder();
+			
+			private Buckets(final int size) {
+				// the last bucket is the +Inf bucket
+				counts = new LongAdder[size + 1];
+				for (int i = 0; i < counts.length; i++) {
+					counts[i] = new LongAdder();
+				}
+			}
+		}
+		
+		@Override
+		Buckets newChild() {
+			return new Buckets(upperBounds.length);
+		}
+		
+		/** Record an observation.
+		 * @param value the observed value. For latencies, this should be in seconds.
+		 * @param labelValues the label values, in the same order as the label names.
+		 */
+		public void observe(final double value, final String... labelValues) {
+			final Buckets b = get(labelValues);
+			int i = 0;
+			while (i < upperBounds.length && value > upperBounds[i]) {
+				i++;
+			}
+			b.counts[i].increment();
+			b.sum.add(value);
+		}
+		
+		/** Get the number of observations recorded.
+		 * @param labelValues the label values, in the same order as the label names.
+		 * @return the number of observations.
+		 */
+		public long getCount(final String... labelValues) {
+			final Buckets b = peek(labelValues);
+			if (b == null) {
+				return 0;
+			}
+			long count = 0;
+			for (final LongAdder c: b.counts) {
+				count += c.sum();
+			}
+			return count;
+		}
+		
+		@Override
+		void render(final StringBuilder sb) {
+			for (final Map.Entry<List<String>, Buckets> e: sortedChildren().entrySet()) {
+				long cumulative = 0;
+				for (int i = 0; i < e.getValue().counts.length; i++) {
+					cumulative += e.getValue().counts[i].sum();
+					sb.append(name).append("_bucket");
+					appendLabels(sb, e.getKey(), "le", i < upperBounds.length ?
+							Double.toString(upperBounds[i]) : "+Inf");
+					sb.append(" ").append(cumulative).append("\n");
+				}
+				sb.append(name).append("_sum");
+				appendLabels(sb, e.getKey(), null, null);
+				sb.append(" ").append(e.getValue().sum.sum()).append("\n");
+				sb.append(name).append("_count");
+				appendLabels(sb, e.getKey(), null, null);
+				sb.append(" ").append(cumulative).append("\n");
+			}
+		}
+	}
+}
@@ -0,0 +1,237 @@
+package us.kbase.groups.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.collect.ImmutableMap;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import us.kbase.groups.metrics.MetricsRegistry.Counter;
+import us.kbase.groups.metrics.MetricsRegistry.Histogram;
+import us.kbase.groups.service.SLF4JAutoLogger;
+
+/** A MongoDB command listener that records command latencies and failures per collection and
+ * command in a {@link MetricsRegistry} and logs commands that take longer than a threshold.
+ *
+ * Slow commands are logged with the shape of the command's query - the query with all values
+ * replaced by ? - so that missing indexes can be identified without logging user data.
+ *
+ * The listener must be registered with the MongoDB client via
+ * {@link com.mongodb.MongoClientOptions.Builder#addCommandListener(CommandListener)}.
+ */
+public class MongoCommandMonitor implements CommandListener {
+
+	/** The collection recorded for commands on collections not provided to the constructor. */
+	public static final String OTHER_COLLECTION = "other";
+	/** The collection recorded for commands that do not target a collection. */
+	public static final String NO_COLLECTION = "none";
+	
+	private static final String COLLECTION = "collection";
+	private static final String COMMAND = "command";
+	private static final double NANOS_PER_SEC = 1_000_000_000.0;
+	
+	// the field containing the query for commands with a single query
+	private static final Map<String, String> QUERY_FIELDS =
+			ImmutableMap.<String, String>builder()
+			.put("find", "filter")
+			.put("count", "query")
+			.put("distinct", "query")
+			.put("findAndModify", "query")
+			.put("findandmodify", "query")
+			.put("aggregate", "pipeline")
+			.build();
+	
+	// the field containing the list of statements, each with a query in the q field
+	private static final Map<String, String> STATEMENT_FIELDS = ImmutableMap.of(
+			"update", "updates",
+			"delete", "deletes");
+	
+	private final SLF4JAutoLogger logger;
+	private final Set<String> collections;
+	private final long slowCommandThresholdNanos;
+	private final Histogram latency;
+	private final Counter failures;
+	private final Counter slow;
+	private final Map<Integer, StartedCommand> inFlight = new ConcurrentHashMap<>();
+	
+	/** Create the monitor.
+	 * @param registry the registry in which the metrics will be stored.
+	 * @param logger the logger from which the call ID of the current request will be retrieved.
+	 * @param collections the collections for which metrics will be recorded separately.
+	 * Commands on other collections are recorded as {@link #OTHER_COLLECTION}.
+	 * @param slowCommandThresholdMS commands that take at least this long in milliseconds are
+	 * logged.
+	 */
+	public MongoCommandMonitor(
+			final MetricsRegistry registry,
+			final SLF4JAutoLogger logger,
+			final Set<String> collections,
+			final long slowCommandThresholdMS) {
+		checkNotNull(registry, "registry");
+		checkNotNull(logger, "logger");
+		checkNoNullsInCollection(collections, "collections");
+		if (slowCommandThresholdMS < 0) {
+			throw new IllegalArgumentException("slowCommandThresholdMS must be at least 0");
+		}
+		this.logger = logger;
+		this.collections = Collections.unmodifiableSet(new HashSet<>(collections));
+		this.slowCommandThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowCommandThresholdMS);
+		latency = registry.histogram("groups_mongo_command_duration_seconds",
+				"Time taken by MongoDB commands by collection and command, in seconds.",
+				MetricsRegistry.DEFAULT_LATENCY_BUCKETS,
+				COLLECTION, COMMAND);
+		failures = registry.counter("groups_mongo_command_failures_total",
+				"MongoDB commands that failed, by collection and command.",
+				COLLECTION, COMMAND);
+		slow = registry.counter("groups_mongo_slow_commands_total",
+				"MongoDB commands that exceeded the slow command threshold, by collection " +
+						"and command.",
+				COLLECTION, COMMAND);
+	}
+	
+	private static class StartedCommand {
+	
+		private final String collection;
+		private final String filterShape;
+		private final String callID;
+		
+		private StartedCommand(
+				final String collection,
+				final String filterShape,
+				final String callID) {
+			this.collection = collection;
+			this.filterShape = filterShape;
+			this.callID = callID;
+		}
+	}
+	
+	@Override
+	public void commandStarted(final CommandStartedEvent event) {
+		// the command document is only guaranteed to be valid during this method, so extract
+		// everything needed now
+		final BsonDocument command = event.getCommand();
+		final String name = event.getCommandName();
+		inFlight.put(event.getRequestId(), new StartedCommand(
+				getCollection(command, name), getFilterShape(command, name), logger.getCallID()));
+	}
+	
+	@Override
+	public void commandSucceeded(final CommandSucceededEvent event) {
+		record(event.getRequestId(), event.getCommandName(),
+				event.getElapsedTime(TimeUnit.NANOSECONDS), false);
+	}
+	
+	@Override
+	public void commandFailed(final CommandFailedEvent event) {
+		record(event.getRequestId(), event.getCommandName(),
+				event.getElapsedTime(TimeUnit.NANOSECONDS), true);
+	}
+	
+	private void record(
+			final int requestID,
+			final String commandName,
+			final long elapsedNanos,
+			final boolean failed) {
+		final StartedCommand sc = inFlight.remove(requestID);
+		final String collection = sc == null ? NO_COLLECTION : sc.collection;
+		latency.observe(elapsedNanos / NANOS_PER_SEC, collection, commandName);
+		if (failed) {
+			failures.inc(collection, commandName);
+		}
+		if (elapsedNanos >= slowCommandThresholdNanos) {
+			slow.inc(collection, commandName);
+			LoggerFactory.getLogger(getClass()).warn(
+					"Slow MongoDB command: {} on collection {} took {} ms{}. Filter: {} " +
+					"Call ID: {}",
+					commandName,
+					collection,
+					TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+					failed ? " and failed" : "",
+					sc == null ? null : sc.filterShape,
+					sc == null ? null : sc.callID);
+		}
+	}
+	
+	private String getCollection(final BsonDocument command, final String commandName) {
+		final BsonValue target = command.get(commandName);
+		final String col;
+		if (target != null && target.isString()) {
+			col = target.asString().getValue();
+		} else if (command.containsKey(COLLECTION) && command.get(COLLECTION).isString()) {
+			// getMore
+			col = command.getString(COLLECTION).getValue();
+		} else {
+			return NO_COLLECTION;
+		}
+		// keep the number of time series bounded
+		return collections.contains(col) ? col : OTHER_COLLECTION;
+	}
+	
+	/** Get the shape of the query in a MongoDB command, where all the values in the query are
+	 * replaced with ?. Arrays of values with the same shape are collapsed to a single entry.
+	 * @param command the command.
+	 * @param commandName the name of the command.
+	 * @return the shape of the command's query, or null if the command has no query.
+	 */
+	public static String getFilterShape(final BsonDocument command, final String commandName) {
+		checkNotNull(command, "command");
+		checkNotNull(commandName, "commandName");
+		if (QUERY_FIELDS.containsKey(commandName)) {
+			final BsonValue query = command.get(QUERY_FIELDS.get(commandName));
+			return query == null ? null : toShape(query);
+		}
+		if (STATEMENT_FIELDS.containsKey(commandName)) {
+			final BsonValue statements = command.get(STATEMENT_FIELDS.get(commandName));
+			if (statements == null || !statements.isArray()) {
+				return null;
+			}
+			final BsonArray queries = new BsonArray();
+			for (final BsonValue s: statements.asArray()) {
+				if (s.isDocument() && s.asDocument().containsKey("q")) {
+					queries.add(s.asDocument().get("q"));
+				}
+			}
+			return toShape(queries);
+		}
+		return null;
+	}
+	
+	private static String toShape(final BsonValue value) {
+		if (value.isDocument()) {
+			final StringBuilder sb = new StringBuilder("{");
+			boolean first = true;
+			for (final Map.Entry<String, BsonValue> e: value.asDocument().entrySet()) {
+				if (!first) {
+					sb.append(", ");
+				}
+				first = false;
+				sb.append(e.getKey()).append(": ").append(toShape(e.getValue()));
+			}
+			return sb.append("}").toString();
+		} else if (value.isArray()) {
+			final Set<String> shapes = new LinkedHashSet<>();
+			for (final BsonValue v: value.asArray()) {
+				shapes.add(toShape(v));
+			}
+			return "[" + String.join(", ", shapes) + "]";
+		} else {
+			return "?";
+		}
+	}
+}
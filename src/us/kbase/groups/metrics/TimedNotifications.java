@@ -0,0 +1,102 @@
+package us.kbase.groups.metrics;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Collection;
+import java.util.Set;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.notifications.Notifications;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.metrics.DownstreamTimer.Timing;
+
+/** A notifier that wraps another notifier and times all calls to the wrapped notifier
+ * with a {@link DownstreamTimer}.
+ */
+public class TimedNotifications implements Notifications {
+	
+	private final Notifications notifier;
+	private final DownstreamTimer timer;
+	private final String dependency;
+	
+	/** Create the notifier.
+	 * @param notifier the notifier to wrap.
+	 * @param timer the timer with which to time calls.
+	 * @param dependency the name of the dependency to record, e.g. notifier.
+	 */
+	public TimedNotifications(
+			final Notifications notifier,
+			final DownstreamTimer timer,
+			final String dependency) {
+		checkNotNull(notifier, "notifier");
+		checkNotNull(timer, "timer");
+		checkNotNull(dependency, "dependency");
+		this.notifier = notifier;
+		this.timer = timer;
+		this.dependency = dependency;
+	}
+	
+	@Override
+	public void notify(final Collection<UserName> targets, final GroupRequest request) {
+		final Timing t = timer.start(dependency, "notify");
+		try {
+			notifier.notify(targets, request);
+			t.success();
+		} finally {
+			t.stop();
+		}
+	}
+	
+	@Override
+	public void cancel(final RequestID requestID) {
+		final Timing t = timer.start(dependency, "cancel");
+		try {
+			notifier.cancel(requestID);
+			t.success();
+		} finally {
+			t.stop();
+		}
+	}
+	
+	@Override
+	public void deny(final Collection<UserName> targets, final GroupRequest request) {
+		final Timing t = timer.start(dependency, "deny");
+		try {
+			notifier.deny(targets, request);
+			t.success();
+		} finally {
+			t.stop();
+		}
+	}
+	
+	@Override
+	public void accept(final Collection<UserName> targets, final GroupRequest request) {
+		final Timing t = timer.start(dependency, "accept");
+		try {
+			notifier.accept(targets, request);
+			t.success();
+		} finally {
+			t.stop();
+		}
+	}
+	
+	@Override
+	public void addResource(
+			final UserName user,
+			final Set<UserName> targets,
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource) {
+		final Timing t = timer.start(dependency, "addResource");
+		try {
+			notifier.addResource(user, targets, groupID, type, resource);
+			t.success();
+		} finally {
+			t.stop();
+		}
+	}
+}
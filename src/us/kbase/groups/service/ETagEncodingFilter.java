@@ -0,0 +1,83 @@
+package us.kbase.groups.service;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import javax.annotation.Priority;
+import javax.ws.rs.Priorities;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MultivaluedMap;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.ext.WriterInterceptor;
+import javax.ws.rs.ext.WriterInterceptorContext;
+
+/** Makes the entity tags of gzip encoded responses differ from the tags of unencoded
+ * responses, since a strong entity tag identifies a single representation of a resource and
+ * caches may otherwise serve a compressed body to a client that cannot decode it.
+ *
+ * The API resources compute tags for the unencoded representation. This filter appends
+ * "-gzip" to the tag of any response that is gzip encoded, and removes the suffix from the
+ * tags in If-None-Match request headers so that the resources can compare the client's tags
+ * to the unencoded tag. If a conditional request that sent an encoded tag results in a 304
+ * response, the encoded tag is returned.
+ *
+ * The filter must run before the gzip encoder, which commits the response headers when it
+ * writes the gzip header.
+ */
+@Priority(Priorities.HEADER_DECORATOR)
+public class ETagEncodingFilter implements
+		ContainerRequestFilter, ContainerResponseFilter, WriterInterceptor {
+	
+	/** The suffix appended to the entity tags of gzip encoded responses. */
+	public static final String GZIP_SUFFIX = "-gzip";
+	
+	private static final String GZIP = "gzip";
+	private static final String ENCODED_PROP = ETagEncodingFilter.class.getName() + ".encoded";
+	private static final Pattern GZIP_TAG_END = Pattern.compile(
+			Pattern.quote(GZIP_SUFFIX + "\""));
+	
+	@Override
+	public void filter(final ContainerRequestContext reqcon) throws IOException {
+		final String ifNoneMatch = reqcon.getHeaderString(HttpHeaders.IF_NONE_MATCH);
+		if (ifNoneMatch != null && GZIP_TAG_END.matcher(ifNoneMatch).find()) {
+			reqcon.getHeaders().putSingle(HttpHeaders.IF_NONE_MATCH,
+					GZIP_TAG_END.matcher(ifNoneMatch).replaceAll("\""));
+			reqcon.setProperty(ENCODED_PROP, true);
+		}
+	}
+	
+	@Override
+	public void filter(
+			final ContainerRequestContext reqcon,
+			final ContainerResponseContext rescon)
+			throws IOException {
+		// not modified responses have no entity and so are never encoded
+		if (rescon.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode() &&
+				reqcon.getProperty(ENCODED_PROP) != null) {
+			encodeTag(rescon.getHeaders());
+		}
+	}
+	
+	@Override
+	public void aroundWriteTo(final WriterInterceptorContext context) throws IOException {
+		// the encoding filter has set the content encoding by the time the entity is written
+		if (GZIP.equals(context.getHeaders().getFirst(HttpHeaders.CONTENT_ENCODING))) {
+			encodeTag(context.getHeaders());
+		}
+		context.proceed();
+	}
+	
+	private void encodeTag(final MultivaluedMap<String, Object> headers) {
+		final Object tag = headers.getFirst(HttpHeaders.ETAG);
+		if (tag instanceof EntityTag) {
+			final EntityTag t = (EntityTag) tag;
+			headers.putSingle(HttpHeaders.ETAG,
+					new EntityTag(t.getValue() + GZIP_SUFFIX, t.isWeak()));
+		}
+	}
+}
@@ -1,7 +1,9 @@
 package us.kbase.groups.service;
 
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
+import org.glassfish.jersey.message.GZipEncoder;
 import org.glassfish.jersey.server.ResourceConfig;
+import org.glassfish.jersey.server.filter.EncodingFilter;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.MongoClient;
@@ -12,15 +14,29 @@ import us.kbase.groups.build.GroupsBuilder;
 import us.kbase.groups.config.GroupsConfig;
 import us.kbase.groups.config.GroupsConfigurationException;
 import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.notifications.NotificationDispatcher;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.MetricsRegistry;
 import us.kbase.groups.service.exceptions.ExceptionHandler;
 import us.kbase.groups.storage.exceptions.StorageInitException;
+import us.kbase.groups.storage.memory.InMemoryGroupsStorage;
+import us.kbase.groups.storage.mongo.MongoChangeStreamWatcher;
 
 public class GroupsService extends ResourceConfig {
 	
 	//TODO TEST
 	//TODO JAVADOC
 	
+	// the metrics must outlive rebuilds of the app, since the mongo client records metrics
 	private static MongoClient mc;
+	// in memory storage must outlive rebuilds of the app or the data is lost
+	private static InMemoryGroupsStorage memStorage;
+	private static MetricsRegistry metrics;
+	private static DownstreamTimer downstreamTimer;
+	private static RequestMetrics requestMetrics;
+	private static NotificationDispatcher dispatcher;
+	private static MongoChangeStreamWatcher changeWatcher;
+	private static HandlerExecutor handlerExecutor;
 	@SuppressWarnings("unused")
 	private final SLF4JAutoLogger logger; //keep a reference to prevent GC
 	
@@ -49,30 +65,82 @@ public class GroupsService extends ResourceConfig {
 			final GroupsConfig c)
 			throws StorageInitException, GroupsConfigurationException {
 		final GroupsBuilder gb;
+		final HandlerExecutor handlers;
+		final MetricsRegistry metricsReg;
+		final RequestMetrics reqMetrics;
+		final DownstreamTimer timer;
 		synchronized(this) {
-			if (mc == null) {
+			if (mc == null && memStorage == null) { // first build
 				gb = new GroupsBuilder(c);
 				mc = gb.getMongoClient();
+				if (c.isInMemoryStorage()) {
+					memStorage = (InMemoryGroupsStorage) gb.getStorage();
+				}
+				metrics = gb.getMetrics();
+				downstreamTimer = gb.getDownstreamTimer();
+				requestMetrics = new RequestMetrics(metrics);
+			} else if (mc != null) {
+				gb = new GroupsBuilder(c, mc, metrics, downstreamTimer);
 			} else {
-				gb = new GroupsBuilder(c, mc);
+				gb = new GroupsBuilder(c, memStorage, metrics, downstreamTimer);
 			}
+			metricsReg = metrics;
+			reqMetrics = requestMetrics;
+			timer = downstreamTimer;
+			if (dispatcher != null) {
+				dispatcher.stop();
+			}
+			dispatcher = gb.getNotificationDispatcher();
+			if (changeWatcher != null) {
+				changeWatcher.stop();
+			}
+			changeWatcher = gb.getChangeStreamWatcher(); // null if the cache is disabled
+			if (handlerExecutor != null) {
+				handlerExecutor.shutdown();
+			}
+			handlerExecutor = new HandlerExecutor(
+					c.getHandlerThreads(), c.getHandlerQueueSize(), c.getHandlerTimeoutSec(),
+					c.getLogger(), timer);
+			handlers = handlerExecutor;
 		}
 		packages("us.kbase.groups.service.api");
 		register(JacksonFeature.class);
 		register(LoggingFilter.class);
+		register(MetricsFilter.class);
 		register(ExceptionHandler.class);
+		// compress responses for clients that accept gzip encoding
+		EncodingFilter.enableFor(this, GZipEncoder.class);
+		register(ETagEncodingFilter.class);
 		final Groups g = gb.getGroups();
 		register(new AbstractBinder() {
 			@Override
 			protected void configure() {
 				bind(c).to(GroupsConfig.class);
 				bind(g).to(Groups.class);
+				bind(metricsReg).to(MetricsRegistry.class);
+				bind(reqMetrics).to(RequestMetrics.class);
+				bind(timer).to(DownstreamTimer.class);
 				bind(c.getLogger()).to(SLF4JAutoLogger.class);
+				bind(handlers).to(HandlerExecutor.class);
 			}
 		});
 	}
 	
 	static void shutdown() {
-		mc.close();
+		if (dispatcher != null) {
+			dispatcher.stop();
+		}
+		if (changeWatcher != null) {
+			changeWatcher.stop();
+		}
+		if (handlerExecutor != null) {
+			handlerExecutor.shutdown();
+		}
+		if (mc != null) { // null when using in memory storage
+			mc.close();
+		}
+		if (memStorage != null) {
+			memStorage.stopExpirationAgent();
+		}
 	}
 }
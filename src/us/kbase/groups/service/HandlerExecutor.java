@@ -0,0 +1,117 @@
+package us.kbase.groups.service;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import us.kbase.groups.metrics.DownstreamTimer;
+
+/** Runs request handlers that block on downstream services, such as the workspace or catalog,
+ * on a dedicated pool of threads, so that the server's threads remain available for
+ * requests that don't block.
+ *
+ * The call information set by {@link LoggingFilter} and the request's downstream time
+ * total are transferred to the pool thread, so logging and metrics work as for a synchronous
+ * request.
+ *
+ * The number of requests waiting for a thread is bounded. When the pool and queue are full,
+ * further requests fail with a 503 response. Requests that are not complete within the
+ * timeout also fail with a 503 response, although the handler continues to run.
+ */
+public class HandlerExecutor {
+
+	/** A request handler. */
+	public interface Handler {
+	
+		/** Handle the request.
+		 * @return the response entity.
+		 * @throws Exception if an exception occurs. The exception is mapped to an error
+		 * response as for a synchronous request.
+		 */
+		Object handle() throws Exception;
+	}
+	
+	private final ExecutorService executor;
+	private final int timeoutSec;
+	private final SLF4JAutoLogger logger;
+	private final DownstreamTimer timer;
+	
+	/** Create the executor.
+	 * @param threads the number of threads in the pool.
+	 * @param queueSize the maximum number of handlers waiting for a thread.
+	 * @param timeoutSec the time in seconds after which a request times out.
+	 * @param logger the service logger.
+	 * @param timer the timer for calls to downstream dependencies.
+	 */
+	public HandlerExecutor(
+			final int threads,
+			final int queueSize,
+			final int timeoutSec,
+			final SLF4JAutoLogger logger,
+			final DownstreamTimer timer) {
+		checkNotNull(logger, "logger");
+		checkNotNull(timer, "timer");
+		if (threads < 1) {
+			throw new IllegalArgumentException("threads must be at least 1");
+		}
+		if (queueSize < 1) {
+			throw new IllegalArgumentException("queueSize must be at least 1");
+		}
+		if (timeoutSec < 1) {
+			throw new IllegalArgumentException("timeoutSec must be at least 1");
+		}
+		this.timeoutSec = timeoutSec;
+		this.logger = logger;
+		this.timer = timer;
+		// same as Executors.newFixedThreadPool other than the bounded queue
+		executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(queueSize), new ThreadFactoryBuilder()
+						.setDaemon(true).setNameFormat("request-handler-%d").build());
+	}
+	
+	/** Run a request handler on the pool and resume the response with the result. Must be
+	 * called on the thread handling the request.
+	 * @param response the suspended response for the request.
+	 * @param handler the handler.
+	 */
+	public void run(final AsyncResponse response, final Handler handler) {
+		checkNotNull(response, "response");
+		checkNotNull(handler, "handler");
+		final String method = logger.getCallMethod();
+		final String id = logger.getCallID();
+		final String ip = logger.getCallIPAddress();
+		response.setTimeout(timeoutSec, TimeUnit.SECONDS);
+		try {
+			executor.execute(timer.transferRequest(() -> {
+				logger.setCallInfo(method, id, ip);
+				try {
+					response.resume(handler.handle());
+				} catch (Throwable e) {
+					response.resume(e);
+				} finally {
+					// don't leak the call info into the next request run on the thread
+					logger.setCallInfo(null, null, null);
+				}
+			}));
+		} catch (RejectedExecutionException e) {
+			// the pool and queue are full, or the executor was shut down
+			response.resume(new ServiceUnavailableException(
+					"The server is too busy to handle the request"));
+		}
+	}
+	
+	/** Stop accepting handlers. Handlers that are already running or queued are completed.
+	 */
+	public void shutdown() {
+		executor.shutdown();
+	}
+}
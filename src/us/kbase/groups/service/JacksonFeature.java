@@ -18,6 +18,14 @@ public final class JacksonFeature implements Feature {
 		MAPPER.configure(SerializationFeature.INDENT_OUTPUT, true);
 	}
 	
+	/** Get the mapper used by the service to serialize JSON. Don't alter the mapper's
+	 * configuration.
+	 * @return the mapper.
+	 */
+	public static ObjectMapper getMapper() {
+		return MAPPER;
+	}
+	
 	@Override
 	public boolean configure(final FeatureContext context) {
 		final JacksonJaxbJsonProvider provider = new JacksonJaxbJsonProvider(
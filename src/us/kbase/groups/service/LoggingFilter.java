@@ -5,6 +5,7 @@ import static us.kbase.groups.util.Util.isNullOrEmpty;
 import java.io.IOException;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
@@ -16,10 +17,11 @@ import javax.ws.rs.container.ContainerResponseFilter;
 import org.slf4j.LoggerFactory;
 
 import us.kbase.groups.config.GroupsConfig;
+import us.kbase.groups.metrics.DownstreamTimer;
 
 /** The logger for the service. Sets up the logging info (e.g. the method, a random call ID,
- * and the IP address) for each request and logs the method, path, status code, and user agent on
- * a response.
+ * and the IP address) for each request and logs the method, path, status code, time spent in
+ * calls to downstream dependencies, and user agent on a response.
  * @author gaprice@lbl.gov
  *
  */
@@ -32,20 +34,24 @@ public class LoggingFilter implements ContainerRequestFilter, ContainerResponseF
 	private final HttpServletRequest servletRequest;
 	private final SLF4JAutoLogger logger;
 	private final boolean ignoreIPheaders;
+	private final DownstreamTimer timer;
 	
 	/** Create the logging filter. This is normally done by the Jersey framework.
 	 * @param servletRequest the request to be logged.
 	 * @param logger the logger to receive the call information.
 	 * @param cfg the service configuration.
+	 * @param timer the timer for calls to downstream dependencies.
 	 */
 	@Inject
 	public LoggingFilter(
 			final HttpServletRequest servletRequest,
 			final SLF4JAutoLogger logger,
-			final GroupsConfig cfg) {
+			final GroupsConfig cfg,
+			final DownstreamTimer timer) {
 		this.servletRequest = servletRequest;
 		this.logger = logger;
 		ignoreIPheaders = cfg.isIgnoreIPHeaders();
+		this.timer = timer;
 	}
 	
 	@Override
@@ -54,6 +60,7 @@ public class LoggingFilter implements ContainerRequestFilter, ContainerResponseF
 				reqcon.getMethod(),
 				(String.format("%.16f", Math.random())).substring(2),
 				getIpAddress(reqcon, ignoreIPheaders));
+		timer.startRequest();
 		
 		logHeaders(reqcon, ignoreIPheaders);
 	}
@@ -105,10 +112,11 @@ public class LoggingFilter implements ContainerRequestFilter, ContainerResponseF
 			final ContainerRequestContext reqcon,
 			final ContainerResponseContext rescon)
 			throws IOException {
-		logInfo("{} {} {} {}",
+		logInfo("{} {} {} downstream={}ms {}",
 				reqcon.getMethod(),
 				reqcon.getUriInfo().getAbsolutePath(),
 				rescon.getStatus(),
+				TimeUnit.NANOSECONDS.toMillis(timer.endRequest()),
 				reqcon.getHeaderString(USER_AGENT));
 	}
 
@@ -0,0 +1,100 @@
+package us.kbase.groups.service;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import javax.inject.Inject;
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.container.ContainerResponseFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.UriInfo;
+
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.uri.UriTemplate;
+
+import us.kbase.groups.core.exceptions.ErrorType;
+import us.kbase.groups.service.exceptions.ErrorMessage;
+
+/** Records request metrics in {@link RequestMetrics}. The filter runs prior to resource
+ * matching so that the timer starts as early as possible and requests that do not match an
+ * endpoint are also recorded.
+ */
+@PreMatching
+public class MetricsFilter implements ContainerRequestFilter, ContainerResponseFilter {
+
+	private static final String START_PROP = MetricsFilter.class.getName() + ".start";
+	
+	private final RequestMetrics metrics;
+	
+	/** Create the filter. This is normally done by the Jersey framework.
+	 * @param metrics the metrics in which to record requests.
+	 */
+	@Inject
+	public MetricsFilter(final RequestMetrics metrics) {
+		this.metrics = metrics;
+	}
+	
+	@Override
+	public void filter(final ContainerRequestContext reqcon) throws IOException {
+		reqcon.setProperty(START_PROP, System.nanoTime());
+	}
+	
+	@Override
+	public void filter(
+			final ContainerRequestContext reqcon,
+			final ContainerResponseContext rescon)
+			throws IOException {
+		final Object start = reqcon.getProperty(START_PROP);
+		if (start == null) {
+			// the request filter was never run, e.g. an exception in a previous filter
+			return;
+		}
+		metrics.record(
+				reqcon.getMethod(),
+				getRoute(reqcon.getUriInfo()),
+				rescon.getStatus(),
+				getErrorType(rescon.getEntity()),
+				System.nanoTime() - (long) start);
+	}
+	
+	private String getRoute(final UriInfo uriInfo) {
+		if (!(uriInfo instanceof ExtendedUriInfo)) {
+			return RequestMetrics.UNMATCHED_ROUTE;
+		}
+		// the templates are ordered from the last matched to the first matched
+		final List<UriTemplate> templates = ((ExtendedUriInfo) uriInfo).getMatchedTemplates();
+		if (templates == null || templates.isEmpty()) {
+			return RequestMetrics.UNMATCHED_ROUTE;
+		}
+		final StringBuilder route = new StringBuilder();
+		for (int i = templates.size() - 1; i >= 0; i--) {
+			final String t = templates.get(i).getTemplate();
+			if (!t.startsWith("/")) {
+				route.append("/");
+			}
+			route.append(t);
+		}
+		final String r = route.toString().replaceAll("/+", "/");
+		return r.length() > 1 && r.endsWith("/") ? r.substring(0, r.length() - 1) : r;
+	}
+	
+	private Optional<ErrorType> getErrorType(final Object entity) {
+		// see ExceptionHandler
+		if (entity instanceof Map) {
+			final Object err = ((Map<?, ?>) entity).get(Fields.ERROR);
+			if (err instanceof ErrorMessage && ((ErrorMessage) err).getAppcode() != null) {
+				final int code = ((ErrorMessage) err).getAppcode();
+				for (final ErrorType et: ErrorType.values()) {
+					if (et.getErrorCode() == code) {
+						return Optional.of(et);
+					}
+				}
+			}
+		}
+		return Optional.empty();
+	}
+}
@@ -0,0 +1,75 @@
+package us.kbase.groups.service;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Optional;
+
+import us.kbase.groups.core.exceptions.ErrorType;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.metrics.MetricsRegistry.Counter;
+import us.kbase.groups.metrics.MetricsRegistry.Histogram;
+
+/** Records per route request counts, error counts, and latencies for the service in a
+ * {@link MetricsRegistry}.
+ *
+ * Routes are the templated paths of the endpoints, e.g. /group/{groupid}, rather than the
+ * request paths, so that the number of time series is bounded.
+ */
+public class RequestMetrics {
+
+	/** The route recorded for requests that do not match any endpoint. */
+	public static final String UNMATCHED_ROUTE = "UNMATCHED";
+	/** The error recorded for errors that have no {@link ErrorType}. */
+	public static final String NO_ERROR_TYPE = "NONE";
+	
+	private static final String METHOD = "method";
+	private static final String ROUTE = "route";
+	
+	private static final double NANOS_PER_SEC = 1_000_000_000.0;
+	
+	private final Counter requests;
+	private final Counter errors;
+	private final Histogram latency;
+	
+	/** Create the request metrics.
+	 * @param registry the registry in which the metrics will be stored.
+	 */
+	public RequestMetrics(final MetricsRegistry registry) {
+		checkNotNull(registry, "registry");
+		requests = registry.counter("groups_http_requests_total",
+				"Requests by method, route, and HTTP status code.",
+				METHOD, ROUTE, "status");
+		errors = registry.counter("groups_http_request_errors_total",
+				"Requests that resulted in an error, by method, route, and error type.",
+				METHOD, ROUTE, "error");
+		latency = registry.histogram("groups_http_request_duration_seconds",
+				"Time from receipt of the request to the response, in seconds.",
+				MetricsRegistry.DEFAULT_LATENCY_BUCKETS,
+				METHOD, ROUTE);
+	}
+	
+	/** Record a request.
+	 * @param method the HTTP method of the request.
+	 * @param route the templated path of the endpoint that handled the request, or
+	 * {@link #UNMATCHED_ROUTE}.
+	 * @param status the HTTP status code of the response.
+	 * @param errorType the type of the error if the request failed with an application error.
+	 * @param durationNanos the time taken to process the request in nanoseconds.
+	 */
+	public void record(
+			final String method,
+			final String route,
+			final int status,
+			final Optional<ErrorType> errorType,
+			final long durationNanos) {
+		checkNotNull(method, "method");
+		checkNotNull(route, "route");
+		checkNotNull(errorType, "errorType");
+		requests.inc(method, route, Integer.toString(status));
+		if (status >= 400 || errorType.isPresent()) {
+			errors.inc(method, route, errorType.isPresent() ?
+					errorType.get().name() : NO_ERROR_TYPE);
+		}
+		latency.observe(durationNanos / NANOS_PER_SEC, method, route);
+	}
+}
@@ -4,9 +4,13 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.requireNonNull;
 import static us.kbase.groups.util.Util.isNullOrEmpty;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -17,12 +21,27 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+import us.kbase.groups.core.GetChangesParams;
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.Group.Role;
 import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupSearchParams;
 import us.kbase.groups.core.GroupView;
 import us.kbase.groups.core.GroupView.GroupUserView;
 import us.kbase.groups.core.Token;
@@ -32,12 +51,19 @@ import us.kbase.groups.core.exceptions.MissingParameterException;
 import us.kbase.groups.core.exceptions.NoTokenProvidedException;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
 import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestWithActions;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
 import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.service.JacksonFeature;
 
 public class APICommon {
 	
+	// distinguishes search cursors from group ID cursors
+	private static final String SEARCH_CURSOR_PREFIX = "search:";
+	// separates the modification date from the ID in change cursors
+	private static final String CHANGES_CURSOR_SEP = ":";
+	
 	/** Transform a {@link GroupRequest} object into a Map/List structure suitable for
 	 * serializing to JSON.
 	 * @param request the request object.
@@ -160,6 +186,202 @@ public class APICommon {
 		return ret;
 	}
 	
+	/** Get a streaming writer for a {@link GroupView}. The writer writes JSON directly to the
+	 * response stream rather than building the intermediate structure returned by
+	 * {@link #toGroupJSON(GroupView)}, but the JSON is otherwise identical.
+	 * @param group the group view.
+	 * @return the writer.
+	 */
+	public static StreamingOutput toGroupJSONStream(final GroupView group) {
+		requireNonNull(group, "group");
+		return out -> {
+			try (final JsonGenerator gen = createGenerator(out)) {
+				writeGroup(gen, group);
+			}
+		};
+	}
+	
+	/** Get a streaming writer for a list of {@link GroupView}s.
+	 * @param groups the group views.
+	 * @return the writer.
+	 * @see #toGroupJSONStream(GroupView)
+	 */
+	public static StreamingOutput toGroupJSONStream(final List<GroupView> groups) {
+		requireNonNull(groups, "groups");
+		return out -> {
+			try (final JsonGenerator gen = createGenerator(out)) {
+				gen.writeStartArray();
+				for (final GroupView g: groups) {
+					writeGroup(gen, g);
+				}
+				gen.writeEndArray();
+			}
+		};
+	}
+	
+	/** Get a streaming writer for a list of {@link GroupRequest}s. The writer writes JSON
+	 * directly to the response stream rather than building the intermediate structure returned
+	 * by {@link #toGroupRequestJSON(Collection)}, but the JSON is otherwise identical.
+	 * @param requests the requests.
+	 * @return the writer.
+	 */
+	public static StreamingOutput toGroupRequestJSONStream(
+			final Collection<GroupRequest> requests) {
+		requireNonNull(requests, "requests");
+		return out -> {
+			try (final JsonGenerator gen = createGenerator(out)) {
+				gen.writeStartArray();
+				for (final GroupRequest r: requests) {
+					writeRequest(gen, r);
+				}
+				gen.writeEndArray();
+			}
+		};
+	}
+	
+	private static JsonGenerator createGenerator(final OutputStream out) throws IOException {
+		// use the service's mapper so the output matches the rest of the API
+		final ObjectMapper mapper = JacksonFeature.getMapper();
+		final JsonGenerator gen = mapper.getFactory().createGenerator(out);
+		// the container owns the stream
+		gen.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		if (mapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+			gen.useDefaultPrettyPrinter();
+		}
+		return gen;
+	}
+	
+	private static void writeRequest(final JsonGenerator gen, final GroupRequest request)
+			throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField(Fields.REQUEST_ID, request.getID().getID());
+		gen.writeStringField(Fields.REQUEST_GROUP_ID, request.getGroupID().getName());
+		gen.writeStringField(Fields.REQUEST_REQUESTER, request.getRequester().getName());
+		gen.writeStringField(Fields.REQUEST_TYPE, request.getType().getRepresentation());
+		gen.writeStringField(Fields.REQUEST_RESOURCE_TYPE, request.getResourceType().getName());
+		gen.writeStringField(Fields.REQUEST_RESOURCE,
+				request.getResource().getResourceID().getName());
+		gen.writeStringField(Fields.REQUEST_STATUS, request.getStatusType().getRepresentation());
+		gen.writeNumberField(Fields.REQUEST_CREATION, request.getCreationDate().toEpochMilli());
+		gen.writeNumberField(Fields.REQUEST_MODIFICATION,
+				request.getModificationDate().toEpochMilli());
+		gen.writeNumberField(Fields.REQUEST_EXPIRATION,
+				request.getExpirationDate().toEpochMilli());
+		gen.writeEndObject();
+	}
+	
+	private static void writeGroup(final JsonGenerator gen, final GroupView group)
+			throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField(Fields.GROUP_ID, group.getGroupID().getName());
+		gen.writeBooleanField(Fields.GROUP_IS_PRIVATE, group.isPrivate());
+		gen.writeStringField(Fields.GROUP_ROLE, group.getRole().getRepresentation());
+		if (!group.isPrivateView()) {
+			gen.writeStringField(Fields.GROUP_NAME, group.getGroupName().get().getName());
+			if (!group.isStandardView()) {
+				gen.writeStringField(Fields.GROUP_OWNER, group.getOwner().get().getName());
+			}
+			gen.writeNumberField(Fields.GROUP_MEMBER_COUNT, group.getMemberCount().get());
+			writeCustomFields(gen, Fields.GROUP_CUSTOM_FIELDS, group.getCustomFields());
+			gen.writeNumberField(Fields.GROUP_CREATION,
+					group.getCreationDate().get().toEpochMilli());
+			gen.writeNumberField(Fields.GROUP_MODIFICATION,
+					group.getModificationDate().get().toEpochMilli());
+			writeInstant(gen, Fields.GROUP_VISIT_DATE, group.getLastVisit());
+			gen.writeObjectFieldStart(Fields.GROUP_RESOURCE_COUNT);
+			for (final ResourceType t: group.getResourceCounts().keySet()) {
+				gen.writeNumberField(t.getName(), group.getResourceCounts().get(t));
+			}
+			gen.writeEndObject();
+			if (group.isStandardView()) {
+				gen.writeBooleanField(Fields.GROUP_MEMBERS_PRIVATE,
+						group.isPrivateMembersList().get());
+				gen.writeFieldName(Fields.GROUP_OWNER);
+				writeUser(gen, group.getMember(group.getOwner().get()));
+				writeMemberList(gen, Fields.GROUP_MEMBERS, group.getMembers(), group);
+				writeMemberList(gen, Fields.GROUP_ADMINS, group.getAdministrators(), group);
+				gen.writeObjectFieldStart(Fields.GROUP_RESOURCES);
+				for (final ResourceType t: group.getResourceTypes()) {
+					writeResourceList(gen, group, t);
+				}
+				gen.writeEndObject();
+			}
+		}
+		gen.writeEndObject();
+	}
+	
+	private static void writeInstant(
+			final JsonGenerator gen,
+			final String field,
+			final Optional<Instant> instant)
+			throws IOException {
+		if (instant.isPresent()) {
+			gen.writeNumberField(field, instant.get().toEpochMilli());
+		} else {
+			gen.writeNullField(field);
+		}
+	}
+	
+	private static void writeUser(final JsonGenerator gen, final GroupUserView user)
+			throws IOException {
+		gen.writeStartObject();
+		gen.writeStringField(Fields.GROUP_MEMBER_NAME, user.getName().getName());
+		writeInstant(gen, Fields.GROUP_MEMBER_JOIN_DATE, user.getJoinDate());
+		writeInstant(gen, Fields.GROUP_MEMBER_VISIT_DATE, user.getLastVisit());
+		writeCustomFields(gen, Fields.GROUP_MEMBER_CUSTOM_FIELDS, user.getCustomFields());
+		gen.writeEndObject();
+	}
+	
+	private static void writeMemberList(
+			final JsonGenerator gen,
+			final String field,
+			final Collection<UserName> members,
+			final GroupView group)
+			throws IOException {
+		gen.writeArrayFieldStart(field);
+		for (final UserName m: members.stream().sorted().collect(Collectors.toList())) {
+			writeUser(gen, group.getMember(m));
+		}
+		gen.writeEndArray();
+	}
+	
+	private static void writeResourceList(
+			final JsonGenerator gen,
+			final GroupView g,
+			final ResourceType t)
+			throws IOException {
+		final ResourceInformationSet resourceInfo = g.getResourceInformation(t);
+		gen.writeArrayFieldStart(t.getName());
+		for (final ResourceID rd: sorted(resourceInfo)) {
+			gen.writeStartObject();
+			final Map<String, Object> fields = resourceInfo.getFields(rd);
+			for (final String field: fields.keySet()) {
+				// the ID and add date take precedence, as in toGroupJSON()
+				if (!Fields.GROUP_RESOURCE_ID.equals(field) &&
+						!Fields.GROUP_RESOURCE_ADDED.equals(field)) {
+					gen.writeObjectField(field, fields.get(field));
+				}
+			}
+			gen.writeStringField(Fields.GROUP_RESOURCE_ID, rd.getName());
+			writeInstant(gen, Fields.GROUP_RESOURCE_ADDED, Role.NONE.equals(g.getRole()) ?
+					Optional.empty() : g.getResourceAddDate(t, rd));
+			gen.writeEndObject();
+		}
+		gen.writeEndArray();
+	}
+	
+	private static void writeCustomFields(
+			final JsonGenerator gen,
+			final String field,
+			final Map<NumberedCustomField, String> fields)
+			throws IOException {
+		gen.writeObjectFieldStart(field);
+		for (final NumberedCustomField f: fields.keySet()) {
+			gen.writeStringField(f.getField(), fields.get(f));
+		}
+		gen.writeEndObject();
+	}
+	
 	/** Get a {@link Token} from a string.
 	 * @param token the string containing the token.
 	 * @param required true if the token is required, false if not. If true, if the token string
@@ -245,23 +467,223 @@ public class APICommon {
 	 * @param excludeUpTo set where the list of groups starts by excluding groups where the
 	 * sort key is greater or less than this value, exclusive, depending on the sort direction.
 	 * Null or whitespace only values are ignored.
+	 * @param cursor a cursor, as returned by {@link #toGroupsCursor(GroupID)}, that sets where
+	 * the list of groups starts. Cannot be provided along with excludeUpTo.
+	 * Null or whitespace only values are ignored.
+	 * @param limit the maximum number of groups to return as an integer between 1 and
+	 * {@link GetGroupsParams#MAX_LIMIT}. Null or whitespace only values are ignored.
 	 * @param sortDirection the direction of the sort - 'asc' for an ascending sort, and 'desc'
 	 * for a descending sort.
 	 * @param defaultSort if sortDirection is null or whitespace only, this value is used instead.
 	 * true sets an ascending sort, false sets a descending sort.
 	 * @return the get groups parameters.
-	 * @throws IllegalParameterException if sortDirection is not a valid options.
+	 * @throws IllegalParameterException if sortDirection is not a valid options, the cursor
+	 * is invalid, both excludeUpTo and the cursor are provided, or the limit is invalid.
 	 */
 	public static GetGroupsParams getGroupsParams(
 			final String excludeUpTo,
+			final String cursor,
+			final String limit,
 			final String sortDirection,
 			final boolean defaultSort)
 			throws IllegalParameterException {
-		final GetGroupsParams.Builder b = GetGroupsParams.getBuilder()
-				.withNullableExcludeUpTo(excludeUpTo);
+		final GetGroupsParams.Builder b = GetGroupsParams.getBuilder();
+		if (isNullOrEmpty(cursor)) {
+			b.withNullableExcludeUpTo(excludeUpTo);
+		} else {
+			if (!isNullOrEmpty(excludeUpTo)) {
+				throw new IllegalParameterException(String.format(
+						"Only one of %s or %s may be specified",
+						Fields.GET_GROUPS_EXCLUDE_UP_TO, Fields.GET_GROUPS_CURSOR));
+			}
+			b.withNullableExcludeUpTo(fromGroupsCursor(cursor));
+		}
+		b.withNullableLimit(getGroupsLimit(limit));
 		setSortDirection(sortDirection, defaultSort, s -> b.withNullableSortAscending(s));
 		return b.build();
 	}
+	
+	private static Integer getGroupsLimit(final String limit) throws IllegalParameterException {
+		if (isNullOrEmpty(limit)) {
+			return null;
+		}
+		final int lim;
+		try {
+			lim = Integer.parseInt(limit.trim());
+		} catch (NumberFormatException e) {
+			throw new IllegalParameterException("Invalid limit: " + limit.trim());
+		}
+		if (lim < 1 || lim > GetGroupsParams.MAX_LIMIT) {
+			throw new IllegalParameterException(
+					"limit must be between 1 and " + GetGroupsParams.MAX_LIMIT);
+		}
+		return lim;
+	}
+	
+	/** Get parameters for a text search for groups from a set of strings, usually obtained
+	 * from query parameters.
+	 * Groups with equal relevance are sorted by the group ID in ascending order by default.
+	 * @param search the search text.
+	 * @param excludeUpTo the exclusion string, which may not be provided for searches.
+	 * @param cursor a cursor created by {@link #toGroupSearchCursor(int)}.
+	 * @param limit the maximum number of groups to return.
+	 * @param sortDirection the sort direction for groups with equal relevance.
+	 * @return the search parameters.
+	 * @throws IllegalParameterException if any of the parameters are illegal.
+	 * @throws MissingParameterException if the search text is missing.
+	 */
+	public static GroupSearchParams getGroupSearchParams(
+			final String search,
+			final String excludeUpTo,
+			final String cursor,
+			final String limit,
+			final String sortDirection)
+			throws IllegalParameterException, MissingParameterException {
+		final GroupSearchParams.Builder b = GroupSearchParams.getBuilder(search);
+		if (!isNullOrEmpty(excludeUpTo)) {
+			throw new IllegalParameterException(String.format(
+					"%s may not be specified with %s",
+					Fields.GET_GROUPS_EXCLUDE_UP_TO, Fields.GET_GROUPS_SEARCH));
+		}
+		if (!isNullOrEmpty(cursor)) {
+			b.withNullableOffset(fromGroupSearchCursor(cursor));
+		}
+		b.withNullableLimit(getGroupsLimit(limit));
+		setSortDirection(sortDirection, true, s -> b.withNullableSortAscending(s));
+		return b.build();
+	}
+	
+	/** Create an opaque cursor that can be used to continue a text search for groups after
+	 * the given number of results.
+	 * @param offset the number of results already returned.
+	 * @return the cursor.
+	 */
+	public static String toGroupSearchCursor(final int offset) {
+		if (offset < 0) {
+			throw new IllegalArgumentException("offset must be at least 0");
+		}
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				(SEARCH_CURSOR_PREFIX + offset).getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static int fromGroupSearchCursor(final String cursor)
+			throws IllegalParameterException {
+		final String c;
+		try {
+			c = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException("Invalid cursor: " + cursor.trim());
+		}
+		if (c.startsWith(SEARCH_CURSOR_PREFIX)) {
+			try {
+				final int offset = Integer.parseInt(c.substring(SEARCH_CURSOR_PREFIX.length()));
+				if (offset >= 0) {
+					return offset;
+				}
+			} catch (NumberFormatException e) {
+				// fall through
+			}
+		}
+		throw new IllegalParameterException("Invalid cursor: " + cursor.trim());
+	}
+	
+	/** Create an opaque cursor that can be used to continue a list of groups after the
+	 * given group. The cursor does not encode the sort direction.
+	 * @param lastGroup the last group in the list.
+	 * @return the cursor.
+	 */
+	public static String toGroupsCursor(final GroupID lastGroup) {
+		checkNotNull(lastGroup, "lastGroup");
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				lastGroup.getName().getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static String fromGroupsCursor(final String cursor)
+			throws IllegalParameterException {
+		final String gid;
+		try {
+			gid = new String(Base64.getUrlDecoder().decode(cursor.trim()),
+					StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException("Invalid cursor: " + cursor.trim());
+		}
+		// the cursor is just an exclusion string, but make sure it's something we made
+		try {
+			new GroupID(gid);
+		} catch (MissingParameterException | IllegalParameterException e) {
+			throw new IllegalParameterException("Invalid cursor: " + cursor.trim());
+		}
+		return gid;
+	}
+
+	/** Get parameters for listing changed groups or requests from a set of strings as may be
+	 * presented in query params.
+	 * @param after only include items modified after this date, given in epoch milliseconds.
+	 * Cannot be provided along with the cursor. Null or whitespace only values are ignored.
+	 * @param cursor a cursor, as returned by {@link #toChangesCursor(Instant, String)}, that
+	 * sets where the list of items starts. Null or whitespace only values are ignored.
+	 * @param limit the maximum number of items to return as an integer between 1 and
+	 * {@link GetChangesParams#MAX_LIMIT}. Null or whitespace only values are ignored.
+	 * @return the get changes parameters.
+	 * @throws IllegalParameterException if the date or cursor is invalid, both the date and the
+	 * cursor are provided, or the limit is invalid.
+	 */
+	public static GetChangesParams getChangesParams(
+			final String after,
+			final String cursor,
+			final String limit)
+			throws IllegalParameterException {
+		final GetChangesParams.Builder b = GetChangesParams.getBuilder();
+		if (isNullOrEmpty(cursor)) {
+			if (!isNullOrEmpty(after)) {
+				b.withNullableAfter(epochMilliStringToInstant(after), null);
+			}
+		} else {
+			if (!isNullOrEmpty(after)) {
+				throw new IllegalParameterException(String.format(
+						"Only one of %s or %s may be specified",
+						Fields.GET_CHANGES_AFTER, Fields.GET_CHANGES_CURSOR));
+			}
+			setChangesCursor(b, cursor);
+		}
+		return b.withNullableLimit(getGroupsLimit(limit)).build();
+	}
+	
+	/** Create an opaque cursor that can be used to continue a list of changed groups or
+	 * requests after the given item.
+	 * @param lastModification the modification date of the last item in the list.
+	 * @param lastID the ID of the last item in the list, or null or whitespace only to continue
+	 * the list after all the items modified at the given date.
+	 * @return the cursor.
+	 */
+	public static String toChangesCursor(final Instant lastModification, final String lastID) {
+		checkNotNull(lastModification, "lastModification");
+		final String id = isNullOrEmpty(lastID) ? "" : lastID.trim();
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(
+				(lastModification.toEpochMilli() + CHANGES_CURSOR_SEP + id)
+						.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static void setChangesCursor(final GetChangesParams.Builder b, final String cursor)
+			throws IllegalParameterException {
+		final String c;
+		try {
+			c = new String(Base64.getUrlDecoder().decode(cursor.trim()), StandardCharsets.UTF_8);
+		} catch (IllegalArgumentException e) {
+			throw new IllegalParameterException("Invalid cursor: " + cursor.trim());
+		}
+		final int sep = c.indexOf(CHANGES_CURSOR_SEP);
+		if (sep > 0) {
+			try {
+				final long epochms = Long.parseLong(c.substring(0, sep));
+				b.withNullableAfter(Instant.ofEpochMilli(epochms), c.substring(sep + 1));
+				return;
+			} catch (NumberFormatException e) {
+				// fall through
+			}
+		}
+		throw new IllegalParameterException("Invalid cursor: " + cursor.trim());
+	}
 
 	private static void setSortDirection(
 			final String sortDirection,
@@ -279,6 +701,144 @@ public class APICommon {
 		}
 	}
 	
+	/** Create a strong entity tag for a group view.
+	 * 
+	 * Rather than hashing the JSON returned by {@link #toGroupJSON(GroupView)}, the tag is
+	 * built from the group's modification date, which changes whenever the group record
+	 * changes, plus the parts of the view that can change without modifying the group: the
+	 * user's role and view of the group, visible custom fields, the members' last visit dates,
+	 * and the resource information from the resource handlers.
+	 * @param group the group view.
+	 * @return the entity tag.
+	 */
+	public static EntityTag toGroupETag(final GroupView group) {
+		requireNonNull(group, "group");
+		final Hasher h = Hashing.sha256().newHasher();
+		hash(h, group);
+		return new EntityTag(h.hash().toString());
+	}
+	
+	/** Create a strong entity tag for a list of group views.
+	 * @param groups the group views.
+	 * @return the entity tag.
+	 * @see #toGroupETag(GroupView)
+	 */
+	public static EntityTag toGroupETag(final List<GroupView> groups) {
+		requireNonNull(groups, "groups");
+		final Hasher h = Hashing.sha256().newHasher();
+		h.putInt(groups.size());
+		for (final GroupView g: groups) {
+			hash(h, requireNonNull(g, "null item in groups"));
+		}
+		return new EntityTag(h.hash().toString());
+	}
+	
+	private static void hash(final Hasher h, final GroupView g) {
+		putString(h, g.getGroupID().getName());
+		putString(h, g.getRole().getRepresentation());
+		h.putBoolean(g.isPrivate()).putBoolean(g.isPrivateView()).putBoolean(g.isStandardView());
+		putInstant(h, g.getModificationDate());
+		putInstant(h, g.getLastVisit());
+		// which fields are visible depends on the field configuration, not the group
+		putCustomFields(h, g.getCustomFields());
+		if (g.isStandardView() && !g.isPrivateView()) {
+			final Set<UserName> users = new HashSet<>(g.getMembers());
+			users.addAll(g.getAdministrators());
+			users.add(g.getOwner().get());
+			h.putInt(users.size());
+			for (final UserName u: users.stream().sorted().collect(Collectors.toList())) {
+				final GroupUserView uv = g.getMember(u);
+				putString(h, u.getName());
+				// visiting the group doesn't change the modification date
+				putInstant(h, uv.getLastVisit());
+				putCustomFields(h, uv.getCustomFields());
+			}
+			h.putInt(g.getResourceTypes().size());
+			for (final ResourceType t: g.getResourceTypes().stream().sorted()
+					.collect(Collectors.toList())) {
+				putString(h, t.getName());
+				// resource information is stored in the resource's service, not the group
+				final ResourceInformationSet resourceInfo = g.getResourceInformation(t);
+				final List<ResourceID> resources = sorted(resourceInfo);
+				h.putInt(resources.size());
+				for (final ResourceID rid: resources) {
+					putString(h, rid.getName());
+					final Map<String, Object> fields = resourceInfo.getFields(rid);
+					h.putInt(fields.size());
+					for (final String field: fields.keySet().stream().sorted()
+							.collect(Collectors.toList())) {
+						putString(h, field);
+						putString(h, String.valueOf(fields.get(field)));
+					}
+				}
+			}
+		}
+	}
+	
+	private static void putCustomFields(
+			final Hasher h,
+			final Map<NumberedCustomField, String> fields) {
+		h.putInt(fields.size());
+		for (final NumberedCustomField f: fields.keySet().stream().sorted()
+				.collect(Collectors.toList())) {
+			putString(h, f.getField());
+			putString(h, fields.get(f));
+		}
+	}
+	
+	/** Create a strong entity tag for a request and the actions the user may take on the
+	 * request. The tag is built from the request's ID and modification date, which changes
+	 * whenever the request changes, and the actions, which depend on the user's role.
+	 * @param request the request and actions.
+	 * @return the entity tag.
+	 */
+	public static EntityTag toGroupRequestETag(final GroupRequestWithActions request) {
+		requireNonNull(request, "request");
+		final Hasher h = Hashing.sha256().newHasher();
+		putString(h, request.getRequest().getID().getID());
+		h.putLong(request.getRequest().getModificationDate().toEpochMilli());
+		h.putInt(request.getActions().size());
+		for (final String a: request.getActions().stream().map(a -> a.getRepresentation())
+				.sorted().collect(Collectors.toList())) {
+			putString(h, a);
+		}
+		return new EntityTag(h.hash().toString());
+	}
+	
+	// length prefix the strings so that adjacent strings can't be confused
+	private static void putString(final Hasher h, final String s) {
+		h.putInt(s.length()).putString(s, StandardCharsets.UTF_8);
+	}
+	
+	private static void putInstant(final Hasher h, final Optional<Instant> instant) {
+		h.putBoolean(instant.isPresent());
+		if (instant.isPresent()) {
+			h.putLong(instant.get().toEpochMilli());
+		}
+	}
+	
+	/** Build the response for a GET request that supports conditional requests via the
+	 * If-None-Match header. If the client's tag matches the tag for the current state of the
+	 * resource, a 304 response is returned and the response entity is never built.
+	 * @param request the HTTP request.
+	 * @param tag the entity tag for the current state of the resource.
+	 * @param entity a supplier for the response entity.
+	 * @return the response builder, with the entity tag set.
+	 */
+	public static ResponseBuilder toConditionalResponse(
+			final Request request,
+			final EntityTag tag,
+			final Supplier<Object> entity) {
+		requireNonNull(request, "request");
+		requireNonNull(tag, "tag");
+		requireNonNull(entity, "entity");
+		final ResponseBuilder notModified = request.evaluatePreconditions(tag);
+		if (notModified != null) {
+			return notModified.tag(tag);
+		}
+		return Response.ok(entity.get()).tag(tag);
+	}
+	
 	/** Split a comma separated string into a set of group IDs. Whitespace only entries are
 	 * ignored.
 	 * @param commaSeparatedGroupIDs the group IDs as a comma separated string.
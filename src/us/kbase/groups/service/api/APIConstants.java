@@ -8,5 +8,8 @@ public class APIConstants {
 
 	/** The header key for an authorization token. */
 	public static final String HEADER_TOKEN = "authorization";
+	
+	/** The header key for the cursor that continues a list of groups. */
+	public static final String HEADER_NEXT_CURSOR = "x-next-cursor";
 
 }
@@ -0,0 +1,147 @@
+package us.kbase.groups.service.api;
+
+import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.function.Function;
+
+import javax.inject.Inject;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.DELETE;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.PathParam;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.bulk.NDJSONCodec;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.ItemStream;
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.GroupExistsException;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.IllegalResourceIDException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.exceptions.NoSuchResourceTypeException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.RequestExistsException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.ItemProcessor;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+@Path(ServicePaths.ADMIN)
+public class AdminAPI {
+
+	// TODO JAVADOC / swagger
+	
+	private final Groups groups;
+	
+	// normally instantiated by Jersey
+	@Inject
+	public AdminAPI(final Groups groups) {
+		this.groups = groups;
+	}
+	
+	@DELETE
+	@Path(ServicePaths.ADMIN_CACHE_TYPE)
+	public void evictCache(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@PathParam(Fields.GROUP_RESOURCE_TYPE) final String resourceType)
+			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
+				UnauthorizedException, NoSuchResourceTypeException, IllegalResourceIDException,
+				MissingParameterException, IllegalParameterException {
+		groups.evictResourceCache(
+				getToken(token, true),
+				new ResourceType(resourceType),
+				null);
+	}
+	
+	@DELETE
+	@Path(ServicePaths.ADMIN_CACHE_RESOURCE)
+	public void evictCache(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@PathParam(Fields.GROUP_RESOURCE_TYPE) final String resourceType,
+			@PathParam(Fields.GROUP_RESOURCE_ID) final String resourceID)
+			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
+				UnauthorizedException, NoSuchResourceTypeException, IllegalResourceIDException,
+				MissingParameterException, IllegalParameterException {
+		groups.evictResourceCache(
+				getToken(token, true),
+				new ResourceType(resourceType),
+				new ResourceID(resourceID));
+	}
+	
+	@GET
+	@Path(ServicePaths.ADMIN_EXPORT_GROUP)
+	@Produces(NDJSONCodec.MEDIA_TYPE)
+	public StreamingOutput exportGroups(@HeaderParam(HEADER_TOKEN) final String token)
+			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
+				UnauthorizedException {
+		return toNDJSON(groups.exportGroups(getToken(token, true)),
+				o -> NDJSONCodec.groupWriter(o));
+	}
+	
+	@GET
+	@Path(ServicePaths.ADMIN_EXPORT_REQUEST)
+	@Produces(NDJSONCodec.MEDIA_TYPE)
+	public StreamingOutput exportRequests(@HeaderParam(HEADER_TOKEN) final String token)
+			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
+				UnauthorizedException {
+		return toNDJSON(groups.exportRequests(getToken(token, true)),
+				o -> NDJSONCodec.requestWriter(o));
+	}
+	
+	// the items are read from storage and written to the response one at a time
+	private <T> StreamingOutput toNDJSON(
+			final ItemStream<T> items,
+			final Function<OutputStream, ItemProcessor<T>> writer) {
+		return out -> {
+			try {
+				items.process(writer.apply(out));
+			} catch (GroupsStorageException e) {
+				// the response is already committed, so all that can be done is to abort it
+				throw new IOException("Export failed: " + e.getMessage(), e);
+			}
+		};
+	}
+	
+	@POST
+	@Path(ServicePaths.ADMIN_IMPORT_GROUP)
+	@Consumes(NDJSONCodec.MEDIA_TYPE)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Map<String, Object> importGroups(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			final InputStream body)
+			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
+				UnauthorizedException, IOException, IllegalParameterException,
+				MissingParameterException, GroupExistsException, GroupsStorageException {
+		return ImmutableMap.of(Fields.IMPORTED, groups.importGroups(
+				getToken(token, true), NDJSONCodec.groupReader(body)));
+	}
+	
+	@POST
+	@Path(ServicePaths.ADMIN_IMPORT_REQUEST)
+	@Consumes(NDJSONCodec.MEDIA_TYPE)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Map<String, Object> importRequests(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			final InputStream body)
+			throws InvalidTokenException, NoTokenProvidedException, AuthenticationException,
+				UnauthorizedException, IOException, IllegalParameterException,
+				MissingParameterException, RequestExistsException, GroupsStorageException {
+		return ImmutableMap.of(Fields.IMPORTED, groups.importRequests(
+				getToken(token, true), NDJSONCodec.requestReader(body)));
+	}
+}
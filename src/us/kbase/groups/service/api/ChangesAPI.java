@@ -0,0 +1,130 @@
+package us.kbase.groups.service.api;
+
+import static us.kbase.groups.service.api.APICommon.getChangesParams;
+import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APICommon.toChangesCursor;
+import static us.kbase.groups.service.api.APICommon.toGroupJSON;
+import static us.kbase.groups.service.api.APICommon.toGroupRequestJSON;
+import static us.kbase.groups.service.api.APIConstants.HEADER_NEXT_CURSOR;
+import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.GetChangesParams;
+import us.kbase.groups.core.GroupView;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.exceptions.AuthenticationException;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+@Path(ServicePaths.CHANGES)
+public class ChangesAPI {
+
+	// TODO JAVADOC / swagger
+	
+	private final Groups groups;
+	
+	// normally instantiated by Jersey
+	@Inject
+	public ChangesAPI(final Groups groups) {
+		this.groups = groups;
+	}
+	
+	@GET
+	@Path(ServicePaths.CHANGES_GROUP)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getGroupChanges(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.GET_CHANGES_AFTER) final String after,
+			@QueryParam(Fields.GET_CHANGES_CURSOR) final String cursor,
+			@QueryParam(Fields.GET_CHANGES_LIMIT) final String limit,
+			@QueryParam(Fields.GET_CHANGES_VIEWS) final String views)
+			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
+				InvalidTokenException, AuthenticationException, UnauthorizedException {
+		final GetChangesParams params = getChangesParams(after, cursor, limit);
+		final List<GroupView> changes = groups.getGroupChanges(getToken(token, true), params);
+		final ResponseBuilder resp = Response.ok(changes.stream()
+				.map(g -> views == null ? toGroupChangeJSON(g) : toGroupJSON(g))
+				.collect(Collectors.toList()));
+		if (changes.isEmpty()) {
+			setNextCursor(resp, params);
+		} else {
+			final GroupView last = changes.get(changes.size() - 1);
+			resp.header(HEADER_NEXT_CURSOR, toChangesCursor(
+					last.getModificationDate().get(), last.getGroupID().getName()));
+		}
+		return resp.build();
+	}
+	
+	@GET
+	@Path(ServicePaths.CHANGES_REQUEST)
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getRequestChanges(
+			@HeaderParam(HEADER_TOKEN) final String token,
+			@QueryParam(Fields.GET_CHANGES_AFTER) final String after,
+			@QueryParam(Fields.GET_CHANGES_CURSOR) final String cursor,
+			@QueryParam(Fields.GET_CHANGES_LIMIT) final String limit,
+			@QueryParam(Fields.GET_CHANGES_VIEWS) final String views)
+			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
+				InvalidTokenException, AuthenticationException, UnauthorizedException {
+		final GetChangesParams params = getChangesParams(after, cursor, limit);
+		final List<GroupRequest> changes = groups.getRequestChanges(
+				getToken(token, true), params);
+		final ResponseBuilder resp = Response.ok(changes.stream()
+				.map(r -> views == null ?
+						toChangeJSON(r.getID().getID(), r.getModificationDate()) :
+						toGroupRequestJSON(r))
+				.collect(Collectors.toList()));
+		if (changes.isEmpty()) {
+			setNextCursor(resp, params);
+		} else {
+			final GroupRequest last = changes.get(changes.size() - 1);
+			resp.header(HEADER_NEXT_CURSOR, toChangesCursor(
+					last.getModificationDate(), last.getID().getID()));
+		}
+		return resp.build();
+	}
+	
+	// consumers need the private flag to remove groups that are no longer public
+	private Map<String, Object> toGroupChangeJSON(final GroupView g) {
+		return ImmutableMap.of(
+				Fields.GROUP_ID, g.getGroupID().getName(),
+				Fields.GROUP_IS_PRIVATE, g.isPrivate(),
+				Fields.GROUP_MODIFICATION, g.getModificationDate().get().toEpochMilli());
+	}
+	
+	private Map<String, Object> toChangeJSON(final String id, final Instant modification) {
+		return ImmutableMap.of(
+				Fields.GROUP_ID, id,
+				Fields.GROUP_MODIFICATION, modification.toEpochMilli());
+	}
+	
+	/* if there are no changes, the client should poll again from the same position. If there
+	 * is no position, the client should start from the beginning, and so no cursor is sent.
+	 */
+	private void setNextCursor(final ResponseBuilder resp, final GetChangesParams params) {
+		if (params.getAfter().isPresent()) {
+			resp.header(HEADER_NEXT_CURSOR, toChangesCursor(
+					params.getAfter().get(), params.getAfterID().orElse(null)));
+		}
+	}
+}
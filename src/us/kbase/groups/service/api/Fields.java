@@ -105,8 +105,18 @@ public class Fields {
 	 * depending on the sort order.
 	 */
 	public static final String GET_GROUPS_EXCLUDE_UP_TO = "excludeupto";
+	/** Continue a list of groups from where a previous list ended. */
+	public static final String GET_GROUPS_CURSOR = "cursor";
+	/** The maximum number of groups to return. */
+	public static final String GET_GROUPS_LIMIT = "limit";
 	/** Set the sort order. */
 	public static final String GET_GROUPS_SORT_ORDER = "order";
+	/** Text with which to search for groups. */
+	public static final String GET_GROUPS_SEARCH = "search";
+	/** The type of a resource the groups must contain. */
+	public static final String GET_GROUPS_RESOURCE_TYPE = "resourcetype";
+	/** The ID of a resource the groups must contain. */
+	public static final String GET_GROUPS_RESOURCE = "resource";
 	
 	/* ***********************
 	 * request listing fields
@@ -122,6 +132,20 @@ public class Fields {
 	/** Set the sort order. */
 	public static final String GET_REQUESTS_SORT_ORDER = "order";
 	
+	/* ***********************
+	 * change listing fields
+	 * ***********************
+	 */
+	
+	/** Only include items modified after this date. */
+	public static final String GET_CHANGES_AFTER = "after";
+	/** Continue a list of changes from where a previous list ended. */
+	public static final String GET_CHANGES_CURSOR = "cursor";
+	/** The maximum number of items to return. */
+	public static final String GET_CHANGES_LIMIT = "limit";
+	/** Return the changed items rather than only their IDs and modification dates. */
+	public static final String GET_CHANGES_VIEWS = "views";
+	
 	/* ***********************
 	 * other fields
 	 * ***********************
@@ -130,6 +154,9 @@ public class Fields {
 	/** Whether something exists or not. */
 	public static final String EXISTS = "exists";
 	
+	/** The number of items imported. */
+	public static final String IMPORTED = "imported";
+	
 	/** A list of group IDs. */
 	public static final String IDS = "ids";
 }
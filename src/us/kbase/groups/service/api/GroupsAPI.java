@@ -1,10 +1,17 @@
 package us.kbase.groups.service.api;
 
+import static us.kbase.groups.service.api.APIConstants.HEADER_NEXT_CURSOR;
 import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
 import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APICommon.getGroupSearchParams;
 import static us.kbase.groups.service.api.APICommon.getGroupsParams;
 import static us.kbase.groups.service.api.APICommon.getRequestsParams;
+import static us.kbase.groups.service.api.APICommon.toConditionalResponse;
+import static us.kbase.groups.service.api.APICommon.toGroupETag;
 import static us.kbase.groups.service.api.APICommon.toGroupJSON;
+import static us.kbase.groups.service.api.APICommon.toGroupJSONStream;
+import static us.kbase.groups.service.api.APICommon.toGroupSearchCursor;
+import static us.kbase.groups.service.api.APICommon.toGroupsCursor;
 import static us.kbase.groups.util.Util.isNullOrEmpty;
 
 import java.util.Collections;
@@ -12,7 +19,6 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 import javax.ws.rs.DELETE;
@@ -24,15 +30,25 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableMap;
 
+import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GroupCreationParams;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchParams;
 import us.kbase.groups.core.GroupUpdateParams;
+import us.kbase.groups.core.GroupView;
 import us.kbase.groups.core.Groups;
 import us.kbase.groups.core.OptionalGroupFields;
 import us.kbase.groups.core.OptionalGroupFields.Builder;
@@ -60,6 +76,7 @@ import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.service.HandlerExecutor;
 import us.kbase.groups.storage.exceptions.GroupsStorageException;
 
 @Path(ServicePaths.GROUP)
@@ -68,25 +85,79 @@ public class GroupsAPI {
 	// TODO JAVADOC / swagger
 	
 	private final Groups groups;
+	private final HandlerExecutor handlers;
 	
 	// normally instantiated by Jersey
 	@Inject
-	public GroupsAPI(final Groups groups) {
+	public GroupsAPI(final Groups groups, final HandlerExecutor handlers) {
 		this.groups = groups;
+		this.handlers = handlers;
 	}
 	
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
-	public List<Map<String, Object>> getGroups(
+	public Response getGroups(
+			@Context final Request request,
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@QueryParam(Fields.GET_GROUPS_EXCLUDE_UP_TO) final String excludeUpTo,
-			@QueryParam(Fields.GET_GROUPS_SORT_ORDER) final String order)
+			@QueryParam(Fields.GET_GROUPS_CURSOR) final String cursor,
+			@QueryParam(Fields.GET_GROUPS_LIMIT) final String limit,
+			@QueryParam(Fields.GET_GROUPS_SORT_ORDER) final String order,
+			@QueryParam(Fields.GET_GROUPS_SEARCH) final String search,
+			@QueryParam(Fields.GET_GROUPS_RESOURCE_TYPE) final String resourceType,
+			@QueryParam(Fields.GET_GROUPS_RESOURCE) final String resource)
 			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
-				InvalidTokenException, AuthenticationException {
-		return groups.getGroups(
-				getToken(token, false),
-				getGroupsParams(excludeUpTo, order, true))
-				.stream().map(g -> toGroupJSON(g)).collect(Collectors.toList());
+				InvalidTokenException, AuthenticationException, MissingParameterException,
+				NoSuchResourceTypeException {
+		final boolean forResource = !isNullOrEmpty(resourceType) || !isNullOrEmpty(resource);
+		if (!isNullOrEmpty(search)) {
+			if (forResource) {
+				throw new IllegalParameterException(String.format(
+						"%s and %s may not be specified with %s",
+						Fields.GET_GROUPS_RESOURCE_TYPE, Fields.GET_GROUPS_RESOURCE,
+						Fields.GET_GROUPS_SEARCH));
+			}
+			return searchGroups(request, token, search, excludeUpTo, cursor, limit, order);
+		}
+		final GetGroupsParams params = getGroupsParams(excludeUpTo, cursor, limit, order, true);
+		final List<GroupView> views;
+		if (forResource) {
+			views = groups.getGroupsForResource(getToken(token, false),
+					new ResourceType(resourceType), new ResourceID(resource), params);
+		} else {
+			views = groups.getGroups(getToken(token, false), params);
+		}
+		final ResponseBuilder resp = toConditionalResponse(request, toGroupETag(views),
+				() -> toGroupJSONStream(views));
+		// a full page means there may be more groups
+		if (!views.isEmpty() && views.size() >= params.getLimit()) {
+			resp.header(HEADER_NEXT_CURSOR,
+					toGroupsCursor(views.get(views.size() - 1).getGroupID()));
+		}
+		return resp.build();
+	}
+	
+	private Response searchGroups(
+			final Request request,
+			final String token,
+			final String search,
+			final String excludeUpTo,
+			final String cursor,
+			final String limit,
+			final String order)
+			throws GroupsStorageException, IllegalParameterException, NoTokenProvidedException,
+				InvalidTokenException, AuthenticationException, MissingParameterException {
+		final GroupSearchParams params = getGroupSearchParams(
+				search, excludeUpTo, cursor, limit, order);
+		final List<GroupView> views = groups.searchGroups(getToken(token, false), params);
+		final ResponseBuilder resp = toConditionalResponse(request, toGroupETag(views),
+				() -> toGroupJSONStream(views));
+		// a full page means there may be more groups
+		if (!views.isEmpty() && views.size() >= params.getLimit()) {
+			resp.header(HEADER_NEXT_CURSOR,
+					toGroupSearchCursor(params.getOffset() + views.size()));
+		}
+		return resp.build();
 	}
 	
 	private static Map<NumberedCustomField, OptionalString> getCustomFieldsAndTypeCheck(
@@ -220,16 +291,32 @@ public class GroupsAPI {
 		groups.updateGroup(getToken(token, true), update.toUpdateParams(new GroupID(groupID)));
 	}
 	
+	// getting a group contacts the resource handlers, so run it off the server threads
 	@GET
 	@Path(ServicePaths.GROUP_ID)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, Object> getGroup(
+	public void getGroup(
+			@Suspended final AsyncResponse async,
+			@Context final Request request,
 			@HeaderParam(HEADER_TOKEN) final String token,
-			@PathParam(Fields.GROUP_ID) final String groupID)
+			@PathParam(Fields.GROUP_ID) final String groupID) {
+		handlers.run(async, () -> getGroup(request, token, groupID));
+	}
+	
+	public Response getGroup(final Request request, final String token, final String groupID)
+			throws InvalidTokenException, NoSuchGroupException, NoTokenProvidedException,
+				AuthenticationException, MissingParameterException, IllegalParameterException,
+				GroupsStorageException, ResourceHandlerException {
+		final GroupView view = getGroupView(token, groupID);
+		return toConditionalResponse(request, toGroupETag(view), () -> toGroupJSONStream(view))
+				.build();
+	}
+	
+	private GroupView getGroupView(final String token, final String groupID)
 			throws InvalidTokenException, NoSuchGroupException, NoTokenProvidedException,
 				AuthenticationException, MissingParameterException, IllegalParameterException,
 				GroupsStorageException, ResourceHandlerException {
-		return toGroupJSON(groups.getGroup(getToken(token, false), new GroupID(groupID)));
+		return groups.getGroup(getToken(token, false), new GroupID(groupID));
 	}
 	
 	@GET
@@ -283,7 +370,7 @@ public class GroupsAPI {
 	@GET
 	@Produces(MediaType.APPLICATION_JSON)
 	@Path(ServicePaths.GROUP_REQUESTS)
-	public List<Map<String, Object>> getRequestsForGroup(
+	public StreamingOutput getRequestsForGroup(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
 			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
@@ -292,7 +379,7 @@ public class GroupsAPI {
 			throws InvalidTokenException, NoSuchGroupException, UnauthorizedException,
 				AuthenticationException, MissingParameterException, IllegalParameterException,
 				GroupsStorageException {
-		return APICommon.toGroupRequestJSON(groups.getRequestsForGroup(
+		return APICommon.toGroupRequestJSONStream(groups.getRequestsForGroup(
 				getToken(token, true), new GroupID(groupID),
 				getRequestsParams(excludeUpTo, closed, order, closed == null)));
 	}
@@ -369,14 +456,24 @@ public class GroupsAPI {
 		groups.demoteAdmin(getToken(token, true), new GroupID(groupID), new UserName(member));
 	}
 	
+	// adding a resource contacts the resource handlers, so run it off the server threads
 	@POST
 	@Path(ServicePaths.GROUP_RESOURCE_ID)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, Object> addResource(
+	public void addResource(
+			@Suspended final AsyncResponse async,
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.GROUP_ID) final String groupID,
 			@PathParam(Fields.GROUP_RESOURCE_TYPE) final String resourceType,
-			@PathParam(Fields.GROUP_RESOURCE_ID) final String resourceID)
+			@PathParam(Fields.GROUP_RESOURCE_ID) final String resourceID) {
+		handlers.run(async, () -> addResource(token, groupID, resourceType, resourceID));
+	}
+	
+	public Map<String, Object> addResource(
+			final String token,
+			final String groupID,
+			final String resourceType,
+			final String resourceID)
 			throws InvalidTokenException, NoSuchGroupException, NoTokenProvidedException,
 				AuthenticationException, UnauthorizedException, MissingParameterException,
 				IllegalParameterException, GroupsStorageException, RequestExistsException,
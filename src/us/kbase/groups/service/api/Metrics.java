@@ -0,0 +1,34 @@
+package us.kbase.groups.service.api;
+
+import javax.inject.Inject;
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+
+import us.kbase.groups.metrics.MetricsRegistry;
+
+/** Returns the service metrics in the Prometheus text format.
+ */
+@Path(ServicePaths.METRICS)
+public class Metrics {
+
+	private final MetricsRegistry registry;
+	
+	/** Create the metrics endpoint. This is normally done by the Jersey framework.
+	 * @param registry the registry containing the service metrics.
+	 */
+	@Inject
+	public Metrics(final MetricsRegistry registry) {
+		this.registry = registry;
+	}
+	
+	/** Return the service metrics.
+	 * @return the metrics in the Prometheus text format.
+	 */
+	@GET
+	@Produces(MetricsRegistry.CONTENT_TYPE)
+	public String metrics() {
+		return registry.toPrometheusText();
+	}
+
+}
@@ -2,11 +2,13 @@ package us.kbase.groups.service.api;
 
 import static us.kbase.groups.service.api.APIConstants.HEADER_TOKEN;
 import static us.kbase.groups.service.api.APICommon.getToken;
+import static us.kbase.groups.service.api.APICommon.toConditionalResponse;
 import static us.kbase.groups.service.api.APICommon.toGroupIDs;
 import static us.kbase.groups.service.api.APICommon.toGroupJSON;
+import static us.kbase.groups.service.api.APICommon.toGroupRequestETag;
 import static us.kbase.groups.service.api.APICommon.toGroupRequestJSON;
+import static us.kbase.groups.service.api.APICommon.toGroupRequestJSONStream;
 
-import java.util.List;
 import java.util.Map;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
@@ -20,7 +22,13 @@ import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
 import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -43,6 +51,7 @@ import us.kbase.groups.core.exceptions.UnauthorizedException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
 import us.kbase.groups.core.request.GroupRequestWithActions;
 import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.service.HandlerExecutor;
 import us.kbase.groups.storage.exceptions.GroupsStorageException;
 
 @Path(ServicePaths.REQUEST)
@@ -51,24 +60,41 @@ public class RequestAPI {
 	// TODO JAVADOC or swagger
 	
 	private final Groups groups;
+	private final HandlerExecutor handlers;
 	
 	// normally instantiated by Jersey
 	@Inject
-	public RequestAPI(final Groups groups) {
+	public RequestAPI(final Groups groups, final HandlerExecutor handlers) {
 		this.groups = groups;
+		this.handlers = handlers;
 	}
 	
 	@GET
 	@Path(ServicePaths.REQUEST_ID)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, Object> getRequest(
+	public Response getRequest(
+			@Context final Request request,
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@PathParam(Fields.REQUEST_ID) final String requestID)
 			throws InvalidTokenException, NoSuchRequestException, AuthenticationException,
 				UnauthorizedException, MissingParameterException, GroupsStorageException,
 				IllegalParameterException, ResourceHandlerException {
-		final GroupRequestWithActions actions = groups.getRequest(
-							getToken(token, true), new RequestID(requestID));
+		final GroupRequestWithActions actions = getRequestWithActions(token, requestID);
+		return toConditionalResponse(request, toGroupRequestETag(actions),
+				() -> toRequestJSON(actions)).build();
+	}
+	
+	private GroupRequestWithActions getRequestWithActions(
+			final String token,
+			final String requestID)
+			throws InvalidTokenException, NoSuchRequestException, AuthenticationException,
+				UnauthorizedException, MissingParameterException, GroupsStorageException,
+				IllegalParameterException, ResourceHandlerException {
+		return groups.getRequest(getToken(token, true), new RequestID(requestID));
+	}
+	
+	private static Map<String, Object> toRequestJSON(
+			final GroupRequestWithActions actions) {
 		final Map<String, Object> json = toGroupRequestJSON(actions.getRequest());
 		json.put(Fields.REQUEST_USER_ACTIONS, new TreeSet<>(actions.getActions())
 				.stream().map(a -> a.getRepresentation()).collect(Collectors.toList()));
@@ -104,28 +130,28 @@ public class RequestAPI {
 	@GET
 	@Path(ServicePaths.REQUEST_CREATED)
 	@Produces(MediaType.APPLICATION_JSON)
-	public List<Map<String, Object>> getCreatedRequests(
+	public StreamingOutput getCreatedRequests(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
 			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
 			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order)
 			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
 			IllegalParameterException {
-		return toGroupRequestJSON(groups.getRequestsForRequester(getToken(token, true),
+		return toGroupRequestJSONStream(groups.getRequestsForRequester(getToken(token, true),
 				APICommon.getRequestsParams(excludeUpTo, closed, order, closed == null)));
 	}
 	
 	@GET
 	@Path(ServicePaths.REQUEST_TARGETED)
 	@Produces(MediaType.APPLICATION_JSON)
-	public List<Map<String, Object>> getTargetedRequests(
+	public StreamingOutput getTargetedRequests(
 			@HeaderParam(HEADER_TOKEN) final String token,
 			@QueryParam(Fields.GET_REQUESTS_EXCLUDE_UP_TO) final String excludeUpTo,
 			@QueryParam(Fields.GET_REQUESTS_INCLUDE_CLOSED) final String closed,
 			@QueryParam(Fields.GET_REQUESTS_SORT_ORDER) final String order)
 			throws InvalidTokenException, AuthenticationException, GroupsStorageException,
 				IllegalParameterException, ResourceHandlerException {
-		return toGroupRequestJSON(groups.getRequestsForTarget(getToken(token, true),
+		return toGroupRequestJSONStream(groups.getRequestsForTarget(getToken(token, true),
 				APICommon.getRequestsParams(excludeUpTo, closed, order, closed == null)));
 	}
 	
@@ -142,12 +168,18 @@ public class RequestAPI {
 				getToken(token, true), new RequestID(requestID)));
 	}
 	
+	// accepting a request contacts the resource handlers, so run it off the server threads
 	@PUT
 	@Path(ServicePaths.REQUEST_ACCEPT)
 	@Produces(MediaType.APPLICATION_JSON)
-	public Map<String, Object> acceptRequest(
+	public void acceptRequest(
+			@Suspended final AsyncResponse async,
 			@HeaderParam(HEADER_TOKEN) final String token,
-			@PathParam(Fields.REQUEST_ID) final String requestID)
+			@PathParam(Fields.REQUEST_ID) final String requestID) {
+		handlers.run(async, () -> acceptRequest(token, requestID));
+	}
+	
+	public Map<String, Object> acceptRequest(final String token, final String requestID)
 			throws InvalidTokenException, NoSuchRequestException, AuthenticationException,
 				UnauthorizedException, MissingParameterException, GroupsStorageException,
 				IllegalParameterException, UserIsMemberException, ClosedRequestException,
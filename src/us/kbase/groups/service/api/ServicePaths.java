@@ -20,6 +20,11 @@ public class ServicePaths {
 	/** The root endpoint location. */
 	public static final String ROOT = SEP;
 	
+	/* Metrics endpoint */
+	
+	/** The metrics endpoint location. */
+	public static final String METRICS = SEP + "metrics";
+	
 	/* Groups endpoints */
 	
 	/** The group endpoint location. */
@@ -89,4 +94,32 @@ public class ServicePaths {
 	public static final String NAMES = SEP + "names";
 	/** The bulk names endpoint location. */
 	public static final String NAMES_BULK = SEP + "{" + Fields.IDS + "}";
+	
+	/* Changes endpoints */
+	
+	/** The changes endpoint location. */
+	public static final String CHANGES = SEP + "changes";
+	/** The location to list changed groups. */
+	public static final String CHANGES_GROUP = SEP + GROUP_STR;
+	/** The location to list changed requests. */
+	public static final String CHANGES_REQUEST = SEP + "request";
+	
+	/* Admin endpoints */
+	
+	/** The admin endpoint location. */
+	public static final String ADMIN = SEP + "admin";
+	/** The location to remove all cached information for a resource type. */
+	public static final String ADMIN_CACHE_TYPE = SEP + "cache" + SEP + "{" +
+			Fields.GROUP_RESOURCE_TYPE + "}";
+	/** The location to remove cached information for a resource. */
+	public static final String ADMIN_CACHE_RESOURCE = ADMIN_CACHE_TYPE + SEP + "{" +
+			Fields.GROUP_RESOURCE_ID + "}";
+	/** The location to export all groups. */
+	public static final String ADMIN_EXPORT_GROUP = SEP + "export" + SEP + GROUP_STR;
+	/** The location to export all requests. */
+	public static final String ADMIN_EXPORT_REQUEST = SEP + "export" + SEP + "request";
+	/** The location to import groups. */
+	public static final String ADMIN_IMPORT_GROUP = SEP + "import" + SEP + GROUP_STR;
+	/** The location to import requests. */
+	public static final String ADMIN_IMPORT_REQUEST = SEP + "import" + SEP + "request";
 }
@@ -0,0 +1,504 @@
+package us.kbase.groups.storage;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import us.kbase.groups.core.GetChangesParams;
+import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.groups.core.GetRequestsParams;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupIDAndName;
+import us.kbase.groups.core.GroupIDNameMembership;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.GroupSummary;
+import us.kbase.groups.core.GroupUpdateParams;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.GroupExistsException;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.NoSuchUserException;
+import us.kbase.groups.core.exceptions.RequestExistsException;
+import us.kbase.groups.core.exceptions.ResourceExistsException;
+import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.PendingNotification;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A storage system that wraps another storage system and caches the results of
+ * {@link #getGroup(GroupID)} and {@link #getRequest(RequestID)} in memory.
+ *
+ * Writes made through this instance discard the cached group or request. Changes made by
+ * other service instances, or by the wrapped storage system itself (for example, expiring
+ * requests), must be reported via the {@link StorageChangeListener} methods, or the cache will
+ * return stale data until the cached item expires.
+ *
+ * All other methods are passed directly to the wrapped storage system.
+ */
+public class CachingGroupsStorage implements GroupsStorage, StorageChangeListener {
+
+	/* If an item is invalidated while it is being loaded from the wrapped storage, the loaded
+	 * item may be stale and must not remain in the cache. Every invalidation increments a
+	 * generation counter, and a load whose generation changed while it was in progress
+	 * removes its item from the cache after adding it. A per item counter would discard fewer
+	 * loads, but invalidations are rare compared to reads.
+	 */
+	
+	private final GroupsStorage storage;
+	private final Cache<GroupID, Group> groupCache;
+	private final Cache<RequestID, GroupRequest> requestCache;
+	private final AtomicLong groupGeneration = new AtomicLong();
+	private final AtomicLong requestGeneration = new AtomicLong();
+	
+	/** Create the storage system.
+	 * @param storage the storage system to wrap.
+	 * @param cacheSize the maximum number of groups, and separately requests, to cache.
+	 * @param cacheExpirationSec the time, in seconds, after which cached items expire. This
+	 * bounds the staleness of cached items if a change is not reported to the listener
+	 * methods.
+	 */
+	public CachingGroupsStorage(
+			final GroupsStorage storage,
+			final int cacheSize,
+			final int cacheExpirationSec) {
+		this(storage, cacheSize, cacheExpirationSec, Ticker.systemTicker());
+	}
+	
+	// for tests
+	private CachingGroupsStorage(
+			final GroupsStorage storage,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final Ticker ticker) {
+		checkNotNull(storage, "storage");
+		if (cacheSize < 1) {
+			throw new IllegalArgumentException("cacheSize must be at least 1");
+		}
+		if (cacheExpirationSec < 1) {
+			throw new IllegalArgumentException("cacheExpirationSec must be at least 1");
+		}
+		this.storage = storage;
+		groupCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.ticker(ticker)
+				.build();
+		requestCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.ticker(ticker)
+				.build();
+	}
+	
+	@Override
+	public void groupChanged(final GroupID groupID) {
+		checkNotNull(groupID, "groupID");
+		groupGeneration.incrementAndGet();
+		groupCache.invalidate(groupID);
+	}
+	
+	@Override
+	public void requestChanged(final RequestID requestID) {
+		checkNotNull(requestID, "requestID");
+		requestGeneration.incrementAndGet();
+		requestCache.invalidate(requestID);
+	}
+	
+	@Override
+	public void allChanged() {
+		groupGeneration.incrementAndGet();
+		groupCache.invalidateAll();
+		requestGeneration.incrementAndGet();
+		requestCache.invalidateAll();
+	}
+	
+	@Override
+	public Group getGroup(final GroupID groupID)
+			throws GroupsStorageException, NoSuchGroupException {
+		checkNotNull(groupID, "groupID");
+		final Group cached = groupCache.getIfPresent(groupID);
+		if (cached != null) {
+			return cached;
+		}
+		final long generation = groupGeneration.get();
+		final Group g = storage.getGroup(groupID);
+		groupCache.put(groupID, g);
+		if (groupGeneration.get() != generation) {
+			groupCache.invalidate(groupID);
+		}
+		return g;
+	}
+	
+	@Override
+	public GroupRequest getRequest(final RequestID requestID)
+			throws NoSuchRequestException, GroupsStorageException {
+		checkNotNull(requestID, "requestID");
+		final GroupRequest cached = requestCache.getIfPresent(requestID);
+		if (cached != null) {
+			return cached;
+		}
+		final long generation = requestGeneration.get();
+		final GroupRequest r = storage.getRequest(requestID);
+		requestCache.put(requestID, r);
+		if (requestGeneration.get() != generation) {
+			requestCache.invalidate(requestID);
+		}
+		return r;
+	}
+	
+	/* For the write methods, the cached item is discarded even if the write fails, since the
+	 * failure may have occurred after the write was applied.
+	 */
+	
+	@Override
+	public void createGroup(final Group group) throws GroupExistsException, GroupsStorageException {
+		checkNotNull(group, "group");
+		try {
+			storage.createGroup(group);
+		} finally {
+			groupChanged(group.getGroupID());
+		}
+	}
+	
+	@Override
+	public void updateGroup(final GroupUpdateParams update, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException {
+		checkNotNull(update, "update");
+		try {
+			storage.updateGroup(update, modDate);
+		} finally {
+			groupChanged(update.getGroupID());
+		}
+	}
+	
+	@Override
+	public void processGroups(final ItemProcessor<Group> processor)
+			throws GroupsStorageException, IOException {
+		storage.processGroups(processor);
+	}
+	
+	@Override
+	public void importGroups(final List<Group> groups)
+			throws GroupExistsException, GroupsStorageException {
+		checkNoNullsInCollection(groups, "groups");
+		try {
+			storage.importGroups(groups);
+		} finally {
+			groups.stream().forEach(g -> groupChanged(g.getGroupID()));
+		}
+	}
+	
+	@Override
+	public List<GroupIDNameMembership> getGroupNames(
+			final UserName user,
+			final Set<GroupID> groupIDs)
+			throws GroupsStorageException, NoSuchGroupException {
+		return storage.getGroupNames(user, groupIDs);
+	}
+	
+	@Override
+	public Map<GroupID, GroupUser> getAdministratorMemberships(
+			final UserName user,
+			final Set<GroupID> groupIDs)
+			throws GroupsStorageException, NoSuchGroupException {
+		return storage.getAdministratorMemberships(user, groupIDs);
+	}
+	
+	@Override
+	public boolean getGroupExists(final GroupID groupID) throws GroupsStorageException {
+		return storage.getGroupExists(groupID);
+	}
+	
+	@Override
+	public List<GroupIDAndName> getMemberGroups(final UserName user)
+			throws GroupsStorageException {
+		return storage.getMemberGroups(user);
+	}
+	
+	@Override
+	public List<Group> getGroups(final GetGroupsParams params, final UserName user)
+			throws GroupsStorageException {
+		return storage.getGroups(params, user);
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummaries(
+			final GetGroupsParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		return storage.getGroupSummaries(params, user, resourceTypes);
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummariesForResource(
+			final ResourceType type,
+			final ResourceID resource,
+			final GetGroupsParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		return storage.getGroupSummariesForResource(
+				type, resource, params, user, resourceTypes);
+	}
+	
+	@Override
+	public List<GroupSummary> getChangedGroupSummaries(
+			final GetChangesParams params,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		return storage.getChangedGroupSummaries(params, resourceTypes);
+	}
+	
+	@Override
+	public List<GroupSummary> searchGroupSummaries(
+			final GroupSearchParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes,
+			final Set<CustomField> searchFields)
+			throws GroupsStorageException {
+		return storage.searchGroupSummaries(params, user, resourceTypes, searchFields);
+	}
+	
+	@Override
+	public void addMember(final GroupID groupID, final GroupUser member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.addMember(groupID, member, modDate);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void removeMember(final GroupID groupID, final UserName member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.removeMember(groupID, member, modDate);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void addAdmin(final GroupID groupID, final UserName admin, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException,
+				NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.addAdmin(groupID, admin, modDate);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void demoteAdmin(final GroupID groupID, final UserName member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.demoteAdmin(groupID, member, modDate);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void updateUser(
+			final GroupID groupID,
+			final UserName member,
+			final Map<NumberedCustomField, OptionalString> fields,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.updateUser(groupID, member, fields, modDate);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void updateUser(
+			final GroupID groupID,
+			final UserName member,
+			final Instant lastVisited)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.updateUser(groupID, member, lastVisited);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void addResource(
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceDescriptor resource,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, ResourceExistsException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.addResource(groupID, type, resource, modDate);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void removeResource(
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchResourceException {
+		checkNotNull(groupID, "groupID");
+		try {
+			storage.removeResource(groupID, type, resource, modDate);
+		} finally {
+			groupChanged(groupID);
+		}
+	}
+	
+	@Override
+	public void storeRequest(final GroupRequest request)
+			throws RequestExistsException, GroupsStorageException {
+		checkNotNull(request, "request");
+		try {
+			storage.storeRequest(request);
+		} finally {
+			requestChanged(request.getID());
+		}
+	}
+	
+	@Override
+	public void processRequests(final ItemProcessor<GroupRequest> processor)
+			throws GroupsStorageException, IOException {
+		storage.processRequests(processor);
+	}
+	
+	@Override
+	public void importRequests(final List<GroupRequest> requests)
+			throws RequestExistsException, GroupsStorageException {
+		checkNoNullsInCollection(requests, "requests");
+		try {
+			storage.importRequests(requests);
+		} finally {
+			requests.stream().forEach(r -> requestChanged(r.getID()));
+		}
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByRequester(
+			final UserName requester,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByRequester(requester, params);
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByTarget(
+			final UserName target,
+			final Map<ResourceType, Set<ResourceAdministrativeID>> resources,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByTarget(target, resources, params);
+	}
+	
+	@Override
+	public List<GroupRequest> getChangedRequests(final GetChangesParams params)
+			throws GroupsStorageException {
+		return storage.getChangedRequests(params);
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByGroup(
+			final GroupID groupID,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		return storage.getRequestsByGroup(groupID, params);
+	}
+	
+	@Override
+	public boolean groupHasRequest(final GroupID groupID, final Instant laterThan)
+			throws GroupsStorageException {
+		return storage.groupHasRequest(groupID, laterThan);
+	}
+	
+	@Override
+	public Map<GroupID, Instant> getLatestOpenRequestDates(final Set<GroupID> groupIDs)
+			throws GroupsStorageException {
+		return storage.getLatestOpenRequestDates(groupIDs);
+	}
+	
+	@Override
+	public void closeRequest(
+			final RequestID requestID,
+			final GroupRequestStatus status,
+			final Instant modificationTime)
+			throws NoSuchRequestException, GroupsStorageException {
+		checkNotNull(requestID, "requestID");
+		try {
+			storage.closeRequest(requestID, status, modificationTime);
+		} finally {
+			requestChanged(requestID);
+		}
+	}
+	
+	@Override
+	public void storeNotification(final PendingNotification notification)
+			throws GroupsStorageException {
+		storage.storeNotification(notification);
+	}
+	
+	@Override
+	public List<PendingNotification> claimNotifications(
+			final int limit,
+			final Instant now,
+			final Instant leaseExpiration)
+			throws GroupsStorageException {
+		return storage.claimNotifications(limit, now, leaseExpiration);
+	}
+	
+	@Override
+	public void rescheduleNotification(
+			final UUID id,
+			final int attempts,
+			final Instant nextAttempt)
+			throws GroupsStorageException {
+		storage.rescheduleNotification(id, attempts, nextAttempt);
+	}
+	
+	@Override
+	public void removeNotification(final UUID id) throws GroupsStorageException {
+		storage.removeNotification(id);
+	}
+}
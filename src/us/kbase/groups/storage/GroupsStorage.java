@@ -1,16 +1,22 @@
 package us.kbase.groups.storage;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
+import us.kbase.groups.core.GetChangesParams;
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.Group;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.GroupSearchTokens;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.Groups;
@@ -24,7 +30,9 @@ import us.kbase.groups.core.exceptions.NoSuchUserException;
 import us.kbase.groups.core.exceptions.RequestExistsException;
 import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.PendingNotification;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequestStatus;
 import us.kbase.groups.core.request.GroupRequestStatusType;
@@ -71,6 +79,25 @@ public interface GroupsStorage {
 	 */
 	Group getGroup(GroupID groupID) throws GroupsStorageException, NoSuchGroupException;
 	
+	/** Process all the groups in the system, sorted by the group ID. The groups are read from
+	 * the storage system as they are processed rather than all at once, so arbitrarily large
+	 * numbers of groups can be processed in constant memory.
+	 * @param processor the processor for the groups.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws IOException if the processor throws an IOException. Processing stops.
+	 */
+	void processGroups(ItemProcessor<Group> processor) throws GroupsStorageException, IOException;
+	
+	/** Store groups in bulk, typically groups exported from another storage system via
+	 * {@link #processGroups(ItemProcessor)}. The groups are stored in order. If a group
+	 * already exists, the groups preceding it in the list are stored and the remaining groups
+	 * are not.
+	 * @param groups the groups to store.
+	 * @throws GroupExistsException if a group already exists.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void importGroups(List<Group> groups) throws GroupExistsException, GroupsStorageException;
+	
 	/** Get the name of one or more groups.
 	 * @param user an optional user to determine whether the user is a member of the group.
 	 * If no user is provided, group membership is considered to be false.
@@ -82,6 +109,19 @@ public interface GroupsStorage {
 	List<GroupIDNameMembership> getGroupNames(UserName user, Set<GroupID> groupID)
 			throws GroupsStorageException, NoSuchGroupException;
 	
+	/** Get the membership records of a user for the groups that the user administrates.
+	 * The owner of a group is considered to be an administrator.
+	 * @param user the user.
+	 * @param groupIDs the IDs of the groups to check.
+	 * @return a mapping from the group ID to the user's membership record. Groups which the user
+	 * does not administrate, or for which the user's membership record no longer exists, are not
+	 * included in the map.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws NoSuchGroupException if there is no group with one of the given IDs.
+	 */
+	Map<GroupID, GroupUser> getAdministratorMemberships(UserName user, Set<GroupID> groupIDs)
+			throws GroupsStorageException, NoSuchGroupException;
+	
 	/** Check whether a group exists.
 	 * @param groupID the ID of the group.
 	 * @return true if the group exists, false otherwise.
@@ -97,7 +137,7 @@ public interface GroupsStorage {
 	List<GroupIDAndName> getMemberGroups(UserName user) throws GroupsStorageException;
 	
 	/** Get groups in the system, sorted by the group ID.
-	 * At most 100 groups are returned.
+	 * At most {@link GetGroupsParams#getLimit()} groups are returned.
 	 * @param params the parameters for getting the groups.
 	 * @param user an optional user. If no user is provided, only public groups are returned.
 	 * @return the groups.
@@ -105,6 +145,78 @@ public interface GroupsStorage {
 	 */
 	List<Group> getGroups(GetGroupsParams params, UserName user) throws GroupsStorageException;
 	
+	/** Get summaries of groups in the system, sorted by the group ID. The groups returned are
+	 * the same as those returned by {@link #getGroups(GetGroupsParams, UserName)}, but
+	 * member and resource lists are not retrieved from the storage system.
+	 * At most {@link GetGroupsParams#getLimit()} groups are returned.
+	 * @param params the parameters for getting the groups.
+	 * @param user an optional user. If no user is provided, only public groups are returned.
+	 * Otherwise, the user's role in each group is included in the summary.
+	 * @param resourceTypes the types of resources to count.
+	 * @return the group summaries.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupSummary> getGroupSummaries(
+			GetGroupsParams params,
+			UserName user,
+			Set<ResourceType> resourceTypes)
+			throws GroupsStorageException;
+	
+	/** Get summaries of the groups in the system that contain a resource, sorted by the group
+	 * ID. Only groups that would be returned by
+	 * {@link #getGroupSummaries(GetGroupsParams, UserName, Set)} are returned.
+	 * At most {@link GetGroupsParams#getLimit()} groups are returned.
+	 * @param type the type of the resource.
+	 * @param resource the ID of the resource.
+	 * @param params the parameters for getting the groups.
+	 * @param user an optional user. If no user is provided, only public groups are returned.
+	 * Otherwise, the user's role in each group is included in the summary.
+	 * @param resourceTypes the types of resources to count.
+	 * @return the group summaries.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupSummary> getGroupSummariesForResource(
+			ResourceType type,
+			ResourceID resource,
+			GetGroupsParams params,
+			UserName user,
+			Set<ResourceType> resourceTypes)
+			throws GroupsStorageException;
+	
+	/** Get summaries of groups, public and private, that have changed, sorted by the group
+	 * modification date and then the group ID. The summaries contain no user role.
+	 * At most {@link GetChangesParams#getLimit()} groups are returned.
+	 * @param params the parameters for getting the groups.
+	 * @param resourceTypes the types of resources to count.
+	 * @return the group summaries.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupSummary> getChangedGroupSummaries(
+			GetChangesParams params,
+			Set<ResourceType> resourceTypes)
+			throws GroupsStorageException;
+	
+	/** Search for groups by the text in the group name and the given custom fields.
+	 * Groups are returned in order of relevance, where the relevance is the number of matches
+	 * between the search terms and the terms in the name and custom fields (see
+	 * {@link GroupSearchTokens}), and then by the group ID. Groups that match no terms are not
+	 * returned.
+	 * At most {@link GroupSearchParams#getLimit()} groups are returned.
+	 * @param params the search parameters.
+	 * @param user an optional user. If no user is provided, only public groups are returned.
+	 * Otherwise, the user's role in each group is included in the summary.
+	 * @param resourceTypes the types of resources to count.
+	 * @param searchFields the custom fields to search in addition to the group name.
+	 * @return the group summaries.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupSummary> searchGroupSummaries(
+			GroupSearchParams params,
+			UserName user,
+			Set<ResourceType> resourceTypes,
+			Set<CustomField> searchFields)
+			throws GroupsStorageException;
+	
 	/** Add a member to a group.
 	 * @param groupID the ID of the group.
 	 * @param member the new member.
@@ -226,6 +338,29 @@ public interface GroupsStorage {
 	void storeRequest(GroupRequest request)
 			throws RequestExistsException, GroupsStorageException;
 	
+	/** Process all the requests in the system, open or closed, sorted by the request ID.
+	 * The requests are read from the storage system as they are processed rather than all at
+	 * once.
+	 * @param processor the processor for the requests.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 * @throws IOException if the processor throws an IOException. Processing stops.
+	 */
+	void processRequests(ItemProcessor<GroupRequest> processor)
+			throws GroupsStorageException, IOException;
+	
+	/** Store requests in bulk, typically requests exported from another storage system via
+	 * {@link #processRequests(ItemProcessor)}. The requests are stored in order. If a request
+	 * already exists, the requests preceding it in the list are stored and the remaining
+	 * requests are not.
+	 * @param requests the requests to store.
+	 * @throws RequestExistsException if a request with the same ID already exists, or if
+	 * an effectively identical request (see {@link #storeRequest(GroupRequest)}) already exists
+	 * in an {@link GroupRequestStatusType#OPEN} state.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void importRequests(List<GroupRequest> requests)
+			throws RequestExistsException, GroupsStorageException;
+	
 	/** Get a request.
 	 * @param requestID the ID of the request.
 	 * @return the request.
@@ -260,6 +395,15 @@ public interface GroupsStorage {
 			GetRequestsParams params)
 			throws GroupsStorageException;
 
+	/** Get requests, open or closed, that have changed, sorted by the request modification date
+	 * and then the request ID.
+	 * At most {@link GetChangesParams#getLimit()} requests are returned.
+	 * @param params the parameters for getting the requests.
+	 * @return the requests.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<GroupRequest> getChangedRequests(GetChangesParams params) throws GroupsStorageException;
+	
 	/** Get the open requests that target a group, sorted by the modification time of the request.
 	 * At most 100 requests are returned.
 	 * Requests that target a group are of type {@link RequestType#REQUEST}.
@@ -281,6 +425,18 @@ public interface GroupsStorage {
 	 */
 	boolean groupHasRequest(GroupID groupID, Instant laterThan) throws GroupsStorageException;
 	
+	/** Get the modification date of the most recent open incoming
+	 * (e.g. are {@link RequestType#REQUEST}s) request for each of a set of groups.
+	 * Since the modification date of a request does not change while the request is open,
+	 * this is also the creation date of the request.
+	 * @param groupIDs the IDs of the groups to check.
+	 * @return a mapping from the group ID to the date of the most recent open request. Groups
+	 * with no open requests, including nonexistent groups, are not included in the map.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	Map<GroupID, Instant> getLatestOpenRequestDates(Set<GroupID> groupIDs)
+			throws GroupsStorageException;
+	
 	/** Close a request. WARNING: this function will allow setting the modification time to
 	 * an earlier date than the creation time of the request, which will cause indeterminate
 	 * behavior. Don't do this.
@@ -296,4 +452,47 @@ public interface GroupsStorage {
 			GroupRequestStatus status,
 			Instant modificationTime)
 			throws NoSuchRequestException, GroupsStorageException;
+	
+	/** Store a notification that is to be sent. The notification is immediately available to
+	 * {@link #claimNotifications(int, Instant, Instant)}. The notification ID must not already
+	 * be present in the system.
+	 * @param notification the notification.
+	 * @throws IllegalArgumentException if the notification ID already exists.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void storeNotification(PendingNotification notification) throws GroupsStorageException;
+	
+	/** Claim notifications that are ready to be sent, ordered by the date they became ready.
+	 * Claimed notifications will not be returned by subsequent calls to this method until the
+	 * lease expires, at which point the notification will be returned again unless it has been
+	 * removed or rescheduled.
+	 * @param limit the maximum number of notifications to claim.
+	 * @param now the current time. Notifications ready on or before this time are claimed.
+	 * @param leaseExpiration the time the claim on the notifications expires.
+	 * @return the claimed notifications.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	List<PendingNotification> claimNotifications(
+			int limit,
+			Instant now,
+			Instant leaseExpiration)
+			throws GroupsStorageException;
+	
+	/** Reschedule a notification after a failed attempt to send it. Has no effect if the
+	 * notification does not exist.
+	 * @param id the ID of the notification.
+	 * @param attempts the number of failed attempts to send the notification.
+	 * @param nextAttempt the time at which the notification will become ready to be claimed
+	 * again.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void rescheduleNotification(UUID id, int attempts, Instant nextAttempt)
+			throws GroupsStorageException;
+	
+	/** Remove a notification, typically after it has been sent. Has no effect if the
+	 * notification does not exist.
+	 * @param id the ID of the notification.
+	 * @throws GroupsStorageException if an error occurs contacting the storage system.
+	 */
+	void removeNotification(UUID id) throws GroupsStorageException;
 }
@@ -0,0 +1,18 @@
+package us.kbase.groups.storage;
+
+import java.io.IOException;
+
+/** Processes items read from a {@link GroupsStorage} instance one at a time, allowing the
+ * storage system to stream large sets of items rather than loading them all into memory.
+ *
+ * @param <T> the type of the item.
+ */
+public interface ItemProcessor<T> {
+
+	/** Process an item.
+	 * @param item the item.
+	 * @throws IOException if an IO error occurs, typically while writing the item to an
+	 * output stream.
+	 */
+	void process(T item) throws IOException;
+}
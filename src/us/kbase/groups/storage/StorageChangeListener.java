@@ -0,0 +1,28 @@
+package us.kbase.groups.storage;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.request.RequestID;
+
+/** A listener for changes to the data in a {@link GroupsStorage} instance, usually made by
+ * another instance of the service sharing the same storage system. Listeners are typically
+ * caches that need to discard data when it changes.
+ *
+ * Implementations must be thread safe and should return quickly.
+ */
+public interface StorageChangeListener {
+
+	/** Called when a group has been created or changed.
+	 * @param groupID the ID of the group.
+	 */
+	void groupChanged(GroupID groupID);
+	
+	/** Called when a request has been created or changed.
+	 * @param requestID the ID of the request.
+	 */
+	void requestChanged(RequestID requestID);
+	
+	/** Called when any data may have changed, for example when a change cannot be mapped to
+	 * a group or request or when changes may have been missed.
+	 */
+	void allChanged();
+}
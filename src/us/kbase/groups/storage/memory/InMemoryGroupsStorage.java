@@ -0,0 +1,1465 @@
+package us.kbase.groups.storage.memory;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.Objects.requireNonNull;
+import static us.kbase.groups.util.Util.checkNoNullsInCollection;
+
+import java.io.IOException;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GetChangesParams;
+import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.groups.core.GetRequestsParams;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.Group.Role;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupIDAndName;
+import us.kbase.groups.core.GroupIDNameMembership;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.GroupSearchTokens;
+import us.kbase.groups.core.GroupSummary;
+import us.kbase.groups.core.GroupUpdateParams;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.OptionalGroupFields;
+import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.GroupExistsException;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.NoSuchUserException;
+import us.kbase.groups.core.exceptions.RequestExistsException;
+import us.kbase.groups.core.exceptions.ResourceExistsException;
+import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.PendingNotification;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.GroupRequestStatusType;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.request.RequestType;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.ItemProcessor;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+
+/** A {@link GroupsStorage} implementation that keeps all data in memory. All data is lost
+ * when the instance is garbage collected.
+ *
+ * The implementation follows the same contract as the MongoDB implementation, and is intended
+ * for load testing the API layer without a database and as a reference point for benchmarks.
+ *
+ * Groups, requests, and notifications are each guarded by their own read / write lock, so
+ * reads proceed concurrently while writes to each data set are serialized.
+ */
+public class InMemoryGroupsStorage implements GroupsStorage {
+
+	private static final int MAX_MEMBER_GROUPS = 100000;
+	private static final int MAX_REQUESTS = 100;
+	private static final long EXPIRATION_AGENT_FREQUENCY_SEC = 60;
+	
+	// groups are keyed by the ID string so they sort the same way as in MongoDB
+	private final TreeMap<String, GroupRecord> groups = new TreeMap<>();
+	private final Map<UserName, SortedSet<String>> groupsByMember = new HashMap<>();
+	// group IDs keyed by the resource type and resource ID
+	private final Map<List<String>, Set<String>> groupsByResource = new HashMap<>();
+	private final ReadWriteLock groupsLock = new ReentrantReadWriteLock();
+	
+	private final Map<RequestID, GroupRequest> requests = new HashMap<>();
+	private final Map<UserName, Set<RequestID>> requestsByRequester = new HashMap<>();
+	// invites, keyed by the resource type and administrative ID of the target
+	private final Map<List<String>, Set<RequestID>> invitesByTarget = new HashMap<>();
+	// requests to join a group, e.g. requests of type REQUEST
+	private final Map<GroupID, Set<RequestID>> requestsByGroup = new HashMap<>();
+	// open requests only. See getCharacteristics()
+	private final Map<List<String>, RequestID> openRequestsByCharacteristics = new HashMap<>();
+	private final TreeMap<Instant, Set<RequestID>> openRequestsByExpiration = new TreeMap<>();
+	private final ReadWriteLock requestsLock = new ReentrantReadWriteLock();
+	
+	private final Map<UUID, PendingNotification> notifications = new HashMap<>();
+	private final Map<UUID, Instant> notificationNextAttempt = new HashMap<>();
+	private final TreeMap<Instant, Set<UUID>> notificationsByNextAttempt = new TreeMap<>();
+	private final ReadWriteLock notificationsLock = new ReentrantReadWriteLock();
+	
+	private ScheduledExecutorService executor;
+	private boolean expirationAgentRunning = false;
+	
+	private final Clock clock;
+	
+	/** Create in memory storage for the Groups application.
+	 */
+	public InMemoryGroupsStorage() {
+		this(Clock.systemDefaultZone());
+	}
+	
+	// for tests
+	private InMemoryGroupsStorage(final Clock clock) {
+		this.clock = clock;
+		startExpirationAgent(EXPIRATION_AGENT_FREQUENCY_SEC);
+	}
+	
+	/** Schedule the request expiration agent with the given period between expirations.
+	 * The agent calls {@link #expireRequests(Instant)}
+	 * every periodInSeconds with the current {@link Instant} from a {@link Clock#instant()}.
+	 * @param periodInSeconds how often the reaper runs.
+	 * @throws IllegalArgumentException if the reaper is already running or the period is less
+	 * than or equal to zero.
+	 */
+	public synchronized void startExpirationAgent(long periodInSeconds) {
+		if (expirationAgentRunning) {
+			throw new IllegalArgumentException("The expiration agent is already running");
+		}
+		if (periodInSeconds <= 0) {
+			throw new IllegalArgumentException("periodInSeconds must be > 0");
+		}
+		expirationAgentRunning = true;
+		// daemon threads so that a forgotten storage instance doesn't keep the JVM alive
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+				.setDaemon(true).setNameFormat("in-memory-expiration-agent-%d").build());
+		executor.scheduleAtFixedRate(
+				new ExpirationAgent(), 0, periodInSeconds, TimeUnit.SECONDS);
+	}
+	
+	/** Returns true if the expiration agent is running, false otherwise.
+	 * @return true if the agent is running.
+	 */
+	public synchronized boolean isExpirationAgentRunning() {
+		return expirationAgentRunning;
+	}
+	
+	/** Stops the expiration agent from running again. Call {@link #startExpirationAgent(long)}
+	 * to restart the agent.
+	 * Calling this method multiple times in succession has no effect.
+	 */
+	public synchronized void stopExpirationAgent() {
+		executor.shutdown();
+		expirationAgentRunning = false;
+	}
+	
+	private class ExpirationAgent implements Runnable {
+	
+		@Override
+		public void run() {
+			try {
+				LoggerFactory.getLogger(getClass()).info("Running expiration agent");
+				expireRequests(clock.instant());
+			} catch (Throwable e) {
+				LoggerFactory.getLogger(getClass())
+						.error("Error expiring requests: " + e.getMessage(), e);
+			}
+		}
+	}
+	
+	/* The mutable equivalent of a group document in the MongoDB implementation.
+	 * Only accessed while holding the groups lock.
+	 */
+	private static class GroupRecord {
+	
+		private final GroupID id;
+		private final UserName owner;
+		private final Instant creation;
+		private GroupName name;
+		private boolean isPrivate;
+		private boolean privateMemberList;
+		private Instant modification;
+		// includes the owner and admins
+		private final Map<UserName, GroupUser> members = new HashMap<>();
+		private final Set<UserName> admins = new HashSet<>();
+		private final Map<ResourceType, Map<ResourceID, ResourceDescriptor>> resources =
+				new HashMap<>();
+		private final Map<ResourceType, Map<ResourceID, Instant>> resourceAdded =
+				new HashMap<>();
+		private final Map<NumberedCustomField, String> customFields = new HashMap<>();
+		private Set<String> searchTokens;
+		
+		private GroupRecord(final Group group) {
+			id = group.getGroupID();
+			owner = group.getOwner();
+			creation = group.getCreationDate();
+			name = group.getGroupName();
+			isPrivate = group.isPrivate();
+			privateMemberList = group.isPrivateMemberList();
+			modification = group.getModificationDate();
+			for (final UserName u: group.getAllMembers()) {
+				members.put(u, group.getMember(u));
+			}
+			admins.addAll(group.getAdministrators());
+			for (final ResourceType t: group.getResourceTypes()) {
+				for (final ResourceDescriptor d: group.getResources(t)) {
+					addResource(t, d, group.getResourceAddDate(t, d.getResourceID())
+							.orElse(null));
+				}
+			}
+			customFields.putAll(group.getCustomFields());
+			updateSearchTokens();
+		}
+		
+		private void updateSearchTokens() {
+			searchTokens = GroupSearchTokens.getGroupTokens(name, customFields);
+		}
+		
+		private int getRelevance(final Set<String> queryTokens) {
+			int relevance = 0;
+			for (final String t: queryTokens) {
+				if (searchTokens.contains(t)) {
+					relevance++;
+				}
+			}
+			return relevance;
+		}
+		
+		private boolean containsResource(final ResourceType type, final ResourceID resource) {
+			return resources.containsKey(type) && resources.get(type).containsKey(resource);
+		}
+		
+		// added may be null
+		private void addResource(
+				final ResourceType type,
+				final ResourceDescriptor resource,
+				final Instant added) {
+			if (!resources.containsKey(type)) {
+				resources.put(type, new HashMap<>());
+				resourceAdded.put(type, new HashMap<>());
+			}
+			resources.get(type).put(resource.getResourceID(), resource);
+			resourceAdded.get(type).put(resource.getResourceID(), added);
+		}
+		
+		private void removeResource(final ResourceType type, final ResourceID resource) {
+			resources.get(type).remove(resource);
+			resourceAdded.get(type).remove(resource);
+			if (resources.get(type).isEmpty()) {
+				resources.remove(type);
+				resourceAdded.remove(type);
+			}
+		}
+		
+		private Group toGroup() throws GroupsStorageException {
+			try {
+				final Group.Builder b = Group.getBuilder(
+						id, name, members.get(owner), new CreateAndModTimes(creation, modification))
+						.withIsPrivate(isPrivate)
+						.withPrivateMemberList(privateMemberList);
+				for (final GroupUser u: members.values()) {
+					if (admins.contains(u.getName())) {
+						b.withAdministrator(u);
+					} else if (!owner.equals(u.getName())) {
+						b.withMember(u);
+					}
+				}
+				for (final ResourceType t: resources.keySet()) {
+					for (final ResourceID r: resources.get(t).keySet()) {
+						b.withResource(t, resources.get(t).get(r), resourceAdded.get(t).get(r));
+					}
+				}
+				customFields.entrySet().stream().forEach(
+						e -> b.withCustomField(e.getKey(), e.getValue()));
+				return b.build();
+			} catch (IllegalArgumentException e) {
+				// the modification date was set prior to the creation date.
+				throw new GroupsStorageException("Unexpected value in storage: " +
+						e.getMessage(), e);
+			}
+		}
+		
+		private GroupSummary toSummary(
+				final UserName user,
+				final Set<ResourceType> resourceTypes)
+				throws GroupsStorageException {
+			try {
+				final GroupSummary.Builder b = GroupSummary.getBuilder(
+						id, name, owner, new CreateAndModTimes(creation, modification),
+						members.size())
+						.withIsPrivate(isPrivate);
+				for (final ResourceType t: resourceTypes) {
+					if (resources.containsKey(t)) {
+						b.withResourceCount(t, resources.get(t).size());
+					}
+				}
+				if (user != null && members.containsKey(user)) {
+					final Role role;
+					if (owner.equals(user)) {
+						role = Role.OWNER;
+					} else if (admins.contains(user)) {
+						role = Role.ADMIN;
+					} else {
+						role = Role.MEMBER;
+					}
+					b.withUserRole(role, members.get(user).getLastVisit().orElse(null));
+				}
+				customFields.entrySet().stream().forEach(
+						e -> b.withCustomField(e.getKey(), e.getValue()));
+				return b.build();
+			} catch (IllegalArgumentException e) {
+				throw new GroupsStorageException("Unexpected value in storage: " +
+						e.getMessage(), e);
+			}
+		}
+	}
+	
+	@Override
+	public void createGroup(final Group group)
+			throws GroupExistsException, GroupsStorageException {
+		checkNotNull(group, "group");
+		groupsLock.writeLock().lock();
+		try {
+			if (groups.containsKey(group.getGroupID().getName())) {
+				throw new GroupExistsException(group.getGroupID().getName());
+			}
+			groups.put(group.getGroupID().getName(), new GroupRecord(group));
+			for (final UserName u: group.getAllMembers()) {
+				indexMember(u, group.getGroupID());
+			}
+			for (final ResourceType t: group.getResourceTypes()) {
+				for (final ResourceDescriptor rd: group.getResources(t)) {
+					addToIndex(groupsByResource, getResourceKey(t, rd.getResourceID()),
+							group.getGroupID().getName());
+				}
+			}
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	private void indexMember(final UserName user, final GroupID groupID) {
+		if (!groupsByMember.containsKey(user)) {
+			groupsByMember.put(user, new TreeSet<>());
+		}
+		groupsByMember.get(user).add(groupID.getName());
+	}
+	
+	private void unindexMember(final UserName user, final GroupID groupID) {
+		final SortedSet<String> gids = groupsByMember.get(user);
+		gids.remove(groupID.getName());
+		if (gids.isEmpty()) {
+			groupsByMember.remove(user);
+		}
+	}
+	
+	// must hold the groups lock
+	private GroupRecord getGroupRecord(final GroupID groupID) throws NoSuchGroupException {
+		requireNonNull(groupID, "groupID");
+		final GroupRecord g = groups.get(groupID.getName());
+		if (g == null) {
+			throw new NoSuchGroupException(groupID.getName());
+		}
+		return g;
+	}
+	
+	@Override
+	public void updateGroup(final GroupUpdateParams update, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException {
+		checkNotNull(update, "update");
+		checkNotNull(modDate, "modDate");
+		if (!update.hasUpdate()) {
+			return;
+		}
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupRecord(update.getGroupID());
+			// as with MongoDB, the modification date is only changed if the group changes
+			boolean modified = false;
+			if (update.getGroupName().isPresent() &&
+					!update.getGroupName().get().equals(g.name)) {
+				g.name = update.getGroupName().get();
+				modified = true;
+			}
+			final OptionalGroupFields opts = update.getOptionalFields();
+			if (opts.isPrivate().isPresent() && opts.isPrivate().get() != g.isPrivate) {
+				g.isPrivate = opts.isPrivate().get();
+				modified = true;
+			}
+			if (opts.isPrivateMemberList().isPresent() &&
+					opts.isPrivateMemberList().get() != g.privateMemberList) {
+				g.privateMemberList = opts.isPrivateMemberList().get();
+				modified = true;
+			}
+			for (final NumberedCustomField f: opts.getCustomFields()) {
+				modified = updateCustomField(g.customFields, f, opts.getCustomValue(f))
+						|| modified;
+			}
+			if (modified) {
+				g.modification = modDate;
+				g.updateSearchTokens();
+			}
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	// returns true if the fields were modified.
+	private boolean updateCustomField(
+			final Map<NumberedCustomField, String> fields,
+			final NumberedCustomField field,
+			final OptionalString value) {
+		if (Objects.equals(fields.get(field), value.orNull())) {
+			return false;
+		}
+		if (value.isPresent()) {
+			fields.put(field, value.get());
+		} else {
+			fields.remove(field);
+		}
+		return true;
+	}
+	
+	@Override
+	public Group getGroup(final GroupID groupID)
+			throws GroupsStorageException, NoSuchGroupException {
+		groupsLock.readLock().lock();
+		try {
+			return getGroupRecord(groupID).toGroup();
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public void processGroups(final ItemProcessor<Group> processor)
+			throws GroupsStorageException, IOException {
+		requireNonNull(processor, "processor");
+		/* The lock isn't held while the processor runs, so as with a MongoDB cursor, groups
+		 * created or changed during processing may or may not be included.
+		 */
+		Group g = getNextGroup(null);
+		while (g != null) {
+			processor.process(g);
+			g = getNextGroup(g.getGroupID().getName());
+		}
+	}
+	
+	// returns the first group with an ID after the given ID, or the first group if null
+	private Group getNextGroup(final String after) throws GroupsStorageException {
+		groupsLock.readLock().lock();
+		try {
+			final Entry<String, GroupRecord> e = after == null ?
+					groups.firstEntry() : groups.higherEntry(after);
+			return e == null ? null : e.getValue().toGroup();
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public void importGroups(final List<Group> groups)
+			throws GroupExistsException, GroupsStorageException {
+		checkNoNullsInCollection(groups, "groups");
+		for (final Group g: groups) {
+			createGroup(g);
+		}
+	}
+	
+	@Override
+	public List<GroupIDNameMembership> getGroupNames(
+			final UserName user,
+			final Set<GroupID> groupIDs)
+			throws GroupsStorageException, NoSuchGroupException {
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final List<GroupIDNameMembership> ret = new LinkedList<>();
+		groupsLock.readLock().lock();
+		try {
+			for (final GroupID gid: groupIDs) {
+				getGroupRecord(gid); // throws no such group
+			}
+			for (final GroupID gid: sortByID(groupIDs)) {
+				final GroupRecord g = groups.get(gid.getName());
+				ret.add(GroupIDNameMembership.getBuilder(g.id)
+						.withGroupName(g.name)
+						.withIsMember(user != null && g.members.containsKey(user))
+						.withIsPrivate(g.isPrivate)
+						.build());
+			}
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+		return ret;
+	}
+	
+	private List<GroupID> sortByID(final Set<GroupID> groupIDs) {
+		return groupIDs.stream().sorted(Comparator.comparing(g -> g.getName()))
+				.collect(Collectors.toList());
+	}
+	
+	@Override
+	public Map<GroupID, GroupUser> getAdministratorMemberships(
+			final UserName user,
+			final Set<GroupID> groupIDs)
+			throws GroupsStorageException, NoSuchGroupException {
+		requireNonNull(user, "user");
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final Map<GroupID, GroupUser> ret = new HashMap<>();
+		groupsLock.readLock().lock();
+		try {
+			for (final GroupID gid: groupIDs) {
+				final GroupRecord g = getGroupRecord(gid);
+				if (g.owner.equals(user) || g.admins.contains(user)) {
+					ret.put(gid, g.members.get(user));
+				}
+			}
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+		return ret;
+	}
+	
+	@Override
+	public boolean getGroupExists(final GroupID groupID) throws GroupsStorageException {
+		requireNonNull(groupID, "groupID");
+		groupsLock.readLock().lock();
+		try {
+			return groups.containsKey(groupID.getName());
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<GroupIDAndName> getMemberGroups(final UserName user)
+			throws GroupsStorageException {
+		requireNonNull(user, "user");
+		final List<GroupIDAndName> ret = new LinkedList<>();
+		groupsLock.readLock().lock();
+		try {
+			if (groupsByMember.containsKey(user)) {
+				for (final String gid: groupsByMember.get(user)) {
+					if (ret.size() >= MAX_MEMBER_GROUPS) {
+						break;
+					}
+					final GroupRecord g = groups.get(gid);
+					ret.add(GroupIDAndName.of(g.id, g.name));
+				}
+			}
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+		return ret;
+	}
+	
+	@Override
+	public List<Group> getGroups(final GetGroupsParams params, final UserName user)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		final List<Group> ret = new LinkedList<>();
+		groupsLock.readLock().lock();
+		try {
+			for (final GroupRecord g: getGroupRecords(params, user)) {
+				ret.add(g.toGroup());
+			}
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+		return ret;
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummaries(
+			final GetGroupsParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		checkNoNullsInCollection(resourceTypes, "resourceTypes");
+		final List<GroupSummary> ret = new LinkedList<>();
+		groupsLock.readLock().lock();
+		try {
+			for (final GroupRecord g: getGroupRecords(params, user)) {
+				ret.add(g.toSummary(user, resourceTypes));
+			}
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+		return ret;
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummariesForResource(
+			final ResourceType type,
+			final ResourceID resource,
+			final GetGroupsParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		requireNonNull(type, "type");
+		requireNonNull(resource, "resource");
+		requireNonNull(params, "params");
+		checkNoNullsInCollection(resourceTypes, "resourceTypes");
+		final List<GroupSummary> ret = new LinkedList<>();
+		groupsLock.readLock().lock();
+		try {
+			NavigableSet<String> view = new TreeSet<>(groupsByResource.getOrDefault(
+					getResourceKey(type, resource), Collections.emptySet()));
+			if (params.getExcludeUpTo().isPresent()) {
+				final String excludeUpTo = params.getExcludeUpTo().get();
+				view = params.isSortAscending() ?
+						view.tailSet(excludeUpTo, false) : view.headSet(excludeUpTo, false);
+			}
+			if (!params.isSortAscending()) {
+				view = view.descendingSet();
+			}
+			for (final String id: view) {
+				if (ret.size() >= params.getLimit()) {
+					break;
+				}
+				final GroupRecord g = groups.get(id);
+				if (isVisible(g, user)) {
+					ret.add(g.toSummary(user, resourceTypes));
+				}
+			}
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+		return ret;
+	}
+	
+	@Override
+	public List<GroupSummary> searchGroupSummaries(
+			final GroupSearchParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes,
+			final Set<CustomField> searchFields)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		checkNoNullsInCollection(resourceTypes, "resourceTypes");
+		checkNoNullsInCollection(searchFields, "searchFields");
+		final Set<String> tokens = GroupSearchTokens.getQueryTokens(
+				params.getTerms(), searchFields);
+		final Comparator<String> idOrder = params.isSortAscending() ?
+				Comparator.naturalOrder() : Comparator.reverseOrder();
+		groupsLock.readLock().lock();
+		try {
+			final Map<GroupRecord, Integer> relevance = new HashMap<>();
+			for (final GroupRecord g: groups.values()) {
+				if (isVisible(g, user)) {
+					final int r = g.getRelevance(tokens);
+					if (r > 0) {
+						relevance.put(g, r);
+					}
+				}
+			}
+			final List<GroupRecord> hits = relevance.keySet().stream()
+					.sorted(Comparator.<GroupRecord, Integer>comparing(g -> relevance.get(g))
+							.reversed()
+							.thenComparing(g -> g.id.getName(), idOrder))
+					.skip(params.getOffset())
+					.limit(params.getLimit())
+					.collect(Collectors.toList());
+			final List<GroupSummary> ret = new LinkedList<>();
+			for (final GroupRecord g: hits) {
+				ret.add(g.toSummary(user, resourceTypes));
+			}
+			return ret;
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<GroupSummary> getChangedGroupSummaries(
+			final GetChangesParams params,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		checkNoNullsInCollection(resourceTypes, "resourceTypes");
+		groupsLock.readLock().lock();
+		try {
+			final List<GroupRecord> changed = groups.values().stream()
+					.filter(g -> isChanged(g.modification, g.id.getName(), params))
+					.sorted(Comparator.comparing((GroupRecord g) -> g.modification)
+							.thenComparing(g -> g.id.getName()))
+					.limit(params.getLimit())
+					.collect(Collectors.toList());
+			final List<GroupSummary> ret = new LinkedList<>();
+			for (final GroupRecord g: changed) {
+				ret.add(g.toSummary(null, resourceTypes));
+			}
+			return ret;
+		} finally {
+			groupsLock.readLock().unlock();
+		}
+	}
+	
+	private static boolean isChanged(
+			final Instant modification,
+			final String id,
+			final GetChangesParams params) {
+		if (!params.getAfter().isPresent()) {
+			return true;
+		}
+		final Instant after = params.getAfter().get();
+		return modification.isAfter(after) || (modification.equals(after) &&
+				params.getAfterID().isPresent() && id.compareTo(params.getAfterID().get()) > 0);
+	}
+	
+	private boolean isVisible(final GroupRecord g, final UserName user) {
+		return !g.isPrivate || (user != null && g.members.containsKey(user));
+	}
+	
+	// must hold the groups lock
+	private List<GroupRecord> getGroupRecords(final GetGroupsParams params, final UserName user) {
+		NavigableMap<String, GroupRecord> view = groups;
+		if (params.getExcludeUpTo().isPresent()) {
+			final String excludeUpTo = params.getExcludeUpTo().get();
+			view = params.isSortAscending() ?
+					view.tailMap(excludeUpTo, false) : view.headMap(excludeUpTo, false);
+		}
+		if (!params.isSortAscending()) {
+			view = view.descendingMap();
+		}
+		final List<GroupRecord> ret = new LinkedList<>();
+		for (final GroupRecord g: view.values()) {
+			if (ret.size() >= params.getLimit()) {
+				break;
+			}
+			if (isVisible(g, user)) {
+				ret.add(g);
+			}
+		}
+		return ret;
+	}
+	
+	@Override
+	public void addMember(final GroupID groupID, final GroupUser member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException {
+		requireNonNull(member, "member");
+		requireNonNull(groupID, "groupID");
+		requireNonNull(modDate, "modDate");
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupRecord(groupID);
+			final UserName name = member.getName();
+			if (g.owner.equals(name)) {
+				throw new UserIsMemberException(String.format(
+						"User %s is the owner of group %s", name.getName(), groupID.getName()));
+			} else if (g.admins.contains(name)) {
+				throw new UserIsMemberException(String.format(
+						"User %s is an administrator of group %s",
+						name.getName(), groupID.getName()));
+			} else if (g.members.containsKey(name)) {
+				throw new UserIsMemberException(String.format(
+						"User %s is already a member of group %s",
+						name.getName(), groupID.getName()));
+			}
+			g.members.put(name, member);
+			g.modification = modDate;
+			indexMember(name, groupID);
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void removeMember(final GroupID groupID, final UserName member, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(member, "member");
+		checkNotNull(groupID, "groupID");
+		checkNotNull(modDate, "modDate");
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupRecord(groupID);
+			if (g.owner.equals(member) || g.admins.contains(member) ||
+					!g.members.containsKey(member)) {
+				throw new NoSuchUserException(String.format("No member %s in group %s",
+						member.getName(), groupID.getName()));
+			}
+			g.members.remove(member);
+			g.modification = modDate;
+			unindexMember(member, groupID);
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void addAdmin(final GroupID groupID, final UserName admin, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException,
+				NoSuchUserException {
+		requireNonNull(admin, "admin");
+		requireNonNull(groupID, "groupID");
+		requireNonNull(modDate, "modDate");
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupRecord(groupID);
+			if (g.owner.equals(admin)) {
+				throw new UserIsMemberException(String.format(
+						"User %s is the owner of group %s", admin.getName(), groupID.getName()));
+			} else if (g.admins.contains(admin)) {
+				throw new UserIsMemberException(String.format(
+						"User %s is already an administrator of group %s",
+						admin.getName(), groupID.getName()));
+			} else if (!g.members.containsKey(admin)) {
+				throw new NoSuchUserException(String.format(
+						"User %s must be a member of group %s before admin promotion",
+						admin.getName(), groupID.getName()));
+			}
+			g.admins.add(admin);
+			g.modification = modDate;
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void demoteAdmin(final GroupID groupID, final UserName admin, final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(admin, "admin");
+		checkNotNull(groupID, "groupID");
+		checkNotNull(modDate, "modDate");
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupRecord(groupID);
+			if (!g.admins.contains(admin)) {
+				throw new NoSuchUserException(String.format("No administrator %s in group %s",
+						admin.getName(), groupID.getName()));
+			}
+			g.admins.remove(admin);
+			g.modification = modDate;
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void updateUser(
+			final GroupID groupID,
+			final UserName member,
+			final Map<NumberedCustomField, OptionalString> fields,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		requireNonNull(groupID, "groupID");
+		requireNonNull(member, "member");
+		requireNonNull(fields, "fields");
+		requireNonNull(modDate, "modDate");
+		for (final Entry<NumberedCustomField, OptionalString> e: fields.entrySet()) {
+			requireNonNull(e.getKey(), "Null key in fields");
+			requireNonNull(e.getValue(), String.format("Null value for key %s in fields",
+					e.getKey().getField()));
+		}
+		if (fields.isEmpty()) {
+			return;
+		}
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupMemberRecord(groupID, member);
+			final GroupUser u = g.members.get(member);
+			final Map<NumberedCustomField, String> userFields = new HashMap<>(
+					u.getCustomFields());
+			boolean modified = false;
+			for (final NumberedCustomField f: fields.keySet()) {
+				modified = updateCustomField(userFields, f, fields.get(f)) || modified;
+			}
+			if (modified) {
+				g.members.put(member, copyUser(u, userFields, u.getLastVisit().orElse(null)));
+				g.modification = modDate;
+			}
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	// must hold the groups lock
+	private GroupRecord getGroupMemberRecord(final GroupID groupID, final UserName member)
+			throws NoSuchGroupException, NoSuchUserException {
+		final GroupRecord g = getGroupRecord(groupID);
+		if (!g.members.containsKey(member)) {
+			throw new NoSuchUserException(String.format(
+					"User %s is not a member of group %s",
+					member.getName(), groupID.getName()));
+		}
+		return g;
+	}
+	
+	private GroupUser copyUser(
+			final GroupUser user,
+			final Map<NumberedCustomField, String> fields,
+			final Instant lastVisit) {
+		final GroupUser.Builder b = GroupUser.getBuilder(user.getName(), user.getJoinDate())
+				.withNullableLastVisit(lastVisit);
+		fields.entrySet().stream().forEach(e -> b.withCustomField(e.getKey(), e.getValue()));
+		return b.build();
+	}
+	
+	@Override
+	public void updateUser(
+			final GroupID groupID,
+			final UserName member,
+			final Instant lastVisited)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		requireNonNull(groupID, "groupID");
+		requireNonNull(member, "member");
+		requireNonNull(lastVisited, "lastVisited");
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupMemberRecord(groupID, member);
+			final GroupUser u = g.members.get(member);
+			g.members.put(member, copyUser(u, u.getCustomFields(), lastVisited));
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void addResource(
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceDescriptor resource,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, ResourceExistsException {
+		checkNotNull(resource, "resource");
+		checkResourceModParams(groupID, type, modDate);
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupRecord(groupID);
+			// resource IDs should always have the same admin ID, so only check the resource ID
+			if (g.containsResource(type, resource.getResourceID())) {
+				throw new ResourceExistsException(String.format("%s %s",
+						type.getName(), resource.getResourceID().getName()));
+			}
+			g.addResource(type, resource, modDate);
+			g.modification = modDate;
+			addToIndex(groupsByResource, getResourceKey(type, resource.getResourceID()),
+					groupID.getName());
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	private void checkResourceModParams(
+			final GroupID groupID,
+			final ResourceType type,
+			final Instant modDate) {
+		checkNotNull(groupID, "groupID");
+		checkNotNull(type, "type");
+		checkNotNull(modDate, "modDate");
+	}
+	
+	@Override
+	public void removeResource(
+			final GroupID groupID,
+			final ResourceType type,
+			final ResourceID resource,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchResourceException {
+		checkNotNull(resource, "resource");
+		checkResourceModParams(groupID, type, modDate);
+		groupsLock.writeLock().lock();
+		try {
+			final GroupRecord g = getGroupRecord(groupID);
+			if (!g.containsResource(type, resource)) {
+				throw new NoSuchResourceException(String.format(
+						"Group %s does not include %s %s",
+						groupID.getName(), type.getName(), resource.getName()));
+			}
+			g.removeResource(type, resource);
+			g.modification = modDate;
+			removeFromIndex(groupsByResource, getResourceKey(type, resource), groupID.getName());
+		} finally {
+			groupsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void storeRequest(final GroupRequest request)
+			throws RequestExistsException, GroupsStorageException {
+		checkNotNull(request, "request");
+		requestsLock.writeLock().lock();
+		try {
+			if (requests.containsKey(request.getID())) {
+				throw new IllegalArgumentException(String.format("ID %s already exists " +
+						"in the database. The programmer is responsible for maintaining " +
+						"unique IDs.", request.getID().getID()));
+			}
+			final List<String> chars = getCharacteristics(request);
+			if (chars != null && openRequestsByCharacteristics.containsKey(chars)) {
+				throw new RequestExistsException("Request exists with ID: " +
+						openRequestsByCharacteristics.get(chars).getID());
+			}
+			requests.put(request.getID(), request);
+			addToIndex(requestsByRequester, request.getRequester(), request.getID());
+			if (request.getType().equals(RequestType.INVITE)) {
+				addToIndex(invitesByTarget, getTargetKey(request.getResourceType(),
+						request.getResource().getAdministrativeID()), request.getID());
+			} else if (request.getType().equals(RequestType.REQUEST)) {
+				addToIndex(requestsByGroup, request.getGroupID(), request.getID());
+			}
+			if (chars != null) {
+				openRequestsByCharacteristics.put(chars, request.getID());
+				addToIndex(openRequestsByExpiration, request.getExpirationDate(), request.getID());
+			}
+		} finally {
+			requestsLock.writeLock().unlock();
+		}
+	}
+	
+	private <K, V> void addToIndex(final Map<K, Set<V>> index, final K key, final V value) {
+		if (!index.containsKey(key)) {
+			index.put(key, new HashSet<>());
+		}
+		index.get(key).add(value);
+	}
+	
+	private <K, V> void removeFromIndex(final Map<K, Set<V>> index, final K key, final V value) {
+		final Set<V> values = index.get(key);
+		values.remove(value);
+		if (values.isEmpty()) {
+			index.remove(key);
+		}
+	}
+	
+	private List<String> getResourceKey(final ResourceType type, final ResourceID resource) {
+		return Arrays.asList(type.getName(), resource.getName());
+	}
+	
+	private List<String> getTargetKey(
+			final ResourceType type,
+			final ResourceAdministrativeID adminID) {
+		return Arrays.asList(type.getName(), adminID.getName());
+	}
+	
+	/* The equivalent of the characteristic string in the MongoDB implementation.
+	 * The fields used are the group id, the requester, the type, and the target. Only open
+	 * requests are characterized, which prevents users from opening more than one request
+	 * for the same thing, but allows new requests to be submitted if the open request is
+	 * closed.
+	 */
+	private List<String> getCharacteristics(final GroupRequest request) {
+		if (!request.getStatusType().equals(GroupRequestStatusType.OPEN)) {
+			return null;
+		}
+		// since knowing the resource ID means we know the admin ID, no need to include it
+		return Arrays.asList(
+				request.getGroupID().getName(),
+				request.getRequester().getName(),
+				request.getType().name(),
+				request.getResourceType().getName(),
+				request.getResource().getResourceID().getName());
+	}
+	
+	@Override
+	public GroupRequest getRequest(final RequestID requestID)
+			throws NoSuchRequestException, GroupsStorageException {
+		checkNotNull(requestID, "requestID");
+		requestsLock.readLock().lock();
+		try {
+			final GroupRequest req = requests.get(requestID);
+			if (req == null) {
+				throw new NoSuchRequestException(requestID.getID());
+			}
+			return req;
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public void processRequests(final ItemProcessor<GroupRequest> processor)
+			throws GroupsStorageException, IOException {
+		requireNonNull(processor, "processor");
+		final List<RequestID> ids;
+		requestsLock.readLock().lock();
+		try {
+			ids = requests.keySet().stream().sorted(Comparator.comparing(r -> r.getID()))
+					.collect(Collectors.toList());
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+		for (final RequestID id: ids) {
+			final GroupRequest r;
+			requestsLock.readLock().lock();
+			try {
+				// requests are never deleted, so the request is always present
+				r = requests.get(id);
+			} finally {
+				requestsLock.readLock().unlock();
+			}
+			processor.process(r);
+		}
+	}
+	
+	@Override
+	public void importRequests(final List<GroupRequest> requests)
+			throws RequestExistsException, GroupsStorageException {
+		checkNoNullsInCollection(requests, "requests");
+		for (final GroupRequest r: requests) {
+			requestsLock.writeLock().lock();
+			try {
+				if (this.requests.containsKey(r.getID())) {
+					throw new RequestExistsException("Request exists with ID: " +
+							r.getID().getID());
+				}
+				storeRequest(r);
+			} finally {
+				requestsLock.writeLock().unlock();
+			}
+		}
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByRequester(
+			final UserName requester,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		checkNotNull(requester, "requester");
+		checkNotNull(params, "params");
+		requestsLock.readLock().lock();
+		try {
+			return findRequests(requestsByRequester.get(requester), params);
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByTarget(
+			final UserName target,
+			final Map<ResourceType, Set<ResourceAdministrativeID>> resources,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		checkNotNull(target, "target");
+		checkNotNull(resources, "resources");
+		final List<List<String>> keys = new LinkedList<>();
+		keys.add(Arrays.asList(GroupRequest.USER_TYPE.getName(), target.getName()));
+		for (final ResourceType t: resources.keySet()) {
+			checkNotNull(t, "null key in resources");
+			checkNoNullsInCollection(resources.get(t), "resources key " + t.getName() + " value");
+			if (resources.get(t).isEmpty()) {
+				throw new IllegalArgumentException("No resource IDs for key " + t.getName());
+			}
+			for (final ResourceAdministrativeID aid: resources.get(t)) {
+				keys.add(getTargetKey(t, aid));
+			}
+		}
+		checkNotNull(params, "params");
+		requestsLock.readLock().lock();
+		try {
+			final Set<RequestID> ids = new HashSet<>();
+			for (final List<String> key: keys) {
+				if (invitesByTarget.containsKey(key)) {
+					ids.addAll(invitesByTarget.get(key));
+				}
+			}
+			return findRequests(ids, params);
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<GroupRequest> getChangedRequests(final GetChangesParams params)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		requestsLock.readLock().lock();
+		try {
+			return requests.values().stream()
+					.filter(r -> isChanged(r.getModificationDate(), r.getID().getID(), params))
+					.sorted(Comparator.comparing((GroupRequest r) -> r.getModificationDate())
+							.thenComparing(r -> r.getID().getID()))
+					.limit(params.getLimit())
+					.collect(Collectors.toList());
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public List<GroupRequest> getRequestsByGroup(
+			final GroupID groupID,
+			final GetRequestsParams params)
+			throws GroupsStorageException {
+		checkNotNull(groupID, "groupID");
+		checkNotNull(params, "params");
+		requestsLock.readLock().lock();
+		try {
+			return findRequests(requestsByGroup.get(groupID), params);
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+	}
+	
+	@Override
+	public boolean groupHasRequest(final GroupID groupID, final Instant laterThan)
+			throws GroupsStorageException {
+		requireNonNull(groupID, "groupID");
+		requestsLock.readLock().lock();
+		try {
+			return getOpenGroupRequests(groupID).stream().anyMatch(
+					r -> laterThan == null || r.getModificationDate().isAfter(laterThan));
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+	}
+	
+	// must hold the requests lock
+	private List<GroupRequest> getOpenGroupRequests(final GroupID groupID) {
+		final List<GroupRequest> ret = new LinkedList<>();
+		if (requestsByGroup.containsKey(groupID)) {
+			for (final RequestID id: requestsByGroup.get(groupID)) {
+				final GroupRequest r = requests.get(id);
+				if (r.isOpen()) {
+					ret.add(r);
+				}
+			}
+		}
+		return ret;
+	}
+	
+	@Override
+	public Map<GroupID, Instant> getLatestOpenRequestDates(final Set<GroupID> groupIDs)
+			throws GroupsStorageException {
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final Map<GroupID, Instant> ret = new HashMap<>();
+		requestsLock.readLock().lock();
+		try {
+			for (final GroupID gid: groupIDs) {
+				getOpenGroupRequests(gid).stream().map(r -> r.getModificationDate())
+						.max(Comparator.naturalOrder())
+						.ifPresent(i -> ret.put(gid, i));
+			}
+		} finally {
+			requestsLock.readLock().unlock();
+		}
+		return ret;
+	}
+	
+	// must hold the requests lock. ids may be null.
+	private List<GroupRequest> findRequests(
+			final Set<RequestID> ids,
+			final GetRequestsParams params) {
+		if (ids == null) {
+			return new LinkedList<>();
+		}
+		// ties are broken by ID to make the ordering stable
+		Comparator<GroupRequest> sort = Comparator.comparing(
+				(GroupRequest r) -> r.getModificationDate())
+				.thenComparing(r -> r.getID().getID());
+		if (!params.isSortAscending()) {
+			sort = sort.reversed();
+		}
+		return ids.stream().map(id -> requests.get(id))
+				.filter(r -> params.isIncludeClosed() || r.isOpen())
+				.filter(r -> !params.getExcludeUpTo().isPresent() ||
+						(params.isSortAscending() ?
+								r.getModificationDate().isAfter(params.getExcludeUpTo().get()) :
+								r.getModificationDate().isBefore(params.getExcludeUpTo().get())))
+				.sorted(sort)
+				.limit(MAX_REQUESTS)
+				.collect(Collectors.toList());
+	}
+	
+	@Override
+	public void closeRequest(
+			final RequestID requestID,
+			final GroupRequestStatus newStatus,
+			final Instant modificationTime)
+			throws NoSuchRequestException, GroupsStorageException {
+		checkNotNull(requestID, "requestID");
+		checkCloseParams(newStatus, modificationTime);
+		requestsLock.writeLock().lock();
+		try {
+			final GroupRequest r = requests.get(requestID);
+			if (r == null || !r.isOpen()) {
+				throw new NoSuchRequestException("No open request with ID " + requestID.getID());
+			}
+			close(r, newStatus, modificationTime);
+		} finally {
+			requestsLock.writeLock().unlock();
+		}
+	}
+	
+	private void checkCloseParams(
+			final GroupRequestStatus newStatus,
+			final Instant modificationTime) {
+		checkNotNull(newStatus, "newStatus");
+		checkNotNull(modificationTime, "modificationTime");
+		if (newStatus.getStatusType().equals(GroupRequestStatusType.OPEN)) {
+			throw new IllegalArgumentException(
+					"newStatus cannot be " + GroupRequestStatusType.OPEN);
+		}
+	}
+	
+	// must hold the requests write lock. The request must be open.
+	private void close(
+			final GroupRequest request,
+			final GroupRequestStatus newStatus,
+			final Instant modificationTime) {
+		openRequestsByCharacteristics.remove(getCharacteristics(request));
+		removeFromIndex(openRequestsByExpiration, request.getExpirationDate(), request.getID());
+		requests.put(request.getID(), GroupRequest.getBuilder(
+				request.getID(), request.getGroupID(), request.getRequester(),
+				CreateModAndExpireTimes.getBuilder(
+						request.getCreationDate(), request.getExpirationDate())
+						.withModificationTime(modificationTime)
+						.build())
+				.withType(request.getType())
+				.withResourceType(request.getResourceType())
+				.withResource(request.getResource())
+				.withStatus(newStatus)
+				.build());
+	}
+	
+	/** Set any requests in the {@link GroupRequestStatusType#OPEN} state where the
+	 * {@link GroupRequest#getExpirationDate()} is earlier than the expire time to
+	 * {@link GroupRequestStatusType#EXPIRED}. The expire time is also used as the modification
+	 * time for the altered requests.
+	 * @param expireTime the cutoff time for requests - any requests with an expire time prior
+	 * to this value will be expired.
+	 */
+	public void expireRequests(final Instant expireTime) {
+		checkNotNull(expireTime, "expireTime");
+		requestsLock.writeLock().lock();
+		try {
+			final List<RequestID> expired = openRequestsByExpiration.headMap(expireTime, true)
+					.values().stream().flatMap(s -> s.stream()).collect(Collectors.toList());
+			for (final RequestID id: expired) {
+				close(requests.get(id), GroupRequestStatus.expired(), expireTime);
+			}
+		} finally {
+			requestsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void storeNotification(final PendingNotification notification)
+			throws GroupsStorageException {
+		checkNotNull(notification, "notification");
+		notificationsLock.writeLock().lock();
+		try {
+			if (notifications.containsKey(notification.getID())) {
+				throw new IllegalArgumentException(String.format("ID %s already exists " +
+						"in the database. The programmer is responsible for maintaining " +
+						"unique IDs.", notification.getID()));
+			}
+			notifications.put(notification.getID(), notification);
+			setNextAttempt(notification.getID(), notification.getCreationDate());
+		} finally {
+			notificationsLock.writeLock().unlock();
+		}
+	}
+	
+	// must hold the notifications write lock
+	private void setNextAttempt(final UUID id, final Instant nextAttempt) {
+		final Instant previous = notificationNextAttempt.put(id, nextAttempt);
+		if (previous != null) {
+			removeFromIndex(notificationsByNextAttempt, previous, id);
+		}
+		if (nextAttempt != null) {
+			addToIndex(notificationsByNextAttempt, nextAttempt, id);
+		} else {
+			notificationNextAttempt.remove(id);
+		}
+	}
+	
+	@Override
+	public List<PendingNotification> claimNotifications(
+			final int limit,
+			final Instant now,
+			final Instant leaseExpiration)
+			throws GroupsStorageException {
+		checkNotNull(now, "now");
+		checkNotNull(leaseExpiration, "leaseExpiration");
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be at least 1");
+		}
+		notificationsLock.writeLock().lock();
+		try {
+			final List<UUID> ready = notificationsByNextAttempt.headMap(now, true).values()
+					.stream().flatMap(s -> s.stream()).limit(limit)
+					.collect(Collectors.toList());
+			final List<PendingNotification> ret = new LinkedList<>();
+			for (final UUID id: ready) {
+				setNextAttempt(id, leaseExpiration);
+				ret.add(notifications.get(id));
+			}
+			return ret;
+		} finally {
+			notificationsLock.writeLock().unlock();
+		}
+	}
+	
+	@Override
+	public void rescheduleNotification(
+			final UUID id,
+			final int attempts,
+			final Instant nextAttempt)
+			throws GroupsStorageException {
+		checkNotNull(id, "id");
+		checkNotNull(nextAttempt, "nextAttempt");
+		if (attempts < 0) {
+			throw new IllegalArgumentException("attempts must be at least 0");
+		}
+		notificationsLock.writeLock().lock();
+		try {
+			final PendingNotification n = notifications.get(id);
+			if (n != null) {
+				notifications.put(id, withAttempts(n, attempts));
+				setNextAttempt(id, nextAttempt);
+			}
+		} finally {
+			notificationsLock.writeLock().unlock();
+		}
+	}
+	
+	private PendingNotification withAttempts(final PendingNotification n, final int attempts) {
+		final PendingNotification.Builder b;
+		if (PendingNotification.Type.ADD_RESOURCE.equals(n.getType())) {
+			b = PendingNotification.getAddResourceBuilder(
+					n.getID(),
+					n.getUser().get(),
+					n.getGroupID().get(),
+					n.getResourceType().get(),
+					n.getResourceID().get(),
+					n.getCreationDate());
+		} else {
+			b = PendingNotification.getRequestBuilder(
+					n.getID(), n.getType(), n.getRequestID().get(), n.getCreationDate());
+		}
+		return b.withTargets(n.getTargets()).withAttempts(attempts).build();
+	}
+	
+	@Override
+	public void removeNotification(final UUID id) throws GroupsStorageException {
+		checkNotNull(id, "id");
+		notificationsLock.writeLock().lock();
+		try {
+			if (notifications.remove(id) != null) {
+				setNextAttempt(id, null);
+			}
+		} finally {
+			notificationsLock.writeLock().unlock();
+		}
+	}
+}
@@ -31,12 +31,20 @@ public class Fields {
 	public static final String GROUP_ADMINS = "admin";
 	/** The group members. */
 	public static final String GROUP_MEMBERS = "memb";
+	/** The number of group members, when members are stored in a separate collection. */
+	public static final String GROUP_MEMBER_COUNT = "membcount";
 	/** The group creation date. */
 	public static final String GROUP_CREATION = "create";
 	/** The group modification date. */
 	public static final String GROUP_MODIFICATION = "mod";
 	/** The group custom fields. */
 	public static final String GROUP_CUSTOM_FIELDS = "cust";
+	/** The text search tokens for the group name and custom fields. */
+	public static final String GROUP_SEARCH_TOKENS = "srch";
+	/** The type and ID of each of the group's resources, used to find the groups that
+	 * contain a resource.
+	 */
+	public static final String GROUP_RESOURCE_KEYS = "reskeys";
 	
 	// members fields
 	/** A group member name. */
@@ -47,6 +55,10 @@ public class Fields {
 	public static final String GROUP_MEMBER_JOIN_DATE = "join";
 	/** A member's last visit date. */
 	public static final String GROUP_MEMBER_VISIT_DATE = "visit";
+	/** The ID of the group to which a member belongs, when members are stored in a separate
+	 * collection.
+	 */
+	public static final String MEMBER_GROUP_ID = "gid";
 	
 	// resources fields
 	/** Resources associated with the group. */
@@ -92,6 +104,34 @@ public class Fields {
 	/** The characteristic string for a request. */
 	public static final String REQUEST_CHARACTERISTIC_STRING = "charstr";
 	
+	/* ***********************
+	 * notification fields
+	 * ***********************
+	 */
+	
+	/** The notification ID. */
+	public static final String NOTIFICATION_ID = "id";
+	/** The type of the notification. */
+	public static final String NOTIFICATION_TYPE = "type";
+	/** The users targeted by the notification. */
+	public static final String NOTIFICATION_TARGETS = "targets";
+	/** The ID of the request that is the subject of the notification. */
+	public static final String NOTIFICATION_REQUEST_ID = "rid";
+	/** The user that added a resource to a group. */
+	public static final String NOTIFICATION_USER = "user";
+	/** The ID of the group to which a resource was added. */
+	public static final String NOTIFICATION_GROUP_ID = "gid";
+	/** The type of the resource added to a group. */
+	public static final String NOTIFICATION_RESOURCE_TYPE = "restype";
+	/** The ID of the resource added to a group. */
+	public static final String NOTIFICATION_RESOURCE_ID = "resid";
+	/** The number of failed attempts to send the notification. */
+	public static final String NOTIFICATION_ATTEMPTS = "attempts";
+	/** The creation date of the notification. */
+	public static final String NOTIFICATION_CREATION = "create";
+	/** The date after which the notification may be claimed for sending. */
+	public static final String NOTIFICATION_NEXT_ATTEMPT = "next";
+	
 	/* ***********************
 	 * database schema fields
 	 * ***********************
@@ -109,5 +149,9 @@ public class Fields {
 	public static final String DB_SCHEMA_UPDATE = "inupdate";
 	/** The version of the database schema. */
 	public static final String DB_SCHEMA_VERSION = "schemaver";
+	/** Whether group members are stored in a separate collection rather than in the group
+	 * document.
+	 */
+	public static final String DB_SCHEMA_MEMBER_COLLECTION = "membcol";
 
 }
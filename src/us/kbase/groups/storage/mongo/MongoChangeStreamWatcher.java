@@ -0,0 +1,217 @@
+package us.kbase.groups.storage.mongo;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.Arrays;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.MongoException;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.storage.StorageChangeListener;
+
+/** Watches the MongoDB collections used by {@link MongoGroupsStorage} for changes via
+ * MongoDB change streams and reports the changed groups and requests to a
+ * {@link StorageChangeListener}. This allows caches in each service instance to discard data
+ * changed by other service instances.
+ *
+ * Change streams require MongoDB 3.6+ running as a replica set. The streams are first opened
+ * in {@link #start()}, which fails if they cannot be opened, so a service that cannot keep its
+ * caches up to date fails at startup rather than silently serving stale data.
+ *
+ * Every time a change stream is opened, which includes reopening the stream after an error,
+ * {@link StorageChangeListener#allChanged()} is called, since changes may have been missed
+ * while the stream was closed.
+ */
+public class MongoChangeStreamWatcher {
+
+	/* Resuming streams from the last seen resume token would avoid dumping the caches after an
+	 * error, but errors should be rare, and if the token has fallen off the oplog the caches
+	 * must be dumped anyway.
+	 */
+	
+	// the maximum time a watch thread blocks waiting for a change before checking for stop()
+	private static final long MAX_AWAIT_MS = 1000;
+	private static final long RETRY_DELAY_MS = 5000;
+	
+	private final MongoDatabase db;
+	private final boolean memberCollection;
+	private final StorageChangeListener listener;
+	
+	private ExecutorService executor;
+	private volatile boolean running = false;
+	
+	/** Create the watcher. The watcher does not run until {@link #start()} is called.
+	 * @param db the MongoDB database containing the collections to watch.
+	 * @param memberCollection true if the storage system stores group members in a separate
+	 * collection. See {@link MongoGroupsStorage#MongoGroupsStorage(MongoDatabase, boolean)}.
+	 * @param listener the listener to notify of changes.
+	 */
+	public MongoChangeStreamWatcher(
+			final MongoDatabase db,
+			final boolean memberCollection,
+			final StorageChangeListener listener) {
+		checkNotNull(db, "db");
+		checkNotNull(listener, "listener");
+		this.db = db;
+		this.memberCollection = memberCollection;
+		this.listener = listener;
+	}
+	
+	/** Start watching for changes. The change streams are opened before this method returns.
+	 * @throws IllegalArgumentException if the watcher is already running.
+	 * @throws MongoException if a change stream could not be opened, most likely because the
+	 * MongoDB instance is not a replica set. The watcher is not running in this case.
+	 */
+	public synchronized void start() {
+		if (running) {
+			throw new IllegalArgumentException("The watcher is already running");
+		}
+		final List<WatchAgent> agents = new LinkedList<>(Arrays.asList(
+				new WatchAgent(MongoGroupsStorage.COL_GROUPS, Fields.GROUP_ID, false),
+				new WatchAgent(MongoGroupsStorage.COL_REQUESTS, Fields.REQUEST_ID, true)));
+		if (memberCollection) {
+			agents.add(new WatchAgent(
+					MongoGroupsStorage.COL_MEMBERS, Fields.MEMBER_GROUP_ID, false));
+		}
+		final List<MongoCursor<ChangeStreamDocument<Document>>> cursors = new LinkedList<>();
+		try {
+			for (final WatchAgent a: agents) {
+				cursors.add(a.open());
+			}
+		} catch (MongoException e) {
+			for (final MongoCursor<ChangeStreamDocument<Document>> c: cursors) {
+				c.close();
+			}
+			throw e;
+		}
+		running = true;
+		executor = Executors.newFixedThreadPool(agents.size(), new ThreadFactoryBuilder()
+				.setDaemon(true).setNameFormat("mongo-change-stream-%d").build());
+		for (int i = 0; i < agents.size(); i++) {
+			agents.get(i).initialCursor = cursors.get(i);
+			executor.submit(agents.get(i));
+		}
+	}
+	
+	/** Returns true if the watcher is running, false otherwise.
+	 * @return true if the watcher is running.
+	 */
+	public synchronized boolean isRunning() {
+		return running;
+	}
+	
+	/** Stops the watcher. Call {@link #start()} to restart the watcher.
+	 * Calling this method multiple times in succession has no effect.
+	 */
+	public synchronized void stop() {
+		running = false;
+		if (executor != null) {
+			executor.shutdownNow();
+		}
+	}
+	
+	private class WatchAgent implements Runnable {
+	
+		private final String collection;
+		private final String idField;
+		private final boolean isRequest;
+		// the cursor opened by start(), consumed by the first watch
+		private MongoCursor<ChangeStreamDocument<Document>> initialCursor;
+		
+		private WatchAgent(final String collection, final String idField, final boolean isRequest) {
+			this.collection = collection;
+			this.idField = idField;
+			this.isRequest = isRequest;
+		}
+		
+		@Override
+		public void run() {
+			while (running) {
+				try {
+					final MongoCursor<ChangeStreamDocument<Document>> cursor =
+							initialCursor == null ? open() : initialCursor;
+					initialCursor = null;
+					watch(cursor);
+				} catch (Throwable e) {
+					// most likely the storage system is unavailable or isn't a replica set.
+					LoggerFactory.getLogger(getClass()).error(String.format(
+							"Error watching collection %s for changes: %s",
+							collection, e.getMessage()), e);
+					try {
+						Thread.sleep(RETRY_DELAY_MS);
+					} catch (InterruptedException ie) {
+						return; // stop() was called
+					}
+				}
+			}
+			if (initialCursor != null) { // stop() was called before the first watch
+				initialCursor.close();
+			}
+		}
+		
+		private MongoCursor<ChangeStreamDocument<Document>> open() {
+			return db.getCollection(collection)
+					.watch()
+					.fullDocument(FullDocument.UPDATE_LOOKUP)
+					.maxAwaitTime(MAX_AWAIT_MS, TimeUnit.MILLISECONDS)
+					.iterator();
+		}
+		
+		private void watch(final MongoCursor<ChangeStreamDocument<Document>> c) {
+			try (final MongoCursor<ChangeStreamDocument<Document>> cursor = c) {
+				// changes may have been missed before the stream opened
+				listener.allChanged();
+				while (running) {
+					final ChangeStreamDocument<Document> change = cursor.tryNext();
+					if (change != null) {
+						process(change);
+					}
+				}
+			}
+		}
+		
+		private void process(final ChangeStreamDocument<Document> change) {
+			final Document doc = change.getFullDocument();
+			final String id = doc == null ? null : doc.getString(idField);
+			if (id == null) {
+				// member deletes also update the group document and can be ignored. The
+				// groups service never deletes groups or requests, so anything else is a manual
+				// change to the db or a dropped collection
+				if (!OperationType.DELETE.equals(change.getOperationType()) ||
+						!MongoGroupsStorage.COL_MEMBERS.equals(collection)) {
+					listener.allChanged();
+				}
+				return;
+			}
+			try {
+				if (isRequest) {
+					listener.requestChanged(new RequestID(id));
+				} else {
+					listener.groupChanged(new GroupID(id));
+				}
+			} catch (IllegalParameterException | MissingParameterException e) {
+				// should never happen unless the db is manually altered
+				LoggerFactory.getLogger(getClass()).error(String.format(
+						"Illegal ID %s in collection %s: %s", id, collection, e.getMessage()));
+				listener.allChanged();
+			}
+		}
+	}
+}
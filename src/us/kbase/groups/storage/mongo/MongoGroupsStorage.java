@@ -4,12 +4,15 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.util.Objects.requireNonNull;
 import static us.kbase.groups.util.Util.checkNoNullsInCollection;
 
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -19,6 +22,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -32,26 +36,38 @@ import org.bson.Document;
 import org.slf4j.LoggerFactory;
 
 import com.mongodb.ErrorCategory;
+import com.mongodb.MongoBulkWriteException;
 import com.mongodb.MongoException;
 import com.mongodb.MongoWriteException;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.result.UpdateResult;
 
 import us.kbase.groups.core.Group;
+import us.kbase.groups.core.Group.Role;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.GroupSearchTokens;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.OptionalGroupFields;
 import us.kbase.groups.core.OptionalString;
 import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GetChangesParams;
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.UserName;
@@ -65,7 +81,9 @@ import us.kbase.groups.core.exceptions.NoSuchUserException;
 import us.kbase.groups.core.exceptions.RequestExistsException;
 import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.PendingNotification;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequestStatus;
 import us.kbase.groups.core.request.GroupRequestStatusType;
@@ -76,6 +94,7 @@ import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.ItemProcessor;
 import us.kbase.groups.storage.exceptions.GroupsStorageException;
 import us.kbase.groups.storage.exceptions.StorageInitException;
 
@@ -105,8 +124,21 @@ public class MongoGroupsStorage implements GroupsStorage {
 	// collection names
 	private static final String COL_CONFIG = "config";
 	
-	private static final String COL_GROUPS = "groups";
-	private static final String COL_REQUESTS = "requests";
+	static final String COL_GROUPS = "groups";
+	static final String COL_MEMBERS = "members";
+	static final String COL_REQUESTS = "requests";
+	private static final String COL_NOTIFICATIONS = "notifications";
+	
+	// computed fields for group summaries
+	private static final String SUMMARY_MEMBER_COUNT = "membcount";
+	private static final String SUMMARY_RESOURCE_COUNTS = "rescount";
+	private static final String SUMMARY_USER_VISIT = "uservisit";
+	private static final String SUMMARY_SEARCH_RELEVANCE = "relevance";
+	
+	// the number of members to fetch per round trip when reading members from the members
+	// collection
+	private static final int MEMBER_BATCH_SIZE = 1000;
+	private static final int PROCESS_BATCH_SIZE = 1000;
 	
 	private static final Map<String, Map<List<String>, IndexOptions>> INDEXES;
 	private static final IndexOptions IDX_UNIQ = new IndexOptions().unique(true);
@@ -129,8 +161,22 @@ public class MongoGroupsStorage implements GroupsStorage {
 		groups.put(Arrays.asList(
 				Fields.GROUP_MEMBERS + Fields.FIELD_SEP + Fields.GROUP_MEMBER_NAME,
 				Fields.GROUP_ID), null);
+		// text search
+		groups.put(Arrays.asList(Fields.GROUP_SEARCH_TOKENS), null);
+		// find groups by resource and sort by ID
+		groups.put(Arrays.asList(Fields.GROUP_RESOURCE_KEYS, Fields.GROUP_ID), null);
+		// find changed groups
+		groups.put(Arrays.asList(Fields.GROUP_MODIFICATION, Fields.GROUP_ID), null);
 		INDEXES.put(COL_GROUPS, groups);
 		
+		// members indexes, only used when members are stored in a separate collection
+		final Map<List<String>, IndexOptions> members = new HashMap<>();
+		// find the members of a group sorted by name, and ensure users are only added once
+		members.put(Arrays.asList(Fields.MEMBER_GROUP_ID, Fields.GROUP_MEMBER_NAME), IDX_UNIQ);
+		// find groups by member and sort by ID
+		members.put(Arrays.asList(Fields.GROUP_MEMBER_NAME, Fields.MEMBER_GROUP_ID), null);
+		INDEXES.put(COL_MEMBERS, members);
+		
 		// requests indexes
 		// TODO CODE mongo 3.2 has partial indexes that might help here
 		final Map<List<String>, IndexOptions> requests = new HashMap<>();
@@ -157,10 +203,19 @@ public class MongoGroupsStorage implements GroupsStorage {
 				Fields.REQUEST_MODIFICATION), null);
 		// find expired requests.
 		requests.put(Arrays.asList(Fields.REQUEST_EXPIRATION), null);
+		// find changed requests.
+		requests.put(Arrays.asList(Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID), null);
 		// ensure equivalent requests are rejected. See getCharacteristicString()
 		requests.put(Arrays.asList(Fields.REQUEST_CHARACTERISTIC_STRING), IDX_UNIQ_SPARSE);
 		INDEXES.put(COL_REQUESTS, requests);
 		
+		// notification indexes
+		final Map<List<String>, IndexOptions> notifications = new HashMap<>();
+		notifications.put(Arrays.asList(Fields.NOTIFICATION_ID), IDX_UNIQ);
+		// find notifications ready to be sent
+		notifications.put(Arrays.asList(Fields.NOTIFICATION_NEXT_ATTEMPT), null);
+		INDEXES.put(COL_NOTIFICATIONS, notifications);
+		
 		//config indexes
 		final Map<List<String>, IndexOptions> cfg = new HashMap<>();
 		//ensure only one config object
@@ -174,24 +229,49 @@ public class MongoGroupsStorage implements GroupsStorage {
 	private boolean expirationAgentRunning = false;
 	
 	private final MongoDatabase db;
+	private final boolean memberCollection;
 	private final Clock clock;
 	
-	/** Create MongoDB based storage for the Groups application.
+	/** Create MongoDB based storage for the Groups application. Group members are stored in
+	 * the group documents.
 	 * @param db the MongoDB database the storage system will use.
 	 * @throws StorageInitException if the storage system could not be initialized.
 	 */
 	public MongoGroupsStorage(final MongoDatabase db) throws StorageInitException {
-		this(db, Clock.systemDefaultZone());
+		this(db, false);
+	}
+	
+	/** Create MongoDB based storage for the Groups application.
+	 * 
+	 * Storing members in a separate collection means that membership changes don't rewrite
+	 * the group document and that groups are not limited in size by the MongoDB
+	 * document size limit, at the cost of extra queries when reading groups and group lists.
+	 * The choice is recorded in the database when it is first initialized and cannot be
+	 * changed afterwards.
+	 * @param db the MongoDB database the storage system will use.
+	 * @param memberCollection true to store group members in a separate collection, false to
+	 * store them in the group documents.
+	 * @throws StorageInitException if the storage system could not be initialized.
+	 */
+	public MongoGroupsStorage(final MongoDatabase db, final boolean memberCollection)
+			throws StorageInitException {
+		this(db, memberCollection, Clock.systemDefaultZone());
 	}
 	
 	// for tests
-	private MongoGroupsStorage(final MongoDatabase db, final Clock clock)
+	private MongoGroupsStorage(
+			final MongoDatabase db,
+			final boolean memberCollection,
+			final Clock clock)
 			throws StorageInitException {
 		checkNotNull(db, "db");
 		this.db = db;
+		this.memberCollection = memberCollection;
 		this.clock = clock;
 		ensureIndexes(); // MUST come before check config
 		checkConfig();
+		addMissingSearchTokens();
+		addMissingResourceKeys();
 		startExpirationAgent(EXPIRATION_AGENT_FREQUENCY_SEC);
 	}
 	
@@ -255,6 +335,7 @@ public class MongoGroupsStorage implements GroupsStorage {
 		final Document cfg = new Document(Fields.DB_SCHEMA_KEY, Fields.DB_SCHEMA_VALUE);
 		cfg.put(Fields.DB_SCHEMA_UPDATE, false);
 		cfg.put(Fields.DB_SCHEMA_VERSION, SCHEMA_VERSION);
+		cfg.put(Fields.DB_SCHEMA_MEMBER_COLLECTION, memberCollection);
 		try {
 			col.insertOne(cfg);
 		} catch (MongoWriteException dk) {
@@ -285,12 +366,24 @@ public class MongoGroupsStorage implements GroupsStorage {
 								"v%s of the schema. Aborting startup.", 
 								doc.get(Fields.DB_SCHEMA_VERSION)));
 			}
+			// databases created before the member collection was added have no flag
+			if (doc.getBoolean(Fields.DB_SCHEMA_MEMBER_COLLECTION, false) != memberCollection) {
+				throw new StorageInitException(String.format(
+						"The database stores group members %s, but the storage system is " +
+						"configured to store group members %s",
+						getMemberLocation(!memberCollection),
+						getMemberLocation(memberCollection)));
+			}
 		} catch (MongoException me) {
 			throw new StorageInitException(
 					"There was a problem communicating with the database: " + me.getMessage(), me);
 		}
 	}
 
+	private static String getMemberLocation(final boolean memberCollection) {
+		return memberCollection ? "in a separate collection" : "in the group documents";
+	}
+
 	private void ensureIndexes() throws StorageInitException {
 		for (final String col: INDEXES.keySet()) {
 			for (final List<String> idx: INDEXES.get(col).keySet()) {
@@ -331,10 +424,16 @@ public class MongoGroupsStorage implements GroupsStorage {
 		
 		public DuplicateKeyExceptionChecker(final MongoWriteException mwe)
 				throws GroupsStorageException {
+			this(mwe.getError(), mwe);
+		}
+		
+		// cause is the exception containing the error.
+		public DuplicateKeyExceptionChecker(final WriteError error, final MongoException cause)
+				throws GroupsStorageException {
 			// split up indexes better at some point - e.g. in a Document
-			isDuplicate = isDuplicate(mwe);
+			isDuplicate = isDuplicate(error);
 			if (isDuplicate) {
-				final Matcher indexMatcher = indexPattern.matcher(mwe.getMessage());
+				final Matcher indexMatcher = indexPattern.matcher(error.getMessage());
 				if (indexMatcher.find()) {
 					collection = Optional.of(indexMatcher.group(2));
 					index = Optional.of(indexMatcher.group(4));
@@ -342,9 +441,9 @@ public class MongoGroupsStorage implements GroupsStorage {
 					throw new GroupsStorageException(
 							"Unable to parse duplicate key error: " +
 							// could include a token hash as the key, so split it out if it's there
-							mwe.getMessage().split("dup key")[0], mwe);
+							error.getMessage().split("dup key")[0], cause);
 				}
-				final Matcher keyMatcher = keyPattern.matcher(mwe.getMessage());
+				final Matcher keyMatcher = keyPattern.matcher(error.getMessage());
 				if (keyMatcher.find()) {
 					key = Optional.of(keyMatcher.group(1));
 				} else { // some errors include the dup key, some don't
@@ -358,7 +457,11 @@ public class MongoGroupsStorage implements GroupsStorage {
 		}
 		
 		public static boolean isDuplicate(final MongoWriteException mwe) {
-			return mwe.getError().getCategory().equals(ErrorCategory.DUPLICATE_KEY);
+			return isDuplicate(mwe.getError());
+		}
+		
+		public static boolean isDuplicate(final WriteError error) {
+			return error.getCategory().equals(ErrorCategory.DUPLICATE_KEY);
 		}
 		
 		public boolean isDuplicate() {
@@ -383,6 +486,47 @@ public class MongoGroupsStorage implements GroupsStorage {
 	public void createGroup(final Group group)
 			throws GroupExistsException, GroupsStorageException {
 		checkNotNull(group, "group");
+		try {
+			db.getCollection(COL_GROUPS).insertOne(toDoc(group));
+		} catch (MongoWriteException mwe) {
+			// not happy about this, but getDetails() returns an empty map
+			if (DuplicateKeyExceptionChecker.isDuplicate(mwe)) {
+				throw new GroupExistsException(group.getGroupID().getName());
+			} else {
+				// painful to test
+				throw new GroupsStorageException("Database write failed", mwe);
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		if (memberCollection) {
+			/* The members are added after the group so that an attempt to create a group that
+			 * already exists can't add members to the existing group. If the server goes down
+			 * between the two writes the group will be missing members, but since there's no
+			 * transaction support in the target MongoDB versions there's not much to be done.
+			 */
+			insertMembers(Arrays.asList(group));
+		}
+	}
+	
+	private void insertMembers(final List<Group> groups) throws GroupsStorageException {
+		final List<Document> members = new LinkedList<>();
+		for (final Group g: groups) {
+			for (final UserName m: g.getAllMembers()) {
+				members.add(toMemberDoc(g.getGroupID(), g.getMember(m)));
+			}
+		}
+		if (members.isEmpty()) {
+			return; // insertMany fails on an empty list
+		}
+		try {
+			db.getCollection(COL_MEMBERS).insertMany(members);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	private Document toDoc(final Group group) {
 		final Map<String, List<Document>> resources = new HashMap<>();
 		final Document u = new Document(
 				Fields.GROUP_ID, group.getGroupID().getName())
@@ -390,12 +534,19 @@ public class MongoGroupsStorage implements GroupsStorage {
 				.append(Fields.GROUP_IS_PRIVATE, group.isPrivate())
 				.append(Fields.GROUP_MEMBERS_PRIVATE, group.isPrivateMemberList())
 				.append(Fields.GROUP_OWNER, group.getOwner().getName())
-				.append(Fields.GROUP_MEMBERS, toMembersDocList(group))
 				.append(Fields.GROUP_ADMINS, toStringList(group.getAdministrators()))
 				.append(Fields.GROUP_RESOURCES, resources)
 				.append(Fields.GROUP_CREATION, Date.from(group.getCreationDate()))
 				.append(Fields.GROUP_MODIFICATION, Date.from(group.getModificationDate()))
-				.append(Fields.GROUP_CUSTOM_FIELDS, getCustomFields(group.getCustomFields()));
+				.append(Fields.GROUP_CUSTOM_FIELDS, getCustomFields(group.getCustomFields()))
+				.append(Fields.GROUP_SEARCH_TOKENS, new ArrayList<>(GroupSearchTokens
+						.getGroupTokens(group.getGroupName(), group.getCustomFields())));
+		if (memberCollection) {
+			u.append(Fields.GROUP_MEMBER_COUNT, group.getAllMembers().size());
+		} else {
+			u.append(Fields.GROUP_MEMBERS, toMembersDocList(group));
+		}
+		final List<String> resourceKeys = new LinkedList<>();
 		for (final ResourceType t: group.getResourceTypes()) {
 			resources.put(t.getName(), group.getResources(t).stream()
 					.map(rd -> new Document(
@@ -405,16 +556,67 @@ public class MongoGroupsStorage implements GroupsStorage {
 							.append(Fields.GROUP_RESOURCE_ADDED,
 									group.getResourceAddDate(t, rd.getResourceID()).orElse(null)))
 					.collect(Collectors.toList()));
+			for (final ResourceDescriptor rd: group.getResources(t)) {
+				resourceKeys.add(toResourceKey(t.getName(), rd.getResourceID().getName()));
+			}
 		}
+		u.append(Fields.GROUP_RESOURCE_KEYS, resourceKeys);
+		return u;
+	}
+	
+	@Override
+	public void importGroups(final List<Group> groups)
+			throws GroupExistsException, GroupsStorageException {
+		checkNoNullsInCollection(groups, "groups");
+		if (groups.isEmpty()) {
+			return;
+		}
+		// ordered inserts stop at the first failure, so the preceding groups are stored
+		int stored = groups.size();
+		GroupExistsException exists = null;
 		try {
-			db.getCollection(COL_GROUPS).insertOne(u);
-		} catch (MongoWriteException mwe) {
-			// not happy about this, but getDetails() returns an empty map
-			if (DuplicateKeyExceptionChecker.isDuplicate(mwe)) {
-				throw new GroupExistsException(group.getGroupID().getName());
-			} else {
-				// painful to test
-				throw new GroupsStorageException("Database write failed", mwe);
+			db.getCollection(COL_GROUPS).insertMany(groups.stream().map(g -> toDoc(g))
+					.collect(Collectors.toList()));
+		} catch (MongoBulkWriteException mbwe) {
+			final BulkWriteError err = mbwe.getWriteErrors().get(0);
+			if (!DuplicateKeyExceptionChecker.isDuplicate(err)) {
+				throw new GroupsStorageException("Database write failed", mbwe);
+			}
+			stored = err.getIndex();
+			exists = new GroupExistsException(groups.get(stored).getGroupID().getName());
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		if (memberCollection) {
+			// as for createGroup(), only add members for groups that were stored
+			insertMembers(groups.subList(0, stored));
+		}
+		if (exists != null) {
+			throw exists;
+		}
+	}
+	
+	@Override
+	public void processGroups(final ItemProcessor<Group> processor)
+			throws GroupsStorageException, IOException {
+		process(COL_GROUPS, Fields.GROUP_ID, d -> toGroup(d), processor);
+	}
+	
+	// the driver fetches the documents in batches as the cursor is iterated
+	private <T> void process(
+			final String collection,
+			final String sortField,
+			final FnParamExcept<Document, T> docToClass,
+			final ItemProcessor<T> processor)
+			throws GroupsStorageException, IOException {
+		checkNotNull(processor, "processor");
+		try (final MongoCursor<Document> cur = db.getCollection(collection)
+				.find()
+				.sort(new Document(sortField, 1))
+				.batchSize(PROCESS_BATCH_SIZE)
+				.iterator()) {
+			while (cur.hasNext()) {
+				processor.process(docToClass.apply(cur.next()));
 			}
 		} catch (MongoException e) {
 			throw wrapMongoException(e);
@@ -435,6 +637,12 @@ public class MongoGroupsStorage implements GroupsStorage {
 						getCustomFields(gu.getCustomFields()));
 	}
 
+	private Document toMemberDoc(final GroupID groupID, final GroupUser gu) {
+		final Document d = new Document(Fields.MEMBER_GROUP_ID, groupID.getName());
+		d.putAll(toDoc(gu));
+		return d;
+	}
+
 	private GroupsStorageException wrapMongoException(MongoException e) {
 		return new GroupsStorageException("Connection to database failed: " +
 				e.getMessage(), e);
@@ -479,15 +687,119 @@ public class MongoGroupsStorage implements GroupsStorage {
 		try {
 			final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(query, mod);
 			if (res.getMatchedCount() != 1) {
-				getGroup(update.getGroupID()); //throws no such group
+				//throws no such group
+				getGroupDoc(update.getGroupID(), new Document(Fields.GROUP_ID, 1));
 				// otherwise we don't care - the update made no changes.
+			} else if (update.getGroupName().isPresent() || !opts.getCustomFields().isEmpty()) {
+				// if it matches, it gets modified, so we don't check
+				updateSearchTokens(new Document(Fields.GROUP_ID, update.getGroupID().getName()));
 			}
-			// if it matches, it gets modified, so we don't check
 		} catch (MongoException e) {
 			throw wrapMongoException(e);
 		}
 	}
 	
+	/* Updates the search tokens for the groups matching the query to match the name and
+	 * custom fields. The tokens are only updated if the name and fields haven't changed since
+	 * they were read, and otherwise the group is reread, so concurrent updates can't leave the
+	 * tokens out of date.
+	 */
+	private void updateSearchTokens(final Document query) throws GroupsStorageException {
+		final Document projection = new Document(Fields.GROUP_ID, 1)
+				.append(Fields.GROUP_NAME, 1)
+				.append(Fields.GROUP_CUSTOM_FIELDS, 1);
+		final List<Document> docs = new LinkedList<>();
+		db.getCollection(COL_GROUPS).find(query).projection(projection).into(docs);
+		for (final Document d: docs) {
+			Document gdoc = d;
+			while (gdoc != null) {
+				final Document cust = (Document) gdoc.get(Fields.GROUP_CUSTOM_FIELDS);
+				final List<String> tokens = getSearchTokens(gdoc);
+				final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(
+						new Document(Fields.MONGO_ID, gdoc.get(Fields.MONGO_ID))
+								.append(Fields.GROUP_NAME, gdoc.get(Fields.GROUP_NAME))
+								.append(Fields.GROUP_CUSTOM_FIELDS, cust),
+						new Document("$set", new Document(Fields.GROUP_SEARCH_TOKENS, tokens)));
+				gdoc = res.getMatchedCount() == 1 ? null :
+					db.getCollection(COL_GROUPS)
+							.find(new Document(Fields.MONGO_ID, gdoc.get(Fields.MONGO_ID)))
+							.projection(projection).first();
+			}
+		}
+	}
+	
+	private List<String> getSearchTokens(final Document gdoc) throws GroupsStorageException {
+		final Map<NumberedCustomField, String> fields = new HashMap<>();
+		try {
+			addCustomFields((f, v) -> fields.put(f, v), Fields.GROUP_CUSTOM_FIELDS, gdoc);
+			return new ArrayList<>(GroupSearchTokens.getGroupTokens(
+					new GroupName(gdoc.getString(Fields.GROUP_NAME)), fields));
+		} catch (MissingParameterException | IllegalParameterException e) {
+			throw new GroupsStorageException(
+					"Unexpected value in database: " + e.getMessage(), e);
+		}
+	}
+	
+	// groups created before text search was added have no search tokens
+	private void addMissingSearchTokens() throws StorageInitException {
+		try {
+			updateSearchTokens(new Document(Fields.GROUP_SEARCH_TOKENS,
+					new Document("$exists", false)));
+		} catch (GroupsStorageException | MongoException e) {
+			throw new StorageInitException(
+					"Failed to add search tokens to groups: " + e.getMessage(), e);
+		}
+	}
+	
+	// resource types can only contain a-z and digits, so the key is unique
+	private static String toResourceKey(final String type, final String resourceID) {
+		return type + ":" + resourceID;
+	}
+	
+	private List<String> getResourceKeys(final Document gdoc) {
+		@SuppressWarnings("unchecked")
+		final Map<String, List<Document>> resources =
+				(Map<String, List<Document>>) gdoc.get(Fields.GROUP_RESOURCES);
+		final List<String> keys = new LinkedList<>();
+		for (final String type: resources.keySet()) {
+			for (final Document r: resources.get(type)) {
+				keys.add(toResourceKey(type, r.getString(Fields.GROUP_RESOURCE_ID)));
+			}
+		}
+		return keys;
+	}
+	
+	/* groups created before the resource keys were added have no keys.
+	 * As for the search tokens, the keys are only set if the resources haven't changed since
+	 * they were read, and otherwise the group is reread.
+	 */
+	private void addMissingResourceKeys() throws StorageInitException {
+		final Document projection = new Document(Fields.GROUP_RESOURCES, 1);
+		try {
+			final List<Document> docs = new LinkedList<>();
+			db.getCollection(COL_GROUPS).find(new Document(Fields.GROUP_RESOURCE_KEYS,
+					new Document("$exists", false))).projection(projection).into(docs);
+			for (final Document d: docs) {
+				Document gdoc = d;
+				while (gdoc != null) {
+					final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(
+							new Document(Fields.MONGO_ID, gdoc.get(Fields.MONGO_ID))
+									.append(Fields.GROUP_RESOURCES,
+											gdoc.get(Fields.GROUP_RESOURCES)),
+							new Document("$set", new Document(
+									Fields.GROUP_RESOURCE_KEYS, getResourceKeys(gdoc))));
+					gdoc = res.getMatchedCount() == 1 ? null :
+						db.getCollection(COL_GROUPS)
+								.find(new Document(Fields.MONGO_ID, gdoc.get(Fields.MONGO_ID)))
+								.projection(projection).first();
+				}
+			}
+		} catch (MongoException e) {
+			throw new StorageInitException(
+					"Failed to add resource keys to groups: " + e.getMessage(), e);
+		}
+	}
+	
 	/** This method is for updating custom fields in groups and users. It modifies the
 	 * query in place (queryOr) to ensure the query *does not* match documents where the
 	 * custom field changes would not modify the document (other fields in the or document
@@ -576,16 +888,21 @@ public class MongoGroupsStorage implements GroupsStorage {
 				.append(Fields.GROUP_IS_PRIVATE, 1)
 				.append(Fields.GROUP_NAME, 1)
 				.append(Fields.MONGO_ID, 0);
-		if (user != null) {
+		if (user != null && !memberCollection) {
 			projection.append(Fields.GROUP_MEMBERS, new Document("$elemMatch",
 					new Document(Fields.GROUP_MEMBER_NAME, user.getName())));
 		}
-		final Document query = new Document(Fields.GROUP_ID, new Document("$in",
-				groupIDs.stream().map(i -> i.getName()).collect(Collectors.toList())));
+		final List<String> ids = groupIDs.stream().map(i -> i.getName())
+				.collect(Collectors.toList());
+		final Document query = new Document(Fields.GROUP_ID, new Document("$in", ids));
 		final Document sort = new Document(Fields.GROUP_ID, 1);
+		final Set<String> memberOf = memberCollection ?
+				getMemberships(user, ids).keySet() : null;
 		
 		final List<GroupIDNameMembership> ret = getList(
-				COL_GROUPS, query, projection, sort, 0, d -> toGroupIDNameMembership(d));
+				COL_GROUPS, query, projection, sort, 0, d -> toGroupIDNameMembership(d,
+						memberCollection ? memberOf.contains(d.getString(Fields.GROUP_ID)) :
+							d.containsKey(Fields.GROUP_MEMBERS)));
 		if (ret.size() != groupIDs.size()) {
 			final Set<GroupID> got = ret.stream().map(g -> g.getID())
 					.collect(Collectors.toSet());
@@ -597,13 +914,82 @@ public class MongoGroupsStorage implements GroupsStorage {
 		}
 		return ret;
 	}
+	
+	@Override
+	public Map<GroupID, GroupUser> getAdministratorMemberships(
+			final UserName user,
+			final Set<GroupID> groupIDs)
+			throws NoSuchGroupException, GroupsStorageException {
+		requireNonNull(user, "user");
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final Document projection = new Document(Fields.GROUP_ID, 1)
+				.append(Fields.GROUP_OWNER, 1)
+				.append(Fields.GROUP_ADMINS, 1)
+				.append(Fields.MONGO_ID, 0);
+		if (!memberCollection) {
+			projection.append(Fields.GROUP_MEMBERS, new Document("$elemMatch",
+					new Document(Fields.GROUP_MEMBER_NAME, user.getName())));
+		}
+		final Document query = new Document(Fields.GROUP_ID, new Document("$in",
+				groupIDs.stream().map(i -> i.getName()).collect(Collectors.toList())));
+		
+		final Map<GroupID, Document> adminOf = new HashMap<>();
+		final Set<GroupID> got = new HashSet<>();
+		for (final Document gdoc: getList(COL_GROUPS, query, projection, new Document(), 0,
+				d -> d)) {
+			try {
+				final GroupID gid = new GroupID(gdoc.getString(Fields.GROUP_ID));
+				got.add(gid);
+				if (user.getName().equals(gdoc.getString(Fields.GROUP_OWNER)) ||
+						getUserSet(gdoc, Fields.GROUP_ADMINS).contains(user)) {
+					adminOf.put(gid, gdoc);
+				}
+			} catch (MissingParameterException | IllegalParameterException e) {
+				throw new GroupsStorageException(
+						"Unexpected value in database: " + e.getMessage(), e);
+			}
+		}
+		final Map<String, Document> memberships = memberCollection ? getMemberships(user,
+				adminOf.keySet().stream().map(g -> g.getName()).collect(Collectors.toList())) :
+				null;
+		final Map<GroupID, GroupUser> ret = new HashMap<>();
+		for (final GroupID gid: adminOf.keySet()) {
+			try {
+				// owners and admins are always in the member list, but the user may have been
+				// demoted and removed from the group since the group document was read
+				final GroupUser gu;
+				if (memberCollection) {
+					final Document m = memberships.get(gid.getName());
+					gu = m == null ? null : toGroupUser(m);
+				} else {
+					gu = getMembers(adminOf.get(gid)).get(user);
+				}
+				if (gu != null) {
+					ret.put(gid, gu);
+				}
+			} catch (MissingParameterException | IllegalParameterException e) {
+				throw new GroupsStorageException(
+						"Unexpected value in database: " + e.getMessage(), e);
+			}
+		}
+		if (got.size() != groupIDs.size()) {
+			for (final GroupID g: groupIDs) { // can't cover this, guaranteed thrown exception
+				if (!got.contains(g)) {
+					throw new NoSuchGroupException(g.getName());
+				}
+			}
+		}
+		return ret;
+	}
 
-	private GroupIDNameMembership toGroupIDNameMembership(final Document gdoc)
+	private GroupIDNameMembership toGroupIDNameMembership(
+			final Document gdoc,
+			final boolean isMember)
 			throws GroupsStorageException {
 		try {
 			return GroupIDNameMembership.getBuilder(new GroupID(gdoc.getString(Fields.GROUP_ID)))
 					.withGroupName(new GroupName(gdoc.getString(Fields.GROUP_NAME)))
-					.withIsMember(gdoc.containsKey(Fields.GROUP_MEMBERS))
+					.withIsMember(isMember)
 					.withIsPrivate(gdoc.getBoolean(Fields.GROUP_IS_PRIVATE))
 					.build();
 		} catch (MissingParameterException | IllegalParameterException e) {
@@ -636,8 +1022,11 @@ public class MongoGroupsStorage implements GroupsStorage {
 	public List<GroupIDAndName> getMemberGroups(final UserName user)
 			throws GroupsStorageException {
 		// add filters for admin/owner later
-		final Document query = new Document(Fields.GROUP_MEMBERS + Fields.FIELD_SEP +
-				Fields.GROUP_MEMBER_NAME, requireNonNull(user, "user").getName());
+		requireNonNull(user, "user");
+		final Document query = memberCollection ?
+				new Document(Fields.GROUP_ID, new Document("$in", getMemberGroupIDs(user))) :
+				new Document(Fields.GROUP_MEMBERS + Fields.FIELD_SEP + Fields.GROUP_MEMBER_NAME,
+						user.getName());
 		final Document projection = new Document(Fields.GROUP_ID, 1)
 				.append(Fields.GROUP_NAME, 1)
 				.append(Fields.MONGO_ID, 0);
@@ -646,6 +1035,46 @@ public class MongoGroupsStorage implements GroupsStorage {
 		return getList(COL_GROUPS, query, projection, sort, 100000, d -> toGroupIDAndName(d));
 	}
 
+	/* Get the member documents for a user, keyed by group ID. Only for use when members are
+	 * stored in a separate collection.
+	 */
+	private Map<String, Document> getMemberships(
+			final UserName user,
+			final List<String> groupIDs)
+			throws GroupsStorageException {
+		final Map<String, Document> ret = new HashMap<>();
+		if (user == null || groupIDs.isEmpty()) {
+			return ret;
+		}
+		final Document query = new Document(Fields.GROUP_MEMBER_NAME, user.getName())
+				.append(Fields.MEMBER_GROUP_ID, new Document("$in", groupIDs));
+		try {
+			for (final Document m: db.getCollection(COL_MEMBERS).find(query)) {
+				ret.put(m.getString(Fields.MEMBER_GROUP_ID), m);
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		return ret;
+	}
+	
+	/* Get the IDs of all the groups of which a user is a member. Only for use when members are
+	 * stored in a separate collection.
+	 */
+	private List<String> getMemberGroupIDs(final UserName user) throws GroupsStorageException {
+		final List<String> ret = new LinkedList<>();
+		try {
+			for (final Document m: db.getCollection(COL_MEMBERS)
+					.find(new Document(Fields.GROUP_MEMBER_NAME, user.getName()))
+					.projection(new Document(Fields.MEMBER_GROUP_ID, 1))) {
+				ret.add(m.getString(Fields.MEMBER_GROUP_ID));
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		return ret;
+	}
+
 	private static interface FnParamExcept<T, R> {
 		
 		R apply(T t) throws GroupsStorageException;
@@ -679,22 +1108,282 @@ public class MongoGroupsStorage implements GroupsStorage {
 	public List<Group> getGroups(final GetGroupsParams params, final UserName user)
 			throws GroupsStorageException {
 		requireNonNull(params, "params");
-		final Document query = new Document();
+		return getList(COL_GROUPS, getGroupsQuery(params, user), new Document(),
+				getGroupsSort(params), params.getLimit(), d -> toGroup(d));
+	}
+	
+	private Document getGroupsQuery(final GetGroupsParams params, final UserName user)
+			throws GroupsStorageException {
+		final Document query = getVisibilityQuery(user);
 		if (params.getExcludeUpTo().isPresent()) {
 			final String inequality = params.isSortAscending() ? "$gt" : "$lt";
 			query.append(Fields.GROUP_ID, new Document(inequality, params.getExcludeUpTo().get()));
 		}
+		return query;
+	}
+	
+	// public groups and, if there's a user, groups of which the user is a member
+	private Document getVisibilityQuery(final UserName user) throws GroupsStorageException {
 		if (user == null) {
-			query.append(Fields.GROUP_IS_PRIVATE, false);
+			return new Document(Fields.GROUP_IS_PRIVATE, false);
+		} else if (memberCollection) {
+			return new Document("$or", Arrays.asList(
+					new Document(Fields.GROUP_IS_PRIVATE, false),
+					new Document(Fields.GROUP_ID, new Document("$in",
+							getMemberGroupIDs(user)))));
 		} else {
-			query.append("$or", Arrays.asList(new Document(Fields.GROUP_IS_PRIVATE, false),
+			return new Document("$or", Arrays.asList(
+					new Document(Fields.GROUP_IS_PRIVATE, false),
 					new Document(Fields.GROUP_MEMBERS + Fields.FIELD_SEP +
 							Fields.GROUP_MEMBER_NAME, user.getName())));
 		}
+	}
+	
+	private Document getGroupsSort(final GetGroupsParams params) {
 		// may want to allow alternate sorts later, will need indexes
-		final Document sort = new Document(Fields.GROUP_ID, params.isSortAscending() ? 1 : -1);
-		// could make limit a param (with a max), YAGNI for now
-		return getList(COL_GROUPS, query, new Document(), sort, 100, d -> toGroup(d));
+		return new Document(Fields.GROUP_ID, params.isSortAscending() ? 1 : -1);
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummaries(
+			final GetGroupsParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		return getGroupSummaries(getGroupsQuery(params, user), getGroupsSort(params),
+				params.getLimit(), user, resourceTypes);
+	}
+	
+	@Override
+	public List<GroupSummary> getGroupSummariesForResource(
+			final ResourceType type,
+			final ResourceID resource,
+			final GetGroupsParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		requireNonNull(type, "type");
+		requireNonNull(resource, "resource");
+		requireNonNull(params, "params");
+		final Document query = getGroupsQuery(params, user).append(
+				Fields.GROUP_RESOURCE_KEYS, toResourceKey(type.getName(), resource.getName()));
+		return getGroupSummaries(query, getGroupsSort(params), params.getLimit(), user,
+				resourceTypes);
+	}
+	
+	@Override
+	public List<GroupSummary> getChangedGroupSummaries(
+			final GetChangesParams params,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		final Document query = getChangesQuery(
+				params, Fields.GROUP_MODIFICATION, Fields.GROUP_ID);
+		final Document sort = new Document(Fields.GROUP_MODIFICATION, 1)
+				.append(Fields.GROUP_ID, 1);
+		return getGroupSummaries(query, sort, params.getLimit(), null, resourceTypes);
+	}
+	
+	/* Finds documents modified after the date in the params, or at the date with an ID after
+	 * the ID in the params. Sorting by the modification date and then the ID allows the list
+	 * to be continued from the last document in a previous list.
+	 */
+	private Document getChangesQuery(
+			final GetChangesParams params,
+			final String modField,
+			final String idField) {
+		if (!params.getAfter().isPresent()) {
+			return new Document();
+		}
+		final Date after = Date.from(params.getAfter().get());
+		final Document afterQuery = new Document(modField, new Document("$gt", after));
+		if (!params.getAfterID().isPresent()) {
+			return afterQuery;
+		}
+		return new Document("$or", Arrays.asList(
+				afterQuery,
+				new Document(modField, after)
+						.append(idField, new Document("$gt", params.getAfterID().get()))));
+	}
+	
+	private List<GroupSummary> getGroupSummaries(
+			final Document query,
+			final Document sort,
+			final int limit,
+			final UserName user,
+			final Set<ResourceType> resourceTypes)
+			throws GroupsStorageException {
+		checkNoNullsInCollection(resourceTypes, "resourceTypes");
+		final Document projection = getSummaryProjection(user, resourceTypes);
+		try {
+			return toGroupSummaries(db.getCollection(COL_GROUPS).aggregate(Arrays.asList(
+					new Document("$match", query),
+					new Document("$sort", sort),
+					new Document("$limit", limit),
+					new Document("$project", projection))),
+					user);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	// expects to be called within a try block that handles MongoExceptions
+	private List<GroupSummary> toGroupSummaries(
+			final AggregateIterable<Document> gdocs,
+			final UserName user)
+			throws GroupsStorageException {
+		final List<Document> docs = new LinkedList<>();
+		gdocs.into(docs);
+		if (memberCollection && user != null) {
+			// the member list isn't in the group document, so add the user's visit info
+			// in the same form as the summary projection would
+			final Map<String, Document> memberships = getMemberships(user, docs.stream()
+					.map(d -> d.getString(Fields.GROUP_ID)).collect(Collectors.toList()));
+			for (final Document d: docs) {
+				final Document m = memberships.get(d.getString(Fields.GROUP_ID));
+				final List<Object> visit = new LinkedList<>();
+				if (m != null) {
+					final Date v = m.getDate(Fields.GROUP_MEMBER_VISIT_DATE);
+					visit.add(v == null ? true : v);
+				}
+				d.append(SUMMARY_USER_VISIT, visit);
+			}
+		}
+		final List<GroupSummary> ret = new LinkedList<>();
+		for (final Document d: docs) {
+			ret.add(toGroupSummary(d, user));
+		}
+		return ret;
+	}
+	
+	private Document getSummaryProjection(
+			final UserName user,
+			final Set<ResourceType> resourceTypes) {
+		/* The member and resource counts are calculated by the DB so the member and resource
+		 * lists are never sent over the wire. All the aggregation operators used here
+		 * are available in MongoDB 2.6.
+		 */
+		final Document projection = new Document(Fields.GROUP_ID, 1)
+				.append(Fields.GROUP_NAME, 1)
+				.append(Fields.GROUP_OWNER, 1)
+				.append(Fields.GROUP_ADMINS, 1)
+				.append(Fields.GROUP_IS_PRIVATE, 1)
+				.append(Fields.GROUP_CREATION, 1)
+				.append(Fields.GROUP_MODIFICATION, 1)
+				.append(Fields.GROUP_CUSTOM_FIELDS, 1)
+				.append(SUMMARY_MEMBER_COUNT, memberCollection ?
+						"$" + Fields.GROUP_MEMBER_COUNT :
+						new Document("$size", "$" + Fields.GROUP_MEMBERS))
+				.append(Fields.MONGO_ID, 0);
+		if (!resourceTypes.isEmpty()) {
+			final Document rescounts = new Document();
+			for (final ResourceType t: resourceTypes) {
+				rescounts.append(t.getName(), new Document("$size", new Document("$ifNull",
+						Arrays.asList(
+								"$" + Fields.GROUP_RESOURCES + Fields.FIELD_SEP + t.getName(),
+								new Document("$literal", Collections.emptyList())))));
+			}
+			projection.append(SUMMARY_RESOURCE_COUNTS, rescounts);
+		}
+		if (user != null && !memberCollection) {
+			// reduces the member list to a list containing the user's last visit date, or true
+			// if the user has never visited, or an empty list if the user isn't a member.
+			projection.append(SUMMARY_USER_VISIT, new Document("$setDifference", Arrays.asList(
+					new Document("$map", new Document("input", "$" + Fields.GROUP_MEMBERS)
+							.append("as", "m")
+							.append("in", new Document("$cond", Arrays.asList(
+									new Document("$eq", Arrays.asList(
+											"$$m." + Fields.GROUP_MEMBER_NAME,
+											new Document("$literal", user.getName()))),
+									new Document("$ifNull", Arrays.asList(
+											"$$m." + Fields.GROUP_MEMBER_VISIT_DATE, true)),
+									false)))),
+					Arrays.asList(false))));
+		}
+		return projection;
+	}
+	
+	@Override
+	public List<GroupSummary> searchGroupSummaries(
+			final GroupSearchParams params,
+			final UserName user,
+			final Set<ResourceType> resourceTypes,
+			final Set<CustomField> searchFields)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		checkNoNullsInCollection(resourceTypes, "resourceTypes");
+		checkNoNullsInCollection(searchFields, "searchFields");
+		final List<String> tokens = new ArrayList<>(
+				GroupSearchTokens.getQueryTokens(params.getTerms(), searchFields));
+		final Document match = getVisibilityQuery(user)
+				.append(Fields.GROUP_SEARCH_TOKENS, new Document("$in", tokens));
+		final Document projection = getSummaryProjection(user, resourceTypes)
+				.append(SUMMARY_SEARCH_RELEVANCE, new Document("$size", new Document(
+						"$setIntersection", Arrays.asList(
+								"$" + Fields.GROUP_SEARCH_TOKENS,
+								new Document("$literal", tokens)))));
+		final List<Document> pipeline = new LinkedList<>(Arrays.asList(
+				new Document("$match", match),
+				new Document("$project", projection),
+				new Document("$sort", new Document(SUMMARY_SEARCH_RELEVANCE, -1)
+						.append(Fields.GROUP_ID, params.isSortAscending() ? 1 : -1))));
+		if (params.getOffset() > 0) {
+			pipeline.add(new Document("$skip", params.getOffset()));
+		}
+		pipeline.add(new Document("$limit", params.getLimit()));
+		try {
+			return toGroupSummaries(db.getCollection(COL_GROUPS).aggregate(pipeline), user);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	private GroupSummary toGroupSummary(final Document grp, final UserName user)
+			throws GroupsStorageException {
+		try {
+			final UserName owner = new UserName(grp.getString(Fields.GROUP_OWNER));
+			final GroupSummary.Builder b = GroupSummary.getBuilder(
+					new GroupID(grp.getString(Fields.GROUP_ID)),
+					new GroupName(grp.getString(Fields.GROUP_NAME)),
+					owner,
+					new CreateAndModTimes(
+							grp.getDate(Fields.GROUP_CREATION).toInstant(),
+							grp.getDate(Fields.GROUP_MODIFICATION).toInstant()),
+					grp.getInteger(SUMMARY_MEMBER_COUNT))
+					.withIsPrivate(grp.getBoolean(Fields.GROUP_IS_PRIVATE));
+			final Document rescounts = (Document) grp.get(SUMMARY_RESOURCE_COUNTS);
+			if (rescounts != null) {
+				for (final String restype: rescounts.keySet()) {
+					final int count = rescounts.getInteger(restype);
+					if (count > 0) {
+						b.withResourceCount(new ResourceType(restype), count);
+					}
+				}
+			}
+			if (user != null) {
+				@SuppressWarnings("unchecked")
+				final List<Object> visit = (List<Object>) grp.get(SUMMARY_USER_VISIT);
+				if (!visit.isEmpty()) {
+					final Role role;
+					if (owner.equals(user)) {
+						role = Role.OWNER;
+					} else if (getUserSet(grp, Fields.GROUP_ADMINS).contains(user)) {
+						role = Role.ADMIN;
+					} else {
+						role = Role.MEMBER;
+					}
+					final Object v = visit.get(0);
+					b.withUserRole(role, v instanceof Date ? ((Date) v).toInstant() : null);
+				}
+			}
+			addCustomFields((f, v) -> b.withCustomField(f, v), Fields.GROUP_CUSTOM_FIELDS, grp);
+			return b.build();
+		} catch (MissingParameterException | IllegalParameterException | NullPointerException |
+				IllegalArgumentException e) {
+			throw new GroupsStorageException(
+					"Unexpected value in database: " + e.getMessage(), e);
+		}
 	}
 	
 	private Group toGroup(final Document grp) throws GroupsStorageException {
@@ -762,35 +1451,97 @@ public class MongoGroupsStorage implements GroupsStorage {
 	}
 
 	private Map<UserName, GroupUser> getMembers(final Document grp)
-			throws MissingParameterException, IllegalParameterException {
-		@SuppressWarnings("unchecked")
-		final List<Document> members = (List<Document>) grp.get(Fields.GROUP_MEMBERS);
+			throws MissingParameterException, IllegalParameterException,
+				GroupsStorageException {
 		final Map<UserName, GroupUser> ret = new HashMap<>();
-		for (final Document m: members) {
-			final UserName u = new UserName(m.getString(Fields.GROUP_MEMBER_NAME));
-			final GroupUser.Builder b = GroupUser.getBuilder(
-					u, m.getDate(Fields.GROUP_MEMBER_JOIN_DATE).toInstant())
-					.withNullableLastVisit(Optional.ofNullable(
-							m.getDate(Fields.GROUP_MEMBER_VISIT_DATE))
-							.map(d -> d.toInstant()).orElse(null));
-			addCustomFields(
-					(f, v) -> b.withCustomField(f, v), Fields.GROUP_MEMBER_CUSTOM_FIELDS, m);
-			ret.put(u, b.build());
+		if (memberCollection) {
+			// the driver fetches the members in batches as the cursor is iterated
+			try {
+				for (final Document m: db.getCollection(COL_MEMBERS)
+						.find(new Document(Fields.MEMBER_GROUP_ID, grp.getString(Fields.GROUP_ID)))
+						.sort(new Document(Fields.GROUP_MEMBER_NAME, 1))
+						.batchSize(MEMBER_BATCH_SIZE)) {
+					final GroupUser gu = toGroupUser(m);
+					ret.put(gu.getName(), gu);
+				}
+			} catch (MongoException e) {
+				throw wrapMongoException(e);
+			}
+		} else {
+			@SuppressWarnings("unchecked")
+			final List<Document> members = (List<Document>) grp.get(Fields.GROUP_MEMBERS);
+			for (final Document m: members) {
+				final GroupUser gu = toGroupUser(m);
+				ret.put(gu.getName(), gu);
+			}
 		}
 		return ret;
 	}
+	
+	private GroupUser toGroupUser(final Document m)
+			throws MissingParameterException, IllegalParameterException {
+		final GroupUser.Builder b = GroupUser.getBuilder(
+				new UserName(m.getString(Fields.GROUP_MEMBER_NAME)),
+				m.getDate(Fields.GROUP_MEMBER_JOIN_DATE).toInstant())
+				.withNullableLastVisit(Optional.ofNullable(
+						m.getDate(Fields.GROUP_MEMBER_VISIT_DATE))
+						.map(d -> d.toInstant()).orElse(null));
+		addCustomFields(
+				(f, v) -> b.withCustomField(f, v), Fields.GROUP_MEMBER_CUSTOM_FIELDS, m);
+		return b.build();
+	}
 
 	@Override
 	public void addMember(final GroupID groupID, final GroupUser member, final Instant modDate)
 			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException {
 		requireNonNull(member, "member");
 		try {
-			addUser(groupID, member.getName(), toDoc(member), modDate, false);
+			if (memberCollection) {
+				addMemberToCollection(groupID, member, modDate);
+			} else {
+				addUser(groupID, member.getName(), toDoc(member), modDate, false);
+			}
 		} catch (NoSuchUserException e) {
 			throw new RuntimeException("This should be impossible", e);
 		}
 	}
 	
+	private void addMemberToCollection(
+			final GroupID groupID,
+			final GroupUser member,
+			final Instant modDate)
+			throws GroupsStorageException, NoSuchGroupException, UserIsMemberException,
+				NoSuchUserException {
+		requireNonNull(groupID, "groupID");
+		requireNonNull(modDate, "modDate");
+		getGroupDoc(groupID, new Document(Fields.GROUP_ID, 1)); // throws no such group
+		try {
+			db.getCollection(COL_MEMBERS).insertOne(toMemberDoc(groupID, member));
+			incrementMemberCount(groupID, 1, modDate);
+		} catch (MongoWriteException mwe) {
+			// the owner and admins are always members, so the unique index catches them too
+			if (DuplicateKeyExceptionChecker.isDuplicate(mwe)) {
+				handleNoMatchOnUserAdd(groupID, member.getName(), false);
+			}
+			// painful to test
+			throw new GroupsStorageException("Database write failed", mwe);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	// expects to be called within a try block that handles MongoExceptions
+	private void incrementMemberCount(
+			final GroupID groupID,
+			final int increment,
+			final Instant modDate) {
+		db.getCollection(COL_GROUPS).updateOne(
+				new Document(Fields.GROUP_ID, groupID.getName()),
+				new Document("$inc", new Document(Fields.GROUP_MEMBER_COUNT, increment))
+						.append("$set", new Document(
+								Fields.GROUP_MODIFICATION, Date.from(modDate))));
+	}
+	
 	@Override
 	public void addAdmin(final GroupID groupID, final UserName admin, final Instant modDate)
 			throws NoSuchGroupException, GroupsStorageException, UserIsMemberException,
@@ -813,9 +1564,11 @@ public class MongoGroupsStorage implements GroupsStorage {
 		final Document notEqualToMember = new Document("$ne", member.getName());
 		final Document query = new Document(Fields.GROUP_ID, groupID.getName())
 				.append(Fields.GROUP_OWNER, notEqualToMember)
-				.append(Fields.GROUP_ADMINS, notEqualToMember)
-				.append(Fields.GROUP_MEMBERS + Fields.FIELD_SEP + Fields.GROUP_MEMBER_NAME,
-						asAdmin ? member.getName() : notEqualToMember);
+				.append(Fields.GROUP_ADMINS, notEqualToMember);
+		if (!memberCollection) {
+			query.append(Fields.GROUP_MEMBERS + Fields.FIELD_SEP + Fields.GROUP_MEMBER_NAME,
+					asAdmin ? member.getName() : notEqualToMember);
+		}
 			
 		final Document modification =
 				new Document("$addToSet", new Document(
@@ -823,6 +1576,12 @@ public class MongoGroupsStorage implements GroupsStorage {
 				.append("$set", new Document(Fields.GROUP_MODIFICATION, Date.from(modDate)));
 		
 		try {
+			// only admins are added here when members are stored in a separate collection.
+			// Unlike the embedded member list, the membership check isn't atomic with the
+			// promotion, but owners and admins can't be removed, so the window is very small.
+			if (memberCollection && !isMember(groupID, member)) {
+				handleNoMatchOnUserAdd(groupID, member, asAdmin);
+			}
 			final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(query, modification);
 			if (res.getMatchedCount() != 1) {
 				handleNoMatchOnUserAdd(groupID, member, asAdmin);
@@ -839,20 +1598,25 @@ public class MongoGroupsStorage implements GroupsStorage {
 			final boolean asAdmin)
 			throws GroupsStorageException, NoSuchGroupException, UserIsMemberException,
 				NoSuchUserException {
-		final Group g = getGroup(groupID); // will throw no such group
-		if (g.getOwner().equals(member)) {
+		// don't read the member list, which may be very large
+		final Document g = getGroupDoc(groupID, new Document(Fields.GROUP_OWNER, 1)
+				.append(Fields.GROUP_ADMINS, 1)); // will throw no such group
+		@SuppressWarnings("unchecked")
+		final List<String> admins = (List<String>) g.get(Fields.GROUP_ADMINS);
+		final boolean isMember = isMember(groupID, member);
+		if (member.getName().equals(g.getString(Fields.GROUP_OWNER))) {
 			throw new UserIsMemberException(String.format(
 					"User %s is the owner of group %s",
 					member.getName(), groupID.getName()));
-		} else if (g.getAdministrators().contains(member)) {
+		} else if (admins.contains(member.getName())) {
 			throw new UserIsMemberException(String.format(
 					"User %s is %san administrator of group %s",
 					member.getName(), asAdmin ? "already " : "", groupID.getName()));
-		} else if (g.getMembers().contains(member) && !asAdmin) {
+		} else if (isMember && !asAdmin) {
 			throw new UserIsMemberException(String.format(
 					"User %s is already a member of group %s",
 					member.getName(), groupID.getName()));
-		} else if (!g.getMembers().contains(member) && asAdmin) {
+		} else if (!isMember && asAdmin) {
 			// so yeah, this is lazy and maybe there's a better mongo data structure that means
 			// we can add admins directly. However, it's pretty trivial to add them as is,
 			// the current data structure works, so YAGNI
@@ -874,11 +1638,63 @@ public class MongoGroupsStorage implements GroupsStorage {
 		}
 	}
 	
+	// does not check the group exists
+	private boolean isMember(final GroupID groupID, final UserName user)
+			throws GroupsStorageException {
+		try {
+			if (memberCollection) {
+				return db.getCollection(COL_MEMBERS).countDocuments(
+						new Document(Fields.MEMBER_GROUP_ID, groupID.getName())
+								.append(Fields.GROUP_MEMBER_NAME, user.getName())) == 1;
+			} else {
+				return db.getCollection(COL_GROUPS).countDocuments(
+						new Document(Fields.GROUP_ID, groupID.getName())
+								.append(Fields.GROUP_MEMBERS + Fields.FIELD_SEP +
+										Fields.GROUP_MEMBER_NAME, user.getName())) == 1;
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
 	@Override
 	public void removeMember(final GroupID groupID, final UserName member, final Instant modDate)
 			throws NoSuchGroupException, NoSuchUserException, GroupsStorageException {
 		checkNotNull(member, "member");
-		demoteMember(groupID, member, modDate, false);
+		if (memberCollection) {
+			removeMemberFromCollection(groupID, member, modDate);
+		} else {
+			demoteMember(groupID, member, modDate, false);
+		}
+	}
+	
+	private void removeMemberFromCollection(
+			final GroupID groupID,
+			final UserName member,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		checkNotNull(groupID, "groupID");
+		checkNotNull(modDate, "modDate");
+		final Document notEqualToMember = new Document("$ne", member.getName());
+		// the owner and admins can't be removed
+		final Document gdoc = findOne(COL_GROUPS, new Document(Fields.GROUP_ID, groupID.getName())
+				.append(Fields.GROUP_OWNER, notEqualToMember)
+				.append(Fields.GROUP_ADMINS, notEqualToMember),
+				new Document(Fields.GROUP_ID, 1));
+		try {
+			if (gdoc != null && db.getCollection(COL_MEMBERS).deleteOne(
+					new Document(Fields.MEMBER_GROUP_ID, groupID.getName())
+							.append(Fields.GROUP_MEMBER_NAME, member.getName()))
+					.getDeletedCount() == 1) {
+				incrementMemberCount(groupID, -1, modDate);
+				return;
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		getGroupDoc(groupID, new Document(Fields.GROUP_ID, 1)); // will throw no such group
+		throw new NoSuchUserException(String.format("No member %s in group %s",
+				member.getName(), groupID.getName()));
 	}
 	
 	@Override
@@ -918,7 +1734,7 @@ public class MongoGroupsStorage implements GroupsStorage {
 		try {
 			final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(query, mod);
 			if (res.getMatchedCount() != 1) {
-				getGroup(groupID); // will throw no such group
+				getGroupDoc(groupID, new Document(Fields.GROUP_ID, 1)); // will throw no such group
 				throw new NoSuchUserException(String.format("No %s %s in group %s",
 						asAdmin ? "administrator" : "member",
 						member.getName(), groupID.getName()));
@@ -940,6 +1756,10 @@ public class MongoGroupsStorage implements GroupsStorage {
 		if (fields.isEmpty()) {
 			return;
 		}
+		if (memberCollection) {
+			updateUserInCollection(groupID, member, fields, modDate);
+			return;
+		}
 		final List<Document> memberQueryOr = new LinkedList<>();
 		final Document query = new Document(Fields.GROUP_ID, groupID.getName())
 				// This 1) finds the position of the member to alter, and
@@ -962,31 +1782,70 @@ public class MongoGroupsStorage implements GroupsStorage {
 				memberQueryOr,
 				set);
 		// if it matches, it gets modified
-		updateUser(groupID, member, query, update);
+		updateUser(COL_GROUPS, groupID, member, query, update);
+	}
+	
+	private void updateUserInCollection(
+			final GroupID groupID,
+			final UserName member,
+			final Map<NumberedCustomField, OptionalString> fields,
+			final Instant modDate)
+			throws NoSuchGroupException, GroupsStorageException, NoSuchUserException {
+		final List<Document> memberQueryOr = new LinkedList<>();
+		// as for the embedded member list, the query only matches if the update changes
+		// the member
+		final Document query = new Document(Fields.MEMBER_GROUP_ID, groupID.getName())
+				.append(Fields.GROUP_MEMBER_NAME, member.getName())
+				.append("$or", memberQueryOr);
+		final Document update = buildQueryAndUpdateForCustomFields(
+				fields.keySet(),
+				f -> fields.get(f),
+				Fields.GROUP_MEMBER_CUSTOM_FIELDS + Fields.FIELD_SEP,
+				Fields.GROUP_MEMBER_CUSTOM_FIELDS + Fields.FIELD_SEP,
+				memberQueryOr,
+				new Document());
+		if (((Document) update.get("$set")).isEmpty()) {
+			// mongo rejects empty $set documents
+			update.remove("$set");
+		}
+		if (updateUser(COL_MEMBERS, groupID, member, query, update)) {
+			try {
+				db.getCollection(COL_GROUPS).updateOne(
+						new Document(Fields.GROUP_ID, groupID.getName()),
+						new Document("$set", new Document(
+								Fields.GROUP_MODIFICATION, Date.from(modDate))));
+			} catch (MongoException e) {
+				throw wrapMongoException(e);
+			}
+		}
 	}
 
 	// only checks for a match, not modification, and will generally throw an error if no match
 	// assumes match is on gid and username and throws errors for those conditions
-	private void updateUser(
+	// returns true if the query matched
+	private boolean updateUser(
+			final String collection,
 			final GroupID groupID,
 			final UserName member,
 			final Document query,
 			final Document update)
 			throws GroupsStorageException, NoSuchGroupException, NoSuchUserException {
 		try {
-			final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(query, update);
+			final UpdateResult res = db.getCollection(collection).updateOne(query, update);
 			if (res.getMatchedCount() != 1) {
-				final Group g = getGroup(groupID); //throws no such group
+				getGroupDoc(groupID, new Document(Fields.GROUP_ID, 1)); //throws no such group
 				// there's a *tiny* possibility that the user could've been added between
 				// the match failing and now, which would mean the function doesn't error
 				// when it should.
 				// So improbable not worth worrying about.
-				if (!g.isMember(member)) {
+				if (!isMember(groupID, member)) {
 					throw new NoSuchUserException(String.format(
 							"User %s is not a member of group %s",
 							member.getName(), groupID.getName()));
 				}
+				return false;
 			}
+			return true;
 		} catch (MongoException e) {
 			throw wrapMongoException(e);
 		}
@@ -1017,13 +1876,21 @@ public class MongoGroupsStorage implements GroupsStorage {
 		requireNonNull(groupID, "groupID");
 		requireNonNull(member, "member");
 		requireNonNull(lastVisited, "lastVisited");
+		if (memberCollection) {
+			updateUser(COL_MEMBERS, groupID, member,
+					new Document(Fields.MEMBER_GROUP_ID, groupID.getName())
+							.append(Fields.GROUP_MEMBER_NAME, member.getName()),
+					new Document("$set", new Document(
+							Fields.GROUP_MEMBER_VISIT_DATE, lastVisited)));
+			return;
+		}
 		final Document query = new Document(Fields.GROUP_ID, groupID.getName())
 				.append(Fields.GROUP_MEMBERS, new Document("$elemMatch",
 						new Document(Fields.GROUP_MEMBER_NAME, member.getName())));
 		
 		final Document update = new Document("$set", new Document(
 				Fields.GROUP_MEMBERS + ".$." + Fields.GROUP_MEMBER_VISIT_DATE, lastVisited));
-		updateUser(groupID, member, query, update);
+		updateUser(COL_GROUPS, groupID, member, query, update);
 	}
 
 	@Override
@@ -1073,6 +1940,7 @@ public class MongoGroupsStorage implements GroupsStorage {
 		// admin ID
 		final String resourceField = Fields.GROUP_RESOURCES + Fields.FIELD_SEP + type.getName();
 		final String resIDStr = resourceID.getName();
+		final String resourceKey = toResourceKey(type.getName(), resIDStr);
 		final String resourceIDField = resourceField + Fields.FIELD_SEP + Fields.GROUP_RESOURCE_ID;
 		final Document query = new Document(Fields.GROUP_ID, groupID.getName())
 				.append(resourceIDField,
@@ -1084,15 +1952,17 @@ public class MongoGroupsStorage implements GroupsStorage {
 					resourceField, new Document(
 							Fields.GROUP_RESOURCE_ADMINISTRATIVE_ID, resourceAdminID.getName())
 							.append(Fields.GROUP_RESOURCE_ID, resIDStr)
-							.append(Fields.GROUP_RESOURCE_ADDED, modDate)));
+							.append(Fields.GROUP_RESOURCE_ADDED, modDate))
+					.append(Fields.GROUP_RESOURCE_KEYS, resourceKey));
 		} else {
 			update.append("$pull", new Document(resourceField,
-					new Document(Fields.GROUP_RESOURCE_ID, resIDStr)));
+					new Document(Fields.GROUP_RESOURCE_ID, resIDStr))
+					.append(Fields.GROUP_RESOURCE_KEYS, resourceKey));
 		}
 		try {
 			final UpdateResult res = db.getCollection(COL_GROUPS).updateOne(query, update);
 			if (res.getMatchedCount() != 1) {
-				getGroup(groupID); // throws no such group exception
+				getGroupDoc(groupID, new Document(Fields.GROUP_ID, 1)); // throws no such group
 				return false; // no match, throw appropriate exception in calling method
 			} else {
 				return true;
@@ -1108,6 +1978,33 @@ public class MongoGroupsStorage implements GroupsStorage {
 			throws RequestExistsException, GroupsStorageException {
 		checkNotNull(request, "request");
 		final String charString = getCharacteristicString(request);
+		try {
+			db.getCollection(COL_REQUESTS).insertOne(toDoc(request, charString));
+		} catch (MongoWriteException mwe) {
+			// not happy about this, but getDetails() returns an empty map
+			final DuplicateKeyExceptionChecker dk = new DuplicateKeyExceptionChecker(mwe);
+			if (dk.isDuplicate() && COL_REQUESTS.equals(dk.getCollection().get())) {
+				if ((Fields.REQUEST_ID + "_1").equals(dk.getIndex().get())) {
+					throw new IllegalArgumentException(String.format("ID %s already exists " +
+							"in the database. The programmer is responsible for maintaining " +
+							"unique IDs.", request.getID().getID()));
+				} else if ((Fields.REQUEST_CHARACTERISTIC_STRING + "_1")
+						.equals(dk.getIndex().get())) {
+					// there's a tiny possibility of race condition here but not worth
+					// worrying about
+					final String requestID = getRequestIDFromCharacteristicString(charString);
+					throw new RequestExistsException("Request exists with ID: " +
+						requestID);
+				} // otherwise throw next exception
+			}
+			throw new GroupsStorageException("Database write failed", mwe);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	// charString may be null
+	private Document toDoc(final GroupRequest request, final String charString) {
 		final Document req = new Document(
 				Fields.REQUEST_ID, request.getID().getID())
 				.append(Fields.REQUEST_GROUP_ID, request.getGroupID().getName())
@@ -1128,31 +2025,52 @@ public class MongoGroupsStorage implements GroupsStorage {
 		if (charString != null) {
 				req.append(Fields.REQUEST_CHARACTERISTIC_STRING, charString);
 		}
+		return req;
+	}
+	
+	@Override
+	public void importRequests(final List<GroupRequest> requests)
+			throws RequestExistsException, GroupsStorageException {
+		checkNoNullsInCollection(requests, "requests");
+		if (requests.isEmpty()) {
+			return;
+		}
+		final List<String> charStrings = new ArrayList<>();
+		final List<Document> docs = new ArrayList<>();
+		for (final GroupRequest r: requests) {
+			final String charString = getCharacteristicString(r);
+			charStrings.add(charString);
+			docs.add(toDoc(r, charString));
+		}
 		try {
-			db.getCollection(COL_REQUESTS).insertOne(req);
-		} catch (MongoWriteException mwe) {
-			// not happy about this, but getDetails() returns an empty map
-			final DuplicateKeyExceptionChecker dk = new DuplicateKeyExceptionChecker(mwe);
+			// ordered inserts stop at the first failure, so the preceding requests are stored
+			db.getCollection(COL_REQUESTS).insertMany(docs);
+		} catch (MongoBulkWriteException mbwe) {
+			final BulkWriteError err = mbwe.getWriteErrors().get(0);
+			final DuplicateKeyExceptionChecker dk = new DuplicateKeyExceptionChecker(err, mbwe);
 			if (dk.isDuplicate() && COL_REQUESTS.equals(dk.getCollection().get())) {
 				if ((Fields.REQUEST_ID + "_1").equals(dk.getIndex().get())) {
-					throw new IllegalArgumentException(String.format("ID %s already exists " +
-							"in the database. The programmer is responsible for maintaining " +
-							"unique IDs.", request.getID().getID()));
+					throw new RequestExistsException("Request exists with ID: " +
+							requests.get(err.getIndex()).getID().getID());
 				} else if ((Fields.REQUEST_CHARACTERISTIC_STRING + "_1")
 						.equals(dk.getIndex().get())) {
-					// there's a tiny possibility of race condition here but not worth
-					// worrying about
-					final String requestID = getRequestIDFromCharacteristicString(charString);
 					throw new RequestExistsException("Request exists with ID: " +
-						requestID);
+							getRequestIDFromCharacteristicString(
+									charStrings.get(err.getIndex())));
 				} // otherwise throw next exception
 			}
-			throw new GroupsStorageException("Database write failed", mwe);
+			throw new GroupsStorageException("Database write failed", mbwe);
 		} catch (MongoException e) {
 			throw wrapMongoException(e);
 		}
 	}
 	
+	@Override
+	public void processRequests(final ItemProcessor<GroupRequest> processor)
+			throws GroupsStorageException, IOException {
+		process(COL_REQUESTS, Fields.REQUEST_ID, d -> toRequest(d), processor);
+	}
+	
 	// this should only be called when it's known the characteristic string is in the DB.
 	private String getRequestIDFromCharacteristicString(final String charString)
 			throws GroupsStorageException {
@@ -1254,6 +2172,17 @@ public class MongoGroupsStorage implements GroupsStorage {
 		return findRequests(query, params);
 	}
 
+	@Override
+	public List<GroupRequest> getChangedRequests(final GetChangesParams params)
+			throws GroupsStorageException {
+		requireNonNull(params, "params");
+		final Document sort = new Document(Fields.REQUEST_MODIFICATION, 1)
+				.append(Fields.REQUEST_ID, 1);
+		return getList(COL_REQUESTS,
+				getChangesQuery(params, Fields.REQUEST_MODIFICATION, Fields.REQUEST_ID),
+				new Document(), sort, params.getLimit(), d -> toRequest(d));
+	}
+	
 	@Override
 	public List<GroupRequest> getRequestsByGroup(
 			final GroupID groupID,
@@ -1281,6 +2210,39 @@ public class MongoGroupsStorage implements GroupsStorage {
 		// mongo 2.6 doesn't support count with a limit
 		return findOne(COL_REQUESTS, query, projection) != null;
 	}
+	
+	@Override
+	public Map<GroupID, Instant> getLatestOpenRequestDates(final Set<GroupID> groupIDs)
+			throws GroupsStorageException {
+		checkNoNullsInCollection(groupIDs, "groupIDs");
+		final Map<GroupID, Instant> ret = new HashMap<>();
+		if (groupIDs.isEmpty()) {
+			return ret;
+		}
+		final String latest = "latest";
+		// the (gid, status, type, mod) index covers the match
+		final Document match = new Document(Fields.REQUEST_GROUP_ID, new Document("$in",
+				groupIDs.stream().map(i -> i.getName()).collect(Collectors.toList())))
+				.append(Fields.REQUEST_TYPE, RequestType.REQUEST.name())
+				.append(Fields.REQUEST_STATUS, GroupRequestStatusType.OPEN.name());
+		final Document group = new Document(Fields.MONGO_ID, "$" + Fields.REQUEST_GROUP_ID)
+				.append(latest, new Document("$max", "$" + Fields.REQUEST_MODIFICATION));
+		try {
+			final AggregateIterable<Document> res = db.getCollection(COL_REQUESTS)
+					.aggregate(Arrays.asList(
+							new Document("$match", match),
+							new Document("$group", group)));
+			for (final Document d: res) {
+				ret.put(new GroupID(d.getString(Fields.MONGO_ID)),
+						d.getDate(latest).toInstant());
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		} catch (MissingParameterException | IllegalParameterException e) {
+			throw new GroupsStorageException("Unexpected value in database: " + e.getMessage(), e);
+		}
+		return ret;
+	}
 
 	private List<GroupRequest> findRequests(final Document query, final GetRequestsParams params)
 			throws GroupsStorageException {
@@ -1411,6 +2373,145 @@ public class MongoGroupsStorage implements GroupsStorage {
 		}
 	}
 	
+	@Override
+	public void storeNotification(final PendingNotification notification)
+			throws GroupsStorageException {
+		checkNotNull(notification, "notification");
+		final Document n = new Document(Fields.NOTIFICATION_ID, notification.getID().toString())
+				.append(Fields.NOTIFICATION_TYPE, notification.getType().name())
+				.append(Fields.NOTIFICATION_TARGETS, notification.getTargets().stream()
+						.map(u -> u.getName()).collect(Collectors.toList()))
+				.append(Fields.NOTIFICATION_REQUEST_ID, notification.getRequestID()
+						.map(r -> r.getID()).orElse(null))
+				.append(Fields.NOTIFICATION_USER, notification.getUser()
+						.map(u -> u.getName()).orElse(null))
+				.append(Fields.NOTIFICATION_GROUP_ID, notification.getGroupID()
+						.map(g -> g.getName()).orElse(null))
+				.append(Fields.NOTIFICATION_RESOURCE_TYPE, notification.getResourceType()
+						.map(t -> t.getName()).orElse(null))
+				.append(Fields.NOTIFICATION_RESOURCE_ID, notification.getResourceID()
+						.map(r -> r.getName()).orElse(null))
+				.append(Fields.NOTIFICATION_ATTEMPTS, notification.getAttempts())
+				.append(Fields.NOTIFICATION_CREATION, Date.from(notification.getCreationDate()))
+				.append(Fields.NOTIFICATION_NEXT_ATTEMPT,
+						Date.from(notification.getCreationDate()));
+		try {
+			db.getCollection(COL_NOTIFICATIONS).insertOne(n);
+		} catch (MongoWriteException mwe) {
+			if (DuplicateKeyExceptionChecker.isDuplicate(mwe)) {
+				throw new IllegalArgumentException(String.format("ID %s already exists " +
+						"in the database. The programmer is responsible for maintaining " +
+						"unique IDs.", notification.getID()));
+			}
+			throw new GroupsStorageException("Database write failed", mwe);
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public List<PendingNotification> claimNotifications(
+			final int limit,
+			final Instant now,
+			final Instant leaseExpiration)
+			throws GroupsStorageException {
+		checkNotNull(now, "now");
+		checkNotNull(leaseExpiration, "leaseExpiration");
+		if (limit < 1) {
+			throw new IllegalArgumentException("limit must be at least 1");
+		}
+		/* Claim the notifications one at a time with findAndModify, which is atomic per
+		 * document, so that multiple service instances never claim the same notification
+		 * during a single lease.
+		 */
+		final Document query = new Document(Fields.NOTIFICATION_NEXT_ATTEMPT,
+				new Document("$lte", Date.from(now)));
+		final Document update = new Document("$set", new Document(
+				Fields.NOTIFICATION_NEXT_ATTEMPT, Date.from(leaseExpiration)));
+		final FindOneAndUpdateOptions opts = new FindOneAndUpdateOptions()
+				.sort(new Document(Fields.NOTIFICATION_NEXT_ATTEMPT, 1))
+				.returnDocument(ReturnDocument.AFTER);
+		final List<PendingNotification> ret = new LinkedList<>();
+		try {
+			final MongoCollection<Document> col = db.getCollection(COL_NOTIFICATIONS);
+			for (int i = 0; i < limit; i++) {
+				final Document n = col.findOneAndUpdate(query, update, opts);
+				if (n == null) {
+					break;
+				}
+				ret.add(toNotification(n));
+			}
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+		return ret;
+	}
+	
+	private PendingNotification toNotification(final Document n)
+			throws GroupsStorageException {
+		try {
+			final UUID id = UUID.fromString(n.getString(Fields.NOTIFICATION_ID));
+			final PendingNotification.Type type = PendingNotification.Type.valueOf(
+					n.getString(Fields.NOTIFICATION_TYPE));
+			final Instant created = n.getDate(Fields.NOTIFICATION_CREATION).toInstant();
+			final PendingNotification.Builder b;
+			if (PendingNotification.Type.ADD_RESOURCE.equals(type)) {
+				b = PendingNotification.getAddResourceBuilder(
+						id,
+						new UserName(n.getString(Fields.NOTIFICATION_USER)),
+						new GroupID(n.getString(Fields.NOTIFICATION_GROUP_ID)),
+						new ResourceType(n.getString(Fields.NOTIFICATION_RESOURCE_TYPE)),
+						new ResourceID(n.getString(Fields.NOTIFICATION_RESOURCE_ID)),
+						created);
+			} else {
+				b = PendingNotification.getRequestBuilder(
+						id,
+						type,
+						new RequestID(n.getString(Fields.NOTIFICATION_REQUEST_ID)),
+						created);
+			}
+			return b.withTargets(getUserSet(n, Fields.NOTIFICATION_TARGETS))
+					.withAttempts(n.getInteger(Fields.NOTIFICATION_ATTEMPTS))
+					.build();
+		} catch (IllegalParameterException | MissingParameterException |
+				IllegalArgumentException e) {
+			throw new GroupsStorageException(
+					"Unexpected value in database: " + e.getMessage(), e);
+		}
+	}
+	
+	@Override
+	public void rescheduleNotification(
+			final UUID id,
+			final int attempts,
+			final Instant nextAttempt)
+			throws GroupsStorageException {
+		checkNotNull(id, "id");
+		checkNotNull(nextAttempt, "nextAttempt");
+		if (attempts < 0) {
+			throw new IllegalArgumentException("attempts must be at least 0");
+		}
+		try {
+			db.getCollection(COL_NOTIFICATIONS).updateOne(
+					new Document(Fields.NOTIFICATION_ID, id.toString()),
+					new Document("$set", new Document(Fields.NOTIFICATION_ATTEMPTS, attempts)
+							.append(Fields.NOTIFICATION_NEXT_ATTEMPT, Date.from(nextAttempt))));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
+	@Override
+	public void removeNotification(final UUID id) throws GroupsStorageException {
+		checkNotNull(id, "id");
+		try {
+			db.getCollection(COL_NOTIFICATIONS).deleteOne(
+					new Document(Fields.NOTIFICATION_ID, id.toString()));
+		} catch (MongoException e) {
+			throw wrapMongoException(e);
+		}
+	}
+	
 	/* Use this for finding documents where indexes should force only a single
 	 * document. Assumes the indexes are doing their job.
 	 */
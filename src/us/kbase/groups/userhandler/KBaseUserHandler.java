@@ -6,10 +6,19 @@ import java.io.IOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.LoggerFactory;
 
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+
 import us.kbase.auth.AuthConfig;
 import us.kbase.auth.AuthException;
 import us.kbase.auth.AuthToken;
@@ -22,6 +31,9 @@ import us.kbase.groups.core.exceptions.ErrorType;
 import us.kbase.groups.core.exceptions.IllegalParameterException;
 import us.kbase.groups.core.exceptions.InvalidTokenException;
 import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.DownstreamTimer.Timing;
+import us.kbase.groups.metrics.MetricsRegistry;
 
 /** A user handler for the KBase authentication service.
  * @author gaprice@lbl.gov
@@ -29,18 +41,29 @@ import us.kbase.groups.core.exceptions.MissingParameterException;
  */
 public class KBaseUserHandler implements UserHandler {
 
-	// TODO TEST
+	// note the configurable auth service handles its own caching, but only for tokens and
+	// with a fixed size and expiration time.
 	
-	// note the configurable auth service handles its own caching.
+	// calls to the auth service are timed here rather than by wrapping the handler so that
+	// cache hits aren't recorded as downstream calls
+	private static final String DEPENDENCY = "auth";
+	private static final int DEFAULT_CACHE_SIZE = 10000;
+	private static final int DEFAULT_CACHE_EXPIRATION_SEC = 300;
 	
 	private static final String GLOBUS_URL_SUFFIX = "api/legacy/globus";
 	private static final String KBASE_URL_SUFFIX = "api/legacy/KBase/Sessions/Login";
 	
-	private final URI rootAuthURI;
 	private final ConfigurableAuthService auth;
 	private final Token serviceToken;
+	private final DownstreamTimer timer;
+	// keys are hashes of the token so the token is never stored in memory by this class
+	private final Cache<String, UserName> tokenCache;
+	// only valid names are cached, since a new user may be created at any time
+	private final Cache<UserName, Boolean> userCache;
 	
-	/** Create the handler.
+	/** Create the handler with the default cache settings, which are a maximum of 10000
+	 * entries per cache and an expiration time of 300 seconds. Calls to the authentication
+	 * service are timed with a timer that records to an unshared metrics registry.
 	 * @param rootAuthURL the root url of the KBase authentication service.
 	 * @param serviceToken a service token for the KBase authentication service. This is used
 	 * to check that user names are valid.
@@ -56,17 +79,87 @@ public class KBaseUserHandler implements UserHandler {
 			final boolean allowInsecureURL)
 			throws IOException, URISyntaxException, InvalidTokenException,
 				AuthenticationException {
+		this(rootAuthURL, serviceToken, allowInsecureURL,
+				DEFAULT_CACHE_SIZE, DEFAULT_CACHE_EXPIRATION_SEC,
+				new DownstreamTimer(new MetricsRegistry()));
+	}
+	
+	/** Create the handler.
+	 * @param rootAuthURL the root url of the KBase authentication service.
+	 * @param serviceToken a service token for the KBase authentication service. This is used
+	 * to check that user names are valid.
+	 * @param allowInsecureURL allow a non-https URL.
+	 * @param cacheSize the maximum number of entries in the token and user name caches.
+	 * 0 disables caching.
+	 * @param cacheExpirationSec the time, in seconds, after which a cache entry expires.
+	 * @param timer the timer for calls to the authentication service. Cache hits are not
+	 * timed.
+	 * @throws IOException if the authentication service could not be contacted.
+	 * @throws URISyntaxException if the URL is not a valid URI.
+	 * @throws InvalidTokenException if the service token is invalid.
+	 * @throws AuthenticationException if an error occurs while validating the token.
+	 */
+	public KBaseUserHandler(
+			final URL rootAuthURL,
+			final Token serviceToken,
+			final boolean allowInsecureURL,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final DownstreamTimer timer)
+			throws IOException, URISyntaxException, InvalidTokenException,
+				AuthenticationException {
+		this(buildAuth(rootAuthURL, allowInsecureURL), serviceToken, cacheSize,
+				cacheExpirationSec, timer, Ticker.systemTicker());
+	}
+	
+	private static ConfigurableAuthService buildAuth(
+			final URL rootAuthURL,
+			final boolean allowInsecureURL)
+			throws URISyntaxException, IOException {
 		checkNotNull(rootAuthURL, "rootAuthURL");
-		checkNotNull(serviceToken, "serviceToken");
+		final URI rootAuthURI;
 		if (rootAuthURL.toString().endsWith("/")) {
-			this.rootAuthURI = rootAuthURL.toURI();
+			rootAuthURI = rootAuthURL.toURI();
 		} else {
-			this.rootAuthURI = new URL(rootAuthURL.toString() + "/").toURI();
+			rootAuthURI = new URL(rootAuthURL.toString() + "/").toURI();
 		}
-		auth = new ConfigurableAuthService(new AuthConfig()
+		return new ConfigurableAuthService(new AuthConfig()
 				.withAllowInsecureURLs(allowInsecureURL)
-				.withKBaseAuthServerURL(this.rootAuthURI.resolve(KBASE_URL_SUFFIX).toURL())
-				.withGlobusAuthURL(this.rootAuthURI.resolve(GLOBUS_URL_SUFFIX).toURL()));
+				.withKBaseAuthServerURL(rootAuthURI.resolve(KBASE_URL_SUFFIX).toURL())
+				.withGlobusAuthURL(rootAuthURI.resolve(GLOBUS_URL_SUFFIX).toURL()));
+	}
+	
+	// for testing
+	private KBaseUserHandler(
+			final ConfigurableAuthService auth,
+			final Token serviceToken,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final DownstreamTimer timer,
+			final Ticker ticker)
+			throws InvalidTokenException, AuthenticationException {
+		checkNotNull(serviceToken, "serviceToken");
+		checkNotNull(timer, "timer");
+		if (cacheSize < 0) {
+			throw new IllegalArgumentException("cacheSize must be at least 0");
+		}
+		if (cacheExpirationSec < 1) {
+			throw new IllegalArgumentException("cacheExpirationSec must be at least 1");
+		}
+		tokenCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.ticker(ticker)
+				.recordStats()
+				.build();
+		userCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.ticker(ticker)
+				.recordStats()
+				.build();
+		this.auth = auth;
+		this.timer = timer;
 		this.serviceToken = serviceToken;
 		getUser(this.serviceToken); // check token is valid
 	}
@@ -75,9 +168,17 @@ public class KBaseUserHandler implements UserHandler {
 	public UserName getUser(final Token token)
 			throws InvalidTokenException, AuthenticationException {
 		checkNotNull(token, "token");
+		final String key = hash(token.getToken());
+		final UserName cached = tokenCache.getIfPresent(key);
+		if (cached != null) {
+			return cached;
+		}
+		final Timing t = timer.start(DEPENDENCY, "validateToken");
 		try {
-			final AuthToken user = auth.validateToken(token.getToken());
-			return new UserName(user.getUserName());
+			final AuthToken user = t.success(auth.validateToken(token.getToken()));
+			final UserName name = new UserName(user.getUserName());
+			tokenCache.put(key, name);
+			return name;
 		} catch (IOException e) {
 			throw new AuthenticationException(ErrorType.AUTHENTICATION_FAILED,
 					"Failed contacting authentication server: " + e.getMessage(), e);
@@ -86,22 +187,65 @@ public class KBaseUserHandler implements UserHandler {
 		} catch (MissingParameterException | IllegalParameterException e) {
 			throw new RuntimeException(
 					"The auth service is returning invalid usernames, something is very wrong", e);
+		} finally {
+			t.stop();
 		}
 	}
 	
 	@Override
 	public boolean isValidUser(final UserName userName) throws AuthenticationException {
 		checkNotNull(userName, "userName");
+		if (userCache.getIfPresent(userName) != null) {
+			return true;
+		}
+		final boolean valid;
+		final Timing t = timer.start(DEPENDENCY, "isValidUserName");
 		try {
-			return auth.isValidUserName(
+			valid = t.success(auth.isValidUserName(
 					Arrays.asList(userName.getName()),
-					new AuthToken(serviceToken.getToken(), "fakeuser"))
+					new AuthToken(serviceToken.getToken(), "fakeuser")))
 					.get(userName.getName());
 		} catch (IOException | AuthException e) {
 			LoggerFactory.getLogger(getClass()).error("Unexpected auth service response", e);
 			throw new AuthenticationException(ErrorType.AUTHENTICATION_FAILED,
 					"Recieved unexpected response from authentication server.", e);
+		} finally {
+			t.stop();
+		}
+		if (valid) {
+			userCache.put(userName, true);
 		}
+		return valid;
+	}
+	
+	private static String hash(final String token) {
+		final MessageDigest digester;
+		try {
+			digester = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException("This should be impossible", e);
+		}
+		final byte[] digest = digester.digest(token.getBytes(StandardCharsets.UTF_8));
+		final StringBuilder sb = new StringBuilder();
+		for (final byte b : digest) {
+			sb.append(String.format("%02x", b));
+		}
+		return sb.toString();
+	}
+	
+	/** Get the hit and miss statistics for the token to user name cache.
+	 * @return the cache statistics.
+	 */
+	public CacheStats getTokenCacheStats() {
+		return tokenCache.stats();
+	}
+	
+	/** Get the hit and miss statistics for the valid user name cache. Note that invalid user
+	 * names are not cached and so are always recorded as misses.
+	 * @return the cache statistics.
+	 */
+	public CacheStats getUserCacheStats() {
+		return userCache.stats();
 	}
 
 	public static void main(final String[] args) throws Exception {
@@ -0,0 +1,74 @@
+package us.kbase.groups.util;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+
+/** Coalesces concurrent loads of the same key. If a load for a key is in progress when
+ * another load for the same key is requested, the second caller waits for and receives the
+ * result, or exception, of the first load rather than starting its own.
+ *
+ * Results are not cached - once a load completes, the next load for the key starts a new
+ * load.
+ *
+ * @param <K> the type of the key.
+ * @param <V> the type of the loaded value.
+ */
+public class SingleFlight<K, V> {
+
+	/** Loads a value.
+	 *
+	 * @param <V> the type of the value.
+	 */
+	public interface Loader<V> {
+	
+		/** Load the value.
+		 * @return the value.
+		 * @throws Exception if the value could not be loaded.
+		 */
+		V load() throws Exception;
+	}
+	
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+	
+	/** Load a value, or wait for the result of a load of the same key that is already in
+	 * progress.
+	 * @param key the key to load.
+	 * @param loader the loader to use if no load is in progress for the key.
+	 * @return the value.
+	 * @throws Exception the exception thrown by the loader, which may have been running in
+	 * another thread.
+	 */
+	public V get(final K key, final Loader<V> loader) throws Exception {
+		checkNotNull(key, "key");
+		checkNotNull(loader, "loader");
+		final CompletableFuture<V> future = new CompletableFuture<>();
+		final CompletableFuture<V> existing = inFlight.putIfAbsent(key, future);
+		if (existing != null) {
+			try {
+				return Uninterruptibles.getUninterruptibly(existing);
+			} catch (ExecutionException e) {
+				final Throwable cause = e.getCause();
+				if (cause instanceof Error) {
+					throw (Error) cause;
+				}
+				throw (Exception) cause;
+			}
+		}
+		try {
+			final V value = loader.load();
+			future.complete(value);
+			return value;
+		} catch (Throwable e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, future);
+		}
+	}
+}
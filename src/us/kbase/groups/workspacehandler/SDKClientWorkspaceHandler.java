@@ -6,19 +6,31 @@ import static us.kbase.groups.util.Util.checkNoNullsInCollection;
 import java.io.IOException;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.github.zafarkhaja.semver.Version;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import us.kbase.common.service.JsonClientException;
 import us.kbase.common.service.ServerException;
@@ -35,6 +47,9 @@ import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceHandler;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.DownstreamTimer.Timing;
+import us.kbase.groups.metrics.MetricsRegistry;
 import us.kbase.workspace.GetObjectInfo3Params;
 import us.kbase.workspace.GetObjectInfo3Results;
 import us.kbase.workspace.GetPermissionsMassParams;
@@ -52,19 +67,56 @@ import us.kbase.workspace.WorkspaceIdentity;
  */
 public class SDKClientWorkspaceHandler implements ResourceHandler {
 	
-	// TODO CACHE may help to cache all or some of the results. YAGNI for now.
+	/* Workspace info (including the description) and permissions are cached for a limited
+	 * time, as they can be changed at any time by the workspace users. Permissions have a
+	 * separate, shorter, expiration time. The creation date of the narrative is the save date
+	 * of the first version of the narrative object, which never changes, so it does not expire.
+	 * 
+	 * The permissions cache is never used for authorization checks such as isAdministrator.
+	 * However, when returning resource information it determines which workspaces appear as
+	 * administrated by the user, and therefore which workspaces are returned when only
+	 * administrated or public workspaces are requested, as well as the permission reported
+	 * for each workspace. A change in permissions may not be reflected in the resource
+	 * information until the cached permissions expire or are evicted.
+	 * 
+	 * Deleted and missing workspaces are also stored in the permissions cache, so that they
+	 * don't cost an extra call to the workspace for each lookup. A workspace that is
+	 * undeleted or created with a previously missing ID may therefore be reported as
+	 * nonexistent until the entry expires or is evicted.
+	 */
 
 	private static final String PERM_ADMIN = "a";
 	private static final String PERM_WRITE = "w";
 	private static final String PERM_READ = "r";
 	private static final String GLOBAL_READ_USER = "*";
 	
+	// marks deleted or missing workspaces in the permissions cache. Compared by identity.
+	private static final Map<String, String> NO_WORKSPACE =
+			Collections.unmodifiableMap(new HashMap<>());
+	
+	// calls to the workspace are timed here rather than by wrapping the handler so that
+	// cache hits aren't recorded as downstream calls
+	private static final String DEPENDENCY = "workspace";
+	
+	private static final int DEFAULT_PARALLELISM = 10;
+	private static final int DEFAULT_CACHE_SIZE = 10000;
+	private static final int DEFAULT_CACHE_EXPIRATION_SEC = 300;
+	private static final int DEFAULT_PERMS_CACHE_EXPIRATION_SEC = 30;
+	private static final int NARRATIVE_CREATION_CACHE_SIZE = 100000;
+	
 	private static final DateTimeFormatter FMT = DateTimeFormatter.ofPattern(
 			"yyyy'-'MM'-'dd'T'HH':'mm':'ssX");
 	
 	private final WorkspaceClient client;
+	private final DownstreamTimer timer;
+	private final ExecutorService executor;
+	private final Cache<Long, WSInfoOwner> wsInfoCache;
+	private final Cache<Long, Map<String, String>> permsCache;
+	private final Cache<Long, NarrCreated> narrCreatedCache;
 	
-	/** Create the handler.
+	/** Create the handler. At most 10 workspace requests will be run concurrently when
+	 * retrieving resource information. At most 10000 workspace info entries will be cached
+	 * for 300 seconds, and permissions will be cached for 30 seconds.
 	 * @param client the workspace client to use to communicate with the workspace. The
 	 * client must be initialized with a token with administrative write privileges.
 	 * @throws ResourceHandlerException if an error occurs contacting the workspace or
@@ -72,14 +124,93 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 	 */
 	public SDKClientWorkspaceHandler(final WorkspaceClient client)
 			throws ResourceHandlerException {
+		this(client, DEFAULT_PARALLELISM);
+	}
+	
+	/** Create the handler. At most 10000 workspace info entries will be cached
+	 * for 300 seconds, and permissions will be cached for 30 seconds. Calls to the workspace
+	 * are timed in an unshared metrics registry.
+	 * @param client the workspace client to use to communicate with the workspace. The
+	 * client must be initialized with a token with administrative write privileges.
+	 * @param parallelism the maximum number of workspace requests to run concurrently when
+	 * retrieving resource information. The limit applies across all calls to the handler.
+	 * @throws ResourceHandlerException if an error occurs contacting the workspace or
+	 * the workspace version is less than 0.8.0.
+	 */
+	public SDKClientWorkspaceHandler(final WorkspaceClient client, final int parallelism)
+			throws ResourceHandlerException {
+		this(client, parallelism, DEFAULT_CACHE_SIZE, DEFAULT_CACHE_EXPIRATION_SEC,
+				DEFAULT_PERMS_CACHE_EXPIRATION_SEC, new DownstreamTimer(new MetricsRegistry()));
+	}
+	
+	/** Create the handler.
+	 * @param client the workspace client to use to communicate with the workspace. The
+	 * client must be initialized with a token with administrative write privileges.
+	 * @param parallelism the maximum number of workspace requests to run concurrently when
+	 * retrieving resource information. The limit applies across all calls to the handler.
+	 * @param cacheSize the maximum number of workspaces for which information and permissions
+	 * will be cached. 0 disables caching.
+	 * @param cacheExpirationSec the time, in seconds, after which cached workspace information
+	 * expires.
+	 * @param permsCacheExpirationSec the time, in seconds, after which cached workspace
+	 * permissions expire.
+	 * @param timer the timer with which calls to the workspace will be timed. Requests
+	 * answered from the caches are not timed.
+	 * @throws ResourceHandlerException if an error occurs contacting the workspace or
+	 * the workspace version is less than 0.8.0.
+	 */
+	public SDKClientWorkspaceHandler(
+			final WorkspaceClient client,
+			final int parallelism,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final int permsCacheExpirationSec,
+			final DownstreamTimer timer)
+			throws ResourceHandlerException {
 		checkNotNull(client, "client");
+		checkNotNull(timer, "timer");
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("parallelism must be at least 1");
+		}
+		if (cacheSize < 0) {
+			throw new IllegalArgumentException("cacheSize must be at least 0");
+		}
+		if (cacheExpirationSec < 1) {
+			throw new IllegalArgumentException("cacheExpirationSec must be at least 1");
+		}
+		if (permsCacheExpirationSec < 1) {
+			throw new IllegalArgumentException("permsCacheExpirationSec must be at least 1");
+		}
 		this.client = client;
+		this.timer = timer;
+		wsInfoCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(cacheExpirationSec, TimeUnit.SECONDS)
+				.build();
+		permsCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize)
+				.expireAfterWrite(permsCacheExpirationSec, TimeUnit.SECONDS)
+				.build();
+		narrCreatedCache = CacheBuilder.newBuilder()
+				.maximumSize(cacheSize == 0 ? 0 : NARRATIVE_CREATION_CACHE_SIZE)
+				.build();
+		final ThreadPoolExecutor exe = new ThreadPoolExecutor(
+				parallelism,
+				parallelism,
+				60, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(),
+				new ThreadFactoryBuilder()
+						.setDaemon(true)
+						.setNameFormat("groups-workspace-handler-%d")
+						.build());
+		exe.allowCoreThreadTimeOut(true);
+		this.executor = exe;
 		final String ver;
 		try {
 			ver = client.ver();
 			// ensure the client has admin creds
 			// don't think there's a way to safely ensure write creds
-			client.administer(new UObject(ImmutableMap.of("command", "listAdmins")));
+			administer(ImmutableMap.of("command", "listAdmins"));
 		} catch (IOException | JsonClientException e) {
 			throw getGeneralWSException(e);
 		}
@@ -89,6 +220,16 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 		}
 	}
 
+	private UObject administer(final Map<String, Object> command)
+			throws IOException, JsonClientException {
+		final Timing t = timer.start(DEPENDENCY, (String) command.get("command"));
+		try {
+			return t.success(client.administer(new UObject(command)));
+		} finally {
+			t.stop();
+		}
+	}
+	
 	private ResourceHandlerException getGeneralWSException(final Exception e) {
 		return new ResourceHandlerException(String.format(
 				"Error contacting workspace at %s", client.getURL()), e);
@@ -128,7 +269,6 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 	}
 
 	private static class Perms {
-		@SuppressWarnings("unused")
 		private final Integer errorWSID;
 		private final List<Map<String, String>> perms;
 		
@@ -147,11 +287,11 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 			throws NoSuchResourceException, ResourceHandlerException {
 		final List<Map<String, String>> perms;
 		try {
-			perms = client.administer(new UObject(ImmutableMap.of(
+			perms = administer(ImmutableMap.of(
 					"command", "getPermissionsMass",
 					"params", new GetPermissionsMassParams().withWorkspaces(
 							ids.stream().map(id -> new WorkspaceIdentity().withId(id))
-									.collect(Collectors.toList())))))
+									.collect(Collectors.toList()))))
 					.asClassInstance(TR_GET_PERMS).get("perms");
 		} catch (ServerException e) {
 			final Integer errorid = getWorkspaceID(e);
@@ -198,38 +338,125 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 			administratedResourcesOnly = true; // only return public workspaces
 		}
 		//TODO WS make a bulk ws method for getwsinfo that returns error code (DELETED, MISSING, INACCESSIBLE, etc.) for inaccessible workspaces
-		//TODO WS for get perms mass make ignore error option that returns error state (DELETED, MISSING, INACCESSIBLE etc.) and use here instead of going one at a time
-		final ResourceInformationSet.Builder b = ResourceInformationSet.getBuilder(user);
+		//TODO WS for get perms mass make ignore error option that returns error state (DELETED, MISSING, INACCESSIBLE etc.) and use here instead of retrying on each error
+		final Map<ResourceID, Long> wsids = new HashMap<>();
 		for (final ResourceID rid: resources) {
-			final long wsid = getWSID(rid);
+			wsids.put(rid, getWSID(rid));
+		}
+		final Map<Long, Map<String, String>> allPerms = getPermissions(
+				new HashSet<>(wsids.values()));
+		final ResourceInformationSet.Builder b = ResourceInformationSet.getBuilder(user);
+		final Map<ResourceID, Perm> toFetch = new HashMap<>();
+		for (final Entry<ResourceID, Long> e: wsids.entrySet()) {
+			final Map<String, String> perms = allPerms.get(e.getValue());
+			if (perms == null) {
+				b.withNonexistentResource(e.getKey());
+			} else {
+				final Perm perm = new Perm(user, perms);
+				if (!administratedResourcesOnly || perm.perm.isAdmin() || perm.isPublic) {
+					toFetch.put(e.getKey(), perm);
+				}
+			}
+		}
+		final Map<Long, WSInfoOwner> infos = getWSInfo(toFetch.keySet().stream()
+				.map(rid -> wsids.get(rid)).collect(Collectors.toSet()));
+		for (final ResourceID rid: toFetch.keySet()) {
+			final WSInfoOwner wi = infos.get(wsids.get(rid));
+			if (wi == null) {
+				// should almost never happen since we checked for inaccessible ws above
+				b.withNonexistentResource(rid);
+			} else {
+				// the info maps are not shared between resource IDs, so they may be modified
+				if (user != null && wi.owner.equals(user.getName())) {
+					wi.wi.put("perm", WorkspacePermission.OWN.getRepresentation());
+				} else {
+					wi.wi.put("perm", toFetch.get(rid).perm.getRepresentation());
+				}
+				wi.wi.keySet().stream()
+						.forEach(s -> b.withResourceField(rid, s, wi.wi.get(s)));
+			}
+		}
+		return b.build();
+	}
+	
+	// gets permissions for all the workspaces with as few calls as possible. The returned map
+	// does not contain deleted or missing workspaces.
+	private Map<Long, Map<String, String>> getPermissions(final Set<Long> wsids)
+			throws ResourceHandlerException {
+		final Map<Long, Map<String, String>> ret = new HashMap<>(
+				permsCache.getAllPresent(wsids));
+		final List<Long> remaining = new ArrayList<>(wsids);
+		remaining.removeAll(ret.keySet());
+		while (!remaining.isEmpty()) {
 			final Perms perms;
 			try {
-				perms = getPermissions(Arrays.asList(wsid), false);
+				perms = getPermissions(remaining, false);
 			} catch (NoSuchResourceException e) {
 				throw new RuntimeException("This should be impossible", e);
 			}
 			if (perms.perms == null) {
-				b.withNonexistentResource(rid);
+				// the workspace only reports the first bad workspace, so remove it and retry
+				if (!remaining.remove(Long.valueOf(perms.errorWSID))) {
+					throw new ResourceHandlerException(String.format(
+							"Workspace at %s reported an error for workspace %s, " +
+							"which was not requested", client.getURL(), perms.errorWSID));
+				}
+				permsCache.put(Long.valueOf(perms.errorWSID), NO_WORKSPACE);
 			} else {
-				final Perm perm = new Perm(user, perms.perms.get(0));
-				if (!administratedResourcesOnly || perm.perm.isAdmin() || perm.isPublic) {
-					final WSInfoOwner wi = getWSInfo(wsid);
-					if (wi == null) {
-						// should almost never happen since we checked for inaccessible ws above
-						b.withNonexistentResource(rid);
-					} else {
-						if (user != null && wi.owner.equals(user.getName())) {
-							wi.wi.put("perm", WorkspacePermission.OWN.getRepresentation());
-						} else {
-							wi.wi.put("perm", perm.perm.getRepresentation());
-						}
-						wi.wi.keySet().stream()
-								.forEach(s -> b.withResourceField(rid, s, wi.wi.get(s)));
-					}
+				for (int i = 0; i < remaining.size(); i++) {
+					final Map<String, String> p = Collections.unmodifiableMap(
+							perms.perms.get(i));
+					ret.put(remaining.get(i), p);
+					permsCache.put(remaining.get(i), p);
 				}
+				remaining.clear();
 			}
 		}
-		return b.build();
+		ret.values().removeIf(p -> p == NO_WORKSPACE);
+		return ret;
+	}
+	
+	// gets the workspace info for each workspace concurrently. The returned map has null values
+	// for missing or deleted workspaces.
+	private Map<Long, WSInfoOwner> getWSInfo(final Set<Long> wsids)
+			throws ResourceHandlerException {
+		final Map<Long, WSInfoOwner> ret = new HashMap<>();
+		if (wsids.size() < 2) {
+			// no point in switching threads
+			for (final long wsid: wsids) {
+				ret.put(wsid, getWSInfo(wsid));
+			}
+			return ret;
+		}
+		final Map<Long, Future<WSInfoOwner>> futures = new HashMap<>();
+		for (final long wsid: wsids) {
+			futures.put(wsid, executor.submit(timer.wrap(() -> getWSInfo(wsid))));
+		}
+		try {
+			for (final Entry<Long, Future<WSInfoOwner>> e: futures.entrySet()) {
+				ret.put(e.getKey(), e.getValue().get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ResourceHandlerException(String.format(
+					"Interrupted while contacting workspace at %s", client.getURL()), e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof ResourceHandlerException) {
+				throw (ResourceHandlerException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			} else {
+				throw new RuntimeException("This should be impossible", cause);
+			}
+		} finally {
+			for (final Future<WSInfoOwner> f: futures.values()) {
+				f.cancel(true);
+			}
+		}
+		return ret;
 	}
 
 	private static final TypeReference<Tuple9<Long, String, String, String, Long, String,
@@ -247,19 +474,32 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 		}
 	}
 						
-	// returns null if missing or deleted
+	// returns null if missing or deleted. The returned info map may be modified.
 	private WSInfoOwner getWSInfo(final long wsid) throws ResourceHandlerException {
+		WSInfoOwner wi = wsInfoCache.getIfPresent(wsid);
+		if (wi == null) {
+			wi = fetchWSInfo(wsid);
+			if (wi == null) {
+				return null;
+			}
+			wsInfoCache.put(wsid, wi);
+		}
+		return new WSInfoOwner(new HashMap<>(wi.wi), wi.owner);
+	}
+	
+	// returns null if missing or deleted
+	private WSInfoOwner fetchWSInfo(final long wsid) throws ResourceHandlerException {
 		final Tuple9<Long, String, String, String, Long, String, String, String,
 				Map<String, String>> wsinfo;
 		final String desc;
 		final NarrInfo narrInfo;
 		try {
 			final WorkspaceIdentity wsi = new WorkspaceIdentity().withId((long) wsid);
-			wsinfo = client.administer(new UObject(ImmutableMap.of(
-					"command", "getWorkspaceInfo", "params", wsi)))
+			wsinfo = administer(ImmutableMap.of(
+					"command", "getWorkspaceInfo", "params", wsi))
 					.asClassInstance(WS_INFO_TYPEREF);
-			final UObject d = client.administer(new UObject(ImmutableMap.of(
-					"command", "getWorkspaceDescription", "params", wsi)));
+			final UObject d = administer(ImmutableMap.of(
+					"command", "getWorkspaceDescription", "params", wsi));
 			desc = d == null ? null : d.asScalar();
 			narrInfo = getNarrativeName(wsinfo.getE1(), wsinfo.getE9());
 		} catch (ServerException e) {
@@ -278,7 +518,7 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 		ret.put("public", PERM_READ.equals(wsinfo.getE7()));
 		ret.put("moddate", timestampToEpochMS(wsinfo.getE4()));
 		ret.put("description", desc);
-		return new WSInfoOwner(ret, wsinfo.getE3());
+		return new WSInfoOwner(Collections.unmodifiableMap(ret), wsinfo.getE3());
 	}
 
 	private long timestampToEpochMS(final String timestamp) {
@@ -295,18 +535,34 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 		}
 	}
 	
+	private static class NarrCreated {
+		private final long narrativeID;
+		private final long created;
+		
+		private NarrCreated(final long narrativeID, final long created) {
+			this.narrativeID = narrativeID;
+			this.created = created;
+		}
+	}
+	
 	private NarrInfo getNarrativeName(final long wsid, final Map<String, String> meta)
 			throws IOException, JsonClientException {
 		if ("false".equals(meta.get("is_temporary")) && meta.containsKey("narrative")) {
 			final String name = meta.get("narrative_nice_name");
 			final long narrativeID = Integer.parseInt(meta.get("narrative"));
-			final GetObjectInfo3Results objinfo = client.administer(new UObject(ImmutableMap.of(
+			final NarrCreated cached = narrCreatedCache.getIfPresent(wsid);
+			// the narrative object could theoretically change
+			if (cached != null && cached.narrativeID == narrativeID) {
+				return new NarrInfo(name, cached.created);
+			}
+			final GetObjectInfo3Results objinfo = administer(ImmutableMap.of(
 					"command", "getObjectInfo",
 					"params", new GetObjectInfo3Params()
 							.withObjects(Arrays.asList(new ObjectSpecification()
-									.withWsid(wsid).withObjid(narrativeID).withVer((long) 1))))))
+									.withWsid(wsid).withObjid(narrativeID).withVer((long) 1)))))
 					.asClassInstance(GetObjectInfo3Results.class);
 			final Long saved = timestampToEpochMS(objinfo.getInfos().get(0).getE4());
+			narrCreatedCache.put(wsid, new NarrCreated(narrativeID, saved));
 			return new NarrInfo(name, saved);
 		} else {
 			return new NarrInfo(null, null);
@@ -319,10 +575,10 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 		checkNotNull(user, "user");
 		final List<Long> ids;
 		try {
-			ids = client.administer(new UObject(ImmutableMap.of(
+			ids = administer(ImmutableMap.of(
 					"command", "listWorkspaceIDs",
 					"user", user.getName(),
-					"params", new ListWorkspaceIDsParams().withPerm(PERM_ADMIN))))
+					"params", new ListWorkspaceIDsParams().withPerm(PERM_ADMIN)))
 					.asClassInstance(ListWorkspaceIDsResults.class)
 					.getWorkspaces();
 		} catch (IOException | JsonClientException e) {
@@ -368,17 +624,34 @@ public class SDKClientWorkspaceHandler implements ResourceHandler {
 			// TODO WS add temporary perms to workspace service so these granted perms can expire rather than forcing the user to remove them if s/he doesn't want them. Optional - some perms should be permanent
 			// TODO WS flag to grant greater of requested & current perm (see $max)
 			try {
-				client.administer(new UObject(ImmutableMap.of(
+				administer(ImmutableMap.of(
 						"command", "setPermissions",
 						"params", new SetPermissionsParams()
 								.withId(wsid)
 								.withNewPermission("r")
-								.withUsers(Arrays.asList(user.getName())))));
+								.withUsers(Arrays.asList(user.getName()))));
 			} catch (IOException | JsonClientException e) {
 				throw getGeneralWSException(e);
 			}
+			permsCache.invalidate(wsid);
 		}
 	}
+	
+	@Override
+	public void evictCache(final ResourceID resource) throws IllegalResourceIDException {
+		checkNotNull(resource, "resource");
+		final long wsid = getWSID(resource);
+		wsInfoCache.invalidate(wsid);
+		permsCache.invalidate(wsid);
+		narrCreatedCache.invalidate(wsid);
+	}
+	
+	@Override
+	public void evictCache() {
+		wsInfoCache.invalidateAll();
+		permsCache.invalidateAll();
+		narrCreatedCache.invalidateAll();
+	}
 
 	@Override
 	public ResourceDescriptor getDescriptor(final ResourceID resource) 
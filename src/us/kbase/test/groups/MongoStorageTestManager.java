@@ -63,6 +63,10 @@ public class MongoStorageTestManager {
 	}
 	
 	public void reset() throws Exception {
+		reset(false);
+	}
+	
+	public void reset(final boolean memberCollection) throws Exception {
 		if (storage != null) {
 			// not sure this will fix the occasional test errors due to too many expires
 			// running during the test, but worth a try. Maybe some of the previously
@@ -75,8 +79,8 @@ public class MongoStorageTestManager {
 		TestCommon.destroyDB(db);
 		clockMock = mock(Clock.class);
 		final Constructor<MongoGroupsStorage> con = MongoGroupsStorage.class.
-				getDeclaredConstructor(MongoDatabase.class, Clock.class);
+				getDeclaredConstructor(MongoDatabase.class, boolean.class, Clock.class);
 		con.setAccessible(true);
-		storage = con.newInstance(db, clockMock);
+		storage = con.newInstance(db, memberCollection, clockMock);
 	}
 }
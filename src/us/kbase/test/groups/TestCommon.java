@@ -6,6 +6,7 @@ import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
@@ -25,6 +26,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import javax.ws.rs.core.StreamingOutput;
+
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.bson.Document;
@@ -159,6 +162,26 @@ public class TestCommon {
 		return Instant.ofEpochMilli(epochMilli);
 	}
 	
+	/** Convert an object to JSON and back, so that JSON written by different means can be
+	 * compared. A {@link StreamingOutput} is written to JSON, anything else is serialized
+	 * with Jackson.
+	 * @param o the object.
+	 * @return the object as parsed from JSON.
+	 * @throws Exception if an error occurs.
+	 */
+	public static Object toJSON(final Object o) throws Exception {
+		final ObjectMapper mapper = new ObjectMapper();
+		final byte[] json;
+		if (o instanceof StreamingOutput) {
+			final ByteArrayOutputStream out = new ByteArrayOutputStream();
+			((StreamingOutput) o).write(out);
+			json = out.toByteArray();
+		} else {
+			json = mapper.writeValueAsBytes(o);
+		}
+		return mapper.readValue(json, Object.class);
+	}
+	
 	public static void assertClear(final byte[] bytes) {
 		for (int i = 0; i < bytes.length; i++) {
 			if (bytes[i] != 0) {
@@ -0,0 +1,296 @@
+package us.kbase.test.groups.bulk;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import us.kbase.groups.bulk.NDJSONCodec;
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.ItemSource;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.request.RequestType;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.ItemProcessor;
+import us.kbase.test.groups.TestCommon;
+
+public class NDJSONCodecTest {
+	
+	private static final String RID = "00000000-0000-0000-0000-000000000001";
+	
+	private static final String MIN_GROUP =
+			"{\"version\":1,\"id\":\"gid\",\"name\":\"name\",\"owner\":\"own\"," +
+			"\"private\":false,\"privatemembers\":true,\"created\":10000," +
+			"\"modified\":10000,\"admins\":[]," +
+			"\"members\":[{\"name\":\"own\",\"joined\":10000,\"lastvisit\":null," +
+			"\"custom\":{}}],\"resources\":{},\"custom\":{}}\n";
+	
+	private static final String MIN_REQUEST =
+			"{\"version\":1,\"id\":\"" + RID + "\",\"groupid\":\"gid\"," +
+			"\"requester\":\"user\"," +
+			"\"type\":\"REQUEST\",\"resourcetype\":\"user\",\"adminid\":\"user\"," +
+			"\"rid\":\"user\",\"status\":\"OPEN\",\"closedby\":null,\"closedreason\":null," +
+			"\"created\":10000,\"modified\":10000,\"expires\":20000}\n";
+	
+	private static Group minGroup() throws Exception {
+		return Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"),
+				GroupUser.getBuilder(new UserName("own"), inst(10000)).build(),
+				new CreateAndModTimes(inst(10000)))
+				.build();
+	}
+	
+	private static Group maxGroup() throws Exception {
+		return Group.getBuilder(
+				new GroupID("gid2"), new GroupName("name2"),
+				GroupUser.getBuilder(new UserName("own"), inst(10000))
+						.withNullableLastVisit(inst(40000))
+						.withCustomField(new NumberedCustomField("f-1"), "v1")
+						.build(),
+				new CreateAndModTimes(inst(10000), inst(50000)))
+				.withIsPrivate(true)
+				.withPrivateMemberList(false)
+				.withAdministrator(GroupUser.getBuilder(new UserName("admin"), inst(20000))
+						.build())
+				.withMember(GroupUser.getBuilder(new UserName("mem"), inst(30000))
+						.withCustomField(new NumberedCustomField("f2"), "v2")
+						.build())
+				.withResource(new ResourceType("workspace"), new ResourceDescriptor(
+						new ResourceAdministrativeID("42"), new ResourceID("42")), inst(35000))
+				.withResource(new ResourceType("workspace"), new ResourceDescriptor(
+						new ResourceAdministrativeID("43"), new ResourceID("43")))
+				.withResource(new ResourceType("catalogmethod"), new ResourceDescriptor(
+						new ResourceAdministrativeID("mod"), new ResourceID("mod.meth")))
+				.withCustomField(new NumberedCustomField("field"), "val")
+				.build();
+	}
+	
+	private static GroupRequest minRequest() throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(RID), new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(20000)).build())
+				.build();
+	}
+	
+	private static GroupRequest maxRequest() throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(new UUID(0, 2)), new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(20000))
+						.withModificationTime(inst(15000))
+						.build())
+				.withType(RequestType.INVITE)
+				.withResourceType(new ResourceType("workspace"))
+				.withResource(new ResourceDescriptor(
+						new ResourceAdministrativeID("42"), new ResourceID("42")))
+				.withStatus(GroupRequestStatus.denied(new UserName("own"), "reason"))
+				.build();
+	}
+	
+	private static InputStream toInput(final String s) {
+		return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static <T> List<T> drain(final ItemSource<T> source) throws Exception {
+		final List<T> ret = new ArrayList<>();
+		for (Optional<T> i = source.next(); i.isPresent(); i = source.next()) {
+			ret.add(i.get());
+		}
+		return ret;
+	}
+	
+	@Test
+	public void writeGroupMinimal() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NDJSONCodec.groupWriter(out).process(minGroup());
+		
+		assertThat("incorrect output", new String(out.toByteArray(), StandardCharsets.UTF_8),
+				is(MIN_GROUP));
+	}
+	
+	@Test
+	public void writeRequestMinimal() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NDJSONCodec.requestWriter(out).process(minRequest());
+		
+		assertThat("incorrect output", new String(out.toByteArray(), StandardCharsets.UTF_8),
+				is(MIN_REQUEST));
+	}
+	
+	@Test
+	public void roundTripGroups() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ItemProcessor<Group> p = NDJSONCodec.groupWriter(out);
+		p.process(minGroup());
+		p.process(maxGroup());
+		
+		assertThat("incorrect groups", drain(NDJSONCodec.groupReader(
+				new ByteArrayInputStream(out.toByteArray()))),
+				is(Arrays.asList(minGroup(), maxGroup())));
+	}
+	
+	@Test
+	public void roundTripRequests() throws Exception {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		final ItemProcessor<GroupRequest> p = NDJSONCodec.requestWriter(out);
+		p.process(minRequest());
+		p.process(maxRequest());
+		
+		assertThat("incorrect requests", drain(NDJSONCodec.requestReader(
+				new ByteArrayInputStream(out.toByteArray()))),
+				is(Arrays.asList(minRequest(), maxRequest())));
+	}
+	
+	@Test
+	public void readBlankLines() throws Exception {
+		assertThat("incorrect groups", drain(NDJSONCodec.groupReader(toInput(
+				"\n   \n" + MIN_GROUP + "\t\n\n" + MIN_GROUP.trim()))),
+				is(Arrays.asList(minGroup(), minGroup())));
+		assertThat("incorrect requests", drain(NDJSONCodec.requestReader(toInput("  \n"))),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void readGroupMinimalFields() throws Exception {
+		// absent lists and maps are treated as empty
+		assertThat("incorrect groups", drain(NDJSONCodec.groupReader(toInput(
+				"{\"version\":1,\"id\":\"gid\",\"name\":\"name\",\"owner\":\"own\"," +
+				"\"private\":false,\"privatemembers\":true,\"created\":10000," +
+				"\"modified\":10000,\"members\":[{\"name\":\"own\",\"joined\":10000}]}"))),
+				is(Arrays.asList(minGroup())));
+	}
+	
+	@Test
+	public void nullsFail() throws Exception {
+		failNull(() -> NDJSONCodec.groupWriter(null), "out");
+		failNull(() -> NDJSONCodec.requestWriter(null), "out");
+		failNull(() -> NDJSONCodec.groupReader(null), "in");
+		failNull(() -> NDJSONCodec.requestReader(null), "in");
+	}
+	
+	private void failNull(final Runnable r, final String name) {
+		try {
+			r.run();
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException(name));
+		}
+	}
+	
+	@Test
+	public void readGroupFail() throws Exception {
+		failReadGroup("foo", new IllegalParameterException(
+				"Line 1 is not valid JSON: Unrecognized token 'foo': was expecting " +
+				"('true', 'false' or 'null')"));
+		failReadGroup("\n[]", new IllegalParameterException("Line 2 is not a JSON object"));
+		failReadGroup(MIN_GROUP + "\n\"foo\"",
+				new IllegalParameterException("Line 3 is not a JSON object"));
+		failReadGroup(MIN_GROUP.replace("\"version\":1,", ""), new IllegalParameterException(
+				"Line 1 has unsupported format version null. The supported version is 1"));
+		failReadGroup(MIN_GROUP + MIN_GROUP.replace("\"version\":1", "\"version\":2"),
+				new IllegalParameterException("Line 2 has unsupported format version 2. " +
+						"The supported version is 1"));
+		failReadGroup(MIN_GROUP.replace("\"version\":1", "\"version\":\"1\""),
+				new IllegalParameterException("Line 1 has unsupported format version 1. " +
+						"The supported version is 1"));
+		failReadGroup(MIN_GROUP.replace("\"id\":\"gid\"", "\"id\":\"\""),
+				new MissingParameterException("group id"));
+		failReadGroup(MIN_GROUP.replace("\"id\":\"gid\"", "\"id\":1"),
+				new IllegalParameterException("Field id has an illegal value type"));
+		failReadGroup(MIN_GROUP.replace("\"private\":false,", ""),
+				new MissingParameterException("private"));
+		failReadGroup(MIN_GROUP.replace("\"created\":10000,", ""),
+				new MissingParameterException("created"));
+		failReadGroup(MIN_GROUP.replace("\"created\":10000", "\"created\":\"10000\""),
+				new IllegalParameterException("Field created has an illegal value type"));
+		failReadGroup(MIN_GROUP.replace("\"owner\":\"own\"", "\"owner\":\"own2\""),
+				new IllegalParameterException("Owner own2 is not in the member list"));
+		failReadGroup(MIN_GROUP.replace("\"admins\":[]", "\"admins\":[\"a\"]"),
+				new IllegalParameterException("Administrator a is not in the member list"));
+		failReadGroup(MIN_GROUP.replace("\"admins\":[]", "\"admins\":[1]"),
+				new IllegalParameterException("Field admins has an illegal value type"));
+		failReadGroup(MIN_GROUP.replace("\"admins\":[]", "\"admins\":{}"),
+				new IllegalParameterException("Field admins has an illegal value type"));
+		failReadGroup(MIN_GROUP.replace("\"members\":[", "\"members\":[null,"),
+				new IllegalParameterException("Field members contains a null value"));
+		failReadGroup(MIN_GROUP.replace("\"members\":[{\"name\":\"own\",\"joined\":10000," +
+				"\"lastvisit\":null,\"custom\":{}}]",
+				"\"members\":[{\"name\":\"own\",\"joined\":10000}," +
+				"{\"name\":\"own\",\"joined\":20000}]"),
+				new IllegalParameterException("Duplicate member own"));
+		failReadGroup(MIN_GROUP.replace("\"resources\":{}",
+				"\"resources\":{\"ws\":[{\"rid\":\"1\",\"adminid\":\"1\",\"added\":1.5}]}"),
+				new IllegalParameterException("Field added has an illegal value type"));
+		failReadGroup(MIN_GROUP.replace("\"custom\":{}}\n", "\"custom\":{\"f\":[]}}\n"),
+				new IllegalParameterException("Field custom has an illegal value type"));
+	}
+	
+	@Test
+	public void readGroupFailBuilder() throws Exception {
+		// the builders throw IllegalArgumentException
+		failReadGroup(MIN_GROUP.replace("\"custom\":{}}\n", "\"custom\":{\"f\":\"\"}}\n"),
+				new IllegalParameterException("Line 1: value cannot be null or " +
+						"whitespace only"));
+	}
+	
+	private void failReadGroup(final String input, final Exception expected) {
+		try {
+			drain(NDJSONCodec.groupReader(toInput(input)));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void readRequestFail() throws Exception {
+		failReadRequest(MIN_REQUEST.replace("\"version\":1", "\"version\":2"),
+				new IllegalParameterException("Line 1 has unsupported format version 2. " +
+						"The supported version is 1"));
+		failReadRequest(MIN_REQUEST.replace(RID, "foo"),
+				new IllegalParameterException("foo is not a valid request id"));
+		failReadRequest(MIN_REQUEST.replace("\"REQUEST\"", "\"BEG\""),
+				new IllegalParameterException("Illegal value for field type: BEG"));
+		failReadRequest(MIN_REQUEST.replace("\"REQUEST\"", "null"),
+				new MissingParameterException("type"));
+		failReadRequest(MIN_REQUEST.replace("\"OPEN\"", "\"DENIED\""),
+				new MissingParameterException("closedby"));
+		failReadRequest(MIN_REQUEST.replace("\"expires\":20000", "\"expires\":null"),
+				new MissingParameterException("expires"));
+	}
+	
+	private void failReadRequest(final String input, final Exception expected) {
+		try {
+			drain(NDJSONCodec.requestReader(toInput(input)));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -5,22 +5,30 @@ import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static us.kbase.test.groups.TestCommon.set;
 
 import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.base.Ticker;
 import com.google.common.collect.ImmutableMap;
 
 import us.kbase.catalog.BasicModuleInfo;
@@ -40,6 +48,8 @@ import us.kbase.groups.core.resource.ResourceAdministrativeID;
 import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.MetricsRegistry;
 import us.kbase.test.groups.MapBuilder;
 import us.kbase.test.groups.TestCommon;
 
@@ -152,6 +162,30 @@ public class SDKClientCatalogHandlerTest {
 				"Error contacting catalog service at http://foo.com"));
 	}
 	
+	@Test
+	public void constructFailCacheParams() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		failConstruct(0, 1, dt,
+				new IllegalArgumentException("cacheRefreshSec must be at least 1"));
+		failConstruct(1, 0, dt, new IllegalArgumentException(
+				"cacheExpirationSec must be at least 1"));
+		failConstruct(1, 1, null, new NullPointerException("timer"));
+	}
+	
+	private void failConstruct(
+			final int cacheRefreshSec,
+			final int cacheExpirationSec,
+			final DownstreamTimer timer,
+			final Exception expected) {
+		try {
+			new SDKClientCatalogHandler(
+					mock(CatalogClient.class), cacheRefreshSec, cacheExpirationSec, timer);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	private void failConstruct(final CatalogClient client, final Exception expected) {
 		try {
 			new SDKClientCatalogHandler(client);
@@ -510,6 +544,272 @@ public class SDKClientCatalogHandlerTest {
 		// nothing to test other than it doesn't fail
 	}
 	
+	private static class FakeTicker extends Ticker {
+		
+		private long nanos = 0;
+
+		@Override
+		public long read() {
+			return nanos;
+		}
+		
+		public void advance(final int seconds) {
+			nanos += TimeUnit.SECONDS.toNanos(seconds);
+		}
+	}
+	
+	/* Queues tasks rather than running them so the test can control when cache refreshes
+	 * occur.
+	 */
+	private static class QueueExecutor implements Executor {
+		
+		private final List<Runnable> tasks = new LinkedList<>();
+
+		@Override
+		public void execute(final Runnable task) {
+			tasks.add(task);
+		}
+		
+		public void runAll() {
+			while (!tasks.isEmpty()) {
+				tasks.remove(0).run();
+			}
+		}
+	}
+	
+	private SDKClientCatalogHandler getCachingHandler(
+			final CatalogClient client,
+			final Ticker ticker,
+			final Executor executor)
+			throws Throwable {
+		return getCachingHandler(
+				client, new DownstreamTimer(new MetricsRegistry()), ticker, executor);
+	}
+	
+	private SDKClientCatalogHandler getCachingHandler(
+			final CatalogClient client,
+			final DownstreamTimer timer,
+			final Ticker ticker,
+			final Executor executor)
+			throws Throwable {
+		final Constructor<SDKClientCatalogHandler> con =
+				SDKClientCatalogHandler.class.getDeclaredConstructor(
+						CatalogClient.class, int.class, int.class, DownstreamTimer.class,
+						Ticker.class, Executor.class);
+		con.setAccessible(true);
+		try {
+			return con.newInstance(client, 10, 60, timer, ticker, executor);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+	
+	@Test
+	public void getAdministratorsCachedAndRefreshed() throws Throwable {
+		final CatalogClient c = mock(CatalogClient.class);
+		final FakeTicker t = new FakeTicker();
+		final QueueExecutor e = new QueueExecutor();
+		
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u1", "u2"))
+						.withRelease(getMVI(Arrays.asList("m1"), Arrays.asList("m2"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u3"))
+						.withRelease(getMVI(Arrays.asList("m1"), Arrays.asList("m2"))));
+		
+		final SDKClientCatalogHandler h = getCachingHandler(c, t, e);
+		
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("modname.m1")),
+				is(set(new UserName("u1"), new UserName("u2"))));
+		t.advance(9);
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("modname.m2")),
+				is(set(new UserName("u1"), new UserName("u2"))));
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("modname.m2"), new UserName("u1")), is(true));
+		verify(c).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname")));
+		
+		// stale data is returned while refreshing
+		t.advance(2);
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("modname.m1")),
+				is(set(new UserName("u1"), new UserName("u2"))));
+		e.runAll();
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("modname.m1")),
+				is(set(new UserName("u3"))));
+		verify(c, times(2)).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname")));
+	}
+	
+	@Test
+	public void getAdministratorsCacheHitNotTimed() throws Throwable {
+		final CatalogClient c = mock(CatalogClient.class);
+		final MetricsRegistry r = new MetricsRegistry();
+		final DownstreamTimer dt = new DownstreamTimer(r);
+		
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u1", "u2"))
+						.withRelease(getMVI(Arrays.asList("m1"), Arrays.asList("m2"))));
+		
+		final SDKClientCatalogHandler h = getCachingHandler(
+				c, dt, new FakeTicker(), new QueueExecutor());
+		
+		h.getAdministrators(new ResourceID("modname.m1"));
+		dt.startRequest();
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("modname.m2")),
+				is(set(new UserName("u1"), new UserName("u2"))));
+		assertThat("incorrect downstream time", dt.endRequest(), is(0L));
+		
+		assertThat("incorrect calls", r.toPrometheusText().contains(
+				"groups_downstream_calls_total{dependency=\"catalog\"," +
+				"operation=\"getModuleInfo\"} 1\n"),
+				is(true));
+	}
+	
+	@Test
+	public void isAdministratorStaleOnRefreshFailure() throws Throwable {
+		final CatalogClient c = mock(CatalogClient.class);
+		final FakeTicker t = new FakeTicker();
+		final QueueExecutor e = new QueueExecutor();
+		
+		when(c.getURL()).thenReturn(new URL("http://foo.com"));
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u1", "u2"))
+						.withRelease(getMVI(Arrays.asList("m1"), Arrays.asList("m2"))))
+				.thenThrow(new IOException("catalog down"));
+		
+		final SDKClientCatalogHandler h = getCachingHandler(c, t, e);
+		
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("modname.m1"), new UserName("u1")), is(true));
+		t.advance(11);
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("modname.m1"), new UserName("u1")), is(true));
+		e.runAll();
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("modname.m1"), new UserName("u1")), is(true));
+		e.runAll();
+		
+		// expired data is never returned
+		t.advance(50);
+		try {
+			h.isAdministrator(new ResourceID("modname.m1"), new UserName("u1"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new ResourceHandlerException(
+					"Error contacting catalog service at http://foo.com"));
+		}
+	}
+	
+	@Test
+	public void isAdministratorNoModuleNotCached() throws Throwable {
+		final CatalogClient c = mock(CatalogClient.class);
+		
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname"))))
+				.thenThrow(new JsonClientException("module/repo is not registered"))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u1", "u2"))
+						.withRelease(getMVI(Arrays.asList("m1"), Arrays.asList("m2"))));
+		
+		final SDKClientCatalogHandler h = getCachingHandler(
+				c, new FakeTicker(), new QueueExecutor());
+		
+		try {
+			h.isAdministrator(new ResourceID("modname.m1"), new UserName("u1"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchResourceException("modname.m1"));
+		}
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("modname.m1"), new UserName("u1")), is(true));
+	}
+	
+	@Test
+	public void getAdministratedResourcesCachedAndRefreshed() throws Throwable {
+		final CatalogClient c = mock(CatalogClient.class);
+		final FakeTicker t = new FakeTicker();
+		final QueueExecutor e = new QueueExecutor();
+		
+		when(c.listBasicModuleInfo(argThat(new ListModuleParamsMatcher("u1", 1))))
+				.thenReturn(Arrays.asList(new BasicModuleInfo().withModuleName("m1")))
+				.thenReturn(Arrays.asList(new BasicModuleInfo().withModuleName("m2")));
+		
+		final SDKClientCatalogHandler h = getCachingHandler(c, t, e);
+		
+		assertThat("incorrect modules", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("m1"))));
+		assertThat("incorrect modules", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("m1"))));
+		t.advance(11);
+		assertThat("incorrect modules", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("m1"))));
+		e.runAll();
+		assertThat("incorrect modules", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("m2"))));
+		
+		verify(c, times(2)).listBasicModuleInfo(argThat(new ListModuleParamsMatcher("u1", 1)));
+	}
+	
+	@Test
+	public void evictCache() throws Throwable {
+		final CatalogClient c = mock(CatalogClient.class);
+		
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u1"))
+						.withRelease(getMVI(Arrays.asList("m1"), Arrays.asList("m2"))));
+		when(c.getModuleInfo(argThat(new SelectOneModuleParamsMatcher("mod2"))))
+				.thenReturn(new ModuleInfo().withOwners(Arrays.asList("u1"))
+						.withRelease(getMVI(Arrays.asList("m1"), Arrays.asList("m2"))));
+		when(c.listBasicModuleInfo(argThat(new ListModuleParamsMatcher("u1", 1))))
+				.thenReturn(Arrays.asList(new BasicModuleInfo().withModuleName("modname")));
+		
+		final SDKClientCatalogHandler h = getCachingHandler(
+				c, new FakeTicker(), new QueueExecutor());
+		
+		final ResourceID r1 = new ResourceID("modname.m1");
+		final ResourceID r2 = new ResourceID("mod2.m1");
+		final UserName u = new UserName("u1");
+		h.isAdministrator(r1, u);
+		h.isAdministrator(r2, u);
+		h.getAdministratedResources(u);
+		
+		h.evictCache(new ResourceID("modname.m2"));
+		
+		h.isAdministrator(r1, u);
+		h.isAdministrator(r2, u);
+		h.getAdministratedResources(u);
+		
+		verify(c, times(2)).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname")));
+		verify(c).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("mod2")));
+		verify(c, times(2)).listBasicModuleInfo(argThat(new ListModuleParamsMatcher("u1", 1)));
+		
+		h.evictCache();
+		
+		h.isAdministrator(r1, u);
+		h.isAdministrator(r2, u);
+		h.getAdministratedResources(u);
+		
+		verify(c, times(3)).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("modname")));
+		verify(c, times(2)).getModuleInfo(argThat(new SelectOneModuleParamsMatcher("mod2")));
+		verify(c, times(3)).listBasicModuleInfo(argThat(new ListModuleParamsMatcher("u1", 1)));
+	}
+	
+	@Test
+	public void evictCacheFailBadArgs() throws Exception {
+		failEvictCache(null, new NullPointerException("resource"));
+		
+		for (final String n: BAD_NAMES.keySet()) {
+			failEvictCache(new ResourceID(n),
+					new IllegalResourceIDException("Illegal catalog method name: " +
+							BAD_NAMES.get(n)));
+		}
+	}
+	
+	private void failEvictCache(final ResourceID r, final Exception expected) {
+		final CatalogClient c = mock(CatalogClient.class);
+		try {
+			new SDKClientCatalogHandler(c).evictCache(r);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void getDescriptor() throws Exception {
 		final CatalogClient c = mock(CatalogClient.class);
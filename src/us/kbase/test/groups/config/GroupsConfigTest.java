@@ -26,6 +26,7 @@ import com.google.common.collect.ImmutableMap;
 import us.kbase.groups.config.GroupsConfig;
 import us.kbase.groups.config.GroupsConfigurationException;
 import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.FieldConfiguration;
 import us.kbase.groups.core.fieldvalidation.FieldValidatorConfiguration;
@@ -98,6 +99,32 @@ public class GroupsConfigTest {
 				is(Collections.emptyMap()));
 		assertThat("incorrect allow insecure", cfg.isAllowInsecureURLs(), is(false));
 		assertThat("incorrect ignore ip headers", cfg.isIgnoreIPHeaders(), is(false));
+		assertThat("incorrect in memory", cfg.isInMemoryStorage(), is(false));
+		assertThat("incorrect auth cache size", cfg.getAuthCacheSize(), is(10000));
+		assertThat("incorrect auth cache exp", cfg.getAuthCacheExpirationSec(), is(300));
+		assertThat("incorrect ws parallelism", cfg.getWorkspaceParallelism(), is(10));
+		assertThat("incorrect ws cache size", cfg.getWorkspaceCacheSize(), is(10000));
+		assertThat("incorrect ws cache exp", cfg.getWorkspaceCacheExpirationSec(), is(300));
+		assertThat("incorrect ws perms cache exp",
+				cfg.getWorkspacePermissionsCacheExpirationSec(), is(30));
+		assertThat("incorrect catalog cache refresh", cfg.getCatalogCacheRefreshSec(), is(300));
+		assertThat("incorrect catalog cache exp", cfg.getCatalogCacheExpirationSec(), is(3600));
+		assertThat("incorrect res admin cache size", cfg.getResourceAdminCacheSize(), is(10000));
+		assertThat("incorrect res admin cache exp",
+				cfg.getResourceAdminCacheExpirationSec(), is(30));
+		assertThat("incorrect dispatch batch size",
+				cfg.getNotifierDispatchBatchSize(), is(100));
+		assertThat("incorrect dispatch max attempts",
+				cfg.getNotifierDispatchMaxAttempts(), is(10));
+		assertThat("incorrect handler threads", cfg.getHandlerThreads(), is(50));
+		assertThat("incorrect handler queue", cfg.getHandlerQueueSize(), is(500));
+		assertThat("incorrect handler timeout", cfg.getHandlerTimeoutSec(), is(60));
+		assertThat("incorrect slow mongo threshold",
+				cfg.getMongoSlowCommandThresholdMS(), is(1000));
+		assertThat("incorrect member collection", cfg.isMongoMemberCollection(), is(false));
+		assertThat("incorrect storage cache size", cfg.getStorageCacheSize(), is(0));
+		assertThat("incorrect storage cache exp", cfg.getStorageCacheExpirationSec(), is(300));
+		assertThat("incorrect admins", cfg.getServiceAdmins(), is(set()));
 		assertThat("incorrect fields", cfg.getFieldConfigurations(), is(set()));
 		assertThat("incorrect user fields", cfg.getUserFieldConfigurations(), is(set()));
 		testLogger(cfg.getLogger(), false);
@@ -174,6 +201,32 @@ public class GroupsConfigTest {
 				is(ImmutableMap.of("p1", "np1", "p2", "np2")));
 		assertThat("incorrect allow insecure", cfg.isAllowInsecureURLs(), is(false));
 		assertThat("incorrect ignore ip headers", cfg.isIgnoreIPHeaders(), is(false));
+		assertThat("incorrect in memory", cfg.isInMemoryStorage(), is(false));
+		assertThat("incorrect auth cache size", cfg.getAuthCacheSize(), is(10000));
+		assertThat("incorrect auth cache exp", cfg.getAuthCacheExpirationSec(), is(300));
+		assertThat("incorrect ws parallelism", cfg.getWorkspaceParallelism(), is(10));
+		assertThat("incorrect ws cache size", cfg.getWorkspaceCacheSize(), is(10000));
+		assertThat("incorrect ws cache exp", cfg.getWorkspaceCacheExpirationSec(), is(300));
+		assertThat("incorrect ws perms cache exp",
+				cfg.getWorkspacePermissionsCacheExpirationSec(), is(30));
+		assertThat("incorrect catalog cache refresh", cfg.getCatalogCacheRefreshSec(), is(300));
+		assertThat("incorrect catalog cache exp", cfg.getCatalogCacheExpirationSec(), is(3600));
+		assertThat("incorrect res admin cache size", cfg.getResourceAdminCacheSize(), is(10000));
+		assertThat("incorrect res admin cache exp",
+				cfg.getResourceAdminCacheExpirationSec(), is(30));
+		assertThat("incorrect dispatch batch size",
+				cfg.getNotifierDispatchBatchSize(), is(100));
+		assertThat("incorrect dispatch max attempts",
+				cfg.getNotifierDispatchMaxAttempts(), is(10));
+		assertThat("incorrect handler threads", cfg.getHandlerThreads(), is(50));
+		assertThat("incorrect handler queue", cfg.getHandlerQueueSize(), is(500));
+		assertThat("incorrect handler timeout", cfg.getHandlerTimeoutSec(), is(60));
+		assertThat("incorrect slow mongo threshold",
+				cfg.getMongoSlowCommandThresholdMS(), is(1000));
+		assertThat("incorrect member collection", cfg.isMongoMemberCollection(), is(false));
+		assertThat("incorrect storage cache size", cfg.getStorageCacheSize(), is(0));
+		assertThat("incorrect storage cache exp", cfg.getStorageCacheExpirationSec(), is(300));
+		assertThat("incorrect admins", cfg.getServiceAdmins(), is(set()));
 		assertThat("incorrect fields", cfg.getFieldConfigurations(), is(set(
 				FieldValidatorConfiguration.getBuilder(new CustomField("foo"), "foovalclass")
 						.build(),
@@ -247,6 +300,26 @@ public class GroupsConfigTest {
 					 "workspace-url=https://ws.com\n" +
 					 "workspace-admin-token=wstoken      \n" +
 					 "allow-insecure-urls=true\n" +
+					 "auth-cache-max-size=   0   \n" +
+					 "auth-cache-expiration-sec=   60   \n" +
+					 "workspace-max-concurrent-requests=3\n" +
+					 "workspace-cache-max-size=0\n" +
+					 "workspace-cache-expiration-sec=20\n" +
+					 "workspace-perms-cache-expiration-sec=5\n" +
+					 "catalog-cache-refresh-sec=   10\n" +
+					 "catalog-cache-expiration-sec=40   \n" +
+					 "resource-admin-cache-max-size=1\n" +
+					 "resource-admin-cache-expiration-sec=2\n" +
+					 "notifier-dispatch-batch-size=3\n" +
+					 "notifier-dispatch-max-attempts=   4   \n" +
+					 "handler-threads=20\n" +
+					 "handler-queue-size=30\n" +
+					 "handler-timeout-sec=  40  \n" +
+					 "mongo-slow-command-threshold-ms=250\n" +
+					 "mongo-member-collection=true\n" +
+					 "storage-cache-max-size=5000\n" +
+					 "storage-cache-expiration-sec=60\n" +
+					 "service-admins=   admin1  , ,  admin2,   \n" +
 					 "dont-trust-x-ip-headers=true\n")
 					.getBytes()));
 			cfg = getConfig(fo);
@@ -268,6 +341,33 @@ public class GroupsConfigTest {
 				is(Collections.emptyMap()));
 		assertThat("incorrect allow insecure", cfg.isAllowInsecureURLs(), is(true));
 		assertThat("incorrect ignore ip headers", cfg.isIgnoreIPHeaders(), is(true));
+		assertThat("incorrect in memory", cfg.isInMemoryStorage(), is(false));
+		assertThat("incorrect auth cache size", cfg.getAuthCacheSize(), is(0));
+		assertThat("incorrect auth cache exp", cfg.getAuthCacheExpirationSec(), is(60));
+		assertThat("incorrect ws parallelism", cfg.getWorkspaceParallelism(), is(3));
+		assertThat("incorrect ws cache size", cfg.getWorkspaceCacheSize(), is(0));
+		assertThat("incorrect ws cache exp", cfg.getWorkspaceCacheExpirationSec(), is(20));
+		assertThat("incorrect ws perms cache exp",
+				cfg.getWorkspacePermissionsCacheExpirationSec(), is(5));
+		assertThat("incorrect catalog cache refresh", cfg.getCatalogCacheRefreshSec(), is(10));
+		assertThat("incorrect catalog cache exp", cfg.getCatalogCacheExpirationSec(), is(40));
+		assertThat("incorrect res admin cache size", cfg.getResourceAdminCacheSize(), is(1));
+		assertThat("incorrect res admin cache exp",
+				cfg.getResourceAdminCacheExpirationSec(), is(2));
+		assertThat("incorrect dispatch batch size",
+				cfg.getNotifierDispatchBatchSize(), is(3));
+		assertThat("incorrect dispatch max attempts",
+				cfg.getNotifierDispatchMaxAttempts(), is(4));
+		assertThat("incorrect handler threads", cfg.getHandlerThreads(), is(20));
+		assertThat("incorrect handler queue", cfg.getHandlerQueueSize(), is(30));
+		assertThat("incorrect handler timeout", cfg.getHandlerTimeoutSec(), is(40));
+		assertThat("incorrect slow mongo threshold",
+				cfg.getMongoSlowCommandThresholdMS(), is(250));
+		assertThat("incorrect member collection", cfg.isMongoMemberCollection(), is(true));
+		assertThat("incorrect storage cache size", cfg.getStorageCacheSize(), is(5000));
+		assertThat("incorrect storage cache exp", cfg.getStorageCacheExpirationSec(), is(60));
+		assertThat("incorrect admins", cfg.getServiceAdmins(),
+				is(set(new UserName("admin1"), new UserName("admin2"))));
 		assertThat("incorrect fields", cfg.getFieldConfigurations(), is(set()));
 		assertThat("incorrect user fields", cfg.getUserFieldConfigurations(), is(set()));
 		testLogger(cfg.getLogger(), false);
@@ -301,6 +401,32 @@ public class GroupsConfigTest {
 				is(Collections.emptyMap()));
 		assertThat("incorrect allow insecure", cfg.isAllowInsecureURLs(), is(false));
 		assertThat("incorrect ignore ip headers", cfg.isIgnoreIPHeaders(), is(false));
+		assertThat("incorrect in memory", cfg.isInMemoryStorage(), is(false));
+		assertThat("incorrect auth cache size", cfg.getAuthCacheSize(), is(10000));
+		assertThat("incorrect auth cache exp", cfg.getAuthCacheExpirationSec(), is(300));
+		assertThat("incorrect ws parallelism", cfg.getWorkspaceParallelism(), is(10));
+		assertThat("incorrect ws cache size", cfg.getWorkspaceCacheSize(), is(10000));
+		assertThat("incorrect ws cache exp", cfg.getWorkspaceCacheExpirationSec(), is(300));
+		assertThat("incorrect ws perms cache exp",
+				cfg.getWorkspacePermissionsCacheExpirationSec(), is(30));
+		assertThat("incorrect catalog cache refresh", cfg.getCatalogCacheRefreshSec(), is(300));
+		assertThat("incorrect catalog cache exp", cfg.getCatalogCacheExpirationSec(), is(3600));
+		assertThat("incorrect res admin cache size", cfg.getResourceAdminCacheSize(), is(10000));
+		assertThat("incorrect res admin cache exp",
+				cfg.getResourceAdminCacheExpirationSec(), is(30));
+		assertThat("incorrect dispatch batch size",
+				cfg.getNotifierDispatchBatchSize(), is(100));
+		assertThat("incorrect dispatch max attempts",
+				cfg.getNotifierDispatchMaxAttempts(), is(10));
+		assertThat("incorrect handler threads", cfg.getHandlerThreads(), is(50));
+		assertThat("incorrect handler queue", cfg.getHandlerQueueSize(), is(500));
+		assertThat("incorrect handler timeout", cfg.getHandlerTimeoutSec(), is(60));
+		assertThat("incorrect slow mongo threshold",
+				cfg.getMongoSlowCommandThresholdMS(), is(1000));
+		assertThat("incorrect member collection", cfg.isMongoMemberCollection(), is(false));
+		assertThat("incorrect storage cache size", cfg.getStorageCacheSize(), is(0));
+		assertThat("incorrect storage cache exp", cfg.getStorageCacheExpirationSec(), is(300));
+		assertThat("incorrect admins", cfg.getServiceAdmins(), is(set()));
 		assertThat("incorrect fields", cfg.getFieldConfigurations(), is(set()));
 		assertThat("incorrect user fields", cfg.getUserFieldConfigurations(), is(set()));
 		testLogger(cfg.getLogger(), false);
@@ -321,7 +447,8 @@ public class GroupsConfigTest {
 				 "workspace-url=https://ws.com\n" +
 				 "workspace-admin-token=wstoken      \n" +
 				 "allow-insecure-urls=true\n" +
-				 "dont-trust-x-ip-headers=true\n")
+				 "dont-trust-x-ip-headers=true\n" +
+				 "in-memory-storage=true\n")
 				.getBytes()));
 		final GroupsConfig cfg = getConfig(Paths.get("some file2"), true, fo);
 		
@@ -339,16 +466,43 @@ public class GroupsConfigTest {
 				is(Collections.emptyMap()));
 		assertThat("incorrect allow insecure", cfg.isAllowInsecureURLs(), is(true));
 		assertThat("incorrect ignore ip headers", cfg.isIgnoreIPHeaders(), is(true));
+		assertThat("incorrect in memory", cfg.isInMemoryStorage(), is(true));
 		assertThat("incorrect fields", cfg.getFieldConfigurations(), is(set()));
 		assertThat("incorrect user fields", cfg.getUserFieldConfigurations(), is(set()));
 		testLogger(cfg.getLogger(), true);
 	}
 	
+	@Test
+	public void pathInMemoryNoMongo() throws Throwable {
+		final FileOpener fo = mock(FileOpener.class);
+		when(fo.open(Paths.get("some file2"))).thenReturn(new ByteArrayInputStream(
+				("[groups]\n" +
+				 "in-memory-storage=true\n" +
+				 "notifier-factory=     factoryclass   \n" + 
+				 "auth-url=https://auth.com\n" +
+				 "catalog-url=     http://cat.com       \n" +
+				 "workspace-admin-token=wstoken      \n" +
+				 "workspace-url=https://ws.com\n")
+				.getBytes()));
+		final GroupsConfig cfg = getConfig(Paths.get("some file2"), false, fo);
+		
+		assertThat("incorrect in memory", cfg.isInMemoryStorage(), is(true));
+		assertThat("incorrect mongo host", cfg.getMongoHost(), is((String) null));
+		assertThat("incorrect mongo db", cfg.getMongoDatabase(), is((String) null));
+		assertThat("incorrect mongo user", cfg.getMongoUser(), is(Optional.absent()));
+		assertThat("incorrect mongo pwd", cfg.getMongoPwd(), is(Optional.absent()));
+		assertThat("incorrect auth url", cfg.getAuthURL(), is(new URL("https://auth.com")));
+	}
+	
 	private void testLogger(final SLF4JAutoLogger logger, final boolean nullLogger) {
 		// too much of a pain to really test. Just test manually which is trivial.
 		logger.setCallInfo("GET", "foo", "0.0.0.0");
 		
 		assertThat("incorrect ID", logger.getCallID(), is(nullLogger ? (String) null : "foo"));
+		assertThat("incorrect method", logger.getCallMethod(),
+				is(nullLogger ? (String) null : "GET"));
+		assertThat("incorrect IP", logger.getCallIPAddress(),
+				is(nullLogger ? (String) null : "0.0.0.0"));
 	}
 	
 	@Test
@@ -563,6 +717,145 @@ public class GroupsConfigTest {
 						"in section groups of config file some file is not a valid URL"));
 	}
 	
+	@Test
+	public void configFailBadIntegerValues() throws Throwable {
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"auth-cache-max-size=foo\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value foo of parameter auth-cache-max-size in section groups of " +
+						"config file some file is not a valid integer"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"auth-cache-max-size=-1\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value -1 of parameter auth-cache-max-size in section groups of " +
+						"config file some file must be at least 0"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"auth-cache-expiration-sec=0\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value 0 of parameter auth-cache-expiration-sec in section groups of " +
+						"config file some file must be at least 1"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=token\n" +
+				"workspace-max-concurrent-requests=0\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value 0 of parameter workspace-max-concurrent-requests in section " +
+						"groups of config file some file must be at least 1"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"catalog-cache-refresh-sec=0\n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value 0 of parameter catalog-cache-refresh-sec in section " +
+						"groups of config file some file must be at least 1"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"resource-admin-cache-max-size=0\n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value 0 of parameter resource-admin-cache-max-size in section " +
+						"groups of config file some file must be at least 1"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"handler-queue-size=0\n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value 0 of parameter handler-queue-size in section " +
+						"groups of config file some file must be at least 1"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"handler-timeout-sec=0\n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value 0 of parameter handler-timeout-sec in section " +
+						"groups of config file some file must be at least 1"));
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"notifier-dispatch-max-attempts=0\n" +
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=token\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Value 0 of parameter notifier-dispatch-max-attempts in section " +
+						"groups of config file some file must be at least 1"));
+	}
+	
+	@Test
+	public void configFailIllegalServiceAdmin() throws Throwable {
+		failConfigBoth(
+				"[groups]\n" +
+				"mongo-host=foo\n" +
+				"mongo-db=bar\n" +
+				"notifier-factory=     factoryclass   \n" + 
+				"auth-url=https://auth.com\n" +
+				"catalog-url=     http://cat.com       \n" +
+				"workspace-admin-token=token\n" +
+				"service-admins=admin1, admin*2\n" +
+				"workspace-url=http://foo.com\n",
+				new GroupsConfigurationException(
+						"Illegal user name in parameter service-admins in section groups of " +
+						"config file some file: 30010 Illegal user name: Illegal character in " +
+						"user name admin*2: *"));
+	}
+	
 	@Test
 	public void configFailNoCatalog() throws Throwable {
 		failConfigBoth(
@@ -0,0 +1,109 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.util.Optional;
+
+import org.junit.Test;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.groups.core.GetChangesParams;
+import us.kbase.test.groups.TestCommon;
+
+public class GetChangesParamsTest {
+
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(GetChangesParams.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void constants() throws Exception {
+		assertThat("incorrect default", GetChangesParams.DEFAULT_LIMIT, is(100));
+		assertThat("incorrect max", GetChangesParams.MAX_LIMIT, is(1000));
+	}
+	
+	@Test
+	public void buildMinimal() throws Exception {
+		final GetChangesParams p = GetChangesParams.getBuilder().build();
+		
+		assertThat("incorrect after", p.getAfter(), is(Optional.empty()));
+		assertThat("incorrect after ID", p.getAfterID(), is(Optional.empty()));
+		assertThat("incorrect limit", p.getLimit(), is(100));
+	}
+	
+	@Test
+	public void buildWithNulls() throws Exception {
+		final GetChangesParams p = GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), "foo")
+				.withNullableLimit(6)
+				.withNullableAfter(null, null)
+				.withNullableLimit(null)
+				.build();
+		
+		assertThat("incorrect after", p.getAfter(), is(Optional.empty()));
+		assertThat("incorrect after ID", p.getAfterID(), is(Optional.empty()));
+		assertThat("incorrect limit", p.getLimit(), is(100));
+	}
+	
+	@Test
+	public void buildWithWhitespace() throws Exception {
+		final GetChangesParams p = GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), "foo")
+				.withNullableAfter(inst(20000), "   \t   ")
+				.build();
+		
+		assertThat("incorrect after", p.getAfter(), is(Optional.of(inst(20000))));
+		assertThat("incorrect after ID", p.getAfterID(), is(Optional.empty()));
+		assertThat("incorrect limit", p.getLimit(), is(100));
+	}
+	
+	@Test
+	public void buildMaximal() throws Exception {
+		final GetChangesParams p = GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), "   foo  \t ")
+				.withNullableLimit(1000)
+				.build();
+		
+		assertThat("incorrect after", p.getAfter(), is(Optional.of(inst(10000))));
+		assertThat("incorrect after ID", p.getAfterID(), is(Optional.of("foo")));
+		assertThat("incorrect limit", p.getLimit(), is(1000));
+		
+		final GetChangesParams p2 = GetChangesParams.getBuilder()
+				.withNullableLimit(1)
+				.build();
+		
+		assertThat("incorrect limit", p2.getLimit(), is(1));
+	}
+	
+	@Test
+	public void afterFail() throws Exception {
+		try {
+			GetChangesParams.getBuilder().withNullableAfter(null, "foo");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"afterID requires a date"));
+		}
+	}
+	
+	@Test
+	public void limitFail() throws Exception {
+		failLimit(0);
+		failLimit(1001);
+	}
+	
+	private void failLimit(final int limit) {
+		try {
+			GetChangesParams.getBuilder().withNullableLimit(limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"limit must be between 1 and 1000"));
+		}
+	}
+}
@@ -2,6 +2,7 @@ package us.kbase.test.groups.core;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
 
 import java.util.Optional;
 
@@ -9,6 +10,7 @@ import org.junit.Test;
 
 import nl.jqno.equalsverifier.EqualsVerifier;
 import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.test.groups.TestCommon;
 
 public class GetGroupsParamsTest {
 
@@ -23,6 +25,7 @@ public class GetGroupsParamsTest {
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.empty()));
 		assertThat("incorrect sort", p.isSortAscending(), is(true));
+		assertThat("incorrect limit", p.getLimit(), is(100));
 	}
 	
 	@Test
@@ -30,10 +33,12 @@ public class GetGroupsParamsTest {
 		final GetGroupsParams p = GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo(null)
 				.withNullableSortAscending(null)
+				.withNullableLimit(null)
 				.build();
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.empty()));
 		assertThat("incorrect sort", p.isSortAscending(), is(true));
+		assertThat("incorrect limit", p.getLimit(), is(100));
 	}
 	
 	@Test
@@ -45,6 +50,7 @@ public class GetGroupsParamsTest {
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.empty()));
 		assertThat("incorrect sort", p.isSortAscending(), is(true));
+		assertThat("incorrect limit", p.getLimit(), is(100));
 	}
 	
 	@Test
@@ -56,6 +62,7 @@ public class GetGroupsParamsTest {
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.empty()));
 		assertThat("incorrect sort", p.isSortAscending(), is(true));
+		assertThat("incorrect limit", p.getLimit(), is(100));
 	}
 	
 	@Test
@@ -63,10 +70,34 @@ public class GetGroupsParamsTest {
 		final GetGroupsParams p = GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo("    foo    ")
 				.withNullableSortAscending(false)
+				.withNullableLimit(1000)
 				.build();
 		
 		assertThat("incorrect exclude", p.getExcludeUpTo(), is(Optional.of("foo")));
 		assertThat("incorrect sort", p.isSortAscending(), is(false));
+		assertThat("incorrect limit", p.getLimit(), is(1000));
+		
+		final GetGroupsParams p2 = GetGroupsParams.getBuilder()
+				.withNullableLimit(1)
+				.build();
+		
+		assertThat("incorrect limit", p2.getLimit(), is(1));
+	}
+	
+	@Test
+	public void withLimitFail() throws Exception {
+		failWithLimit(0);
+		failWithLimit(1001);
+	}
+	
+	private void failWithLimit(final int limit) {
+		try {
+			GetGroupsParams.getBuilder().withNullableLimit(limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"limit must be between 1 and 1000"));
+		}
 	}
 	
 }
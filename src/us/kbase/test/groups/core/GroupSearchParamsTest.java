@@ -0,0 +1,125 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import static us.kbase.test.groups.TestCommon.set;
+
+import org.junit.Test;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.test.groups.TestCommon;
+
+public class GroupSearchParamsTest {
+
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(GroupSearchParams.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void constants() throws Exception {
+		assertThat("incorrect default", GroupSearchParams.DEFAULT_LIMIT, is(100));
+		assertThat("incorrect max", GroupSearchParams.MAX_LIMIT, is(1000));
+		assertThat("incorrect max terms", GroupSearchParams.MAX_TERMS, is(10));
+	}
+	
+	@Test
+	public void buildMinimal() throws Exception {
+		final GroupSearchParams p = GroupSearchParams.getBuilder("  Foo  ").build();
+		
+		assertThat("incorrect terms", p.getTerms(), is(set("foo")));
+		assertThat("incorrect sort", p.isSortAscending(), is(true));
+		assertThat("incorrect offset", p.getOffset(), is(0));
+		assertThat("incorrect limit", p.getLimit(), is(100));
+	}
+	
+	@Test
+	public void buildWithNulls() throws Exception {
+		final GroupSearchParams p = GroupSearchParams.getBuilder("foo, Bar-baz")
+				.withNullableSortAscending(null)
+				.withNullableOffset(null)
+				.withNullableLimit(null)
+				.build();
+		
+		assertThat("incorrect terms", p.getTerms(), is(set("foo", "bar", "baz")));
+		assertThat("incorrect sort", p.isSortAscending(), is(true));
+		assertThat("incorrect offset", p.getOffset(), is(0));
+		assertThat("incorrect limit", p.getLimit(), is(100));
+	}
+	
+	@Test
+	public void buildMaximal() throws Exception {
+		final GroupSearchParams p = GroupSearchParams.getBuilder(
+				"a b c d e f g h i j a b")
+				.withNullableSortAscending(false)
+				.withNullableOffset(0)
+				.withNullableLimit(1000)
+				.build();
+		
+		assertThat("incorrect terms", p.getTerms(),
+				is(set("a", "b", "c", "d", "e", "f", "g", "h", "i", "j")));
+		assertThat("incorrect sort", p.isSortAscending(), is(false));
+		assertThat("incorrect offset", p.getOffset(), is(0));
+		assertThat("incorrect limit", p.getLimit(), is(1000));
+		
+		final GroupSearchParams p2 = GroupSearchParams.getBuilder("foo")
+				.withNullableOffset(2000)
+				.withNullableLimit(1)
+				.build();
+		
+		assertThat("incorrect offset", p2.getOffset(), is(2000));
+		assertThat("incorrect limit", p2.getLimit(), is(1));
+	}
+	
+	@Test
+	public void getBuilderFail() throws Exception {
+		failGetBuilder(null, new MissingParameterException("search"));
+		failGetBuilder("   \t   ", new MissingParameterException("search"));
+		failGetBuilder("  &*^ -- ,. ", new IllegalParameterException(
+				"search must contain at least one letter or digit"));
+		failGetBuilder("a b c d e f g h i j k", new IllegalParameterException(
+				"search may contain at most 10 terms"));
+	}
+	
+	private void failGetBuilder(final String search, final Exception expected) {
+		try {
+			GroupSearchParams.getBuilder(search);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withOffsetFail() throws Exception {
+		try {
+			GroupSearchParams.getBuilder("foo").withNullableOffset(-1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"offset must be at least 0"));
+		}
+	}
+	
+	@Test
+	public void withLimitFail() throws Exception {
+		failWithLimit(0);
+		failWithLimit(1001);
+	}
+	
+	private void failWithLimit(final int limit) {
+		try {
+			GroupSearchParams.getBuilder("foo").withNullableLimit(limit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"limit must be between 1 and 1000"));
+		}
+	}
+	
+}
@@ -0,0 +1,156 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchTokens;
+import us.kbase.groups.core.fieldvalidation.CustomField;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.test.groups.TestCommon;
+
+public class GroupSearchTokensTest {
+	
+	@Test
+	public void toTerms() throws Exception {
+		assertThat("incorrect terms", GroupSearchTokens.toTerms(""), is(set()));
+		assertThat("incorrect terms", GroupSearchTokens.toTerms("  -- &^ "), is(set()));
+		assertThat("incorrect terms", GroupSearchTokens.toTerms(
+				"  Soil-microbes, SOIL & Water_2018  "),
+				is(set("soil", "microbes", "water", "2018")));
+		assertThat("incorrect terms", GroupSearchTokens.toTerms("Ünïcödé 𝛼lpha"),
+				is(set("ünïcödé", "𝛼lpha")));
+	}
+	
+	@Test
+	public void toTermsTruncate() throws Exception {
+		final String fifty = TestCommon.LONG101.substring(0, 50);
+		assertThat("incorrect terms", GroupSearchTokens.toTerms(
+				fifty + "  " + TestCommon.LONG101.substring(0, 51)),
+				is(set(fifty)));
+		
+		// surrogate pairs count as one character
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < 51; i++) {
+			sb.append("𝛼");
+		}
+		final Set<String> terms = GroupSearchTokens.toTerms(sb.toString());
+		final String t = terms.iterator().next();
+		assertThat("incorrect term count", terms.size(), is(1));
+		assertThat("incorrect term length", t.codePointCount(0, t.length()), is(50));
+	}
+	
+	@Test
+	public void toTermsImmutable() throws Exception {
+		try {
+			GroupSearchTokens.toTerms("foo").add("bar");
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+	
+	@Test
+	public void toTermsFail() throws Exception {
+		try {
+			GroupSearchTokens.toTerms(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("text"));
+		}
+	}
+	
+	@Test
+	public void getGroupTokensNameOnly() throws Exception {
+		assertThat("incorrect tokens", GroupSearchTokens.getGroupTokens(
+				new GroupName("My Group, my rules"), Collections.emptyMap()),
+				is(set("_name:my", "_name:group", "_name:rules")));
+	}
+	
+	@Test
+	public void getGroupTokens() throws Exception {
+		final Map<NumberedCustomField, String> fields = ImmutableMap.of(
+				new NumberedCustomField("desc"), "Soil microbes",
+				new NumberedCustomField("tag-1"), "soil",
+				new NumberedCustomField("tag-2"), "Water");
+		
+		assertThat("incorrect tokens", GroupSearchTokens.getGroupTokens(
+				new GroupName("soil"), fields),
+				is(set("_name:soil", "desc:soil", "desc:microbes", "tag:soil", "tag:water")));
+	}
+	
+	@Test
+	public void getGroupTokensImmutable() throws Exception {
+		try {
+			GroupSearchTokens.getGroupTokens(new GroupName("n"), Collections.emptyMap())
+					.add("foo");
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+	
+	@Test
+	public void getGroupTokensFail() throws Exception {
+		failGetGroupTokens(null, Collections.emptyMap(), new NullPointerException("name"));
+		failGetGroupTokens(new GroupName("n"), null, new NullPointerException("customFields"));
+	}
+	
+	private void failGetGroupTokens(
+			final GroupName name,
+			final Map<NumberedCustomField, String> fields,
+			final Exception expected) {
+		try {
+			GroupSearchTokens.getGroupTokens(name, fields);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getQueryTokens() throws Exception {
+		assertThat("incorrect tokens", GroupSearchTokens.getQueryTokens(
+				set("soil", "water"), set()),
+				is(set("_name:soil", "_name:water")));
+		
+		assertThat("incorrect tokens", GroupSearchTokens.getQueryTokens(
+				set("soil", "water"), set(new CustomField("desc"), new CustomField("tag"))),
+				is(set("_name:soil", "_name:water", "desc:soil", "desc:water",
+						"tag:soil", "tag:water")));
+	}
+	
+	@Test
+	public void getQueryTokensFail() throws Exception {
+		failGetQueryTokens(null, set(), new NullPointerException("terms"));
+		failGetQueryTokens(set(), null, new NullPointerException("searchFields"));
+		failGetQueryTokens(set("foo", null), set(), new NullPointerException(
+				"Null item in collection terms"));
+		failGetQueryTokens(set(), set(new CustomField("f"), null), new NullPointerException(
+				"Null item in collection searchFields"));
+	}
+	
+	private void failGetQueryTokens(
+			final Set<String> terms,
+			final Set<CustomField> fields,
+			final Exception expected) {
+		try {
+			GroupSearchTokens.getQueryTokens(terms, fields);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+}
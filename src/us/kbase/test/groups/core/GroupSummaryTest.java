@@ -0,0 +1,217 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.Group.Role;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSummary;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.test.groups.TestCommon;
+
+public class GroupSummaryTest {
+
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(GroupSummary.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void buildMinimal() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("o"),
+				new CreateAndModTimes(inst(10000), inst(20000)), 1)
+				.build();
+		
+		assertThat("incorrect id", s.getGroupID(), is(new GroupID("id")));
+		assertThat("incorrect name", s.getGroupName(), is(new GroupName("name")));
+		assertThat("incorrect owner", s.getOwner(), is(new UserName("o")));
+		assertThat("incorrect create", s.getCreationDate(), is(inst(10000)));
+		assertThat("incorrect mod", s.getModificationDate(), is(inst(20000)));
+		assertThat("incorrect member count", s.getMemberCount(), is(1));
+		assertThat("incorrect private", s.isPrivate(), is(false));
+		assertThat("incorrect resource counts", s.getResourceCounts(),
+				is(Collections.emptyMap()));
+		assertThat("incorrect custom", s.getCustomFields(), is(Collections.emptyMap()));
+		assertThat("incorrect role", s.getRole(), is(Role.NONE));
+		assertThat("incorrect visit", s.getLastVisit(), is(Optional.empty()));
+	}
+	
+	@Test
+	public void buildMaximal() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("o"),
+				new CreateAndModTimes(inst(10000), inst(20000)), 42)
+				.withIsPrivate(true)
+				.withResourceCount(new ResourceType("workspace"), 3)
+				.withResourceCount(new ResourceType("catalogmethod"), 1)
+				.withResourceCount(new ResourceType("workspace"), 6)
+				.withCustomField(new NumberedCustomField("foo-1"), "bar")
+				.withCustomField(new NumberedCustomField("baz"), "bat")
+				.withUserRole(Role.ADMIN, inst(30000))
+				.build();
+		
+		assertThat("incorrect id", s.getGroupID(), is(new GroupID("id")));
+		assertThat("incorrect name", s.getGroupName(), is(new GroupName("name")));
+		assertThat("incorrect owner", s.getOwner(), is(new UserName("o")));
+		assertThat("incorrect create", s.getCreationDate(), is(inst(10000)));
+		assertThat("incorrect mod", s.getModificationDate(), is(inst(20000)));
+		assertThat("incorrect member count", s.getMemberCount(), is(42));
+		assertThat("incorrect private", s.isPrivate(), is(true));
+		assertThat("incorrect resource counts", s.getResourceCounts(), is(ImmutableMap.of(
+				new ResourceType("workspace"), 6, new ResourceType("catalogmethod"), 1)));
+		assertThat("incorrect custom", s.getCustomFields(), is(ImmutableMap.of(
+				new NumberedCustomField("foo-1"), "bar", new NumberedCustomField("baz"), "bat")));
+		assertThat("incorrect role", s.getRole(), is(Role.ADMIN));
+		assertThat("incorrect visit", s.getLastVisit(), is(Optional.of(inst(30000))));
+	}
+	
+	@Test
+	public void buildMemberNoVisit() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("o"),
+				new CreateAndModTimes(inst(10000)), 1)
+				.withUserRole(Role.OWNER, inst(30000))
+				.withUserRole(Role.MEMBER, null)
+				.build();
+		
+		assertThat("incorrect role", s.getRole(), is(Role.MEMBER));
+		assertThat("incorrect visit", s.getLastVisit(), is(Optional.empty()));
+	}
+	
+	@Test
+	public void immutable() throws Exception {
+		final GroupSummary s = GroupSummary.getBuilder(
+				new GroupID("id"), new GroupName("name"), new UserName("o"),
+				new CreateAndModTimes(inst(10000)), 1)
+				.withResourceCount(new ResourceType("workspace"), 3)
+				.withCustomField(new NumberedCustomField("foo-1"), "bar")
+				.build();
+		
+		assertImmutable(s.getResourceCounts(), new ResourceType("t"), 1);
+		assertImmutable(s.getCustomFields(), new NumberedCustomField("f"), "v");
+	}
+	
+	private <K, V> void assertImmutable(final Map<K, V> map, final K key, final V value) {
+		try {
+			map.put(key, value);
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+	
+	@Test
+	public void getBuilderFail() throws Exception {
+		final GroupID i = new GroupID("i");
+		final GroupName n = new GroupName("n");
+		final UserName o = new UserName("o");
+		final CreateAndModTimes t = new CreateAndModTimes(inst(10000));
+		
+		failGetBuilder(null, n, o, t, 1, new NullPointerException("id"));
+		failGetBuilder(i, null, o, t, 1, new NullPointerException("name"));
+		failGetBuilder(i, n, null, t, 1, new NullPointerException("owner"));
+		failGetBuilder(i, n, o, null, 1, new NullPointerException("times"));
+		failGetBuilder(i, n, o, t, 0, new IllegalArgumentException(
+				"memberCount must be at least 1"));
+	}
+	
+	private void failGetBuilder(
+			final GroupID id,
+			final GroupName name,
+			final UserName owner,
+			final CreateAndModTimes times,
+			final int memberCount,
+			final Exception expected) {
+		try {
+			GroupSummary.getBuilder(id, name, owner, times, memberCount);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withResourceCountFail() throws Exception {
+		failWithResourceCount(null, 1, new NullPointerException("type"));
+		failWithResourceCount(new ResourceType("t"), 0, new IllegalArgumentException(
+				"count must be at least 1"));
+	}
+	
+	private void failWithResourceCount(
+			final ResourceType type,
+			final int count,
+			final Exception expected)
+			throws Exception {
+		try {
+			getBuilder().withResourceCount(type, count);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withCustomFieldFail() throws Exception {
+		final NumberedCustomField f = new NumberedCustomField("f");
+		failWithCustomField(null, "v", new NullPointerException("field"));
+		failWithCustomField(f, null, new IllegalArgumentException(
+				"value cannot be null or whitespace only"));
+		failWithCustomField(f, "  \t  ", new IllegalArgumentException(
+				"value cannot be null or whitespace only"));
+	}
+	
+	private void failWithCustomField(
+			final NumberedCustomField field,
+			final String value,
+			final Exception expected)
+			throws Exception {
+		try {
+			getBuilder().withCustomField(field, value);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withUserRoleFail() throws Exception {
+		failWithUserRole(null, null, new NullPointerException("role"));
+		failWithUserRole(Role.NONE, inst(10000), new IllegalArgumentException(
+				"Non-members cannot have a last visit date"));
+	}
+	
+	private void failWithUserRole(
+			final Role role,
+			final Instant lastVisit,
+			final Exception expected)
+			throws Exception {
+		try {
+			getBuilder().withUserRole(role, lastVisit);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private GroupSummary.Builder getBuilder() throws Exception {
+		return GroupSummary.getBuilder(new GroupID("i"), new GroupName("n"), new UserName("o"),
+				new CreateAndModTimes(inst(10000)), 1);
+	}
+}
@@ -13,6 +13,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
 
 import org.junit.Test;
 
@@ -24,6 +25,7 @@ import us.kbase.groups.core.Group;
 import us.kbase.groups.core.Group.Builder;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.GroupView;
 import us.kbase.groups.core.GroupView.GroupUserView;
@@ -280,6 +282,84 @@ public class GroupViewTest {
 		assertImmutable(gv.getResourceCounts(), new ResourceType("t"), 7);
 	}
 
+	private GroupSummary summary(
+			final Group g,
+			final Group.Role role,
+			final Instant lastVisit)
+			throws Exception {
+		final GroupSummary.Builder b = GroupSummary.getBuilder(
+				g.getGroupID(), g.getGroupName(), g.getOwner(),
+				new CreateAndModTimes(g.getCreationDate(), g.getModificationDate()),
+				g.getAllMembers().size())
+				.withIsPrivate(g.isPrivate())
+				.withUserRole(role, lastVisit);
+		for (final ResourceType t: g.getResourceTypes()) {
+			b.withResourceCount(t, g.getResources(t).size());
+		}
+		for (final NumberedCustomField f: g.getCustomFields().keySet()) {
+			b.withCustomField(f, g.getCustomFields().get(f));
+		}
+		return b.build();
+	}
+	
+	@Test
+	public void summaryViewMatchesMinimalView() throws Exception {
+		// the summary path should produce views identical to minimal views of the full group
+		final Function<NumberedCustomField, Boolean> min = f -> f.getField().equals("field");
+		final Function<NumberedCustomField, Boolean> pub = f -> f.getField().equals("field2");
+		
+		assertSummaryViewCorrect(GROUP, null, summary(GROUP, Group.Role.NONE, null),
+				false, min, pub);
+		assertSummaryViewCorrect(GROUP, new UserName("m2"),
+				summary(GROUP, Group.Role.MEMBER, null), false, min, pub);
+		assertSummaryViewCorrect(GROUP, new UserName("m1"),
+				summary(GROUP, Group.Role.MEMBER, inst(62000)), false, min, pub);
+		assertSummaryViewCorrect(GROUP, new UserName("a1"),
+				summary(GROUP, Group.Role.ADMIN, inst(35000)), false, min, pub);
+		assertSummaryViewCorrect(GROUP, new UserName("user"),
+				summary(GROUP, Group.Role.OWNER, null), false, f -> true, pub);
+		assertSummaryViewCorrect(PRIVGROUP, null, summary(PRIVGROUP, Group.Role.NONE, null),
+				false, min, f -> true);
+		assertSummaryViewCorrect(PRIVGROUP, null, summary(PRIVGROUP, Group.Role.NONE, null),
+				true, f -> true, f -> true);
+		assertSummaryViewCorrect(PRIVGROUP, new UserName("m1"),
+				summary(PRIVGROUP, Group.Role.MEMBER, inst(62000)), false, min, pub);
+	}
+	
+	private void assertSummaryViewCorrect(
+			final Group group,
+			final UserName user,
+			final GroupSummary summary,
+			final boolean overridePrivate,
+			final Function<NumberedCustomField, Boolean> isMinimal,
+			final Function<NumberedCustomField, Boolean> isPublic) {
+		final GroupView expected = GroupView.getBuilder(group, user)
+				.withOverridePrivateView(overridePrivate)
+				.withMinimalViewFieldDeterminer(isMinimal)
+				.withPublicFieldDeterminer(isPublic)
+				.build();
+		final GroupView got = GroupView.getBuilder(summary)
+				.withOverridePrivateView(overridePrivate)
+				.withMinimalViewFieldDeterminer(isMinimal)
+				.withPublicFieldDeterminer(isPublic)
+				.build();
+		assertThat("incorrect view", got, is(expected));
+	}
+	
+	@Test
+	public void summaryViewImmutable() throws Exception {
+		final GroupView gv = GroupView.getBuilder(summary(GROUP, Group.Role.NONE, null))
+				.withMinimalViewFieldDeterminer(f -> true)
+				.withPublicFieldDeterminer(f -> true)
+				.build();
+		
+		assertImmutable(gv.getAdministrators(), new UserName("u"));
+		assertImmutable(gv.getMembers(), new UserName("u"));
+		assertImmutable(gv.getCustomFields(), new NumberedCustomField("foo"), "bar");
+		assertImmutable(gv.getResourceTypes(), new ResourceType("t"));
+		assertImmutable(gv.getResourceCounts(), new ResourceType("t"), 7);
+	}
+	
 	@Test
 	public void nonMemberView() throws Exception {
 		final GroupView gv = GroupView.getBuilder(GROUP, null)
@@ -747,6 +827,29 @@ public class GroupViewTest {
 		}
 	}
 	
+	@Test
+	public void getSummaryBuilderFail() throws Exception {
+		final GroupSummary s = summary(GROUP, Group.Role.NONE, null);
+		try {
+			GroupView.getBuilder((GroupSummary) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("summary"));
+		}
+		try {
+			GroupView.getBuilder(s).withPublicFieldDeterminer(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("isPublic"));
+		}
+		try {
+			GroupView.getBuilder(s).withMinimalViewFieldDeterminer(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("isMinimalView"));
+		}
+	}
+	
 	@Test
 	public void withResourceFail() throws Exception {
 		final UserName u = new UserName("u");
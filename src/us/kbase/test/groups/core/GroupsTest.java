@@ -4,10 +4,11 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
-import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -15,16 +16,24 @@ import static org.mockito.Mockito.when;
 import static us.kbase.test.groups.TestCommon.set;
 import static us.kbase.test.groups.TestCommon.inst;
 
+import java.io.IOException;
 import java.lang.reflect.Constructor;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -34,21 +43,28 @@ import com.google.common.collect.ImmutableMap;
 
 import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GetChangesParams;
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.Group;
+import us.kbase.groups.core.Group.Role;
 import us.kbase.groups.core.GroupCreationParams;
 import us.kbase.groups.core.GroupHasRequests;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.GroupView;
 import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.ItemSource;
+import us.kbase.groups.core.ItemStream;
 import us.kbase.groups.core.OptionalGroupFields;
 import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.TaskWrapper;
 import us.kbase.groups.core.Token;
 import us.kbase.groups.core.UUIDGenerator;
 import us.kbase.groups.core.UserHandler;
@@ -89,7 +105,11 @@ import us.kbase.groups.core.resource.ResourceHandler;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
 import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.DownstreamTimer.Timing;
+import us.kbase.groups.metrics.MetricsRegistry;
 import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.ItemProcessor;
 import us.kbase.test.groups.TestCommon;
 
 public class GroupsTest {
@@ -112,6 +132,10 @@ public class GroupsTest {
 	}
 	
 	private static TestMocks initTestMocks() throws Exception {
+		return initTestMocks(TaskWrapper.NONE);
+	}
+	
+	private static TestMocks initTestMocks(final TaskWrapper taskWrapper) throws Exception {
 		final GroupsStorage storage = mock(GroupsStorage.class);
 		final UserHandler uh = mock(UserHandler.class);
 		final ResourceHandler wh = mock(ResourceHandler.class);
@@ -124,7 +148,8 @@ public class GroupsTest {
 		
 		final Constructor<Groups> c = Groups.class.getDeclaredConstructor(
 				GroupsStorage.class, UserHandler.class, Map.class, FieldValidators.class,
-				Notifications.class, UUIDGenerator.class, Clock.class);
+				Notifications.class, Set.class, TaskWrapper.class, UUIDGenerator.class,
+				Clock.class);
 		c.setAccessible(true);
 		final Groups instance = c.newInstance(
 				storage,
@@ -134,6 +159,8 @@ public class GroupsTest {
 						new ResourceType("catalogmethod"), ch),
 				val,
 				notis,
+				set(new UserName("admin")),
+				taskWrapper,
 				uuidGen,
 				clock);
 		return new TestMocks(instance, storage, uh, wh, ch, val, notis, uuidGen, clock);
@@ -194,6 +221,33 @@ public class GroupsTest {
 				v, n,
 				new IllegalArgumentException(
 						"resourceHandlers cannot contain built in type user"));
+		
+		failConstruct(s, u, h, v, n, null, new NullPointerException("serviceAdmins"));
+		failConstruct(s, u, h, v, n, set(new UserName("u"), null),
+				new NullPointerException("Null item in collection serviceAdmins"));
+		
+		try {
+			new Groups(s, u, h, v, n, set(), null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("taskWrapper"));
+		}
+	}
+	
+	private void failConstruct(
+			final GroupsStorage storage,
+			final UserHandler userHandler,
+			final Map<ResourceType, ResourceHandler> handlers,
+			final FieldValidators validators,
+			final Notifications notifications,
+			final Set<UserName> serviceAdmins,
+			final Exception expected) {
+		try {
+			new Groups(storage, userHandler, handlers, validators, notifications, serviceAdmins);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
 	}
 	
 	private void failConstruct(
@@ -833,6 +887,49 @@ public class GroupsTest {
 				.build()));
 	}
 	
+	@Test
+	public void getGroupNoTokenConcurrent() throws Exception {
+		// concurrent anonymous loads of the same group share a single load
+		final TestMocks mocks = initTestMocks();
+		final CountDownLatch inLoad = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		when(mocks.storage.getGroup(new GroupID("bar"))).thenAnswer(inv -> {
+			inLoad.countDown();
+			release.await();
+			return Group.getBuilder(
+					new GroupID("bar"), new GroupName("name"), toGUser("foo"),
+					new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+					.build();
+		});
+		
+		final GroupView expected = GroupView.getBuilder(Group.getBuilder(
+				new GroupID("bar"), new GroupName("name"), toGUser("foo"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.build(), null)
+				.withStandardView(true)
+				.withResourceType(new ResourceType("workspace"))
+				.withResourceType(new ResourceType("catalogmethod"))
+				.build();
+		
+		final ExecutorService exe = Executors.newFixedThreadPool(2);
+		try {
+			final Future<GroupView> f1 = exe.submit(
+					() -> mocks.groups.getGroup(null, new GroupID("bar")));
+			inLoad.await();
+			final Future<GroupView> f2 = exe.submit(
+					() -> mocks.groups.getGroup(null, new GroupID("bar")));
+			Thread.sleep(100); // let the 2nd thread block on the in progress load
+			release.countDown();
+			
+			assertThat("incorrect group", f1.get(), is(expected));
+			assertThat("incorrect group", f2.get(), is(expected));
+		} finally {
+			exe.shutdownNow();
+		}
+		verify(mocks.storage, times(1)).getGroup(new GroupID("bar"));
+	}
+	
 	// DRY up these next 3 later
 	
 	@Test
@@ -1140,6 +1237,14 @@ public class GroupsTest {
 						.build()));
 	}
 	
+	@Test
+	public void getGroupFailNull() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		failGetGroup(mocks.groups, null, null, new NullPointerException("groupID"));
+		failGetGroup(mocks.groups, new Token("t"), null, new NullPointerException("groupID"));
+	}
+	
 	@Test
 	public void getGroupFailNoSuchGroup() throws Exception {
 		final TestMocks mocks = initTestMocks();
@@ -1203,6 +1308,75 @@ public class GroupsTest {
 				"Illegal data associated with group bar: 30030 Illegal resource ID: oh heck"));
 	}
 	
+	@Test
+	public void getGroupFailResourceHandlerExceptionMultipleTypes() throws Exception {
+		// tests exception unwrapping when the handlers are run concurrently
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.storage.getGroup(new GroupID("bar"))).thenReturn(Group.getBuilder(
+				new GroupID("bar"), new GroupName("name"), toGUser("foo"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withMember(toGUser("baz"))
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("92")))
+				.withResource(new ResourceType("catalogmethod"),
+						new ResourceDescriptor(
+								new ResourceAdministrativeID("mod1"),
+								new ResourceID("mod1.meth1")))
+				.build());
+		when(mocks.userHandler.getUser(new Token("token"))).thenReturn(new UserName("baz"));
+		when(mocks.wsHandler.getResourceInformation(
+				new UserName("baz"), set(new ResourceID("92")), false))
+				.thenReturn(ResourceInformationSet.getBuilder(new UserName("baz"))
+						.withResource(new ResourceID("92"))
+						.build());
+		when(mocks.catHandler.getResourceInformation(
+				new UserName("baz"), set(new ResourceID("mod1.meth1")), false))
+				.thenThrow(new ResourceHandlerException("catalog is down"));
+		
+		failGetGroup(mocks.groups, new Token("token"), new GroupID("bar"),
+				new ResourceHandlerException("catalog is down"));
+	}
+	
+	@Test
+	public void getGroupMultipleTypesDownstreamTimed() throws Exception {
+		// the handlers run on a pool thread, but their time is added to the request's total
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		final TestMocks mocks = initTestMocks(dt);
+		
+		when(mocks.storage.getGroup(new GroupID("bar"))).thenReturn(Group.getBuilder(
+				new GroupID("bar"), new GroupName("name"), toGUser("foo"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withResource(new ResourceType("workspace"),
+						new ResourceDescriptor(new ResourceID("92")))
+				.withResource(new ResourceType("catalogmethod"),
+						new ResourceDescriptor(
+								new ResourceAdministrativeID("mod1"),
+								new ResourceID("mod1.meth1")))
+				.build());
+		when(mocks.wsHandler.getResourceInformation(null, set(new ResourceID("92")), true))
+				.thenAnswer(inv -> {
+					final Timing t = dt.start("workspace", "getResourceInformation");
+					Thread.sleep(20);
+					t.stop();
+					return ResourceInformationSet.getBuilder(null).build();
+				});
+		when(mocks.catHandler.getResourceInformation(
+				null, set(new ResourceID("mod1.meth1")), true))
+				.thenAnswer(inv -> {
+					final Timing t = dt.start("catalog", "getResourceInformation");
+					Thread.sleep(20);
+					t.stop();
+					return ResourceInformationSet.getBuilder(null).build();
+				});
+		
+		dt.startRequest();
+		mocks.groups.getGroup(null, new GroupID("bar"));
+		final long total = dt.endRequest();
+		
+		assertThat("incorrect total " + total, total >= 40_000_000L, is(true));
+	}
+	
 	private void failGetGroup(
 			final Groups g,
 			final Token t,
@@ -1367,14 +1541,17 @@ public class GroupsTest {
 	public void groupsHaveRequestsNoVisit() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
+		final Set<GroupID> ids = set(new GroupID("id1"), new GroupID("id2"));
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
-		when(mocks.storage.getGroup(new GroupID("id1"))).thenReturn(groupWithAdmin("id1", "u"));
-		when(mocks.storage.getGroup(new GroupID("id2"))).thenReturn(groupWithAdmin("id2", "u"));
-		when(mocks.storage.groupHasRequest(new GroupID("id1"), null)).thenReturn(false);
-		when(mocks.storage.groupHasRequest(new GroupID("id2"), null)).thenReturn(true);
+		when(mocks.storage.getAdministratorMemberships(new UserName("u"), ids)).thenReturn(
+				ImmutableMap.of(
+						new GroupID("id1"), adminMembership("u", null),
+						new GroupID("id2"), adminMembership("u", null)));
+		when(mocks.storage.getLatestOpenRequestDates(ids)).thenReturn(
+				ImmutableMap.of(new GroupID("id2"), inst(30000)));
 		
 		assertThat("incorrect request state", mocks.groups.groupsHaveRequests(
-				new Token("tok"), set(new GroupID("id1"), new GroupID("id2"))),
+				new Token("tok"), ids),
 				is(ImmutableMap.of(
 						new GroupID("id1"), GroupHasRequests.NONE,
 						new GroupID("id2"), GroupHasRequests.NEW)));
@@ -1384,40 +1561,33 @@ public class GroupsTest {
 	public void groupsHaveRequestsVisted() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
+		final Set<GroupID> ids = set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3"),
+				new GroupID("id4"));
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
-		when(mocks.storage.getGroup(new GroupID("id1"))).thenReturn(
-				groupWithAdmin("id1", "u", inst(25000)));
-		when(mocks.storage.getGroup(new GroupID("id2"))).thenReturn(
-				groupWithAdmin("id2", "u", inst(56000)));
-		when(mocks.storage.getGroup(new GroupID("id3"))).thenReturn(
-				groupWithAdmin("id3", "u", inst(35000)));
-		when(mocks.storage.groupHasRequest(new GroupID("id1"), inst(25000))).thenReturn(false);
-		when(mocks.storage.groupHasRequest(new GroupID("id1"), null)).thenReturn(true);
-		when(mocks.storage.groupHasRequest(new GroupID("id2"), inst(56000))).thenReturn(true);
-		when(mocks.storage.groupHasRequest(new GroupID("id3"), inst(35000))).thenReturn(false);
-		when(mocks.storage.groupHasRequest(new GroupID("id3"), null)).thenReturn(false);
+		when(mocks.storage.getAdministratorMemberships(new UserName("u"), ids)).thenReturn(
+				ImmutableMap.of(
+						new GroupID("id1"), adminMembership("u", inst(25000)),
+						new GroupID("id2"), adminMembership("u", inst(56000)),
+						new GroupID("id3"), adminMembership("u", inst(35000)),
+						new GroupID("id4"), adminMembership("u", inst(40000))));
+		when(mocks.storage.getLatestOpenRequestDates(ids)).thenReturn(ImmutableMap.of(
+				new GroupID("id1"), inst(20000),
+				new GroupID("id2"), inst(56001),
+				new GroupID("id4"), inst(40000)));
 		
 		assertThat("incorrect request state", mocks.groups.groupsHaveRequests(
-				new Token("tok"), set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3"))),
+				new Token("tok"), ids),
 				is(ImmutableMap.of(
 						new GroupID("id1"), GroupHasRequests.OLD,
 						new GroupID("id2"), GroupHasRequests.NEW,
-						new GroupID("id3"), GroupHasRequests.NONE)));
-	}
-	
-	private Group groupWithAdmin(final String id, final String adminName) throws Exception {
-		return groupWithAdmin(id, adminName, null);
+						new GroupID("id3"), GroupHasRequests.NONE,
+						new GroupID("id4"), GroupHasRequests.OLD)));
 	}
 	
-	private Group groupWithAdmin(
-			final String id,
-			final String adminName,
-			final Instant lastVisit) throws Exception {
-		return Group.getBuilder(new GroupID(id), new GroupName("n"), toGUser("o"),
-				new CreateAndModTimes(inst(1000)))
-				.withAdministrator(GroupUser.getBuilder(new UserName(adminName), inst(10000))
-						.withNullableLastVisit(lastVisit)
-						.build())
+	private GroupUser adminMembership(final String adminName, final Instant lastVisit)
+			throws Exception {
+		return GroupUser.getBuilder(new UserName(adminName), inst(10000))
+				.withNullableLastVisit(lastVisit)
 				.build();
 	}
 	
@@ -1440,9 +1610,11 @@ public class GroupsTest {
 				.collect(Collectors.toSet());
 
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
+		final Map<GroupID, GroupUser> admins = new HashMap<>();
 		for (final GroupID g: ids) {
-			when(mocks.storage.getGroup(g)).thenReturn(groupWithAdmin(g.getName(), "u"));
+			admins.put(g, adminMembership("u", null));
 		}
+		when(mocks.storage.getAdministratorMemberships(new UserName("u"), ids)).thenReturn(admins);
 		
 		mocks.groups.groupsHaveRequests(new Token("tok"), ids);
 		
@@ -1456,12 +1628,13 @@ public class GroupsTest {
 		final TestMocks mocks = initTestMocks();
 		
 		when(mocks.userHandler.getUser(new Token("tok"))).thenReturn(new UserName("u"));
-		when(mocks.storage.getGroup(new GroupID("id1"))).thenReturn(groupWithAdmin("id1", "u"));
-		when(mocks.storage.getGroup(new GroupID("id2"))).thenReturn(groupWithAdmin("id2", "u2"));
-		when(mocks.storage.getGroup(new GroupID("id3"))).thenReturn(groupWithAdmin("id3", "u"));
+		final Set<GroupID> ids = set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3"));
+		when(mocks.storage.getAdministratorMemberships(new UserName("u"), ids)).thenReturn(
+				ImmutableMap.of(
+						new GroupID("id1"), adminMembership("u", null),
+						new GroupID("id3"), adminMembership("u", null)));
 		
-		failGroupsHaveRequests(mocks.groups, new Token("tok"),
-				set(new GroupID("id1"), new GroupID("id2"), new GroupID("id3")),
+		failGroupsHaveRequests(mocks.groups, new Token("tok"), ids,
 				new UnauthorizedException("User u may not administrate group id2"));
 	}
 	
@@ -1482,11 +1655,12 @@ public class GroupsTest {
 	public void getGroupsEmpty() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
-		when(mocks.storage.getGroups(GetGroupsParams.getBuilder()
+		when(mocks.storage.getGroupSummaries(GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo("ex")
 				.withNullableSortAscending(false)
 				.build(),
-				null))
+				null,
+				set(new ResourceType("workspace"), new ResourceType("catalogmethod"))))
 				.thenReturn(Collections.emptyList());
 		
 		assertThat("incorrect groups", mocks.groups.getGroups(null, GetGroupsParams.getBuilder()
@@ -1500,23 +1674,21 @@ public class GroupsTest {
 	public void getGroups() throws Exception {
 		final TestMocks mocks = initTestMocks();
 		
-		when(mocks.storage.getGroups(GetGroupsParams.getBuilder()
+		when(mocks.storage.getGroupSummaries(GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo("someex")
 				.build(),
-				null))
+				null,
+				set(new ResourceType("workspace"), new ResourceType("catalogmethod"))))
 				.thenReturn(Arrays.asList(
-						Group.getBuilder(
-						new GroupID("id1"), new GroupName("name1"), toGUser("u1"),
-						new CreateAndModTimes(
-								Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
-						.withMember(toGUser("m1"))
-						.withAdministrator(toGUser("a1"))
+						GroupSummary.getBuilder(
+								new GroupID("id1"), new GroupName("name1"), new UserName("u1"),
+								new CreateAndModTimes(
+										Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)),
+								3)
 								.build(),
-						Group.getBuilder(
-								new GroupID("id2"), new GroupName("name2"), toGUser("u2"),
-								new CreateAndModTimes(Instant.ofEpochMilli(10000)))
-								.withMember(toGUser("whee"))
-								.withAdministrator(toGUser("whoo"))
+						GroupSummary.getBuilder(
+								new GroupID("id2"), new GroupName("name2"), new UserName("u2"),
+								new CreateAndModTimes(Instant.ofEpochMilli(10000)), 3)
 								.build()
 						));
 		
@@ -1543,15 +1715,19 @@ public class GroupsTest {
 						));
 	}
 	
-	private GroupUser gGWCFWithCF(final GroupUser.Builder b) throws Exception {
-		return b
-				.withCustomField(new NumberedCustomField("minpub-6"), "uminpub")
-				.withCustomField(new NumberedCustomField("minpriv-7"), "uminpriv")
-				.withCustomField(new NumberedCustomField("pub-8"), "upub")
-				.withCustomField(new NumberedCustomField("priv-9"), "upriv")
+	private GroupSummary gGWCFSummary(final Role role) throws Exception {
+		return GroupSummary.getBuilder(
+				new GroupID("id1"), new GroupName("name1"), new UserName("o1"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)),
+				3)
+				.withCustomField(new NumberedCustomField("minpub-6"), "minpub")
+				.withCustomField(new NumberedCustomField("minpriv-7"), "minpriv")
+				.withCustomField(new NumberedCustomField("pub-8"), "pub")
+				.withCustomField(new NumberedCustomField("priv-9"), "priv")
 				// mockito returns Optional.empty() by default, so no need to mock
-				.withCustomField(new NumberedCustomField("missingmin"), "umissingonmin")
-				.withCustomField(new NumberedCustomField("missingpub"), "umissingonpub")
+				.withCustomField(new NumberedCustomField("missingmin"), "missingonmin")
+				.withCustomField(new NumberedCustomField("missingpub"), "missingonpub")
+				.withUserRole(role, null)
 				.build();
 	}
 	
@@ -1565,24 +1741,14 @@ public class GroupsTest {
 		
 		when(mocks.userHandler.getUser(new Token("m1"))).thenReturn(new UserName("m1"));
 		when(mocks.userHandler.getUser(new Token("m2"))).thenReturn(new UserName("m2"));
-		when(mocks.storage.getGroups(eq(mtparams), any()))
-				.thenReturn(Arrays.asList(Group.getBuilder(
-						new GroupID("id1"), new GroupName("name1"),
-						gGWCFWithCF(GroupUser.getBuilder(new UserName("o1"), inst(10000))),
-						new CreateAndModTimes(
-								Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
-						.withMember(gGWCFWithCF(GroupUser.getBuilder(new UserName("m1"),
-								inst(20000))))
-						.withAdministrator(gGWCFWithCF(GroupUser.getBuilder(new UserName("a1"),
-								inst(30000))))
-						.withCustomField(new NumberedCustomField("minpub-6"), "minpub")
-						.withCustomField(new NumberedCustomField("minpriv-7"), "minpriv")
-						.withCustomField(new NumberedCustomField("pub-8"), "pub")
-						.withCustomField(new NumberedCustomField("priv-9"), "priv")
-						// mockito returns Optional.empty() by default, so no need to mock
-						.withCustomField(new NumberedCustomField("missingmin"), "missingonmin")
-						.withCustomField(new NumberedCustomField("missingpub"), "missingonpub")
-						.build()));
+		final Set<ResourceType> types = set(
+				new ResourceType("workspace"), new ResourceType("catalogmethod"));
+		when(mocks.storage.getGroupSummaries(mtparams, null, types))
+				.thenReturn(Arrays.asList(gGWCFSummary(Role.NONE)));
+		when(mocks.storage.getGroupSummaries(mtparams, new UserName("m2"), types))
+				.thenReturn(Arrays.asList(gGWCFSummary(Role.NONE)));
+		when(mocks.storage.getGroupSummaries(mtparams, new UserName("m1"), types))
+				.thenReturn(Arrays.asList(gGWCFSummary(Role.MEMBER)));
 		
 		when(mocks.validators.getConfigOrEmpty(new CustomField("minpub"))).thenReturn(
 				Optional.of(FieldConfiguration.getBuilder()
@@ -1705,10 +1871,24 @@ public class GroupsTest {
 				.withMember(GroupUser.getBuilder(new UserName("m1"), inst(20000)).build())
 				.build();
 		
+		final GroupSummary s3 = GroupSummary.getBuilder(new GroupID("g3"), new GroupName("n3"),
+				new UserName("o3"), new CreateAndModTimes(inst(1000)), 1)
+				.build();
+		final GroupSummary s1 = GroupSummary.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				new UserName("o1"), new CreateAndModTimes(inst(1000)), 1)
+				.build();
+		final GroupSummary s2 = GroupSummary.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				new UserName("o2"), new CreateAndModTimes(inst(1000)), 2)
+				.withIsPrivate(true)
+				.withUserRole(Role.MEMBER, null)
+				.build();
+		final Set<ResourceType> types = set(
+				new ResourceType("workspace"), new ResourceType("catalogmethod"));
+		
 		when(mocks.userHandler.getUser(new Token("t1"))).thenReturn(new UserName("m1"));
-		when(mocks.storage.getGroups(ggp, null)).thenReturn(Arrays.asList(g1, g3));
-		when(mocks.storage.getGroups(ggp, new UserName("m1")))
-				.thenReturn(Arrays.asList(g1, g2, g3));
+		when(mocks.storage.getGroupSummaries(ggp, null, types)).thenReturn(Arrays.asList(s1, s3));
+		when(mocks.storage.getGroupSummaries(ggp, new UserName("m1"), types))
+				.thenReturn(Arrays.asList(s1, s2, s3));
 		
 		assertThat("incorrect groups", mocks.groups.getGroups(null, ggp),
 				is(Arrays.asList(GroupView.getBuilder(g1, null).build(),
@@ -1730,6 +1910,220 @@ public class GroupsTest {
 		}
 	}
 	
+	@Test
+	public void searchGroups() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		final GroupSearchParams params = GroupSearchParams.getBuilder("foo").build();
+		final Set<ResourceType> types = set(
+				new ResourceType("workspace"), new ResourceType("catalogmethod"));
+		
+		when(mocks.userHandler.getUser(new Token("t1"))).thenReturn(new UserName("m1"));
+		when(mocks.validators.getValidationTargetFields()).thenReturn(set(
+				new CustomField("minpub"), new CustomField("minpriv"), new CustomField("pub"),
+				new CustomField("priv")));
+		when(mocks.validators.getConfig(new CustomField("minpub"))).thenReturn(
+				FieldConfiguration.getBuilder()
+						.withNullableIsPublicField(true)
+						.withNullableIsMinimalViewField(true)
+						.build());
+		when(mocks.validators.getConfig(new CustomField("minpriv"))).thenReturn(
+				FieldConfiguration.getBuilder().withNullableIsMinimalViewField(true).build());
+		when(mocks.validators.getConfig(new CustomField("pub"))).thenReturn(
+				FieldConfiguration.getBuilder().withNullableIsPublicField(true).build());
+		when(mocks.validators.getConfig(new CustomField("priv"))).thenReturn(
+				FieldConfiguration.getBuilder().build());
+		
+		final GroupSummary s1 = GroupSummary.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				new UserName("o1"), new CreateAndModTimes(inst(1000)), 1)
+				.build();
+		final GroupSummary s2 = GroupSummary.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				new UserName("o2"), new CreateAndModTimes(inst(1000)), 2)
+				.withIsPrivate(true)
+				.withUserRole(Role.MEMBER, null)
+				.build();
+		
+		when(mocks.storage.searchGroupSummaries(
+				params, new UserName("m1"), types, set(new CustomField("minpub"))))
+				.thenReturn(Arrays.asList(s2, s1));
+		
+		final Group g1 = Group.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				GroupUser.getBuilder(new UserName("o1"), inst(10000)).build(),
+				new CreateAndModTimes(inst(1000)))
+				.build();
+		final Group g2 = Group.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				GroupUser.getBuilder(new UserName("o2"), inst(10000)).build(),
+				new CreateAndModTimes(inst(1000)))
+				.withIsPrivate(true)
+				.withMember(GroupUser.getBuilder(new UserName("m1"), inst(20000)).build())
+				.build();
+		
+		assertThat("incorrect groups", mocks.groups.searchGroups(new Token("t1"), params),
+				is(Arrays.asList(GroupView.getBuilder(g2, new UserName("m1")).build(),
+						GroupView.getBuilder(g1, new UserName("m1")).build())));
+	}
+	
+	@Test
+	public void searchGroupsFail() throws Exception {
+		try {
+			initTestMocks().groups.searchGroups(null, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("params"));
+		}
+	}
+	
+	@Test
+	public void getGroupsForResource() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		final GetGroupsParams ggp = GetGroupsParams.getBuilder()
+				.withNullableExcludeUpTo("foo")
+				.build();
+		final ResourceType ws = new ResourceType("workspace");
+		final Set<ResourceType> types = set(ws, new ResourceType("catalogmethod"));
+		
+		final GroupSummary s1 = GroupSummary.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				new UserName("o1"), new CreateAndModTimes(inst(1000)), 1)
+				.withResourceCount(ws, 1)
+				.build();
+		final GroupSummary s2 = GroupSummary.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				new UserName("o2"), new CreateAndModTimes(inst(1000)), 2)
+				.withIsPrivate(true)
+				.withUserRole(Role.MEMBER, null)
+				.withResourceCount(ws, 1)
+				.build();
+		
+		when(mocks.userHandler.getUser(new Token("t1"))).thenReturn(new UserName("m1"));
+		when(mocks.storage.getGroupSummariesForResource(
+				ws, new ResourceID("42"), ggp, null, types)).thenReturn(Arrays.asList(s1));
+		when(mocks.storage.getGroupSummariesForResource(
+				ws, new ResourceID("42"), ggp, new UserName("m1"), types))
+				.thenReturn(Arrays.asList(s1, s2));
+		
+		final Group g1 = Group.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				GroupUser.getBuilder(new UserName("o1"), inst(10000)).build(),
+				new CreateAndModTimes(inst(1000)))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("42")))
+				.build();
+		final Group g2 = Group.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				GroupUser.getBuilder(new UserName("o2"), inst(10000)).build(),
+				new CreateAndModTimes(inst(1000)))
+				.withIsPrivate(true)
+				.withMember(GroupUser.getBuilder(new UserName("m1"), inst(20000)).build())
+				.withResource(ws, new ResourceDescriptor(new ResourceID("42")))
+				.build();
+		
+		assertThat("incorrect groups", mocks.groups.getGroupsForResource(
+				null, ws, new ResourceID("42"), ggp),
+				is(Arrays.asList(GroupView.getBuilder(g1, null).build())));
+		
+		assertThat("incorrect groups", mocks.groups.getGroupsForResource(
+				new Token("t1"), ws, new ResourceID("42"), ggp),
+				is(Arrays.asList(GroupView.getBuilder(g1, new UserName("m1")).build(),
+						GroupView.getBuilder(g2, new UserName("m1")).build())));
+	}
+	
+	@Test
+	public void getGroupsForResourceFail() throws Exception {
+		final ResourceType t = new ResourceType("workspace");
+		final ResourceID r = new ResourceID("42");
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		
+		failGetGroupsForResource(null, r, p, new NullPointerException("type"));
+		failGetGroupsForResource(t, null, p, new NullPointerException("resource"));
+		failGetGroupsForResource(t, r, null, new NullPointerException("params"));
+		failGetGroupsForResource(new ResourceType("werkspace"), r, p,
+				new NoSuchResourceTypeException("werkspace"));
+	}
+	
+	private void failGetGroupsForResource(
+			final ResourceType type,
+			final ResourceID resource,
+			final GetGroupsParams params,
+			final Exception expected) {
+		try {
+			initTestMocks().groups.getGroupsForResource(null, type, resource, params);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getGroupChanges() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		final GetChangesParams gcp = GetChangesParams.getBuilder()
+				.withNullableAfter(inst(500), "foo")
+				.build();
+		final Set<ResourceType> types = set(
+				new ResourceType("workspace"), new ResourceType("catalogmethod"));
+		
+		final GroupSummary s1 = GroupSummary.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				new UserName("o1"), new CreateAndModTimes(inst(1000)), 1)
+				.build();
+		final GroupSummary s2 = GroupSummary.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				new UserName("o2"), new CreateAndModTimes(inst(1000), inst(5000)), 2)
+				.withIsPrivate(true)
+				.build();
+		// not yet settled
+		final GroupSummary s3 = GroupSummary.getBuilder(new GroupID("g3"), new GroupName("n3"),
+				new UserName("o3"), new CreateAndModTimes(inst(1000), inst(5001)), 1)
+				.build();
+		
+		when(mocks.userHandler.getUser(new Token("t1"))).thenReturn(new UserName("admin"));
+		when(mocks.storage.getChangedGroupSummaries(gcp, types))
+				.thenReturn(Arrays.asList(s1, s2, s3));
+		when(mocks.clock.instant()).thenReturn(inst(15001));
+		
+		final Group g1 = Group.getBuilder(new GroupID("g1"), new GroupName("n1"),
+				GroupUser.getBuilder(new UserName("o1"), inst(10000)).build(),
+				new CreateAndModTimes(inst(1000)))
+				.build();
+		final Group g2 = Group.getBuilder(new GroupID("g2"), new GroupName("n2"),
+				GroupUser.getBuilder(new UserName("o2"), inst(10000)).build(),
+				new CreateAndModTimes(inst(1000), inst(5000)))
+				.withIsPrivate(true)
+				.withMember(GroupUser.getBuilder(new UserName("m1"), inst(20000)).build())
+				.build();
+		
+		final List<GroupView> views = mocks.groups.getGroupChanges(new Token("t1"), gcp);
+		assertThat("incorrect groups", views,
+				is(Arrays.asList(GroupView.getBuilder(g1, null).build(),
+						GroupView.getBuilder(g2, null).withOverridePrivateView(true).build())));
+		assertThat("incorrect private view", views.get(1).isPrivateView(), is(false));
+	}
+	
+	@Test
+	public void getGroupChangesFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final GetChangesParams p = GetChangesParams.getBuilder().build();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("notadmin"));
+		
+		failGetGroupChanges(mocks.groups, null, p, new NullPointerException("userToken"));
+		failGetGroupChanges(mocks.groups, new Token("t"), null,
+				new NullPointerException("params"));
+		failGetGroupChanges(mocks.groups, new Token("t"), p,
+				new UnauthorizedException("User notadmin is not a service administrator"));
+		
+		verify(mocks.storage, never()).getChangedGroupSummaries(any(), any());
+	}
+	
+	private void failGetGroupChanges(
+			final Groups g,
+			final Token t,
+			final GetChangesParams params,
+			final Exception expected) {
+		try {
+			g.getGroupChanges(t, params);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void requestGroupMembership() throws Exception {
 		final TestMocks mocks = initTestMocks();
@@ -3195,6 +3589,64 @@ public class GroupsTest {
 		}
 	}
 	
+	@Test
+	public void getRequestChanges() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final UUID id = UUID.randomUUID();
+		final GetChangesParams gcp = GetChangesParams.getBuilder().withNullableLimit(4).build();
+		final GroupRequest req = GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+						.withModificationTime(Instant.ofEpochMilli(30000))
+						.build())
+				.build();
+		// not yet settled
+		final GroupRequest req2 = GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+						.withModificationTime(Instant.ofEpochMilli(30001))
+						.build())
+				.build();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		when(mocks.storage.getChangedRequests(gcp)).thenReturn(Arrays.asList(req, req2));
+		when(mocks.clock.instant()).thenReturn(Instant.ofEpochMilli(40001));
+		
+		assertThat("incorrect requests", mocks.groups.getRequestChanges(new Token("t"), gcp),
+				is(Arrays.asList(req)));
+	}
+	
+	@Test
+	public void getRequestChangesFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final GetChangesParams p = GetChangesParams.getBuilder().build();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("notadmin"));
+		
+		failGetRequestChanges(mocks.groups, null, p, new NullPointerException("userToken"));
+		failGetRequestChanges(mocks.groups, new Token("t"), null,
+				new NullPointerException("params"));
+		failGetRequestChanges(mocks.groups, new Token("t"), p,
+				new UnauthorizedException("User notadmin is not a service administrator"));
+		
+		verify(mocks.storage, never()).getChangedRequests(any());
+	}
+	
+	private void failGetRequestChanges(
+			final Groups g,
+			final Token t,
+			final GetChangesParams params,
+			final Exception expected) {
+		try {
+			g.getRequestChanges(t, params);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void getRequestsForGroupEmpty() throws Exception {
 		final TestMocks mocks = initTestMocks();
@@ -5621,4 +6073,305 @@ public class GroupsTest {
 		}
 	}
 	
-}
\ No newline at end of file
+	
+	@Test
+	public void evictResourceCacheType() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		
+		mocks.groups.evictResourceCache(new Token("t"), new ResourceType("workspace"), null);
+		
+		verify(mocks.wsHandler).evictCache();
+		verifyZeroInteractions(mocks.catHandler);
+	}
+	
+	@Test
+	public void evictResourceCacheResource() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		
+		mocks.groups.evictResourceCache(new Token("t"), new ResourceType("catalogmethod"),
+				new ResourceID("mod.meth"));
+		
+		verify(mocks.catHandler).evictCache(new ResourceID("mod.meth"));
+		verifyZeroInteractions(mocks.wsHandler);
+	}
+	
+	@Test
+	public void evictResourceCacheFailNulls() throws Exception {
+		final Groups g = initTestMocks().groups;
+		final Token t = new Token("t");
+		final ResourceType rt = new ResourceType("workspace");
+		
+		failEvictResourceCache(g, null, rt, null, new NullPointerException("userToken"));
+		failEvictResourceCache(g, t, null, null, new NullPointerException("type"));
+	}
+	
+	@Test
+	public void evictResourceCacheFailNotAdmin() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("notadmin"));
+		
+		failEvictResourceCache(mocks.groups, new Token("t"), new ResourceType("workspace"),
+				null, new UnauthorizedException("User notadmin is not a service administrator"));
+		
+		verifyZeroInteractions(mocks.wsHandler);
+	}
+	
+	@Test
+	public void evictResourceCacheFailNoSuchType() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		
+		failEvictResourceCache(mocks.groups, new Token("t"), new ResourceType("foo"),
+				null, new NoSuchResourceTypeException("foo"));
+	}
+	
+	@Test
+	public void evictResourceCacheFailIllegalResourceID() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		doThrow(new IllegalResourceIDException("bar")).when(mocks.wsHandler)
+				.evictCache(new ResourceID("bar"));
+		
+		failEvictResourceCache(mocks.groups, new Token("t"), new ResourceType("workspace"),
+				new ResourceID("bar"), new IllegalResourceIDException("bar"));
+	}
+	
+	private void failEvictResourceCache(
+			final Groups g,
+			final Token t,
+			final ResourceType type,
+			final ResourceID resource,
+			final Exception expected) {
+		try {
+			g.evictResourceCache(t, type, resource);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private static <T> ItemSource<T> source(final List<T> items) {
+		final Iterator<T> i = items.iterator();
+		return () -> i.hasNext() ? Optional.of(i.next()) : Optional.empty();
+	}
+	
+	private Group exportGroup(final int id) throws Exception {
+		return Group.getBuilder(
+				new GroupID("gid" + id), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(inst(10000)))
+				.build();
+	}
+	
+	private GroupRequest exportRequest(final int id) throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(new UUID(0, id)), new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(20000)).build())
+				.build();
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void exportGroups() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		doAnswer(inv -> {
+			final ItemProcessor<Group> p = (ItemProcessor<Group>) inv.getArguments()[0];
+			p.process(exportGroup(1));
+			p.process(exportGroup(2));
+			return null;
+		}).when(mocks.storage).processGroups(any());
+		
+		final ItemStream<Group> stream = mocks.groups.exportGroups(new Token("t"));
+		// the groups are not read until the stream is processed
+		verify(mocks.storage, never()).processGroups(any());
+		
+		final List<Group> got = new ArrayList<>();
+		stream.process(g -> got.add(g));
+		assertThat("incorrect groups", got, is(Arrays.asList(exportGroup(1), exportGroup(2))));
+	}
+	
+	@SuppressWarnings("unchecked")
+	@Test
+	public void exportRequests() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		doAnswer(inv -> {
+			final ItemProcessor<GroupRequest> p =
+					(ItemProcessor<GroupRequest>) inv.getArguments()[0];
+			p.process(exportRequest(1));
+			return null;
+		}).when(mocks.storage).processRequests(any());
+		
+		final ItemStream<GroupRequest> stream = mocks.groups.exportRequests(new Token("t"));
+		verify(mocks.storage, never()).processRequests(any());
+		
+		final List<GroupRequest> got = new ArrayList<>();
+		stream.process(r -> got.add(r));
+		assertThat("incorrect requests", got, is(Arrays.asList(exportRequest(1))));
+	}
+	
+	@Test
+	public void exportFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("notadmin"));
+		
+		failExport(mocks.groups, null, new NullPointerException("userToken"));
+		failExport(mocks.groups, new Token("t"),
+				new UnauthorizedException("User notadmin is not a service administrator"));
+		
+		verifyZeroInteractions(mocks.storage);
+	}
+	
+	private void failExport(final Groups g, final Token t, final Exception expected) {
+		try {
+			g.exportGroups(t);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+		try {
+			g.exportRequests(t);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void importGroupsEmpty() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		
+		assertThat("incorrect count", mocks.groups.importGroups(
+				new Token("t"), source(Collections.emptyList())), is(0L));
+		
+		verifyZeroInteractions(mocks.storage);
+	}
+	
+	@Test
+	public void importGroupsBatched() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		final List<Group> groups = new ArrayList<>();
+		for (int i = 0; i < 2500; i++) {
+			groups.add(exportGroup(i));
+		}
+		
+		assertThat("incorrect count", mocks.groups.importGroups(
+				new Token("t"), source(groups)), is(2500L));
+		
+		verify(mocks.storage).importGroups(groups.subList(0, 1000));
+		verify(mocks.storage).importGroups(groups.subList(1000, 2000));
+		verify(mocks.storage).importGroups(groups.subList(2000, 2500));
+		verifyNoMoreInteractions(mocks.storage);
+	}
+	
+	@Test
+	public void importRequests() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		final List<GroupRequest> requests = new ArrayList<>();
+		for (int i = 0; i < 1001; i++) {
+			requests.add(exportRequest(i));
+		}
+		
+		assertThat("incorrect count", mocks.groups.importRequests(
+				new Token("t"), source(requests)), is(1001L));
+		
+		verify(mocks.storage).importRequests(requests.subList(0, 1000));
+		verify(mocks.storage).importRequests(requests.subList(1000, 1001));
+		verifyNoMoreInteractions(mocks.storage);
+	}
+	
+	@Test
+	public void importGroupsFailStorage() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		doThrow(new GroupExistsException("gid1"))
+				.when(mocks.storage).importGroups(Arrays.asList(exportGroup(1)));
+		
+		failImportGroups(mocks.groups, new Token("t"), source(Arrays.asList(exportGroup(1))),
+				new GroupExistsException("gid1"));
+	}
+	
+	@Test
+	public void importGroupsFailSource() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("admin"));
+		
+		final ItemSource<Group> illegal = () -> {
+			throw new IllegalParameterException("Line 1 is not a JSON object");
+		};
+		final ItemSource<Group> io = () -> {
+			throw new IOException("oops");
+		};
+		failImportGroups(mocks.groups, new Token("t"), illegal,
+				new IllegalParameterException("Line 1 is not a JSON object"));
+		failImportGroups(mocks.groups, new Token("t"), io, new IOException("oops"));
+		
+		verifyZeroInteractions(mocks.storage);
+	}
+	
+	@Test
+	public void importFail() throws Exception {
+		final TestMocks mocks = initTestMocks();
+		final Token t = new Token("t");
+		
+		when(mocks.userHandler.getUser(new Token("t"))).thenReturn(new UserName("notadmin"));
+		
+		failImportGroups(mocks.groups, null, source(Collections.emptyList()),
+				new NullPointerException("userToken"));
+		failImportGroups(mocks.groups, t, null, new NullPointerException("groups"));
+		failImportGroups(mocks.groups, t, source(Collections.emptyList()),
+				new UnauthorizedException("User notadmin is not a service administrator"));
+		
+		failImportRequests(mocks.groups, null, source(Collections.emptyList()),
+				new NullPointerException("userToken"));
+		failImportRequests(mocks.groups, t, null, new NullPointerException("requests"));
+		failImportRequests(mocks.groups, t, source(Collections.emptyList()),
+				new UnauthorizedException("User notadmin is not a service administrator"));
+		
+		verifyZeroInteractions(mocks.storage);
+	}
+	
+	private void failImportGroups(
+			final Groups g,
+			final Token t,
+			final ItemSource<Group> source,
+			final Exception expected) {
+		try {
+			g.importGroups(t, source);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private void failImportRequests(
+			final Groups g,
+			final Token t,
+			final ItemSource<GroupRequest> source,
+			final Exception expected) {
+		try {
+			g.importRequests(t, source);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
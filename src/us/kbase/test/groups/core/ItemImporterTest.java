@@ -0,0 +1,116 @@
+package us.kbase.test.groups.core;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.ItemImporter;
+import us.kbase.groups.core.ItemImporter.BatchStorer;
+import us.kbase.groups.core.ItemSource;
+import us.kbase.groups.core.exceptions.GroupExistsException;
+import us.kbase.test.groups.TestCommon;
+
+public class ItemImporterTest {
+	
+	private static ItemSource<String> source(final String... items) {
+		final Iterator<String> i = Arrays.asList(items).iterator();
+		return () -> i.hasNext() ? Optional.of(i.next()) : Optional.empty();
+	}
+	
+	@Test
+	public void importItems() throws Exception {
+		final List<List<String>> batches = new ArrayList<>();
+		
+		final long count = ItemImporter.importItems(
+				source("a", "b", "c", "d", "e"), 2, b -> batches.add(b));
+		
+		assertThat("incorrect count", count, is(5L));
+		assertThat("incorrect batches", batches, is(Arrays.asList(
+				Arrays.asList("a", "b"), Arrays.asList("c", "d"), Arrays.asList("e"))));
+	}
+	
+	@Test
+	public void importItemsFullBatches() throws Exception {
+		final List<List<String>> batches = new ArrayList<>();
+		
+		final long count = ItemImporter.importItems(
+				source("a", "b", "c", "d"), 2, b -> batches.add(b));
+		
+		assertThat("incorrect count", count, is(4L));
+		assertThat("incorrect batches", batches, is(Arrays.asList(
+				Arrays.asList("a", "b"), Arrays.asList("c", "d"))));
+	}
+	
+	@Test
+	public void importItemsDefaultBatchSize() throws Exception {
+		final List<List<String>> batches = new ArrayList<>();
+		final String[] items = new String[1001];
+		Arrays.fill(items, "a");
+		
+		final long count = ItemImporter.importItems(source(items), b -> batches.add(b));
+		
+		assertThat("incorrect count", count, is(1001L));
+		assertThat("incorrect batch count", batches.size(), is(2));
+		assertThat("incorrect batch size", batches.get(0).size(), is(1000));
+		assertThat("incorrect batch size", batches.get(1).size(), is(1));
+	}
+	
+	@Test
+	public void importItemsEmpty() throws Exception {
+		final List<List<String>> batches = new ArrayList<>();
+		
+		final long count = ItemImporter.importItems(source(), 2, b -> batches.add(b));
+		
+		assertThat("incorrect count", count, is(0L));
+		assertThat("incorrect batches", batches, is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void importItemsFailStore() throws Exception {
+		final List<List<String>> batches = new ArrayList<>();
+		try {
+			ItemImporter.importItems(source("a", "b", "c"), 2, b -> {
+				if (b.contains("c")) {
+					throw new GroupExistsException("c");
+				}
+				batches.add(b);
+			});
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupExistsException("c"));
+		}
+		// batches prior to the failure remain stored
+		assertThat("incorrect batches", batches, is(Arrays.asList(Arrays.asList("a", "b"))));
+	}
+	
+	@Test
+	public void importItemsFail() throws Exception {
+		final BatchStorer<String, RuntimeException> s = b -> {};
+		failImportItems(null, 1, s, new NullPointerException("source"));
+		failImportItems(source(), 1, null, new NullPointerException("storer"));
+		failImportItems(source(), 0, s, new IllegalArgumentException(
+				"batchSize must be at least 1"));
+	}
+	
+	private void failImportItems(
+			final ItemSource<String> source,
+			final int batchSize,
+			final BatchStorer<String, RuntimeException> storer,
+			final Exception expected) {
+		try {
+			ItemImporter.importItems(source, batchSize, storer);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,323 @@
+package us.kbase.test.groups.core.notifications;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.notifications.NotificationDispatcher;
+import us.kbase.groups.core.notifications.Notifications;
+import us.kbase.groups.core.notifications.PendingNotification;
+import us.kbase.groups.core.notifications.PendingNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.test.groups.TestCommon;
+
+public class NotificationDispatcherTest {
+
+	private static final UUID ID1 = UUID.fromString("95cb1d6d-4f8c-4b5f-a9b4-7a5b1d5c6e0e");
+	private static final UUID ID2 = UUID.fromString("1b7e5e4c-2f6d-4a2b-8c1e-9d0f3a6b5c4d");
+	private static final UUID ID3 = UUID.fromString("c2a4e8f1-6b3d-4e7a-9f0c-1d2e3f4a5b6c");
+	private static final String REQ_ID = "5ff7a9ab-bd61-4d15-a7a2-3d5c8dcb39a4";
+	
+	private static class Mocks {
+		private final GroupsStorage storage;
+		private final Notifications notifier;
+		private final Clock clock;
+		private final NotificationDispatcher dispatcher;
+		
+		private Mocks(final int batchSize, final int maxAttempts) throws Throwable {
+			storage = mock(GroupsStorage.class);
+			notifier = mock(Notifications.class);
+			clock = mock(Clock.class);
+			dispatcher = getDispatcher(storage, notifier, batchSize, maxAttempts, clock);
+			when(clock.instant()).thenReturn(inst(100000));
+		}
+	}
+	
+	private static NotificationDispatcher getDispatcher(
+			final GroupsStorage storage,
+			final Notifications notifier,
+			final int batchSize,
+			final int maxAttempts,
+			final Clock clock)
+			throws Throwable {
+		final Constructor<NotificationDispatcher> c = NotificationDispatcher.class
+				.getDeclaredConstructor(GroupsStorage.class, Notifications.class, int.class,
+						int.class, Clock.class);
+		c.setAccessible(true);
+		try {
+			return c.newInstance(storage, notifier, batchSize, maxAttempts, clock);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private GroupRequest request() throws Exception {
+		return GroupRequest.getBuilder(new RequestID(REQ_ID), new GroupID("g"),
+				new UserName("u"), CreateModAndExpireTimes.getBuilder(
+						inst(1000), inst(2000)).build())
+				.build();
+	}
+	
+	private PendingNotification requestNotification(
+			final UUID id,
+			final Type type,
+			final int attempts)
+			throws Exception {
+		return PendingNotification.getRequestBuilder(
+				id, type, new RequestID(REQ_ID), inst(10000))
+				.withTargets(set(new UserName("a")))
+				.withAttempts(attempts)
+				.build();
+	}
+	
+	@Test
+	public void constructFail() throws Throwable {
+		final GroupsStorage s = mock(GroupsStorage.class);
+		final Notifications n = mock(Notifications.class);
+		failConstruct(null, n, 1, 1, new NullPointerException("storage"));
+		failConstruct(s, null, 1, 1, new NullPointerException("notifier"));
+		failConstruct(s, n, 0, 1, new IllegalArgumentException("batchSize must be at least 1"));
+		failConstruct(s, n, 1, 0, new IllegalArgumentException(
+				"maxAttempts must be at least 1"));
+	}
+	
+	private void failConstruct(
+			final GroupsStorage storage,
+			final Notifications notifier,
+			final int batchSize,
+			final int maxAttempts,
+			final Exception expected) {
+		try {
+			new NotificationDispatcher(storage, notifier, batchSize, maxAttempts);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void dispatchEmpty() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000)))
+				.thenReturn(Collections.emptyList());
+		
+		assertThat("incorrect count", m.dispatcher.dispatch(), is(0));
+		
+		verifyNoMoreInteractions(m.notifier);
+	}
+	
+	@Test
+	public void dispatchAllTypes() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(
+						requestNotification(ID1, Type.NOTIFY, 0),
+						requestNotification(ID1, Type.CANCEL, 0),
+						requestNotification(ID1, Type.DENY, 1),
+						requestNotification(ID1, Type.ACCEPT, 2),
+						PendingNotification.getAddResourceBuilder(
+								ID2, new UserName("u"), new GroupID("g"),
+								new ResourceType("t"), new ResourceID("r"), inst(10000))
+								.withTargets(set(new UserName("b")))
+								.build()));
+		when(m.storage.getRequest(new RequestID(REQ_ID))).thenReturn(request());
+		
+		assertThat("incorrect count", m.dispatcher.dispatch(), is(5));
+		
+		verify(m.notifier).notify(set(new UserName("a")), request());
+		verify(m.notifier).cancel(new RequestID(REQ_ID));
+		verify(m.notifier).deny(set(new UserName("a")), request());
+		verify(m.notifier).accept(set(new UserName("a")), request());
+		verify(m.notifier).addResource(new UserName("u"), set(new UserName("b")),
+				new GroupID("g"), new ResourceType("t"), new ResourceID("r"));
+		verify(m.storage, times(4)).removeNotification(ID1);
+		verify(m.storage).removeNotification(ID2);
+	}
+	
+	@Test
+	public void dispatchNoSuchRequest() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(requestNotification(ID1, Type.ACCEPT, 0)));
+		when(m.storage.getRequest(new RequestID(REQ_ID)))
+				.thenThrow(new NoSuchRequestException(REQ_ID));
+		
+		assertThat("incorrect count", m.dispatcher.dispatch(), is(1));
+		
+		verify(m.storage).removeNotification(ID1);
+		verifyNoMoreInteractions(m.notifier);
+	}
+	
+	@Test
+	public void dispatchFailReschedule() throws Throwable {
+		final Mocks m = new Mocks(10, 4);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(
+						requestNotification(ID1, Type.CANCEL, 0),
+						requestNotification(ID2, Type.CANCEL, 2)));
+		doThrow(new RuntimeException("feeds is down")).when(m.notifier)
+				.cancel(new RequestID(REQ_ID));
+		
+		assertThat("incorrect count", m.dispatcher.dispatch(), is(2));
+		
+		verify(m.storage).rescheduleNotification(ID1, 1, inst(102000));
+		verify(m.storage).rescheduleNotification(ID2, 3, inst(108000));
+		verify(m.storage, never()).removeNotification(ID1);
+		verify(m.storage, never()).removeNotification(ID2);
+	}
+	
+	@Test
+	public void dispatchFailMaxBackoff() throws Throwable {
+		final Mocks m = new Mocks(10, 100);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(requestNotification(ID1, Type.CANCEL, 40)));
+		doThrow(new RuntimeException("feeds is down")).when(m.notifier)
+				.cancel(new RequestID(REQ_ID));
+		
+		m.dispatcher.dispatch();
+		
+		verify(m.storage).rescheduleNotification(ID1, 41, inst(3700000));
+	}
+	
+	@Test
+	public void dispatchFailDiscard() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(requestNotification(ID1, Type.CANCEL, 2)));
+		doThrow(new RuntimeException("feeds is down")).when(m.notifier)
+				.cancel(new RequestID(REQ_ID));
+		
+		m.dispatcher.dispatch();
+		
+		verify(m.storage).removeNotification(ID1);
+		verify(m.storage, never()).rescheduleNotification(any(), anyInt(), any());
+	}
+	
+	@Test
+	public void dispatchNotifyClosedRequest() throws Throwable {
+		// e.g. a retried notify after the request was canceled
+		final Mocks m = new Mocks(10, 3);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(requestNotification(ID1, Type.NOTIFY, 1)));
+		when(m.storage.getRequest(new RequestID(REQ_ID))).thenReturn(
+				GroupRequest.getBuilder(new RequestID(REQ_ID), new GroupID("g"),
+						new UserName("u"), CreateModAndExpireTimes.getBuilder(
+								inst(1000), inst(2000)).build())
+						.withStatus(GroupRequestStatus.canceled())
+						.build());
+		
+		assertThat("incorrect count", m.dispatcher.dispatch(), is(1));
+		
+		verify(m.storage).removeNotification(ID1);
+		verifyNoMoreInteractions(m.notifier);
+	}
+	
+	@Test
+	public void dispatchFailStorageGetRequest() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(
+						requestNotification(ID1, Type.ACCEPT, 0),
+						requestNotification(ID2, Type.CANCEL, 0)));
+		when(m.storage.getRequest(new RequestID(REQ_ID)))
+				.thenThrow(new GroupsStorageException("mongo is down"));
+		
+		assertThat("incorrect count", m.dispatcher.dispatch(), is(2));
+		
+		verify(m.storage).rescheduleNotification(ID1, 1, inst(102000));
+		verify(m.storage, never()).removeNotification(ID1);
+		// the rest of the batch is still sent
+		verify(m.notifier).cancel(new RequestID(REQ_ID));
+		verify(m.storage).removeNotification(ID2);
+	}
+	
+	@Test
+	public void dispatchFailStorageRemoveAndReschedule() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		when(m.storage.claimNotifications(10, inst(100000), inst(3700000))).thenReturn(
+				Arrays.asList(
+						requestNotification(ID1, Type.CANCEL, 0),
+						requestNotification(ID2, Type.DENY, 0),
+						requestNotification(ID3, Type.CANCEL, 0)));
+		doThrow(new GroupsStorageException("mongo is down"))
+				.when(m.storage).removeNotification(ID1);
+		when(m.storage.getRequest(new RequestID(REQ_ID))).thenReturn(request());
+		doThrow(new RuntimeException("feeds is down"))
+				.when(m.notifier).deny(set(new UserName("a")), request());
+		doThrow(new GroupsStorageException("mongo is down"))
+				.when(m.storage).rescheduleNotification(ID2, 1, inst(102000));
+		
+		assertThat("incorrect count", m.dispatcher.dispatch(), is(3));
+		
+		verify(m.notifier, times(2)).cancel(new RequestID(REQ_ID));
+		verify(m.storage).removeNotification(ID3);
+	}
+	
+	@Test
+	public void startAndStop() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		assertThat("incorrect running", m.dispatcher.isRunning(), is(false));
+		m.dispatcher.stop(); // no effect
+		m.dispatcher.start(100000);
+		assertThat("incorrect running", m.dispatcher.isRunning(), is(true));
+		m.dispatcher.stop();
+		assertThat("incorrect running", m.dispatcher.isRunning(), is(false));
+		m.dispatcher.stop();
+		assertThat("incorrect running", m.dispatcher.isRunning(), is(false));
+	}
+	
+	@Test
+	public void startFail() throws Throwable {
+		final Mocks m = new Mocks(10, 3);
+		failStart(m.dispatcher, 0, new IllegalArgumentException("delayInMillis must be > 0"));
+		m.dispatcher.start(100000);
+		try {
+			failStart(m.dispatcher, 1, new IllegalArgumentException(
+					"The dispatcher is already running"));
+		} finally {
+			m.dispatcher.stop();
+		}
+	}
+	
+	private void failStart(
+			final NotificationDispatcher dispatcher,
+			final long delay,
+			final Exception expected) {
+		try {
+			dispatcher.start(delay);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,182 @@
+package us.kbase.test.groups.core.notifications;
+
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UUIDGenerator;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.notifications.OutboxNotifications;
+import us.kbase.groups.core.notifications.PendingNotification;
+import us.kbase.groups.core.notifications.PendingNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.test.groups.TestCommon;
+
+public class OutboxNotificationsTest {
+
+	private static final UUID ID = UUID.fromString("95cb1d6d-4f8c-4b5f-a9b4-7a5b1d5c6e0e");
+	private static final String REQ_ID = "5ff7a9ab-bd61-4d15-a7a2-3d5c8dcb39a4";
+	
+	private static class Mocks {
+		private final GroupsStorage storage;
+		private final UUIDGenerator uuidGen;
+		private final Clock clock;
+		private final OutboxNotifications outbox;
+		
+		private Mocks() throws Throwable {
+			storage = mock(GroupsStorage.class);
+			uuidGen = mock(UUIDGenerator.class);
+			clock = mock(Clock.class);
+			final Constructor<OutboxNotifications> c = OutboxNotifications.class
+					.getDeclaredConstructor(GroupsStorage.class, UUIDGenerator.class, Clock.class);
+			c.setAccessible(true);
+			try {
+				outbox = c.newInstance(storage, uuidGen, clock);
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+			when(uuidGen.randomUUID()).thenReturn(ID);
+			when(clock.instant()).thenReturn(inst(10000));
+		}
+	}
+	
+	private GroupRequest request() throws Exception {
+		return GroupRequest.getBuilder(new RequestID(REQ_ID), new GroupID("g"),
+				new UserName("u"), CreateModAndExpireTimes.getBuilder(
+						inst(1000), inst(2000)).build())
+				.build();
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		try {
+			new OutboxNotifications(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("storage"));
+		}
+	}
+	
+	@Test
+	public void notifyStores() throws Throwable {
+		final Mocks m = new Mocks();
+		
+		m.outbox.notify(Arrays.asList(new UserName("a"), new UserName("b")), request());
+		
+		verify(m.storage).storeNotification(PendingNotification.getRequestBuilder(
+				ID, Type.NOTIFY, new RequestID(REQ_ID), inst(10000))
+				.withTargets(set(new UserName("a"), new UserName("b")))
+				.build());
+	}
+	
+	@Test
+	public void cancelStores() throws Throwable {
+		final Mocks m = new Mocks();
+		
+		m.outbox.cancel(new RequestID(REQ_ID));
+		
+		verify(m.storage).storeNotification(PendingNotification.getRequestBuilder(
+				ID, Type.CANCEL, new RequestID(REQ_ID), inst(10000))
+				.build());
+	}
+	
+	@Test
+	public void denyStores() throws Throwable {
+		final Mocks m = new Mocks();
+		
+		m.outbox.deny(set(), request());
+		
+		verify(m.storage).storeNotification(PendingNotification.getRequestBuilder(
+				ID, Type.DENY, new RequestID(REQ_ID), inst(10000))
+				.build());
+	}
+	
+	@Test
+	public void acceptStores() throws Throwable {
+		final Mocks m = new Mocks();
+		
+		m.outbox.accept(set(new UserName("a")), request());
+		
+		verify(m.storage).storeNotification(PendingNotification.getRequestBuilder(
+				ID, Type.ACCEPT, new RequestID(REQ_ID), inst(10000))
+				.withTargets(set(new UserName("a")))
+				.build());
+	}
+	
+	@Test
+	public void addResourceStores() throws Throwable {
+		final Mocks m = new Mocks();
+		
+		m.outbox.addResource(new UserName("u"), set(new UserName("a")), new GroupID("g"),
+				new ResourceType("t"), new ResourceID("r"));
+		
+		verify(m.storage).storeNotification(PendingNotification.getAddResourceBuilder(
+				ID, new UserName("u"), new GroupID("g"), new ResourceType("t"),
+				new ResourceID("r"), inst(10000))
+				.withTargets(set(new UserName("a")))
+				.build());
+	}
+	
+	@Test
+	public void notifyFailNulls() throws Throwable {
+		final Mocks m = new Mocks();
+		try {
+			m.outbox.notify(set(), null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("request"));
+		}
+		try {
+			m.outbox.notify(null, request());
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("targets"));
+		}
+	}
+	
+	@Test
+	public void cancelFailNull() throws Throwable {
+		final Mocks m = new Mocks();
+		try {
+			m.outbox.cancel(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("requestID"));
+		}
+	}
+	
+	@Test
+	public void storeFail() throws Throwable {
+		final Mocks m = new Mocks();
+		doThrow(new GroupsStorageException("oh poop")).when(m.storage)
+				.storeNotification(PendingNotification.getRequestBuilder(
+						ID, Type.CANCEL, new RequestID(REQ_ID), inst(10000))
+						.build());
+		try {
+			m.outbox.cancel(new RequestID(REQ_ID));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new RuntimeException(
+					"Failed storing notification: oh poop"));
+		}
+	}
+}
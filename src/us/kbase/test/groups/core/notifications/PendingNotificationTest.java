@@ -0,0 +1,211 @@
+package us.kbase.test.groups.core.notifications;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import nl.jqno.equalsverifier.EqualsVerifier;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.notifications.PendingNotification;
+import us.kbase.groups.core.notifications.PendingNotification.Type;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.test.groups.TestCommon;
+
+public class PendingNotificationTest {
+
+	private static final UUID ID = UUID.fromString("95cb1d6d-4f8c-4b5f-a9b4-7a5b1d5c6e0e");
+	private static final RequestID REQ_ID;
+	static {
+		try {
+			REQ_ID = new RequestID("5ff7a9ab-bd61-4d15-a7a2-3d5c8dcb39a4");
+		} catch (Exception e) {
+			throw new RuntimeException("Fix yer tests newb", e);
+		}
+	}
+	
+	@Test
+	public void equals() throws Exception {
+		EqualsVerifier.forClass(PendingNotification.class).usingGetClass().verify();
+	}
+	
+	@Test
+	public void buildRequestMinimal() throws Exception {
+		final PendingNotification n = PendingNotification.getRequestBuilder(
+				ID, Type.CANCEL, REQ_ID, inst(10000))
+				.build();
+		
+		assertThat("incorrect id", n.getID(), is(ID));
+		assertThat("incorrect type", n.getType(), is(Type.CANCEL));
+		assertThat("incorrect targets", n.getTargets(), is(Collections.emptySet()));
+		assertThat("incorrect request", n.getRequestID(), is(Optional.of(REQ_ID)));
+		assertThat("incorrect user", n.getUser(), is(Optional.empty()));
+		assertThat("incorrect group", n.getGroupID(), is(Optional.empty()));
+		assertThat("incorrect res type", n.getResourceType(), is(Optional.empty()));
+		assertThat("incorrect res id", n.getResourceID(), is(Optional.empty()));
+		assertThat("incorrect attempts", n.getAttempts(), is(0));
+		assertThat("incorrect created", n.getCreationDate(), is(inst(10000)));
+	}
+	
+	@Test
+	public void buildRequestMaximal() throws Exception {
+		final PendingNotification n = PendingNotification.getRequestBuilder(
+				ID, Type.ACCEPT, REQ_ID, inst(10000))
+				.withTargets(Arrays.asList(new UserName("a"), new UserName("b")))
+				.withTargets(set(new UserName("c"), new UserName("a")))
+				.withAttempts(3)
+				.build();
+		
+		assertThat("incorrect id", n.getID(), is(ID));
+		assertThat("incorrect type", n.getType(), is(Type.ACCEPT));
+		assertThat("incorrect targets", n.getTargets(), is(set(
+				new UserName("a"), new UserName("b"), new UserName("c"))));
+		assertThat("incorrect request", n.getRequestID(), is(Optional.of(REQ_ID)));
+		assertThat("incorrect user", n.getUser(), is(Optional.empty()));
+		assertThat("incorrect group", n.getGroupID(), is(Optional.empty()));
+		assertThat("incorrect res type", n.getResourceType(), is(Optional.empty()));
+		assertThat("incorrect res id", n.getResourceID(), is(Optional.empty()));
+		assertThat("incorrect attempts", n.getAttempts(), is(3));
+		assertThat("incorrect created", n.getCreationDate(), is(inst(10000)));
+	}
+	
+	@Test
+	public void buildAddResource() throws Exception {
+		final PendingNotification n = PendingNotification.getAddResourceBuilder(
+				ID, new UserName("u"), new GroupID("g"), new ResourceType("t"),
+				new ResourceID("r"), inst(20000))
+				.withTargets(set(new UserName("a")))
+				.withAttempts(1)
+				.build();
+		
+		assertThat("incorrect id", n.getID(), is(ID));
+		assertThat("incorrect type", n.getType(), is(Type.ADD_RESOURCE));
+		assertThat("incorrect targets", n.getTargets(), is(set(new UserName("a"))));
+		assertThat("incorrect request", n.getRequestID(), is(Optional.empty()));
+		assertThat("incorrect user", n.getUser(), is(Optional.of(new UserName("u"))));
+		assertThat("incorrect group", n.getGroupID(), is(Optional.of(new GroupID("g"))));
+		assertThat("incorrect res type", n.getResourceType(),
+				is(Optional.of(new ResourceType("t"))));
+		assertThat("incorrect res id", n.getResourceID(), is(Optional.of(new ResourceID("r"))));
+		assertThat("incorrect attempts", n.getAttempts(), is(1));
+		assertThat("incorrect created", n.getCreationDate(), is(inst(20000)));
+	}
+	
+	@Test
+	public void immutable() throws Exception {
+		final PendingNotification n = PendingNotification.getRequestBuilder(
+				ID, Type.NOTIFY, REQ_ID, inst(10000))
+				.withTargets(set(new UserName("a")))
+				.build();
+		try {
+			n.getTargets().add(new UserName("b"));
+			fail("expected exception");
+		} catch (UnsupportedOperationException e) {
+			// test passed
+		}
+	}
+	
+	@Test
+	public void getRequestBuilderFail() throws Exception {
+		final Instant i = inst(10000);
+		failGetRequestBuilder(null, Type.NOTIFY, REQ_ID, i, new NullPointerException("id"));
+		failGetRequestBuilder(ID, null, REQ_ID, i, new NullPointerException("type"));
+		failGetRequestBuilder(ID, Type.ADD_RESOURCE, REQ_ID, i, new IllegalArgumentException(
+				"Resource addition notifications cannot be associated with a request"));
+		failGetRequestBuilder(ID, Type.DENY, null, i, new NullPointerException("requestID"));
+		failGetRequestBuilder(ID, Type.DENY, REQ_ID, null,
+				new NullPointerException("creationDate"));
+	}
+	
+	private void failGetRequestBuilder(
+			final UUID id,
+			final Type type,
+			final RequestID requestID,
+			final Instant creationDate,
+			final Exception expected) {
+		try {
+			PendingNotification.getRequestBuilder(id, type, requestID, creationDate);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getAddResourceBuilderFail() throws Exception {
+		final UserName u = new UserName("u");
+		final GroupID g = new GroupID("g");
+		final ResourceType t = new ResourceType("t");
+		final ResourceID r = new ResourceID("r");
+		final Instant i = inst(10000);
+		
+		failGetAddResourceBuilder(null, u, g, t, r, i, new NullPointerException("id"));
+		failGetAddResourceBuilder(ID, null, g, t, r, i, new NullPointerException("user"));
+		failGetAddResourceBuilder(ID, u, null, t, r, i, new NullPointerException("groupID"));
+		failGetAddResourceBuilder(ID, u, g, null, r, i,
+				new NullPointerException("resourceType"));
+		failGetAddResourceBuilder(ID, u, g, t, null, i,
+				new NullPointerException("resourceID"));
+		failGetAddResourceBuilder(ID, u, g, t, r, null,
+				new NullPointerException("creationDate"));
+	}
+	
+	private void failGetAddResourceBuilder(
+			final UUID id,
+			final UserName user,
+			final GroupID groupID,
+			final ResourceType resourceType,
+			final ResourceID resourceID,
+			final Instant creationDate,
+			final Exception expected) {
+		try {
+			PendingNotification.getAddResourceBuilder(
+					id, user, groupID, resourceType, resourceID, creationDate);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withTargetsFail() throws Exception {
+		failWithTargets(null, new NullPointerException("targets"));
+		failWithTargets(Arrays.asList(new UserName("u"), null),
+				new NullPointerException("Null item in collection targets"));
+	}
+	
+	private void failWithTargets(final Collection<UserName> targets, final Exception expected) {
+		try {
+			PendingNotification.getRequestBuilder(ID, Type.NOTIFY, REQ_ID, inst(10000))
+					.withTargets(targets);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void withAttemptsFail() throws Exception {
+		try {
+			PendingNotification.getRequestBuilder(ID, Type.NOTIFY, REQ_ID, inst(10000))
+					.withAttempts(-1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"attempts must be at least 0"));
+		}
+	}
+}
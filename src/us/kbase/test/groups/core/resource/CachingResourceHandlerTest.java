@@ -0,0 +1,304 @@
+package us.kbase.test.groups.core.resource;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalResourceIDException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.ResourceHandlerException;
+import us.kbase.groups.core.resource.CachingResourceHandler;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceHandler;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.test.groups.TestCommon;
+
+public class CachingResourceHandlerTest {
+
+	private static class FakeTicker extends Ticker {
+	
+		private long nanos = 0;
+		
+		@Override
+		public long read() {
+			return nanos;
+		}
+		
+		public void advance(final int seconds) {
+			nanos += TimeUnit.SECONDS.toNanos(seconds);
+		}
+	}
+	
+	private CachingResourceHandler getHandler(
+			final ResourceHandler wrapped,
+			final Ticker ticker)
+			throws Throwable {
+		final Constructor<CachingResourceHandler> con =
+				CachingResourceHandler.class.getDeclaredConstructor(
+						ResourceHandler.class, int.class, int.class, Ticker.class);
+		con.setAccessible(true);
+		try {
+			return con.newInstance(wrapped, 100, 30, ticker);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final ResourceHandler h = mock(ResourceHandler.class);
+		failConstruct(null, 1, 1, new NullPointerException("handler"));
+		failConstruct(h, 0, 1, new IllegalArgumentException("cacheSize must be at least 1"));
+		failConstruct(h, 1, 0, new IllegalArgumentException(
+				"cacheExpirationSec must be at least 1"));
+	}
+	
+	private void failConstruct(
+			final ResourceHandler h,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final Exception expected) {
+		try {
+			new CachingResourceHandler(h, cacheSize, cacheExpirationSec);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void passThroughMethods() throws Exception {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = new CachingResourceHandler(w, 100, 30);
+		
+		final ResourceDescriptor d = new ResourceDescriptor(
+				new ResourceAdministrativeID("a"), new ResourceID("a.b"));
+		when(w.getDescriptor(new ResourceID("a.b"))).thenReturn(d);
+		when(w.isAdministrator(new ResourceID("a.b"), new UserName("u"))).thenReturn(true);
+		when(w.getAdministrators(new ResourceID("a.b"))).thenReturn(set(new UserName("u")));
+		final ResourceInformationSet ris = ResourceInformationSet
+				.getBuilder(new UserName("u")).withResource(new ResourceID("a.b")).build();
+		when(w.getResourceInformation(new UserName("u"), set(new ResourceID("a.b")), true))
+				.thenReturn(ris);
+		
+		assertThat("incorrect descriptor", h.getDescriptor(new ResourceID("a.b")), is(d));
+		assertThat("incorrect admin", h.isAdministrator(
+				new ResourceID("a.b"), new UserName("u")), is(true));
+		assertThat("incorrect admins", h.getAdministrators(new ResourceID("a.b")),
+				is(set(new UserName("u"))));
+		assertThat("incorrect info", h.getResourceInformation(
+				new UserName("u"), set(new ResourceID("a.b")), true), is(ris));
+		
+		// should always go to the wrapped handler
+		h.isAdministrator(new ResourceID("a.b"), new UserName("u"));
+		verify(w, times(2)).isAdministrator(new ResourceID("a.b"), new UserName("u"));
+	}
+	
+	@Test
+	public void getAdministratedResourcesCached() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final FakeTicker t = new FakeTicker();
+		final CachingResourceHandler h = getHandler(w, t);
+		
+		when(w.getAdministratedResources(new UserName("u1")))
+				.thenReturn(set(new ResourceAdministrativeID("1")))
+				.thenReturn(set(new ResourceAdministrativeID("2")));
+		when(w.getAdministratedResources(new UserName("u2")))
+				.thenReturn(set(new ResourceAdministrativeID("3")));
+		
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("1"))));
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u2")),
+				is(set(new ResourceAdministrativeID("3"))));
+		t.advance(29);
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("1"))));
+		t.advance(1);
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("2"))));
+		
+		verify(w, times(2)).getAdministratedResources(new UserName("u1"));
+		verify(w).getAdministratedResources(new UserName("u2"));
+	}
+	
+	@Test
+	public void getAdministratedResourcesCoalesced() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(w, new FakeTicker());
+		
+		final CountDownLatch inCall = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		when(w.getAdministratedResources(new UserName("u1"))).thenAnswer(inv -> {
+			inCall.countDown();
+			release.await();
+			return set(new ResourceAdministrativeID("1"));
+		});
+		
+		final ExecutorService exe = Executors.newFixedThreadPool(2);
+		try {
+			final Future<?> f1 = exe.submit(
+					() -> h.getAdministratedResources(new UserName("u1")));
+			inCall.await();
+			final Future<?> f2 = exe.submit(
+					() -> h.getAdministratedResources(new UserName("u1")));
+			Thread.sleep(100); // let the 2nd thread block on the in progress load
+			release.countDown();
+			
+			assertThat("incorrect resources", f1.get(),
+					is(set(new ResourceAdministrativeID("1"))));
+			assertThat("incorrect resources", f2.get(),
+					is(set(new ResourceAdministrativeID("1"))));
+		} finally {
+			exe.shutdownNow();
+		}
+		verify(w).getAdministratedResources(new UserName("u1"));
+	}
+	
+	@Test
+	public void getAdministratedResourcesFail() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(w, new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u1")))
+				.thenThrow(new ResourceHandlerException("oh dear"))
+				.thenThrow(new IllegalStateException("oh my"))
+				.thenReturn(set(new ResourceAdministrativeID("1")));
+		
+		failGetAdministratedResources(h, null, new NullPointerException("user"));
+		failGetAdministratedResources(h, new UserName("u1"),
+				new ResourceHandlerException("oh dear"));
+		failGetAdministratedResources(h, new UserName("u1"),
+				new IllegalStateException("oh my"));
+		
+		// failures are not cached
+		assertThat("incorrect resources", h.getAdministratedResources(new UserName("u1")),
+				is(set(new ResourceAdministrativeID("1"))));
+	}
+	
+	private void failGetAdministratedResources(
+			final CachingResourceHandler h,
+			final UserName user,
+			final Exception expected) {
+		try {
+			h.getAdministratedResources(user);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void setReadPermissionInvalidatesUser() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(w, new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u1")))
+				.thenReturn(set(new ResourceAdministrativeID("1")));
+		when(w.getAdministratedResources(new UserName("u2")))
+				.thenReturn(set(new ResourceAdministrativeID("3")));
+		
+		h.getAdministratedResources(new UserName("u1"));
+		h.getAdministratedResources(new UserName("u2"));
+		
+		h.setReadPermission(new ResourceID("4"), new UserName("u1"));
+		
+		h.getAdministratedResources(new UserName("u1"));
+		h.getAdministratedResources(new UserName("u2"));
+		
+		verify(w).setReadPermission(new ResourceID("4"), new UserName("u1"));
+		verify(w, times(2)).getAdministratedResources(new UserName("u1"));
+		verify(w).getAdministratedResources(new UserName("u2"));
+	}
+	
+	@Test
+	public void setReadPermissionFail() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(w, new FakeTicker());
+		
+		failSetReadPermission(h, null, new UserName("u"), new NullPointerException("resource"));
+		failSetReadPermission(h, new ResourceID("1"), null, new NullPointerException("user"));
+	}
+	
+	private void failSetReadPermission(
+			final CachingResourceHandler h,
+			final ResourceID resource,
+			final UserName user,
+			final Exception expected) {
+		try {
+			h.setReadPermission(resource, user);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void evictCache() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(w, new FakeTicker());
+		
+		when(w.getAdministratedResources(new UserName("u1")))
+				.thenReturn(set(new ResourceAdministrativeID("1")));
+		
+		h.getAdministratedResources(new UserName("u1"));
+		h.evictCache(new ResourceID("1"));
+		h.getAdministratedResources(new UserName("u1"));
+		h.evictCache();
+		h.getAdministratedResources(new UserName("u1"));
+		
+		verify(w).evictCache(new ResourceID("1"));
+		verify(w).evictCache();
+		verify(w, times(3)).getAdministratedResources(new UserName("u1"));
+	}
+	
+	@Test
+	public void evictCacheFail() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(w, new FakeTicker());
+		
+		doThrow(new IllegalResourceIDException("foo"))
+				.when(w).evictCache(new ResourceID("foo"));
+		try {
+			h.evictCache(new ResourceID("foo"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalResourceIDException("foo"));
+		}
+	}
+	
+	@Test
+	public void passThroughExceptions() throws Throwable {
+		final ResourceHandler w = mock(ResourceHandler.class);
+		final CachingResourceHandler h = getHandler(w, new FakeTicker());
+		
+		when(w.isAdministrator(new ResourceID("1"), new UserName("u")))
+				.thenThrow(new NoSuchResourceException("1"));
+		try {
+			h.isAdministrator(new ResourceID("1"), new UserName("u"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchResourceException("1"));
+		}
+	}
+}
@@ -22,6 +22,7 @@ import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.client.Invocation.Builder;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriBuilder;
 
@@ -426,6 +427,61 @@ public class ServiceIntegrationTest {
 				is(ImmutableMap.of("exists", exists)));
 	}
 
+	@Test
+	public void getGroupETagWithEncodings() throws Exception {
+		// gzip and unencoded responses are different representations and need different tags
+		final URI target = UriBuilder.fromUri(HOST).path("/group/myid").build();
+		final Response create = CLI.target(target).request().header("authorization", TOKEN1)
+				.put(Entity.json(ImmutableMap.of("name", "myname")));
+		assertThat("incorrect response code", create.getStatus(), is(200));
+		
+		final Response plain = CLI.target(target).request()
+				.header("authorization", TOKEN1)
+				.header("accept-encoding", "identity")
+				.get();
+		assertThat("incorrect response code", plain.getStatus(), is(200));
+		assertThat("incorrect encoding", plain.getHeaderString("content-encoding"),
+				is((String) null));
+		final EntityTag plainTag = plain.getEntityTag();
+		
+		final Response gzip = CLI.target(target).request()
+				.header("authorization", TOKEN1)
+				.header("accept-encoding", "gzip")
+				.get();
+		assertThat("incorrect response code", gzip.getStatus(), is(200));
+		assertThat("incorrect encoding", gzip.getHeaderString("content-encoding"), is("gzip"));
+		final EntityTag gzipTag = gzip.getEntityTag();
+		
+		assertThat("incorrect tag", gzipTag.getValue(), is(plainTag.getValue() + "-gzip"));
+		assertThat("incorrect tag", gzipTag.isWeak(), is(false));
+		
+		// conditional requests with either tag are not modified, and return the sent tag
+		final Response plainNotModified = CLI.target(target).request()
+				.header("authorization", TOKEN1)
+				.header("accept-encoding", "identity")
+				.header("if-none-match", plainTag.toString())
+				.get();
+		assertThat("incorrect response code", plainNotModified.getStatus(), is(304));
+		assertThat("incorrect tag", plainNotModified.getEntityTag(), is(plainTag));
+		
+		final Response gzipNotModified = CLI.target(target).request()
+				.header("authorization", TOKEN1)
+				.header("accept-encoding", "gzip")
+				.header("if-none-match", gzipTag.toString())
+				.get();
+		assertThat("incorrect response code", gzipNotModified.getStatus(), is(304));
+		assertThat("incorrect tag", gzipNotModified.getEntityTag(), is(gzipTag));
+		
+		// a tag for a different state of the group returns the group
+		final Response modified = CLI.target(target).request()
+				.header("authorization", TOKEN1)
+				.header("accept-encoding", "gzip")
+				.header("if-none-match", "\"foo-gzip\"")
+				.get();
+		assertThat("incorrect response code", modified.getStatus(), is(200));
+		assertThat("incorrect tag", modified.getEntityTag(), is(gzipTag));
+	}
+	
 	@Test
 	public void createGroupFailBadJson() throws Exception {
 		final URI target = UriBuilder.fromUri(HOST).path("/group/myid").build();
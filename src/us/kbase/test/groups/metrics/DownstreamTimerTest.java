@@ -0,0 +1,276 @@
+package us.kbase.test.groups.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.DownstreamTimer.Timing;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.test.groups.TestCommon;
+
+public class DownstreamTimerTest {
+	
+	@Test
+	public void success() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final DownstreamTimer dt = new DownstreamTimer(r);
+		
+		final Timing t = dt.start("auth", "getUser");
+		assertThat("incorrect result", t.success("foo"), is("foo"));
+		t.stop();
+		final Timing t2 = dt.start("auth", "getUser");
+		t2.success();
+		t2.stop();
+		t2.stop(); // no effect
+		
+		final String text = r.toPrometheusText();
+		assertThat("incorrect calls", text.contains(
+				"groups_downstream_calls_total{dependency=\"auth\",operation=\"getUser\"} 2\n"),
+				is(true));
+		assertThat("incorrect failures", text.contains(
+				"groups_downstream_call_failures_total{"), is(false));
+		assertThat("incorrect latency", text.contains(
+				"groups_downstream_call_duration_seconds_count{dependency=\"auth\"," +
+				"operation=\"getUser\"} 2\n"),
+				is(true));
+	}
+	
+	@Test
+	public void failure() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final DownstreamTimer dt = new DownstreamTimer(r);
+		
+		dt.start("workspace", "getDescriptor").stop();
+		
+		final String text = r.toPrometheusText();
+		assertThat("incorrect calls", text.contains(
+				"groups_downstream_calls_total{dependency=\"workspace\"," +
+				"operation=\"getDescriptor\"} 1\n"),
+				is(true));
+		assertThat("incorrect failures", text.contains(
+				"groups_downstream_call_failures_total{dependency=\"workspace\"," +
+				"operation=\"getDescriptor\"} 1\n"),
+				is(true));
+	}
+	
+	@Test
+	public void requestTotal() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		
+		dt.startRequest();
+		final Timing t = dt.start("auth", "getUser");
+		Thread.sleep(20);
+		t.stop();
+		final Timing t2 = dt.start("catalog", "getDescriptor");
+		Thread.sleep(20);
+		t2.stop();
+		final long total = dt.endRequest();
+		
+		assertThat("incorrect total " + total, total >= 40_000_000L, is(true));
+		assertThat("incorrect total " + total, total < 1_000_000_000L, is(true));
+		
+		// the total is reset after the request ends
+		assertThat("incorrect total", dt.endRequest(), is(0L));
+	}
+	
+	@Test
+	public void requestTotalNotStarted() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		
+		dt.start("auth", "getUser").stop();
+		
+		assertThat("incorrect total", dt.endRequest(), is(0L));
+	}
+	
+	@Test
+	public void requestTotalRestarted() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		
+		dt.startRequest();
+		final Timing t = dt.start("auth", "getUser");
+		Thread.sleep(20);
+		t.stop();
+		dt.startRequest();
+		
+		assertThat("incorrect total", dt.endRequest(), is(0L));
+	}
+	
+	@Test
+	public void requestTotalPerThread() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		
+		dt.startRequest();
+		final Thread th = new Thread(() -> {
+			final Timing t = dt.start("auth", "getUser");
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+			t.stop();
+		});
+		th.start();
+		th.join();
+		
+		assertThat("incorrect total", dt.endRequest(), is(0L));
+	}
+	
+	@Test
+	public void requestTotalTransferred() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		final long[] total = new long[1];
+		
+		dt.startRequest();
+		final Runnable task = dt.transferRequest(() -> {
+			final Timing t = dt.start("auth", "getUser");
+			try {
+				Thread.sleep(20);
+			} catch (InterruptedException e) {
+				// do nothing
+			}
+			t.stop();
+			total[0] = dt.endRequest();
+		});
+		// the current thread no longer totals the request
+		dt.start("catalog", "getDescriptor").stop();
+		assertThat("incorrect total", dt.endRequest(), is(0L));
+		
+		final Thread th = new Thread(task);
+		th.start();
+		th.join();
+		
+		assertThat("incorrect total " + total[0], total[0] >= 20_000_000L, is(true));
+		assertThat("incorrect total " + total[0], total[0] < 1_000_000_000L, is(true));
+	}
+	
+	@Test
+	public void requestTotalTransferredNotStarted() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		final long[] total = new long[] {-1};
+		
+		dt.transferRequest(() -> {
+			dt.start("auth", "getUser").stop();
+			total[0] = dt.endRequest();
+		}).run();
+		
+		assertThat("incorrect total", total[0], is(0L));
+	}
+	
+	@Test
+	public void requestTotalWrapped() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		final ExecutorService exe = Executors.newFixedThreadPool(2);
+		
+		try {
+			dt.startRequest();
+			final Callable<String> task = dt.wrap(() -> {
+				final Timing t = dt.start("workspace", "getResourceInformation");
+				Thread.sleep(20);
+				t.stop();
+				return "foo";
+			});
+			// timed calls from two pool threads and the current thread share the total
+			final Future<String> f1 = exe.submit(task);
+			final Future<String> f2 = exe.submit(task);
+			final Timing t = dt.start("auth", "getUser");
+			Thread.sleep(20);
+			t.stop();
+			assertThat("incorrect result", f1.get(), is("foo"));
+			assertThat("incorrect result", f2.get(), is("foo"));
+			
+			final long total = dt.endRequest();
+			assertThat("incorrect total " + total, total >= 60_000_000L, is(true));
+			assertThat("incorrect total " + total, total < 1_000_000_000L, is(true));
+			
+			// the pool threads no longer total the request
+			assertThat("incorrect total", exe.submit(() -> dt.endRequest()).get(), is(0L));
+		} finally {
+			exe.shutdownNow();
+		}
+	}
+	
+	@Test
+	public void requestTotalWrappedCurrentThread() throws Exception {
+		// e.g. a pool that runs rejected tasks on the calling thread
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		
+		dt.startRequest();
+		dt.wrap(() -> {
+			final Timing t = dt.start("auth", "getUser");
+			Thread.sleep(20);
+			t.stop();
+			return null;
+		}).call();
+		
+		final long total = dt.endRequest();
+		assertThat("incorrect total " + total, total >= 20_000_000L, is(true));
+	}
+	
+	@Test
+	public void requestTotalWrappedNotStarted() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		
+		assertThat("incorrect total", dt.wrap(() -> {
+			dt.start("auth", "getUser").stop();
+			return dt.endRequest();
+		}).call(), is(0L));
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		try {
+			new DownstreamTimer(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("registry"));
+		}
+	}
+	
+	@Test
+	public void startFail() throws Exception {
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		failStart(dt, null, "op", new NullPointerException("dependency"));
+		failStart(dt, "dep", null, new NullPointerException("operation"));
+	}
+	
+	private void failStart(
+			final DownstreamTimer dt,
+			final String dependency,
+			final String operation,
+			final Exception expected) {
+		try {
+			dt.start(dependency, operation);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void transferRequestFail() throws Exception {
+		try {
+			new DownstreamTimer(new MetricsRegistry()).transferRequest(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("task"));
+		}
+	}
+	
+	@Test
+	public void wrapFail() throws Exception {
+		try {
+			new DownstreamTimer(new MetricsRegistry()).wrap(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("task"));
+		}
+	}
+}
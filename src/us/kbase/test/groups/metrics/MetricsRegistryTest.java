@@ -0,0 +1,236 @@
+package us.kbase.test.groups.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.metrics.MetricsRegistry.Counter;
+import us.kbase.groups.metrics.MetricsRegistry.CounterFunction;
+import us.kbase.groups.metrics.MetricsRegistry.Histogram;
+import us.kbase.test.groups.TestCommon;
+
+public class MetricsRegistryTest {
+	
+	@Test
+	public void empty() throws Exception {
+		assertThat("incorrect text", new MetricsRegistry().toPrometheusText(), is(""));
+	}
+	
+	@Test
+	public void counter() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final Counter c = r.counter("my_total", "Some\\help\nhere", "a", "b");
+		final Counter c2 = r.counter("aaa_total", "help");
+		
+		c.inc("z", "y");
+		c.inc("x", "w\"\\\n");
+		c.inc("z", "y");
+		c2.inc();
+		
+		assertThat("incorrect value", c.getValue("z", "y"), is(2L));
+		assertThat("incorrect value", c.getValue("x", "w\"\\\n"), is(1L));
+		assertThat("incorrect value", c.getValue("x", "y"), is(0L));
+		assertThat("incorrect value", c2.getValue(), is(1L));
+		
+		assertThat("incorrect text", r.toPrometheusText(), is(
+				"# HELP aaa_total help\n" +
+				"# TYPE aaa_total counter\n" +
+				"aaa_total 1\n" +
+				"# HELP my_total Some\\\\help\\nhere\n" +
+				"# TYPE my_total counter\n" +
+				"my_total{a=\"x\",b=\"w\\\"\\\\\\n\"} 1\n" +
+				"my_total{a=\"z\",b=\"y\"} 2\n"));
+	}
+	
+	@Test
+	public void counterFunction() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final CounterFunction c = r.counterFunction("hits_total", "hits", "cache");
+		final long[] hits = {3};
+		
+		c.set(() -> hits[0], "token");
+		c.set(() -> 7, "user");
+		hits[0] = 4;
+		
+		assertThat("incorrect value", c.getValue("token"), is(4L));
+		assertThat("incorrect value", c.getValue("other"), is(0L));
+		assertThat("incorrect text", r.toPrometheusText(), is(
+				"# HELP hits_total hits\n" +
+				"# TYPE hits_total counter\n" +
+				"hits_total{cache=\"token\"} 4\n" +
+				"hits_total{cache=\"user\"} 7\n"));
+		
+		// e.g. the service is rebuilt
+		final CounterFunction c2 = r.counterFunction("hits_total", "hits", "cache");
+		assertThat("incorrect counter", c2 == c, is(true));
+		c2.set(() -> 1, "token");
+		assertThat("incorrect value", c.getValue("token"), is(1L));
+	}
+	
+	@Test
+	public void histogram() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final Histogram h = r.histogram("lat_seconds", "latency", Arrays.asList(0.5, 1.0),
+				"route");
+		
+		h.observe(0.5, "/foo");
+		h.observe(0.75, "/foo");
+		h.observe(3.0, "/foo");
+		h.observe(0.25, "/bar");
+		
+		assertThat("incorrect count", h.getCount("/foo"), is(3L));
+		assertThat("incorrect count", h.getCount("/baz"), is(0L));
+		
+		assertThat("incorrect text", r.toPrometheusText(), is(
+				"# HELP lat_seconds latency\n" +
+				"# TYPE lat_seconds histogram\n" +
+				"lat_seconds_bucket{route=\"/bar\",le=\"0.5\"} 1\n" +
+				"lat_seconds_bucket{route=\"/bar\",le=\"1.0\"} 1\n" +
+				"lat_seconds_bucket{route=\"/bar\",le=\"+Inf\"} 1\n" +
+				"lat_seconds_sum{route=\"/bar\"} 0.25\n" +
+				"lat_seconds_count{route=\"/bar\"} 1\n" +
+				"lat_seconds_bucket{route=\"/foo\",le=\"0.5\"} 1\n" +
+				"lat_seconds_bucket{route=\"/foo\",le=\"1.0\"} 2\n" +
+				"lat_seconds_bucket{route=\"/foo\",le=\"+Inf\"} 3\n" +
+				"lat_seconds_sum{route=\"/foo\"} 4.25\n" +
+				"lat_seconds_count{route=\"/foo\"} 3\n"));
+	}
+	
+	@Test
+	public void histogramNoLabels() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final Histogram h = r.histogram("lat_seconds", "latency", Arrays.asList(1.0));
+		
+		h.observe(2.0);
+		
+		assertThat("incorrect text", r.toPrometheusText(), is(
+				"# HELP lat_seconds latency\n" +
+				"# TYPE lat_seconds histogram\n" +
+				"lat_seconds_bucket{le=\"1.0\"} 0\n" +
+				"lat_seconds_bucket{le=\"+Inf\"} 1\n" +
+				"lat_seconds_sum 2.0\n" +
+				"lat_seconds_count 1\n"));
+	}
+	
+	@Test
+	public void createFail() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		r.counter("dup", "h");
+		
+		failCounter(r, null, "h", new String[0], new IllegalArgumentException(
+				"name cannot be null or whitespace only"));
+		failCounter(r, "   \t  ", "h", new String[0], new IllegalArgumentException(
+				"name cannot be null or whitespace only"));
+		failCounter(r, "9bad", "h", new String[0], new IllegalArgumentException(
+				"Illegal metric name: 9bad"));
+		failCounter(r, "n", null, new String[0], new NullPointerException("help"));
+		failCounter(r, "n", "h", null, new NullPointerException("labelNames"));
+		failCounter(r, "n", "h", new String[] {"a", null}, new NullPointerException(
+				"Null item in collection labelNames"));
+		failCounter(r, "n", "h", new String[] {"a-b"}, new IllegalArgumentException(
+				"Illegal label name: a-b"));
+		failCounter(r, "n", "h", new String[] {"__a"}, new IllegalArgumentException(
+				"Illegal label name: __a"));
+		failCounter(r, "n", "h", new String[] {"le"}, new IllegalArgumentException(
+				"Illegal label name: le"));
+		failCounter(r, "dup", "h", new String[0], new IllegalArgumentException(
+				"Duplicate metric name: dup"));
+		
+		r.counterFunction("func_total", "h", "a");
+		failCounterFunction(r, "dup", new String[0], new IllegalArgumentException(
+				"Duplicate metric name: dup"));
+		failCounterFunction(r, "func_total", new String[] {"b"}, new IllegalArgumentException(
+				"Duplicate metric name: func_total"));
+		failCounterFunction(r, null, new String[0], new IllegalArgumentException(
+				"name cannot be null or whitespace only"));
+		
+		failHistogram(r, null, new NullPointerException("buckets"));
+		failHistogram(r, Collections.emptyList(), new IllegalArgumentException(
+				"At least one bucket is required"));
+		failHistogram(r, Arrays.asList(1.0, null), new NullPointerException(
+				"Null item in collection buckets"));
+		failHistogram(r, Arrays.asList(1.0, 1.0), new IllegalArgumentException(
+				"Buckets must be in increasing order"));
+	}
+	
+	private void failCounter(
+			final MetricsRegistry r,
+			final String name,
+			final String help,
+			final String[] labels,
+			final Exception expected) {
+		try {
+			r.counter(name, help, labels);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private void failCounterFunction(
+			final MetricsRegistry r,
+			final String name,
+			final String[] labels,
+			final Exception expected) {
+		try {
+			r.counterFunction(name, "h", labels);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private void failHistogram(
+			final MetricsRegistry r,
+			final List<Double> buckets,
+			final Exception expected) {
+		try {
+			r.histogram("h", "h", buckets);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void recordFail() throws Exception {
+		final Counter c = new MetricsRegistry().counter("c", "h", "a");
+		
+		failInc(c, null, new NullPointerException("labelValues"));
+		failInc(c, new String[0], new IllegalArgumentException(
+				"Metric c requires 1 label values"));
+		failInc(c, new String[] {null}, new NullPointerException(
+				"Null item in collection labelValues"));
+		
+		final CounterFunction cf = new MetricsRegistry().counterFunction("c", "h", "a");
+		try {
+			cf.set(null, "a");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("function"));
+		}
+		try {
+			cf.set(() -> 1);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"Metric c requires 1 label values"));
+		}
+	}
+	
+	private void failInc(final Counter c, final String[] values, final Exception expected) {
+		try {
+			c.inc(values);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,197 @@
+package us.kbase.test.groups.metrics;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.assertLogEventsCorrect;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.util.List;
+import java.util.Set;
+
+import org.bson.BsonDocument;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.mongodb.MongoException;
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.metrics.MongoCommandMonitor;
+import us.kbase.groups.service.SLF4JAutoLogger;
+import us.kbase.test.groups.TestCommon;
+import us.kbase.test.groups.TestCommon.LogEvent;
+
+public class MongoCommandMonitorTest {
+	
+	private static final ConnectionDescription CONN = new ConnectionDescription(
+			new ServerId(new ClusterId(), new ServerAddress()));
+	
+	private static List<ILoggingEvent> logEvents;
+	
+	@BeforeClass
+	public static void setUp() {
+		logEvents = TestCommon.setUpSLF4JTestLoggerAppender("us.kbase.groups");
+	}
+	
+	@Before
+	public void before() {
+		logEvents.clear();
+	}
+	
+	private static CommandStartedEvent started(
+			final int id,
+			final String commandName,
+			final String command) {
+		return new CommandStartedEvent(id, CONN, "db", commandName, BsonDocument.parse(command));
+	}
+	
+	private static CommandSucceededEvent succeeded(
+			final int id,
+			final String commandName,
+			final long elapsedMS) {
+		return new CommandSucceededEvent(
+				id, CONN, commandName, new BsonDocument(), elapsedMS * 1_000_000L);
+	}
+	
+	@Test
+	public void recordFastCommands() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final SLF4JAutoLogger logger = mock(SLF4JAutoLogger.class);
+		final MongoCommandMonitor m = new MongoCommandMonitor(
+				r, logger, set("groups", "requests"), 100);
+		
+		m.commandStarted(started(1, "find", "{find: 'groups', filter: {id: 'foo'}}"));
+		m.commandStarted(started(2, "insert", "{insert: 'whee', documents: [{id: 'foo'}]}"));
+		m.commandStarted(started(3, "getMore", "{getMore: 4, collection: 'requests'}"));
+		m.commandStarted(started(4, "isMaster", "{isMaster: 1}"));
+		m.commandSucceeded(succeeded(1, "find", 10));
+		m.commandSucceeded(succeeded(2, "insert", 10));
+		m.commandSucceeded(succeeded(3, "getMore", 10));
+		m.commandSucceeded(succeeded(4, "isMaster", 10));
+		
+		final String text = r.toPrometheusText();
+		for (final String series: new String[] {
+				"{collection=\"groups\",command=\"find\"} 1\n",
+				"{collection=\"other\",command=\"insert\"} 1\n",
+				"{collection=\"requests\",command=\"getMore\"} 1\n",
+				"{collection=\"none\",command=\"isMaster\"} 1\n"}) {
+			assertThat("missing " + series, text.contains(
+					"groups_mongo_command_duration_seconds_count" + series), is(true));
+		}
+		assertThat("incorrect failures", text.contains(
+				"groups_mongo_command_failures_total{"), is(false));
+		assertThat("incorrect slow", text.contains(
+				"groups_mongo_slow_commands_total{"), is(false));
+		assertLogEventsCorrect(logEvents);
+	}
+	
+	@Test
+	public void logSlowCommand() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final SLF4JAutoLogger logger = mock(SLF4JAutoLogger.class);
+		final MongoCommandMonitor m = new MongoCommandMonitor(r, logger, set("groups"), 100);
+		
+		when(logger.getCallID()).thenReturn("1234");
+		
+		m.commandStarted(started(1, "find",
+				"{find: 'groups', filter: {id: 'foo', members: {$in: ['a', 'b']}}}"));
+		m.commandSucceeded(succeeded(1, "find", 100));
+		
+		assertThat("incorrect slow", r.toPrometheusText().contains(
+				"groups_mongo_slow_commands_total{collection=\"groups\",command=\"find\"} 1\n"),
+				is(true));
+		assertLogEventsCorrect(logEvents, new LogEvent(
+				Level.WARN,
+				"Slow MongoDB command: find on collection groups took 100 ms. " +
+						"Filter: {id: ?, members: {$in: [?]}} Call ID: 1234",
+				MongoCommandMonitor.class));
+	}
+	
+	@Test
+	public void logSlowFailedCommand() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final SLF4JAutoLogger logger = mock(SLF4JAutoLogger.class);
+		final MongoCommandMonitor m = new MongoCommandMonitor(r, logger, set("groups"), 0);
+		
+		m.commandStarted(started(1, "update",
+				"{update: 'groups', updates: [{q: {id: 'foo'}, u: {$set: {name: 'n'}}}]}"));
+		m.commandFailed(new CommandFailedEvent(
+				1, CONN, "update", 0, new MongoException("oh poop")));
+		
+		final String text = r.toPrometheusText();
+		assertThat("incorrect failures", text.contains(
+				"groups_mongo_command_failures_total{collection=\"groups\"," +
+				"command=\"update\"} 1\n"),
+				is(true));
+		assertLogEventsCorrect(logEvents, new LogEvent(
+				Level.WARN,
+				"Slow MongoDB command: update on collection groups took 0 ms and failed. " +
+						"Filter: [{id: ?}] Call ID: null",
+				MongoCommandMonitor.class));
+	}
+	
+	@Test
+	public void getFilterShape() throws Exception {
+		assertShape("find", "{find: 'c', filter: {a: 1, b: {$gt: 2}, c: [{d: 3}, {d: 4}]}}",
+				"{a: ?, b: {$gt: ?}, c: [{d: ?}]}");
+		assertShape("count", "{count: 'c', query: {a: 'x'}}", "{a: ?}");
+		assertShape("distinct", "{distinct: 'c', key: 'a', query: {b: 'x'}}", "{b: ?}");
+		assertShape("findAndModify", "{findAndModify: 'c', query: {a: 1}, update: {b: 2}}",
+				"{a: ?}");
+		assertShape("aggregate",
+				"{aggregate: 'c', pipeline: [{$match: {a: 1}}, {$sort: {b: 1}}]}",
+				"[{$match: {a: ?}}, {$sort: {b: ?}}]");
+		assertShape("delete", "{delete: 'c', deletes: [{q: {a: 1}}, {q: {a: 2}}]}",
+				"[{a: ?}]");
+		assertShape("find", "{find: 'c'}", null);
+		assertShape("update", "{update: 'c'}", null);
+		assertShape("insert", "{insert: 'c', documents: [{a: 1}]}", null);
+	}
+	
+	private void assertShape(final String commandName, final String command, final String exp) {
+		assertThat("incorrect shape",
+				MongoCommandMonitor.getFilterShape(BsonDocument.parse(command), commandName),
+				is(exp));
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final MetricsRegistry r = new MetricsRegistry();
+		final SLF4JAutoLogger l = mock(SLF4JAutoLogger.class);
+		final Set<String> c = set("groups");
+		
+		failConstruct(null, l, c, 1, new NullPointerException("registry"));
+		failConstruct(r, null, c, 1, new NullPointerException("logger"));
+		failConstruct(r, l, null, 1, new NullPointerException("collections"));
+		failConstruct(r, l, set("groups", null), 1,
+				new NullPointerException("Null item in collection collections"));
+		failConstruct(r, l, c, -1,
+				new IllegalArgumentException("slowCommandThresholdMS must be at least 0"));
+	}
+	
+	private void failConstruct(
+			final MetricsRegistry registry,
+			final SLF4JAutoLogger logger,
+			final Set<String> collections,
+			final long threshold,
+			final Exception expected) {
+		try {
+			new MongoCommandMonitor(registry, logger, collections, threshold);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
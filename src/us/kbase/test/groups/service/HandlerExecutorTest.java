@@ -0,0 +1,180 @@
+package us.kbase.test.groups.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.ServiceUnavailableException;
+import javax.ws.rs.container.AsyncResponse;
+
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.service.HandlerExecutor;
+import us.kbase.groups.service.SLF4JAutoLogger;
+import us.kbase.test.groups.TestCommon;
+
+public class HandlerExecutorTest {
+
+	@Test
+	public void constructFail() throws Exception {
+		final SLF4JAutoLogger l = mock(SLF4JAutoLogger.class);
+		final DownstreamTimer t = new DownstreamTimer(new MetricsRegistry());
+		failConstruct(1, 1, 1, null, t, new NullPointerException("logger"));
+		failConstruct(1, 1, 1, l, null, new NullPointerException("timer"));
+		failConstruct(0, 1, 1, l, t, new IllegalArgumentException(
+				"threads must be at least 1"));
+		failConstruct(1, 0, 1, l, t, new IllegalArgumentException(
+				"queueSize must be at least 1"));
+		failConstruct(1, 1, 0, l, t, new IllegalArgumentException(
+				"timeoutSec must be at least 1"));
+	}
+	
+	private void failConstruct(
+			final int threads,
+			final int queueSize,
+			final int timeoutSec,
+			final SLF4JAutoLogger logger,
+			final DownstreamTimer timer,
+			final Exception expected) {
+		try {
+			new HandlerExecutor(threads, queueSize, timeoutSec, logger, timer);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void run() throws Exception {
+		final SLF4JAutoLogger l = mock(SLF4JAutoLogger.class);
+		final DownstreamTimer t = new DownstreamTimer(new MetricsRegistry());
+		final AsyncResponse async = mock(AsyncResponse.class);
+		final HandlerExecutor he = new HandlerExecutor(2, 10, 30, l, t);
+		
+		when(l.getCallMethod()).thenReturn("GET");
+		when(l.getCallID()).thenReturn("1234");
+		when(l.getCallIPAddress()).thenReturn("0.0.0.0");
+		
+		final Thread caller = Thread.currentThread();
+		final Thread[] handlerThread = new Thread[1];
+		final long[] total = new long[1];
+		t.startRequest();
+		he.run(async, () -> {
+			handlerThread[0] = Thread.currentThread();
+			final DownstreamTimer.Timing timing = t.start("workspace", "getDescriptor");
+			Thread.sleep(20);
+			timing.stop();
+			total[0] = t.endRequest();
+			return "result";
+		});
+		
+		verify(async, timeout(5000)).resume("result");
+		verify(async).setTimeout(30, TimeUnit.SECONDS);
+		verify(l).setCallInfo("GET", "1234", "0.0.0.0");
+		verify(l, timeout(5000)).setCallInfo(null, null, null);
+		assertThat("handler run on calling thread", handlerThread[0], not(caller));
+		assertThat("incorrect total " + total[0], total[0] >= 20_000_000L, is(true));
+		// the calling thread no longer totals the request
+		assertThat("incorrect total", t.endRequest(), is(0L));
+		he.shutdown();
+	}
+	
+	@Test
+	public void runException() throws Exception {
+		final SLF4JAutoLogger l = mock(SLF4JAutoLogger.class);
+		final DownstreamTimer t = new DownstreamTimer(new MetricsRegistry());
+		final AsyncResponse async = mock(AsyncResponse.class);
+		final HandlerExecutor he = new HandlerExecutor(1, 10, 30, l, t);
+		
+		he.run(async, () -> {
+			throw new NoSuchGroupException("foo");
+		});
+		
+		final ArgumentCaptor<Throwable> ex = ArgumentCaptor.forClass(Throwable.class);
+		verify(async, timeout(5000)).resume(ex.capture());
+		TestCommon.assertExceptionCorrect(ex.getValue(), new NoSuchGroupException("foo"));
+		verify(l, timeout(5000)).setCallInfo(null, null, null);
+		he.shutdown();
+	}
+	
+	@Test
+	public void runQueueFull() throws Exception {
+		final SLF4JAutoLogger l = mock(SLF4JAutoLogger.class);
+		final DownstreamTimer t = new DownstreamTimer(new MetricsRegistry());
+		final AsyncResponse async1 = mock(AsyncResponse.class);
+		final AsyncResponse async2 = mock(AsyncResponse.class);
+		final AsyncResponse async3 = mock(AsyncResponse.class);
+		final HandlerExecutor he = new HandlerExecutor(1, 1, 30, l, t);
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		he.run(async1, () -> {
+			started.countDown();
+			release.await();
+			return "result1";
+		});
+		started.await();
+		he.run(async2, () -> "result2"); // queued
+		he.run(async3, () -> "result3");
+		
+		final ArgumentCaptor<Throwable> ex = ArgumentCaptor.forClass(Throwable.class);
+		verify(async3).resume(ex.capture());
+		TestCommon.assertExceptionCorrect(ex.getValue(), new ServiceUnavailableException(
+				"The server is too busy to handle the request"));
+		
+		release.countDown();
+		verify(async1, timeout(5000)).resume("result1");
+		verify(async2, timeout(5000)).resume("result2");
+		he.shutdown();
+	}
+	
+	@Test
+	public void runAfterShutdown() throws Exception {
+		final SLF4JAutoLogger l = mock(SLF4JAutoLogger.class);
+		final DownstreamTimer t = new DownstreamTimer(new MetricsRegistry());
+		final AsyncResponse async = mock(AsyncResponse.class);
+		final HandlerExecutor he = new HandlerExecutor(1, 10, 30, l, t);
+		
+		he.shutdown();
+		he.run(async, () -> "result");
+		
+		final ArgumentCaptor<Throwable> ex = ArgumentCaptor.forClass(Throwable.class);
+		verify(async).resume(ex.capture());
+		TestCommon.assertExceptionCorrect(ex.getValue(), new ServiceUnavailableException(
+				"The server is too busy to handle the request"));
+	}
+	
+	@Test
+	public void runFail() throws Exception {
+		final HandlerExecutor he = new HandlerExecutor(1, 1, 1, mock(SLF4JAutoLogger.class),
+				new DownstreamTimer(new MetricsRegistry()));
+		failRun(he, null, () -> "foo", new NullPointerException("response"));
+		failRun(he, mock(AsyncResponse.class), null, new NullPointerException("handler"));
+		he.shutdown();
+	}
+	
+	private void failRun(
+			final HandlerExecutor he,
+			final AsyncResponse response,
+			final HandlerExecutor.Handler handler,
+			final Exception expected) {
+		try {
+			he.run(response, handler);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -24,6 +24,7 @@ import org.mockito.ArgumentMatcher;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import us.kbase.groups.config.GroupsConfig;
+import us.kbase.groups.metrics.DownstreamTimer;
 import us.kbase.groups.service.LoggingFilter;
 import us.kbase.groups.service.SLF4JAutoLogger;
 import us.kbase.test.groups.TestCommon;
@@ -154,7 +155,9 @@ public class LoggingFilterTest {
 		
 		when(cfg.isIgnoreIPHeaders()).thenReturn(ignoreIPHeaders);
 		
-		final LoggingFilter log = new LoggingFilter(req, logger, cfg);
+		final DownstreamTimer timer = mock(DownstreamTimer.class);
+		
+		final LoggingFilter log = new LoggingFilter(req, logger, cfg, timer);
 		
 		when(reqcon.getMethod()).thenReturn("POST");
 		when(req.getRemoteAddr()).thenReturn("123.456.789.101");
@@ -167,6 +170,7 @@ public class LoggingFilterTest {
 				eq("POST"),
 				argThat(new CallIDMatcher()),
 				eq(expectedIP));
+		verify(timer).startRequest();
 		
 		assertLogEventsCorrect(logEvents, expectedLogging);
 	}
@@ -179,22 +183,24 @@ public class LoggingFilterTest {
 		final ContainerRequestContext reqcon = mock(ContainerRequestContext.class);
 		final ContainerResponseContext rescon = mock(ContainerResponseContext.class);
 		final UriInfo uriInfo = mock(UriInfo.class);
+		final DownstreamTimer timer = mock(DownstreamTimer.class);
 		
 		when(cfg.isIgnoreIPHeaders()).thenReturn(false);
 		
-		final LoggingFilter log = new LoggingFilter(req, logger, cfg);
+		final LoggingFilter log = new LoggingFilter(req, logger, cfg, timer);
 		
 		when(reqcon.getMethod()).thenReturn("GET");
 		when(reqcon.getUriInfo()).thenReturn(uriInfo);
 		when(uriInfo.getAbsolutePath()).thenReturn(new URI("http://foo.us/fake"));
 		when(rescon.getStatus()).thenReturn(400);
 		when(reqcon.getHeaderString("User-Agent")).thenReturn("Mozilla or some crap");
+		when(timer.endRequest()).thenReturn(42_600_000L);
 		
 		log.filter(reqcon, rescon);
 		
 		assertLogEventsCorrect(logEvents, new LogEvent(
 				Level.INFO,
-				"GET http://foo.us/fake 400 Mozilla or some crap",
+				"GET http://foo.us/fake 400 downstream=42ms Mozilla or some crap",
 				LoggingFilter.class));
 	}
 }
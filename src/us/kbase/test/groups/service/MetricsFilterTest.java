@@ -0,0 +1,155 @@
+package us.kbase.test.groups.service;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.anyLong;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerResponseContext;
+import javax.ws.rs.core.UriInfo;
+
+import org.glassfish.jersey.server.ExtendedUriInfo;
+import org.glassfish.jersey.uri.UriTemplate;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.exceptions.ErrorType;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.service.MetricsFilter;
+import us.kbase.groups.service.RequestMetrics;
+import us.kbase.groups.service.exceptions.ErrorMessage;
+
+public class MetricsFilterTest {
+	
+	private static final String START = "us.kbase.groups.service.MetricsFilter.start";
+	
+	@Test
+	public void requestSetsStartTime() throws Exception {
+		final ContainerRequestContext req = mock(ContainerRequestContext.class);
+		final long before = System.nanoTime();
+		
+		new MetricsFilter(mock(RequestMetrics.class)).filter(req);
+		
+		final ArgumentCaptor<Object> start = ArgumentCaptor.forClass(Object.class);
+		verify(req).setProperty(eq(START), start.capture());
+		assertThat("incorrect start", (long) start.getValue() >= before, is(true));
+		assertThat("incorrect start", (long) start.getValue() <= System.nanoTime(), is(true));
+	}
+	
+	@Test
+	public void responseMatchedRoute() throws Exception {
+		final List<String> text = filterResponse(
+				Arrays.asList(new UriTemplate("{groupid}/update"), new UriTemplate("/group")),
+				"PUT", 204, null);
+		
+		assertThat("incorrect count", text.contains(
+				"groups_http_requests_total{method=\"PUT\",route=\"/group/{groupid}/update\"," +
+				"status=\"204\"} 1"), is(true));
+		assertThat("incorrect latency count", text.contains(
+				"groups_http_request_duration_seconds_count{method=\"PUT\"," +
+				"route=\"/group/{groupid}/update\"} 1"), is(true));
+		assertThat("incorrect errors", text.stream().anyMatch(
+				l -> l.startsWith("groups_http_request_errors_total{")), is(false));
+	}
+	
+	@Test
+	public void responseRoot() throws Exception {
+		final List<String> text = filterResponse(Arrays.asList(new UriTemplate("/")),
+				"GET", 200, null);
+		
+		assertThat("incorrect count", text.contains(
+				"groups_http_requests_total{method=\"GET\",route=\"/\",status=\"200\"} 1"),
+				is(true));
+	}
+	
+	@Test
+	public void responseUnmatchedRoute() throws Exception {
+		final List<String> text = filterResponse(Collections.emptyList(), "GET", 404, null);
+		
+		assertThat("incorrect count", text.contains(
+				"groups_http_requests_total{method=\"GET\",route=\"UNMATCHED\"," +
+				"status=\"404\"} 1"),
+				is(true));
+		assertThat("incorrect errors", text.contains(
+				"groups_http_request_errors_total{method=\"GET\",route=\"UNMATCHED\"," +
+				"error=\"NONE\"} 1"), is(true));
+	}
+	
+	@Test
+	public void responseAppError() throws Exception {
+		final List<String> text = filterResponse(Arrays.asList(new UriTemplate("/group")),
+				"GET", 404, ImmutableMap.of("error", new ErrorMessage(
+						new NoSuchGroupException("foo"), "id", Instant.ofEpochMilli(10000))));
+		
+		assertThat("incorrect errors", text.contains(
+				"groups_http_request_errors_total{method=\"GET\",route=\"/group\"," +
+				"error=\"" + ErrorType.NO_SUCH_GROUP.name() + "\"} 1"), is(true));
+	}
+	
+	@Test
+	public void responseNoStartTime() throws Exception {
+		final RequestMetrics metrics = mock(RequestMetrics.class);
+		final ContainerRequestContext req = mock(ContainerRequestContext.class);
+		final ContainerResponseContext res = mock(ContainerResponseContext.class);
+		
+		new MetricsFilter(metrics).filter(req, res);
+		
+		verifyZeroInteractions(metrics);
+	}
+	
+	@Test
+	public void responseNotExtendedUriInfo() throws Exception {
+		final RequestMetrics metrics = mock(RequestMetrics.class);
+		final ContainerRequestContext req = mock(ContainerRequestContext.class);
+		final ContainerResponseContext res = mock(ContainerResponseContext.class);
+		when(req.getProperty(START)).thenReturn(0L);
+		when(req.getMethod()).thenReturn("GET");
+		when(req.getUriInfo()).thenReturn(mock(UriInfo.class));
+		when(res.getStatus()).thenReturn(200);
+		
+		new MetricsFilter(metrics).filter(req, res);
+		
+		verify(metrics).record(
+				eq("GET"), eq("UNMATCHED"), eq(200), eq(Optional.empty()), anyLong());
+	}
+	
+	private List<String> filterResponse(
+			final List<UriTemplate> templates,
+			final String method,
+			final int status,
+			final Object entity)
+			throws Exception {
+		final MetricsRegistry registry = new MetricsRegistry();
+		final MetricsFilter filter = new MetricsFilter(new RequestMetrics(registry));
+		final ContainerRequestContext req = mock(ContainerRequestContext.class);
+		final ContainerResponseContext res = mock(ContainerResponseContext.class);
+		final ExtendedUriInfo uriInfo = mock(ExtendedUriInfo.class);
+		
+		when(req.getProperty(START)).thenReturn(System.nanoTime());
+		when(req.getMethod()).thenReturn(method);
+		when(req.getUriInfo()).thenReturn(uriInfo);
+		when(uriInfo.getMatchedTemplates()).thenReturn(templates);
+		when(res.getStatus()).thenReturn(status);
+		when(res.getEntity()).thenReturn(entity);
+		
+		filter.filter(req, res);
+		
+		return Arrays.stream(registry.toPrometheusText().split("\n"))
+				.collect(Collectors.toList());
+	}
+}
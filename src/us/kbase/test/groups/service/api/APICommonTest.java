@@ -4,14 +4,22 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static us.kbase.test.groups.TestCommon.inst;
 import static us.kbase.test.groups.TestCommon.set;
+import static us.kbase.test.groups.TestCommon.toJSON;
 
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
 
 import org.junit.Test;
 
@@ -19,6 +27,7 @@ import com.google.common.collect.ImmutableMap;
 
 import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GetChangesParams;
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.GetRequestsParams;
 import us.kbase.groups.core.Group;
@@ -36,6 +45,8 @@ import us.kbase.groups.core.exceptions.NoTokenProvidedException;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.GroupRequestUserAction;
+import us.kbase.groups.core.request.GroupRequestWithActions;
 import us.kbase.groups.core.request.RequestID;
 import us.kbase.groups.core.request.RequestType;
 import us.kbase.groups.core.resource.ResourceDescriptor;
@@ -308,6 +319,9 @@ public class APICommonTest {
 								.with("expiredate", 22000L)
 								.build()
 						)));
+		assertThat("incorrect JSON stream", toJSON(APICommon.toGroupRequestJSONStream(
+				Arrays.asList(r2, r1, r3))),
+				is(toJSON(APICommon.toGroupRequestJSON(Arrays.asList(r2, r1, r3)))));
 	}
 
 	
@@ -319,6 +333,12 @@ public class APICommonTest {
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, new NullPointerException("requests"));
 		}
+		try {
+			APICommon.toGroupRequestJSONStream(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("requests"));
+		}
 	}
 	
 	@Test
@@ -333,6 +353,12 @@ public class APICommonTest {
 		
 		assertThat("incorrect JSON", APICommon.toGroupJSON(gv), is(ImmutableMap.of(
 				"id", "id2", "private", true, "role", "None")));
+		assertJSONStreamCorrect(gv);
+	}
+	
+	private void assertJSONStreamCorrect(final GroupView gv) throws Exception {
+		assertThat("incorrect JSON stream", toJSON(APICommon.toGroupJSONStream(gv)),
+				is(toJSON(APICommon.toGroupJSON(gv))));
 	}
 	
 	@Test
@@ -342,7 +368,7 @@ public class APICommonTest {
 	}
 
 	private void toGroupJSONMinimalView(final String user, final Long lastVisit, final String role)
-			throws MissingParameterException, IllegalParameterException {
+			throws Exception {
 		final GroupView gv = GroupView.getBuilder(
 				getGroupMaxBuilder().build(),
 				new UserName(user))
@@ -364,6 +390,7 @@ public class APICommonTest {
 				.with("moddate", 30000L)
 				.with("rescount", ImmutableMap.of("ws", 2, "cat", 1))
 				.build()));
+		assertJSONStreamCorrect(gv);
 	}
 	
 	@Test
@@ -455,6 +482,7 @@ public class APICommonTest {
 										.build()),
 						"cat", Collections.emptyList()))
 				.build()));
+		assertJSONStreamCorrect(gv);
 	}
 	
 	@Test
@@ -511,6 +539,39 @@ public class APICommonTest {
 										.with("f1", "x")
 										.build())))
 				.build()));
+		assertJSONStreamCorrect(gv);
+	}
+	
+	@Test
+	public void toGroupJSONStreamList() throws Exception {
+		final GroupView gv1 = GroupView.getBuilder(
+				getGroupMaxBuilder().withIsPrivate(true).build(), new UserName("nonmember"))
+				.build();
+		final GroupView gv2 = GroupView.getBuilder(getGroupMaxBuilder().build(),
+				new UserName("foo"))
+				.withMinimalViewFieldDeterminer(f -> true)
+				.build();
+		
+		assertThat("incorrect JSON", toJSON(APICommon.toGroupJSONStream(Arrays.asList(gv1, gv2))),
+				is(toJSON(Arrays.asList(APICommon.toGroupJSON(gv1), APICommon.toGroupJSON(gv2)))));
+		assertThat("incorrect JSON", toJSON(APICommon.toGroupJSONStream(
+				Collections.emptyList())), is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void toGroupJSONStreamFail() throws Exception {
+		try {
+			APICommon.toGroupJSONStream((GroupView) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("group"));
+		}
+		try {
+			APICommon.toGroupJSONStream((List<GroupView>) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("groups"));
+		}
 	}
 	
 	@Test
@@ -653,11 +714,11 @@ public class APICommonTest {
 	
 	@Test
 	public void getGroupParamsNulls() throws Exception {
-		final GetGroupsParams p = APICommon.getGroupsParams(null, null, true);
+		final GetGroupsParams p = APICommon.getGroupsParams(null, null, null, null, true);
 		
 		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder().build()));
 		
-		final GetGroupsParams p2 = APICommon.getGroupsParams(null, null, false);
+		final GetGroupsParams p2 = APICommon.getGroupsParams(null, null, null, null, false);
 		
 		assertThat("incorrect params", p2, is(GetGroupsParams.getBuilder()
 				.withNullableSortAscending(false).build()));
@@ -666,11 +727,11 @@ public class APICommonTest {
 	@Test
 	public void getGroupParamsWhitespace() throws Exception {
 		final String ws = "    \t  ";
-		final GetGroupsParams p = APICommon.getGroupsParams(ws, ws, true);
+		final GetGroupsParams p = APICommon.getGroupsParams(ws, ws, ws, ws, true);
 		
 		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder().build()));
 		
-		final GetGroupsParams p2 = APICommon.getGroupsParams(ws, ws, false);
+		final GetGroupsParams p2 = APICommon.getGroupsParams(ws, ws, ws, ws, false);
 		
 		assertThat("incorrect params", p2, is(GetGroupsParams.getBuilder()
 				.withNullableSortAscending(false).build()));
@@ -678,26 +739,333 @@ public class APICommonTest {
 	
 	@Test
 	public void getGroupParamsValues() throws Exception {
-		final GetGroupsParams p = APICommon.getGroupsParams("   foo   ", "asc", false);
+		final GetGroupsParams p = APICommon.getGroupsParams(
+				"   foo   ", null, "  200  ", "asc", false);
 		
 		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder()
-				.withNullableExcludeUpTo("foo").build()));
+				.withNullableExcludeUpTo("foo")
+				.withNullableLimit(200).build()));
 		
-		final GetGroupsParams p2 = APICommon.getGroupsParams("  \t  bar  ", "desc", true);
+		final GetGroupsParams p2 = APICommon.getGroupsParams(
+				"  \t  bar  ", null, null, "desc", true);
 		
 		assertThat("incorrect params", p2, is(GetGroupsParams.getBuilder()
 				.withNullableExcludeUpTo("bar")
 				.withNullableSortAscending(false).build()));
 	}
 	
+	@Test
+	public void getGroupParamsCursor() throws Exception {
+		final String cursor = APICommon.toGroupsCursor(new GroupID("my-group"));
+		assertThat("incorrect cursor", cursor, is("bXktZ3JvdXA"));
+		
+		final GetGroupsParams p = APICommon.getGroupsParams(
+				"  \t  ", "   " + cursor + "   ", null, "desc", true);
+		
+		assertThat("incorrect params", p, is(GetGroupsParams.getBuilder()
+				.withNullableExcludeUpTo("my-group")
+				.withNullableSortAscending(false).build()));
+	}
+	
 	@Test
 	public void getGroupParamsFail() throws Exception {
+		failGetGroupsParams(null, null, null, "asd", new IllegalParameterException(
+				"Invalid sort direction: asd"));
+		failGetGroupsParams("foo", "bXktZ3JvdXA", null, null, new IllegalParameterException(
+				"Only one of excludeupto or cursor may be specified"));
+		failGetGroupsParams(null, "  bXk*Z3JvdXA ", null, null, new IllegalParameterException(
+				"Invalid cursor: bXk*Z3JvdXA"));
+		// "my*group"
+		failGetGroupsParams(null, "bXkqZ3JvdXA", null, null, new IllegalParameterException(
+				"Invalid cursor: bXkqZ3JvdXA"));
+		failGetGroupsParams(null, null, "  foo ", null, new IllegalParameterException(
+				"Invalid limit: foo"));
+		failGetGroupsParams(null, null, "0", null, new IllegalParameterException(
+				"limit must be between 1 and 1000"));
+		failGetGroupsParams(null, null, "1001", null, new IllegalParameterException(
+				"limit must be between 1 and 1000"));
+	}
+	
+	private void failGetGroupsParams(
+			final String excludeUpTo,
+			final String cursor,
+			final String limit,
+			final String order,
+			final Exception expected) {
+		try {
+			APICommon.getGroupsParams(excludeUpTo, cursor, limit, order, false);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void toGroupsCursorFail() throws Exception {
+		try {
+			APICommon.toGroupsCursor(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("lastGroup"));
+		}
+	}
+	
+	@Test
+	public void getChangesParamsNullsAndWhitespace() throws Exception {
+		assertThat("incorrect params", APICommon.getChangesParams(null, null, null),
+				is(GetChangesParams.getBuilder().build()));
+		
+		final String ws = "    \t  ";
+		assertThat("incorrect params", APICommon.getChangesParams(ws, ws, ws),
+				is(GetChangesParams.getBuilder().build()));
+	}
+	
+	@Test
+	public void getChangesParamsValues() throws Exception {
+		final GetChangesParams p = APICommon.getChangesParams("  20000  ", null, "  200  ");
+		
+		assertThat("incorrect params", p, is(GetChangesParams.getBuilder()
+				.withNullableAfter(inst(20000), null)
+				.withNullableLimit(200).build()));
+	}
+	
+	@Test
+	public void getChangesParamsCursor() throws Exception {
+		final String cursor = APICommon.toChangesCursor(inst(20000), "gid");
+		assertThat("incorrect cursor", cursor, is("MjAwMDA6Z2lk"));
+		
+		final GetChangesParams p = APICommon.getChangesParams(
+				"  \t  ", "   " + cursor + "   ", null);
+		
+		assertThat("incorrect params", p, is(GetChangesParams.getBuilder()
+				.withNullableAfter(inst(20000), "gid").build()));
+		
+		final String cursor2 = APICommon.toChangesCursor(inst(10000), "   \t   ");
+		assertThat("incorrect cursor", cursor2, is("MTAwMDA6"));
+		assertThat("incorrect cursor", APICommon.toChangesCursor(inst(10000), null),
+				is("MTAwMDA6"));
+		
+		final GetChangesParams p2 = APICommon.getChangesParams(null, cursor2, null);
+		
+		assertThat("incorrect params", p2, is(GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), null).build()));
+	}
+	
+	@Test
+	public void getChangesParamsFail() throws Exception {
+		failGetChangesParams("10000", "MjAwMDA6Z2lk", null, new IllegalParameterException(
+				"Only one of after or cursor may be specified"));
+		failGetChangesParams("  foo  ", null, null, new IllegalParameterException(
+				"Invalid epoch ms: foo"));
+		failGetChangesParams(null, "  MjAw*DA6Z2lk ", null, new IllegalParameterException(
+				"Invalid cursor: MjAw*DA6Z2lk"));
+		// "x:foo"
+		failGetChangesParams(null, "eDpmb28", null, new IllegalParameterException(
+				"Invalid cursor: eDpmb28"));
+		// "10000foo"
+		failGetChangesParams(null, "MTAwMDBmb28", null, new IllegalParameterException(
+				"Invalid cursor: MTAwMDBmb28"));
+		// ":foo"
+		failGetChangesParams(null, "OmZvbw", null, new IllegalParameterException(
+				"Invalid cursor: OmZvbw"));
+		failGetChangesParams(null, null, "  foo ", new IllegalParameterException(
+				"Invalid limit: foo"));
+		failGetChangesParams(null, null, "0", new IllegalParameterException(
+				"limit must be between 1 and 1000"));
+		failGetChangesParams(null, null, "1001", new IllegalParameterException(
+				"limit must be between 1 and 1000"));
+	}
+	
+	private void failGetChangesParams(
+			final String after,
+			final String cursor,
+			final String limit,
+			final Exception expected) {
 		try {
-			APICommon.getGroupsParams(null, "asd", false);
+			APICommon.getChangesParams(after, cursor, limit);
 			fail("expected exception");
 		} catch (Exception got) {
-			TestCommon.assertExceptionCorrect(got, new IllegalParameterException(
-					"Invalid sort direction: asd"));
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void toChangesCursorFail() throws Exception {
+		try {
+			APICommon.toChangesCursor(null, "foo");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("lastModification"));
+		}
+	}
+	
+	private GroupView getETagView(
+			final UserName user,
+			final Instant visit,
+			final String wsName)
+			throws Exception {
+		final Group g = getGroupMaxBuilder()
+				.withMember(GroupUser.getBuilder(new UserName("visitor"), inst(650000))
+						.withNullableLastVisit(visit)
+						.build())
+				.build();
+		return GroupView.getBuilder(g, user)
+				.withStandardView(true)
+				.withResource(new ResourceType("ws"), ResourceInformationSet.getBuilder(user)
+						.withResourceField(new ResourceID("a"), "name", wsName)
+						.withResourceField(new ResourceID("a"), "public", true)
+						.build())
+				.build();
+	}
+	
+	@Test
+	public void toGroupETag() throws Exception {
+		final UserName u = new UserName("u2");
+		final EntityTag tag = APICommon.toGroupETag(getETagView(u, inst(25000), "ws"));
+		
+		assertThat("incorrect weak", tag.isWeak(), is(false));
+		assertThat("incorrect tag length", tag.getValue().length(), is(64));
+		assertThat("incorrect tag", APICommon.toGroupETag(getETagView(u, inst(25000), "ws")),
+				is(tag));
+		
+		// the group modification date is the same for all of these
+		final UserName nonmember = new UserName("someone");
+		assertThat("incorrect tag", APICommon.toGroupETag(
+				getETagView(nonmember, inst(25000), "ws")).equals(tag), is(false));
+		assertThat("incorrect tag", APICommon.toGroupETag(
+				getETagView(u, inst(26000), "ws")).equals(tag), is(false));
+		assertThat("incorrect tag", APICommon.toGroupETag(
+				getETagView(u, inst(25000), "ws2")).equals(tag), is(false));
+		assertThat("incorrect tag", APICommon.toGroupETag(GroupView.getBuilder(
+				getGroupMaxBuilder().build(), u).build()).equals(tag), is(false));
+	}
+	
+	@Test
+	public void toGroupETagList() throws Exception {
+		final GroupView v1 = getETagView(new UserName("u2"), inst(25000), "ws");
+		final GroupView v2 = getETagView(new UserName("u2"), inst(25000), "ws2");
+		final EntityTag tag = APICommon.toGroupETag(Arrays.asList(v1, v2));
+		
+		assertThat("incorrect weak", tag.isWeak(), is(false));
+		assertThat("incorrect tag", APICommon.toGroupETag(Arrays.asList(v1, v2)), is(tag));
+		assertThat("incorrect tag", APICommon.toGroupETag(Arrays.asList(v2, v1)).equals(tag),
+				is(false));
+		assertThat("incorrect tag", APICommon.toGroupETag(Arrays.asList(v1)).equals(tag),
+				is(false));
+		assertThat("incorrect tag", APICommon.toGroupETag(Arrays.asList(v1)),
+				is(APICommon.toGroupETag(Arrays.asList(v1))));
+	}
+	
+	@Test
+	public void toGroupETagFail() throws Exception {
+		try {
+			APICommon.toGroupETag((GroupView) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("group"));
+		}
+		try {
+			APICommon.toGroupETag((List<GroupView>) null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("groups"));
+		}
+		try {
+			APICommon.toGroupETag(Arrays.asList(
+					getETagView(new UserName("u2"), inst(25000), "ws"), null));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException(
+					"null item in groups"));
+		}
+	}
+	
+	private GroupRequest getETagRequest(final UUID id, final int modification)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("gid"), new UserName("n"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(20000))
+						.withModificationTime(inst(modification))
+						.build())
+				.build();
+	}
+	
+	@Test
+	public void toGroupRequestETag() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final EntityTag tag = APICommon.toGroupRequestETag(new GroupRequestWithActions(
+				getETagRequest(id, 15000), set(GroupRequestUserAction.CANCEL)));
+		
+		assertThat("incorrect weak", tag.isWeak(), is(false));
+		assertThat("incorrect tag", APICommon.toGroupRequestETag(new GroupRequestWithActions(
+				getETagRequest(id, 15000), set(GroupRequestUserAction.CANCEL))), is(tag));
+		assertThat("incorrect tag", APICommon.toGroupRequestETag(new GroupRequestWithActions(
+				getETagRequest(id, 16000), set(GroupRequestUserAction.CANCEL))).equals(tag),
+				is(false));
+		assertThat("incorrect tag", APICommon.toGroupRequestETag(new GroupRequestWithActions(
+				getETagRequest(id, 15000), set())).equals(tag),
+				is(false));
+		assertThat("incorrect tag", APICommon.toGroupRequestETag(new GroupRequestWithActions(
+				getETagRequest(UUID.randomUUID(), 15000), set(GroupRequestUserAction.CANCEL)))
+				.equals(tag), is(false));
+	}
+	
+	@Test
+	public void toGroupRequestETagFail() throws Exception {
+		try {
+			APICommon.toGroupRequestETag(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("request"));
+		}
+	}
+	
+	@Test
+	public void toConditionalResponse() throws Exception {
+		final Request r = mock(Request.class);
+		
+		final Response ret = APICommon.toConditionalResponse(
+				r, new EntityTag("foo"), () -> "entity").build();
+		
+		assertThat("incorrect status", ret.getStatus(), is(200));
+		assertThat("incorrect entity", ret.getEntity(), is("entity"));
+		assertThat("incorrect tag", ret.getEntityTag(), is(new EntityTag("foo")));
+	}
+	
+	@Test
+	public void toConditionalResponseNotModified() throws Exception {
+		final Request r = mock(Request.class);
+		
+		when(r.evaluatePreconditions(new EntityTag("foo"))).thenReturn(Response.notModified());
+		
+		final Response ret = APICommon.toConditionalResponse(r, new EntityTag("foo"), () -> {
+			throw new IllegalStateException("entity should not be built");
+		}).build();
+		
+		assertThat("incorrect status", ret.getStatus(), is(304));
+		assertThat("incorrect entity", ret.getEntity(), nullValue());
+		assertThat("incorrect tag", ret.getEntityTag(), is(new EntityTag("foo")));
+	}
+	
+	@Test
+	public void toConditionalResponseFail() throws Exception {
+		final Request r = mock(Request.class);
+		final EntityTag t = new EntityTag("foo");
+		failToConditionalResponse(null, t, () -> "e", new NullPointerException("request"));
+		failToConditionalResponse(r, null, () -> "e", new NullPointerException("tag"));
+		failToConditionalResponse(r, t, null, new NullPointerException("entity"));
+	}
+	
+	private void failToConditionalResponse(
+			final Request request,
+			final EntityTag tag,
+			final Supplier<Object> entity,
+			final Exception expected) {
+		try {
+			APICommon.toConditionalResponse(request, tag, entity);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
 	
@@ -0,0 +1,294 @@
+package us.kbase.test.groups.service.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.bulk.NDJSONCodec;
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.ItemSource;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.MissingParameterException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.service.api.AdminAPI;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.test.groups.TestCommon;
+
+public class AdminAPITest {
+
+	@Test
+	public void evictCacheType() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		new AdminAPI(g).evictCache("t", "workspace");
+		
+		verify(g).evictResourceCache(new Token("t"), new ResourceType("workspace"), null);
+	}
+	
+	@Test
+	public void evictCacheResource() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		new AdminAPI(g).evictCache("t", "workspace", "42");
+		
+		verify(g).evictResourceCache(
+				new Token("t"), new ResourceType("workspace"), new ResourceID("42"));
+	}
+	
+	@Test
+	public void evictCacheFailBadArgs() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		failEvictCache(g, null, "workspace", null,
+				new NoTokenProvidedException("No token provided"));
+		failEvictCache(g, "   \t   ", "workspace", "42",
+				new NoTokenProvidedException("No token provided"));
+		failEvictCache(g, "t", "   \t   ", null,
+				new MissingParameterException("resource type"));
+		failEvictCache(g, "t", "work*space", "42", new IllegalParameterException(
+				"Illegal character in resource type work*space: *"));
+		failEvictCache(g, "t", "workspace", "   \t   ",
+				new MissingParameterException("resource ID"));
+	}
+	
+	@Test
+	public void evictCacheFailUnauthorized() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		doThrow(new UnauthorizedException("User u is not a service administrator"))
+				.when(g).evictResourceCache(new Token("t"), new ResourceType("workspace"), null);
+		
+		failEvictCache(g, "t", "workspace", null,
+				new UnauthorizedException("User u is not a service administrator"));
+	}
+	
+	private void failEvictCache(
+			final Groups g,
+			final String token,
+			final String type,
+			final String resource,
+			final Exception expected) {
+		try {
+			if (resource == null) {
+				new AdminAPI(g).evictCache(token, type);
+			} else {
+				new AdminAPI(g).evictCache(token, type, resource);
+			}
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private static Group group(final String id) throws Exception {
+		return Group.getBuilder(
+				new GroupID(id), new GroupName("name"),
+				GroupUser.getBuilder(new UserName("own"), inst(10000)).build(),
+				new CreateAndModTimes(inst(10000)))
+				.build();
+	}
+	
+	private static GroupRequest request(final int id) throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(new UUID(0, id)), new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(inst(10000), inst(20000)).build())
+				.build();
+	}
+	
+	private static <T> List<T> drain(final ItemSource<T> source) throws Exception {
+		final List<T> ret = new ArrayList<>();
+		for (Optional<T> i = source.next(); i.isPresent(); i = source.next()) {
+			ret.add(i.get());
+		}
+		return ret;
+	}
+	
+	private static InputStream toInput(final String s) {
+		return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	@Test
+	public void exportGroups() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		final Group g1 = group("gid1");
+		final Group g2 = group("gid2");
+		when(g.exportGroups(new Token("t"))).thenReturn(p -> {
+			p.process(g1);
+			p.process(g2);
+		});
+		
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new AdminAPI(g).exportGroups("t").write(out);
+		
+		assertThat("incorrect groups", drain(NDJSONCodec.groupReader(
+				new ByteArrayInputStream(out.toByteArray()))),
+				is(Arrays.asList(group("gid1"), group("gid2"))));
+	}
+	
+	@Test
+	public void exportRequests() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		final GroupRequest r = request(1);
+		when(g.exportRequests(new Token("t"))).thenReturn(p -> p.process(r));
+		
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		new AdminAPI(g).exportRequests("t").write(out);
+		
+		assertThat("incorrect requests", drain(NDJSONCodec.requestReader(
+				new ByteArrayInputStream(out.toByteArray()))),
+				is(Arrays.asList(request(1))));
+	}
+	
+	@Test
+	public void exportFailStorage() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		when(g.exportGroups(new Token("t"))).thenReturn(p -> {
+			throw new GroupsStorageException("oops");
+		});
+		
+		try {
+			new AdminAPI(g).exportGroups("t").write(new ByteArrayOutputStream());
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IOException("Export failed: oops"));
+		}
+	}
+	
+	@Test
+	public void exportFail() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		when(g.exportGroups(new Token("t"))).thenThrow(
+				new UnauthorizedException("User u is not a service administrator"));
+		when(g.exportRequests(new Token("t"))).thenThrow(
+				new UnauthorizedException("User u is not a service administrator"));
+		
+		failExport(g, null, new NoTokenProvidedException("No token provided"));
+		failExport(g, "   \t   ", new NoTokenProvidedException("No token provided"));
+		failExport(g, "t", new UnauthorizedException("User u is not a service administrator"));
+	}
+	
+	private void failExport(final Groups g, final String token, final Exception expected) {
+		try {
+			new AdminAPI(g).exportGroups(token);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+		try {
+			new AdminAPI(g).exportRequests(token);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void importGroups() throws Exception {
+		final Groups g = mock(Groups.class);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NDJSONCodec.groupWriter(out).process(group("gid1"));
+		NDJSONCodec.groupWriter(out).process(group("gid2"));
+		final List<Group> got = new ArrayList<>();
+		
+		when(g.importGroups(eq(new Token("t")), any())).thenAnswer(inv -> {
+			@SuppressWarnings("unchecked")
+			final ItemSource<Group> source = (ItemSource<Group>) inv.getArguments()[1];
+			got.addAll(drain(source));
+			return (long) got.size();
+		});
+		
+		assertThat("incorrect response", new AdminAPI(g).importGroups(
+				"t", new ByteArrayInputStream(out.toByteArray())),
+				is(ImmutableMap.of("imported", 2L)));
+		assertThat("incorrect groups", got, is(Arrays.asList(group("gid1"), group("gid2"))));
+	}
+	
+	@Test
+	public void importRequests() throws Exception {
+		final Groups g = mock(Groups.class);
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		NDJSONCodec.requestWriter(out).process(request(1));
+		final List<GroupRequest> got = new ArrayList<>();
+		
+		when(g.importRequests(eq(new Token("t")), any())).thenAnswer(inv -> {
+			@SuppressWarnings("unchecked")
+			final ItemSource<GroupRequest> source =
+					(ItemSource<GroupRequest>) inv.getArguments()[1];
+			got.addAll(drain(source));
+			return (long) got.size();
+		});
+		
+		assertThat("incorrect response", new AdminAPI(g).importRequests(
+				"t", new ByteArrayInputStream(out.toByteArray())),
+				is(ImmutableMap.of("imported", 1L)));
+		assertThat("incorrect requests", got, is(Arrays.asList(request(1))));
+	}
+	
+	@Test
+	public void importFail() throws Exception {
+		final Groups g = mock(Groups.class);
+		
+		when(g.importGroups(eq(new Token("t")), any())).thenThrow(
+				new UnauthorizedException("User u is not a service administrator"));
+		when(g.importRequests(eq(new Token("t")), any())).thenThrow(
+				new UnauthorizedException("User u is not a service administrator"));
+		
+		failImport(g, null, new NoTokenProvidedException("No token provided"));
+		failImport(g, "   \t   ", new NoTokenProvidedException("No token provided"));
+		failImport(g, "t", new UnauthorizedException("User u is not a service administrator"));
+	}
+	
+	private void failImport(final Groups g, final String token, final Exception expected) {
+		try {
+			new AdminAPI(g).importGroups(token, toInput(""));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+		try {
+			new AdminAPI(g).importRequests(token, toInput(""));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
@@ -0,0 +1,238 @@
+package us.kbase.test.groups.service.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+
+import javax.ws.rs.core.Response;
+
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GetChangesParams;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.GroupView;
+import us.kbase.groups.core.Groups;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.IllegalParameterException;
+import us.kbase.groups.core.exceptions.NoTokenProvidedException;
+import us.kbase.groups.core.exceptions.UnauthorizedException;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.service.api.APICommon;
+import us.kbase.groups.service.api.ChangesAPI;
+import us.kbase.test.groups.TestCommon;
+
+public class ChangesAPITest {
+
+	private static GroupView view(final String id, final int modification) throws Exception {
+		return view(id, modification, false);
+	}
+	
+	private static GroupView view(
+			final String id,
+			final int modification,
+			final boolean isPrivate)
+			throws Exception {
+		return GroupView.getBuilder(Group.getBuilder(
+				new GroupID(id), new GroupName("name " + id),
+				GroupUser.getBuilder(new UserName("own"), inst(5000)).build(),
+				new CreateAndModTimes(inst(5000), inst(modification)))
+				.withIsPrivate(isPrivate)
+				.build(), null)
+				.withOverridePrivateView(true)
+				.build();
+	}
+	
+	private static GroupRequest request(final String id, final int modification)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(inst(5000), inst(100000))
+						.withModificationTime(inst(modification))
+						.build())
+				.build();
+	}
+	
+	@Test
+	public void getGroupChanges() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroupChanges(new Token("t"), GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), null).withNullableLimit(2).build()))
+				.thenReturn(Arrays.asList(view("foo", 10000), view("gid", 20000, true)));
+		
+		final Response ret = new ChangesAPI(g).getGroupChanges(
+				"t", "  10000  ", null, "  2  ", null);
+		
+		assertThat("incorrect changes", ret.getEntity(), is(Arrays.asList(
+				ImmutableMap.of("id", "foo", "private", false, "moddate", 10000L),
+				ImmutableMap.of("id", "gid", "private", true, "moddate", 20000L))));
+		// "20000:gid"
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"),
+				is("MjAwMDA6Z2lk"));
+	}
+	
+	@Test
+	public void getGroupChangesWithViews() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroupChanges(new Token("t"), GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), "foo").build()))
+				.thenReturn(Arrays.asList(view("gid", 20000)));
+		
+		final Response ret = new ChangesAPI(g).getGroupChanges(
+				"t", null, "MTAwMDA6Zm9v", null, "");
+		
+		assertThat("incorrect changes", ret.getEntity(), is(Arrays.asList(
+				APICommon.toGroupJSON(view("gid", 20000)))));
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"),
+				is("MjAwMDA6Z2lk"));
+	}
+	
+	@Test
+	public void getGroupChangesEmpty() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroupChanges(new Token("t"), GetChangesParams.getBuilder().build()))
+				.thenReturn(Collections.emptyList());
+		when(g.getGroupChanges(new Token("t"), GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), "foo").build()))
+				.thenReturn(Collections.emptyList());
+		when(g.getGroupChanges(new Token("t"), GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), null).build()))
+				.thenReturn(Collections.emptyList());
+		
+		// no position, so no cursor
+		final Response ret = new ChangesAPI(g).getGroupChanges("t", null, null, null, null);
+		assertThat("incorrect changes", ret.getEntity(), is(Collections.emptyList()));
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"),
+				is((String) null));
+		
+		// the position is returned so the client can poll again
+		final Response ret2 = new ChangesAPI(g).getGroupChanges(
+				"t", null, "MTAwMDA6Zm9v", null, null);
+		assertThat("incorrect changes", ret2.getEntity(), is(Collections.emptyList()));
+		assertThat("incorrect cursor", ret2.getHeaderString("x-next-cursor"),
+				is("MTAwMDA6Zm9v"));
+		
+		final Response ret3 = new ChangesAPI(g).getGroupChanges(
+				"t", "10000", null, null, null);
+		assertThat("incorrect changes", ret3.getEntity(), is(Collections.emptyList()));
+		// "10000:"
+		assertThat("incorrect cursor", ret3.getHeaderString("x-next-cursor"), is("MTAwMDA6"));
+	}
+	
+	@Test
+	public void getGroupChangesFail() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroupChanges(new Token("t"), GetChangesParams.getBuilder().build()))
+				.thenThrow(new UnauthorizedException("User u is not a service administrator"));
+		
+		failGetGroupChanges(g, null, "10000", null,
+				new NoTokenProvidedException("No token provided"));
+		failGetGroupChanges(g, "t", "10000", "MTAwMDA6Zm9v", new IllegalParameterException(
+				"Only one of after or cursor may be specified"));
+		failGetGroupChanges(g, "t", null, null,
+				new UnauthorizedException("User u is not a service administrator"));
+	}
+	
+	private void failGetGroupChanges(
+			final Groups g,
+			final String token,
+			final String after,
+			final String cursor,
+			final Exception expected) {
+		try {
+			new ChangesAPI(g).getGroupChanges(token, after, cursor, null, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getRequestChanges() throws Exception {
+		final String id1 = "00000000-0000-0000-0000-000000000001";
+		final String id2 = "00000000-0000-0000-0000-000000000002";
+		final Groups g = mock(Groups.class);
+		when(g.getRequestChanges(new Token("t"), GetChangesParams.getBuilder().build()))
+				.thenReturn(Arrays.asList(request(id2, 800), request(id1, 1000)));
+		
+		final Response ret = new ChangesAPI(g).getRequestChanges("t", null, null, null, null);
+		
+		assertThat("incorrect changes", ret.getEntity(), is(Arrays.asList(
+				ImmutableMap.of("id", id2, "moddate", 800L),
+				ImmutableMap.of("id", id1, "moddate", 1000L))));
+		// "1000:<id1>"
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"),
+				is("MTAwMDowMDAwMDAwMC0wMDAwLTAwMDAtMDAwMC0wMDAwMDAwMDAwMDE"));
+	}
+	
+	@Test
+	public void getRequestChangesWithViews() throws Exception {
+		final String id = UUID.randomUUID().toString();
+		final Groups g = mock(Groups.class);
+		when(g.getRequestChanges(new Token("t"), GetChangesParams.getBuilder()
+				.withNullableAfter(inst(500), null).withNullableLimit(1).build()))
+				.thenReturn(Arrays.asList(request(id, 1000)));
+		
+		final Response ret = new ChangesAPI(g).getRequestChanges("t", "500", null, "1", "");
+		
+		assertThat("incorrect changes", ret.getEntity(), is(Arrays.asList(
+				APICommon.toGroupRequestJSON(request(id, 1000)))));
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"),
+				is(APICommon.toChangesCursor(inst(1000), id)));
+	}
+	
+	@Test
+	public void getRequestChangesEmpty() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getRequestChanges(new Token("t"), GetChangesParams.getBuilder()
+				.withNullableAfter(inst(10000), "foo").build()))
+				.thenReturn(Collections.emptyList());
+		
+		final Response ret = new ChangesAPI(g).getRequestChanges(
+				"t", null, "MTAwMDA6Zm9v", null, null);
+		assertThat("incorrect changes", ret.getEntity(), is(Collections.emptyList()));
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"),
+				is("MTAwMDA6Zm9v"));
+	}
+	
+	@Test
+	public void getRequestChangesFail() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getRequestChanges(new Token("t"), GetChangesParams.getBuilder().build()))
+				.thenThrow(new UnauthorizedException("User u is not a service administrator"));
+		
+		failGetRequestChanges(g, null, null, new NoTokenProvidedException("No token provided"));
+		failGetRequestChanges(g, "t", "0", new IllegalParameterException(
+				"limit must be between 1 and 1000"));
+		failGetRequestChanges(g, "t", null,
+				new UnauthorizedException("User u is not a service administrator"));
+	}
+	
+	private void failGetRequestChanges(
+			final Groups g,
+			final String token,
+			final String limit,
+			final Exception expected) {
+		try {
+			new ChangesAPI(g).getRequestChanges(token, null, null, limit, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
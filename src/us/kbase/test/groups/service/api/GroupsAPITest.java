@@ -1,11 +1,13 @@
 package us.kbase.test.groups.service.api;
 
 import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.toJSON;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -19,7 +21,13 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
 
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -32,6 +40,7 @@ import us.kbase.groups.core.Group.Builder;
 import us.kbase.groups.core.GroupCreationParams;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchParams;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.GroupView;
@@ -47,6 +56,7 @@ import us.kbase.groups.core.exceptions.InvalidTokenException;
 import us.kbase.groups.core.exceptions.MissingParameterException;
 import us.kbase.groups.core.exceptions.NoSuchGroupException;
 import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.NoSuchResourceTypeException;
 import us.kbase.groups.core.exceptions.NoSuchUserException;
 import us.kbase.groups.core.exceptions.NoTokenProvidedException;
 import us.kbase.groups.core.exceptions.RequestExistsException;
@@ -62,6 +72,9 @@ import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
 import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.service.HandlerExecutor;
+import us.kbase.groups.service.HandlerExecutor.Handler;
+import us.kbase.groups.service.api.APICommon;
 import us.kbase.groups.service.api.GroupsAPI;
 import us.kbase.groups.service.api.GroupsAPI.CreateOrUpdateGroupJSON;
 import us.kbase.groups.service.api.GroupsAPI.UpdateUserJSON;
@@ -70,6 +83,9 @@ import us.kbase.test.groups.TestCommon;
 
 public class GroupsAPITest {
 
+	private static final HandlerExecutor HANDLERS = mock(HandlerExecutor.class);
+	private static final Request REQ = mock(Request.class);
+	
 	private static final Group GROUP_MIN;
 	private static final Group GROUP_MAX;
 	private static final Group GROUP_PRIV;
@@ -266,31 +282,45 @@ public class GroupsAPITest {
 
 	@Test
 	public void getGroupsNulls() throws Exception {
-		getGroups(null, null, null, null, GetGroupsParams.getBuilder().build());
+		getGroups(null, null, null, null, null, null, GetGroupsParams.getBuilder().build());
 	}
 	
 	@Test
 	public void getGroupsWhitespace() throws Exception {
-		getGroups("   \t   ", "   \t   ", "   \t   ", null, GetGroupsParams.getBuilder().build());
+		final String ws = "   \t   ";
+		getGroups(ws, ws, ws, ws, ws, null, GetGroupsParams.getBuilder().build());
 	}
 	
 	@Test
 	public void getGroupsWhitespaceValuesAsc() throws Exception {
-		getGroups("    tok \t   ", "   foo  \t  ", "  asc  \t ", new Token("    tok \t   "),
+		getGroups("    tok \t   ", "   foo  \t  ", null, null, "  asc  \t ",
+				new Token("    tok \t   "),
 				GetGroupsParams.getBuilder()
 						.withNullableExcludeUpTo("foo").build());
 	}
 	
 	@Test
 	public void getGroupsWhitespaceValuesDesc() throws Exception {
-		getGroups("t", "   foo  \t  ", "  desc  \t ", new Token("t"), GetGroupsParams.getBuilder()
-				.withNullableExcludeUpTo("foo")
-				.withNullableSortAscending(false).build());
+		getGroups("t", "   foo  \t  ", null, "  3  ", "  desc  \t ", new Token("t"),
+				GetGroupsParams.getBuilder()
+						.withNullableExcludeUpTo("foo")
+						.withNullableLimit(3)
+						.withNullableSortAscending(false).build());
+	}
+	
+	@Test
+	public void getGroupsCursor() throws Exception {
+		getGroups("t", null, "  Zm9v  ", null, "desc", new Token("t"),
+				GetGroupsParams.getBuilder()
+						.withNullableExcludeUpTo("foo")
+						.withNullableSortAscending(false).build());
 	}
 
 	private void getGroups(
 			final String token,
 			final String excludeUpTo,
+			final String cursor,
+			final String limit,
 			final String order,
 			final Token expectedToken,
 			final GetGroupsParams expected)
@@ -303,18 +333,63 @@ public class GroupsAPITest {
 				GroupView.getBuilder(GROUP_MIN, new UserName("u2"))
 						.withPublicUserFieldDeterminer(f -> f.getField().equals("something"))
 						.build()));
-		final List<Map<String, Object>> ret = new GroupsAPI(g)
-				.getGroups(token, excludeUpTo, order);
+		final Response ret = new GroupsAPI(g, HANDLERS)
+				.getGroups(REQ, token, excludeUpTo, cursor, limit, order, null, null, null);
+		
+		assertThat("incorrect groups", toJSON(ret.getEntity()),
+				is(toJSON(Arrays.asList(GROUP_MAX_JSON_MIN, GROUP_MIN_JSON_MIN))));
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"), is((String) null));
+	}
+	
+	@Test
+	public void getGroupsNextCursor() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroups(null, GetGroupsParams.getBuilder().withNullableLimit(2).build()))
+				.thenReturn(Arrays.asList(
+						GroupView.getBuilder(GROUP_MAX, new UserName("u2"))
+								.withMinimalViewFieldDeterminer(
+										f -> f.getField().equals("field-1"))
+								.build(),
+						GroupView.getBuilder(GROUP_MIN, new UserName("u2"))
+								.withPublicUserFieldDeterminer(
+										f -> f.getField().equals("something"))
+								.build()));
+		final Response ret = new GroupsAPI(g, HANDLERS)
+				.getGroups(REQ, null, null, null, "2", null, null, null, null);
+		
+		assertThat("incorrect groups", toJSON(ret.getEntity()),
+				is(toJSON(Arrays.asList(GROUP_MAX_JSON_MIN, GROUP_MIN_JSON_MIN))));
+		// GROUP_MIN's ID is "id"
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"), is("aWQ"));
+	}
+	
+	@Test
+	public void getGroupsNotModified() throws Exception {
+		final Groups g = mock(Groups.class);
+		final Request r = mock(Request.class);
+		final List<GroupView> views = Arrays.asList(
+				GroupView.getBuilder(GROUP_MAX, new UserName("u2")).build(),
+				GroupView.getBuilder(GROUP_MIN, new UserName("u2")).build());
+		when(g.getGroups(null, GetGroupsParams.getBuilder().withNullableLimit(2).build()))
+				.thenReturn(views);
+		when(r.evaluatePreconditions(APICommon.toGroupETag(views)))
+				.thenReturn(Response.notModified());
+		
+		final Response ret = new GroupsAPI(g, HANDLERS)
+				.getGroups(r, null, null, null, "2", null, null, null, null);
 		
-		assertThat("incorrect groups", ret,
-				is(Arrays.asList(GROUP_MAX_JSON_MIN, GROUP_MIN_JSON_MIN)));
+		assertThat("incorrect status", ret.getStatus(), is(304));
+		assertThat("incorrect entity", ret.getEntity(), is((Object) null));
+		assertThat("incorrect etag", ret.getEntityTag(), is(APICommon.toGroupETag(views)));
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"), is("aWQ"));
 	}
 	
 	@Test
 	public void failGetGroups() throws Exception {
 		final Groups g = mock(Groups.class);
 		try {
-			new GroupsAPI(g).getGroups("t", null, "  asd   ");
+			new GroupsAPI(g, HANDLERS)
+					.getGroups(REQ, "t", null, null, null, "  asd   ", null, null, null);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, new IllegalParameterException(
@@ -322,6 +397,159 @@ public class GroupsAPITest {
 		}
 	}
 	
+	@Test
+	public void searchGroups() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.searchGroups(new Token("t"), GroupSearchParams.getBuilder("foo Bar")
+				.withNullableSortAscending(false).build()))
+				.thenReturn(Arrays.asList(
+						GroupView.getBuilder(GROUP_MAX, new UserName("u2"))
+								.withMinimalViewFieldDeterminer(
+										f -> f.getField().equals("field-1"))
+								.build()));
+		final Response ret = new GroupsAPI(g, HANDLERS)
+				.getGroups(REQ, "t", null, null, null, "desc", "  foo Bar ", null, null);
+		
+		assertThat("incorrect groups", toJSON(ret.getEntity()),
+				is(toJSON(Arrays.asList(GROUP_MAX_JSON_MIN))));
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"), is((String) null));
+	}
+	
+	@Test
+	public void searchGroupsNextCursor() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.searchGroups(null, GroupSearchParams.getBuilder("foo")
+				.withNullableOffset(5)
+				.withNullableLimit(2).build()))
+				.thenReturn(Arrays.asList(
+						GroupView.getBuilder(GROUP_MAX, new UserName("u2"))
+								.withMinimalViewFieldDeterminer(
+										f -> f.getField().equals("field-1"))
+								.build(),
+						GroupView.getBuilder(GROUP_MIN, new UserName("u2"))
+								.withPublicUserFieldDeterminer(
+										f -> f.getField().equals("something"))
+								.build()));
+		// cursor is search:5
+		final Response ret = new GroupsAPI(g, HANDLERS)
+				.getGroups(REQ, null, null, "c2VhcmNoOjU", "2", null, "foo", null, null);
+		
+		assertThat("incorrect groups", toJSON(ret.getEntity()),
+				is(toJSON(Arrays.asList(GROUP_MAX_JSON_MIN, GROUP_MIN_JSON_MIN))));
+		// search:7
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"), is("c2VhcmNoOjc"));
+	}
+	
+	@Test
+	public void failSearchGroups() throws Exception {
+		failSearchGroups("foo", null, null, null, new IllegalParameterException(
+				"excludeupto may not be specified with search"));
+		failSearchGroups(null, "aWQ", null, null, new IllegalParameterException(
+				"Invalid cursor: aWQ"));
+		failSearchGroups(null, "c2VhcmNoOi0x", null, null, new IllegalParameterException(
+				"Invalid cursor: c2VhcmNoOi0x"));
+		failSearchGroups(null, "c2VhcmNoOng", null, null, new IllegalParameterException(
+				"Invalid cursor: c2VhcmNoOng"));
+		failSearchGroups(null, null, "0", null, new IllegalParameterException(
+				"limit must be between 1 and 1000"));
+		failSearchGroups(null, null, null, "up", new IllegalParameterException(
+				"Invalid sort direction: up"));
+		failSearchGroups(null, null, null, null, "  !! ", new IllegalParameterException(
+				"search must contain at least one letter or digit"));
+	}
+	
+	private void failSearchGroups(
+			final String excludeUpTo,
+			final String cursor,
+			final String limit,
+			final String order,
+			final Exception expected) {
+		failSearchGroups(excludeUpTo, cursor, limit, order, "foo", expected);
+	}
+	
+	private void failSearchGroups(
+			final String excludeUpTo,
+			final String cursor,
+			final String limit,
+			final String order,
+			final String search,
+			final Exception expected) {
+		try {
+			new GroupsAPI(mock(Groups.class), HANDLERS)
+					.getGroups(REQ, "t", excludeUpTo, cursor, limit, order, search, null, null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getGroupsForResource() throws Exception {
+		final Groups g = mock(Groups.class);
+		when(g.getGroupsForResource(new Token("t"), new ResourceType("workspace"),
+				new ResourceID("42"), GetGroupsParams.getBuilder()
+						.withNullableExcludeUpTo("foo")
+						.withNullableLimit(2)
+						.withNullableSortAscending(false)
+						.build()))
+				.thenReturn(Arrays.asList(
+						GroupView.getBuilder(GROUP_MAX, new UserName("u2"))
+								.withMinimalViewFieldDeterminer(
+										f -> f.getField().equals("field-1"))
+								.build(),
+						GroupView.getBuilder(GROUP_MIN, new UserName("u2"))
+								.withPublicUserFieldDeterminer(
+										f -> f.getField().equals("something"))
+								.build()));
+		final Response ret = new GroupsAPI(g, HANDLERS).getGroups(
+				REQ, "t", "  foo  ", null, "2", "desc", "   \t  ", "workspace", "  42  ");
+		
+		assertThat("incorrect groups", toJSON(ret.getEntity()),
+				is(toJSON(Arrays.asList(GROUP_MAX_JSON_MIN, GROUP_MIN_JSON_MIN))));
+		// GROUP_MIN's ID is "id"
+		assertThat("incorrect cursor", ret.getHeaderString("x-next-cursor"), is("aWQ"));
+	}
+	
+	@Test
+	public void failGetGroupsForResource() throws Exception {
+		failGetGroupsForResource("foo", "workspace", "42", new IllegalParameterException(
+				"resourcetype and resource may not be specified with search"));
+		failGetGroupsForResource("foo", null, "42", new IllegalParameterException(
+				"resourcetype and resource may not be specified with search"));
+		failGetGroupsForResource(null, null, "42",
+				new MissingParameterException("resource type"));
+		failGetGroupsForResource(null, "workspace", "  \t  ",
+				new MissingParameterException("resource ID"));
+		failGetGroupsForResource(null, "work-space", "42", new IllegalParameterException(
+				"Illegal character in resource type work-space: -"));
+		
+		final Groups g = mock(Groups.class);
+		when(g.getGroupsForResource(null, new ResourceType("workspace"),
+				new ResourceID("42"), GetGroupsParams.getBuilder().build()))
+				.thenThrow(new NoSuchResourceTypeException("workspace"));
+		try {
+			new GroupsAPI(g, HANDLERS)
+					.getGroups(REQ, null, null, null, null, null, null, "workspace", "42");
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchResourceTypeException("workspace"));
+		}
+	}
+	
+	private void failGetGroupsForResource(
+			final String search,
+			final String type,
+			final String resource,
+			final Exception expected) {
+		try {
+			new GroupsAPI(mock(Groups.class), HANDLERS)
+					.getGroups(REQ, "t", null, null, null, null, search, type, resource);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void createGroupMinimalNulls() throws Exception {
 		createGroupMinimal(null, null, null);
@@ -356,7 +584,7 @@ public class GroupsAPITest {
 				.thenReturn(GroupView.getBuilder(GROUP_MAX, new UserName("u2"))
 						.withStandardView(true).build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).createGroup(
+		final Map<String, Object> ret = new GroupsAPI(g, HANDLERS).createGroup(
 				"toke", "gid", new CreateOrUpdateGroupJSON(
 						"name", isPrivate, isPrivateMembers, custom));
 		
@@ -381,7 +609,7 @@ public class GroupsAPITest {
 				.thenReturn(GroupView.getBuilder(GROUP_MIN, new UserName("u"))
 						.withStandardView(true).build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).createGroup("toke", "gid",
+		final Map<String, Object> ret = new GroupsAPI(g, HANDLERS).createGroup("toke", "gid",
 				new CreateOrUpdateGroupJSON("name", true, false,
 						ImmutableMap.of("foo-23", "yay", "doodybutt", "yo")));
 		
@@ -465,7 +693,7 @@ public class GroupsAPITest {
 			final CreateOrUpdateGroupJSON body,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).createGroup(token, groupID, body);
+			new GroupsAPI(g, HANDLERS).createGroup(token, groupID, body);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -542,7 +770,7 @@ public class GroupsAPITest {
 			throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		new GroupsAPI(g).updateGroup("tok", "    gid   ",
+		new GroupsAPI(g, HANDLERS).updateGroup("tok", "    gid   ",
 				new CreateOrUpdateGroupJSON(groupName, isPrivate, isPrivateMembers, custom));
 		
 		verify(g).updateGroup(new Token("tok"), expected);
@@ -621,7 +849,7 @@ public class GroupsAPITest {
 			final CreateOrUpdateGroupJSON update,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).updateGroup(token, groupID, update);
+			new GroupsAPI(g, HANDLERS).updateGroup(token, groupID, update);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -643,6 +871,46 @@ public class GroupsAPITest {
 		getGroup("foo", new Token("foo"));
 	}
 	
+	@Test
+	public void getGroupAsync() throws Exception {
+		final Groups g = mock(Groups.class);
+		final HandlerExecutor h = mock(HandlerExecutor.class);
+		final AsyncResponse async = mock(AsyncResponse.class);
+		
+		when(g.getGroup(new Token("toke"), new GroupID("id")))
+				.thenReturn(GroupView.getBuilder(GROUP_MAX, new UserName("bar"))
+						.withStandardView(true).build());
+		
+		new GroupsAPI(g, h).getGroup(async, REQ, "toke", "id");
+		
+		final ArgumentCaptor<Handler> handler = ArgumentCaptor.forClass(Handler.class);
+		verify(h).run(eq(async), handler.capture());
+		final Response ret = (Response) handler.getValue().handle();
+		assertThat("incorrect group", toJSON(ret.getEntity()),
+				is(toJSON(new GroupsAPI(g, h).getGroup(REQ, "toke", "id").getEntity())));
+		assertThat("incorrect etag", ret.getEntityTag(),
+				is(APICommon.toGroupETag(GroupView.getBuilder(GROUP_MAX, new UserName("bar"))
+						.withStandardView(true).build())));
+	}
+	
+	@Test
+	public void getGroupNotModified() throws Exception {
+		final Groups g = mock(Groups.class);
+		final Request r = mock(Request.class);
+		final GroupView view = GroupView.getBuilder(GROUP_MAX, new UserName("bar"))
+				.withStandardView(true).build();
+		
+		when(g.getGroup(new Token("toke"), new GroupID("id"))).thenReturn(view);
+		when(r.evaluatePreconditions(APICommon.toGroupETag(view)))
+				.thenReturn(Response.notModified());
+		
+		final Response ret = new GroupsAPI(g, HANDLERS).getGroup(r, "toke", "id");
+		
+		assertThat("incorrect status", ret.getStatus(), is(304));
+		assertThat("incorrect entity", ret.getEntity(), is((Object) null));
+		assertThat("incorrect etag", ret.getEntityTag(), is(APICommon.toGroupETag(view)));
+	}
+	
 	private void getGroup(final String token, final Token expectedToken) throws Exception {
 		final Groups g = mock(Groups.class);
 		
@@ -650,11 +918,12 @@ public class GroupsAPITest {
 				.thenReturn(GroupView.getBuilder(GROUP_MAX, new UserName("bar"))
 						.withStandardView(true).build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup(token, "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, token, "id")
+				.getEntity());
 		final Map<String, Object> expected = new HashMap<>(GROUP_MAX_JSON_STD);
 		expected.put("role", "Member");
 		
-		assertThat("incorrect group", ret, is(expected));
+		assertThat("incorrect group", ret, is(toJSON(expected)));
 	}
 	
 	@Test
@@ -668,9 +937,10 @@ public class GroupsAPITest {
 						.withPublicUserFieldDeterminer(f -> f.getField().equals("yay-6"))
 						.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup("toke", "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, "toke", "id")
+				.getEntity());
 		
-		assertThat("incorrect group", ret, is(GROUP_MAX_JSON_NON));
+		assertThat("incorrect group", ret, is(toJSON(GROUP_MAX_JSON_NON)));
 	}
 	
 	@Test
@@ -684,7 +954,8 @@ public class GroupsAPITest {
 						.withPublicUserFieldDeterminer(f -> f.getField().equals("yay-6"))
 						.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup("toke", "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, "toke", "id")
+				.getEntity());
 		
 		final Map<String, Object> expected = MapBuilder.<String, Object>newHashMap()
 				.with("id", "id2")
@@ -735,7 +1006,7 @@ public class GroupsAPITest {
 				.with("custom", ImmutableMap.of("otherfield", "fieldval"))
 				.build();
 		
-		assertThat("incorrect group", ret, is(expected));
+		assertThat("incorrect group", ret, is(toJSON(expected)));
 	}
 	
 	@Test
@@ -747,9 +1018,10 @@ public class GroupsAPITest {
 						.withStandardView(true)
 						.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup("t", "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, "t", "id")
+				.getEntity());
 		
-		assertThat("incorrect group", ret, is(GROUP_MAX_JSON_PRIV));
+		assertThat("incorrect group", ret, is(toJSON(GROUP_MAX_JSON_PRIV)));
 	}
 	
 	@Test
@@ -761,13 +1033,14 @@ public class GroupsAPITest {
 						.withStandardView(true)
 						.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup("t", "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, "t", "id")
+				.getEntity());
 		
 		final Map<String, Object> expected = new HashMap<>(GROUP_MAX_JSON_STD);
 		expected.put("private", true);
 		expected.put("role", "Member");
 		
-		assertThat("incorrect group", ret, is(expected));
+		assertThat("incorrect group", ret, is(toJSON(expected)));
 	}
 	
 	@Test
@@ -779,13 +1052,14 @@ public class GroupsAPITest {
 						.withStandardView(true)
 						.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup("toke", "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, "toke", "id")
+				.getEntity());
 		
 		final Map<String, Object> expected = new HashMap<>(GROUP_MAX_JSON_STD);
 		expected.put("role", "Member");
 		expected.put("privatemembers", false);
 		
-		assertThat("incorrect group", ret, is(expected));
+		assertThat("incorrect group", ret, is(toJSON(expected)));
 	}
 	
 	@Test
@@ -826,7 +1100,8 @@ public class GroupsAPITest {
 		
 		when(g.getGroup(new Token("toke"), new GroupID("id"))).thenReturn(gv.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup("toke", "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, "toke", "id")
+				.getEntity());
 		final Map<String, Object> expected = new HashMap<>();
 		expected.putAll(GROUP_MAX_JSON_STD);
 		expected.put("resources", ImmutableMap.of(
@@ -857,19 +1132,23 @@ public class GroupsAPITest {
 		expected.put("role", "Admin");
 		expected.put("rescount", ImmutableMap.of("workspace", 2, "catalogmethod", 1));
 		
-		assertThat("incorrect group", ret, is(expected));
+		assertThat("incorrect group", ret, is(toJSON(expected)));
 		
 		when(g.getGroups(new Token("toke2"), GetGroupsParams.getBuilder().build()))
 				.thenReturn(Arrays.asList(gv.withStandardView(false).build()));
 		
-		final Map<String, Object> retmin = new GroupsAPI(g).getGroups("toke2", null, null).get(0);
+		@SuppressWarnings("unchecked")
+		final Map<String, Object> retmin = ((List<Map<String, Object>>) toJSON(
+				new GroupsAPI(g, HANDLERS).getGroups(
+						REQ, "toke2", null, null, null, null, null, null, null).getEntity()))
+				.get(0);
 		final Map<String, Object> expectedmin = new HashMap<>();
 		expectedmin.putAll(GROUP_MAX_JSON_MIN);
 		expectedmin.put("role", "Admin");
 		expectedmin.put("rescount", ImmutableMap.of("workspace", 2, "catalogmethod", 1));
 		expectedmin.put("custom", Collections.emptyMap());
 
-		assertThat("incorrect group", retmin, is(expectedmin));
+		assertThat("incorrect group", retmin, is(toJSON(expectedmin)));
 	}
 	
 	@Test
@@ -945,9 +1224,10 @@ public class GroupsAPITest {
 				.with("custom", Collections.emptyMap())
 				.build();
 		
-		final Map<String, Object> ret = new GroupsAPI(g).getGroup("toke", "id");
+		final Object ret = toJSON(new GroupsAPI(g, HANDLERS).getGroup(REQ, "toke", "id")
+				.getEntity());
 		
-		assertThat("incorrect group", ret, is(expected));
+		assertThat("incorrect group", ret, is(toJSON(expected)));
 	}
 	
 	@Test
@@ -973,7 +1253,7 @@ public class GroupsAPITest {
 			final String groupid,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).getGroup(token, groupid);
+			new GroupsAPI(g, HANDLERS).getGroup(REQ, token, groupid);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -987,7 +1267,7 @@ public class GroupsAPITest {
 		when(g.getGroupExists(new GroupID("g1"))).thenReturn(true);
 		when(g.getGroupExists(new GroupID("g2"))).thenReturn(false);
 		
-		final GroupsAPI api = new GroupsAPI(g);
+		final GroupsAPI api = new GroupsAPI(g, HANDLERS);
 		
 		assertThat("incorrect exists", api.getGroupExists("   g1  "),
 				is(ImmutableMap.of("exists", true)));
@@ -1008,7 +1288,7 @@ public class GroupsAPITest {
 			final String groupid,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).getGroupExists(groupid);
+			new GroupsAPI(g, HANDLERS).getGroupExists(groupid);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1019,7 +1299,7 @@ public class GroupsAPITest {
 	public void visitGroup() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		new GroupsAPI(g).visitGroup("tokeytoke", "gid1");
+		new GroupsAPI(g, HANDLERS).visitGroup("tokeytoke", "gid1");
 		
 		verify(g).userVisited(new Token("tokeytoke"), new GroupID("gid1"));
 	}
@@ -1040,7 +1320,7 @@ public class GroupsAPITest {
 			final String gid,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).visitGroup(t, gid);
+			new GroupsAPI(g, HANDLERS).visitGroup(t, gid);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1064,7 +1344,8 @@ public class GroupsAPITest {
 						.withResource(ResourceDescriptor.from(new UserName("foo")))
 						.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).requestGroupMembership("t", "gid");
+		final Map<String, Object> ret = new GroupsAPI(g, HANDLERS)
+				.requestGroupMembership("t", "gid");
 		
 		assertThat("incorrect request", ret, is(MapBuilder.newHashMap()
 				.with("id", id.toString())
@@ -1110,7 +1391,7 @@ public class GroupsAPITest {
 			final String groupid,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).requestGroupMembership(token, groupid);
+			new GroupsAPI(g, HANDLERS).requestGroupMembership(token, groupid);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1134,7 +1415,7 @@ public class GroupsAPITest {
 						.withResource(ResourceDescriptor.from(new UserName("bar")))
 						.build());
 		
-		final Map<String, Object> ret = new GroupsAPI(g).inviteMember("t", "gid", "bar");
+		final Map<String, Object> ret = new GroupsAPI(g, HANDLERS).inviteMember("t", "gid", "bar");
 		
 		assertThat("incorrect request", ret, is(MapBuilder.newHashMap()
 				.with("id", id.toString())
@@ -1186,7 +1467,7 @@ public class GroupsAPITest {
 			final String user,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).inviteMember(token, groupid, user);
+			new GroupsAPI(g, HANDLERS).inviteMember(token, groupid, user);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1273,10 +1554,10 @@ public class GroupsAPITest {
 								.build()
 						));
 		
-		final List<Map<String, Object>> ret = new GroupsAPI(g).getRequestsForGroup(
+		final StreamingOutput ret = new GroupsAPI(g, HANDLERS).getRequestsForGroup(
 				"t", "id", excludeUpTo, closed, sortOrder);
 		
-		assertThat("incorrect requests", ret, is(Arrays.asList(
+		assertThat("incorrect requests", toJSON(ret), is(toJSON(Arrays.asList(
 				MapBuilder.newHashMap()
 						.with("id", id1.toString())
 						.with("groupid", "id")
@@ -1301,7 +1582,7 @@ public class GroupsAPITest {
 						.with("moddate", 25000L)
 						.with("expiredate", 30000L)
 						.build()
-				)));
+				))));
 	}
 	
 	@Test
@@ -1347,7 +1628,8 @@ public class GroupsAPITest {
 			final String sortOrder,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).getRequestsForGroup(token, groupid, excludeUpTo, null, sortOrder);
+			new GroupsAPI(g, HANDLERS)
+					.getRequestsForGroup(token, groupid, excludeUpTo, null, sortOrder);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1358,7 +1640,7 @@ public class GroupsAPITest {
 	public void removeMember() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		new GroupsAPI(g).removeMember("t", "i", "foo");
+		new GroupsAPI(g, HANDLERS).removeMember("t", "i", "foo");
 		
 		verify(g).removeMember(new Token("t"), new GroupID("i"), new UserName("foo"));
 	}
@@ -1399,7 +1681,7 @@ public class GroupsAPITest {
 			final String user,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).removeMember(token, groupid, user);
+			new GroupsAPI(g, HANDLERS).removeMember(token, groupid, user);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1410,7 +1692,7 @@ public class GroupsAPITest {
 	public void promoteMember() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		new GroupsAPI(g).promoteMember("t", "i", "foo");
+		new GroupsAPI(g, HANDLERS).promoteMember("t", "i", "foo");
 		
 		verify(g).promoteMember(new Token("t"), new GroupID("i"), new UserName("foo"));
 	}
@@ -1450,7 +1732,7 @@ public class GroupsAPITest {
 			final String user,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).promoteMember(token, groupid, user);
+			new GroupsAPI(g, HANDLERS).promoteMember(token, groupid, user);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1461,7 +1743,7 @@ public class GroupsAPITest {
 	public void demoteAdmin() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		new GroupsAPI(g).demoteAdmin("t", "i", "foo");
+		new GroupsAPI(g, HANDLERS).demoteAdmin("t", "i", "foo");
 		
 		verify(g).demoteAdmin(new Token("t"), new GroupID("i"), new UserName("foo"));
 	}
@@ -1501,7 +1783,7 @@ public class GroupsAPITest {
 			final String user,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).demoteAdmin(token, groupid, user);
+			new GroupsAPI(g, HANDLERS).demoteAdmin(token, groupid, user);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1517,7 +1799,7 @@ public class GroupsAPITest {
 		fields.put("f2", null);
 		
 		
-		new GroupsAPI(g).updateUser("   tok  ", "   gid  \t  ", "user",
+		new GroupsAPI(g, HANDLERS).updateUser("   tok  ", "   gid  \t  ", "user",
 				new UpdateUserJSON(fields));
 		
 		verify(g).updateUser(new Token("   tok  "), new GroupID("gid"), new UserName("user"),
@@ -1534,7 +1816,7 @@ public class GroupsAPITest {
 		fields.put("f2", "     \t    ");
 		
 		
-		new GroupsAPI(g).updateUser("   tok  ", "   gid  \t  ", "user",
+		new GroupsAPI(g, HANDLERS).updateUser("   tok  ", "   gid  \t  ", "user",
 				new UpdateUserJSON(fields));
 		
 		verify(g).updateUser(new Token("   tok  "), new GroupID("gid"), new UserName("user"),
@@ -1551,7 +1833,7 @@ public class GroupsAPITest {
 		fields.put("f2", "  \t    val2");
 		
 		
-		new GroupsAPI(g).updateUser("   tok  ", "   gid  \t  ", "user",
+		new GroupsAPI(g, HANDLERS).updateUser("   tok  ", "   gid  \t  ", "user",
 				new UpdateUserJSON(fields));
 		
 		verify(g).updateUser(new Token("   tok  "), new GroupID("gid"), new UserName("user"),
@@ -1642,13 +1924,31 @@ public class GroupsAPITest {
 			final UpdateUserJSON body,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).updateUser(token, groupID, user, body);
+			new GroupsAPI(g, HANDLERS).updateUser(token, groupID, user, body);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
 	
+	@Test
+	public void addResourceAsync() throws Exception {
+		final Groups g = mock(Groups.class);
+		final HandlerExecutor h = mock(HandlerExecutor.class);
+		final AsyncResponse async = mock(AsyncResponse.class);
+		
+		when(g.addResource(new Token("my token"), new GroupID("foo"),
+				new ResourceType("workspace"), new ResourceID("34")))
+				.thenReturn(Optional.empty());
+		
+		new GroupsAPI(g, h).addResource(async, "my token", "foo", "workspace", "34");
+		
+		final ArgumentCaptor<Handler> handler = ArgumentCaptor.forClass(Handler.class);
+		verify(h).run(eq(async), handler.capture());
+		assertThat("incorrect ret", handler.getValue().handle(),
+				is(ImmutableMap.of("complete", true)));
+	}
+	
 	@Test
 	public void addResourceNoRequest() throws Exception {
 		final Groups g = mock(Groups.class);
@@ -1657,7 +1957,7 @@ public class GroupsAPITest {
 				new ResourceType("workspace"), new ResourceID("34")))
 				.thenReturn(Optional.empty());
 		
-		final Map<String, Object> ret = new GroupsAPI(g)
+		final Map<String, Object> ret = new GroupsAPI(g, HANDLERS)
 				.addResource("my token", "foo", "workspace", "34");
 		
 		assertThat("incorrect ret", ret, is(ImmutableMap.of("complete", true)));
@@ -1681,7 +1981,7 @@ public class GroupsAPITest {
 						.withResource(new ResourceDescriptor(new ResourceID("42")))
 						.build()));
 		
-		final Map<String, Object> ret = new GroupsAPI(g)
+		final Map<String, Object> ret = new GroupsAPI(g, HANDLERS)
 				.addResource("my token", "foo", "workspace", "42");
 		
 		assertThat("incorrect ret", ret, is(MapBuilder.newHashMap()
@@ -1718,7 +2018,7 @@ public class GroupsAPITest {
 								new ResourceID("mod.meth")))
 						.build()));
 		
-		final Map<String, Object> ret = new GroupsAPI(g)
+		final Map<String, Object> ret = new GroupsAPI(g, HANDLERS)
 				.addResource("my token", "foo", "catalogmethod", "mod.meth");
 		
 		assertThat("incorrect ret", ret, is(MapBuilder.newHashMap()
@@ -1770,7 +2070,7 @@ public class GroupsAPITest {
 			final String w,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).addResource(t, i, type, w);
+			new GroupsAPI(g, HANDLERS).addResource(t, i, type, w);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1781,7 +2081,7 @@ public class GroupsAPITest {
 	public void removeResource() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		new GroupsAPI(g).removeResource("t", "gid", "rtype", "99");
+		new GroupsAPI(g, HANDLERS).removeResource("t", "gid", "rtype", "99");
 		
 		verify(g).removeResource(new Token("t"), new GroupID("gid"), new ResourceType("rtype"),
 				new ResourceID("99"));
@@ -1823,7 +2123,7 @@ public class GroupsAPITest {
 			final String r,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).removeResource(t, i, type, r);
+			new GroupsAPI(g, HANDLERS).removeResource(t, i, type, r);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -1834,7 +2134,7 @@ public class GroupsAPITest {
 	public void getPerms() throws Exception {
 		final Groups g = mock(Groups.class);
 		
-		new GroupsAPI(g).getPerms("t", "gid", "rtype", "99");
+		new GroupsAPI(g, HANDLERS).getPerms("t", "gid", "rtype", "99");
 		
 		verify(g).setReadPermission(new Token("t"), new GroupID("gid"), new ResourceType("rtype"),
 				new ResourceID("99"));
@@ -1876,7 +2176,7 @@ public class GroupsAPITest {
 			final String r,
 			final Exception expected) {
 		try {
-			new GroupsAPI(g).getPerms(t, i, type, r);
+			new GroupsAPI(g, HANDLERS).getPerms(t, i, type, r);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -0,0 +1,23 @@
+package us.kbase.test.groups.service.api;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+import org.junit.Test;
+
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.service.api.Metrics;
+
+public class MetricsTest {
+	
+	@Test
+	public void metrics() {
+		final MetricsRegistry r = new MetricsRegistry();
+		r.counter("foo_total", "foo").inc();
+		
+		assertThat("incorrect metrics", new Metrics(r).metrics(), is(
+				"# HELP foo_total foo\n" +
+				"# TYPE foo_total counter\n" +
+				"foo_total 1\n"));
+	}
+}
@@ -3,21 +3,28 @@ package us.kbase.test.groups.service.api;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static us.kbase.test.groups.TestCommon.inst;
 import static us.kbase.test.groups.TestCommon.set;
+import static us.kbase.test.groups.TestCommon.toJSON;
 
 import java.time.Instant;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -50,6 +57,9 @@ import us.kbase.groups.core.request.RequestID;
 import us.kbase.groups.core.request.RequestType;
 import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.service.HandlerExecutor;
+import us.kbase.groups.service.HandlerExecutor.Handler;
+import us.kbase.groups.service.api.APICommon;
 import us.kbase.groups.service.api.RequestAPI;
 import us.kbase.groups.service.api.RequestAPI.DenyRequestJSON;
 import us.kbase.test.groups.MapBuilder;
@@ -57,6 +67,8 @@ import us.kbase.test.groups.TestCommon;
 
 public class RequestAPITest {
 	
+	private static final HandlerExecutor HANDLERS = mock(HandlerExecutor.class);
+	
 	private static final UUID ID1 = UUID.randomUUID();
 	private static final UUID ID2 = UUID.randomUUID();
 	private static final UUID ID3 = UUID.randomUUID();
@@ -151,7 +163,8 @@ public class RequestAPITest {
 		when(g.getRequest(new Token("t"), new RequestID(id))).thenReturn(
 				new GroupRequestWithActions(REQ_MIN, set(GroupRequestUserAction.CANCEL)));
 		
-		final Map<String, Object> ret = new RequestAPI(g).getRequest("t", id.toString());
+		final Object ret = new RequestAPI(g, HANDLERS).getRequest(
+				mock(Request.class), "t", id.toString()).getEntity();
 		
 		assertThat("incorrect request", ret, is(new MapBuilder<>(new HashMap<>(REQ_MIN_JSON))
 				.with("actions", Arrays.asList("Cancel"))
@@ -168,7 +181,8 @@ public class RequestAPITest {
 				new GroupRequestWithActions(REQ_TARG,
 						set(GroupRequestUserAction.ACCEPT, GroupRequestUserAction.DENY)));
 		
-		final Map<String, Object> ret = new RequestAPI(g).getRequest("t", id.toString());
+		final Object ret = new RequestAPI(g, HANDLERS).getRequest(
+				mock(Request.class), "t", id.toString()).getEntity();
 		
 		assertThat("incorrect request", ret, is(new MapBuilder<>(new HashMap<>(REQ_TARG_JSON))
 				.with("actions", Arrays.asList("Accept", "Deny"))
@@ -184,13 +198,55 @@ public class RequestAPITest {
 		when(g.getRequest(new Token("t"), new RequestID(id))).thenReturn(
 				new GroupRequestWithActions(REQ_DENIED, set()));
 		
-		final Map<String, Object> ret = new RequestAPI(g).getRequest("t", id.toString());
+		final Object ret = new RequestAPI(g, HANDLERS).getRequest(
+				mock(Request.class), "t", id.toString()).getEntity();
 		
 		assertThat("incorrect request", ret, is(new MapBuilder<>(new HashMap<>(REQ_DENIED_JSON))
 				.with("actions", Collections.emptyList())
 				.build()));
 	}
 	
+	@Test
+	public void getRequestWithETag() throws Exception {
+		final Groups g = mock(Groups.class);
+		final Request r = mock(Request.class);
+		
+		final UUID id = UUID.randomUUID();
+		final GroupRequestWithActions req = new GroupRequestWithActions(
+				REQ_MIN, set(GroupRequestUserAction.CANCEL));
+		
+		when(g.getRequest(new Token("t"), new RequestID(id))).thenReturn(req);
+		
+		final Response ret = new RequestAPI(g, HANDLERS).getRequest(r, "t", id.toString());
+		
+		assertThat("incorrect status", ret.getStatus(), is(200));
+		assertThat("incorrect request", ret.getEntity(),
+				is(new MapBuilder<>(new HashMap<>(REQ_MIN_JSON))
+						.with("actions", Arrays.asList("Cancel"))
+						.build()));
+		assertThat("incorrect etag", ret.getEntityTag(), is(APICommon.toGroupRequestETag(req)));
+	}
+	
+	@Test
+	public void getRequestNotModified() throws Exception {
+		final Groups g = mock(Groups.class);
+		final Request r = mock(Request.class);
+		
+		final UUID id = UUID.randomUUID();
+		final GroupRequestWithActions req = new GroupRequestWithActions(
+				REQ_MIN, set(GroupRequestUserAction.CANCEL));
+		
+		when(g.getRequest(new Token("t"), new RequestID(id))).thenReturn(req);
+		when(r.evaluatePreconditions(APICommon.toGroupRequestETag(req)))
+				.thenReturn(Response.notModified());
+		
+		final Response ret = new RequestAPI(g, HANDLERS).getRequest(r, "t", id.toString());
+		
+		assertThat("incorrect status", ret.getStatus(), is(304));
+		assertThat("incorrect entity", ret.getEntity(), is((Object) null));
+		assertThat("incorrect etag", ret.getEntityTag(), is(APICommon.toGroupRequestETag(req)));
+	}
+	
 	@Test
 	public void getRequestFailMissingInput() throws Exception {
 		final Groups g = mock(Groups.class);
@@ -227,7 +283,7 @@ public class RequestAPITest {
 			final String requestid,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).getRequest(token, requestid);
+			new RequestAPI(g, HANDLERS).getRequest(mock(Request.class), token, requestid);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -254,7 +310,8 @@ public class RequestAPITest {
 						.withPublicFieldDeterminer(f -> true)
 						.build());
 		
-		assertThat("incorrect group", new RequestAPI(g).getGroupForRequest("t", id.toString()),
+		assertThat("incorrect group", new RequestAPI(g, HANDLERS)
+				.getGroupForRequest("t", id.toString()),
 				is(MapBuilder.newHashMap()
 						.with("id", "id")
 						.with("private", false)
@@ -294,7 +351,7 @@ public class RequestAPITest {
 			final String requestID,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).getGroupForRequest(token, requestID);
+			new RequestAPI(g, HANDLERS).getGroupForRequest(token, requestID);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -307,7 +364,7 @@ public class RequestAPITest {
 		
 		final UUID id = UUID.randomUUID();
 		
-		new RequestAPI(g).getPerms("t", id.toString());
+		new RequestAPI(g, HANDLERS).getPerms("t", id.toString());
 		
 		verify(g).setReadPermission(new Token("t"), new RequestID(id));
 	}
@@ -336,7 +393,7 @@ public class RequestAPITest {
 			final String requestID,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).getPerms(token, requestID);
+			new RequestAPI(g, HANDLERS).getPerms(token, requestID);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -400,11 +457,11 @@ public class RequestAPITest {
 		when(g.getRequestsForRequester(new Token("t"), params))
 				.thenReturn(Arrays.asList(REQ_DENIED, REQ_MIN, REQ_TARG));
 		
-		final List<Map<String, Object>> ret = new RequestAPI(g).getCreatedRequests(
+		final StreamingOutput ret = new RequestAPI(g, HANDLERS).getCreatedRequests(
 				"t", excludeUpTo, closed, order);
 		
-		assertThat("incorrect reqs", ret, is(Arrays.asList(
-				REQ_DENIED_JSON, REQ_MIN_JSON, REQ_TARG_JSON)));
+		assertThat("incorrect reqs", toJSON(ret), is(toJSON(Arrays.asList(
+				REQ_DENIED_JSON, REQ_MIN_JSON, REQ_TARG_JSON))));
 	}
 	
 	@Test
@@ -444,7 +501,7 @@ public class RequestAPITest {
 			final String sortOrder,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).getCreatedRequests(token, excludeUpTo, null, sortOrder);
+			new RequestAPI(g, HANDLERS).getCreatedRequests(token, excludeUpTo, null, sortOrder);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -508,11 +565,11 @@ public class RequestAPITest {
 		when(g.getRequestsForTarget(new Token("t"), params))
 				.thenReturn(Arrays.asList(REQ_MIN, REQ_DENIED, REQ_TARG));
 		
-		final List<Map<String, Object>> ret = new RequestAPI(g).getTargetedRequests(
+		final StreamingOutput ret = new RequestAPI(g, HANDLERS).getTargetedRequests(
 				"t", excludeUpTo, closed, order);
 		
-		assertThat("incorrect reqs", ret, is(Arrays.asList(
-				REQ_MIN_JSON, REQ_DENIED_JSON, REQ_TARG_JSON)));
+		assertThat("incorrect reqs", toJSON(ret), is(toJSON(Arrays.asList(
+				REQ_MIN_JSON, REQ_DENIED_JSON, REQ_TARG_JSON))));
 	}
 	
 	@Test
@@ -553,7 +610,7 @@ public class RequestAPITest {
 			final String order,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).getTargetedRequests(token, excludeUpTo, null, order);
+			new RequestAPI(g, HANDLERS).getTargetedRequests(token, excludeUpTo, null, order);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -578,7 +635,8 @@ public class RequestAPITest {
 						.withStatus(GroupRequestStatus.canceled())
 						.build());
 		
-		final Map<String, Object> ret = new RequestAPI(g).cancelRequest("tok", id.toString());
+		final Map<String, Object> ret = new RequestAPI(g, HANDLERS)
+				.cancelRequest("tok", id.toString());
 		
 		assertThat("incorrect request", ret, is(MapBuilder.newHashMap()
 				.with("id", id.toString())
@@ -630,13 +688,37 @@ public class RequestAPITest {
 			final String requestid,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).cancelRequest(token, requestid);
+			new RequestAPI(g, HANDLERS).cancelRequest(token, requestid);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
 		}
 	}
 	
+	@Test
+	public void acceptRequestAsync() throws Exception {
+		final Groups g = mock(Groups.class);
+		final HandlerExecutor h = mock(HandlerExecutor.class);
+		final AsyncResponse async = mock(AsyncResponse.class);
+		
+		final UUID id = UUID.randomUUID();
+		
+		when(g.acceptRequest(new Token("tok"), new RequestID(id))).thenReturn(
+				GroupRequest.getBuilder(new RequestID(id), new GroupID("gid"), new UserName("u"),
+						CreateModAndExpireTimes.getBuilder(
+								Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000))
+								.build())
+						.withStatus(GroupRequestStatus.accepted(new UserName("u2")))
+						.build());
+		
+		new RequestAPI(g, h).acceptRequest(async, "tok", id.toString());
+		
+		final ArgumentCaptor<Handler> handler = ArgumentCaptor.forClass(Handler.class);
+		verify(h).run(eq(async), handler.capture());
+		assertThat("incorrect request", handler.getValue().handle(),
+				is(new RequestAPI(g, h).acceptRequest("tok", id.toString())));
+	}
+	
 	@Test
 	public void acceptRequest() throws Exception {
 		final Groups g = mock(Groups.class);
@@ -657,7 +739,8 @@ public class RequestAPITest {
 						.withStatus(GroupRequestStatus.accepted(new UserName("inv2")))
 						.build());
 		
-		final Map<String, Object> ret = new RequestAPI(g).acceptRequest("tok", id.toString());
+		final Map<String, Object> ret = new RequestAPI(g, HANDLERS)
+				.acceptRequest("tok", id.toString());
 		
 		assertThat("incorrect request", ret, is(MapBuilder.newHashMap()
 				.with("id", id.toString())
@@ -709,7 +792,7 @@ public class RequestAPITest {
 			final String requestid,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).acceptRequest(token, requestid);
+			new RequestAPI(g, HANDLERS).acceptRequest(token, requestid);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -755,7 +838,7 @@ public class RequestAPITest {
 						.withStatus(GroupRequestStatus.denied(new UserName("d"), "testreason"))
 						.build());
 		
-		final Map<String, Object> ret = new RequestAPI(g).denyRequest(
+		final Map<String, Object> ret = new RequestAPI(g, HANDLERS).denyRequest(
 				"tok", id.toString(), body);
 		
 		assertThat("incorrect request", ret, is(MapBuilder.newHashMap()
@@ -821,7 +904,7 @@ public class RequestAPITest {
 			final DenyRequestJSON body,
 			final Exception expected) {
 		try {
-			new RequestAPI(g).denyRequest(token, requestid, body);
+			new RequestAPI(g, HANDLERS).denyRequest(token, requestid, body);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
@@ -840,7 +923,7 @@ public class RequestAPITest {
 						new GroupID("id2"), GroupHasRequests.OLD,
 						new GroupID("id3"), GroupHasRequests.NEW));
 		
-		assertThat("incorrect has requests", new RequestAPI(g).groupsHaveRequests(
+		assertThat("incorrect has requests", new RequestAPI(g, HANDLERS).groupsHaveRequests(
 				"tokyn", "  id1  , , id2, id3  \t"),
 				is(ImmutableMap.of(
 						"id1", ImmutableMap.of("new", "None"),
@@ -863,7 +946,7 @@ public class RequestAPITest {
 			final String i,
 			final Exception expected) {
 		try {
-			new RequestAPI(mock(Groups.class)).groupsHaveRequests(t, i);
+			new RequestAPI(mock(Groups.class), HANDLERS).groupsHaveRequests(t, i);
 			fail("expected exception");
 		} catch (Exception got) {
 			TestCommon.assertExceptionCorrect(got, expected);
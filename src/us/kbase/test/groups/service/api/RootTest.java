@@ -17,7 +17,7 @@ import us.kbase.test.groups.TestCommon;
 
 public class RootTest {
 	
-	public static final String SERVER_VER = "0.1.4";
+	public static final String SERVER_VER = "0.1.5";
 	private static final String GIT_ERR = 
 			"Missing git commit file gitcommit, should be in us.kbase.groups";
 	
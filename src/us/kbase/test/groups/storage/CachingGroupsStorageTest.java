@@ -0,0 +1,318 @@
+package us.kbase.test.groups.storage;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static us.kbase.test.groups.TestCommon.inst;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GetChangesParams;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUpdateParams;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.GroupExistsException;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.storage.CachingGroupsStorage;
+import us.kbase.groups.storage.GroupsStorage;
+import us.kbase.groups.storage.exceptions.GroupsStorageException;
+import us.kbase.test.groups.TestCommon;
+
+public class CachingGroupsStorageTest {
+
+	private static final RequestID RID = new RequestID(UUID.randomUUID());
+	
+	private static class FakeTicker extends Ticker {
+	
+		private long nanos = 0;
+		
+		@Override
+		public long read() {
+			return nanos;
+		}
+		
+		public void advance(final int seconds) {
+			nanos += TimeUnit.SECONDS.toNanos(seconds);
+		}
+	}
+	
+	private CachingGroupsStorage getStorage(final GroupsStorage wrapped, final Ticker ticker)
+			throws Throwable {
+		final Constructor<CachingGroupsStorage> con =
+				CachingGroupsStorage.class.getDeclaredConstructor(
+						GroupsStorage.class, int.class, int.class, Ticker.class);
+		con.setAccessible(true);
+		try {
+			return con.newInstance(wrapped, 100, 30, ticker);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private static Group group(final String id, final int modification) throws Exception {
+		return Group.getBuilder(
+				new GroupID(id), new GroupName("name " + id),
+				GroupUser.getBuilder(new UserName("own"), inst(5000)).build(),
+				new CreateAndModTimes(inst(5000), inst(modification)))
+				.build();
+	}
+	
+	private static GroupRequest request(final int modification) throws Exception {
+		return GroupRequest.getBuilder(
+				RID, new GroupID("gid"), new UserName("user"),
+				CreateModAndExpireTimes.getBuilder(inst(5000), inst(100000))
+						.withModificationTime(inst(modification))
+						.build())
+				.build();
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final GroupsStorage s = mock(GroupsStorage.class);
+		failConstruct(null, 1, 1, new NullPointerException("storage"));
+		failConstruct(s, 0, 1, new IllegalArgumentException("cacheSize must be at least 1"));
+		failConstruct(s, 1, 0, new IllegalArgumentException(
+				"cacheExpirationSec must be at least 1"));
+	}
+	
+	private void failConstruct(
+			final GroupsStorage s,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final Exception expected) {
+		try {
+			new CachingGroupsStorage(s, cacheSize, cacheExpirationSec);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void passThroughMethods() throws Exception {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(w, 100, 30);
+		
+		when(w.getGroupExists(new GroupID("gid"))).thenReturn(true);
+		when(w.getChangedRequests(GetChangesParams.getBuilder().build()))
+				.thenReturn(Arrays.asList(request(6000)));
+		
+		assertThat("incorrect exists", s.getGroupExists(new GroupID("gid")), is(true));
+		assertThat("incorrect requests", s.getChangedRequests(
+				GetChangesParams.getBuilder().build()), is(Arrays.asList(request(6000))));
+		
+		// should always go to the wrapped storage
+		s.getGroupExists(new GroupID("gid"));
+		verify(w, times(2)).getGroupExists(new GroupID("gid"));
+	}
+	
+	@Test
+	public void getGroupCached() throws Throwable {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final FakeTicker t = new FakeTicker();
+		final CachingGroupsStorage s = getStorage(w, t);
+		
+		when(w.getGroup(new GroupID("gid")))
+				.thenReturn(group("gid", 6000))
+				.thenReturn(group("gid", 7000));
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+		t.advance(29);
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+		t.advance(1);
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+		
+		verify(w, times(2)).getGroup(new GroupID("gid"));
+	}
+	
+	@Test
+	public void getGroupNotCachedOnFail() throws Exception {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(w, 100, 30);
+		
+		when(w.getGroup(new GroupID("gid")))
+				.thenThrow(new NoSuchGroupException("gid"))
+				.thenReturn(group("gid", 6000));
+		
+		try {
+			s.getGroup(new GroupID("gid"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchGroupException("gid"));
+		}
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+	}
+	
+	@Test
+	public void getGroupInvalidatedDuringLoad() throws Exception {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(w, 100, 30);
+		
+		// simulates another instance changing the group while it's being read
+		when(w.getGroup(new GroupID("gid")))
+				.thenAnswer(inv -> {
+					s.groupChanged(new GroupID("gid"));
+					return group("gid", 6000);
+				})
+				.thenReturn(group("gid", 7000));
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+		
+		verify(w, times(2)).getGroup(new GroupID("gid"));
+	}
+	
+	@Test
+	public void getRequestCached() throws Throwable {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final FakeTicker t = new FakeTicker();
+		final CachingGroupsStorage s = getStorage(w, t);
+		
+		when(w.getRequest(RID)).thenReturn(request(6000)).thenReturn(request(7000));
+		
+		assertThat("incorrect request", s.getRequest(RID), is(request(6000)));
+		t.advance(29);
+		assertThat("incorrect request", s.getRequest(RID), is(request(6000)));
+		t.advance(1);
+		assertThat("incorrect request", s.getRequest(RID), is(request(7000)));
+		
+		verify(w, times(2)).getRequest(RID);
+	}
+	
+	@Test
+	public void listenerMethodsInvalidate() throws Exception {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(w, 100, 30);
+		
+		when(w.getGroup(new GroupID("gid")))
+				.thenReturn(group("gid", 6000))
+				.thenReturn(group("gid", 7000))
+				.thenReturn(group("gid", 8000));
+		when(w.getRequest(RID))
+				.thenReturn(request(6000))
+				.thenReturn(request(7000))
+				.thenReturn(request(8000));
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+		assertThat("incorrect request", s.getRequest(RID), is(request(6000)));
+		
+		s.groupChanged(new GroupID("gid"));
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+		assertThat("incorrect request", s.getRequest(RID), is(request(6000)));
+		
+		s.requestChanged(RID);
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+		assertThat("incorrect request", s.getRequest(RID), is(request(7000)));
+		
+		s.allChanged();
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 8000)));
+		assertThat("incorrect request", s.getRequest(RID), is(request(8000)));
+	}
+	
+	@Test
+	public void writesInvalidate() throws Exception {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(w, 100, 30);
+		
+		when(w.getGroup(new GroupID("gid")))
+				.thenReturn(group("gid", 6000))
+				.thenReturn(group("gid", 7000))
+				.thenReturn(group("gid", 8000));
+		when(w.getRequest(RID))
+				.thenReturn(request(6000))
+				.thenReturn(request(7000));
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+		s.updateGroup(GroupUpdateParams.getBuilder(new GroupID("gid"))
+				.withName(new GroupName("n")).build(), inst(7000));
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+		s.addAdmin(new GroupID("gid"), new UserName("u"), inst(8000));
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 8000)));
+		
+		assertThat("incorrect request", s.getRequest(RID), is(request(6000)));
+		s.closeRequest(RID, GroupRequestStatus.canceled(), inst(7000));
+		assertThat("incorrect request", s.getRequest(RID), is(request(7000)));
+		
+		verify(w).addAdmin(new GroupID("gid"), new UserName("u"), inst(8000));
+		verify(w).closeRequest(RID, GroupRequestStatus.canceled(), inst(7000));
+	}
+	
+	@Test
+	public void failedWriteInvalidates() throws Exception {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(w, 100, 30);
+		
+		when(w.getGroup(new GroupID("gid")))
+				.thenReturn(group("gid", 6000))
+				.thenReturn(group("gid", 7000));
+		// the write may have been applied before the failure
+		doThrow(new GroupsStorageException("oops"))
+				.when(w).demoteAdmin(new GroupID("gid"), new UserName("u"), inst(7000));
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+		try {
+			s.demoteAdmin(new GroupID("gid"), new UserName("u"), inst(7000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupsStorageException("oops"));
+		}
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+	}
+	
+	@Test
+	public void importsInvalidate() throws Exception {
+		final GroupsStorage w = mock(GroupsStorage.class);
+		final CachingGroupsStorage s = new CachingGroupsStorage(w, 100, 30);
+		
+		when(w.getGroup(new GroupID("gid")))
+				.thenReturn(group("gid", 6000))
+				.thenReturn(group("gid", 7000))
+				.thenReturn(group("gid", 8000));
+		when(w.getRequest(RID))
+				.thenReturn(request(6000))
+				.thenReturn(request(7000));
+		// the groups prior to the duplicate are stored
+		doThrow(new GroupExistsException("gid2"))
+				.when(w).importGroups(Arrays.asList(group("gid", 8000), group("gid2", 6000)));
+		
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 6000)));
+		s.importGroups(Arrays.asList(group("gid", 7000)));
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 7000)));
+		try {
+			s.importGroups(Arrays.asList(group("gid", 8000), group("gid2", 6000)));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupExistsException("gid2"));
+		}
+		assertThat("incorrect group", s.getGroup(new GroupID("gid")), is(group("gid", 8000)));
+		
+		assertThat("incorrect request", s.getRequest(RID), is(request(6000)));
+		s.importRequests(Arrays.asList(request(7000)));
+		assertThat("incorrect request", s.getRequest(RID), is(request(7000)));
+		
+		verify(w).importGroups(Arrays.asList(group("gid", 7000)));
+		verify(w).importRequests(Arrays.asList(request(7000)));
+	}
+}
@@ -0,0 +1,741 @@
+package us.kbase.test.groups.storage.memory;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.CreateModAndExpireTimes;
+import us.kbase.groups.core.GetChangesParams;
+import us.kbase.groups.core.GetGroupsParams;
+import us.kbase.groups.core.GetRequestsParams;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.Group.Role;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupIDAndName;
+import us.kbase.groups.core.GroupIDNameMembership;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.GroupSummary;
+import us.kbase.groups.core.GroupUpdateParams;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.OptionalGroupFields;
+import us.kbase.groups.core.OptionalString;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.GroupExistsException;
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.core.exceptions.NoSuchRequestException;
+import us.kbase.groups.core.exceptions.NoSuchResourceException;
+import us.kbase.groups.core.exceptions.NoSuchUserException;
+import us.kbase.groups.core.exceptions.RequestExistsException;
+import us.kbase.groups.core.exceptions.ResourceExistsException;
+import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.PendingNotification;
+import us.kbase.groups.core.notifications.PendingNotification.Type;
+import us.kbase.groups.core.request.GroupRequest;
+import us.kbase.groups.core.request.GroupRequestStatus;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.core.request.RequestType;
+import us.kbase.groups.core.resource.ResourceAdministrativeID;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
+import us.kbase.groups.storage.memory.InMemoryGroupsStorage;
+import us.kbase.test.groups.TestCommon;
+
+/* Tests the in memory storage against the parts of the storage contract most likely to
+ * diverge from the MongoDB implementation. The full contract is exercised against MongoDB in
+ * MongoGroupsStorageOpsTest.
+ */
+public class InMemoryGroupsStorageTest {
+
+	private InMemoryGroupsStorage storage;
+	
+	@Before
+	public void before() {
+		storage = new InMemoryGroupsStorage();
+		storage.stopExpirationAgent();
+	}
+	
+	@After
+	public void after() {
+		storage.stopExpirationAgent();
+	}
+	
+	private GroupUser toGUser(final String username) throws Exception {
+		return GroupUser.getBuilder(new UserName(username), inst(20000)).build();
+	}
+	
+	private Group.Builder group(final String id) throws Exception {
+		return group(id, 30000);
+	}
+	
+	private Group.Builder group(final String id, final int modTime) throws Exception {
+		return Group.getBuilder(new GroupID(id), new GroupName("name " + id), toGUser("own"),
+				new CreateAndModTimes(inst(20000), inst(modTime)));
+	}
+	
+	private ResourceDescriptor rd(final String aid, final String rid) throws Exception {
+		return new ResourceDescriptor(new ResourceAdministrativeID(aid), new ResourceID(rid));
+	}
+	
+	@Test
+	public void createAndGetGroup() throws Exception {
+		final Group g = group("gid")
+				.withMember(toGUser("m"))
+				.withAdministrator(toGUser("a"))
+				.withResource(new ResourceType("ws"), rd("1", "1"), inst(25000))
+				.withCustomField(new NumberedCustomField("f-1"), "val")
+				.withIsPrivate(true)
+				.withPrivateMemberList(false)
+				.build();
+		storage.createGroup(g);
+		
+		assertThat("incorrect group", storage.getGroup(new GroupID("gid")), is(g));
+		assertThat("incorrect exists", storage.getGroupExists(new GroupID("gid")), is(true));
+		assertThat("incorrect exists", storage.getGroupExists(new GroupID("gid2")), is(false));
+		assertThat("incorrect member groups", storage.getMemberGroups(new UserName("a")),
+				is(Arrays.asList(
+						GroupIDAndName.of(new GroupID("gid"), new GroupName("name gid")))));
+	}
+	
+	@Test
+	public void createGroupFailDuplicate() throws Exception {
+		storage.createGroup(group("gid").build());
+		try {
+			storage.createGroup(group("gid").build());
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupExistsException("gid"));
+		}
+	}
+	
+	@Test
+	public void importAndProcessGroups() throws Exception {
+		final Group g1 = group("gid1")
+				.withAdministrator(toGUser("a"))
+				.withResource(new ResourceType("ws"), rd("1", "1"), inst(25000))
+				.build();
+		final Group g2 = group("gid2").withMember(toGUser("m")).build();
+		final Group g3 = group("gid3").build();
+		storage.createGroup(g2);
+		storage.importGroups(Arrays.asList(g3, g1));
+		storage.importGroups(Collections.emptyList());
+		
+		final List<Group> got = new ArrayList<>();
+		storage.processGroups(g -> got.add(g));
+		assertThat("incorrect groups", got, is(Arrays.asList(g1, g2, g3)));
+		assertThat("incorrect member groups", storage.getMemberGroups(new UserName("a")),
+				is(Arrays.asList(
+						GroupIDAndName.of(new GroupID("gid1"), new GroupName("name gid1")))));
+	}
+	
+	@Test
+	public void importGroupsFailDuplicate() throws Exception {
+		storage.createGroup(group("gid2").build());
+		try {
+			storage.importGroups(Arrays.asList(
+					group("gid1").build(), group("gid2").build(), group("gid3").build()));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupExistsException("gid2"));
+		}
+		// the groups prior to the duplicate are stored
+		assertThat("incorrect exists", storage.getGroupExists(new GroupID("gid1")), is(true));
+		assertThat("incorrect exists", storage.getGroupExists(new GroupID("gid3")), is(false));
+	}
+	
+	@Test
+	public void getGroupFailNoSuchGroup() throws Exception {
+		try {
+			storage.getGroup(new GroupID("gid"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchGroupException("gid"));
+		}
+	}
+	
+	@Test
+	public void updateGroup() throws Exception {
+		final NumberedCustomField f = new NumberedCustomField("f");
+		storage.createGroup(group("gid").withCustomField(f, "val").build());
+		
+		// no change, so no mod date update
+		storage.updateGroup(GroupUpdateParams.getBuilder(new GroupID("gid"))
+				.withName(new GroupName("name gid"))
+				.withOptionalFields(OptionalGroupFields.getBuilder()
+						.withCustomField(new NumberedCustomField("f2"), OptionalString.empty())
+						.build())
+				.build(),
+				inst(40000));
+		assertThat("incorrect group", storage.getGroup(new GroupID("gid")),
+				is(group("gid").withCustomField(f, "val").build()));
+		
+		storage.updateGroup(GroupUpdateParams.getBuilder(new GroupID("gid"))
+				.withName(new GroupName("new"))
+				.withOptionalFields(OptionalGroupFields.getBuilder()
+						.withNullableIsPrivate(true)
+						.withCustomField(f, OptionalString.empty())
+						.build())
+				.build(),
+				inst(50000));
+		assertThat("incorrect group", storage.getGroup(new GroupID("gid")),
+				is(Group.getBuilder(new GroupID("gid"), new GroupName("new"), toGUser("own"),
+						new CreateAndModTimes(inst(20000), inst(50000)))
+						.withIsPrivate(true)
+						.build()));
+	}
+	
+	@Test
+	public void memberOperations() throws Exception {
+		final GroupID gid = new GroupID("gid");
+		storage.createGroup(group("gid").build());
+		storage.addMember(gid, toGUser("m"), inst(40000));
+		storage.addAdmin(gid, new UserName("m"), inst(50000));
+		
+		assertThat("incorrect group", storage.getGroup(gid), is(group("gid", 50000)
+				.withAdministrator(toGUser("m"))
+				.build()));
+		
+		failAddMember(gid, "own", new UserIsMemberException("User own is the owner of group gid"));
+		failAddMember(gid, "m", new UserIsMemberException(
+				"User m is an administrator of group gid"));
+		
+		storage.demoteAdmin(gid, new UserName("m"), inst(60000));
+		failAddMember(gid, "m", new UserIsMemberException(
+				"User m is already a member of group gid"));
+		
+		storage.removeMember(gid, new UserName("m"), inst(70000));
+		assertThat("incorrect group", storage.getGroup(gid),
+				is(group("gid", 70000).build()));
+		assertThat("incorrect member groups", storage.getMemberGroups(new UserName("m")),
+				is(Collections.emptyList()));
+		
+		try {
+			storage.removeMember(gid, new UserName("m"), inst(80000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchUserException(
+					"No member m in group gid"));
+		}
+		try {
+			storage.addAdmin(gid, new UserName("m"), inst(80000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchUserException(
+					"User m must be a member of group gid before admin promotion"));
+		}
+	}
+	
+	private void failAddMember(final GroupID gid, final String user, final Exception expected) {
+		try {
+			storage.addMember(gid, toGUser(user), inst(80000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void updateUser() throws Exception {
+		final GroupID gid = new GroupID("gid");
+		final NumberedCustomField f = new NumberedCustomField("f");
+		storage.createGroup(group("gid").withMember(toGUser("m")).build());
+		
+		storage.updateUser(gid, new UserName("m"), inst(35000));
+		storage.updateUser(gid, new UserName("m"), ImmutableMap.of(f, OptionalString.of("v")),
+				inst(40000));
+		
+		assertThat("incorrect group", storage.getGroup(gid), is(group("gid", 40000)
+				.withMember(GroupUser.getBuilder(new UserName("m"), inst(20000))
+						.withNullableLastVisit(inst(35000))
+						.withCustomField(f, "v")
+						.build())
+				.build()));
+		
+		try {
+			storage.updateUser(gid, new UserName("x"), inst(35000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchUserException(
+					"User x is not a member of group gid"));
+		}
+	}
+	
+	@Test
+	public void resources() throws Exception {
+		final GroupID gid = new GroupID("gid");
+		final ResourceType t = new ResourceType("ws");
+		storage.createGroup(group("gid").build());
+		storage.addResource(gid, t, rd("1", "1"), inst(40000));
+		
+		assertThat("incorrect group", storage.getGroup(gid), is(group("gid", 40000)
+				.withResource(t, rd("1", "1"), inst(40000))
+				.build()));
+		try {
+			storage.addResource(gid, t, rd("1", "1"), inst(50000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new ResourceExistsException("ws 1"));
+		}
+		
+		storage.removeResource(gid, t, new ResourceID("1"), inst(50000));
+		assertThat("incorrect group", storage.getGroup(gid),
+				is(group("gid", 50000).build()));
+		try {
+			storage.removeResource(gid, t, new ResourceID("1"), inst(60000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchResourceException(
+					"Group gid does not include ws 1"));
+		}
+	}
+	
+	@Test
+	public void getGroupsAndSummaries() throws Exception {
+		final ResourceType t = new ResourceType("ws");
+		storage.createGroup(group("a").build());
+		storage.createGroup(group("b").withIsPrivate(true).withMember(toGUser("m")).build());
+		storage.createGroup(group("c").withIsPrivate(true).build());
+		storage.createGroup(group("d").withResource(t, rd("1", "1")).build());
+		
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		assertThat("incorrect groups", storage.getGroups(p, null), is(Arrays.asList(
+				group("a").build(), group("d").withResource(t, rd("1", "1")).build())));
+		assertThat("incorrect groups", storage.getGroups(GetGroupsParams.getBuilder()
+				.withNullableSortAscending(false)
+				.withNullableExcludeUpTo("d")
+				.withNullableLimit(1)
+				.build(), new UserName("m")),
+				is(Arrays.asList(group("b").withIsPrivate(true).withMember(toGUser("m"))
+						.build())));
+		
+		assertThat("incorrect summaries", storage.getGroupSummaries(
+				GetGroupsParams.getBuilder().withNullableExcludeUpTo("a").build(),
+				new UserName("own"), set(t)),
+				is(Arrays.asList(
+						summary("b", 2).withIsPrivate(true).build(),
+						summary("c", 1).withIsPrivate(true).build(),
+						summary("d", 1).withResourceCount(t, 1).build())));
+		
+		assertThat("incorrect names", storage.getGroupNames(new UserName("m"),
+				set(new GroupID("c"), new GroupID("b"))), is(Arrays.asList(
+						GroupIDNameMembership.getBuilder(new GroupID("b"))
+								.withGroupName(new GroupName("name b"))
+								.withIsMember(true)
+								.withIsPrivate(true)
+								.build(),
+						GroupIDNameMembership.getBuilder(new GroupID("c"))
+								.withGroupName(new GroupName("name c"))
+								.withIsMember(false)
+								.withIsPrivate(true)
+								.build())));
+	}
+	
+	@Test
+	public void getGroupSummariesForResource() throws Exception {
+		final ResourceType t = new ResourceType("ws");
+		final ResourceType t2 = new ResourceType("cat");
+		storage.createGroup(group("a").withResource(t, rd("1", "1")).build());
+		storage.createGroup(group("b").withIsPrivate(true).withMember(toGUser("m")).build());
+		storage.createGroup(group("c").withResource(t2, rd("1", "1")).build());
+		storage.createGroup(group("d").withResource(t, rd("1", "1")).build());
+		storage.addResource(new GroupID("b"), t, rd("1", "1"), inst(30000));
+		storage.addResource(new GroupID("c"), t, rd("2", "2"), inst(30000));
+		
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		assertThat("incorrect summaries", storage.getGroupSummariesForResource(
+				t, new ResourceID("1"), p, new UserName("m"), set()),
+				is(Arrays.asList(
+						summary("a", 1).withUserRole(Role.NONE, null).build(),
+						summary("b", 2).withIsPrivate(true)
+								.withUserRole(Role.MEMBER, null).build(),
+						summary("d", 1).withUserRole(Role.NONE, null).build())));
+		assertThat("incorrect summaries", storage.getGroupSummariesForResource(
+				t, new ResourceID("1"), GetGroupsParams.getBuilder()
+						.withNullableSortAscending(false)
+						.withNullableExcludeUpTo("d")
+						.withNullableLimit(1)
+						.build(),
+				null, set(t)),
+				is(Arrays.asList(summary("a", 1).withUserRole(Role.NONE, null)
+						.withResourceCount(t, 1).build())));
+		assertThat("incorrect summaries", storage.getGroupSummariesForResource(
+				t2, new ResourceID("1"), p, new UserName("own"), set()),
+				is(Arrays.asList(summary("c", 1).build())));
+		
+		storage.removeResource(new GroupID("a"), t, new ResourceID("1"), inst(30000));
+		storage.removeResource(new GroupID("b"), t, new ResourceID("1"), inst(30000));
+		assertThat("incorrect summaries", storage.getGroupSummariesForResource(
+				t, new ResourceID("1"), p, new UserName("own"), set()),
+				is(Arrays.asList(summary("d", 1).build())));
+		assertThat("incorrect summaries", storage.getGroupSummariesForResource(
+				t, new ResourceID("3"), p, new UserName("own"), set()),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getChangedGroupSummaries() throws Exception {
+		storage.createGroup(group("a", 40000).build());
+		storage.createGroup(group("b", 30000).withIsPrivate(true).withMember(toGUser("m"))
+				.build());
+		storage.createGroup(group("c", 30000).build());
+		storage.createGroup(group("d").withIsPrivate(true).build());
+		storage.createGroup(group("e", 20000).build());
+		storage.addResource(new GroupID("e"), new ResourceType("ws"), rd("1", "1"),
+				inst(50000));
+		
+		final GroupSummary a = GroupSummary.getBuilder(new GroupID("a"),
+				new GroupName("name a"), new UserName("own"),
+				new CreateAndModTimes(inst(20000), inst(40000)), 1).build();
+		final GroupSummary c = GroupSummary.getBuilder(new GroupID("c"),
+				new GroupName("name c"), new UserName("own"),
+				new CreateAndModTimes(inst(20000), inst(30000)), 1).build();
+		final GroupSummary d = GroupSummary.getBuilder(new GroupID("d"),
+				new GroupName("name d"), new UserName("own"),
+				new CreateAndModTimes(inst(20000), inst(30000)), 1)
+				.withIsPrivate(true)
+				.build();
+		final GroupSummary e = GroupSummary.getBuilder(new GroupID("e"),
+				new GroupName("name e"), new UserName("own"),
+				new CreateAndModTimes(inst(20000), inst(50000)), 1).build();
+		
+		// private groups are included with no user role
+		assertThat("incorrect summaries", storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().build(), set()),
+				is(Arrays.asList(
+						GroupSummary.getBuilder(new GroupID("b"), new GroupName("name b"),
+								new UserName("own"),
+								new CreateAndModTimes(inst(20000), inst(30000)), 2)
+								.withIsPrivate(true)
+								.build(),
+						c, d, a, e)));
+		assertThat("incorrect summaries", storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().withNullableAfter(inst(30000), "b")
+						.withNullableLimit(2).build(),
+				set()),
+				is(Arrays.asList(c, d)));
+		assertThat("incorrect summaries", storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().withNullableAfter(inst(30000), null).build(),
+				set()),
+				is(Arrays.asList(a, e)));
+	}
+	
+	@Test
+	public void searchGroupSummaries() throws Exception {
+		final NumberedCustomField desc = new NumberedCustomField("desc");
+		final NumberedCustomField tag = new NumberedCustomField("tag-1");
+		storage.createGroup(group("a").withCustomField(desc, "soil water").build());
+		storage.createGroup(group("b", "soil").withCustomField(tag, "water").build());
+		storage.createGroup(group("c", "soil water").withIsPrivate(true)
+				.withMember(toGUser("m")).build());
+		storage.createGroup(group("d", "water").build());
+		
+		final GroupSearchParams p = GroupSearchParams.getBuilder("Soil, water").build();
+		
+		// name only
+		assertThat("incorrect summaries", storage.searchGroupSummaries(p, null, set(), set()),
+				is(Arrays.asList(searchSummary("b", "soil").build(),
+						searchSummary("d", "water").build())));
+		
+		// relevance, then id
+		assertThat("incorrect summaries", storage.searchGroupSummaries(p, new UserName("m"),
+				set(), set(new CustomField("desc"), new CustomField("tag"))),
+				is(Arrays.asList(
+						searchSummary("a", "name a").withCustomField(desc, "soil water")
+								.build(),
+						searchSummary("b", "soil").withCustomField(tag, "water").build(),
+						searchSummary("c", "soil water", 2).withIsPrivate(true)
+								.withUserRole(Role.MEMBER, null).build(),
+						searchSummary("d", "water").build())));
+		
+		// sort descending, offset, and limit
+		assertThat("incorrect summaries", storage.searchGroupSummaries(
+				GroupSearchParams.getBuilder("soil water")
+						.withNullableSortAscending(false)
+						.withNullableOffset(1)
+						.withNullableLimit(2)
+						.build(),
+				new UserName("m"), set(), set(new CustomField("tag"))),
+				is(Arrays.asList(
+						searchSummary("b", "soil").withCustomField(tag, "water").build(),
+						searchSummary("d", "water").build())));
+		
+		// tokens are updated with the group
+		storage.updateGroup(GroupUpdateParams.getBuilder(new GroupID("d"))
+				.withName(new GroupName("rock"))
+				.withOptionalFields(OptionalGroupFields.getBuilder()
+						.withCustomField(desc, OptionalString.of("water"))
+						.build())
+				.build(),
+				inst(30000));
+		
+		assertThat("incorrect summaries", storage.searchGroupSummaries(
+				GroupSearchParams.getBuilder("water rock").build(), null, set(), set()),
+				is(Arrays.asList(searchSummary("d", "rock").withCustomField(desc, "water")
+						.build())));
+		assertThat("incorrect summaries", storage.searchGroupSummaries(
+				GroupSearchParams.getBuilder("mud").build(), null, set(),
+				set(new CustomField("desc"))),
+				is(Collections.emptyList()));
+	}
+	
+	private Group.Builder group(final String id, final String name) throws Exception {
+		return Group.getBuilder(new GroupID(id), new GroupName(name), toGUser("own"),
+				new CreateAndModTimes(inst(20000), inst(30000)));
+	}
+	
+	private GroupSummary.Builder searchSummary(final String id, final String name)
+			throws Exception {
+		return searchSummary(id, name, 1);
+	}
+	
+	private GroupSummary.Builder searchSummary(
+			final String id,
+			final String name,
+			final int memberCount)
+			throws Exception {
+		return GroupSummary.getBuilder(new GroupID(id), new GroupName(name),
+				new UserName("own"), new CreateAndModTimes(inst(20000), inst(30000)),
+				memberCount);
+	}
+	
+	private GroupSummary.Builder summary(final String id, final int memberCount)
+			throws Exception {
+		return GroupSummary.getBuilder(new GroupID(id), new GroupName("name " + id),
+				new UserName("own"), new CreateAndModTimes(inst(20000), inst(30000)),
+				memberCount)
+				.withUserRole(Role.OWNER, null);
+	}
+	
+	private GroupRequest.Builder request(final UUID id, final String requester, final int time)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("gid"), new UserName(requester),
+				CreateModAndExpireTimes.getBuilder(inst(time), inst(time + 10000)).build());
+	}
+	
+	@Test
+	public void storeRequestFailDuplicates() throws Exception {
+		final UUID id = UUID.randomUUID();
+		storage.storeRequest(request(id, "u", 20000).build());
+		try {
+			storage.storeRequest(request(id, "v", 20000).build());
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(String.format(
+					"ID %s already exists in the database. The programmer is responsible " +
+					"for maintaining unique IDs.", id)));
+		}
+		try {
+			storage.storeRequest(request(UUID.randomUUID(), "u", 30000).build());
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new RequestExistsException(
+					"Request exists with ID: " + id));
+		}
+		
+		// closed requests do not block new requests
+		storage.closeRequest(new RequestID(id), GroupRequestStatus.canceled(), inst(25000));
+		storage.storeRequest(request(UUID.randomUUID(), "u", 30000).build());
+		storage.storeRequest(request(UUID.randomUUID(), "v", 30000)
+				.withStatus(GroupRequestStatus.expired()).build());
+		storage.storeRequest(request(UUID.randomUUID(), "v", 30000)
+				.withStatus(GroupRequestStatus.expired()).build());
+	}
+	
+	@Test
+	public void getRequests() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID id3 = UUID.randomUUID();
+		final GroupRequest r1 = request(id1, "u", 20000).build();
+		final GroupRequest r2 = request(id2, "u", 30000).withType(RequestType.INVITE)
+				.withResourceType(new ResourceType("ws"))
+				.withResource(rd("5", "5"))
+				.build();
+		final GroupRequest r3 = request(id3, "v", 40000).build();
+		storage.storeRequest(r1);
+		storage.storeRequest(r2);
+		storage.storeRequest(r3);
+		
+		final GetRequestsParams p = GetRequestsParams.getBuilder().build();
+		assertThat("incorrect requests", storage.getRequestsByRequester(new UserName("u"), p),
+				is(Arrays.asList(r1, r2)));
+		assertThat("incorrect requests", storage.getRequestsByGroup(new GroupID("gid"),
+				GetRequestsParams.getBuilder().withNullableSortAscending(false).build()),
+				is(Arrays.asList(r3, r1)));
+		assertThat("incorrect requests", storage.getRequestsByTarget(new UserName("x"),
+				ImmutableMap.of(new ResourceType("ws"), set(new ResourceAdministrativeID("5"))),
+				p),
+				is(Arrays.asList(r2)));
+		assertThat("incorrect has request", storage.groupHasRequest(
+				new GroupID("gid"), inst(40000)), is(false));
+		assertThat("incorrect has request", storage.groupHasRequest(
+				new GroupID("gid"), inst(39999)), is(true));
+		assertThat("incorrect dates", storage.getLatestOpenRequestDates(
+				set(new GroupID("gid"), new GroupID("gid2"))),
+				is(ImmutableMap.of(new GroupID("gid"), inst(40000))));
+	}
+	
+	@Test
+	public void getChangedRequests() throws Exception {
+		final UUID id1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+		final UUID id2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+		final UUID id3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+		final GroupRequest r1 = request(id1, "u", 30000).build();
+		final GroupRequest r2 = request(id2, "v", 20000).build();
+		final GroupRequest r3 = request(id3, "w", 30000).build();
+		storage.storeRequest(r3);
+		storage.storeRequest(r2);
+		storage.storeRequest(r1);
+		
+		assertThat("incorrect requests", storage.getChangedRequests(
+				GetChangesParams.getBuilder().build()), is(Arrays.asList(r2, r1, r3)));
+		assertThat("incorrect requests", storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableAfter(inst(30000), id1.toString())
+						.build()),
+				is(Arrays.asList(r3)));
+		assertThat("incorrect requests", storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableAfter(inst(20000), null)
+						.withNullableLimit(1).build()),
+				is(Arrays.asList(r1)));
+		
+		storage.closeRequest(new RequestID(id2), GroupRequestStatus.canceled(), inst(35000));
+		assertThat("incorrect requests", storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableAfter(inst(30000), null).build()),
+				is(Arrays.asList(storage.getRequest(new RequestID(id2)))));
+	}
+	
+	@Test
+	public void importAndProcessRequests() throws Exception {
+		final UUID id1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+		final UUID id2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+		final UUID id3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+		final GroupRequest r1 = request(id1, "u", 30000).build();
+		final GroupRequest r2 = request(id2, "v", 20000)
+				.withStatus(GroupRequestStatus.denied(new UserName("own"), "nope")).build();
+		final GroupRequest r3 = request(id3, "w", 30000).build();
+		storage.storeRequest(r2);
+		storage.importRequests(Arrays.asList(r3, r1));
+		storage.importRequests(Collections.emptyList());
+		
+		final List<GroupRequest> got = new ArrayList<>();
+		storage.processRequests(r -> got.add(r));
+		assertThat("incorrect requests", got, is(Arrays.asList(r1, r2, r3)));
+		assertThat("incorrect requests", storage.getRequestsByRequester(
+				new UserName("w"), GetRequestsParams.getBuilder().build()),
+				is(Arrays.asList(r3)));
+	}
+	
+	@Test
+	public void importRequestsFailDuplicates() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		storage.storeRequest(request(id, "u", 20000).build());
+		failImportRequests(Arrays.asList(request(id2, "v", 20000).build(),
+				request(id, "w", 20000).build()),
+				new RequestExistsException("Request exists with ID: " + id));
+		failImportRequests(Arrays.asList(request(UUID.randomUUID(), "u", 30000).build()),
+				new RequestExistsException("Request exists with ID: " + id));
+		// the requests prior to the duplicate are stored
+		assertThat("incorrect request", storage.getRequest(new RequestID(id2)),
+				is(request(id2, "v", 20000).build()));
+	}
+	
+	private void failImportRequests(final List<GroupRequest> requests, final Exception expected) {
+		try {
+			storage.importRequests(requests);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void closeRequestFail() throws Exception {
+		final UUID id = UUID.randomUUID();
+		storage.storeRequest(request(id, "u", 20000).withStatus(GroupRequestStatus.canceled())
+				.build());
+		try {
+			storage.closeRequest(new RequestID(id), GroupRequestStatus.expired(), inst(30000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NoSuchRequestException(
+					"No open request with ID " + id));
+		}
+	}
+	
+	@Test
+	public void expireRequests() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final GroupRequest r1 = request(id1, "u", 20000).build(); // expires at 30000
+		final GroupRequest r2 = request(id2, "v", 20001).build();
+		storage.storeRequest(r1);
+		storage.storeRequest(r2);
+		
+		storage.expireRequests(inst(30000));
+		
+		assertThat("incorrect request", storage.getRequest(new RequestID(id1)),
+				is(GroupRequest.getBuilder(
+						new RequestID(id1), new GroupID("gid"), new UserName("u"),
+						CreateModAndExpireTimes.getBuilder(inst(20000), inst(30000))
+								.withModificationTime(inst(30000))
+								.build())
+						.withStatus(GroupRequestStatus.expired())
+						.build()));
+		assertThat("incorrect request", storage.getRequest(new RequestID(id2)), is(r2));
+		
+		// ensure the request characteristics are removed
+		storage.storeRequest(request(UUID.randomUUID(), "u", 30000).build());
+	}
+	
+	@Test
+	public void notifications() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final RequestID rid = new RequestID(UUID.randomUUID());
+		final PendingNotification n1 = PendingNotification.getRequestBuilder(
+				id1, Type.NOTIFY, rid, inst(10000))
+				.withTargets(set(new UserName("a")))
+				.build();
+		final PendingNotification n2 = PendingNotification.getRequestBuilder(
+				id2, Type.CANCEL, rid, inst(20000))
+				.build();
+		storage.storeNotification(n1);
+		storage.storeNotification(n2);
+		
+		assertThat("incorrect claimed", storage.claimNotifications(10, inst(15000), inst(50000)),
+				is(Arrays.asList(n1)));
+		// n1 is leased
+		assertThat("incorrect claimed", storage.claimNotifications(10, inst(30000), inst(50000)),
+				is(Arrays.asList(n2)));
+		
+		storage.rescheduleNotification(id1, 2, inst(40000));
+		storage.removeNotification(id2);
+		
+		assertThat("incorrect claimed", storage.claimNotifications(10, inst(60000), inst(70000)),
+				is(Arrays.asList(PendingNotification.getRequestBuilder(
+						id1, Type.NOTIFY, rid, inst(10000))
+						.withTargets(set(new UserName("a")))
+						.withAttempts(2)
+						.build())));
+	}
+}
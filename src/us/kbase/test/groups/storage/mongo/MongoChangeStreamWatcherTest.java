@@ -0,0 +1,210 @@
+package us.kbase.test.groups.storage.mongo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.atLeast;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.Test;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoCursor;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.request.RequestID;
+import us.kbase.groups.storage.StorageChangeListener;
+import us.kbase.groups.storage.mongo.MongoChangeStreamWatcher;
+import us.kbase.test.groups.TestCommon;
+
+public class MongoChangeStreamWatcherTest {
+
+	private static final String RID = "f5bd5b5e-2b4c-4d2b-9b4c-6c1c4a5b9d3e";
+	
+	private static class Mocks {
+		private final MongoDatabase db = mock(MongoDatabase.class);
+		private final StorageChangeListener listener = mock(StorageChangeListener.class);
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static MongoCursor<ChangeStreamDocument<Document>> mockCollection(
+			final MongoDatabase db,
+			final String collection) {
+		final MongoCollection<Document> col = mock(MongoCollection.class);
+		final ChangeStreamIterable<Document> iter = mock(ChangeStreamIterable.class);
+		final MongoCursor<ChangeStreamDocument<Document>> cursor = mock(MongoCursor.class);
+		when(db.getCollection(collection)).thenReturn(col);
+		when(col.watch()).thenReturn(iter);
+		when(iter.fullDocument(FullDocument.UPDATE_LOOKUP)).thenReturn(iter);
+		when(iter.maxAwaitTime(anyLong(), any(TimeUnit.class))).thenReturn(iter);
+		when(iter.iterator()).thenReturn(cursor);
+		return cursor;
+	}
+	
+	@SuppressWarnings("deprecation")
+	private static ChangeStreamDocument<Document> change(
+			final Document doc,
+			final OperationType op) {
+		return new ChangeStreamDocument<>(
+				(BsonDocument) null, (MongoNamespace) null, doc, null, op, null);
+	}
+	
+	@Test
+	public void constructFail() throws Exception {
+		final Mocks m = new Mocks();
+		failConstruct(null, m.listener, new NullPointerException("db"));
+		failConstruct(m.db, null, new NullPointerException("listener"));
+	}
+	
+	private void failConstruct(
+			final MongoDatabase db,
+			final StorageChangeListener listener,
+			final Exception expected) {
+		try {
+			new MongoChangeStreamWatcher(db, false, listener);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void startAndProcessChanges() throws Exception {
+		final Mocks m = new Mocks();
+		final MongoCursor<ChangeStreamDocument<Document>> groups =
+				mockCollection(m.db, "groups");
+		final MongoCursor<ChangeStreamDocument<Document>> requests =
+				mockCollection(m.db, "requests");
+		when(groups.tryNext()).thenReturn(
+				change(new Document("id", "gid"), OperationType.UPDATE), null);
+		when(requests.tryNext()).thenReturn(
+				change(new Document("id", RID), OperationType.INSERT), null);
+		
+		final MongoChangeStreamWatcher w = new MongoChangeStreamWatcher(
+				m.db, false, m.listener);
+		w.start();
+		try {
+			assertThat("incorrect running", w.isRunning(), is(true));
+			
+			verify(m.listener, timeout(2000)).groupChanged(new GroupID("gid"));
+			verify(m.listener, timeout(2000)).requestChanged(new RequestID(RID));
+			// once for each stream opened
+			verify(m.listener, atLeast(2)).allChanged();
+			verify(m.db, never()).getCollection("members");
+		} finally {
+			w.stop();
+		}
+		assertThat("incorrect running", w.isRunning(), is(false));
+		verify(groups, timeout(2000)).close();
+		verify(requests, timeout(2000)).close();
+	}
+	
+	@Test
+	public void startAndProcessChangesWithMemberCollection() throws Exception {
+		final Mocks m = new Mocks();
+		mockCollection(m.db, "groups");
+		mockCollection(m.db, "requests");
+		final MongoCursor<ChangeStreamDocument<Document>> members =
+				mockCollection(m.db, "members");
+		when(members.tryNext()).thenReturn(
+				// deleting members also updates the group, so deletes are ignored
+				change(null, OperationType.DELETE),
+				change(new Document("gid", "gid2"), OperationType.INSERT),
+				null);
+		
+		final MongoChangeStreamWatcher w = new MongoChangeStreamWatcher(
+				m.db, true, m.listener);
+		w.start();
+		try {
+			verify(m.listener, timeout(2000)).groupChanged(new GroupID("gid2"));
+			// once for each stream opened, but not for the delete
+			verify(m.listener, timeout(2000).times(3)).allChanged();
+		} finally {
+			w.stop();
+		}
+	}
+	
+	@Test
+	public void unmappableChange() throws Exception {
+		final Mocks m = new Mocks();
+		final MongoCursor<ChangeStreamDocument<Document>> groups =
+				mockCollection(m.db, "groups");
+		mockCollection(m.db, "requests");
+		when(groups.tryNext()).thenReturn(change(null, OperationType.DROP), null);
+		
+		final MongoChangeStreamWatcher w = new MongoChangeStreamWatcher(
+				m.db, false, m.listener);
+		w.start();
+		try {
+			// once for each stream opened and once for the drop
+			verify(m.listener, timeout(2000).times(3)).allChanged();
+		} finally {
+			w.stop();
+		}
+	}
+	
+	@Test
+	public void startFailRunning() throws Exception {
+		final Mocks m = new Mocks();
+		mockCollection(m.db, "groups");
+		mockCollection(m.db, "requests");
+		
+		final MongoChangeStreamWatcher w = new MongoChangeStreamWatcher(
+				m.db, false, m.listener);
+		w.start();
+		try {
+			w.start();
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got,
+					new IllegalArgumentException("The watcher is already running"));
+		} finally {
+			w.stop();
+		}
+	}
+	
+	@Test
+	public void startFailOpenStream() throws Exception {
+		// e.g. a standalone MongoDB instance
+		final Mocks m = new Mocks();
+		final MongoCursor<ChangeStreamDocument<Document>> groups =
+				mockCollection(m.db, "groups");
+		mockCollection(m.db, "requests");
+		final MongoCursor<ChangeStreamDocument<Document>> members =
+				mockCollection(m.db, "members");
+		when(m.db.getCollection("requests").watch().iterator()).thenThrow(new MongoException(
+				"The $changeStream stage is only supported on replica sets"));
+		
+		final MongoChangeStreamWatcher w = new MongoChangeStreamWatcher(
+				m.db, true, m.listener);
+		try {
+			w.start();
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new MongoException(
+					"The $changeStream stage is only supported on replica sets"));
+		}
+		assertThat("incorrect running", w.isRunning(), is(false));
+		verify(groups).close();
+		verify(members, never()).tryNext();
+		verify(groups, never()).tryNext();
+		verify(m.listener, never()).allChanged();
+	}
+}
@@ -0,0 +1,117 @@
+package us.kbase.test.groups.storage.mongo;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static us.kbase.test.groups.TestCommon.inst;
+import static us.kbase.test.groups.TestCommon.set;
+
+import java.util.Collections;
+
+import org.bson.Document;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.groups.core.CreateAndModTimes;
+import us.kbase.groups.core.Group;
+import us.kbase.groups.core.GroupID;
+import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupUser;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.storage.mongo.MongoGroupsStorage;
+
+/* Runs the storage tests against storage that keeps group members in a separate collection,
+ * and checks the member collection specific behavior.
+ */
+public class MongoGroupsStorageMemberCollectionOpsTest extends MongoGroupsStorageOpsTest {
+
+	@Override
+	protected boolean isMemberCollection() {
+		return true;
+	}
+	
+	private GroupUser toGUser(final String user) throws Exception {
+		return GroupUser.getBuilder(new UserName(user), inst(20000)).build();
+	}
+	
+	private Document getGroupDoc() throws Exception {
+		return manager.db.getCollection("groups").find(new Document("id", "gid")).first();
+	}
+	
+	private long countMembers() throws Exception {
+		return manager.db.getCollection("members").countDocuments(new Document("gid", "gid"));
+	}
+	
+	@Test
+	public void membersAreNotInGroupDocument() throws Exception {
+		final MongoGroupsStorage storage = manager.storage;
+		storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withMember(toGUser("m1"))
+				.withAdministrator(toGUser("a1"))
+				.build());
+		
+		assertThat("incorrect member list", getGroupDoc().containsKey("memb"), is(false));
+		assertThat("incorrect member count", getGroupDoc().getInteger("membcount"), is(3));
+		assertThat("incorrect member docs", countMembers(), is(3L));
+		
+		storage.addMember(new GroupID("gid"), toGUser("m2"), inst(30000));
+		storage.addMember(new GroupID("gid"), toGUser("m3"), inst(30000));
+		
+		assertThat("incorrect member count", getGroupDoc().getInteger("membcount"), is(5));
+		assertThat("incorrect member docs", countMembers(), is(5L));
+		
+		storage.removeMember(new GroupID("gid"), new UserName("m1"), inst(40000));
+		storage.addAdmin(new GroupID("gid"), new UserName("m2"), inst(40000));
+		storage.demoteAdmin(new GroupID("gid"), new UserName("a1"), inst(40000));
+		
+		assertThat("incorrect member list", getGroupDoc().containsKey("memb"), is(false));
+		assertThat("incorrect member count", getGroupDoc().getInteger("membcount"), is(4));
+		assertThat("incorrect member docs", countMembers(), is(4L));
+		assertThat("incorrect group", storage.getGroup(new GroupID("gid")), is(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(40000)))
+				.withMember(toGUser("a1"))
+				.withMember(toGUser("m3"))
+				.withAdministrator(toGUser("m2"))
+				.build()));
+	}
+	
+	@Test
+	public void getAdministratorMembershipsMissingMember() throws Exception {
+		// simulates an admin being demoted and removed after the group doc is read
+		final MongoGroupsStorage storage = manager.storage;
+		storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withAdministrator(toGUser("a1"))
+				.build());
+		manager.db.getCollection("members").deleteOne(
+				new Document("gid", "gid").append("user", "a1"));
+		
+		assertThat("incorrect admins", storage.getAdministratorMemberships(
+				new UserName("a1"), set(new GroupID("gid"))),
+				is(Collections.emptyMap()));
+		assertThat("incorrect admins", storage.getAdministratorMemberships(
+				new UserName("own"), set(new GroupID("gid"))),
+				is(ImmutableMap.of(new GroupID("gid"), toGUser("own"))));
+	}
+	
+	@Test
+	public void manyMembers() throws Exception {
+		// more members than are fetched per batch
+		final MongoGroupsStorage storage = manager.storage;
+		final Group.Builder b = Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)));
+		for (int i = 0; i < 2500; i++) {
+			b.withMember(toGUser("m" + i));
+		}
+		final Group g = b.build();
+		storage.createGroup(g);
+		
+		assertThat("incorrect group", storage.getGroup(new GroupID("gid")), is(g));
+		assertThat("incorrect member count", getGroupDoc().getInteger("membcount"), is(2501));
+	}
+}
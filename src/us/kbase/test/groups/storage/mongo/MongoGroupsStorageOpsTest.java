@@ -12,16 +12,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.Clock;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.FileUtils;
 import org.bson.Document;
@@ -35,10 +38,13 @@ import com.google.common.collect.ImmutableMap;
 import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.spi.ILoggingEvent;
 import us.kbase.groups.core.Group;
+import us.kbase.groups.core.Group.Role;
 import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupIDAndName;
 import us.kbase.groups.core.GroupIDNameMembership;
 import us.kbase.groups.core.GroupName;
+import us.kbase.groups.core.GroupSearchParams;
+import us.kbase.groups.core.GroupSummary;
 import us.kbase.groups.core.GroupUpdateParams;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.OptionalGroupFields;
@@ -46,6 +52,7 @@ import us.kbase.groups.core.OptionalString;
 import us.kbase.groups.core.CreateAndModTimes;
 import us.kbase.groups.core.CreateModAndExpireTimes;
 import us.kbase.groups.core.GetRequestsParams;
+import us.kbase.groups.core.GetChangesParams;
 import us.kbase.groups.core.GetGroupsParams;
 import us.kbase.groups.core.UserName;
 import us.kbase.groups.core.exceptions.GroupExistsException;
@@ -56,7 +63,9 @@ import us.kbase.groups.core.exceptions.NoSuchUserException;
 import us.kbase.groups.core.exceptions.RequestExistsException;
 import us.kbase.groups.core.exceptions.ResourceExistsException;
 import us.kbase.groups.core.exceptions.UserIsMemberException;
+import us.kbase.groups.core.fieldvalidation.CustomField;
 import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.notifications.PendingNotification;
 import us.kbase.groups.core.request.GroupRequest;
 import us.kbase.groups.core.request.GroupRequest.Builder;
 import us.kbase.groups.core.request.GroupRequestStatus;
@@ -76,7 +85,7 @@ import us.kbase.test.groups.TestCommon;
 
 public class MongoGroupsStorageOpsTest {
 
-	private static MongoStorageTestManager manager;
+	protected static MongoStorageTestManager manager;
 	private static List<ILoggingEvent> logEvents;
 	private static Path TEMP_DIR;
 	private static Path EMPTY_FILE_MSH;
@@ -104,10 +113,17 @@ public class MongoGroupsStorageOpsTest {
 	
 	@Before
 	public void before() throws Exception {
-		manager.reset();
+		manager.reset(isMemberCollection());
 		logEvents.clear();
 	}
 	
+	/* Returns whether the storage under test stores members in a separate collection.
+	 * Overridden to run the tests against both storage modes.
+	 */
+	protected boolean isMemberCollection() {
+		return false;
+	}
+	
 	private GroupUser toGUser(String username) throws Exception {
 		return GroupUser.getBuilder(new UserName(username), inst(20000)).build();
 	}
@@ -301,6 +317,87 @@ public class MongoGroupsStorageOpsTest {
 		}
 	}
 	
+	@Test
+	public void importAndProcessGroups() throws Exception {
+		final Group g1 = Group.getBuilder(
+				new GroupID("gid1"), new GroupName("name1"), toGUser("uname"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.withAdministrator(toGUser("admin"))
+				.withMember(GroupUser.getBuilder(new UserName("mem"), inst(25000))
+						.withNullableLastVisit(inst(26000))
+						.withCustomField(new NumberedCustomField("f-1"), "v")
+						.build())
+				.withResource(new ResourceType("ws"), new ResourceDescriptor(
+						new ResourceAdministrativeID("1"), new ResourceID("1")), inst(27000))
+				.withCustomField(new NumberedCustomField("field"), "val")
+				.withIsPrivate(true)
+				.build();
+		final Group g2 = Group.getBuilder(
+				new GroupID("gid2"), new GroupName("name2"), toGUser("uname"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.build();
+		final Group g3 = Group.getBuilder(
+				new GroupID("gid3"), new GroupName("name3"), toGUser("uname3"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.withMember(toGUser("mem"))
+				.build();
+		manager.storage.createGroup(g2);
+		manager.storage.importGroups(Arrays.asList(g3, g1));
+		manager.storage.importGroups(Collections.emptyList());
+		
+		final List<Group> got = new ArrayList<>();
+		manager.storage.processGroups(g -> got.add(g));
+		assertThat("incorrect groups", got, is(Arrays.asList(g1, g2, g3)));
+		assertThat("incorrect member groups", manager.storage.getMemberGroups(
+				new UserName("mem")),
+				is(Arrays.asList(
+						GroupIDAndName.of(new GroupID("gid1"), new GroupName("name1")),
+						GroupIDAndName.of(new GroupID("gid3"), new GroupName("name3")))));
+	}
+	
+	@Test
+	public void processGroupsEmpty() throws Exception {
+		final List<Group> got = new ArrayList<>();
+		manager.storage.processGroups(g -> got.add(g));
+		assertThat("incorrect groups", got, is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void importGroupsFail() throws Exception {
+		final Group g1 = Group.getBuilder(
+				new GroupID("gid1"), new GroupName("name1"), toGUser("uname1"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.build();
+		final Group g2 = Group.getBuilder(
+				new GroupID("gid2"), new GroupName("name2"), toGUser("uname2"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.build();
+		final Group g3 = Group.getBuilder(
+				new GroupID("gid3"), new GroupName("name3"), toGUser("uname3"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.build();
+		failImportGroups(null, new NullPointerException("groups"));
+		failImportGroups(Arrays.asList(g1, null), new NullPointerException(
+				"Null item in collection groups"));
+		
+		manager.storage.createGroup(g2);
+		failImportGroups(Arrays.asList(g1, g2, g3), new GroupExistsException("gid2"));
+		
+		// the groups prior to the duplicate are stored, including their members
+		assertThat("incorrect group", manager.storage.getGroup(new GroupID("gid1")), is(g1));
+		assertThat("incorrect exists", manager.storage.getGroupExists(new GroupID("gid3")),
+				is(false));
+	}
+	
+	private void failImportGroups(final List<Group> groups, final Exception expected) {
+		try {
+			manager.storage.importGroups(groups);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void getGroupNameMultiple() throws Exception {
 		manager.storage.createGroup(Group.getBuilder(
@@ -415,6 +512,77 @@ public class MongoGroupsStorageOpsTest {
 		}
 	}
 	
+	@Test
+	public void getAdministratorMemberships() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gown"), new GroupName("name1"), toGUser("u"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.withMember(toGUser("memb"))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gadmin"), new GroupName("name2"), toGUser("o"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.withAdministrator(GroupUser.getBuilder(new UserName("u"), inst(40000))
+						.withNullableLastVisit(inst(50000))
+						.build())
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gmemb"), new GroupName("name3"), toGUser("o"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.withMember(toGUser("u"))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gnone"), new GroupName("name4"), toGUser("o"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.build());
+		
+		assertThat("incorrect admins", manager.storage.getAdministratorMemberships(
+				new UserName("u"), set(new GroupID("gown"), new GroupID("gadmin"),
+						new GroupID("gmemb"), new GroupID("gnone"))),
+				is(ImmutableMap.of(
+						new GroupID("gown"), toGUser("u"),
+						new GroupID("gadmin"), GroupUser.getBuilder(
+								new UserName("u"), inst(40000))
+								.withNullableLastVisit(inst(50000))
+								.build())));
+		
+		assertThat("incorrect admins", manager.storage.getAdministratorMemberships(
+				new UserName("memb"), set(new GroupID("gown"))),
+				is(Collections.emptyMap()));
+		
+		assertThat("incorrect admins", manager.storage.getAdministratorMemberships(
+				new UserName("u"), set()),
+				is(Collections.emptyMap()));
+	}
+	
+	@Test
+	public void getAdministratorMembershipsFail() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid"), new GroupName("name"), toGUser("u"),
+				new CreateAndModTimes(Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000)))
+				.build());
+		final UserName u = new UserName("u");
+		
+		failGetAdministratorMemberships(null, set(), new NullPointerException("user"));
+		failGetAdministratorMemberships(u, null, new NullPointerException("groupIDs"));
+		failGetAdministratorMemberships(u, set(new GroupID("gid"), null),
+				new NullPointerException("Null item in collection groupIDs"));
+		failGetAdministratorMemberships(u, set(new GroupID("gid"), new GroupID("gid1")),
+				new NoSuchGroupException("gid1"));
+	}
+	
+	private void failGetAdministratorMemberships(
+			final UserName user,
+			final Set<GroupID> ids,
+			final Exception expected) {
+		try {
+			manager.storage.getAdministratorMemberships(user, ids);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void illegalGroupDataInDB() throws Exception {
 		// just test each type of exception. Not testing every possible exception that could be
@@ -1171,6 +1339,22 @@ public class MongoGroupsStorageOpsTest {
 		assertGroupListCorrect("g300", 201, 0);
 	}
 	
+	@Test
+	public void getGroupsCustomLimit() throws Exception {
+		for (int i = 1; i < 202; i++) {
+			final String id = String.format("g%03d", i);
+			manager.storage.createGroup(Group.getBuilder(
+					new GroupID(id), new GroupName("g" + 1), toGUser("n"),
+					new CreateAndModTimes(inst(1000))).build());
+		}
+		
+		assertGroupListCorrect(null, 1, 1, 1);
+		assertGroupListCorrect("g010", 11, 5, 5);
+		assertGroupListCorrect(null, 1, 201, 1000);
+		assertGroupListCorrect("g050", 51, 151, 1000);
+		assertGroupListCorrect("g199", 200, 2, 5);
+	}
+	
 	@Test
 	public void getGroupsLimitWithPrivateGroups() throws Exception {
 		for (int i = 1; i < 220; i++) {
@@ -1227,8 +1411,17 @@ public class MongoGroupsStorageOpsTest {
 			final int start,
 			final int size)
 			throws Exception {
+		assertGroupListCorrect(excludeUpTo, start, size, null);
+	}
+	
+	private <T> void assertGroupListCorrect(
+			final String excludeUpTo,
+			final int start,
+			final int size,
+			final Integer limit)
+			throws Exception {
 		final List<Group> res = manager.storage.getGroups(GetGroupsParams.getBuilder()
-				.withNullableExcludeUpTo(excludeUpTo).build(), null);
+				.withNullableExcludeUpTo(excludeUpTo).withNullableLimit(limit).build(), null);
 		assertThat("incorrect size", res.size(), is(size));
 		int i = start;
 		for (final Group g: res) {
@@ -1255,6 +1448,569 @@ public class MongoGroupsStorageOpsTest {
 		
 	}
 	
+	@Test
+	public void getGroupSummariesEmpty() throws Exception {
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				GetGroupsParams.getBuilder().build(), null,
+				set(new ResourceType("workspace"))),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getGroupSummaries() throws Exception {
+		final ResourceType ws = new ResourceType("workspace");
+		final ResourceType cat = new ResourceType("catalogmethod");
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("aid"), new GroupName("name1"),
+				GroupUser.getBuilder(new UserName("own"), inst(12000))
+						.withCustomField(new NumberedCustomField("field"), "val")
+						.withNullableLastVisit(inst(87000))
+						.build(),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)))
+				.withMember(GroupUser.getBuilder(new UserName("m1"), inst(60000))
+						.withCustomField(new NumberedCustomField("thing"), "er")
+						.withNullableLastVisit(inst(92000))
+						.build())
+				.withMember(toGUser("m2"))
+				.withAdministrator(GroupUser.getBuilder(new UserName("a1"), inst(70000))
+						.withNullableLastVisit(inst(75000))
+						.build())
+				.withResource(ws, new ResourceDescriptor(new ResourceID("42")))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("43")))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("44")))
+				.withResource(cat, new ResourceDescriptor(new ResourceID("m.n")))
+				.withCustomField(new NumberedCustomField("gfield-1"), "gval")
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("bid"), new GroupName("name2"), toGUser("o2"),
+				new CreateAndModTimes(Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000)))
+				.withIsPrivate(true)
+				.withMember(toGUser("m1"))
+				.withResource(cat, new ResourceDescriptor(new ResourceID("x.y")))
+				.build());
+		// leaves an empty resource list in the DB
+		manager.storage.removeResource(new GroupID("bid"), cat, new ResourceID("x.y"),
+				inst(50000));
+		
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		final GroupSummary.Builder a = GroupSummary.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), new UserName("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)),
+				4)
+				.withResourceCount(ws, 3)
+				.withResourceCount(cat, 1)
+				.withCustomField(new NumberedCustomField("gfield-1"), "gval");
+		final GroupSummary.Builder b = GroupSummary.getBuilder(
+				new GroupID("bid"), new GroupName("name2"), new UserName("o2"),
+				new CreateAndModTimes(Instant.ofEpochMilli(30000), Instant.ofEpochMilli(50000)),
+				2)
+				.withIsPrivate(true);
+		
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, null, set(ws, cat)), is(Arrays.asList(a.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, new UserName("nonmember"), set(ws, cat)), is(Arrays.asList(a.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, new UserName("own"), set(ws, cat)),
+				is(Arrays.asList(a.withUserRole(Role.OWNER, inst(87000)).build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, new UserName("a1"), set(ws, cat)),
+				is(Arrays.asList(a.withUserRole(Role.ADMIN, inst(75000)).build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, new UserName("m2"), set(ws, cat)),
+				is(Arrays.asList(a.withUserRole(Role.MEMBER, null).build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, new UserName("m1"), set(ws, cat)),
+				is(Arrays.asList(
+						a.withUserRole(Role.MEMBER, inst(92000)).build(),
+						b.withUserRole(Role.MEMBER, null).build())));
+		
+		// resource types that aren't requested aren't counted
+		final GroupSummary.Builder a2 = GroupSummary.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), new UserName("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000), Instant.ofEpochMilli(20000)),
+				4)
+				.withCustomField(new NumberedCustomField("gfield-1"), "gval");
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, null, set()), is(Arrays.asList(a2.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummaries(
+				p, null, set(cat, new ResourceType("other"))),
+				is(Arrays.asList(a2.withResourceCount(cat, 1).build())));
+	}
+	
+	@Test
+	public void getGroupSummariesMatchesGetGroups() throws Exception {
+		// the summaries should use the same query, sort, and limit as getGroups
+		for (int i = 1; i < 220; i++) {
+			final String id = String.format("g%03d%s", i, (i % 2 == 0 ? "priv" : "pub"));
+			final Group.Builder b = Group.getBuilder(
+					new GroupID(id), new GroupName("g" + 1), toGUser("n"),
+					new CreateAndModTimes(inst(1000)));
+			if (i % 2 == 0) {
+				b.withIsPrivate(true).withMember(toGUser("m"));
+			}
+			manager.storage.createGroup(b.build());
+		}
+		final List<GetGroupsParams> params = Arrays.asList(
+				GetGroupsParams.getBuilder().build(),
+				GetGroupsParams.getBuilder().withNullableExcludeUpTo("g010").build(),
+				GetGroupsParams.getBuilder().withNullableSortAscending(false).build(),
+				GetGroupsParams.getBuilder().withNullableSortAscending(false)
+						.withNullableExcludeUpTo("g150").withNullableLimit(7).build(),
+				GetGroupsParams.getBuilder().withNullableLimit(1000).build());
+		for (final GetGroupsParams p: params) {
+			for (final UserName u: Arrays.asList(null, new UserName("m"), new UserName("n"))) {
+				final List<GroupID> expected = manager.storage.getGroups(p, u).stream()
+						.map(g -> g.getGroupID()).collect(Collectors.toList());
+				final List<GroupID> got = manager.storage.getGroupSummaries(p, u, set())
+						.stream().map(g -> g.getGroupID()).collect(Collectors.toList());
+				assertThat("incorrect groups for " + p + " " + u, got, is(expected));
+			}
+		}
+	}
+	
+	@Test
+	public void getGroupSummariesFail() throws Exception {
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		failGetGroupSummaries(null, set(), new NullPointerException("params"));
+		failGetGroupSummaries(p, null, new NullPointerException("resourceTypes"));
+		failGetGroupSummaries(p, set(new ResourceType("t"), null),
+				new NullPointerException("Null item in collection resourceTypes"));
+	}
+	
+	private void failGetGroupSummaries(
+			final GetGroupsParams params,
+			final Set<ResourceType> types,
+			final Exception expected) {
+		try {
+			manager.storage.getGroupSummaries(params, new UserName("foo"), types);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getGroupSummariesForResourceEmpty() throws Exception {
+		assertThat("incorrect summaries", manager.storage.getGroupSummariesForResource(
+				new ResourceType("workspace"), new ResourceID("42"),
+				GetGroupsParams.getBuilder().build(), null, set()),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getGroupSummariesForResource() throws Exception {
+		final ResourceType ws = new ResourceType("workspace");
+		final ResourceType cat = new ResourceType("catalogmethod");
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("42")))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("43")))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("bid"), new GroupName("name2"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withIsPrivate(true)
+				.withMember(toGUser("m1"))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("cid"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withResource(cat, new ResourceDescriptor(new ResourceID("42")))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("did"), new GroupName("name4"), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("42")))
+				.build());
+		manager.storage.addResource(new GroupID("bid"), ws,
+				new ResourceDescriptor(new ResourceID("42")), inst(30000));
+		manager.storage.addResource(new GroupID("cid"), ws,
+				new ResourceDescriptor(new ResourceID("43")), inst(30000));
+		
+		final GroupSummary.Builder a = GroupSummary.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), new UserName("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)), 1)
+				.withResourceCount(ws, 2);
+		final GroupSummary.Builder b = GroupSummary.getBuilder(
+				new GroupID("bid"), new GroupName("name2"), new UserName("own"),
+				new CreateAndModTimes(inst(10000), inst(30000)), 2)
+				.withIsPrivate(true)
+				.withResourceCount(ws, 1);
+		final GroupSummary d = GroupSummary.getBuilder(
+				new GroupID("did"), new GroupName("name4"), new UserName("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)), 1)
+				.withResourceCount(ws, 1)
+				.build();
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		
+		assertThat("incorrect summaries", manager.storage.getGroupSummariesForResource(
+				ws, new ResourceID("42"), p, null, set(ws)),
+				is(Arrays.asList(a.build(), d)));
+		assertThat("incorrect summaries", manager.storage.getGroupSummariesForResource(
+				ws, new ResourceID("42"), p, new UserName("m1"), set(ws)),
+				is(Arrays.asList(a.build(), b.withUserRole(Role.MEMBER, null).build(), d)));
+		assertThat("incorrect summaries", manager.storage.getGroupSummariesForResource(
+				ws, new ResourceID("42"),
+				GetGroupsParams.getBuilder().withNullableSortAscending(false)
+						.withNullableExcludeUpTo("did").withNullableLimit(1).build(),
+				new UserName("m1"), set(ws)),
+				is(Arrays.asList(b.build())));
+		
+		// resource IDs are matched per resource type
+		assertThat("incorrect summaries", manager.storage.getGroupSummariesForResource(
+				cat, new ResourceID("42"), p, null, set()),
+				is(Arrays.asList(GroupSummary.getBuilder(
+						new GroupID("cid"), new GroupName("name3"), new UserName("own"),
+						new CreateAndModTimes(inst(10000), inst(30000)), 1).build())));
+		
+		// removed resources are no longer found
+		manager.storage.removeResource(new GroupID("aid"), ws, new ResourceID("42"),
+				inst(40000));
+		manager.storage.removeResource(new GroupID("did"), ws, new ResourceID("42"),
+				inst(40000));
+		assertThat("incorrect summaries", manager.storage.getGroupSummariesForResource(
+				ws, new ResourceID("42"), p, new UserName("m1"), set()),
+				is(Arrays.asList(GroupSummary.getBuilder(
+						new GroupID("bid"), new GroupName("name2"), new UserName("own"),
+						new CreateAndModTimes(inst(10000), inst(30000)), 2)
+						.withIsPrivate(true)
+						.withUserRole(Role.MEMBER, null)
+						.build())));
+		assertThat("incorrect summaries", manager.storage.getGroupSummariesForResource(
+				ws, new ResourceID("43"), p, null, set()),
+				is(Arrays.asList(
+						GroupSummary.getBuilder(
+								new GroupID("aid"), new GroupName("name1"), new UserName("own"),
+								new CreateAndModTimes(inst(10000), inst(40000)), 1).build(),
+						GroupSummary.getBuilder(
+								new GroupID("cid"), new GroupName("name3"), new UserName("own"),
+								new CreateAndModTimes(inst(10000), inst(30000)), 1).build())));
+	}
+	
+	@Test
+	public void getGroupSummariesForResourceFail() throws Exception {
+		final ResourceType t = new ResourceType("t");
+		final ResourceID r = new ResourceID("r");
+		final GetGroupsParams p = GetGroupsParams.getBuilder().build();
+		failGetGroupSummariesForResource(null, r, p, set(), new NullPointerException("type"));
+		failGetGroupSummariesForResource(t, null, p, set(),
+				new NullPointerException("resource"));
+		failGetGroupSummariesForResource(t, r, null, set(), new NullPointerException("params"));
+		failGetGroupSummariesForResource(t, r, p, null,
+				new NullPointerException("resourceTypes"));
+		failGetGroupSummariesForResource(t, r, p, set(t, null),
+				new NullPointerException("Null item in collection resourceTypes"));
+	}
+	
+	private void failGetGroupSummariesForResource(
+			final ResourceType type,
+			final ResourceID resource,
+			final GetGroupsParams params,
+			final Set<ResourceType> types,
+			final Exception expected) {
+		try {
+			manager.storage.getGroupSummariesForResource(
+					type, resource, params, new UserName("foo"), types);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void getChangedGroupSummariesEmpty() throws Exception {
+		assertThat("incorrect summaries", manager.storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().build(), set()),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getChangedGroupSummaries() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), toGUser("own"),
+				new CreateAndModTimes(inst(5000), inst(30000)))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("bid"), new GroupName("name2"), toGUser("own"),
+				new CreateAndModTimes(inst(5000), inst(20000)))
+				.withIsPrivate(true)
+				.withMember(toGUser("m1"))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("cid"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(inst(5000), inst(20000)))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("did"), new GroupName("name4"), toGUser("own"),
+				new CreateAndModTimes(inst(5000), inst(10000)))
+				.build());
+		
+		final GroupSummary a = GroupSummary.getBuilder(
+				new GroupID("aid"), new GroupName("name1"), new UserName("own"),
+				new CreateAndModTimes(inst(5000), inst(30000)), 1)
+				.build();
+		final GroupSummary b = GroupSummary.getBuilder(
+				new GroupID("bid"), new GroupName("name2"), new UserName("own"),
+				new CreateAndModTimes(inst(5000), inst(20000)), 2)
+				.withIsPrivate(true)
+				.build();
+		final GroupSummary c = GroupSummary.getBuilder(
+				new GroupID("cid"), new GroupName("name3"), new UserName("own"),
+				new CreateAndModTimes(inst(5000), inst(20000)), 1)
+				.build();
+		final GroupSummary d = GroupSummary.getBuilder(
+				new GroupID("did"), new GroupName("name4"), new UserName("own"),
+				new CreateAndModTimes(inst(5000), inst(10000)), 1)
+				.build();
+		
+		// private groups are included with no user role
+		assertThat("incorrect summaries", manager.storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().build(), set()),
+				is(Arrays.asList(d, b, c, a)));
+		assertThat("incorrect summaries", manager.storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().withNullableAfter(inst(20000), null).build(),
+				set()),
+				is(Arrays.asList(a)));
+		assertThat("incorrect summaries", manager.storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().withNullableAfter(inst(20000), "bid").build(),
+				set()),
+				is(Arrays.asList(c, a)));
+		assertThat("incorrect summaries", manager.storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().withNullableAfter(inst(10000), "did")
+						.withNullableLimit(2).build(),
+				set()),
+				is(Arrays.asList(b, c)));
+		
+		// modified groups move to the end of the list
+		manager.storage.addResource(new GroupID("did"), new ResourceType("workspace"),
+				new ResourceDescriptor(new ResourceID("42")), inst(40000));
+		assertThat("incorrect summaries", manager.storage.getChangedGroupSummaries(
+				GetChangesParams.getBuilder().withNullableAfter(inst(20000), "cid").build(),
+				set()),
+				is(Arrays.asList(a, GroupSummary.getBuilder(
+						new GroupID("did"), new GroupName("name4"), new UserName("own"),
+						new CreateAndModTimes(inst(5000), inst(40000)), 1)
+						.build())));
+	}
+	
+	@Test
+	public void getChangedGroupSummariesFail() throws Exception {
+		final GetChangesParams p = GetChangesParams.getBuilder().build();
+		failGetChangedGroupSummaries(null, set(), new NullPointerException("params"));
+		failGetChangedGroupSummaries(p, null, new NullPointerException("resourceTypes"));
+		failGetChangedGroupSummaries(p, set(new ResourceType("t"), null),
+				new NullPointerException("Null item in collection resourceTypes"));
+	}
+	
+	private void failGetChangedGroupSummaries(
+			final GetChangesParams params,
+			final Set<ResourceType> types,
+			final Exception expected) {
+		try {
+			manager.storage.getChangedGroupSummaries(params, types);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	private Group.Builder searchGroup(final String id, final String name) throws Exception {
+		return Group.getBuilder(new GroupID(id), new GroupName(name), toGUser("own"),
+				new CreateAndModTimes(inst(10000), inst(20000)));
+	}
+	
+	private GroupSummary.Builder searchSummary(final String id, final String name)
+			throws Exception {
+		return searchSummary(id, name, 1);
+	}
+	
+	private GroupSummary.Builder searchSummary(
+			final String id,
+			final String name,
+			final int memberCount)
+			throws Exception {
+		return GroupSummary.getBuilder(new GroupID(id), new GroupName(name),
+				new UserName("own"), new CreateAndModTimes(inst(10000), inst(20000)),
+				memberCount);
+	}
+	
+	@Test
+	public void searchGroupSummariesEmpty() throws Exception {
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				GroupSearchParams.getBuilder("foo").build(), null, set(), set()),
+				is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void searchGroupSummaries() throws Exception {
+		final ResourceType ws = new ResourceType("workspace");
+		final NumberedCustomField desc = new NumberedCustomField("desc");
+		final NumberedCustomField tag = new NumberedCustomField("tag-1");
+		manager.storage.createGroup(searchGroup("a", "name a")
+				.withCustomField(desc, "Soil & water").build());
+		manager.storage.createGroup(searchGroup("b", "Soil")
+				.withCustomField(tag, "water")
+				.withResource(ws, new ResourceDescriptor(new ResourceID("42")))
+				.build());
+		manager.storage.createGroup(searchGroup("c", "soil-water")
+				.withIsPrivate(true)
+				.withMember(toGUser("m"))
+				.build());
+		manager.storage.createGroup(searchGroup("d", "water").build());
+		manager.storage.createGroup(searchGroup("e", "rocks").build());
+		
+		final GroupSearchParams p = GroupSearchParams.getBuilder("soil WATER").build();
+		
+		// name only
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				p, null, set(ws), set()),
+				is(Arrays.asList(
+						searchSummary("b", "Soil").withCustomField(tag, "water")
+								.withResourceCount(ws, 1).build(),
+						searchSummary("d", "water").build())));
+		
+		// private groups are only visible to members
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				p, new UserName("nonmember"), set(), set()),
+				is(Arrays.asList(
+						searchSummary("b", "Soil").withCustomField(tag, "water").build(),
+						searchSummary("d", "water").build())));
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				p, new UserName("m"), set(), set()),
+				is(Arrays.asList(
+						searchSummary("c", "soil-water", 2).withIsPrivate(true)
+								.withUserRole(Role.MEMBER, null).build(),
+						searchSummary("b", "Soil").withCustomField(tag, "water").build(),
+						searchSummary("d", "water").build())));
+		
+		// relevance, then id
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				p, new UserName("m"), set(), set(new CustomField("desc"), new CustomField("tag"))),
+				is(Arrays.asList(
+						searchSummary("a", "name a").withCustomField(desc, "Soil & water")
+								.build(),
+						searchSummary("b", "Soil").withCustomField(tag, "water").build(),
+						searchSummary("c", "soil-water", 2).withIsPrivate(true)
+								.withUserRole(Role.MEMBER, null).build(),
+						searchSummary("d", "water").build())));
+		
+		// unsearched fields don't match
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				p, null, set(), set(new CustomField("tag"))),
+				is(Arrays.asList(
+						searchSummary("b", "Soil").withCustomField(tag, "water").build(),
+						searchSummary("d", "water").build())));
+	}
+	
+	@Test
+	public void searchGroupSummariesSortOffsetAndLimit() throws Exception {
+		for (int i = 1; i < 12; i++) {
+			manager.storage.createGroup(searchGroup(
+					String.format("g%02d", i), i % 3 == 0 ? "soil water" : "soil").build());
+		}
+		final List<String> all = Arrays.asList(
+				"g03", "g06", "g09", "g01", "g02", "g04", "g05", "g07", "g08", "g10", "g11");
+		final List<String> allDesc = Arrays.asList(
+				"g09", "g06", "g03", "g11", "g10", "g08", "g07", "g05", "g04", "g02", "g01");
+		
+		checkSearch(GroupSearchParams.getBuilder("soil water").build(), all);
+		checkSearch(GroupSearchParams.getBuilder("soil water")
+				.withNullableSortAscending(false).build(), allDesc);
+		checkSearch(GroupSearchParams.getBuilder("soil water")
+				.withNullableOffset(2).withNullableLimit(3).build(), all.subList(2, 5));
+		checkSearch(GroupSearchParams.getBuilder("soil water")
+				.withNullableSortAscending(false)
+				.withNullableOffset(9).withNullableLimit(3).build(), allDesc.subList(9, 11));
+		checkSearch(GroupSearchParams.getBuilder("soil water")
+				.withNullableOffset(11).build(), Collections.emptyList());
+	}
+	
+	private void checkSearch(final GroupSearchParams p, final List<String> expected)
+			throws Exception {
+		final List<String> got = manager.storage.searchGroupSummaries(p, null, set(), set())
+				.stream().map(g -> g.getGroupID().getName()).collect(Collectors.toList());
+		assertThat("incorrect groups", got, is(expected));
+	}
+	
+	@Test
+	public void searchGroupSummariesAfterUpdate() throws Exception {
+		final NumberedCustomField desc = new NumberedCustomField("desc");
+		manager.storage.createGroup(searchGroup("a", "soil")
+				.withCustomField(desc, "water").build());
+		final GroupSearchParams soil = GroupSearchParams.getBuilder("soil").build();
+		final GroupSearchParams rock = GroupSearchParams.getBuilder("rock").build();
+		final Set<CustomField> fields = set(new CustomField("desc"));
+		
+		// no name or field changes
+		manager.storage.updateGroup(GroupUpdateParams.getBuilder(new GroupID("a"))
+				.withOptionalFields(OptionalGroupFields.getBuilder()
+						.withNullableIsPrivate(false)
+						.build())
+				.build(),
+				inst(30000));
+		assertThat("incorrect count", manager.storage.searchGroupSummaries(
+				soil, null, set(), fields).size(), is(1));
+		
+		manager.storage.updateGroup(GroupUpdateParams.getBuilder(new GroupID("a"))
+				.withName(new GroupName("rock"))
+				.build(),
+				inst(30000));
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				soil, null, set(), fields), is(Collections.emptyList()));
+		assertThat("incorrect count", manager.storage.searchGroupSummaries(
+				rock, null, set(), fields).size(), is(1));
+		
+		manager.storage.updateGroup(GroupUpdateParams.getBuilder(new GroupID("a"))
+				.withOptionalFields(OptionalGroupFields.getBuilder()
+						.withCustomField(desc, OptionalString.of("soil"))
+						.build())
+				.build(),
+				inst(40000));
+		assertThat("incorrect count", manager.storage.searchGroupSummaries(
+				soil, null, set(), fields).size(), is(1));
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				GroupSearchParams.getBuilder("water").build(), null, set(), fields),
+				is(Collections.emptyList()));
+		
+		manager.storage.updateGroup(GroupUpdateParams.getBuilder(new GroupID("a"))
+				.withOptionalFields(OptionalGroupFields.getBuilder()
+						.withCustomField(desc, OptionalString.empty())
+						.build())
+				.build(),
+				inst(50000));
+		assertThat("incorrect summaries", manager.storage.searchGroupSummaries(
+				soil, null, set(), fields), is(Collections.emptyList()));
+		assertThat("incorrect count", manager.storage.searchGroupSummaries(
+				rock, null, set(), fields).size(), is(1));
+	}
+	
+	@Test
+	public void searchGroupSummariesFail() throws Exception {
+		final GroupSearchParams p = GroupSearchParams.getBuilder("foo").build();
+		failSearchGroupSummaries(null, set(), set(), new NullPointerException("params"));
+		failSearchGroupSummaries(p, null, set(), new NullPointerException("resourceTypes"));
+		failSearchGroupSummaries(p, set(new ResourceType("t"), null), set(),
+				new NullPointerException("Null item in collection resourceTypes"));
+		failSearchGroupSummaries(p, set(), null, new NullPointerException("searchFields"));
+		failSearchGroupSummaries(p, set(), set(new CustomField("f"), null),
+				new NullPointerException("Null item in collection searchFields"));
+	}
+	
+	private void failSearchGroupSummaries(
+			final GroupSearchParams params,
+			final Set<ResourceType> types,
+			final Set<CustomField> fields,
+			final Exception expected) {
+		try {
+			manager.storage.searchGroupSummaries(params, new UserName("foo"), types, fields);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void addMember() throws Exception {
 		manager.storage.createGroup(Group.getBuilder(
@@ -2571,6 +3327,95 @@ public class MongoGroupsStorageOpsTest {
 		}
 	}
 
+	@Test
+	public void importAndProcessRequests() throws Exception {
+		final UUID id1 = UUID.fromString("00000000-0000-0000-0000-000000000001");
+		final UUID id2 = UUID.fromString("00000000-0000-0000-0000-000000000002");
+		final UUID id3 = UUID.fromString("00000000-0000-0000-0000-000000000003");
+		final GroupRequest r1 = GroupRequest.getBuilder(
+				new RequestID(id1), new GroupID("foo"), new UserName("bar"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+						.build())
+				.build();
+		final GroupRequest r2 = GroupRequest.getBuilder(
+				new RequestID(id2), new GroupID("foo"), new UserName("bar"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+						.withModificationTime(Instant.ofEpochMilli(25000))
+						.build())
+				.withStatus(GroupRequestStatus.denied(new UserName("own"), "reason"))
+				.build();
+		final GroupRequest r3 = GroupRequest.getBuilder(
+				new RequestID(id3), new GroupID("foo"), new UserName("baz"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+						.build())
+				.withType(RequestType.INVITE)
+				.withResourceType(new ResourceType("ws"))
+				.withResource(new ResourceDescriptor(new ResourceAdministrativeID("aid"),
+						new ResourceID("rid")))
+				.build();
+		manager.storage.storeRequest(r2);
+		manager.storage.importRequests(Arrays.asList(r3, r1));
+		manager.storage.importRequests(Collections.emptyList());
+		
+		final List<GroupRequest> got = new ArrayList<>();
+		manager.storage.processRequests(r -> got.add(r));
+		assertThat("incorrect requests", got, is(Arrays.asList(r1, r2, r3)));
+	}
+	
+	@Test
+	public void importRequestsFail() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final GroupRequest r2 = GroupRequest.getBuilder(
+				new RequestID(id2), new GroupID("foo2"), new UserName("bar"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+						.build())
+				.build();
+		failImportRequests(null, new NullPointerException("requests"));
+		failImportRequests(Arrays.asList(r2, null), new NullPointerException(
+				"Null item in collection requests"));
+		
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("foo"), new UserName("bar"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+					.build())
+				.build());
+		
+		// duplicate ID
+		failImportRequests(Arrays.asList(r2, GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("foo1"), new UserName("bar1"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000))
+						.build())
+				.build()),
+				new RequestExistsException("Request exists with ID: " + id));
+		// the requests prior to the duplicate are stored
+		assertThat("incorrect request", manager.storage.getRequest(new RequestID(id2)), is(r2));
+		
+		// equivalent open request
+		failImportRequests(Arrays.asList(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("foo"), new UserName("bar"),
+				CreateModAndExpireTimes.getBuilder(
+						Instant.ofEpochMilli(30000), Instant.ofEpochMilli(40000))
+						.build())
+				.build()),
+				new RequestExistsException("Request exists with ID: " + id));
+	}
+	
+	private void failImportRequests(final List<GroupRequest> requests, final Exception expected) {
+		try {
+			manager.storage.importRequests(requests);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void getRequestFail() throws Exception {
 		failGetRequest(null, new NullPointerException("requestID"));
@@ -3495,6 +4340,71 @@ public class MongoGroupsStorageOpsTest {
 		}
 	}
 	
+	private GroupRequest changedRequest(
+			final String id,
+			final String requester,
+			final int modification)
+			throws Exception {
+		return GroupRequest.getBuilder(
+				new RequestID(id), new GroupID("foo"), new UserName(requester),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(5000), Instant.ofEpochMilli(1000000))
+							.withModificationTime(Instant.ofEpochMilli(modification))
+							.build())
+				.build();
+	}
+	
+	@Test
+	public void getChangedRequestsEmpty() throws Exception {
+		assertThat("incorrect requests", manager.storage.getChangedRequests(
+				GetChangesParams.getBuilder().build()), is(Collections.emptyList()));
+	}
+	
+	@Test
+	public void getChangedRequests() throws Exception {
+		final String id1 = "00000000-0000-0000-0000-000000000001";
+		final String id2 = "00000000-0000-0000-0000-000000000002";
+		final String id3 = "00000000-0000-0000-0000-000000000003";
+		final GroupRequest r1 = changedRequest(id1, "u1", 20000);
+		final GroupRequest r2 = changedRequest(id2, "u2", 10000);
+		final GroupRequest r3 = changedRequest(id3, "u3", 20000);
+		manager.storage.storeRequest(r3);
+		manager.storage.storeRequest(r1);
+		manager.storage.storeRequest(r2);
+		
+		assertThat("incorrect requests", manager.storage.getChangedRequests(
+				GetChangesParams.getBuilder().build()), is(Arrays.asList(r2, r1, r3)));
+		assertThat("incorrect requests", manager.storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableAfter(inst(10000), null).build()),
+				is(Arrays.asList(r1, r3)));
+		assertThat("incorrect requests", manager.storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableAfter(inst(20000), id1).build()),
+				is(Arrays.asList(r3)));
+		assertThat("incorrect requests", manager.storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableAfter(inst(20000), null).build()),
+				is(Collections.emptyList()));
+		assertThat("incorrect requests", manager.storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableLimit(2).build()),
+				is(Arrays.asList(r2, r1)));
+		
+		// closed requests are included and move to the end of the list
+		manager.storage.closeRequest(new RequestID(id2), GroupRequestStatus.canceled(),
+				Instant.ofEpochMilli(30000));
+		assertThat("incorrect requests", manager.storage.getChangedRequests(
+				GetChangesParams.getBuilder().withNullableAfter(inst(20000), id1).build()),
+				is(Arrays.asList(r3, manager.storage.getRequest(new RequestID(id2)))));
+	}
+	
+	@Test
+	public void getChangedRequestsFail() throws Exception {
+		try {
+			manager.storage.getChangedRequests(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("params"));
+		}
+	}
+	
 	@Test
 	public void groupHasRequestsNoRequests() throws Exception {
 		// wrong group
@@ -3569,6 +4479,78 @@ public class MongoGroupsStorageOpsTest {
 		}
 	}
 	
+	@Test
+	public void getLatestOpenRequestDates() throws Exception {
+		// wrong group
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("foo"), new UserName("bar"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(70000), Instant.ofEpochMilli(80000))
+							.build())
+				.build());
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("bar"), new UserName("baz"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(40000), Instant.ofEpochMilli(40000))
+							.build())
+				.build());
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("bar"), new UserName("bat"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(50000), Instant.ofEpochMilli(60000))
+							.build())
+				.build());
+		// not incoming request
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("bar"), new UserName("bar"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(90000), Instant.ofEpochMilli(100000))
+							.build())
+				.withType(RequestType.INVITE)
+				.withResource(new ResourceDescriptor(new ResourceID("baz")))
+				.build());
+		// closed
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("baz"), new UserName("baz"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(20000), Instant.ofEpochMilli(30000))
+							.build())
+				.withStatus(GroupRequestStatus.expired())
+				.build());
+		manager.storage.storeRequest(GroupRequest.getBuilder(
+				new RequestID(UUID.randomUUID()), new GroupID("bat"), new UserName("baz"),
+					CreateModAndExpireTimes.getBuilder(
+							Instant.ofEpochMilli(30000), Instant.ofEpochMilli(30000))
+							.build())
+				.build());
+		
+		assertThat("incorrect dates", manager.storage.getLatestOpenRequestDates(
+				set(new GroupID("bar"), new GroupID("baz"), new GroupID("bat"),
+						new GroupID("whee"))),
+				is(ImmutableMap.of(
+						new GroupID("bar"), inst(50000),
+						new GroupID("bat"), inst(30000))));
+		
+		assertThat("incorrect dates", manager.storage.getLatestOpenRequestDates(set()),
+				is(Collections.emptyMap()));
+	}
+	
+	@Test
+	public void failGetLatestOpenRequestDates() throws Exception {
+		failGetLatestOpenRequestDates(null, new NullPointerException("groupIDs"));
+		failGetLatestOpenRequestDates(set(new GroupID("i"), null),
+				new NullPointerException("Null item in collection groupIDs"));
+	}
+	
+	private void failGetLatestOpenRequestDates(final Set<GroupID> ids, final Exception expected) {
+		try {
+			manager.storage.getLatestOpenRequestDates(ids);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void closeRequestCancel() throws Exception {
 		final UUID id = UUID.randomUUID();
@@ -3769,6 +4751,177 @@ public class MongoGroupsStorageOpsTest {
 		}
 	}
 	
+	@Test
+	public void storeAndClaimNotifications() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID id3 = UUID.randomUUID();
+		final UUID reqID = UUID.randomUUID();
+		final PendingNotification n1 = PendingNotification.getRequestBuilder(
+				id1, PendingNotification.Type.ACCEPT, new RequestID(reqID), inst(30000))
+				.withTargets(set(new UserName("a"), new UserName("b")))
+				.build();
+		final PendingNotification n2 = PendingNotification.getRequestBuilder(
+				id2, PendingNotification.Type.CANCEL, new RequestID(reqID), inst(10000))
+				.build();
+		final PendingNotification n3 = PendingNotification.getAddResourceBuilder(
+				id3, new UserName("u"), new GroupID("g"), new ResourceType("t"),
+				new ResourceID("r"), inst(20000))
+				.withTargets(set(new UserName("c")))
+				.build();
+		manager.storage.storeNotification(n1);
+		manager.storage.storeNotification(n2);
+		manager.storage.storeNotification(n3);
+		
+		// none ready
+		assertThat("incorrect claim", manager.storage.claimNotifications(
+				10, inst(5000), inst(100000)), is(Collections.emptyList()));
+		
+		assertThat("incorrect claim", manager.storage.claimNotifications(
+				2, inst(40000), inst(100000)), is(list(n2, n3)));
+		assertThat("incorrect claim", manager.storage.claimNotifications(
+				10, inst(40000), inst(100000)), is(list(n1)));
+		assertThat("incorrect claim", manager.storage.claimNotifications(
+				10, inst(40000), inst(100000)), is(Collections.emptyList()));
+		
+		// leases expired. All the notifications have the same lease, so order is arbitrary
+		assertThat("incorrect claim", new HashSet<>(manager.storage.claimNotifications(
+				10, inst(100000), inst(200000))), is(set(n1, n2, n3)));
+	}
+	
+	@Test
+	public void rescheduleAndRemoveNotifications() throws Exception {
+		final UUID id1 = UUID.randomUUID();
+		final UUID id2 = UUID.randomUUID();
+		final UUID reqID = UUID.randomUUID();
+		manager.storage.storeNotification(PendingNotification.getRequestBuilder(
+				id1, PendingNotification.Type.NOTIFY, new RequestID(reqID), inst(10000))
+				.withTargets(set(new UserName("a")))
+				.build());
+		manager.storage.storeNotification(PendingNotification.getRequestBuilder(
+				id2, PendingNotification.Type.DENY, new RequestID(reqID), inst(20000))
+				.build());
+		
+		manager.storage.claimNotifications(10, inst(30000), inst(100000));
+		manager.storage.rescheduleNotification(id1, 3, inst(50000));
+		manager.storage.removeNotification(id2);
+		// no effect
+		manager.storage.removeNotification(UUID.randomUUID());
+		manager.storage.rescheduleNotification(UUID.randomUUID(), 1, inst(50000));
+		
+		assertThat("incorrect claim", manager.storage.claimNotifications(
+				10, inst(40000), inst(100000)), is(Collections.emptyList()));
+		assertThat("incorrect claim", manager.storage.claimNotifications(
+				10, inst(50000), inst(100000)), is(list(PendingNotification.getRequestBuilder(
+						id1, PendingNotification.Type.NOTIFY, new RequestID(reqID),
+						inst(10000))
+						.withTargets(set(new UserName("a")))
+						.withAttempts(3)
+						.build())));
+		assertThat("incorrect claim", manager.storage.claimNotifications(
+				10, inst(200000), inst(300000)).size(), is(1));
+	}
+	
+	@Test
+	public void storeNotificationFail() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final PendingNotification n = PendingNotification.getRequestBuilder(
+				id, PendingNotification.Type.CANCEL, new RequestID(UUID.randomUUID()),
+				inst(10000))
+				.build();
+		manager.storage.storeNotification(n);
+		
+		failStoreNotification(null, new NullPointerException("notification"));
+		failStoreNotification(n, new IllegalArgumentException(String.format(
+				"ID %s already exists in the database. The programmer is responsible for " +
+				"maintaining unique IDs.", id)));
+	}
+	
+	private void failStoreNotification(
+			final PendingNotification notification,
+			final Exception expected) {
+		try {
+			manager.storage.storeNotification(notification);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void claimNotificationsFail() throws Exception {
+		final Instant i = inst(10000);
+		failClaimNotifications(0, i, i, new IllegalArgumentException("limit must be at least 1"));
+		failClaimNotifications(1, null, i, new NullPointerException("now"));
+		failClaimNotifications(1, i, null, new NullPointerException("leaseExpiration"));
+	}
+	
+	private void failClaimNotifications(
+			final int limit,
+			final Instant now,
+			final Instant leaseExpiration,
+			final Exception expected) {
+		try {
+			manager.storage.claimNotifications(limit, now, leaseExpiration);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void claimNotificationsFailBadData() throws Exception {
+		final UUID id = UUID.randomUUID();
+		manager.storage.storeNotification(PendingNotification.getRequestBuilder(
+				id, PendingNotification.Type.CANCEL, new RequestID(UUID.randomUUID()),
+				inst(10000))
+				.build());
+		manager.db.getCollection("notifications").updateOne(new Document("id", id.toString()),
+				new Document("$set", new Document("type", "WHEE")));
+		
+		try {
+			manager.storage.claimNotifications(1, inst(20000), inst(30000));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new GroupsStorageException(
+					"Unexpected value in database: No enum constant " +
+					"us.kbase.groups.core.notifications.PendingNotification.Type.WHEE"));
+		}
+	}
+	
+	@Test
+	public void rescheduleNotificationFail() throws Exception {
+		final UUID id = UUID.randomUUID();
+		final Instant i = inst(10000);
+		failRescheduleNotification(null, 1, i, new NullPointerException("id"));
+		failRescheduleNotification(id, 1, null, new NullPointerException("nextAttempt"));
+		failRescheduleNotification(id, -1, i, new IllegalArgumentException(
+				"attempts must be at least 0"));
+	}
+	
+	private void failRescheduleNotification(
+			final UUID id,
+			final int attempts,
+			final Instant nextAttempt,
+			final Exception expected) {
+		try {
+			manager.storage.rescheduleNotification(id, attempts, nextAttempt);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
+	@Test
+	public void removeNotificationFail() throws Exception {
+		try {
+			manager.storage.removeNotification(null);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new NullPointerException("id"));
+		}
+	}
+	
 	@Test
 	public void expireRequests() throws Exception {
 		final UUID id1 = UUID.randomUUID();
@@ -7,7 +7,9 @@ import static us.kbase.test.groups.TestCommon.set;
 
 import java.time.Instant;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
@@ -29,6 +31,10 @@ import us.kbase.groups.core.GroupID;
 import us.kbase.groups.core.GroupName;
 import us.kbase.groups.core.GroupUser;
 import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.fieldvalidation.NumberedCustomField;
+import us.kbase.groups.core.resource.ResourceDescriptor;
+import us.kbase.groups.core.resource.ResourceID;
+import us.kbase.groups.core.resource.ResourceType;
 import us.kbase.groups.storage.exceptions.StorageInitException;
 import us.kbase.groups.storage.mongo.MongoGroupsStorage;
 import us.kbase.test.groups.MongoStorageTestManager;
@@ -77,6 +83,7 @@ public class MongoGroupsStorageStartupTest {
 		assertThat("correct config key & value", (String)d.get("schema"), is("schema"));
 		assertThat("not in update", (Boolean)d.get("inupdate"), is(false));
 		assertThat("schema v1", (Integer)d.get("schemaver"), is(1));
+		assertThat("members in groups", (Boolean)d.get("membcol"), is(false));
 		
 		//check startup works with the config object in place
 		final MongoGroupsStorage ms = new MongoGroupsStorage(db);
@@ -148,10 +155,157 @@ public class MongoGroupsStorageStartupTest {
 				"schema. Aborting startup."));
 	}
 	
+	@Test
+	public void startUpAddsMissingSearchTokens() throws Exception {
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid1"), new GroupName("Soil microbes"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withCustomField(new NumberedCustomField("desc"), "Water")
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid2"), new GroupName("rocks"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.build());
+		final MongoCollection<Document> col = manager.db.getCollection("groups");
+		// simulate groups created before search was added
+		col.updateMany(new Document(), new Document("$unset", new Document("srch", "")));
+		col.updateOne(new Document("id", "gid2"),
+				new Document("$set", new Document("srch", Arrays.asList("_name:stale"))));
+		
+		new MongoGroupsStorage(manager.db);
+		
+		assertThat("incorrect tokens", getSearchTokens(col, "gid1"),
+				is(Arrays.asList("_name:microbes", "_name:soil", "desc:water")));
+		// existing tokens are left alone
+		assertThat("incorrect tokens", getSearchTokens(col, "gid2"),
+				is(Arrays.asList("_name:stale")));
+	}
+	
+	@Test
+	public void startUpAddsMissingResourceKeys() throws Exception {
+		final ResourceType ws = new ResourceType("workspace");
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid1"), new GroupName("name1"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("42")))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("43")))
+				.withResource(new ResourceType("catalogmethod"),
+						new ResourceDescriptor(new ResourceID("mod.meth")))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid2"), new GroupName("name2"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withResource(ws, new ResourceDescriptor(new ResourceID("44")))
+				.build());
+		manager.storage.createGroup(Group.getBuilder(
+				new GroupID("gid3"), new GroupName("name3"), toGUser("own"),
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.build());
+		final MongoCollection<Document> col = manager.db.getCollection("groups");
+		// simulate groups created before the resource keys were added
+		col.updateMany(new Document(), new Document("$unset", new Document("reskeys", "")));
+		col.updateOne(new Document("id", "gid2"),
+				new Document("$set", new Document("reskeys", Arrays.asList("workspace:stale"))));
+		
+		new MongoGroupsStorage(manager.db);
+		
+		assertThat("incorrect keys", new HashSet<>(getResourceKeys(col, "gid1")),
+				is(set("workspace:42", "workspace:43", "catalogmethod:mod.meth")));
+		// existing keys are left alone
+		assertThat("incorrect keys", getResourceKeys(col, "gid2"),
+				is(Arrays.asList("workspace:stale")));
+		assertThat("incorrect keys", getResourceKeys(col, "gid3"),
+				is(Collections.emptyList()));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private List<String> getResourceKeys(final MongoCollection<Document> col, final String id) {
+		return (List<String>) col.find(new Document("id", id)).first().get("reskeys");
+	}
+	
+	private GroupUser toGUser(final String user) throws Exception {
+		return GroupUser.getBuilder(new UserName(user), Instant.ofEpochMilli(10000)).build();
+	}
+	
+	private Object getSearchTokens(final MongoCollection<Document> col, final String id) {
+		return col.find(new Document("id", id)).first().get("srch");
+	}
+	
+	@Test
+	public void startUpWithMemberCollection() throws Exception {
+		final MongoDatabase db = manager.mc.getDatabase("startUpWithMemberCollection");
+		new MongoGroupsStorage(db, true);
+		final Document d = db.getCollection("config").find().first();
+		assertThat("members in collection", (Boolean)d.get("membcol"), is(true));
+		
+		final MongoGroupsStorage ms = new MongoGroupsStorage(db, true);
+		
+		final GroupUser u = GroupUser.getBuilder(new UserName("u"), Instant.ofEpochMilli(10000))
+				.build();
+		final GroupUser m = GroupUser.getBuilder(new UserName("m"), Instant.ofEpochMilli(10000))
+				.build();
+		ms.createGroup(Group.getBuilder(new GroupID("id"), new GroupName("name"), u,
+				new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+				.withMember(m)
+				.build());
+		
+		assertThat("incorrect group", ms.getGroup(new GroupID("id")), is(
+				Group.getBuilder(new GroupID("id"), new GroupName("name"), u,
+						new CreateAndModTimes(Instant.ofEpochMilli(10000)))
+						.withMember(m)
+						.build()));
+		assertThat("incorrect member docs", db.getCollection("members").countDocuments(),
+				is(2L));
+	}
+	
+	@Test
+	public void startUpWithMemberCollectionMismatch() throws Exception {
+		final MongoDatabase db = manager.mc.getDatabase("startUpWithMemberCollectionMismatch");
+		new MongoGroupsStorage(db);
+		
+		failMongoStart(db, true, new StorageInitException(
+				"The database stores group members in the group documents, but the storage " +
+				"system is configured to store group members in a separate collection"));
+	}
+	
+	@Test
+	public void startUpWithMemberDocumentMismatch() throws Exception {
+		final MongoDatabase db = manager.mc.getDatabase("startUpWithMemberDocumentMismatch");
+		new MongoGroupsStorage(db, true);
+		
+		failMongoStart(db, false, new StorageInitException(
+				"The database stores group members in a separate collection, but the storage " +
+				"system is configured to store group members in the group documents"));
+	}
+	
+	@Test
+	public void startUpWithMissingMemberCollectionFlag() throws Exception {
+		// databases created before the flag existed store members in the group documents
+		final MongoDatabase db = manager.mc.getDatabase("startUpWithMissingMemberCollectionFlag");
+		
+		db.getCollection("config").insertOne(new Document("schema", "schema")
+				.append("inupdate", false)
+				.append("schemaver", 1));
+		
+		new MongoGroupsStorage(db); // expect no exception
+		
+		failMongoStart(db, true, new StorageInitException(
+				"The database stores group members in the group documents, but the storage " +
+				"system is configured to store group members in a separate collection"));
+	}
+	
 	private void failMongoStart(final MongoDatabase db, final Exception exp)
 			throws Exception {
+		failMongoStart(db, false, exp);
+	}
+	
+	private void failMongoStart(
+			final MongoDatabase db,
+			final boolean memberCollection,
+			final Exception exp)
+			throws Exception {
 		try {
-			new MongoGroupsStorage(db);
+			new MongoGroupsStorage(db, memberCollection);
 			fail("started mongo with bad config");
 		} catch (Exception e) {
 			TestCommon.assertExceptionCorrect(e, exp);
@@ -170,7 +324,9 @@ public class MongoGroupsStorageStartupTest {
 		final Set<String> expected = set(
 				"config",
 				"requests",
-				"groups");
+				"groups",
+				"members",
+				"notifications");
 		if (manager.includeSystemIndexes) {
 			expected.add("system.indexes");
 		}
@@ -225,6 +381,41 @@ public class MongoGroupsStorageStartupTest {
 				new Document("v", manager.indexVer)
 						.append("key", new Document("memb.user", 1).append("id", 1))
 						.append("name", "memb.user_1_id_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("srch", 1))
+						.append("name", "srch_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("reskeys", 1).append("id", 1))
+						.append("name", "reskeys_1_id_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("mod", 1).append("id", 1))
+						.append("name", "mod_1_id_1")
+						.append("ns", col)
+				)));
+	}
+	
+	@Test
+	public void indexesMembers() {
+		final Set<Document> indexes = new HashSet<>();
+		manager.db.getCollection("members").listIndexes()
+				.forEach((Consumer<Document>) indexes::add);
+		final String col = "test_mongogroupsstorage.members";
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("key", new Document("gid", 1).append("user", 1))
+						.append("name", "gid_1_user_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("user", 1).append("gid", 1))
+						.append("name", "user_1_gid_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
 						.append("ns", col)
 				)));
 	}
@@ -281,6 +472,10 @@ public class MongoGroupsStorageStartupTest {
 						.append("key", new Document("expire", 1))
 						.append("name", "expire_1")
 						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("mod", 1).append("id", 1))
+						.append("name", "mod_1_id_1")
+						.append("ns", col),
 				new Document("v", manager.indexVer)
 						.append("unique", true)
 						.append("sparse", true)
@@ -293,4 +488,27 @@ public class MongoGroupsStorageStartupTest {
 						.append("ns", col)
 				)));
 	}
+	
+	@Test
+	public void indexesNotifications() {
+		final Set<Document> indexes = new HashSet<>();
+		manager.db.getCollection("notifications").listIndexes()
+				.forEach((Consumer<Document>) indexes::add);
+		final String col = "test_mongogroupsstorage.notifications";
+		assertThat("incorrect indexes", indexes, is(set(
+				new Document("v", manager.indexVer)
+						.append("unique", true)
+						.append("key", new Document("id", 1))
+						.append("name", "id_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("next", 1))
+						.append("name", "next_1")
+						.append("ns", col),
+				new Document("v", manager.indexVer)
+						.append("key", new Document("_id", 1))
+						.append("name", "_id_")
+						.append("ns", col)
+				)));
+	}
 }
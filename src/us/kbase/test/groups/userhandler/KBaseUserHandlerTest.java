@@ -0,0 +1,234 @@
+package us.kbase.test.groups.userhandler;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableMap;
+
+import us.kbase.auth.AuthException;
+import us.kbase.auth.AuthToken;
+import us.kbase.auth.ConfigurableAuthService;
+import us.kbase.groups.core.Token;
+import us.kbase.groups.core.UserName;
+import us.kbase.groups.core.exceptions.InvalidTokenException;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.MetricsRegistry;
+import us.kbase.groups.userhandler.KBaseUserHandler;
+import us.kbase.test.groups.TestCommon;
+
+public class KBaseUserHandlerTest {
+	
+	private static class FakeTicker extends Ticker {
+	
+		private long nanos = 0;
+		
+		@Override
+		public long read() {
+			return nanos;
+		}
+		
+		public void advance(final int seconds) {
+			nanos += TimeUnit.SECONDS.toNanos(seconds);
+		}
+	}
+	
+	private KBaseUserHandler getHandler(
+			final ConfigurableAuthService auth,
+			final int cacheSize,
+			final Ticker ticker)
+			throws Throwable {
+		return getHandler(auth, cacheSize, new DownstreamTimer(new MetricsRegistry()), ticker);
+	}
+	
+	private KBaseUserHandler getHandler(
+			final ConfigurableAuthService auth,
+			final int cacheSize,
+			final DownstreamTimer timer,
+			final Ticker ticker)
+			throws Throwable {
+		final Constructor<KBaseUserHandler> con =
+				KBaseUserHandler.class.getDeclaredConstructor(
+						ConfigurableAuthService.class, Token.class, int.class, int.class,
+						DownstreamTimer.class, Ticker.class);
+		con.setAccessible(true);
+		try {
+			return con.newInstance(auth, new Token("service"), cacheSize, 30, timer, ticker);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private ConfigurableAuthService getAuth() throws Exception {
+		final ConfigurableAuthService auth = mock(ConfigurableAuthService.class);
+		when(auth.validateToken("service")).thenReturn(new AuthToken("service", "serv"));
+		return auth;
+	}
+	
+	@Test
+	public void constructFail() throws Throwable {
+		final ConfigurableAuthService auth = getAuth();
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		final Ticker t = new FakeTicker();
+		failConstruct(auth, null, 1, 1, dt, t, new NullPointerException("serviceToken"));
+		failConstruct(auth, new Token("service"), -1, 1, dt, t,
+				new IllegalArgumentException("cacheSize must be at least 0"));
+		failConstruct(auth, new Token("service"), 1, 0, dt, t,
+				new IllegalArgumentException("cacheExpirationSec must be at least 1"));
+		failConstruct(auth, new Token("service"), 1, 1, null, t,
+				new NullPointerException("timer"));
+		
+		when(auth.validateToken("bad")).thenThrow(new AuthException("Invalid token"));
+		failConstruct(auth, new Token("bad"), 1, 1, dt, t,
+				new InvalidTokenException("Invalid token"));
+	}
+	
+	private void failConstruct(
+			final ConfigurableAuthService auth,
+			final Token serviceToken,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final DownstreamTimer timer,
+			final Ticker ticker,
+			final Exception expected)
+			throws Exception {
+		final Constructor<KBaseUserHandler> con =
+				KBaseUserHandler.class.getDeclaredConstructor(
+						ConfigurableAuthService.class, Token.class, int.class, int.class,
+						DownstreamTimer.class, Ticker.class);
+		con.setAccessible(true);
+		try {
+			con.newInstance(auth, serviceToken, cacheSize, cacheExpirationSec, timer, ticker);
+			fail("expected exception");
+		} catch (InvocationTargetException got) {
+			TestCommon.assertExceptionCorrect(got.getCause(), expected);
+		}
+	}
+	
+	@Test
+	public void getUserCached() throws Throwable {
+		final ConfigurableAuthService auth = getAuth();
+		final FakeTicker t = new FakeTicker();
+		final KBaseUserHandler uh = getHandler(auth, 100, t);
+		
+		when(auth.validateToken("tok")).thenReturn(new AuthToken("tok", "user1"));
+		
+		assertThat("incorrect user", uh.getUser(new Token("tok")), is(new UserName("user1")));
+		t.advance(29);
+		assertThat("incorrect user", uh.getUser(new Token("tok")), is(new UserName("user1")));
+		
+		verify(auth, times(1)).validateToken("tok");
+		// the service token check on construction is also a miss
+		assertThat("incorrect hits", uh.getTokenCacheStats().hitCount(), is(1L));
+		assertThat("incorrect misses", uh.getTokenCacheStats().missCount(), is(2L));
+	}
+	
+	@Test
+	public void getUserCacheHitNotTimed() throws Throwable {
+		final ConfigurableAuthService auth = getAuth();
+		final MetricsRegistry r = new MetricsRegistry();
+		final DownstreamTimer dt = new DownstreamTimer(r);
+		final KBaseUserHandler uh = getHandler(auth, 100, dt, new FakeTicker());
+		
+		when(auth.validateToken("tok")).thenReturn(new AuthToken("tok", "user1"));
+		
+		uh.getUser(new Token("tok"));
+		dt.startRequest();
+		assertThat("incorrect user", uh.getUser(new Token("tok")), is(new UserName("user1")));
+		assertThat("incorrect downstream time", dt.endRequest(), is(0L));
+		
+		// the service token check on construction and the first lookup
+		assertThat("incorrect calls", r.toPrometheusText().contains(
+				"groups_downstream_calls_total{dependency=\"auth\"," +
+				"operation=\"validateToken\"} 2\n"),
+				is(true));
+	}
+	
+	@Test
+	public void getUserExpired() throws Throwable {
+		final ConfigurableAuthService auth = getAuth();
+		final FakeTicker t = new FakeTicker();
+		final KBaseUserHandler uh = getHandler(auth, 100, t);
+		
+		when(auth.validateToken("tok")).thenReturn(
+				new AuthToken("tok", "user1"), new AuthToken("tok", "user2"));
+		
+		assertThat("incorrect user", uh.getUser(new Token("tok")), is(new UserName("user1")));
+		t.advance(30);
+		assertThat("incorrect user", uh.getUser(new Token("tok")), is(new UserName("user2")));
+		assertThat("incorrect user", uh.getUser(new Token("tok")), is(new UserName("user2")));
+		
+		verify(auth, times(2)).validateToken("tok");
+	}
+	
+	@Test
+	public void getUserNoCache() throws Throwable {
+		final ConfigurableAuthService auth = getAuth();
+		final KBaseUserHandler uh = getHandler(auth, 0, new FakeTicker());
+		
+		when(auth.validateToken("tok")).thenReturn(new AuthToken("tok", "user1"));
+		
+		uh.getUser(new Token("tok"));
+		uh.getUser(new Token("tok"));
+		
+		verify(auth, times(2)).validateToken("tok");
+	}
+	
+	@Test
+	public void getUserInvalidTokenNotCached() throws Throwable {
+		final ConfigurableAuthService auth = getAuth();
+		final KBaseUserHandler uh = getHandler(auth, 100, new FakeTicker());
+		
+		when(auth.validateToken("tok")).thenThrow(new AuthException("Invalid token"))
+				.thenReturn(new AuthToken("tok", "user1"));
+		
+		try {
+			uh.getUser(new Token("tok"));
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new InvalidTokenException("Invalid token"));
+		}
+		assertThat("incorrect user", uh.getUser(new Token("tok")), is(new UserName("user1")));
+	}
+	
+	@Test
+	public void isValidUserCached() throws Throwable {
+		final ConfigurableAuthService auth = getAuth();
+		final FakeTicker t = new FakeTicker();
+		final KBaseUserHandler uh = getHandler(auth, 100, t);
+		
+		when(auth.isValidUserName(eq(Arrays.asList("user1")), any(AuthToken.class)))
+				.thenReturn(ImmutableMap.of("user1", true));
+		when(auth.isValidUserName(eq(Arrays.asList("user2")), any(AuthToken.class)))
+				.thenReturn(ImmutableMap.of("user2", false));
+		
+		assertThat("incorrect valid", uh.isValidUser(new UserName("user1")), is(true));
+		assertThat("incorrect valid", uh.isValidUser(new UserName("user1")), is(true));
+		// invalid names are not cached
+		assertThat("incorrect valid", uh.isValidUser(new UserName("user2")), is(false));
+		assertThat("incorrect valid", uh.isValidUser(new UserName("user2")), is(false));
+		
+		verify(auth, times(1)).isValidUserName(eq(Arrays.asList("user1")), any(AuthToken.class));
+		verify(auth, times(2)).isValidUserName(eq(Arrays.asList("user2")), any(AuthToken.class));
+		assertThat("incorrect hits", uh.getUserCacheStats().hitCount(), is(1L));
+		assertThat("incorrect misses", uh.getUserCacheStats().missCount(), is(3L));
+		
+		t.advance(30);
+		assertThat("incorrect valid", uh.isValidUser(new UserName("user1")), is(true));
+		verify(auth, times(2)).isValidUserName(eq(Arrays.asList("user1")), any(AuthToken.class));
+	}
+}
@@ -0,0 +1,117 @@
+package us.kbase.test.groups.util;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import us.kbase.groups.core.exceptions.NoSuchGroupException;
+import us.kbase.groups.util.SingleFlight;
+import us.kbase.test.groups.TestCommon;
+
+public class SingleFlightTest {
+
+	@Test
+	public void getNotCached() throws Exception {
+		final SingleFlight<String, Integer> sf = new SingleFlight<>();
+		final AtomicInteger count = new AtomicInteger();
+		
+		assertThat("incorrect value", sf.get("k", () -> count.incrementAndGet()), is(1));
+		assertThat("incorrect value", sf.get("k", () -> count.incrementAndGet()), is(2));
+		assertThat("incorrect value", sf.get("k2", () -> count.incrementAndGet()), is(3));
+	}
+	
+	@Test
+	public void getConcurrent() throws Exception {
+		final SingleFlight<String, Integer> sf = new SingleFlight<>();
+		final AtomicInteger count = new AtomicInteger();
+		final CountDownLatch inLoad = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		final ExecutorService exe = Executors.newFixedThreadPool(2);
+		try {
+			final Future<Integer> f1 = exe.submit(() -> sf.get("k", () -> {
+				inLoad.countDown();
+				release.await();
+				return count.incrementAndGet();
+			}));
+			inLoad.await();
+			final Future<Integer> f2 = exe.submit(() -> sf.get(
+					"k", () -> count.incrementAndGet()));
+			Thread.sleep(100); // let the 2nd thread block on the in progress load
+			release.countDown();
+			
+			assertThat("incorrect value", f1.get(), is(1));
+			assertThat("incorrect value", f2.get(), is(1));
+			assertThat("incorrect load count", count.get(), is(1));
+		} finally {
+			exe.shutdownNow();
+		}
+		// the load is complete, so the next get loads again
+		assertThat("incorrect value", sf.get("k", () -> count.incrementAndGet()), is(2));
+	}
+	
+	@Test
+	public void getConcurrentException() throws Exception {
+		final SingleFlight<String, Integer> sf = new SingleFlight<>();
+		final CountDownLatch inLoad = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		
+		final ExecutorService exe = Executors.newFixedThreadPool(2);
+		try {
+			final Future<Integer> f1 = exe.submit(() -> sf.get("k", () -> {
+				inLoad.countDown();
+				release.await();
+				throw new NoSuchGroupException("k");
+			}));
+			inLoad.await();
+			final Future<Integer> f2 = exe.submit(() -> sf.get("k", () -> 1));
+			Thread.sleep(100); // let the 2nd thread block on the in progress load
+			release.countDown();
+			
+			failGet(f1, new NoSuchGroupException("k"));
+			failGet(f2, new NoSuchGroupException("k"));
+		} finally {
+			exe.shutdownNow();
+		}
+		// failures aren't cached
+		assertThat("incorrect value", sf.get("k", () -> 1), is(1));
+	}
+	
+	private void failGet(final Future<Integer> f, final Exception expected) throws Exception {
+		try {
+			f.get();
+			fail("expected exception");
+		} catch (ExecutionException got) {
+			TestCommon.assertExceptionCorrect(got.getCause(), expected);
+		}
+	}
+	
+	@Test
+	public void getFail() throws Exception {
+		final SingleFlight<String, Integer> sf = new SingleFlight<>();
+		failGet(sf, null, () -> 1, new NullPointerException("key"));
+		failGet(sf, "k", null, new NullPointerException("loader"));
+	}
+	
+	private void failGet(
+			final SingleFlight<String, Integer> sf,
+			final String key,
+			final SingleFlight.Loader<Integer> loader,
+			final Exception expected) {
+		try {
+			sf.get(key, loader);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+}
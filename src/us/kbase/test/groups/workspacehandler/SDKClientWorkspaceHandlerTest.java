@@ -4,10 +4,12 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import static org.mockito.Mockito.argThat;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static us.kbase.test.groups.TestCommon.set;
@@ -16,11 +18,16 @@ import java.io.IOException;
 import java.net.URL;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 import org.junit.Test;
 import org.mockito.ArgumentMatcher;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
 
 import com.google.common.collect.ImmutableMap;
 
@@ -37,6 +44,8 @@ import us.kbase.groups.core.resource.ResourceAdministrativeID;
 import us.kbase.groups.core.resource.ResourceDescriptor;
 import us.kbase.groups.core.resource.ResourceID;
 import us.kbase.groups.core.resource.ResourceInformationSet;
+import us.kbase.groups.metrics.DownstreamTimer;
+import us.kbase.groups.metrics.MetricsRegistry;
 import us.kbase.groups.workspacehandler.SDKClientWorkspaceHandler;
 import us.kbase.test.groups.TestCommon;
 import us.kbase.workspace.WorkspaceClient;
@@ -105,6 +114,49 @@ public class SDKClientWorkspaceHandlerTest {
 		failConstruct(null, new NullPointerException("client"));
 	}
 	
+	@Test
+	public void constructFailParallelism() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		
+		try {
+			new SDKClientWorkspaceHandler(c, 0);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, new IllegalArgumentException(
+					"parallelism must be at least 1"));
+		}
+	}
+	
+	@Test
+	public void constructFailCacheParams() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		final DownstreamTimer dt = new DownstreamTimer(new MetricsRegistry());
+		
+		failConstruct(c, -1, 1, 1, dt, new IllegalArgumentException(
+				"cacheSize must be at least 0"));
+		failConstruct(c, 0, 0, 1, dt, new IllegalArgumentException(
+				"cacheExpirationSec must be at least 1"));
+		failConstruct(c, 0, 1, 0, dt, new IllegalArgumentException(
+				"permsCacheExpirationSec must be at least 1"));
+		failConstruct(c, 0, 1, 1, null, new NullPointerException("timer"));
+	}
+	
+	private void failConstruct(
+			final WorkspaceClient c,
+			final int cacheSize,
+			final int cacheExpirationSec,
+			final int permsCacheExpirationSec,
+			final DownstreamTimer timer,
+			final Exception expected) {
+		try {
+			new SDKClientWorkspaceHandler(
+					c, 1, cacheSize, cacheExpirationSec, permsCacheExpirationSec, timer);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	@Test
 	public void constructFailVersion() throws Exception {
 		final WorkspaceClient c = mock(WorkspaceClient.class);
@@ -437,54 +489,22 @@ public class SDKClientWorkspaceHandlerTest {
 		
 		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(c);
 		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "a", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(3)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "a", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(5)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "w", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(7)));
-
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "w", "user2", "w")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(8)));
-
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(9)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(10)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(11)));
-		
-		doThrow(new ServerException("Workspace 20 is deleted", -1, "n"))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(20)));
-		doThrow(new ServerException("No workspace with id 21 exists", -1, "n"))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(21)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(30)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(31)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user1", "r", "user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(40)));
-		
-		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
-				ImmutableMap.of("user2", "w", "*", "r")))))
-				.when(c).administer(argThat(getPermissionsCommandMatcher(41)));
+		final Map<Long, Object> perms = new HashMap<>();
+		perms.put(3L, ImmutableMap.of("user1", "a", "user2", "w"));
+		perms.put(5L, ImmutableMap.of("user1", "a", "user2", "w"));
+		perms.put(7L, ImmutableMap.of("user1", "w", "user2", "w"));
+		perms.put(8L, ImmutableMap.of("user1", "w", "user2", "w"));
+		perms.put(9L, ImmutableMap.of("user1", "r", "user2", "w", "*", "r"));
+		perms.put(10L, ImmutableMap.of("user1", "r", "user2", "w", "*", "r"));
+		perms.put(11L, ImmutableMap.of("user2", "w", "*", "r"));
+		perms.put(20L, new ServerException("Workspace 20 is deleted", -1, "n"));
+		perms.put(21L, new ServerException("No workspace with id 21 exists", -1, "n"));
+		perms.put(30L, ImmutableMap.of("user1", "r", "user2", "w", "*", "r"));
+		perms.put(31L, ImmutableMap.of("user2", "w", "*", "r"));
+		perms.put(40L, ImmutableMap.of("user1", "r", "user2", "w", "*", "r"));
+		perms.put(41L, ImmutableMap.of("user2", "w", "*", "r"));
+		doAnswer(new GetPermissionsMassAnswer(perms))
+				.when(c).administer(argThat(new UObjectCommandMatcher("getPermissionsMass")));
 
 		doReturn(getWorkspaceInfoResponse(3, "name3", "user1", "2018-10-27T02:16:53+0000", false,
 				Collections.emptyMap()))
@@ -569,8 +589,276 @@ public class SDKClientWorkspaceHandlerTest {
 				administratedResourcesOnly);
 		
 		assertThat("incorrect resources", ri, is(expected));
+		// one call for all the workspaces, and one retry for each of the two missing
+		// workspaces
+		verify(c, times(3)).administer(argThat(
+				new UObjectCommandMatcher("getPermissionsMass")));
+	}
+	
+	private static class UObjectCommandMatcher implements ArgumentMatcher<UObject> {
+
+		private final String command;
+
+		public UObjectCommandMatcher(final String command) {
+			this.command = command;
+		}
+		
+		@Override
+		public boolean matches(final UObject uo) {
+			final Map<String, Object> obj = uo.asInstance();
+			return command.equals(obj.get("command"));
+		}
+	}
+	
+	/* Acts like the workspace getPermissionsMass command - returns the permissions for the
+	 * workspaces in order, or throws the exception for the first workspace that has one.
+	 */
+	private static class GetPermissionsMassAnswer implements Answer<UObject> {
+		
+		private final Map<Long, Object> perms;
+		
+		public GetPermissionsMassAnswer(final Map<Long, Object> perms) {
+			this.perms = perms;
+		}
+
+		@Override
+		public UObject answer(final InvocationOnMock inv) throws Throwable {
+			final Map<String, Object> cmd = ((UObject) inv.getArgument(0)).asInstance();
+			@SuppressWarnings("unchecked")
+			final Map<String, List<Map<String, Number>>> params =
+					(Map<String, List<Map<String, Number>>>) cmd.get("params");
+			final List<Object> ret = new LinkedList<>();
+			for (final Map<String, Number> wsi: params.get("workspaces")) {
+				final Object p = perms.get(wsi.get("id").longValue());
+				if (p instanceof Exception) {
+					throw (Exception) p;
+				}
+				ret.add(p);
+			}
+			return new UObject(ImmutableMap.of("perms", ret));
+		}
 	}
 
+	@Test
+	public void getResourceInformationCached() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		
+		when(c.ver()).thenReturn(MIN_WS_VER);
+		
+		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(c);
+		
+		final ResourceInformationSet expected = setUpCachingTest(c);
+		final Set<ResourceID> rids = set(new ResourceID("5"));
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		
+		verify(c).administer(argThat(getPermissionsCommandMatcher(5)));
+		verify(c).administer(argThat(getWSInfoCommandMatcher(5)));
+		verify(c).administer(argThat(getWSDescCommandMatcher(5)));
+		verify(c).administer(argThat(getObjectInfoCommandMatcher(5, 6, 1)));
+		
+		h.evictCache(new ResourceID("6")); // noop
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		
+		verify(c).administer(argThat(getPermissionsCommandMatcher(5)));
+		verify(c).administer(argThat(getWSInfoCommandMatcher(5)));
+		
+		h.evictCache(new ResourceID("5"));
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		
+		verify(c, times(2)).administer(argThat(getPermissionsCommandMatcher(5)));
+		verify(c, times(2)).administer(argThat(getWSInfoCommandMatcher(5)));
+		verify(c, times(2)).administer(argThat(getWSDescCommandMatcher(5)));
+		verify(c, times(2)).administer(argThat(getObjectInfoCommandMatcher(5, 6, 1)));
+		
+		h.evictCache();
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		
+		verify(c, times(3)).administer(argThat(getPermissionsCommandMatcher(5)));
+		verify(c, times(3)).administer(argThat(getWSInfoCommandMatcher(5)));
+		verify(c, times(3)).administer(argThat(getWSDescCommandMatcher(5)));
+		verify(c, times(3)).administer(argThat(getObjectInfoCommandMatcher(5, 6, 1)));
+	}
+	
+	@Test
+	public void getResourceInformationCacheHitNotTimed() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		
+		when(c.ver()).thenReturn(MIN_WS_VER);
+		
+		final MetricsRegistry r = new MetricsRegistry();
+		final DownstreamTimer dt = new DownstreamTimer(r);
+		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(
+				c, 1, 100, 300, 30, dt);
+		
+		final ResourceInformationSet expected = setUpCachingTest(c);
+		final Set<ResourceID> rids = set(new ResourceID("5"));
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		dt.startRequest();
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		assertThat("incorrect downstream time", dt.endRequest(), is(0L));
+		
+		final String text = r.toPrometheusText();
+		for (final String op: Arrays.asList("getPermissionsMass", "getWorkspaceInfo",
+				"getWorkspaceDescription", "getObjectInfo")) {
+			assertThat("incorrect calls for " + op, text.contains(
+					"groups_downstream_calls_total{dependency=\"workspace\",operation=\"" +
+					op + "\"} 1\n"),
+					is(true));
+		}
+	}
+	
+	@Test
+	public void getResourceInformationMissingWorkspacesCached() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		
+		when(c.ver()).thenReturn(MIN_WS_VER);
+		
+		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(c);
+		
+		final ResourceInformationSet expected = setUpCachingTest(c);
+		final Map<Long, Object> perms = new HashMap<>();
+		perms.put(5L, ImmutableMap.of("user1", "a", "user2", "w"));
+		perms.put(20L, new ServerException("Workspace 20 is deleted", -1, "n"));
+		perms.put(21L, new ServerException("No workspace with id 21 exists", -1, "n"));
+		doAnswer(new GetPermissionsMassAnswer(perms))
+				.when(c).administer(argThat(new UObjectCommandMatcher("getPermissionsMass")));
+		final Set<ResourceID> rids = set(
+				new ResourceID("5"), new ResourceID("20"), new ResourceID("21"));
+		
+		for (int i = 0; i < 2; i++) {
+			final ResourceInformationSet ri = h.getResourceInformation(
+					new UserName("user1"), rids, false);
+			assertThat("incorrect resources", ri.withoutNonexistentResources(), is(expected));
+			assertThat("incorrect missing", ri.getNonexistentResources(),
+					is(set(new ResourceID("20"), new ResourceID("21"))));
+		}
+		// one call for all the workspaces, and one retry for each of the two missing
+		// workspaces. The second lookup is answered from the cache.
+		verify(c, times(3)).administer(argThat(
+				new UObjectCommandMatcher("getPermissionsMass")));
+		
+		h.evictCache(new ResourceID("20"));
+		
+		assertThat("incorrect missing", h.getResourceInformation(
+				new UserName("user1"), rids, false).getNonexistentResources(),
+				is(set(new ResourceID("20"), new ResourceID("21"))));
+		verify(c, times(4)).administer(argThat(
+				new UObjectCommandMatcher("getPermissionsMass")));
+	}
+	
+	@Test
+	public void getResourceInformationCacheDisabled() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		
+		when(c.ver()).thenReturn(MIN_WS_VER);
+		
+		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(
+				c, 1, 0, 1, 1, new DownstreamTimer(new MetricsRegistry()));
+		
+		final ResourceInformationSet expected = setUpCachingTest(c);
+		final Set<ResourceID> rids = set(new ResourceID("5"));
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		
+		verify(c, times(2)).administer(argThat(getPermissionsCommandMatcher(5)));
+		verify(c, times(2)).administer(argThat(getWSInfoCommandMatcher(5)));
+		verify(c, times(2)).administer(argThat(getWSDescCommandMatcher(5)));
+		verify(c, times(2)).administer(argThat(getObjectInfoCommandMatcher(5, 6, 1)));
+	}
+	
+	@Test
+	public void getResourceInformationPermissionsCacheClearedOnSetReadPermission()
+			throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		
+		when(c.ver()).thenReturn(MIN_WS_VER);
+		
+		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(c);
+		
+		final ResourceInformationSet expected = setUpCachingTest(c);
+		final Set<ResourceID> rids = set(new ResourceID("5"));
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		
+		h.setReadPermission(new ResourceID("5"), new UserName("user5"));
+		
+		assertThat("incorrect resources", h.getResourceInformation(
+				new UserName("user1"), rids, false), is(expected));
+		
+		// 1 for each get info call, one for the set read perms call
+		verify(c, times(3)).administer(argThat(getPermissionsCommandMatcher(5)));
+		verify(c).administer(argThat(setPermissionsCommandMatcher(5, "user5", "r")));
+		// ws info is still cached
+		verify(c).administer(argThat(getWSInfoCommandMatcher(5)));
+	}
+
+	private ResourceInformationSet setUpCachingTest(final WorkspaceClient c) throws Exception {
+		doReturn(new UObject(ImmutableMap.of("perms", Arrays.asList(
+				ImmutableMap.of("user1", "a", "user2", "w")))))
+				.when(c).administer(argThat(getPermissionsCommandMatcher(5)));
+		
+		doReturn(getWorkspaceInfoResponse(5, "name5", "user3", "1970-01-01T00:00:00+0000", false,
+				ImmutableMap.of(
+						"is_temporary", "false",
+						"narrative", "6",
+						"narrative_nice_name", "narr_name")))
+				.when(c).administer(argThat(getWSInfoCommandMatcher(5)));
+		
+		doReturn(new UObject("my desc")).when(c).administer(argThat(getWSDescCommandMatcher(5)));
+		
+		doReturn(getObjectInfoResponse("2017-07-14T02:40:00+0000"))
+				.when(c).administer(argThat(getObjectInfoCommandMatcher(5, 6, 1)));
+		
+		return ResourceInformationSet.getBuilder(new UserName("user1"))
+				.withResourceField(RD5, "name", "name5")
+				.withResourceField(RD5, "public", false)
+				.withResourceField(RD5, "narrname", "narr_name")
+				.withResourceField(RD5, "narrcreate", 1500000000000L)
+				.withResourceField(RD5, "perm", "Admin")
+				.withResourceField(RD5, "description", "my desc")
+				.withResourceField(RD5, "moddate", 0L)
+				.build();
+	}
+	
+	@Test
+	public void evictCacheFailBadArgs() throws Exception {
+		final WorkspaceClient c = mock(WorkspaceClient.class);
+		when(c.ver()).thenReturn(MIN_WS_VER);
+		final SDKClientWorkspaceHandler h = new SDKClientWorkspaceHandler(c);
+		
+		failEvictCache(h, null, new NullPointerException("resource"));
+		failEvictCache(h, new ResourceID("foo"), new IllegalResourceIDException("foo"));
+	}
+	
+	private void failEvictCache(
+			final SDKClientWorkspaceHandler h,
+			final ResourceID rid,
+			final Exception expected) {
+		try {
+			h.evictCache(rid);
+			fail("expected exception");
+		} catch (Exception got) {
+			TestCommon.assertExceptionCorrect(got, expected);
+		}
+	}
+	
 	private UObjectArgumentMatcher getWSInfoCommandMatcher(final int wsid) {
 		return new UObjectArgumentMatcher(ImmutableMap.of(
 				"command", "getWorkspaceInfo",